@@ -0,0 +1,91 @@
+package com.example.chatstorage.auth;
+
+import com.example.chatstorage.exception.UnauthorizedException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.UUID;
+
+// Key format and hashing shared by both service variants, so a key issued by one authenticates on the other.
+public final class ApiKeyCodec {
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+    private static final String KEY_PREFIX_LABEL = "csk";
+
+    private ApiKeyCodec() {
+    }
+
+    public static String format(String prefix, String secret) {
+        return KEY_PREFIX_LABEL + "_" + prefix + "." + secret;
+    }
+
+    public static ParsedApiKey parse(String rawKey) {
+        if (rawKey == null || rawKey.isBlank()) {
+            throw new UnauthorizedException("Missing API key");
+        }
+
+        int dotIndex = rawKey.indexOf('.');
+        if (dotIndex <= 0 || dotIndex >= rawKey.length() - 1) {
+            throw new UnauthorizedException("Invalid API key format");
+        }
+
+        String prefixPart = rawKey.substring(0, dotIndex);
+        String secretPart = rawKey.substring(dotIndex + 1);
+        String expectedPrefix = KEY_PREFIX_LABEL + "_";
+        if (!prefixPart.startsWith(expectedPrefix)) {
+            throw new UnauthorizedException("Invalid API key format");
+        }
+
+        String prefix = prefixPart.substring(expectedPrefix.length());
+        if (prefix.isBlank() || secretPart.isBlank()) {
+            throw new UnauthorizedException("Invalid API key format");
+        }
+
+        return new ParsedApiKey(prefix, secretPart);
+    }
+
+    public static String generatePublicPrefix() {
+        return UUID.randomUUID().toString().replace("-", "").substring(0, 16);
+    }
+
+    public static String generateSecret() {
+        byte[] random = new byte[32];
+        SECURE_RANDOM.nextBytes(random);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+    }
+
+    public static String hashSecret(String pepper, String secret) {
+        if (pepper == null || pepper.isBlank()) {
+            throw new UnauthorizedException("API key pepper is not configured");
+        }
+
+        return sha256Hex(pepper + "." + secret);
+    }
+
+    public static boolean constantTimeEquals(String left, String right) {
+        return MessageDigest.isEqual(
+                left.getBytes(StandardCharsets.UTF_8),
+                right.getBytes(StandardCharsets.UTF_8)
+        );
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            byte[] digest = messageDigest.digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                builder.append(String.format("%02x", b));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    }
+
+    public record ParsedApiKey(String prefix, String secret) {
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.chatstorage.domain;
+
+import java.nio.charset.StandardCharsets;
+
+// Size and preview rules for message text; the session summary columns depend on both variants agreeing on them.
+public final class MessageText {
+
+    public static final int PREVIEW_LENGTH = 200;
+    // Roughly four UTF-8 bytes per token for common BPE tokenizers; errs high for non-Latin text, which is the safe side for budgets.
+    private static final int BYTES_PER_TOKEN = 4;
+
+    private MessageText() {
+    }
+
+    public static int bytes(String text) {
+        return text == null ? 0 : text.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    public static int tokens(String text) {
+        return tokensForBytes(bytes(text));
+    }
+
+    public static int tokensForBytes(int bytes) {
+        return (bytes + BYTES_PER_TOKEN - 1) / BYTES_PER_TOKEN;
+    }
+
+    public static String preview(String content) {
+        if (content == null) {
+            return null;
+        }
+        String trimmed = content.strip();
+        if (trimmed.length() <= PREVIEW_LENGTH) {
+            return trimmed;
+        }
+        int end = PREVIEW_LENGTH;
+        // Do not split a surrogate pair.
+        if (Character.isHighSurrogate(trimmed.charAt(end - 1))) {
+            end--;
+        }
+        return trimmed.substring(0, end);
+    }
+}
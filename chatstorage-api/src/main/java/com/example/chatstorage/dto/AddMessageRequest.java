@@ -4,6 +4,7 @@ import com.example.chatstorage.entity.SenderType;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 
 public record AddMessageRequest(
         @Schema(description = "Who sent this message (USER, ASSISTANT, or SYSTEM)", example = "USER")
@@ -11,6 +12,11 @@ public record AddMessageRequest(
         @Schema(description = "Message content", example = "What is Spring Boot?")
         @NotBlank String content,
         @Schema(description = "Optional context retrieved from RAG")
-        String retrievedContext
+        String retrievedContext,
+        @Schema(description = "Optional embedding of the message; all of a user's embeddings must share one dimension")
+        @Size(max = 4096) float[] embedding
 ) {
+    public AddMessageRequest(SenderType sender, String content, String retrievedContext) {
+        this(sender, content, retrievedContext, null);
+    }
 }
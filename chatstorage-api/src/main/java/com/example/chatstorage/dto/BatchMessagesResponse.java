@@ -0,0 +1,10 @@
+package com.example.chatstorage.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+public record BatchMessagesResponse(
+        List<SessionMessagesResponse> sessions,
+        List<UUID> notFound
+) {
+}
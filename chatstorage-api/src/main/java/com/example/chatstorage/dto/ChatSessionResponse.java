@@ -1,5 +1,7 @@
 package com.example.chatstorage.dto;
 
+import com.example.chatstorage.entity.SenderType;
+
 import java.time.Instant;
 import java.util.UUID;
 
@@ -9,6 +11,11 @@ public record ChatSessionResponse(
         String title,
         boolean favorite,
         Instant createdAt,
-        Instant updatedAt
+        Instant updatedAt,
+        long messageCount,
+        long totalContentBytes,
+        Instant lastMessageAt,
+        SenderType lastSender,
+        String lastMessagePreview
 ) {
 }
@@ -0,0 +1,17 @@
+package com.example.chatstorage.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+public record ContextWindowResponse(
+        @Schema(description = "Newest messages that fit the budget, oldest first")
+        List<ChatMessageResponse> items,
+        @Schema(description = "Estimated tokens used by the returned messages")
+        long estimatedTokens,
+        @Schema(description = "UTF-8 bytes used by the returned messages")
+        long bytes,
+        @Schema(description = "True when older messages were left out because of the budget")
+        boolean truncated
+) {
+}
@@ -0,0 +1,10 @@
+package com.example.chatstorage.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+public record SessionMessagesResponse(
+        UUID sessionId,
+        List<ChatMessageResponse> items
+) {
+}
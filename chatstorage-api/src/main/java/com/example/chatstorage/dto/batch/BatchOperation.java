@@ -0,0 +1,17 @@
+package com.example.chatstorage.dto.batch;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+
+import java.util.Map;
+
+public record BatchOperation(
+        @Schema(description = "HTTP method of the operation", example = "POST")
+        @NotBlank String method,
+        @Schema(description = "API path; a segment $N stands for the id returned by operation N",
+                example = "/api/v1/sessions/$0/messages")
+        @NotBlank String path,
+        @Schema(description = "Request body the endpoint takes on its own")
+        Map<String, Object> body
+) {
+}
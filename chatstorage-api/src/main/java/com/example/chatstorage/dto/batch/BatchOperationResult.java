@@ -0,0 +1,11 @@
+package com.example.chatstorage.dto.batch;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public record BatchOperationResult(
+        @Schema(description = "Status the endpoint would have answered with on its own", example = "201")
+        int status,
+        @Schema(description = "Response body, or an error response")
+        Object body
+) {
+}
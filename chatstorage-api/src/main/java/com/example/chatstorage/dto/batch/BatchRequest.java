@@ -0,0 +1,15 @@
+package com.example.chatstorage.dto.batch;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+public record BatchRequest(
+        @Schema(description = "Operations, run in order")
+        @NotEmpty @Valid List<BatchOperation> operations,
+        @Schema(description = "Run all operations in one transaction: any failure rolls back the whole batch")
+        boolean atomic
+) {
+}
@@ -0,0 +1,8 @@
+package com.example.chatstorage.dto.batch;
+
+import java.util.List;
+
+public record BatchResponse(
+        List<BatchOperationResult> results
+) {
+}
@@ -0,0 +1,19 @@
+package com.example.chatstorage.dto.bulk;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+public record BulkDeleteRequest(
+        @Schema(description = "Sessions to delete; ids of other users' sessions are ignored")
+        List<UUID> sessionIds,
+        @Schema(description = "Instead of sessionIds: sessions last updated before this instant",
+                example = "2025-01-01T00:00:00Z")
+        Instant updatedBefore,
+        @Schema(description = "Instead of sessionIds: only favorite (true) or only non-favorite (false) sessions",
+                example = "false")
+        Boolean favorite
+) {
+}
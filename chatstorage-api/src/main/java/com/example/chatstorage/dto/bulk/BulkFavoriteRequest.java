@@ -0,0 +1,19 @@
+package com.example.chatstorage.dto.bulk;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+public record BulkFavoriteRequest(
+        @Schema(description = "Sessions to update; ids of other users' sessions are ignored")
+        List<UUID> sessionIds,
+        @Schema(description = "Instead of sessionIds: every session last updated before this instant",
+                example = "2025-01-01T00:00:00Z")
+        Instant updatedBefore,
+        @Schema(description = "Whether to mark the sessions as favorite", example = "true")
+        @NotNull Boolean favorite
+) {
+}
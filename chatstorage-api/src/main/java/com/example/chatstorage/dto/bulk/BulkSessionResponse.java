@@ -0,0 +1,13 @@
+package com.example.chatstorage.dto.bulk;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public record BulkSessionResponse(
+        @Schema(description = "Sessions updated or deleted by this request")
+        int affected,
+        @Schema(description = "Messages of the deleted sessions are removed in the background; the sessions are gone")
+        boolean purgeQueued,
+        @Schema(description = "The filter matched more sessions than one request handles; repeat it for the rest")
+        boolean hasMore
+) {
+}
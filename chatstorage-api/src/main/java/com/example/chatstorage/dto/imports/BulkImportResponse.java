@@ -0,0 +1,20 @@
+package com.example.chatstorage.dto.imports;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+public record BulkImportResponse(
+        String userId,
+        long linesRead,
+        long sessionsImported,
+        @Schema(description = "Sessions that already existed for this user and were left unchanged")
+        long sessionsSkipped,
+        long messagesImported,
+        @Schema(description = "Messages whose id already existed and were left unchanged")
+        long messagesSkipped,
+        long rejectedCount,
+        @Schema(description = "First rejected lines with the reason; rejectedCount has the total")
+        List<ImportRejection> rejections
+) {
+}
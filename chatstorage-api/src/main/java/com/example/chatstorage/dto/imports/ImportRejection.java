@@ -0,0 +1,7 @@
+package com.example.chatstorage.dto.imports;
+
+public record ImportRejection(
+        long line,
+        String reason
+) {
+}
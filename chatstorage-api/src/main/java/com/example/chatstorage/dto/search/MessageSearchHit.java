@@ -0,0 +1,19 @@
+package com.example.chatstorage.dto.search;
+
+import com.example.chatstorage.entity.SenderType;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record MessageSearchHit(
+        UUID messageId,
+        UUID sessionId,
+        SenderType sender,
+        Instant createdAt,
+        @Schema(description = "Relevance score; 0 when the database has no full-text support")
+        float rank,
+        @Schema(description = "Matching fragments with terms wrapped in <mark></mark>")
+        String snippet
+) {
+}
@@ -0,0 +1,12 @@
+package com.example.chatstorage.dto.search;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+public record MessageSearchResponse(
+        List<MessageSearchHit> items,
+        @Schema(description = "Pass as cursor to fetch the next page; null on the last page")
+        String nextCursor
+) {
+}
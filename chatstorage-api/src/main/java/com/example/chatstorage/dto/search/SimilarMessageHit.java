@@ -0,0 +1,18 @@
+package com.example.chatstorage.dto.search;
+
+import com.example.chatstorage.entity.SenderType;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record SimilarMessageHit(
+        UUID messageId,
+        UUID sessionId,
+        SenderType sender,
+        String content,
+        Instant createdAt,
+        @Schema(description = "Cosine similarity to the query embedding, from -1 to 1")
+        float score
+) {
+}
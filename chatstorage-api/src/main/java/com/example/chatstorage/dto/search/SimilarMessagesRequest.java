@@ -0,0 +1,17 @@
+package com.example.chatstorage.dto.search;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.UUID;
+
+public record SimilarMessagesRequest(
+        @Schema(description = "Query embedding; must match the dimension of the user's stored embeddings")
+        @NotNull @Size(min = 1, max = 4096) float[] embedding,
+        @Schema(description = "Number of neighbours to return (1-100, default 10)", example = "10")
+        Integer k,
+        @Schema(description = "Restrict to one session")
+        UUID sessionId
+) {
+}
@@ -0,0 +1,8 @@
+package com.example.chatstorage.dto.search;
+
+import java.util.List;
+
+public record SimilarMessagesResponse(
+        List<SimilarMessageHit> items
+) {
+}
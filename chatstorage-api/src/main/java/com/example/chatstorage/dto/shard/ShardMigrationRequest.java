@@ -0,0 +1,13 @@
+package com.example.chatstorage.dto.shard;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+public record ShardMigrationRequest(
+        @Schema(description = "User whose sessions and messages are moved", example = "user-alice-123")
+        @NotBlank @Size(max = 100) String userId,
+        @Schema(description = "Name of the configured shard to move the user to", example = "shard-b")
+        @NotBlank @Size(max = 64) String targetShard
+) {
+}
@@ -0,0 +1,20 @@
+package com.example.chatstorage.dto.shard;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+
+public record ShardMigrationResponse(
+        String userId,
+        String sourceShard,
+        String targetShard,
+        @Schema(description = "FREEZING, COPYING, SWITCHING, COMPLETED or FAILED", example = "COPYING")
+        String state,
+        long sessionsMoved,
+        long messagesMoved,
+        @Schema(description = "Why the migration failed, or why a completed one kept the source copy")
+        String error,
+        Instant startedAt,
+        Instant updatedAt
+) {
+}
@@ -0,0 +1,9 @@
+package com.example.chatstorage.dto.shard;
+
+public record UserShardResponse(
+        String userId,
+        String shard,
+        String ringShard,
+        boolean migrating
+) {
+}
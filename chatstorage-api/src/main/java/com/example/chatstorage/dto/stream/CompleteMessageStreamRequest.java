@@ -0,0 +1,10 @@
+package com.example.chatstorage.dto.stream;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Size;
+
+public record CompleteMessageStreamRequest(
+        @Schema(description = "Optional embedding of the finished reply")
+        @Size(max = 4096) float[] embedding
+) {
+}
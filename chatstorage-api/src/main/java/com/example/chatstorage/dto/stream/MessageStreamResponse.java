@@ -0,0 +1,22 @@
+package com.example.chatstorage.dto.stream;
+
+import com.example.chatstorage.entity.SenderType;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record MessageStreamResponse(
+        UUID streamId,
+        UUID sessionId,
+        SenderType sender,
+        @Schema(description = "Content received so far")
+        String content,
+        long contentBytes,
+        long chunks,
+        @Schema(description = "True once finalize has started; no more chunks are accepted")
+        boolean finalizing,
+        Instant startedAt,
+        Instant updatedAt
+) {
+}
@@ -0,0 +1,9 @@
+package com.example.chatstorage.dto.stream;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public record OpenMessageStreamRequest(
+        @Schema(description = "Optional context retrieved from RAG for the reply being generated")
+        String retrievedContext
+) {
+}
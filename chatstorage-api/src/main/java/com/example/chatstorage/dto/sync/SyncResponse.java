@@ -0,0 +1,22 @@
+package com.example.chatstorage.dto.sync;
+
+import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.dto.ChatSessionResponse;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+import java.util.UUID;
+
+public record SyncResponse(
+        @Schema(description = "Pass as since on the next sync")
+        long nextToken,
+        @Schema(description = "More changes are waiting; sync again with nextToken right away")
+        boolean hasMore,
+        @Schema(description = "Current state of sessions created, changed or given messages since the token")
+        List<ChatSessionResponse> sessions,
+        @Schema(description = "Messages added since the token, oldest first")
+        List<ChatMessageResponse> messages,
+        @Schema(description = "Sessions deleted since the token; drop them together with their messages")
+        List<UUID> deletedSessionIds
+) {
+}
@@ -0,0 +1,15 @@
+package com.example.chatstorage.reactive;
+
+import com.example.chatstorage.reactive.config.ReactiveProperties;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+
+@SpringBootApplication
+@EnableConfigurationProperties(ReactiveProperties.class)
+public class ReactiveChatstorageApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(ReactiveChatstorageApplication.class, args);
+    }
+}
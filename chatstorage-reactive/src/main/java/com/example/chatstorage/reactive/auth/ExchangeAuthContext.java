@@ -0,0 +1,20 @@
+package com.example.chatstorage.reactive.auth;
+
+import com.example.chatstorage.exception.UnauthorizedException;
+import org.springframework.web.server.ServerWebExchange;
+
+public final class ExchangeAuthContext {
+
+    public static final String ATTR_USER_ID = "auth.userId";
+
+    private ExchangeAuthContext() {
+    }
+
+    public static String requireUserId(ServerWebExchange exchange) {
+        Object userId = exchange.getAttribute(ATTR_USER_ID);
+        if (userId instanceof String value && !value.isBlank()) {
+            return value;
+        }
+        throw new UnauthorizedException("Authenticated user context missing");
+    }
+}
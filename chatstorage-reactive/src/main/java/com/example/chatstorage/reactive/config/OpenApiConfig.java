@@ -0,0 +1,29 @@
+package com.example.chatstorage.reactive.config;
+
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.Components;
+import io.swagger.v3.oas.models.info.Info;
+import io.swagger.v3.oas.models.security.SecurityScheme;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class OpenApiConfig {
+
+    @Bean
+    public OpenAPI chatStorageOpenApi() {
+        return new OpenAPI()
+                .info(new Info()
+                        .title("Chat Storage API")
+                        .version("v1")
+                        .description("Microservice for storing chat sessions and messages (WebFlux and R2DBC)"))
+                .components(new Components().addSecuritySchemes("ApiKeyAuth", new SecurityScheme()
+                        .type(SecurityScheme.Type.APIKEY)
+                        .in(SecurityScheme.In.HEADER)
+                        .name("X-API-Key"))
+                        .addSecuritySchemes("AdminApiKeyAuth", new SecurityScheme()
+                                .type(SecurityScheme.Type.APIKEY)
+                                .in(SecurityScheme.In.HEADER)
+                                .name("X-Admin-Key")));
+    }
+}
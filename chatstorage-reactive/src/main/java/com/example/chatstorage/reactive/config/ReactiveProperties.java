@@ -0,0 +1,97 @@
+package com.example.chatstorage.reactive.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+// The subset of the servlet service's app.* settings that the reactive service honours, under the same names.
+@ConfigurationProperties(prefix = "app")
+public class ReactiveProperties {
+
+    private final Security security = new Security();
+    private final RateLimit rateLimit = new RateLimit();
+    private final HistoryStream historyStream = new HistoryStream();
+
+    public Security getSecurity() {
+        return security;
+    }
+
+    public RateLimit getRateLimit() {
+        return rateLimit;
+    }
+
+    public HistoryStream getHistoryStream() {
+        return historyStream;
+    }
+
+    public static class Security {
+        private String adminApiKey;
+        private String apiKeyPepper;
+
+        public String getAdminApiKey() {
+            return adminApiKey;
+        }
+
+        public void setAdminApiKey(String adminApiKey) {
+            this.adminApiKey = adminApiKey;
+        }
+
+        public String getApiKeyPepper() {
+            return apiKeyPepper;
+        }
+
+        public void setApiKeyPepper(String apiKeyPepper) {
+            this.apiKeyPepper = apiKeyPepper;
+        }
+    }
+
+    public static class RateLimit {
+        private int requestsPerMinute = 120;
+        private int windowSeconds = 60;
+        private boolean failOpenWhenRedisDown = false;
+
+        public int getRequestsPerMinute() {
+            return requestsPerMinute;
+        }
+
+        public void setRequestsPerMinute(int requestsPerMinute) {
+            this.requestsPerMinute = requestsPerMinute;
+        }
+
+        public int getWindowSeconds() {
+            return windowSeconds;
+        }
+
+        public void setWindowSeconds(int windowSeconds) {
+            this.windowSeconds = windowSeconds;
+        }
+
+        public boolean isFailOpenWhenRedisDown() {
+            return failOpenWhenRedisDown;
+        }
+
+        public void setFailOpenWhenRedisDown(boolean failOpenWhenRedisDown) {
+            this.failOpenWhenRedisDown = failOpenWhenRedisDown;
+        }
+    }
+
+    // Rows per round trip from Postgres, and how many messages the response may request ahead of the client.
+    public static class HistoryStream {
+        private int fetchSize = 256;
+        private int prefetch = 64;
+
+        public int getFetchSize() {
+            return fetchSize;
+        }
+
+        public void setFetchSize(int fetchSize) {
+            this.fetchSize = fetchSize;
+        }
+
+        public int getPrefetch() {
+            return prefetch;
+        }
+
+        public void setPrefetch(int prefetch) {
+            this.prefetch = prefetch;
+        }
+    }
+}
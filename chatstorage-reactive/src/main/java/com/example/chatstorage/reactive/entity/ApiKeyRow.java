@@ -0,0 +1,23 @@
+package com.example.chatstorage.reactive.entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// Row of the api_keys table the servlet service owns; ids are assigned here, so inserts go through R2dbcEntityTemplate.insert.
+@Table("api_keys")
+public record ApiKeyRow(
+        @Id UUID id,
+        @Column("user_id") String userId,
+        String name,
+        @Column("key_prefix") String keyPrefix,
+        @Column("key_hash") String keyHash,
+        boolean active,
+        @Column("created_at") Instant createdAt,
+        @Column("updated_at") Instant updatedAt,
+        @Column("last_used_at") Instant lastUsedAt
+) {
+}
@@ -0,0 +1,24 @@
+package com.example.chatstorage.reactive.entity;
+
+import com.example.chatstorage.entity.SenderType;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Table("chat_messages")
+public record ChatMessageRow(
+        @Id UUID id,
+        @Column("session_id") UUID sessionId,
+        SenderType sender,
+        String content,
+        @Column("retrieved_context") String retrievedContext,
+        @Column("created_at") Instant createdAt,
+        @Column("content_bytes") Integer contentBytes,
+        @Column("content_tokens") Integer contentTokens,
+        @Column("context_bytes") Integer contextBytes,
+        @Column("context_tokens") Integer contextTokens
+) {
+}
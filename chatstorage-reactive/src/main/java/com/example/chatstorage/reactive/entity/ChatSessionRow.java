@@ -0,0 +1,25 @@
+package com.example.chatstorage.reactive.entity;
+
+import com.example.chatstorage.entity.SenderType;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Table("chat_sessions")
+public record ChatSessionRow(
+        @Id UUID id,
+        @Column("user_id") String userId,
+        String title,
+        boolean favorite,
+        @Column("created_at") Instant createdAt,
+        @Column("updated_at") Instant updatedAt,
+        @Column("message_count") long messageCount,
+        @Column("total_content_bytes") long totalContentBytes,
+        @Column("last_message_at") Instant lastMessageAt,
+        @Column("last_sender") SenderType lastSender,
+        @Column("last_message_preview") String lastMessagePreview
+) {
+}
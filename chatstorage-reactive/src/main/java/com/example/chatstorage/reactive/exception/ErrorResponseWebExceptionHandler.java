@@ -0,0 +1,123 @@
+package com.example.chatstorage.reactive.exception;
+
+import com.example.chatstorage.dto.ErrorResponse;
+import com.example.chatstorage.exception.NotFoundException;
+import com.example.chatstorage.exception.RateLimitExceededException;
+import com.example.chatstorage.exception.RateLimitServiceUnavailableException;
+import com.example.chatstorage.exception.UnauthorizedException;
+import com.example.chatstorage.reactive.config.ReactiveProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebExceptionHandler;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+
+// WebFilter failures (auth, rate limit) never reach a @ControllerAdvice, so filter and controller errors alike are
+// mapped here, ahead of Boot's default handler, to the servlet service's ErrorResponse body.
+@Component
+@Order(-2)
+public class ErrorResponseWebExceptionHandler implements WebExceptionHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(ErrorResponseWebExceptionHandler.class);
+
+    private final ObjectMapper objectMapper;
+    private final ReactiveProperties properties;
+
+    public ErrorResponseWebExceptionHandler(ObjectMapper objectMapper, ReactiveProperties properties) {
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+    }
+
+    @Override
+    public Mono<Void> handle(ServerWebExchange exchange, Throwable exception) {
+        ServerHttpResponse response = exchange.getResponse();
+        if (response.isCommitted()) {
+            return Mono.error(exception);
+        }
+
+        String path = exchange.getRequest().getPath().value();
+        ErrorResponse body = toErrorResponse(exception, path);
+        if (exception instanceof RateLimitExceededException) {
+            long retryAfterSeconds = Math.max(1, properties.getRateLimit().getWindowSeconds());
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        }
+        byte[] bytes;
+        try {
+            bytes = objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException serializationFailure) {
+            return Mono.error(serializationFailure);
+        }
+        response.setStatusCode(HttpStatusCode.valueOf(body.status()));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(bytes)));
+    }
+
+    ErrorResponse toErrorResponse(Throwable exception, String path) {
+        if (exception instanceof NotFoundException) {
+            return error(HttpStatus.NOT_FOUND, exception.getMessage(), path, List.of());
+        }
+        if (exception instanceof UnauthorizedException) {
+            return error(HttpStatus.UNAUTHORIZED, exception.getMessage(), path, List.of());
+        }
+        if (exception instanceof RateLimitExceededException) {
+            return error(HttpStatus.TOO_MANY_REQUESTS, exception.getMessage(), path, List.of());
+        }
+        if (exception instanceof RateLimitServiceUnavailableException) {
+            return error(HttpStatus.SERVICE_UNAVAILABLE, exception.getMessage(), path, List.of());
+        }
+        if (exception instanceof WebExchangeBindException bindException) {
+            List<String> details = bindException.getBindingResult().getFieldErrors().stream()
+                    .map(this::formatFieldError)
+                    .toList();
+            return error(HttpStatus.BAD_REQUEST, "Validation failed", path, details);
+        }
+        if (exception instanceof ConstraintViolationException violations) {
+            List<String> details = violations.getConstraintViolations().stream()
+                    .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                    .toList();
+            return error(HttpStatus.BAD_REQUEST, "Validation failed", path, details);
+        }
+        if (exception instanceof IllegalArgumentException) {
+            return error(HttpStatus.BAD_REQUEST, exception.getMessage(), path, List.of());
+        }
+        if (exception instanceof ResponseStatusException statusException) {
+            HttpStatus status = HttpStatus.resolve(statusException.getStatusCode().value());
+            HttpStatus resolved = status != null ? status : HttpStatus.INTERNAL_SERVER_ERROR;
+            String reason = statusException.getReason() != null ? statusException.getReason() : resolved.getReasonPhrase();
+            return error(resolved, reason, path, List.of());
+        }
+        log.error("Unexpected error path={}", path, exception);
+        return error(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected server error", path, List.of(String.valueOf(exception.getMessage())));
+    }
+
+    private ErrorResponse error(HttpStatus status, String message, String path, List<String> details) {
+        return new ErrorResponse(
+                Instant.now(),
+                status.value(),
+                status.getReasonPhrase(),
+                message,
+                path,
+                details
+        );
+    }
+
+    private String formatFieldError(FieldError e) {
+        return e.getField() + " " + e.getDefaultMessage();
+    }
+}
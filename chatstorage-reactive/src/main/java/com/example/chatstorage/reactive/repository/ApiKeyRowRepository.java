@@ -0,0 +1,32 @@
+package com.example.chatstorage.reactive.repository;
+
+import com.example.chatstorage.reactive.entity.ApiKeyRow;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public interface ApiKeyRowRepository extends ReactiveCrudRepository<ApiKeyRow, UUID> {
+
+    Mono<ApiKeyRow> findByUserId(String userId);
+
+    Mono<ApiKeyRow> findByKeyPrefixAndActiveTrue(String keyPrefix);
+
+    Flux<ApiKeyRow> findByUserIdOrderByCreatedAtDesc(String userId);
+
+    @Modifying
+    @Query("""
+            update api_keys
+            set name = :name, key_prefix = :keyPrefix, key_hash = :keyHash, active = true, updated_at = :at
+            where id = :id
+            """)
+    Mono<Integer> rotate(UUID id, String name, String keyPrefix, String keyHash, Instant at);
+
+    @Modifying
+    @Query("update api_keys set active = false, updated_at = :at where id = :id")
+    Mono<Integer> deactivate(UUID id, Instant at);
+}
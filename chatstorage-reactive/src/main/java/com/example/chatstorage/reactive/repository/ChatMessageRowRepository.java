@@ -0,0 +1,26 @@
+package com.example.chatstorage.reactive.repository;
+
+import com.example.chatstorage.reactive.entity.ChatMessageRow;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+public interface ChatMessageRowRepository extends ReactiveCrudRepository<ChatMessageRow, UUID> {
+
+    Flux<ChatMessageRow> findBySessionId(UUID sessionId, Pageable pageable);
+
+    Mono<Long> countBySessionId(UUID sessionId);
+
+    @Modifying
+    @Query("delete from message_embeddings where session_id = :sessionId")
+    Mono<Integer> deleteEmbeddingsBySessionId(UUID sessionId);
+
+    @Modifying
+    @Query("delete from chat_messages where session_id = :sessionId")
+    Mono<Integer> deleteBySessionId(UUID sessionId);
+}
@@ -0,0 +1,72 @@
+package com.example.chatstorage.reactive.repository;
+
+import com.example.chatstorage.reactive.entity.ChatSessionRow;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public interface ChatSessionRowRepository extends ReactiveCrudRepository<ChatSessionRow, UUID> {
+
+    Mono<ChatSessionRow> findByIdAndUserId(UUID id, String userId);
+
+    Flux<ChatSessionRow> findByUserId(String userId, Pageable pageable);
+
+    Flux<ChatSessionRow> findByUserIdAndFavorite(String userId, boolean favorite, Pageable pageable);
+
+    Mono<Long> countByUserId(String userId);
+
+    Mono<Long> countByUserIdAndFavorite(String userId, boolean favorite);
+
+    // Ownership check, update and reload in one statement; empty when the session is not the user's.
+    @Query("""
+            update chat_sessions set title = :title, updated_at = :at
+            where id = :id and user_id = :userId
+            returning *
+            """)
+    Mono<ChatSessionRow> rename(UUID id, String userId, String title, Instant at);
+
+    @Query("""
+            update chat_sessions set favorite = :favorite, updated_at = :at
+            where id = :id and user_id = :userId
+            returning *
+            """)
+    Mono<ChatSessionRow> updateFavorite(UUID id, String userId, boolean favorite, Instant at);
+
+    // Same single UPDATE as the servlet service: counters move in SQL so concurrent appends never lose one.
+    @Modifying
+    @Query("""
+            update chat_sessions
+            set updated_at = :at,
+                message_count = message_count + 1,
+                total_content_bytes = total_content_bytes + :bytes,
+                last_message_at = :at,
+                last_sender = :sender,
+                last_message_preview = :preview
+            where id = :id
+            """)
+    Mono<Integer> recordMessage(UUID id, Instant at, long bytes, String sender, String preview);
+
+    @Modifying
+    @Query("delete from chat_sessions where id = :id and user_id = :userId")
+    Mono<Integer> deleteByIdAndUserId(UUID id, String userId);
+
+    // Delta sync log shared with the servlet service; written in the same transaction as the change it records.
+    // The servlet service assigns the sync token once the row is committed.
+    @Modifying
+    @Query("""
+            insert into sync_changes (id, user_id, session_id, message_id, change_type, changed_at)
+            values (gen_random_uuid(), :userId, :sessionId, :messageId, :type, :at)
+            """)
+    Mono<Integer> recordChange(String userId, UUID sessionId, UUID messageId, String type, Instant at);
+
+    // A deleted session's older change rows are superseded by its tombstone.
+    @Modifying
+    @Query("delete from sync_changes where session_id = :sessionId and change_type <> 'SESSION_DELETED'")
+    Mono<Integer> compactChanges(UUID sessionId);
+}
@@ -0,0 +1,66 @@
+package com.example.chatstorage.reactive.security;
+
+import com.example.chatstorage.exception.UnauthorizedException;
+import com.example.chatstorage.reactive.auth.ExchangeAuthContext;
+import com.example.chatstorage.reactive.config.ReactiveProperties;
+import com.example.chatstorage.reactive.service.ReactiveApiKeyService;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+@Component
+@Order(1)
+public class ApiKeyAuthWebFilter implements WebFilter {
+
+    public static final String API_KEY_HEADER = "X-API-Key";
+    public static final String ADMIN_API_KEY_HEADER = "X-Admin-Key";
+    private static final String API_KEY_PATH = "/api/v1/api-keys";
+    private static final String ADMIN_PATH = "/api/v1/admin";
+    private final ReactiveProperties properties;
+    private final ReactiveApiKeyService apiKeyService;
+
+    public ApiKeyAuthWebFilter(ReactiveProperties properties, ReactiveApiKeyService apiKeyService) {
+        this.properties = properties;
+        this.apiKeyService = apiKeyService;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().value();
+        if (isPublic(path)) {
+            return chain.filter(exchange);
+        }
+
+        if (path.startsWith(API_KEY_PATH) || path.startsWith(ADMIN_PATH)) {
+            return validateAdminApiKey(exchange).then(Mono.defer(() -> chain.filter(exchange)));
+        }
+
+        String providedApiKey = exchange.getRequest().getHeaders().getFirst(API_KEY_HEADER);
+        return apiKeyService.authenticate(providedApiKey)
+                .flatMap(authenticatedApiKey -> {
+                    exchange.getAttributes().put(ExchangeAuthContext.ATTR_USER_ID, authenticatedApiKey.userId());
+                    return chain.filter(exchange);
+                });
+    }
+
+    static boolean isPublic(String path) {
+        return path.startsWith("/actuator") || path.startsWith("/swagger-ui") || path.startsWith("/v3/api-docs")
+                || path.startsWith("/webjars");
+    }
+
+    private Mono<Void> validateAdminApiKey(ServerWebExchange exchange) {
+        String configuredAdminApiKey = properties.getSecurity().getAdminApiKey();
+        if (configuredAdminApiKey == null || configuredAdminApiKey.isBlank()) {
+            return Mono.error(new UnauthorizedException("Admin API key is not configured on server"));
+        }
+
+        String provided = exchange.getRequest().getHeaders().getFirst(ADMIN_API_KEY_HEADER);
+        if (!configuredAdminApiKey.equals(provided)) {
+            return Mono.error(new UnauthorizedException("Invalid admin API key"));
+        }
+        return Mono.empty();
+    }
+}
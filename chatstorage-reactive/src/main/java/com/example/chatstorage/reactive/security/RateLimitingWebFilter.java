@@ -0,0 +1,69 @@
+package com.example.chatstorage.reactive.security;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+@Component
+@Order(2)
+public class RateLimitingWebFilter implements WebFilter {
+
+    private final ReactiveRateLimiterService rateLimiterService;
+
+    public RateLimitingWebFilter(ReactiveRateLimiterService rateLimiterService) {
+        this.rateLimiterService = rateLimiterService;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (ApiKeyAuthWebFilter.isPublic(exchange.getRequest().getPath().value())) {
+            return chain.filter(exchange);
+        }
+
+        return rateLimiterService.acquirePermission(resolveClientKey(exchange.getRequest()))
+                .then(Mono.defer(() -> chain.filter(exchange)));
+    }
+
+    // Same fingerprint as the servlet service: the presented key plus the client address.
+    private String resolveClientKey(ServerHttpRequest request) {
+        String apiKey = request.getHeaders().getFirst(ApiKeyAuthWebFilter.API_KEY_HEADER);
+        if (apiKey == null || apiKey.isBlank()) {
+            apiKey = request.getHeaders().getFirst(ApiKeyAuthWebFilter.ADMIN_API_KEY_HEADER);
+        }
+        String ip = resolveClientIp(request);
+        String fingerprintSource = (apiKey == null ? "unknown" : apiKey) + ":" + ip;
+        return sha256(fingerprintSource);
+    }
+
+    private String resolveClientIp(ServerHttpRequest request) {
+        String forwardedFor = request.getHeaders().getFirst("X-Forwarded-For");
+        if (forwardedFor != null && !forwardedFor.isBlank()) {
+            return forwardedFor.split(",")[0].trim();
+        }
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        if (remoteAddress == null) {
+            return "unknown";
+        }
+        return remoteAddress.getAddress() != null ? remoteAddress.getAddress().getHostAddress() : remoteAddress.getHostString();
+    }
+
+    private String sha256(String input) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            byte[] digest = messageDigest.digest(input.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.chatstorage.reactive.security;
+
+import com.example.chatstorage.exception.RateLimitExceededException;
+import com.example.chatstorage.exception.RateLimitServiceUnavailableException;
+import com.example.chatstorage.reactive.config.ReactiveProperties;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.Refill;
+import io.github.bucket4j.distributed.proxy.AsyncProxyManager;
+import io.github.bucket4j.redis.lettuce.cas.LettuceBasedProxyManager;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.resource.ClientResources;
+import io.lettuce.core.resource.DefaultClientResources;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+// Same buckets and keys as the servlet service, so both stacks share one budget per client. Lettuce's async
+// commands complete on its I/O threads; no event-loop thread waits on Redis.
+@Service
+public class ReactiveRateLimiterService {
+
+    private static final String KEY_PREFIX = "rate_limit:";
+
+    private final ClientResources clientResources;
+    private final RedisClient redisClient;
+    private final StatefulRedisConnection<String, byte[]> redisConnection;
+    private final AsyncProxyManager<String> proxyManager;
+    private final ReactiveProperties properties;
+
+    public ReactiveRateLimiterService(
+            ReactiveProperties properties,
+            @Value("${spring.data.redis.host:localhost}") String redisHost,
+            @Value("${spring.data.redis.port:6379}") int redisPort,
+            @Value("${spring.data.redis.password:}") String redisPassword,
+            @Value("${spring.data.redis.ssl.enabled:false}") boolean redisSslEnabled,
+            @Value("${spring.data.redis.timeout:2s}") Duration redisTimeout
+    ) {
+        this.properties = properties;
+        this.clientResources = DefaultClientResources.create();
+        this.redisClient = RedisClient.create(clientResources, buildRedisUri(redisHost, redisPort, redisPassword, redisSslEnabled, redisTimeout));
+        RedisCodec<String, byte[]> codec = RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE);
+        this.redisConnection = redisClient.connect(codec);
+        this.proxyManager = LettuceBasedProxyManager.builderFor(redisConnection).build().asAsync();
+    }
+
+    public Mono<Void> acquirePermission(String clientFingerprint) {
+        BucketConfiguration config = buildBucketConfiguration();
+        String key = KEY_PREFIX + clientFingerprint;
+        return Mono.fromFuture(() -> proxyManager.builder()
+                        .build(key, () -> CompletableFuture.completedFuture(config))
+                        .tryConsume(1))
+                .onErrorResume(exception -> properties.getRateLimit().isFailOpenWhenRedisDown()
+                        ? Mono.just(true)
+                        : Mono.error(new RateLimitServiceUnavailableException("Rate limiting backend is unavailable", exception)))
+                .flatMap(consumed -> consumed
+                        ? Mono.<Void>empty()
+                        : Mono.<Void>error(new RateLimitExceededException("Rate limit exceeded. Try again later.")));
+    }
+
+    private BucketConfiguration buildBucketConfiguration() {
+        long capacity = Math.max(1, properties.getRateLimit().getRequestsPerMinute());
+        long windowSeconds = Math.max(1, properties.getRateLimit().getWindowSeconds());
+        Bandwidth limit = Bandwidth.classic(capacity, Refill.greedy(capacity, Duration.ofSeconds(windowSeconds)));
+        return BucketConfiguration.builder()
+                .addLimit(limit)
+                .build();
+    }
+
+    private RedisURI buildRedisUri(String host, int port, String password, boolean sslEnabled, Duration timeout) {
+        RedisURI.Builder builder = RedisURI.Builder.redis(host, port)
+                .withSsl(sslEnabled)
+                .withTimeout(timeout);
+
+        if (password != null && !password.isBlank()) {
+            builder.withPassword(password.toCharArray());
+        }
+        return builder.build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        redisConnection.close();
+        redisClient.shutdown();
+        clientResources.shutdown();
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.chatstorage.reactive.service;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+// Same size limits and default orders as the servlet service.
+final class Pageables {
+
+    private Pageables() {
+    }
+
+    static Pageable validate(Pageable pageable, int maxSize, Sort defaultSort) {
+        int size = pageable.getPageSize();
+        if (size < 1 || size > maxSize) {
+            throw new IllegalArgumentException("size must be between 1 and " + maxSize);
+        }
+
+        Sort sort = pageable.getSort().isSorted() ? pageable.getSort() : defaultSort;
+        return PageRequest.of(pageable.getPageNumber(), size, sort);
+    }
+}
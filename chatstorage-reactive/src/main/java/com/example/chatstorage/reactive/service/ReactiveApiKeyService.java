@@ -0,0 +1,100 @@
+package com.example.chatstorage.reactive.service;
+
+import com.example.chatstorage.auth.ApiKeyCodec;
+import com.example.chatstorage.auth.AuthenticatedApiKey;
+import com.example.chatstorage.dto.apikey.ApiKeyMetadataResponse;
+import com.example.chatstorage.dto.apikey.CreateApiKeyRequest;
+import com.example.chatstorage.dto.apikey.IssueApiKeyResponse;
+import com.example.chatstorage.exception.NotFoundException;
+import com.example.chatstorage.exception.UnauthorizedException;
+import com.example.chatstorage.reactive.config.ReactiveProperties;
+import com.example.chatstorage.reactive.entity.ApiKeyRow;
+import com.example.chatstorage.reactive.repository.ApiKeyRowRepository;
+import org.springframework.data.r2dbc.core.R2dbcEntityOperations;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Service
+public class ReactiveApiKeyService {
+
+    private final ApiKeyRowRepository apiKeyRepository;
+    private final R2dbcEntityOperations entityOperations;
+    private final ReactiveProperties properties;
+
+    public ReactiveApiKeyService(ApiKeyRowRepository apiKeyRepository,
+                                 R2dbcEntityOperations entityOperations,
+                                 ReactiveProperties properties) {
+        this.apiKeyRepository = apiKeyRepository;
+        this.entityOperations = entityOperations;
+        this.properties = properties;
+    }
+
+    @Transactional
+    public Mono<IssueApiKeyResponse> createApiKey(CreateApiKeyRequest request) {
+        return Mono.defer(() -> {
+            String secret = ApiKeyCodec.generateSecret();
+            String publicPrefix = ApiKeyCodec.generatePublicPrefix();
+            String keyHash = hashSecret(secret);
+            String userId = request.userId().trim();
+            String name = request.name().trim();
+            Instant now = Instant.now();
+
+            return apiKeyRepository.findByUserId(userId)
+                    .flatMap(existing -> apiKeyRepository.rotate(existing.id(), name, publicPrefix, keyHash, now)
+                            .thenReturn(existing))
+                    .switchIfEmpty(Mono.defer(() -> entityOperations.insert(
+                            new ApiKeyRow(UUID.randomUUID(), userId, name, publicPrefix, keyHash, true, now, now, null))))
+                    .map(saved -> new IssueApiKeyResponse(
+                            saved.id(),
+                            saved.userId(),
+                            name,
+                            ApiKeyCodec.format(publicPrefix, secret),
+                            saved.createdAt()
+                    ));
+        });
+    }
+
+    public Mono<AuthenticatedApiKey> authenticate(String providedApiKey) {
+        return Mono.fromCallable(() -> ApiKeyCodec.parse(providedApiKey))
+                .flatMap(parsed -> apiKeyRepository.findByKeyPrefixAndActiveTrue(parsed.prefix())
+                        .switchIfEmpty(Mono.error(() -> new UnauthorizedException("Invalid API key")))
+                        .flatMap(apiKey -> {
+                            if (!ApiKeyCodec.constantTimeEquals(apiKey.keyHash(), hashSecret(parsed.secret()))) {
+                                return Mono.error(new UnauthorizedException("Invalid API key"));
+                            }
+                            return Mono.just(new AuthenticatedApiKey(apiKey.id(), apiKey.userId(), apiKey.keyPrefix()));
+                        }));
+    }
+
+    public Flux<ApiKeyMetadataResponse> listByUser(String userId) {
+        return apiKeyRepository.findByUserIdOrderByCreatedAtDesc(userId).map(this::toMetadata);
+    }
+
+    public Mono<Void> revoke(UUID apiKeyId) {
+        return apiKeyRepository.deactivate(apiKeyId, Instant.now())
+                .flatMap(updated -> updated == 0
+                        ? Mono.<Void>error(new NotFoundException("API key not found: " + apiKeyId))
+                        : Mono.<Void>empty());
+    }
+
+    private ApiKeyMetadataResponse toMetadata(ApiKeyRow apiKey) {
+        return new ApiKeyMetadataResponse(
+                apiKey.id(),
+                apiKey.userId(),
+                apiKey.name(),
+                apiKey.keyPrefix(),
+                apiKey.active(),
+                apiKey.createdAt(),
+                apiKey.lastUsedAt()
+        );
+    }
+
+    private String hashSecret(String secret) {
+        return ApiKeyCodec.hashSecret(properties.getSecurity().getApiKeyPepper(), secret);
+    }
+}
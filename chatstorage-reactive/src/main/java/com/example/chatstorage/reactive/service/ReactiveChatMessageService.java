@@ -0,0 +1,140 @@
+package com.example.chatstorage.reactive.service;
+
+import com.example.chatstorage.domain.MessageText;
+import com.example.chatstorage.dto.AddMessageRequest;
+import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.dto.PageResponse;
+import com.example.chatstorage.entity.SenderType;
+import com.example.chatstorage.reactive.config.ReactiveProperties;
+import com.example.chatstorage.reactive.entity.ChatMessageRow;
+import com.example.chatstorage.reactive.repository.ChatMessageRowRepository;
+import com.example.chatstorage.reactive.repository.ChatSessionRowRepository;
+import io.r2dbc.spi.Readable;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityOperations;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Service
+public class ReactiveChatMessageService {
+
+    private static final String STREAM_SQL = """
+            select id, session_id, sender, content, retrieved_context, created_at
+            from chat_messages
+            where session_id = :sessionId
+            order by created_at, id
+            """;
+
+    private final ReactiveChatSessionService chatSessionService;
+    private final ChatSessionRowRepository chatSessionRepository;
+    private final ChatMessageRowRepository chatMessageRepository;
+    private final R2dbcEntityOperations entityOperations;
+    private final DatabaseClient databaseClient;
+    private final ReactiveProperties properties;
+
+    public ReactiveChatMessageService(ReactiveChatSessionService chatSessionService,
+                                      ChatSessionRowRepository chatSessionRepository,
+                                      ChatMessageRowRepository chatMessageRepository,
+                                      R2dbcEntityOperations entityOperations,
+                                      DatabaseClient databaseClient,
+                                      ReactiveProperties properties) {
+        this.chatSessionService = chatSessionService;
+        this.chatSessionRepository = chatSessionRepository;
+        this.chatMessageRepository = chatMessageRepository;
+        this.entityOperations = entityOperations;
+        this.databaseClient = databaseClient;
+        this.properties = properties;
+    }
+
+    // Insert and summary update commit together, as in the servlet service.
+    @Transactional
+    public Mono<ChatMessageResponse> addMessage(UUID sessionId, String userId, AddMessageRequest request) {
+        if (request.embedding() != null) {
+            // Embeddings feed the servlet node's on-disk vector index, which this service does not maintain.
+            return Mono.error(new IllegalArgumentException("embedding is not supported by this service"));
+        }
+        return chatSessionService.getSessionOrThrow(sessionId, userId)
+                .flatMap(session -> entityOperations.insert(newMessage(sessionId, request)))
+                .flatMap(saved -> chatSessionRepository.recordMessage(sessionId, saved.createdAt(), saved.contentBytes(),
+                                saved.sender().name(), MessageText.preview(saved.content()))
+                        .then(chatSessionRepository.recordChange(userId, sessionId, saved.id(), "MESSAGE",
+                                Instant.now()))
+                        .thenReturn(saved))
+                .map(ReactiveChatMessageService::toResponse);
+    }
+
+    public Mono<PageResponse<ChatMessageResponse>> listMessages(UUID sessionId, String userId, Pageable pageable) {
+        return Mono.defer(() -> {
+            Pageable validatedPageable = Pageables.validate(pageable, 200, Sort.by(Sort.Direction.ASC, "createdAt"));
+            return chatSessionService.getSessionOrThrow(sessionId, userId)
+                    .flatMap(session -> Mono.zip(
+                            chatMessageRepository.findBySessionId(sessionId, validatedPageable)
+                                    .map(ReactiveChatMessageService::toResponse)
+                                    .collectList(),
+                            chatMessageRepository.countBySessionId(sessionId)))
+                    .map(page -> PageResponse.fromPage(new PageImpl<>(page.getT1(), validatedPageable, page.getT2())));
+        });
+    }
+
+    // Every message of the session in order. Rows are fetched from Postgres in fetch-size batches and requested
+    // only as fast as the client reads, so a long history never sits in memory as a whole.
+    public Flux<ChatMessageResponse> streamMessages(UUID sessionId, String userId) {
+        int fetchSize = Math.max(1, properties.getHistoryStream().getFetchSize());
+        int prefetch = Math.max(1, properties.getHistoryStream().getPrefetch());
+        return chatSessionService.getSessionOrThrow(sessionId, userId)
+                .thenMany(Flux.defer(() -> databaseClient.sql(STREAM_SQL)
+                        .bind("sessionId", sessionId)
+                        .filter(statement -> statement.fetchSize(fetchSize))
+                        .map(ReactiveChatMessageService::readMessage)
+                        .all()))
+                .limitRate(prefetch);
+    }
+
+    static ChatMessageResponse readMessage(Readable row) {
+        return new ChatMessageResponse(
+                row.get("id", UUID.class),
+                row.get("session_id", UUID.class),
+                SenderType.valueOf(row.get("sender", String.class)),
+                row.get("content", String.class),
+                row.get("retrieved_context", String.class),
+                row.get("created_at", Instant.class)
+        );
+    }
+
+    private static ChatMessageRow newMessage(UUID sessionId, AddMessageRequest request) {
+        String content = request.content().trim();
+        int contentBytes = MessageText.bytes(content);
+        int contextBytes = MessageText.bytes(request.retrievedContext());
+        return new ChatMessageRow(
+                UUID.randomUUID(),
+                sessionId,
+                request.sender(),
+                content,
+                request.retrievedContext(),
+                Instant.now(),
+                contentBytes,
+                MessageText.tokensForBytes(contentBytes),
+                contextBytes,
+                MessageText.tokensForBytes(contextBytes)
+        );
+    }
+
+    private static ChatMessageResponse toResponse(ChatMessageRow message) {
+        return new ChatMessageResponse(
+                message.id(),
+                message.sessionId(),
+                message.sender(),
+                message.content(),
+                message.retrievedContext(),
+                message.createdAt()
+        );
+    }
+}
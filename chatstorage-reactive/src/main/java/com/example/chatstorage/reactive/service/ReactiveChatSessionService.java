@@ -0,0 +1,124 @@
+package com.example.chatstorage.reactive.service;
+
+import com.example.chatstorage.dto.ChatSessionResponse;
+import com.example.chatstorage.dto.CreateSessionRequest;
+import com.example.chatstorage.dto.PageResponse;
+import com.example.chatstorage.dto.UpdateFavoriteRequest;
+import com.example.chatstorage.dto.UpdateSessionNameRequest;
+import com.example.chatstorage.exception.NotFoundException;
+import com.example.chatstorage.reactive.entity.ChatSessionRow;
+import com.example.chatstorage.reactive.repository.ChatMessageRowRepository;
+import com.example.chatstorage.reactive.repository.ChatSessionRowRepository;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityOperations;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Service
+public class ReactiveChatSessionService {
+
+    private final ChatSessionRowRepository chatSessionRepository;
+    private final ChatMessageRowRepository chatMessageRepository;
+    private final R2dbcEntityOperations entityOperations;
+
+    public ReactiveChatSessionService(ChatSessionRowRepository chatSessionRepository,
+                                      ChatMessageRowRepository chatMessageRepository,
+                                      R2dbcEntityOperations entityOperations) {
+        this.chatSessionRepository = chatSessionRepository;
+        this.chatMessageRepository = chatMessageRepository;
+        this.entityOperations = entityOperations;
+    }
+
+    @Transactional
+    public Mono<ChatSessionResponse> createSession(String userId, CreateSessionRequest request) {
+        return Mono.defer(() -> {
+            String title = request.title() == null || request.title().isBlank() ? "New Chat" : request.title().trim();
+            Instant now = Instant.now();
+            ChatSessionRow session = new ChatSessionRow(UUID.randomUUID(), userId, title, false, now, now,
+                    0, 0, null, null, null);
+            return entityOperations.insert(session)
+                    .flatMap(this::recordSessionChange)
+                    .map(ReactiveChatSessionService::toResponse);
+        });
+    }
+
+    // The page and the count run concurrently on separate connections.
+    public Mono<PageResponse<ChatSessionResponse>> listSessions(String userId, Boolean favorite, Pageable pageable) {
+        return Mono.defer(() -> {
+            Pageable validatedPageable = Pageables.validate(pageable, 100, Sort.by(Sort.Direction.DESC, "updatedAt"));
+            Flux<ChatSessionRow> rows = favorite == null
+                    ? chatSessionRepository.findByUserId(userId, validatedPageable)
+                    : chatSessionRepository.findByUserIdAndFavorite(userId, favorite, validatedPageable);
+            Mono<Long> total = favorite == null
+                    ? chatSessionRepository.countByUserId(userId)
+                    : chatSessionRepository.countByUserIdAndFavorite(userId, favorite);
+            return Mono.zip(rows.map(ReactiveChatSessionService::toResponse).collectList(), total)
+                    .map(page -> PageResponse.fromPage(new PageImpl<>(page.getT1(), validatedPageable, page.getT2())));
+        });
+    }
+
+    @Transactional
+    public Mono<ChatSessionResponse> renameSession(UUID sessionId, String userId, UpdateSessionNameRequest request) {
+        return chatSessionRepository.rename(sessionId, userId, request.title().trim(), Instant.now())
+                .switchIfEmpty(notFound(sessionId))
+                .flatMap(this::recordSessionChange)
+                .map(ReactiveChatSessionService::toResponse);
+    }
+
+    @Transactional
+    public Mono<ChatSessionResponse> updateFavorite(UUID sessionId, String userId, UpdateFavoriteRequest request) {
+        return chatSessionRepository.updateFavorite(sessionId, userId, request.favorite(), Instant.now())
+                .switchIfEmpty(notFound(sessionId))
+                .flatMap(this::recordSessionChange)
+                .map(ReactiveChatSessionService::toResponse);
+    }
+
+    @Transactional
+    public Mono<Void> deleteSession(UUID sessionId, String userId) {
+        return getSessionOrThrow(sessionId, userId)
+                .flatMap(session -> chatMessageRepository.deleteEmbeddingsBySessionId(sessionId)
+                        .then(chatMessageRepository.deleteBySessionId(sessionId))
+                        .then(chatSessionRepository.deleteByIdAndUserId(sessionId, userId))
+                        .then(chatSessionRepository.compactChanges(sessionId))
+                        .then(chatSessionRepository.recordChange(userId, sessionId, null, "SESSION_DELETED",
+                                Instant.now())))
+                .then();
+    }
+
+    public Mono<ChatSessionRow> getSessionOrThrow(UUID sessionId, String userId) {
+        return chatSessionRepository.findByIdAndUserId(sessionId, userId)
+                .switchIfEmpty(notFound(sessionId));
+    }
+
+    private Mono<ChatSessionRow> recordSessionChange(ChatSessionRow session) {
+        return chatSessionRepository.recordChange(session.userId(), session.id(), null, "SESSION", Instant.now())
+                .thenReturn(session);
+    }
+
+    static ChatSessionResponse toResponse(ChatSessionRow session) {
+        return new ChatSessionResponse(
+                session.id(),
+                session.userId(),
+                session.title(),
+                session.favorite(),
+                session.createdAt(),
+                session.updatedAt(),
+                session.messageCount(),
+                session.totalContentBytes(),
+                session.lastMessageAt(),
+                session.lastSender(),
+                session.lastMessagePreview()
+        );
+    }
+
+    private static <T> Mono<T> notFound(UUID sessionId) {
+        return Mono.error(() -> new NotFoundException("Session not found: " + sessionId));
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.chatstorage.reactive;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Run with ./gradlew :chatstorage-reactive:stackLoadTest; excluded from the regular test task.
+// Drives a running servlet service and a running reactive service against the same database with the same
+// key: -Dload.servlet.url=... -Dload.reactive.url=... -Dload.api.key=... (optional load.concurrency,
+// load.seconds, load.messages). Both services need the metrics endpoint exposed
+// (MANAGEMENT_ENDPOINTS_WEB_EXPOSURE_INCLUDE=health,info,metrics) for the memory columns, and a
+// RATE_LIMIT_PER_MINUTE high enough that the shared bucket does not turn the run into a 429 count.
+// Memory per connection is the rise in used heap and live threads while the load runs, divided by the concurrency.
+@Tag("load")
+class StackLoadComparisonTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    @Test
+    void servletVersusReactive() throws Exception {
+        String servletUrl = System.getProperty("load.servlet.url");
+        String reactiveUrl = System.getProperty("load.reactive.url");
+        String apiKey = System.getProperty("load.api.key");
+        assumeTrue(servletUrl != null && reactiveUrl != null && apiKey != null, "load.* system properties not set");
+        int concurrency = Integer.getInteger("load.concurrency", 200);
+        int seconds = Integer.getInteger("load.seconds", 20);
+        int messages = Integer.getInteger("load.messages", 200);
+
+        System.out.println("stack     conc\treq/s\tp50/p99 ms\terrors\theap KB/conn\tthreads +");
+        for (String[] stack : new String[][]{{"servlet", servletUrl}, {"reactive", reactiveUrl}}) {
+            String sessionId = seedSession(stack[1], apiKey, messages);
+            run(stack[0], stack[1], apiKey, sessionId, concurrency, seconds);
+        }
+    }
+
+    private void run(String name, String baseUrl, String apiKey, String sessionId, int concurrency, int seconds)
+            throws Exception {
+        URI page = URI.create(baseUrl + "/api/v1/sessions/" + sessionId + "/messages?size=50");
+        long heapBefore = metric(baseUrl, "jvm.memory.used", "area:heap");
+        long threadsBefore = metric(baseUrl, "jvm.threads.live", null);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicLong errors = new AtomicLong();
+        AtomicLong heapPeak = new AtomicLong(heapBefore);
+        AtomicLong threadsPeak = new AtomicLong(threadsBefore);
+
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(workers.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(get(page, apiKey), HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception exception) {
+                            errors.incrementAndGet();
+                        }
+                        latencies.add(System.nanoTime() - start);
+                    }
+                    return null;
+                }));
+            }
+            while (System.nanoTime() < deadline) {
+                heapPeak.accumulateAndGet(metric(baseUrl, "jvm.memory.used", "area:heap"), Math::max);
+                threadsPeak.accumulateAndGet(metric(baseUrl, "jvm.threads.live", null), Math::max);
+                Thread.sleep(500);
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        double requestsPerSecond = sorted.size() / (double) seconds;
+        String heapPerConnection = heapBefore < 0 ? "n/a"
+                : String.valueOf(Math.max(0, heapPeak.get() - heapBefore) / 1024 / concurrency);
+        String extraThreads = threadsBefore < 0 ? "n/a" : String.valueOf(threadsPeak.get() - threadsBefore);
+        System.out.printf("%-9s %d\t%.0f\t%d/%d\t%d\t%s\t%s%n", name, concurrency, requestsPerSecond,
+                percentileMillis(sorted, 0.50), percentileMillis(sorted, 0.99), errors.get(), heapPerConnection, extraThreads);
+    }
+
+    private String seedSession(String baseUrl, String apiKey, int messages) throws Exception {
+        JsonNode session = post(baseUrl + "/api/v1/sessions", apiKey, "{\"title\":\"load test\"}");
+        String sessionId = session.get("id").asText();
+        for (int i = 0; i < messages; i++) {
+            String sender = i % 2 == 0 ? "USER" : "ASSISTANT";
+            post(baseUrl + "/api/v1/sessions/" + sessionId + "/messages", apiKey,
+                    "{\"sender\":\"" + sender + "\",\"content\":\"message " + i + " " + "lorem ipsum ".repeat(20) + "\"}");
+        }
+        return sessionId;
+    }
+
+    private JsonNode post(String url, String apiKey, String json) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .header("X-API-Key", apiKey)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 201) {
+            throw new IllegalStateException(url + " answered " + response.statusCode() + ": " + response.body());
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    // -1 when the metrics endpoint is not exposed.
+    private long metric(String baseUrl, String name, String tag) {
+        String url = baseUrl + "/actuator/metrics/" + name + (tag == null ? "" : "?tag=" + tag);
+        try {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return -1;
+            }
+            return (long) objectMapper.readTree(response.body()).get("measurements").get(0).get("value").asDouble();
+        } catch (Exception exception) {
+            return -1;
+        }
+    }
+
+    private static HttpRequest get(URI uri, String apiKey) {
+        return HttpRequest.newBuilder(uri).header("X-API-Key", apiKey).GET().build();
+    }
+
+    private static long percentileMillis(List<Long> sorted, double percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.size() - 1, Math.ceil(percentile * sorted.size()) - 1);
+        return TimeUnit.NANOSECONDS.toMillis(sorted.get(Math.max(0, index)));
+    }
+}
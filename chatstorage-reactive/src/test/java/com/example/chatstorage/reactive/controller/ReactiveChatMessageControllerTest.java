@@ -0,0 +1,67 @@
+package com.example.chatstorage.reactive.controller;
+
+import com.example.chatstorage.dto.AddMessageRequest;
+import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.dto.PageResponse;
+import com.example.chatstorage.entity.SenderType;
+import com.example.chatstorage.exception.UnauthorizedException;
+import com.example.chatstorage.reactive.auth.ExchangeAuthContext;
+import com.example.chatstorage.reactive.service.ReactiveChatMessageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveChatMessageControllerTest {
+
+    @Mock
+    private ReactiveChatMessageService chatMessageService;
+
+    private ReactiveChatMessageController controller;
+    private MockServerWebExchange exchange;
+    private final UUID sessionId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        controller = new ReactiveChatMessageController(chatMessageService);
+        exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/sessions/" + sessionId + "/messages"));
+        exchange.getAttributes().put(ExchangeAuthContext.ATTR_USER_ID, "user-1");
+    }
+
+    @Test
+    void endpointsShouldPassUserContext() {
+        AddMessageRequest body = new AddMessageRequest(SenderType.USER, "hi", null);
+        ChatMessageResponse message = new ChatMessageResponse(UUID.randomUUID(), sessionId, SenderType.USER, "hi", null, Instant.now());
+        PageResponse<ChatMessageResponse> page = new PageResponse<>(List.of(message), 0, 50, 1, 1, false);
+        var pageable = PageRequest.of(0, 50);
+        when(chatMessageService.addMessage(sessionId, "user-1", body)).thenReturn(Mono.just(message));
+        when(chatMessageService.listMessages(sessionId, "user-1", pageable)).thenReturn(Mono.just(page));
+        when(chatMessageService.streamMessages(sessionId, "user-1")).thenReturn(Flux.just(message, message));
+
+        StepVerifier.create(controller.addMessage(sessionId, body, exchange)).expectNext(message).verifyComplete();
+        StepVerifier.create(controller.listMessages(sessionId, exchange, pageable)).expectNext(page).verifyComplete();
+        StepVerifier.create(controller.streamMessages(sessionId, exchange)).expectNextCount(2).verifyComplete();
+    }
+
+    @Test
+    void endpointsShouldRequireAuthenticatedUser() {
+        MockServerWebExchange anonymous = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/sessions/x/messages"));
+
+        assertThrows(UnauthorizedException.class, () -> controller.streamMessages(sessionId, anonymous));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.chatstorage.reactive.exception;
+
+import com.example.chatstorage.dto.ErrorResponse;
+import com.example.chatstorage.exception.NotFoundException;
+import com.example.chatstorage.exception.RateLimitExceededException;
+import com.example.chatstorage.reactive.config.ReactiveProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class ErrorResponseWebExceptionHandlerTest {
+
+    private ReactiveProperties properties;
+    private ErrorResponseWebExceptionHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ReactiveProperties();
+        properties.getRateLimit().setWindowSeconds(30);
+        handler = new ErrorResponseWebExceptionHandler(new ObjectMapper().registerModule(new JavaTimeModule()), properties);
+    }
+
+    @Test
+    void rateLimitShouldAnswer429WithRetryAfterAndJsonBody() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/sessions"));
+
+        StepVerifier.create(handler.handle(exchange, new RateLimitExceededException("Rate limit exceeded. Try again later.")))
+                .verifyComplete();
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exchange.getResponse().getStatusCode());
+        assertEquals("30", exchange.getResponse().getHeaders().getFirst("Retry-After"));
+        String body = exchange.getResponse().getBodyAsString().block();
+        assertTrue(body.contains("\"path\":\"/api/v1/sessions\""));
+        assertTrue(body.contains("\"status\":429"));
+    }
+
+    @Test
+    void notFoundShouldKeepServiceMessage() {
+        ErrorResponse error = handler.toErrorResponse(new NotFoundException("Session not found: x"), "/p");
+
+        assertEquals(404, error.status());
+        assertEquals("Session not found: x", error.message());
+    }
+
+    @Test
+    void bindErrorsShouldListFieldDetails() {
+        BeanPropertyBindingResult result = new BeanPropertyBindingResult(new Object(), "request");
+        result.addError(new FieldError("request", "title", "must not be blank"));
+        WebExchangeBindException exception = new WebExchangeBindException(mock(MethodParameter.class), result);
+
+        ErrorResponse error = handler.toErrorResponse(exception, "/p");
+
+        assertEquals(400, error.status());
+        assertEquals("Validation failed", error.message());
+        assertEquals(List.of("title must not be blank"), error.details());
+    }
+
+    @Test
+    void frameworkStatusesAndUnexpectedErrorsShouldMap() {
+        assertEquals(405, handler.toErrorResponse(new ResponseStatusException(HttpStatus.METHOD_NOT_ALLOWED), "/p").status());
+        assertEquals(400, handler.toErrorResponse(new IllegalArgumentException("size must be between 1 and 100"), "/p").status());
+
+        ErrorResponse unexpected = handler.toErrorResponse(new IllegalStateException("boom"), "/p");
+        assertEquals(500, unexpected.status());
+        assertEquals(List.of("boom"), unexpected.details());
+    }
+}
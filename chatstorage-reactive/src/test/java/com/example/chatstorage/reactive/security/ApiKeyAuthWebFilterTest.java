@@ -0,0 +1,101 @@
+package com.example.chatstorage.reactive.security;
+
+import com.example.chatstorage.auth.AuthenticatedApiKey;
+import com.example.chatstorage.exception.UnauthorizedException;
+import com.example.chatstorage.reactive.auth.ExchangeAuthContext;
+import com.example.chatstorage.reactive.config.ReactiveProperties;
+import com.example.chatstorage.reactive.service.ReactiveApiKeyService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ApiKeyAuthWebFilterTest {
+
+    @Mock
+    private ReactiveApiKeyService apiKeyService;
+
+    private ReactiveProperties properties;
+    private ApiKeyAuthWebFilter filter;
+    private final AtomicBoolean chainCalled = new AtomicBoolean();
+    private final WebFilterChain chain = exchange -> Mono.fromRunnable(() -> chainCalled.set(true));
+
+    @BeforeEach
+    void setUp() {
+        properties = new ReactiveProperties();
+        properties.getSecurity().setAdminApiKey("admin-secret");
+        filter = new ApiKeyAuthWebFilter(properties, apiKeyService);
+    }
+
+    @Test
+    void publicPathsShouldSkipAuthentication() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/actuator/health"));
+
+        StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+
+        assertTrue(chainCalled.get());
+        verify(apiKeyService, never()).authenticate(any());
+    }
+
+    @Test
+    void userRequestShouldCarryAuthenticatedUserId() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/sessions")
+                .header(ApiKeyAuthWebFilter.API_KEY_HEADER, "csk_abc.def"));
+        when(apiKeyService.authenticate("csk_abc.def"))
+                .thenReturn(Mono.just(new AuthenticatedApiKey(UUID.randomUUID(), "user-1", "abc")));
+
+        StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+
+        assertEquals("user-1", ExchangeAuthContext.requireUserId(exchange));
+        assertTrue(chainCalled.get());
+    }
+
+    @Test
+    void invalidUserKeyShouldStopTheChain() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/sessions"));
+        when(apiKeyService.authenticate(null)).thenReturn(Mono.error(new UnauthorizedException("Missing API key")));
+
+        StepVerifier.create(filter.filter(exchange, chain)).verifyError(UnauthorizedException.class);
+
+        assertFalse(chainCalled.get());
+    }
+
+    @Test
+    void apiKeyEndpointsShouldRequireAdminKey() {
+        MockServerWebExchange wrong = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/api-keys")
+                .header(ApiKeyAuthWebFilter.ADMIN_API_KEY_HEADER, "nope"));
+        StepVerifier.create(filter.filter(wrong, chain)).verifyErrorMessage("Invalid admin API key");
+        assertFalse(chainCalled.get());
+
+        MockServerWebExchange right = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/api-keys")
+                .header(ApiKeyAuthWebFilter.ADMIN_API_KEY_HEADER, "admin-secret"));
+        StepVerifier.create(filter.filter(right, chain)).verifyComplete();
+        assertTrue(chainCalled.get());
+    }
+
+    @Test
+    void apiKeyEndpointsShouldFailWhenAdminKeyIsNotConfigured() {
+        properties.getSecurity().setAdminApiKey(" ");
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.delete("/api/v1/api-keys/x"));
+
+        StepVerifier.create(filter.filter(exchange, chain)).verifyErrorMessage("Admin API key is not configured on server");
+    }
+}
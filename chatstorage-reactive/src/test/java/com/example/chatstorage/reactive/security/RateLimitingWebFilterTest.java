@@ -0,0 +1,84 @@
+package com.example.chatstorage.reactive.security;
+
+import com.example.chatstorage.exception.RateLimitExceededException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RateLimitingWebFilterTest {
+
+    @Mock
+    private ReactiveRateLimiterService rateLimiterService;
+
+    private final AtomicBoolean chainCalled = new AtomicBoolean();
+    private final WebFilterChain chain = exchange -> Mono.fromRunnable(() -> chainCalled.set(true));
+
+    @Test
+    void publicPathsShouldNotConsumeTokens() {
+        RateLimitingWebFilter filter = new RateLimitingWebFilter(rateLimiterService);
+
+        StepVerifier.create(filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/v3/api-docs")), chain))
+                .verifyComplete();
+
+        assertTrue(chainCalled.get());
+        verify(rateLimiterService, never()).acquirePermission(anyString());
+    }
+
+    @Test
+    void rejectedRequestShouldNotReachTheHandler() {
+        RateLimitingWebFilter filter = new RateLimitingWebFilter(rateLimiterService);
+        when(rateLimiterService.acquirePermission(anyString()))
+                .thenReturn(Mono.error(new RateLimitExceededException("Rate limit exceeded. Try again later.")));
+
+        StepVerifier.create(filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/sessions")), chain))
+                .verifyError(RateLimitExceededException.class);
+
+        assertFalse(chainCalled.get());
+    }
+
+    @Test
+    void fingerprintShouldDependOnKeyAndForwardedClient() {
+        RateLimitingWebFilter filter = new RateLimitingWebFilter(rateLimiterService);
+        List<String> keys = new ArrayList<>();
+        when(rateLimiterService.acquirePermission(anyString())).thenAnswer(invocation -> {
+            keys.add(invocation.getArgument(0));
+            return Mono.empty();
+        });
+
+        filter.filter(exchange("csk_a.b", "10.0.0.1"), chain).block();
+        filter.filter(exchange("csk_a.b", "10.0.0.1"), chain).block();
+        filter.filter(exchange("csk_a.b", "10.0.0.2"), chain).block();
+
+        assertEquals(keys.get(0), keys.get(1));
+        assertNotEquals(keys.get(0), keys.get(2));
+        assertEquals(64, keys.get(0).length());
+    }
+
+    private static MockServerWebExchange exchange(String apiKey, String forwardedFor) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/sessions")
+                .remoteAddress(new InetSocketAddress("127.0.0.1", 40000))
+                .header(ApiKeyAuthWebFilter.API_KEY_HEADER, apiKey)
+                .header("X-Forwarded-For", forwardedFor + ", 172.16.0.1"));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.chatstorage.reactive.service;
+
+import com.example.chatstorage.auth.ApiKeyCodec;
+import com.example.chatstorage.dto.apikey.CreateApiKeyRequest;
+import com.example.chatstorage.exception.NotFoundException;
+import com.example.chatstorage.exception.UnauthorizedException;
+import com.example.chatstorage.reactive.config.ReactiveProperties;
+import com.example.chatstorage.reactive.entity.ApiKeyRow;
+import com.example.chatstorage.reactive.repository.ApiKeyRowRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.r2dbc.core.R2dbcEntityOperations;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveApiKeyServiceTest {
+
+    private static final String PEPPER = "pepper";
+
+    @Mock
+    private ApiKeyRowRepository apiKeyRepository;
+
+    @Mock
+    private R2dbcEntityOperations entityOperations;
+
+    private ReactiveApiKeyService service;
+
+    @BeforeEach
+    void setUp() {
+        ReactiveProperties properties = new ReactiveProperties();
+        properties.getSecurity().setApiKeyPepper(PEPPER);
+        service = new ReactiveApiKeyService(apiKeyRepository, entityOperations, properties);
+    }
+
+    @Test
+    void createApiKeyShouldInsertNewRowWhenUserHasNone() {
+        when(apiKeyRepository.findByUserId("user-1")).thenReturn(Mono.empty());
+        when(entityOperations.insert(any(ApiKeyRow.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        StepVerifier.create(service.createApiKey(new CreateApiKeyRequest(" user-1 ", " Laptop ")))
+                .assertNext(issued -> {
+                    assertEquals("user-1", issued.userId());
+                    assertEquals("Laptop", issued.name());
+                    assertTrue(issued.apiKey().startsWith("csk_"));
+                })
+                .verifyComplete();
+
+        ArgumentCaptor<ApiKeyRow> inserted = ArgumentCaptor.forClass(ApiKeyRow.class);
+        verify(entityOperations).insert(inserted.capture());
+        assertTrue(inserted.getValue().active());
+        verify(apiKeyRepository, never()).rotate(any(), anyString(), anyString(), anyString(), any());
+    }
+
+    @Test
+    void createApiKeyShouldRotateExistingRow() {
+        ApiKeyRow existing = row("old", "hash", Instant.parse("2025-01-01T00:00:00Z"));
+        when(apiKeyRepository.findByUserId("user-1")).thenReturn(Mono.just(existing));
+        when(apiKeyRepository.rotate(eq(existing.id()), eq("New"), anyString(), anyString(), any())).thenReturn(Mono.just(1));
+
+        StepVerifier.create(service.createApiKey(new CreateApiKeyRequest("user-1", "New")))
+                .assertNext(issued -> {
+                    assertEquals(existing.id(), issued.id());
+                    assertEquals("New", issued.name());
+                    assertEquals(existing.createdAt(), issued.createdAt());
+                })
+                .verifyComplete();
+
+        verify(entityOperations, never()).insert(any(ApiKeyRow.class));
+    }
+
+    @Test
+    void authenticateShouldAcceptMatchingSecretOnly() {
+        String secret = ApiKeyCodec.generateSecret();
+        String prefix = ApiKeyCodec.generatePublicPrefix();
+        ApiKeyRow row = row(prefix, ApiKeyCodec.hashSecret(PEPPER, secret), Instant.now());
+        when(apiKeyRepository.findByKeyPrefixAndActiveTrue(prefix)).thenReturn(Mono.just(row));
+
+        StepVerifier.create(service.authenticate(ApiKeyCodec.format(prefix, secret)))
+                .assertNext(key -> assertEquals("user-1", key.userId()))
+                .verifyComplete();
+        StepVerifier.create(service.authenticate(ApiKeyCodec.format(prefix, ApiKeyCodec.generateSecret())))
+                .verifyError(UnauthorizedException.class);
+    }
+
+    @Test
+    void authenticateShouldRejectMissingKeyWithoutLookup() {
+        StepVerifier.create(service.authenticate(null)).verifyError(UnauthorizedException.class);
+        verify(apiKeyRepository, never()).findByKeyPrefixAndActiveTrue(anyString());
+    }
+
+    @Test
+    void revokeShouldFailForUnknownKey() {
+        UUID id = UUID.randomUUID();
+        when(apiKeyRepository.deactivate(eq(id), any())).thenReturn(Mono.just(0));
+
+        StepVerifier.create(service.revoke(id)).verifyError(NotFoundException.class);
+    }
+
+    private static ApiKeyRow row(String prefix, String hash, Instant createdAt) {
+        return new ApiKeyRow(UUID.randomUUID(), "user-1", "Laptop", prefix, hash, true, createdAt, createdAt, null);
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.chatstorage.reactive.service;
+
+import com.example.chatstorage.dto.AddMessageRequest;
+import com.example.chatstorage.entity.SenderType;
+import com.example.chatstorage.exception.NotFoundException;
+import com.example.chatstorage.reactive.config.ReactiveProperties;
+import com.example.chatstorage.reactive.entity.ChatMessageRow;
+import com.example.chatstorage.reactive.entity.ChatSessionRow;
+import com.example.chatstorage.reactive.repository.ChatMessageRowRepository;
+import com.example.chatstorage.reactive.repository.ChatSessionRowRepository;
+import io.r2dbc.spi.Readable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityOperations;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveChatMessageServiceTest {
+
+    @Mock
+    private ChatSessionRowRepository chatSessionRepository;
+
+    @Mock
+    private ChatMessageRowRepository chatMessageRepository;
+
+    @Mock
+    private R2dbcEntityOperations entityOperations;
+
+    @Mock
+    private DatabaseClient databaseClient;
+
+    private final UUID sessionId = UUID.randomUUID();
+    private ReactiveChatMessageService service;
+
+    @BeforeEach
+    void setUp() {
+        ReactiveChatSessionService sessionService = new ReactiveChatSessionService(chatSessionRepository, chatMessageRepository, entityOperations);
+        service = new ReactiveChatMessageService(sessionService, chatSessionRepository, chatMessageRepository,
+                entityOperations, databaseClient, new ReactiveProperties());
+    }
+
+    @Test
+    void addMessageShouldStoreSizeColumnsAndRecordSummary() {
+        when(chatSessionRepository.findByIdAndUserId(sessionId, "user-1")).thenReturn(Mono.just(session()));
+        when(entityOperations.insert(any(ChatMessageRow.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(chatSessionRepository.recordMessage(eq(sessionId), any(), eq(7L), eq("USER"), eq("h\u00e9llo!"))).thenReturn(Mono.just(1));
+        when(chatSessionRepository.recordChange(eq("user-1"), eq(sessionId), any(UUID.class), eq("MESSAGE"), any()))
+                .thenReturn(Mono.just(1));
+
+        StepVerifier.create(service.addMessage(sessionId, "user-1", new AddMessageRequest(SenderType.USER, " h\u00e9llo! ", "ctx")))
+                .assertNext(message -> {
+                    assertEquals("h\u00e9llo!", message.content());
+                    assertEquals(sessionId, message.sessionId());
+                })
+                .verifyComplete();
+
+        ArgumentCaptor<ChatMessageRow> inserted = ArgumentCaptor.forClass(ChatMessageRow.class);
+        verify(entityOperations).insert(inserted.capture());
+        assertEquals(7, inserted.getValue().contentBytes());
+        assertEquals(2, inserted.getValue().contentTokens());
+        assertEquals(3, inserted.getValue().contextBytes());
+        assertEquals(1, inserted.getValue().contextTokens());
+    }
+
+    @Test
+    void addMessageShouldNotWriteToAnotherUsersSession() {
+        when(chatSessionRepository.findByIdAndUserId(sessionId, "user-2")).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.addMessage(sessionId, "user-2", new AddMessageRequest(SenderType.USER, "hi", null)))
+                .verifyError(NotFoundException.class);
+        verify(chatSessionRepository, never()).recordMessage(any(), any(), anyLong(), anyString(), anyString());
+    }
+
+    @Test
+    void addMessageShouldRejectEmbeddings() {
+        AddMessageRequest request = new AddMessageRequest(SenderType.USER, "hi", null, new float[]{1f, 0f});
+
+        StepVerifier.create(service.addMessage(sessionId, "user-1", request)).verifyError(IllegalArgumentException.class);
+        verifyNoInteractions(chatSessionRepository, entityOperations);
+    }
+
+    @Test
+    void listMessagesShouldPageOldestFirstByDefault() {
+        ChatMessageRow row = new ChatMessageRow(UUID.randomUUID(), sessionId, SenderType.ASSISTANT, "hi", null,
+                Instant.now(), 2, 1, 0, 0);
+        when(chatSessionRepository.findByIdAndUserId(sessionId, "user-1")).thenReturn(Mono.just(session()));
+        when(chatMessageRepository.findBySessionId(sessionId, PageRequest.of(0, 50, Sort.by(Sort.Direction.ASC, "createdAt"))))
+                .thenReturn(Flux.just(row));
+        when(chatMessageRepository.countBySessionId(sessionId)).thenReturn(Mono.just(1L));
+
+        StepVerifier.create(service.listMessages(sessionId, "user-1", PageRequest.of(0, 50)))
+                .assertNext(page -> {
+                    assertEquals(1, page.totalItems());
+                    assertEquals(SenderType.ASSISTANT, page.items().get(0).sender());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void streamMessagesShouldCheckOwnershipBeforeQuerying() {
+        when(chatSessionRepository.findByIdAndUserId(sessionId, "user-2")).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.streamMessages(sessionId, "user-2")).verifyError(NotFoundException.class);
+        verifyNoInteractions(databaseClient);
+    }
+
+    @Test
+    void readMessageShouldMapColumns() {
+        UUID id = UUID.randomUUID();
+        Instant createdAt = Instant.parse("2025-01-01T00:00:00Z");
+        Readable row = mock(Readable.class);
+        when(row.get("id", UUID.class)).thenReturn(id);
+        when(row.get("session_id", UUID.class)).thenReturn(sessionId);
+        when(row.get("sender", String.class)).thenReturn("SYSTEM");
+        when(row.get("content", String.class)).thenReturn("rules");
+        when(row.get("retrieved_context", String.class)).thenReturn(null);
+        when(row.get("created_at", Instant.class)).thenReturn(createdAt);
+
+        var message = ReactiveChatMessageService.readMessage(row);
+
+        assertEquals(id, message.id());
+        assertEquals(SenderType.SYSTEM, message.sender());
+        assertEquals(createdAt, message.createdAt());
+    }
+
+    private ChatSessionRow session() {
+        Instant now = Instant.now();
+        return new ChatSessionRow(sessionId, "user-1", "Chat", false, now, now, 0, 0, null, null, null);
+    }
+}
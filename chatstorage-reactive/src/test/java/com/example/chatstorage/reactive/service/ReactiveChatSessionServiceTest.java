@@ -0,0 +1,134 @@
+package com.example.chatstorage.reactive.service;
+
+import com.example.chatstorage.dto.CreateSessionRequest;
+import com.example.chatstorage.dto.UpdateSessionNameRequest;
+import com.example.chatstorage.exception.NotFoundException;
+import com.example.chatstorage.reactive.entity.ChatSessionRow;
+import com.example.chatstorage.reactive.repository.ChatMessageRowRepository;
+import com.example.chatstorage.reactive.repository.ChatSessionRowRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityOperations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveChatSessionServiceTest {
+
+    @Mock
+    private ChatSessionRowRepository chatSessionRepository;
+
+    @Mock
+    private ChatMessageRowRepository chatMessageRepository;
+
+    @Mock
+    private R2dbcEntityOperations entityOperations;
+
+    private ReactiveChatSessionService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ReactiveChatSessionService(chatSessionRepository, chatMessageRepository, entityOperations);
+    }
+
+    @Test
+    void createSessionShouldDefaultBlankTitle() {
+        when(entityOperations.insert(any(ChatSessionRow.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(chatSessionRepository.recordChange(eq("user-1"), any(UUID.class), isNull(), eq("SESSION"), any()))
+                .thenReturn(Mono.just(1));
+
+        StepVerifier.create(service.createSession("user-1", new CreateSessionRequest("  ")))
+                .assertNext(session -> {
+                    assertEquals("New Chat", session.title());
+                    assertEquals("user-1", session.userId());
+                    assertEquals(0, session.messageCount());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void listSessionsShouldApplyDefaultSortAndFavoriteFilter() {
+        ChatSessionRow row = session(UUID.randomUUID());
+        Pageable expected = PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "updatedAt"));
+        when(chatSessionRepository.findByUserIdAndFavorite("user-1", true, expected)).thenReturn(Flux.just(row));
+        when(chatSessionRepository.countByUserIdAndFavorite("user-1", true)).thenReturn(Mono.just(3L));
+
+        StepVerifier.create(service.listSessions("user-1", true, PageRequest.of(1, 2)))
+                .assertNext(page -> {
+                    assertEquals(1, page.items().size());
+                    assertEquals(3, page.totalItems());
+                    assertEquals(2, page.totalPages());
+                })
+                .verifyComplete();
+        verify(chatSessionRepository, never()).countByUserId("user-1");
+    }
+
+    @Test
+    void listSessionsShouldRejectOversizedPage() {
+        StepVerifier.create(service.listSessions("user-1", null, PageRequest.of(0, 101)))
+                .verifyErrorMessage("size must be between 1 and 100");
+    }
+
+    @Test
+    void renameSessionShouldFailWhenSessionBelongsToSomeoneElse() {
+        UUID sessionId = UUID.randomUUID();
+        when(chatSessionRepository.rename(eq(sessionId), eq("user-1"), eq("Plans"), any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.renameSession(sessionId, "user-1", new UpdateSessionNameRequest(" Plans ")))
+                .verifyError(NotFoundException.class);
+    }
+
+    @Test
+    void deleteSessionShouldRemoveChildrenBeforeSession() {
+        UUID sessionId = UUID.randomUUID();
+        when(chatSessionRepository.findByIdAndUserId(sessionId, "user-1")).thenReturn(Mono.just(session(sessionId)));
+        when(chatMessageRepository.deleteEmbeddingsBySessionId(sessionId)).thenReturn(Mono.just(0));
+        when(chatMessageRepository.deleteBySessionId(sessionId)).thenReturn(Mono.just(2));
+        when(chatSessionRepository.deleteByIdAndUserId(sessionId, "user-1")).thenReturn(Mono.just(1));
+        when(chatSessionRepository.compactChanges(sessionId)).thenReturn(Mono.just(3));
+        when(chatSessionRepository.recordChange(eq("user-1"), eq(sessionId), isNull(), eq("SESSION_DELETED"), any()))
+                .thenReturn(Mono.just(1));
+
+        StepVerifier.create(service.deleteSession(sessionId, "user-1")).verifyComplete();
+
+        InOrder order = inOrder(chatMessageRepository, chatSessionRepository);
+        order.verify(chatMessageRepository).deleteEmbeddingsBySessionId(sessionId);
+        order.verify(chatMessageRepository).deleteBySessionId(sessionId);
+        order.verify(chatSessionRepository).deleteByIdAndUserId(sessionId, "user-1");
+        order.verify(chatSessionRepository).compactChanges(sessionId);
+    }
+
+    @Test
+    void deleteSessionShouldFailForUnknownSession() {
+        UUID sessionId = UUID.randomUUID();
+        when(chatSessionRepository.findByIdAndUserId(sessionId, "user-1")).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.deleteSession(sessionId, "user-1")).verifyError(NotFoundException.class);
+        verify(chatMessageRepository, never()).deleteBySessionId(sessionId);
+    }
+
+    private static ChatSessionRow session(UUID id) {
+        Instant now = Instant.now();
+        return new ChatSessionRow(id, "user-1", "Chat", true, now, now, 0, 0, null, null, null);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.chatstorage.bulkhead;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class Bulkhead {
+
+    private final RequestClass requestClass;
+    private final int maxConcurrent;
+    private final int maxConnections;
+    private final long connectionWaitMillis;
+    private final Semaphore calls;
+    private final Semaphore connections;
+    private final AtomicLong rejectedCalls = new AtomicLong();
+    private final AtomicLong rejectedConnections = new AtomicLong();
+
+    public Bulkhead(RequestClass requestClass, int maxConcurrent, int maxConnections, long connectionWaitMillis) {
+        this.requestClass = requestClass;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxConnections = Math.max(1, maxConnections);
+        this.connectionWaitMillis = Math.max(0, connectionWaitMillis);
+        this.calls = new Semaphore(this.maxConcurrent);
+        this.connections = new Semaphore(this.maxConnections);
+    }
+
+    public boolean tryEnter() {
+        if (calls.tryAcquire()) {
+            return true;
+        }
+        rejectedCalls.incrementAndGet();
+        return false;
+    }
+
+    public void exit() {
+        calls.release();
+    }
+
+    public boolean tryAcquireConnection() {
+        try {
+            if (connections.tryAcquire(connectionWaitMillis, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        rejectedConnections.incrementAndGet();
+        return false;
+    }
+
+    public void releaseConnection() {
+        connections.release();
+    }
+
+    public RequestClass requestClass() {
+        return requestClass;
+    }
+
+    public int maxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int maxConnections() {
+        return maxConnections;
+    }
+
+    public int activeCalls() {
+        return maxConcurrent - calls.availablePermits();
+    }
+
+    public int activeConnections() {
+        return maxConnections - connections.availablePermits();
+    }
+
+    public double saturation() {
+        return (double) activeCalls() / maxConcurrent;
+    }
+
+    public long rejectedCalls() {
+        return rejectedCalls.get();
+    }
+
+    public long rejectedConnections() {
+        return rejectedConnections.get();
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.chatstorage.bulkhead;
+
+import java.util.function.Supplier;
+
+public final class BulkheadContext {
+
+    private static final ThreadLocal<Bulkhead> CURRENT = new ThreadLocal<>();
+
+    private BulkheadContext() {
+    }
+
+    public static Bulkhead current() {
+        return CURRENT.get();
+    }
+
+    public static void set(Bulkhead bulkhead) {
+        CURRENT.set(bulkhead);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    public static <T> T callWithin(Bulkhead bulkhead, Supplier<T> action) {
+        Bulkhead previous = CURRENT.get();
+        CURRENT.set(bulkhead);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
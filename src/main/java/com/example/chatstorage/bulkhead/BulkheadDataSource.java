@@ -0,0 +1,49 @@
+package com.example.chatstorage.bulkhead;
+
+import com.example.chatstorage.exception.BulkheadFullException;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public class BulkheadDataSource extends DelegatingDataSource {
+
+    public BulkheadDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return guard(BulkheadContext.current(), () -> super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return guard(BulkheadContext.current(), () -> super.getConnection(username, password));
+    }
+
+    private Connection guard(Bulkhead bulkhead, ConnectionSupplier supplier) throws SQLException {
+        if (bulkhead == null) {
+            return supplier.get();
+        }
+        if (!bulkhead.tryAcquireConnection()) {
+            throw new BulkheadFullException("Connection budget exhausted for "
+                    + bulkhead.requestClass().name().toLowerCase().replace('_', ' ') + " requests");
+        }
+
+        Connection connection;
+        try {
+            connection = supplier.get();
+        } catch (SQLException | RuntimeException exception) {
+            bulkhead.releaseConnection();
+            throw exception;
+        }
+        return ReleasingConnection.wrap(connection, bulkhead::releaseConnection);
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.chatstorage.bulkhead;
+
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.exception.BulkheadFullException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+@Component
+public class BulkheadRegistry {
+
+    private final boolean enabled;
+    private final Map<RequestClass, Bulkhead> bulkheads = new EnumMap<>(RequestClass.class);
+
+    public BulkheadRegistry(AppProperties appProperties, MeterRegistry meterRegistry) {
+        AppProperties.Bulkhead config = appProperties.getBulkhead();
+        this.enabled = config.isEnabled();
+        long waitMillis = config.getConnectionWaitMillis();
+        register(RequestClass.AUTH, config.getAuth(), waitMillis, meterRegistry);
+        register(RequestClass.ADMIN, config.getAdmin(), waitMillis, meterRegistry);
+        register(RequestClass.WRITES, config.getWrites(), waitMillis, meterRegistry);
+        register(RequestClass.HEAVY_READS, config.getHeavyReads(), waitMillis, meterRegistry);
+        register(RequestClass.READS, config.getReads(), waitMillis, meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Bulkhead get(RequestClass requestClass) {
+        return bulkheads.get(requestClass);
+    }
+
+    public <T> T call(RequestClass requestClass, Supplier<T> action) {
+        if (!enabled) {
+            return action.get();
+        }
+        Bulkhead bulkhead = enter(requestClass);
+        try {
+            return BulkheadContext.callWithin(bulkhead, action);
+        } finally {
+            bulkhead.exit();
+        }
+    }
+
+    public Bulkhead enter(RequestClass requestClass) {
+        Bulkhead bulkhead = bulkheads.get(requestClass);
+        if (!bulkhead.tryEnter()) {
+            throw new BulkheadFullException("Too many concurrent " + describe(requestClass) + " requests. Try again shortly.");
+        }
+        return bulkhead;
+    }
+
+    private void register(RequestClass requestClass, AppProperties.Limits limits, long waitMillis, MeterRegistry meterRegistry) {
+        Bulkhead bulkhead = new Bulkhead(requestClass, limits.getMaxConcurrent(), limits.getMaxConnections(), waitMillis);
+        bulkheads.put(requestClass, bulkhead);
+
+        String tag = requestClass.name().toLowerCase();
+        Gauge.builder("chatstorage.bulkhead.active.calls", bulkhead, Bulkhead::activeCalls)
+                .tag("class", tag).register(meterRegistry);
+        Gauge.builder("chatstorage.bulkhead.max.calls", bulkhead, Bulkhead::maxConcurrent)
+                .tag("class", tag).register(meterRegistry);
+        Gauge.builder("chatstorage.bulkhead.saturation", bulkhead, Bulkhead::saturation)
+                .tag("class", tag).register(meterRegistry);
+        Gauge.builder("chatstorage.bulkhead.active.connections", bulkhead, Bulkhead::activeConnections)
+                .tag("class", tag).register(meterRegistry);
+        Gauge.builder("chatstorage.bulkhead.max.connections", bulkhead, Bulkhead::maxConnections)
+                .tag("class", tag).register(meterRegistry);
+        FunctionCounter.builder("chatstorage.bulkhead.rejected", bulkhead, Bulkhead::rejectedCalls)
+                .tag("class", tag).tag("resource", "call").register(meterRegistry);
+        FunctionCounter.builder("chatstorage.bulkhead.rejected", bulkhead, Bulkhead::rejectedConnections)
+                .tag("class", tag).tag("resource", "connection").register(meterRegistry);
+    }
+
+    private String describe(RequestClass requestClass) {
+        return requestClass.name().toLowerCase().replace('_', ' ');
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.chatstorage.bulkhead;
+
+import com.example.chatstorage.exception.BulkheadFullException;
+import com.example.chatstorage.sharding.ShardContext;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// With virtual threads there is no request-thread cap, so thousands of requests can queue inside Hikari until its
+// 30s connection timeout. A fair permit per pooled connection queues them here instead, parked cheaply and for a
+// bounded time, and sheds the rest with a 503.
+public class ConnectionGateDataSource extends DelegatingDataSource {
+
+    private static final String UNSHARDED = "";
+
+    private final int permits;
+    private final String defaultShard;
+    private final long waitMillis;
+    private final Map<String, Semaphore> gates = new ConcurrentHashMap<>();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public ConnectionGateDataSource(DataSource targetDataSource, int permitsPerShard, long waitMillis) {
+        this(targetDataSource, permitsPerShard, waitMillis, null);
+    }
+
+    // Without a shard in context the routing data source hands out the default shard's pool, so those
+    // connections take that shard's permits.
+    public ConnectionGateDataSource(DataSource targetDataSource, int permitsPerShard, long waitMillis,
+                                    String defaultShard) {
+        super(targetDataSource);
+        this.permits = Math.max(1, permitsPerShard);
+        this.waitMillis = Math.max(0, waitMillis);
+        this.defaultShard = defaultShard == null || defaultShard.isBlank() ? UNSHARDED : defaultShard;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return guard(() -> super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return guard(() -> super.getConnection(username, password));
+    }
+
+    public int inUse(String shard) {
+        Semaphore gate = gates.get(gateKey(shard));
+        return gate == null ? 0 : permits - gate.availablePermits();
+    }
+
+    public long rejected() {
+        return rejected.get();
+    }
+
+    private Connection guard(ConnectionSupplier supplier) throws SQLException {
+        // Each shard has its own pool, so each gets its own budget.
+        Semaphore gate = gates.computeIfAbsent(gateKey(ShardContext.current()), key -> new Semaphore(permits, true));
+        try {
+            if (!gate.tryAcquire(waitMillis, TimeUnit.MILLISECONDS)) {
+                rejected.incrementAndGet();
+                throw new BulkheadFullException("All database connections are busy. Try again shortly.");
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", exception);
+        }
+
+        Connection connection;
+        try {
+            connection = supplier.get();
+        } catch (SQLException | RuntimeException exception) {
+            gate.release();
+            throw exception;
+        }
+        return ReleasingConnection.wrap(connection, gate::release);
+    }
+
+    private String gateKey(String shard) {
+        return shard == null ? defaultShard : shard;
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+}
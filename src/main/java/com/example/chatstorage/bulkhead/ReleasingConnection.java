@@ -0,0 +1,30 @@
+package com.example.chatstorage.bulkhead;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+final class ReleasingConnection {
+
+    private ReleasingConnection() {
+    }
+
+    // Runs onClose exactly once, on the first close(), however many times the pool's proxy is closed.
+    static Connection wrap(Connection target, Runnable onClose) {
+        AtomicBoolean released = new AtomicBoolean(false);
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                        onClose.run();
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException exception) {
+                        throw exception.getTargetException();
+                    }
+                });
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.chatstorage.bulkhead;
+
+public enum RequestClass {
+    AUTH,
+    ADMIN,
+    WRITES,
+    HEAVY_READS,
+    READS
+}
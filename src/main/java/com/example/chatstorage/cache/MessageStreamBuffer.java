@@ -0,0 +1,286 @@
+package com.example.chatstorage.cache;
+
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.exception.MessageStreamUnavailableException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+// Holds in-progress assistant replies in Redis until they are finalized into chat_messages.
+// Each stream is a metadata hash plus a content string; the active set lets any node find idle streams.
+@Component
+public class MessageStreamBuffer {
+
+    public static final long NOT_FOUND = -1;
+    public static final long NOT_OPEN = -2;
+    public static final long TOO_LARGE = -3;
+
+    public static final String OPEN = "open";
+    public static final String FINALIZING = "finalizing";
+    public static final String DONE = "done";
+
+    private static final String ACTIVE_KEY = "chat:streams:active";
+
+    private static final DefaultRedisScript<Long> APPEND_SCRIPT = new DefaultRedisScript<>("""
+            local meta = redis.call('HMGET', KEYS[1], 'userId', 'sessionId', 'state')
+            if not meta[1] or meta[1] ~= ARGV[1] or meta[2] ~= ARGV[2] then return -1 end
+            if meta[3] ~= 'open' then return -2 end
+            if redis.call('STRLEN', KEYS[2]) + string.len(ARGV[3]) > tonumber(ARGV[4]) then return -3 end
+            local length = redis.call('APPEND', KEYS[2], ARGV[3])
+            redis.call('HINCRBY', KEYS[1], 'chunks', 1)
+            redis.call('HSET', KEYS[1], 'updatedAt', ARGV[6])
+            redis.call('EXPIRE', KEYS[1], ARGV[5])
+            redis.call('EXPIRE', KEYS[2], ARGV[5])
+            return length
+            """, Long.class);
+
+    // Returns {} when missing, otherwise {content, field, value, ...}.
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> READ_SCRIPT = new DefaultRedisScript<>("""
+            local meta = redis.call('HGETALL', KEYS[1])
+            if #meta == 0 then return {} end
+            local result = {redis.call('GET', KEYS[2]) or ''}
+            for i = 1, #meta do result[#result + 1] = meta[i] end
+            return result
+            """, List.class);
+
+    // An expired lease means the node that was finalizing died, so another caller may take over.
+    // Returns {status} or {'claimed', content, field, value, ...}; an empty ARGV[1] skips the owner check.
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> CLAIM_SCRIPT = new DefaultRedisScript<>("""
+            local meta = redis.call('HMGET', KEYS[1], 'userId', 'sessionId', 'state', 'leaseUntil', 'result')
+            if not meta[1] then return {'missing'} end
+            if ARGV[1] ~= '' and (meta[1] ~= ARGV[1] or meta[2] ~= ARGV[2]) then return {'missing'} end
+            if meta[3] == 'done' then return {'done', meta[5] or ''} end
+            if meta[3] == 'finalizing' and (tonumber(meta[4]) or 0) > tonumber(ARGV[3]) then return {'busy'} end
+            redis.call('HSET', KEYS[1], 'state', 'finalizing', 'leaseUntil', tostring(tonumber(ARGV[3]) + tonumber(ARGV[4])))
+            redis.call('EXPIRE', KEYS[1], ARGV[5])
+            redis.call('EXPIRE', KEYS[2], ARGV[5])
+            local result = {'claimed', redis.call('GET', KEYS[2]) or ''}
+            local all = redis.call('HGETALL', KEYS[1])
+            for i = 1, #all do result[#result + 1] = all[i] end
+            return result
+            """, List.class);
+
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HGET', KEYS[1], 'state') ~= 'finalizing' then return 0 end
+            redis.call('HSET', KEYS[1], 'state', 'open', 'leaseUntil', '0')
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final AppProperties appProperties;
+
+    public MessageStreamBuffer(StringRedisTemplate redisTemplate, AppProperties appProperties) {
+        this.redisTemplate = redisTemplate;
+        this.appProperties = appProperties;
+    }
+
+    public void open(BufferedStream stream) {
+        call(() -> {
+            Map<String, String> meta = new LinkedHashMap<>();
+            meta.put("userId", stream.userId());
+            meta.put("sessionId", stream.sessionId().toString());
+            meta.put("state", OPEN);
+            meta.put("chunks", "0");
+            meta.put("startedAt", String.valueOf(stream.startedAt().toEpochMilli()));
+            meta.put("updatedAt", String.valueOf(stream.updatedAt().toEpochMilli()));
+            if (stream.retrievedContext() != null) {
+                meta.put("retrievedContext", stream.retrievedContext());
+            }
+            redisTemplate.opsForHash().putAll(metaKey(stream.streamId()), meta);
+            redisTemplate.expire(metaKey(stream.streamId()), ttl());
+            redisTemplate.opsForSet().add(sessionKey(stream.sessionId()), stream.streamId().toString());
+            redisTemplate.expire(sessionKey(stream.sessionId()), ttl());
+            redisTemplate.opsForZSet().add(ACTIVE_KEY, stream.streamId().toString(), stream.updatedAt().toEpochMilli());
+            return null;
+        });
+    }
+
+    // Returns the new content length in bytes, or one of NOT_FOUND, NOT_OPEN, TOO_LARGE.
+    public long append(UUID streamId, String userId, UUID sessionId, String chunk, Instant now) {
+        return call(() -> {
+            Long length = redisTemplate.execute(APPEND_SCRIPT, keys(streamId),
+                    userId, sessionId.toString(), chunk,
+                    String.valueOf(appProperties.getMessageStream().getMaxBytes()),
+                    String.valueOf(ttl().toSeconds()),
+                    String.valueOf(now.toEpochMilli()));
+            long result = length == null ? NOT_FOUND : length;
+            if (result >= 0) {
+                redisTemplate.opsForZSet().add(ACTIVE_KEY, streamId.toString(), now.toEpochMilli());
+            }
+            return result;
+        });
+    }
+
+    public Optional<BufferedStream> read(UUID streamId) {
+        return call(() -> {
+            List<?> reply = redisTemplate.execute(READ_SCRIPT, keys(streamId));
+            if (reply == null || reply.isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of(toStream(streamId, reply, 0));
+        });
+    }
+
+    public List<BufferedStream> readSession(UUID sessionId) {
+        return call(() -> {
+            Set<String> members = redisTemplate.opsForSet().members(sessionKey(sessionId));
+            List<BufferedStream> streams = new ArrayList<>();
+            if (members == null) {
+                return streams;
+            }
+            for (String member : members) {
+                UUID streamId = UUID.fromString(member);
+                Optional<BufferedStream> stream = read(streamId);
+                if (stream.isPresent()) {
+                    streams.add(stream.get());
+                } else {
+                    redisTemplate.opsForSet().remove(sessionKey(sessionId), member);
+                }
+            }
+            return streams;
+        });
+    }
+
+    // Owner may be null for the idle sweeper, which finalizes on behalf of whoever opened the stream.
+    public Claim claim(UUID streamId, String userId, UUID sessionId, Instant now, Duration lease) {
+        return call(() -> {
+            List<?> reply = redisTemplate.execute(CLAIM_SCRIPT, keys(streamId),
+                    userId == null ? "" : userId,
+                    sessionId == null ? "" : sessionId.toString(),
+                    String.valueOf(now.toEpochMilli()),
+                    String.valueOf(lease.toMillis()),
+                    String.valueOf(ttl().toSeconds()));
+            String status = reply == null || reply.isEmpty() ? "missing" : String.valueOf(reply.get(0));
+            return toClaim(streamId, status, reply);
+        });
+    }
+
+    public void release(UUID streamId) {
+        call(() -> redisTemplate.execute(RELEASE_SCRIPT, List.of(metaKey(streamId))));
+    }
+
+    // Keeps the stored result for a while so a retried finalize returns the same message.
+    public void complete(BufferedStream stream, String resultJson) {
+        call(() -> {
+            String metaKey = metaKey(stream.streamId());
+            redisTemplate.opsForHash().putAll(metaKey, Map.of("state", DONE, "result", resultJson));
+            redisTemplate.expire(metaKey, Duration.ofSeconds(Math.max(1, appProperties.getMessageStream().getCompletedTtlSeconds())));
+            redisTemplate.delete(contentKey(stream.streamId()));
+            forget(stream);
+            return null;
+        });
+    }
+
+    public void discard(BufferedStream stream) {
+        call(() -> {
+            redisTemplate.delete(keys(stream.streamId()));
+            forget(stream);
+            return null;
+        });
+    }
+
+    public List<UUID> idleSince(Instant cutoff, int limit) {
+        return call(() -> {
+            Set<String> members = redisTemplate.opsForZSet().rangeByScore(ACTIVE_KEY, 0, cutoff.toEpochMilli(), 0, limit);
+            List<UUID> ids = new ArrayList<>();
+            if (members != null) {
+                members.forEach(member -> ids.add(UUID.fromString(member)));
+            }
+            return ids;
+        });
+    }
+
+    public void forgetIdle(UUID streamId) {
+        call(() -> redisTemplate.opsForZSet().remove(ACTIVE_KEY, streamId.toString()));
+    }
+
+    private void forget(BufferedStream stream) {
+        redisTemplate.opsForZSet().remove(ACTIVE_KEY, stream.streamId().toString());
+        redisTemplate.opsForSet().remove(sessionKey(stream.sessionId()), stream.streamId().toString());
+    }
+
+    private Claim toClaim(UUID streamId, String status, List<?> reply) {
+        if ("claimed".equals(status)) {
+            return new Claim(Claim.Status.CLAIMED, toStream(streamId, reply, 1), null);
+        }
+        if ("done".equals(status)) {
+            return new Claim(Claim.Status.DONE, null, String.valueOf(reply.get(1)));
+        }
+        if ("busy".equals(status)) {
+            return new Claim(Claim.Status.BUSY, null, null);
+        }
+        return new Claim(Claim.Status.MISSING, null, null);
+    }
+
+    private static BufferedStream toStream(UUID streamId, List<?> reply, int offset) {
+        String content = String.valueOf(reply.get(offset));
+        Map<String, String> meta = new HashMap<>();
+        for (int i = offset + 1; i + 1 < reply.size(); i += 2) {
+            meta.put(String.valueOf(reply.get(i)), String.valueOf(reply.get(i + 1)));
+        }
+        return new BufferedStream(streamId, meta.get("userId"), UUID.fromString(meta.get("sessionId")),
+                meta.get("state"), meta.get("retrievedContext"), content,
+                Long.parseLong(meta.getOrDefault("chunks", "0")),
+                Instant.ofEpochMilli(Long.parseLong(meta.getOrDefault("startedAt", "0"))),
+                Instant.ofEpochMilli(Long.parseLong(meta.getOrDefault("updatedAt", "0"))));
+    }
+
+    private <T> T call(Supplier<T> action) {
+        try {
+            return action.get();
+        } catch (MessageStreamUnavailableException exception) {
+            throw exception;
+        } catch (RuntimeException exception) {
+            throw new MessageStreamUnavailableException("Message stream buffer is unavailable", exception);
+        }
+    }
+
+    private Duration ttl() {
+        return Duration.ofSeconds(Math.max(1, appProperties.getMessageStream().getTtlSeconds()));
+    }
+
+    private List<String> keys(UUID streamId) {
+        return List.of(metaKey(streamId), contentKey(streamId));
+    }
+
+    // Hash tags keep both keys of a stream in one cluster slot so the scripts stay valid on Redis Cluster.
+    private String metaKey(UUID streamId) {
+        return "chat:stream:{" + streamId + "}:meta";
+    }
+
+    private String contentKey(UUID streamId) {
+        return "chat:stream:{" + streamId + "}:content";
+    }
+
+    private String sessionKey(UUID sessionId) {
+        return "chat:streams:session:" + sessionId;
+    }
+
+    public record BufferedStream(UUID streamId, String userId, UUID sessionId, String state, String retrievedContext,
+                                 String content, long chunks, Instant startedAt, Instant updatedAt) {
+    }
+
+    public record Claim(Status status, BufferedStream stream, String result) {
+
+        public enum Status {
+            CLAIMED,
+            BUSY,
+            DONE,
+            MISSING
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.chatstorage.cache;
+
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.dto.ChatMessageResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+@Component
+public class MessageTailCache {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageTailCache.class);
+
+    // Every write bumps the generation, so a loader that raced a write never installs a stale tail.
+    private static final DefaultRedisScript<Long> APPEND_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('INCR', KEYS[1])
+            redis.call('EXPIRE', KEYS[1], ARGV[3])
+            if redis.call('EXISTS', KEYS[3]) == 0 then return 0 end
+            if redis.call('LPOS', KEYS[2], ARGV[1]) then return 0 end
+            redis.call('RPUSH', KEYS[2], ARGV[1])
+            redis.call('LTRIM', KEYS[2], -tonumber(ARGV[2]), -1)
+            redis.call('INCR', KEYS[3])
+            redis.call('EXPIRE', KEYS[2], ARGV[3])
+            redis.call('EXPIRE', KEYS[3], ARGV[3])
+            return 1
+            """, Long.class);
+
+    private static final DefaultRedisScript<Long> POPULATE_SCRIPT = new DefaultRedisScript<>("""
+            local generation = redis.call('GET', KEYS[1]) or '0'
+            if generation ~= ARGV[1] then return 0 end
+            redis.call('DEL', KEYS[2])
+            if #ARGV > 3 then redis.call('RPUSH', KEYS[2], unpack(ARGV, 4)) end
+            redis.call('SET', KEYS[3], ARGV[3], 'EX', ARGV[2])
+            redis.call('EXPIRE', KEYS[2], ARGV[2])
+            return 1
+            """, Long.class);
+
+    // Returns nil when the session is not cached, {'-1'} when the window reaches below the tail,
+    // otherwise {total, entries...} in ascending order.
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> READ_SCRIPT = new DefaultRedisScript<>("""
+            local total = redis.call('GET', KEYS[3])
+            if not total then return nil end
+            total = tonumber(total)
+            local cached = redis.call('LLEN', KEYS[2])
+            local offset = tonumber(ARGV[1])
+            local size = tonumber(ARGV[2])
+            local from
+            local to
+            if ARGV[3] == '1' then
+                from = offset
+                to = math.min(offset + size, total) - 1
+            else
+                to = total - 1 - offset
+                from = math.max(total - offset - size, 0)
+            end
+            redis.call('EXPIRE', KEYS[2], ARGV[4])
+            redis.call('EXPIRE', KEYS[3], ARGV[4])
+            local result = {tostring(total)}
+            if from > to then return result end
+            local tailStart = total - cached
+            if from < tailStart then return {'-1'} end
+            local entries = redis.call('LRANGE', KEYS[2], from - tailStart, to - tailStart)
+            for i = 1, #entries do result[#result + 1] = entries[i] end
+            return result
+            """, List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final AppProperties appProperties;
+
+    public MessageTailCache(StringRedisTemplate redisTemplate, ObjectMapper objectMapper, AppProperties appProperties) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.appProperties = appProperties;
+    }
+
+    public boolean isEnabled() {
+        return appProperties.getMessageCache().isEnabled();
+    }
+
+    public int tailSize() {
+        return Math.max(1, appProperties.getMessageCache().getTailSize());
+    }
+
+    public TailRead read(UUID sessionId, Pageable pageable) {
+        Boolean ascending = createdAtDirection(pageable.getSort());
+        if (!isEnabled() || ascending == null) {
+            return TailRead.BYPASS;
+        }
+        try {
+            List<?> reply = redisTemplate.execute(READ_SCRIPT, keys(sessionId),
+                    String.valueOf(pageable.getOffset()),
+                    String.valueOf(pageable.getPageSize()),
+                    ascending ? "1" : "0",
+                    String.valueOf(ttlSeconds()));
+            if (reply == null || reply.isEmpty()) {
+                return TailRead.MISS;
+            }
+            long total = Long.parseLong(String.valueOf(reply.get(0)));
+            if (total < 0) {
+                return TailRead.BYPASS;
+            }
+            List<ChatMessageResponse> items = new ArrayList<>(reply.size() - 1);
+            for (int i = 1; i < reply.size(); i++) {
+                items.add(objectMapper.readValue(String.valueOf(reply.get(i)), ChatMessageResponse.class));
+            }
+            if (!ascending) {
+                Collections.reverse(items);
+            }
+            return new TailRead(TailRead.Status.HIT, items, total);
+        } catch (RuntimeException | JsonProcessingException exception) {
+            log.warn("Message tail cache read failed for sessionId={}; falling back to database", sessionId, exception);
+            return TailRead.BYPASS;
+        }
+    }
+
+    public long generation(UUID sessionId) {
+        try {
+            String value = redisTemplate.opsForValue().get(generationKey(sessionId));
+            return value == null ? 0 : Long.parseLong(value);
+        } catch (RuntimeException exception) {
+            log.warn("Message tail cache unavailable for sessionId={}", sessionId, exception);
+            return -1;
+        }
+    }
+
+    public void populate(UUID sessionId, long expectedGeneration, List<ChatMessageResponse> chronological, long total) {
+        if (!isEnabled() || expectedGeneration < 0) {
+            return;
+        }
+        try {
+            List<String> args = new ArrayList<>(chronological.size() + 3);
+            args.add(String.valueOf(expectedGeneration));
+            args.add(String.valueOf(ttlSeconds()));
+            args.add(String.valueOf(total));
+            for (ChatMessageResponse message : chronological) {
+                String json = objectMapper.writeValueAsString(message);
+                if (tooLarge(json)) {
+                    // A tail with a hole would serve wrong windows; keep the session on the database path.
+                    return;
+                }
+                args.add(json);
+            }
+            redisTemplate.execute(POPULATE_SCRIPT, keys(sessionId), args.toArray());
+        } catch (RuntimeException | JsonProcessingException exception) {
+            log.warn("Message tail cache populate failed for sessionId={}", sessionId, exception);
+        }
+    }
+
+    public void append(ChatMessageResponse message) {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            String json = objectMapper.writeValueAsString(message);
+            if (tooLarge(json)) {
+                evict(message.sessionId());
+                return;
+            }
+            redisTemplate.execute(APPEND_SCRIPT, keys(message.sessionId()),
+                    json, String.valueOf(tailSize()), String.valueOf(ttlSeconds()));
+        } catch (RuntimeException | JsonProcessingException exception) {
+            log.warn("Message tail cache append failed for sessionId={}; evicting", message.sessionId(), exception);
+            evict(message.sessionId());
+        }
+    }
+
+    public void evict(UUID sessionId) {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().increment(generationKey(sessionId));
+            redisTemplate.expire(generationKey(sessionId), Duration.ofSeconds(ttlSeconds()));
+            redisTemplate.delete(List.of(listKey(sessionId), totalKey(sessionId)));
+        } catch (RuntimeException exception) {
+            log.warn("Message tail cache evict failed for sessionId={}", sessionId, exception);
+        }
+    }
+
+    private Boolean createdAtDirection(Sort sort) {
+        List<Sort.Order> orders = sort.toList();
+        if (orders.size() != 1 || !"createdAt".equals(orders.get(0).getProperty())) {
+            return null;
+        }
+        return orders.get(0).isAscending();
+    }
+
+    private boolean tooLarge(String json) {
+        return json.getBytes(StandardCharsets.UTF_8).length > appProperties.getMessageCache().getMaxMessageBytes();
+    }
+
+    private long ttlSeconds() {
+        return Math.max(1, appProperties.getMessageCache().getTtlSeconds());
+    }
+
+    private List<String> keys(UUID sessionId) {
+        return List.of(generationKey(sessionId), listKey(sessionId), totalKey(sessionId));
+    }
+
+    // Hash tags keep all keys of a session in one cluster slot so the scripts stay valid on Redis Cluster.
+    private String generationKey(UUID sessionId) {
+        return "chat:tail:{" + sessionId + "}:gen";
+    }
+
+    private String listKey(UUID sessionId) {
+        return "chat:tail:{" + sessionId + "}:list";
+    }
+
+    private String totalKey(UUID sessionId) {
+        return "chat:tail:{" + sessionId + "}:total";
+    }
+
+    public record TailRead(Status status, List<ChatMessageResponse> items, long total) {
+
+        public static final TailRead MISS = new TailRead(Status.MISS, List.of(), 0);
+        public static final TailRead BYPASS = new TailRead(Status.BYPASS, List.of(), 0);
+
+        public enum Status {
+            HIT,
+            MISS,
+            BYPASS
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.example.chatstorage.cache;
+
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.dto.ChatSessionResponse;
+import com.example.chatstorage.entity.SenderType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Component
+public class SessionIndexCache {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionIndexCache.class);
+
+    private static final String READY = "ok";
+    private static final String OVERSIZED = "oversized";
+    private static final int POPULATE_CHUNK = 500;
+
+    // KEYS: gen, ready, all, favorites, others, meta.
+    private static final DefaultRedisScript<Long> UPSERT_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('INCR', KEYS[1])
+            redis.call('EXPIRE', KEYS[1], ARGV[5])
+            if redis.call('GET', KEYS[2]) ~= 'ok' then return 0 end
+            redis.call('HSET', KEYS[6], ARGV[1], ARGV[4])
+            redis.call('ZADD', KEYS[3], ARGV[2], ARGV[1])
+            if ARGV[3] == '1' then
+                redis.call('ZADD', KEYS[4], ARGV[2], ARGV[1])
+                redis.call('ZREM', KEYS[5], ARGV[1])
+            else
+                redis.call('ZADD', KEYS[5], ARGV[2], ARGV[1])
+                redis.call('ZREM', KEYS[4], ARGV[1])
+            end
+            return 1
+            """, Long.class);
+
+    // Applies one appended message to the stored entry in place. Counts add up; the last message and updatedAt only
+    // move forward, comparing instants with the fraction padded to nanoseconds. Returns -1 when the entry is missing.
+    private static final DefaultRedisScript<Long> MESSAGE_SCRIPT = new DefaultRedisScript<>("""
+            local function instant(value)
+                if type(value) ~= 'string' then return '' end
+                local base, fraction = string.match(value, '^([^.Z]+)%.?(%d*)Z$')
+                if not base then return value end
+                return base .. fraction .. string.rep('0', 9 - #fraction)
+            end
+            redis.call('INCR', KEYS[1])
+            redis.call('EXPIRE', KEYS[1], ARGV[5])
+            if redis.call('GET', KEYS[2]) ~= 'ok' then return 0 end
+            local entry = redis.call('HGET', KEYS[6], ARGV[1])
+            if not entry then return -1 end
+            local session = cjson.decode(entry)
+            local message = cjson.decode(ARGV[3])
+            local at = instant(message.lastMessageAt)
+            session.messageCount = session.messageCount + 1
+            session.totalContentBytes = session.totalContentBytes + tonumber(ARGV[4])
+            if at > instant(session.lastMessageAt) then
+                session.lastMessageAt = message.lastMessageAt
+                session.lastSender = message.lastSender
+                session.lastMessagePreview = message.lastMessagePreview
+            end
+            if at > instant(session.updatedAt) then
+                session.updatedAt = message.lastMessageAt
+                redis.call('ZADD', KEYS[3], ARGV[2], ARGV[1])
+                if session.favorite == true then
+                    redis.call('ZADD', KEYS[4], ARGV[2], ARGV[1])
+                else
+                    redis.call('ZADD', KEYS[5], ARGV[2], ARGV[1])
+                end
+            end
+            redis.call('HSET', KEYS[6], ARGV[1], cjson.encode(session))
+            return 1
+            """, Long.class);
+
+    private static final DefaultRedisScript<Long> REMOVE_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('INCR', KEYS[1])
+            redis.call('EXPIRE', KEYS[1], ARGV[2])
+            if redis.call('GET', KEYS[2]) ~= 'ok' then return 0 end
+            redis.call('HDEL', KEYS[6], ARGV[1])
+            redis.call('ZREM', KEYS[3], ARGV[1])
+            redis.call('ZREM', KEYS[4], ARGV[1])
+            redis.call('ZREM', KEYS[5], ARGV[1])
+            return 1
+            """, Long.class);
+
+    // Large users are loaded in several calls; only the last one publishes the ready marker,
+    // and any write in between bumps the generation so the remaining chunks are dropped.
+    private static final DefaultRedisScript<Long> POPULATE_SCRIPT = new DefaultRedisScript<>("""
+            local generation = redis.call('GET', KEYS[1]) or '0'
+            if generation ~= ARGV[1] then return 0 end
+            if ARGV[3] == '1' then redis.call('DEL', KEYS[2], KEYS[3], KEYS[4], KEYS[5], KEYS[6]) end
+            for i = 6, #ARGV, 4 do
+                redis.call('HSET', KEYS[6], ARGV[i], ARGV[i + 3])
+                redis.call('ZADD', KEYS[3], ARGV[i + 1], ARGV[i])
+                if ARGV[i + 2] == '1' then
+                    redis.call('ZADD', KEYS[4], ARGV[i + 1], ARGV[i])
+                else
+                    redis.call('ZADD', KEYS[5], ARGV[i + 1], ARGV[i])
+                end
+            end
+            if ARGV[4] == '1' then
+                redis.call('SET', KEYS[2], ARGV[5], 'EX', ARGV[2])
+                for i = 3, 6 do redis.call('EXPIRE', KEYS[i], ARGV[2]) end
+            end
+            return 1
+            """, Long.class);
+
+    // Returns nil when the user is not indexed, {'-1'} when the index cannot serve the request,
+    // otherwise {total, entries...} in the requested order.
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> READ_SCRIPT = new DefaultRedisScript<>("""
+            local ready = redis.call('GET', KEYS[2])
+            if not ready then return nil end
+            if ready ~= 'ok' then return {'-1'} end
+            local set = KEYS[tonumber(ARGV[1])]
+            local offset = tonumber(ARGV[2])
+            local stop = offset + tonumber(ARGV[3]) - 1
+            local ids
+            if ARGV[4] == '1' then
+                ids = redis.call('ZRANGE', set, offset, stop)
+            else
+                ids = redis.call('ZREVRANGE', set, offset, stop)
+            end
+            for i = 2, 6 do redis.call('EXPIRE', KEYS[i], ARGV[5]) end
+            local result = {tostring(redis.call('ZCARD', set))}
+            if #ids == 0 then return result end
+            local entries = redis.call('HMGET', KEYS[6], unpack(ids))
+            for i = 1, #entries do
+                if not entries[i] then return {'-1'} end
+                result[#result + 1] = entries[i]
+            end
+            return result
+            """, List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final AppProperties appProperties;
+
+    public SessionIndexCache(StringRedisTemplate redisTemplate, ObjectMapper objectMapper, AppProperties appProperties) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.appProperties = appProperties;
+    }
+
+    public boolean isEnabled() {
+        return appProperties.getSessionIndex().isEnabled();
+    }
+
+    public int maxSessions() {
+        return Math.max(1, appProperties.getSessionIndex().getMaxSessions());
+    }
+
+    public IndexRead read(String userId, Boolean favorite, Pageable pageable) {
+        Boolean ascending = updatedAtDirection(pageable.getSort());
+        if (!isEnabled() || ascending == null) {
+            return IndexRead.BYPASS;
+        }
+        // Positions of the all/favorites/others sets in keys().
+        String set = favorite == null ? "3" : favorite ? "4" : "5";
+        try {
+            List<?> reply = redisTemplate.execute(READ_SCRIPT, keys(userId),
+                    set,
+                    String.valueOf(pageable.getOffset()),
+                    String.valueOf(pageable.getPageSize()),
+                    ascending ? "1" : "0",
+                    String.valueOf(ttlSeconds()));
+            if (reply == null || reply.isEmpty()) {
+                return IndexRead.MISS;
+            }
+            long total = Long.parseLong(String.valueOf(reply.get(0)));
+            if (total < 0) {
+                return IndexRead.BYPASS;
+            }
+            List<ChatSessionResponse> items = new ArrayList<>(reply.size() - 1);
+            for (int i = 1; i < reply.size(); i++) {
+                items.add(objectMapper.readValue(String.valueOf(reply.get(i)), ChatSessionResponse.class));
+            }
+            return new IndexRead(IndexRead.Status.HIT, items, total);
+        } catch (RuntimeException | JsonProcessingException exception) {
+            log.warn("Session index read failed for userId={}; falling back to database", userId, exception);
+            return IndexRead.BYPASS;
+        }
+    }
+
+    public long generation(String userId) {
+        try {
+            String value = redisTemplate.opsForValue().get(generationKey(userId));
+            return value == null ? 0 : Long.parseLong(value);
+        } catch (RuntimeException exception) {
+            log.warn("Session index unavailable for userId={}", userId, exception);
+            return -1;
+        }
+    }
+
+    public void populate(String userId, long expectedGeneration, List<ChatSessionResponse> sessions) {
+        write(userId, expectedGeneration, sessions, READY);
+    }
+
+    // Users above the configured size stay on the database path until the marker expires.
+    public void markOversized(String userId, long expectedGeneration) {
+        write(userId, expectedGeneration, List.of(), OVERSIZED);
+    }
+
+    public void upsert(ChatSessionResponse session) {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            redisTemplate.execute(UPSERT_SCRIPT, keys(session.userId()),
+                    session.id().toString(),
+                    String.valueOf(score(session)),
+                    session.favorite() ? "1" : "0",
+                    objectMapper.writeValueAsString(session),
+                    String.valueOf(ttlSeconds()));
+        } catch (RuntimeException | JsonProcessingException exception) {
+            log.warn("Session index upsert failed for userId={}; evicting", session.userId(), exception);
+            evict(session.userId());
+        }
+    }
+
+    // Patches the indexed entry instead of rewriting it, so recording a message needs no read of the session row.
+    public void recordMessage(String userId, UUID sessionId, Instant at, long bytes, SenderType sender,
+                              String preview) {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            Map<String, Object> message = new LinkedHashMap<>();
+            message.put("lastMessageAt", at);
+            message.put("lastSender", sender);
+            message.put("lastMessagePreview", preview);
+            Long applied = redisTemplate.execute(MESSAGE_SCRIPT, keys(userId),
+                    sessionId.toString(),
+                    String.valueOf(at.toEpochMilli()),
+                    objectMapper.writeValueAsString(message),
+                    String.valueOf(bytes),
+                    String.valueOf(ttlSeconds()));
+            if (applied != null && applied < 0) {
+                evict(userId);
+            }
+        } catch (RuntimeException | JsonProcessingException exception) {
+            log.warn("Session index message update failed for userId={}; evicting", userId, exception);
+            evict(userId);
+        }
+    }
+
+    public void remove(String userId, UUID sessionId) {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            redisTemplate.execute(REMOVE_SCRIPT, keys(userId), sessionId.toString(), String.valueOf(ttlSeconds()));
+        } catch (RuntimeException exception) {
+            log.warn("Session index remove failed for userId={}; evicting", userId, exception);
+            evict(userId);
+        }
+    }
+
+    public void evict(String userId) {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            List<String> keys = keys(userId);
+            redisTemplate.opsForValue().increment(keys.get(0));
+            redisTemplate.expire(keys.get(0), Duration.ofSeconds(ttlSeconds()));
+            redisTemplate.delete(keys.subList(1, keys.size()));
+        } catch (RuntimeException exception) {
+            log.warn("Session index evict failed for userId={}", userId, exception);
+        }
+    }
+
+    private void write(String userId, long expectedGeneration, List<ChatSessionResponse> sessions, String marker) {
+        if (!isEnabled() || expectedGeneration < 0) {
+            return;
+        }
+        try {
+            int chunks = Math.max(1, (sessions.size() + POPULATE_CHUNK - 1) / POPULATE_CHUNK);
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                List<ChatSessionResponse> part = sessions.subList(chunk * POPULATE_CHUNK,
+                        Math.min(sessions.size(), (chunk + 1) * POPULATE_CHUNK));
+                List<String> args = new ArrayList<>(5 + part.size() * 4);
+                args.add(String.valueOf(expectedGeneration));
+                args.add(String.valueOf(ttlSeconds()));
+                args.add(chunk == 0 ? "1" : "0");
+                args.add(chunk == chunks - 1 ? "1" : "0");
+                args.add(marker);
+                for (ChatSessionResponse session : part) {
+                    args.add(session.id().toString());
+                    args.add(String.valueOf(score(session)));
+                    args.add(session.favorite() ? "1" : "0");
+                    args.add(objectMapper.writeValueAsString(session));
+                }
+                Long applied = redisTemplate.execute(POPULATE_SCRIPT, keys(userId), args.toArray());
+                if (applied == null || applied == 0) {
+                    return;
+                }
+            }
+        } catch (RuntimeException | JsonProcessingException exception) {
+            log.warn("Session index populate failed for userId={}", userId, exception);
+        }
+    }
+
+    private Boolean updatedAtDirection(Sort sort) {
+        List<Sort.Order> orders = sort.toList();
+        if (orders.size() != 1 || !"updatedAt".equals(orders.get(0).getProperty())) {
+            return null;
+        }
+        return orders.get(0).isAscending();
+    }
+
+    private long score(ChatSessionResponse session) {
+        return session.updatedAt() == null ? 0 : session.updatedAt().toEpochMilli();
+    }
+
+    private long ttlSeconds() {
+        return Math.max(1, appProperties.getSessionIndex().getTtlSeconds());
+    }
+
+    private String generationKey(String userId) {
+        return "chat:sessions:{" + userId + "}:gen";
+    }
+
+    // Hash tags keep all keys of a user in one cluster slot so the scripts stay valid on Redis Cluster.
+    private List<String> keys(String userId) {
+        String prefix = "chat:sessions:{" + userId + "}:";
+        return List.of(generationKey(userId), prefix + "ready", prefix + "all", prefix + "favorites",
+                prefix + "others", prefix + "meta");
+    }
+
+    public record IndexRead(Status status, List<ChatSessionResponse> items, long total) {
+
+        public static final IndexRead MISS = new IndexRead(Status.MISS, List.of(), 0);
+        public static final IndexRead BYPASS = new IndexRead(Status.BYPASS, List.of(), 0);
+
+        public enum Status {
+            HIT,
+            MISS,
+            BYPASS
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.chatstorage.cache;
+
+import com.example.chatstorage.config.AppProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// sessionId -> owner, so the ownership check in front of message reads and appends skips the session lookup.
+// A session only changes owner when a bulk delete hands it to the purge owner; appends re-check the owner on
+// write, so an entry left on another node cannot let a write through. Entries live in primitive
+// arrays (two longs for the id, an int for the interned owner and a reference bit: 21 bytes per slot, at most
+// three quarters full) instead of boxed UUID/String map entries, so a million sessions take about 28 MB.
+// Full segments evict with the CLOCK policy: an entry hit since the hand last passed gets a second chance.
+@Component
+public class SessionOwnershipCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final AppProperties appProperties;
+    private final Segment[] segments = new Segment[SEGMENTS];
+    // Owner ids are never reused, so an entry left behind by a reset cannot come to match another user.
+    private final Map<String, Integer> ownerIds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextOwnerId = new AtomicInteger();
+    private final Counter hits;
+    private final Counter misses;
+
+    public SessionOwnershipCache(AppProperties appProperties, MeterRegistry meterRegistry) {
+        this.appProperties = appProperties;
+        int perSegment = Math.max(1, (appProperties.getSessionOwnership().getMaxEntries() + SEGMENTS - 1) / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(isEnabled() ? perSegment : 1);
+        }
+        Gauge.builder("chatstorage.session.ownership.entries", this, SessionOwnershipCache::size).register(meterRegistry);
+        this.hits = Counter.builder("chatstorage.session.ownership.hits").register(meterRegistry);
+        this.misses = Counter.builder("chatstorage.session.ownership.misses").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return appProperties.getSessionOwnership().isEnabled();
+    }
+
+    // False means "not known here", never "owned by someone else": the caller then asks the database.
+    public boolean isOwner(UUID sessionId, String userId) {
+        if (!isEnabled()) {
+            return false;
+        }
+        Integer ownerId = ownerIds.get(userId);
+        long hash = hash(sessionId);
+        boolean owner = ownerId != null
+                && segment(hash).get(sessionId.getMostSignificantBits(), sessionId.getLeastSignificantBits(), hash) == ownerId;
+        (owner ? hits : misses).increment();
+        return owner;
+    }
+
+    public void put(UUID sessionId, String userId) {
+        if (!isEnabled()) {
+            return;
+        }
+        int ownerId = ownerId(userId);
+        if (ownerId == 0) {
+            return;
+        }
+        long hash = hash(sessionId);
+        segment(hash).put(sessionId.getMostSignificantBits(), sessionId.getLeastSignificantBits(), hash, ownerId);
+    }
+
+    public void remove(UUID sessionId) {
+        if (!isEnabled()) {
+            return;
+        }
+        long hash = hash(sessionId);
+        segment(hash).remove(sessionId.getMostSignificantBits(), sessionId.getLeastSignificantBits(), hash);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    // Interning keeps one String per user rather than per session. The table is bounded like the entries: when it
+    // is full everything is dropped and refilled from lookups.
+    private int ownerId(String userId) {
+        Integer existing = ownerIds.get(userId);
+        if (existing != null) {
+            return existing;
+        }
+        if (ownerIds.size() >= appProperties.getSessionOwnership().getMaxEntries()) {
+            ownerIds.clear();
+            for (Segment segment : segments) {
+                segment.clear();
+            }
+        }
+        return ownerIds.computeIfAbsent(userId, ignored -> {
+            int next = nextOwnerId.incrementAndGet();
+            // After two billion distinct owners the counter would wrap; stop caching rather than reuse ids.
+            return next > 0 ? next : 0;
+        });
+    }
+
+    private Segment segment(long hash) {
+        return segments[(int) (hash >>> 60)];
+    }
+
+    // Murmur3 finalizer over both halves; the top bits pick the segment, the low bits the slot.
+    static long hash(UUID id) {
+        return hash(id.getMostSignificantBits(), id.getLeastSignificantBits());
+    }
+
+    static long hash(long high, long low) {
+        long h = high * 0x9E3779B97F4A7C15L + low;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // Linear probing over parallel arrays; owner 0 marks an empty slot. Deletion shifts the rest of the probe run
+    // back instead of leaving tombstones, so lookups never slow down as entries churn.
+    static final class Segment {
+
+        // A lock rather than synchronized, so virtual request threads are never pinned.
+        private final ReentrantLock lock = new ReentrantLock();
+        private final long[] highs;
+        private final long[] lows;
+        private final int[] owners;
+        private final boolean[] referenced;
+        private final int slots;
+        private final int maxEntries;
+        private int size;
+        private int hand;
+
+        Segment(int maxEntries) {
+            this.maxEntries = maxEntries;
+            this.slots = (int) Math.min(Integer.MAX_VALUE - 8, (long) maxEntries * 4 / 3 + 1);
+            this.highs = new long[slots];
+            this.lows = new long[slots];
+            this.owners = new int[slots];
+            this.referenced = new boolean[slots];
+        }
+
+        int get(long high, long low, long hash) {
+            lock.lock();
+            try {
+                int slot = find(high, low, hash);
+                if (slot < 0) {
+                    return 0;
+                }
+                referenced[slot] = true;
+                return owners[slot];
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void put(long high, long low, long hash, int owner) {
+            lock.lock();
+            try {
+                int slot = find(high, low, hash);
+                if (slot < 0) {
+                    if (size >= maxEntries) {
+                        evictOne();
+                    }
+                    slot = home(hash);
+                    while (owners[slot] != 0) {
+                        slot = next(slot);
+                    }
+                    highs[slot] = high;
+                    lows[slot] = low;
+                    size++;
+                }
+                owners[slot] = owner;
+                referenced[slot] = true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(long high, long low, long hash) {
+            lock.lock();
+            try {
+                int slot = find(high, low, hash);
+                if (slot >= 0) {
+                    deleteAt(slot);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                Arrays.fill(owners, 0);
+                Arrays.fill(referenced, false);
+                size = 0;
+                hand = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return size;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int find(long high, long low, long hash) {
+            int slot = home(hash);
+            while (owners[slot] != 0) {
+                if (highs[slot] == high && lows[slot] == low) {
+                    return slot;
+                }
+                slot = next(slot);
+            }
+            return -1;
+        }
+
+        private void evictOne() {
+            while (true) {
+                int slot = hand;
+                hand = next(hand);
+                if (owners[slot] == 0) {
+                    continue;
+                }
+                if (referenced[slot]) {
+                    referenced[slot] = false;
+                    continue;
+                }
+                deleteAt(slot);
+                // The shift may have moved an unvisited entry into this slot; look at it first next time.
+                hand = slot;
+                return;
+            }
+        }
+
+        private void deleteAt(int slot) {
+            int gap = slot;
+            int candidate = next(gap);
+            while (owners[candidate] != 0) {
+                int home = home(hash(highs[candidate], lows[candidate]));
+                // The candidate may fill the gap only if the gap lies on its probe path from home.
+                if (distance(home, candidate) >= distance(gap, candidate)) {
+                    highs[gap] = highs[candidate];
+                    lows[gap] = lows[candidate];
+                    owners[gap] = owners[candidate];
+                    referenced[gap] = referenced[candidate];
+                    gap = candidate;
+                }
+                candidate = next(candidate);
+            }
+            owners[gap] = 0;
+            referenced[gap] = false;
+            size--;
+        }
+
+        private int home(long hash) {
+            // Multiply-shift maps the low 32 bits onto [0, slots) without needing a power-of-two table.
+            return (int) (((hash & 0xFFFFFFFFL) * slots) >>> 32);
+        }
+
+        private int next(int slot) {
+            return slot + 1 == slots ? 0 : slot + 1;
+        }
+
+        private int distance(int from, int to) {
+            return to >= from ? to - from : to + slots - from;
+        }
+    }
+}
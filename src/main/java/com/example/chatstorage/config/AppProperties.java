@@ -11,6 +11,27 @@ public class AppProperties {
     private final Security security = new Security();
     private final RateLimit rateLimit = new RateLimit();
     private final Cors cors = new Cors();
+    private final Sharding sharding = new Sharding();
+    private final Bulkhead bulkhead = new Bulkhead();
+    private final MessageCache messageCache = new MessageCache();
+    private final SessionIndex sessionIndex = new SessionIndex();
+    private final SessionSummary sessionSummary = new SessionSummary();
+    private final VectorIndex vectorIndex = new VectorIndex();
+    private final Export export = new Export();
+    private final BulkImport bulkImport = new BulkImport();
+    private final MessageStream messageStream = new MessageStream();
+    private final SessionEvents sessionEvents = new SessionEvents();
+    private final HttpCache httpCache = new HttpCache();
+    private final Compression compression = new Compression();
+    private final VirtualThreads virtualThreads = new VirtualThreads();
+    private final Grpc grpc = new Grpc();
+    private final Ingest ingest = new Ingest();
+    private final SessionTouch sessionTouch = new SessionTouch();
+    private final Idempotency idempotency = new Idempotency();
+    private final SessionOwnership sessionOwnership = new SessionOwnership();
+    private final Batch batch = new Batch();
+    private final BulkSessions bulkSessions = new BulkSessions();
+    private final Sync sync = new Sync();
 
     public Security getSecurity() {
         return security;
@@ -24,6 +45,90 @@ public class AppProperties {
         return cors;
     }
 
+    public Sharding getSharding() {
+        return sharding;
+    }
+
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    public MessageCache getMessageCache() {
+        return messageCache;
+    }
+
+    public SessionIndex getSessionIndex() {
+        return sessionIndex;
+    }
+
+    public SessionSummary getSessionSummary() {
+        return sessionSummary;
+    }
+
+    public VectorIndex getVectorIndex() {
+        return vectorIndex;
+    }
+
+    public Export getExport() {
+        return export;
+    }
+
+    public BulkImport getBulkImport() {
+        return bulkImport;
+    }
+
+    public MessageStream getMessageStream() {
+        return messageStream;
+    }
+
+    public SessionEvents getSessionEvents() {
+        return sessionEvents;
+    }
+
+    public HttpCache getHttpCache() {
+        return httpCache;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public VirtualThreads getVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public Grpc getGrpc() {
+        return grpc;
+    }
+
+    public Ingest getIngest() {
+        return ingest;
+    }
+
+    public SessionTouch getSessionTouch() {
+        return sessionTouch;
+    }
+
+    public Idempotency getIdempotency() {
+        return idempotency;
+    }
+
+    public SessionOwnership getSessionOwnership() {
+        return sessionOwnership;
+    }
+
+    public Batch getBatch() {
+        return batch;
+    }
+
+    public BulkSessions getBulkSessions() {
+        return bulkSessions;
+    }
+
+    public Sync getSync() {
+        return sync;
+    }
+
     public static class Security {
         private String adminApiKey;
         private String apiKeyPepper;
@@ -79,7 +184,7 @@ public class AppProperties {
         private List<String> allowedOrigins = new ArrayList<>(List.of("*"));
         private List<String> allowedMethods = new ArrayList<>(List.of("GET", "POST", "PATCH", "DELETE", "OPTIONS"));
         private List<String> allowedHeaders = new ArrayList<>(List.of("*"));
-        private List<String> exposedHeaders = new ArrayList<>(List.of("X-Request-Id", "Retry-After"));
+        private List<String> exposedHeaders = new ArrayList<>(List.of("X-Request-Id", "Retry-After", "ETag", "Preference-Applied", "Idempotent-Replayed"));
         private boolean allowCredentials = false;
         private long maxAgeSeconds = 3600;
 
@@ -131,4 +236,1024 @@ public class AppProperties {
             this.maxAgeSeconds = maxAgeSeconds;
         }
     }
+
+    public static class Sharding {
+        private boolean enabled = false;
+        private int virtualNodes = 128;
+        private long directoryRefreshMillis = 30000;
+        private int migrationBatchSize = 500;
+        private long nodeTimeoutMillis = 90000;
+        private long migrationAckTimeoutMillis = 300000;
+        private List<Shard> shards = new ArrayList<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getVirtualNodes() {
+            return virtualNodes;
+        }
+
+        public void setVirtualNodes(int virtualNodes) {
+            this.virtualNodes = virtualNodes;
+        }
+
+        public long getDirectoryRefreshMillis() {
+            return directoryRefreshMillis;
+        }
+
+        public void setDirectoryRefreshMillis(long directoryRefreshMillis) {
+            this.directoryRefreshMillis = directoryRefreshMillis;
+        }
+
+        public int getMigrationBatchSize() {
+            return migrationBatchSize;
+        }
+
+        public void setMigrationBatchSize(int migrationBatchSize) {
+            this.migrationBatchSize = migrationBatchSize;
+        }
+
+        public long getNodeTimeoutMillis() {
+            return nodeTimeoutMillis;
+        }
+
+        public void setNodeTimeoutMillis(long nodeTimeoutMillis) {
+            this.nodeTimeoutMillis = nodeTimeoutMillis;
+        }
+
+        public long getMigrationAckTimeoutMillis() {
+            return migrationAckTimeoutMillis;
+        }
+
+        public void setMigrationAckTimeoutMillis(long migrationAckTimeoutMillis) {
+            this.migrationAckTimeoutMillis = migrationAckTimeoutMillis;
+        }
+
+        public List<Shard> getShards() {
+            return shards;
+        }
+
+        public void setShards(List<Shard> shards) {
+            this.shards = shards;
+        }
+    }
+
+    public static class Shard {
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+        private int maxPoolSize = 10;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public int getMaxPoolSize() {
+            return maxPoolSize;
+        }
+
+        public void setMaxPoolSize(int maxPoolSize) {
+            this.maxPoolSize = maxPoolSize;
+        }
+    }
+
+    public static class Bulkhead {
+        private boolean enabled = false;
+        private long connectionWaitMillis = 500;
+        private final Limits auth = new Limits(200, 3);
+        private final Limits admin = new Limits(10, 1);
+        private final Limits writes = new Limits(100, 3);
+        private final Limits heavyReads = new Limits(20, 2);
+        private final Limits reads = new Limits(100, 2);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getConnectionWaitMillis() {
+            return connectionWaitMillis;
+        }
+
+        public void setConnectionWaitMillis(long connectionWaitMillis) {
+            this.connectionWaitMillis = connectionWaitMillis;
+        }
+
+        public Limits getAuth() {
+            return auth;
+        }
+
+        public Limits getAdmin() {
+            return admin;
+        }
+
+        public Limits getWrites() {
+            return writes;
+        }
+
+        public Limits getHeavyReads() {
+            return heavyReads;
+        }
+
+        public Limits getReads() {
+            return reads;
+        }
+    }
+
+    public static class Limits {
+        private int maxConcurrent;
+        private int maxConnections;
+
+        public Limits() {
+        }
+
+        public Limits(int maxConcurrent, int maxConnections) {
+            this.maxConcurrent = maxConcurrent;
+            this.maxConnections = maxConnections;
+        }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        public void setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+    }
+
+    public static class MessageCache {
+        private boolean enabled = false;
+        private int tailSize = 100;
+        private long ttlSeconds = 3600;
+        private int maxMessageBytes = 32768;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getTailSize() {
+            return tailSize;
+        }
+
+        public void setTailSize(int tailSize) {
+            this.tailSize = tailSize;
+        }
+
+        public long getTtlSeconds() {
+            return ttlSeconds;
+        }
+
+        public void setTtlSeconds(long ttlSeconds) {
+            this.ttlSeconds = ttlSeconds;
+        }
+
+        public int getMaxMessageBytes() {
+            return maxMessageBytes;
+        }
+
+        public void setMaxMessageBytes(int maxMessageBytes) {
+            this.maxMessageBytes = maxMessageBytes;
+        }
+    }
+
+    public static class SessionIndex {
+        private boolean enabled = false;
+        private long ttlSeconds = 86400;
+        private int maxSessions = 10000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getTtlSeconds() {
+            return ttlSeconds;
+        }
+
+        public void setTtlSeconds(long ttlSeconds) {
+            this.ttlSeconds = ttlSeconds;
+        }
+
+        public int getMaxSessions() {
+            return maxSessions;
+        }
+
+        public void setMaxSessions(int maxSessions) {
+            this.maxSessions = maxSessions;
+        }
+    }
+
+    public static class SessionSummary {
+        private boolean repairEnabled = false;
+        private long repairIntervalMillis = 3600000;
+        private int repairBatchSize = 500;
+
+        public boolean isRepairEnabled() {
+            return repairEnabled;
+        }
+
+        public void setRepairEnabled(boolean repairEnabled) {
+            this.repairEnabled = repairEnabled;
+        }
+
+        public long getRepairIntervalMillis() {
+            return repairIntervalMillis;
+        }
+
+        public void setRepairIntervalMillis(long repairIntervalMillis) {
+            this.repairIntervalMillis = repairIntervalMillis;
+        }
+
+        public int getRepairBatchSize() {
+            return repairBatchSize;
+        }
+
+        public void setRepairBatchSize(int repairBatchSize) {
+            this.repairBatchSize = repairBatchSize;
+        }
+    }
+
+    public static class VectorIndex {
+        private boolean enabled = false;
+        private String dataDir = "./data/vector-index";
+        private int m = 16;
+        private int efConstruction = 100;
+        private int efSearch = 64;
+        private int maxDimensions = 4096;
+        private int maxOpenIndexes = 64;
+        private long flushIntervalMillis = 30000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDataDir() {
+            return dataDir;
+        }
+
+        public void setDataDir(String dataDir) {
+            this.dataDir = dataDir;
+        }
+
+        public int getM() {
+            return m;
+        }
+
+        public void setM(int m) {
+            this.m = m;
+        }
+
+        public int getEfConstruction() {
+            return efConstruction;
+        }
+
+        public void setEfConstruction(int efConstruction) {
+            this.efConstruction = efConstruction;
+        }
+
+        public int getEfSearch() {
+            return efSearch;
+        }
+
+        public void setEfSearch(int efSearch) {
+            this.efSearch = efSearch;
+        }
+
+        public int getMaxDimensions() {
+            return maxDimensions;
+        }
+
+        public void setMaxDimensions(int maxDimensions) {
+            this.maxDimensions = maxDimensions;
+        }
+
+        public int getMaxOpenIndexes() {
+            return maxOpenIndexes;
+        }
+
+        public void setMaxOpenIndexes(int maxOpenIndexes) {
+            this.maxOpenIndexes = maxOpenIndexes;
+        }
+
+        public long getFlushIntervalMillis() {
+            return flushIntervalMillis;
+        }
+
+        public void setFlushIntervalMillis(long flushIntervalMillis) {
+            this.flushIntervalMillis = flushIntervalMillis;
+        }
+    }
+
+    public static class Export {
+        private int fetchSize = 500;
+        private int flushEveryRows = 1000;
+
+        public int getFetchSize() {
+            return fetchSize;
+        }
+
+        public void setFetchSize(int fetchSize) {
+            this.fetchSize = fetchSize;
+        }
+
+        public int getFlushEveryRows() {
+            return flushEveryRows;
+        }
+
+        public void setFlushEveryRows(int flushEveryRows) {
+            this.flushEveryRows = flushEveryRows;
+        }
+    }
+
+    public static class BulkImport {
+        private int batchSize = 20000;
+        private int maxReportedRejections = 100;
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getMaxReportedRejections() {
+            return maxReportedRejections;
+        }
+
+        public void setMaxReportedRejections(int maxReportedRejections) {
+            this.maxReportedRejections = maxReportedRejections;
+        }
+    }
+
+    public static class MessageStream {
+        private boolean enabled = false;
+        private int maxBytes = 262144;
+        private int maxOpenPerSession = 4;
+        private long idleTimeoutSeconds = 120;
+        private long ttlSeconds = 3600;
+        private long completedTtlSeconds = 300;
+        private int coalesceChars = 512;
+        private long coalesceMillis = 100;
+        private int sweepBatchSize = 100;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(int maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        public int getMaxOpenPerSession() {
+            return maxOpenPerSession;
+        }
+
+        public void setMaxOpenPerSession(int maxOpenPerSession) {
+            this.maxOpenPerSession = maxOpenPerSession;
+        }
+
+        public long getIdleTimeoutSeconds() {
+            return idleTimeoutSeconds;
+        }
+
+        public void setIdleTimeoutSeconds(long idleTimeoutSeconds) {
+            this.idleTimeoutSeconds = idleTimeoutSeconds;
+        }
+
+        public long getTtlSeconds() {
+            return ttlSeconds;
+        }
+
+        public void setTtlSeconds(long ttlSeconds) {
+            this.ttlSeconds = ttlSeconds;
+        }
+
+        public long getCompletedTtlSeconds() {
+            return completedTtlSeconds;
+        }
+
+        public void setCompletedTtlSeconds(long completedTtlSeconds) {
+            this.completedTtlSeconds = completedTtlSeconds;
+        }
+
+        public int getCoalesceChars() {
+            return coalesceChars;
+        }
+
+        public void setCoalesceChars(int coalesceChars) {
+            this.coalesceChars = coalesceChars;
+        }
+
+        public long getCoalesceMillis() {
+            return coalesceMillis;
+        }
+
+        public void setCoalesceMillis(long coalesceMillis) {
+            this.coalesceMillis = coalesceMillis;
+        }
+
+        public int getSweepBatchSize() {
+            return sweepBatchSize;
+        }
+
+        public void setSweepBatchSize(int sweepBatchSize) {
+            this.sweepBatchSize = sweepBatchSize;
+        }
+    }
+
+    public static class SessionEvents {
+        private boolean enabled = false;
+        private String transport = "redis";
+        private int maxSubscribers = 20000;
+        private int queueCapacity = 256;
+        private int replayLimit = 500;
+        private long timeoutMillis = 1800000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getTransport() {
+            return transport;
+        }
+
+        public void setTransport(String transport) {
+            this.transport = transport;
+        }
+
+        public int getMaxSubscribers() {
+            return maxSubscribers;
+        }
+
+        public void setMaxSubscribers(int maxSubscribers) {
+            this.maxSubscribers = maxSubscribers;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getReplayLimit() {
+            return replayLimit;
+        }
+
+        public void setReplayLimit(int replayLimit) {
+            this.replayLimit = replayLimit;
+        }
+
+        public long getTimeoutMillis() {
+            return timeoutMillis;
+        }
+
+        public void setTimeoutMillis(long timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+        }
+    }
+
+    public static class HttpCache {
+        private long historicalPageMaxAgeSeconds = 3600;
+
+        public long getHistoricalPageMaxAgeSeconds() {
+            return historicalPageMaxAgeSeconds;
+        }
+
+        public void setHistoricalPageMaxAgeSeconds(long historicalPageMaxAgeSeconds) {
+            this.historicalPageMaxAgeSeconds = historicalPageMaxAgeSeconds;
+        }
+    }
+
+    public static class Compression {
+        private boolean enabled = true;
+        private int minResponseBytes = 2048;
+        private boolean zstdEnabled = true;
+        private int zstdLevel = 3;
+        private List<String> mimeTypes = new ArrayList<>(List.of("application/json", "application/*+json", "application/cbor", "application/x-jackson-smile", "application/x-protobuf"));
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMinResponseBytes() {
+            return minResponseBytes;
+        }
+
+        public void setMinResponseBytes(int minResponseBytes) {
+            this.minResponseBytes = minResponseBytes;
+        }
+
+        public boolean isZstdEnabled() {
+            return zstdEnabled;
+        }
+
+        public void setZstdEnabled(boolean zstdEnabled) {
+            this.zstdEnabled = zstdEnabled;
+        }
+
+        public int getZstdLevel() {
+            return zstdLevel;
+        }
+
+        public void setZstdLevel(int zstdLevel) {
+            this.zstdLevel = zstdLevel;
+        }
+
+        public List<String> getMimeTypes() {
+            return mimeTypes;
+        }
+
+        public void setMimeTypes(List<String> mimeTypes) {
+            this.mimeTypes = mimeTypes;
+        }
+    }
+
+    public static class VirtualThreads {
+        private int connectionPermitsPerShard = 10;
+        private long connectionWaitMillis = 1000;
+        private boolean pinningMonitorEnabled = true;
+        private long pinningThresholdMillis = 20;
+
+        public int getConnectionPermitsPerShard() {
+            return connectionPermitsPerShard;
+        }
+
+        public void setConnectionPermitsPerShard(int connectionPermitsPerShard) {
+            this.connectionPermitsPerShard = connectionPermitsPerShard;
+        }
+
+        public long getConnectionWaitMillis() {
+            return connectionWaitMillis;
+        }
+
+        public void setConnectionWaitMillis(long connectionWaitMillis) {
+            this.connectionWaitMillis = connectionWaitMillis;
+        }
+
+        public boolean isPinningMonitorEnabled() {
+            return pinningMonitorEnabled;
+        }
+
+        public void setPinningMonitorEnabled(boolean pinningMonitorEnabled) {
+            this.pinningMonitorEnabled = pinningMonitorEnabled;
+        }
+
+        public long getPinningThresholdMillis() {
+            return pinningThresholdMillis;
+        }
+
+        public void setPinningThresholdMillis(long pinningThresholdMillis) {
+            this.pinningThresholdMillis = pinningThresholdMillis;
+        }
+    }
+
+    public static class Grpc {
+        private boolean enabled = false;
+        private int port = 9090;
+        private int executorThreads = 64;
+        private int maxInboundMessageBytes = 4194304;
+        private int historyPageSize = 200;
+        private int maxHistoryPageSize = 1000;
+        private long shutdownGraceMillis = 10000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        public int getExecutorThreads() {
+            return executorThreads;
+        }
+
+        public void setExecutorThreads(int executorThreads) {
+            this.executorThreads = executorThreads;
+        }
+
+        public int getMaxInboundMessageBytes() {
+            return maxInboundMessageBytes;
+        }
+
+        public void setMaxInboundMessageBytes(int maxInboundMessageBytes) {
+            this.maxInboundMessageBytes = maxInboundMessageBytes;
+        }
+
+        public int getHistoryPageSize() {
+            return historyPageSize;
+        }
+
+        public void setHistoryPageSize(int historyPageSize) {
+            this.historyPageSize = historyPageSize;
+        }
+
+        public int getMaxHistoryPageSize() {
+            return maxHistoryPageSize;
+        }
+
+        public void setMaxHistoryPageSize(int maxHistoryPageSize) {
+            this.maxHistoryPageSize = maxHistoryPageSize;
+        }
+
+        public long getShutdownGraceMillis() {
+            return shutdownGraceMillis;
+        }
+
+        public void setShutdownGraceMillis(long shutdownGraceMillis) {
+            this.shutdownGraceMillis = shutdownGraceMillis;
+        }
+    }
+
+    public static class Ingest {
+        private boolean enabled = false;
+        private int capacity = 10000;
+        private int maxBatchSize = 500;
+        private long pollMillis = 5;
+        private long offerTimeoutMillis = 50;
+        private long readWaitMillis = 2000;
+        private long drainTimeoutMillis = 15000;
+        private long retryBackoffMillis = 200;
+        private int maxAttempts = 10;
+        private boolean journalEnabled = false;
+        private String journalKey = "chat:ingest:journal";
+        private String deadLetterKey = "chat:ingest:dead-letter";
+        private long journalRecoveryAgeMillis = 60000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        public long getPollMillis() {
+            return pollMillis;
+        }
+
+        public void setPollMillis(long pollMillis) {
+            this.pollMillis = pollMillis;
+        }
+
+        public long getOfferTimeoutMillis() {
+            return offerTimeoutMillis;
+        }
+
+        public void setOfferTimeoutMillis(long offerTimeoutMillis) {
+            this.offerTimeoutMillis = offerTimeoutMillis;
+        }
+
+        public long getReadWaitMillis() {
+            return readWaitMillis;
+        }
+
+        public void setReadWaitMillis(long readWaitMillis) {
+            this.readWaitMillis = readWaitMillis;
+        }
+
+        public long getDrainTimeoutMillis() {
+            return drainTimeoutMillis;
+        }
+
+        public void setDrainTimeoutMillis(long drainTimeoutMillis) {
+            this.drainTimeoutMillis = drainTimeoutMillis;
+        }
+
+        public long getRetryBackoffMillis() {
+            return retryBackoffMillis;
+        }
+
+        public void setRetryBackoffMillis(long retryBackoffMillis) {
+            this.retryBackoffMillis = retryBackoffMillis;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public boolean isJournalEnabled() {
+            return journalEnabled;
+        }
+
+        public void setJournalEnabled(boolean journalEnabled) {
+            this.journalEnabled = journalEnabled;
+        }
+
+        public String getJournalKey() {
+            return journalKey;
+        }
+
+        public void setJournalKey(String journalKey) {
+            this.journalKey = journalKey;
+        }
+
+        public String getDeadLetterKey() {
+            return deadLetterKey;
+        }
+
+        public void setDeadLetterKey(String deadLetterKey) {
+            this.deadLetterKey = deadLetterKey;
+        }
+
+        public long getJournalRecoveryAgeMillis() {
+            return journalRecoveryAgeMillis;
+        }
+
+        public void setJournalRecoveryAgeMillis(long journalRecoveryAgeMillis) {
+            this.journalRecoveryAgeMillis = journalRecoveryAgeMillis;
+        }
+    }
+
+    public static class SessionTouch {
+        private boolean enabled = false;
+        private long flushIntervalMillis = 1000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getFlushIntervalMillis() {
+            return flushIntervalMillis;
+        }
+
+        public void setFlushIntervalMillis(long flushIntervalMillis) {
+            this.flushIntervalMillis = flushIntervalMillis;
+        }
+    }
+
+    public static class Idempotency {
+        private boolean enabled = false;
+        private String store = "redis";
+        private String keyPrefix = "chat:idempotency:";
+        private long ttlSeconds = 86400;
+        private long inFlightTtlSeconds = 60;
+        private int maxKeyLength = 255;
+        private int maxResponseBytes = 1048576;
+        private int maxRequestBytes = 1048576;
+        private int memoryMaxEntries = 100000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getStore() {
+            return store;
+        }
+
+        public void setStore(String store) {
+            this.store = store;
+        }
+
+        public String getKeyPrefix() {
+            return keyPrefix;
+        }
+
+        public void setKeyPrefix(String keyPrefix) {
+            this.keyPrefix = keyPrefix;
+        }
+
+        public long getTtlSeconds() {
+            return ttlSeconds;
+        }
+
+        public void setTtlSeconds(long ttlSeconds) {
+            this.ttlSeconds = ttlSeconds;
+        }
+
+        public long getInFlightTtlSeconds() {
+            return inFlightTtlSeconds;
+        }
+
+        public void setInFlightTtlSeconds(long inFlightTtlSeconds) {
+            this.inFlightTtlSeconds = inFlightTtlSeconds;
+        }
+
+        public int getMaxKeyLength() {
+            return maxKeyLength;
+        }
+
+        public void setMaxKeyLength(int maxKeyLength) {
+            this.maxKeyLength = maxKeyLength;
+        }
+
+        public int getMaxResponseBytes() {
+            return maxResponseBytes;
+        }
+
+        public void setMaxResponseBytes(int maxResponseBytes) {
+            this.maxResponseBytes = maxResponseBytes;
+        }
+
+        public int getMaxRequestBytes() {
+            return maxRequestBytes;
+        }
+
+        public void setMaxRequestBytes(int maxRequestBytes) {
+            this.maxRequestBytes = maxRequestBytes;
+        }
+
+        public int getMemoryMaxEntries() {
+            return memoryMaxEntries;
+        }
+
+        public void setMemoryMaxEntries(int memoryMaxEntries) {
+            this.memoryMaxEntries = memoryMaxEntries;
+        }
+    }
+
+    public static class SessionOwnership {
+        private boolean enabled = false;
+        private int maxEntries = 1000000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+    }
+
+    public static class Batch {
+        private int maxOperations = 20;
+
+        public int getMaxOperations() {
+            return maxOperations;
+        }
+
+        public void setMaxOperations(int maxOperations) {
+            this.maxOperations = maxOperations;
+        }
+    }
+
+    public static class BulkSessions {
+        private int maxSessions = 5000;
+        private long inlineDeleteMaxMessages = 10000;
+        private int purgeBatchSize = 50;
+
+        public int getMaxSessions() {
+            return maxSessions;
+        }
+
+        public void setMaxSessions(int maxSessions) {
+            this.maxSessions = maxSessions;
+        }
+
+        public long getInlineDeleteMaxMessages() {
+            return inlineDeleteMaxMessages;
+        }
+
+        public void setInlineDeleteMaxMessages(long inlineDeleteMaxMessages) {
+            this.inlineDeleteMaxMessages = inlineDeleteMaxMessages;
+        }
+
+        public int getPurgeBatchSize() {
+            return purgeBatchSize;
+        }
+
+        public void setPurgeBatchSize(int purgeBatchSize) {
+            this.purgeBatchSize = purgeBatchSize;
+        }
+    }
+
+    public static class Sync {
+        private int tokenBatchSize = 5000;
+        private int maxChanges = 1000;
+
+        public int getTokenBatchSize() {
+            return tokenBatchSize;
+        }
+
+        public void setTokenBatchSize(int tokenBatchSize) {
+            this.tokenBatchSize = tokenBatchSize;
+        }
+
+        public int getMaxChanges() {
+            return maxChanges;
+        }
+
+        public void setMaxChanges(int maxChanges) {
+            this.maxChanges = maxChanges;
+        }
+    }
 }
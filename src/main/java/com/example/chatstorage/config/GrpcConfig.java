@@ -0,0 +1,58 @@
+package com.example.chatstorage.config;
+
+import com.example.chatstorage.bulkhead.BulkheadRegistry;
+import com.example.chatstorage.grpc.ChatStorageGrpcService;
+import com.example.chatstorage.grpc.GrpcAuthInterceptor;
+import com.example.chatstorage.grpc.GrpcRateLimitInterceptor;
+import com.example.chatstorage.grpc.GrpcServerLifecycle;
+import com.example.chatstorage.security.RedisRateLimiterService;
+import com.example.chatstorage.service.ApiKeyService;
+import com.example.chatstorage.service.ChatMessageService;
+import com.example.chatstorage.service.ChatSessionService;
+import com.example.chatstorage.sharding.ShardRouter;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+
+@Configuration
+@ConditionalOnProperty(prefix = "app.grpc", name = "enabled", havingValue = "true")
+public class GrpcConfig {
+
+    @Bean
+    public ChatStorageGrpcService chatStorageGrpcService(ChatSessionService chatSessionService,
+                                                         ChatMessageService chatMessageService,
+                                                         BulkheadRegistry bulkheadRegistry,
+                                                         ObjectProvider<ShardRouter> shardRouter,
+                                                         Validator validator,
+                                                         AppProperties appProperties) {
+        return new ChatStorageGrpcService(chatSessionService, chatMessageService, bulkheadRegistry, shardRouter,
+                validator, appProperties);
+    }
+
+    @Bean
+    public GrpcAuthInterceptor grpcAuthInterceptor(ApiKeyService apiKeyService, BulkheadRegistry bulkheadRegistry) {
+        return new GrpcAuthInterceptor(apiKeyService, bulkheadRegistry);
+    }
+
+    @Bean
+    public GrpcRateLimitInterceptor grpcRateLimitInterceptor(RedisRateLimiterService redisRateLimiterService) {
+        return new GrpcRateLimitInterceptor(redisRateLimiterService);
+    }
+
+    // Authentication runs first and rate limiting per message after it, matching the REST filter order.
+    @Bean
+    public GrpcServerLifecycle grpcServerLifecycle(AppProperties appProperties,
+                                                   ChatStorageGrpcService chatStorageGrpcService,
+                                                   GrpcAuthInterceptor grpcAuthInterceptor,
+                                                   GrpcRateLimitInterceptor grpcRateLimitInterceptor,
+                                                   Environment environment) {
+        boolean virtualThreads = environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+        return new GrpcServerLifecycle(appProperties.getGrpc(), chatStorageGrpcService,
+                List.of(grpcRateLimitInterceptor, grpcAuthInterceptor), virtualThreads);
+    }
+}
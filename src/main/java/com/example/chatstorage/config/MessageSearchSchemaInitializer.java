@@ -0,0 +1,56 @@
+package com.example.chatstorage.config;
+
+import com.example.chatstorage.repository.MessageSearchRepository;
+import com.example.chatstorage.sharding.ShardContext;
+import com.example.chatstorage.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+@Component
+public class MessageSearchSchemaInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageSearchSchemaInitializer.class);
+
+    private final MessageSearchRepository messageSearchRepository;
+    private final ObjectProvider<ShardRouter> shardRouter;
+
+    public MessageSearchSchemaInitializer(MessageSearchRepository messageSearchRepository,
+                                          ObjectProvider<ShardRouter> shardRouter) {
+        this.messageSearchRepository = messageSearchRepository;
+        this.shardRouter = shardRouter;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        ShardRouter router = shardRouter.getIfAvailable();
+        boolean ready = true;
+        if (router == null) {
+            ready = prepare();
+        } else {
+            for (String shard : router.shardNames()) {
+                ready &= ShardContext.callOn(shard, this::prepare);
+            }
+        }
+        // Until every shard has the tsvector column, search uses the portable LIKE scan.
+        messageSearchRepository.markFullTextReady(ready);
+    }
+
+    private boolean prepare() {
+        try {
+            if (!messageSearchRepository.isPostgres()) {
+                log.info("Full-text search unavailable on this database; using portable message search");
+                return false;
+            }
+            messageSearchRepository.ensureFullTextSchema();
+            return true;
+        } catch (RuntimeException exception) {
+            log.warn("Could not prepare full-text search schema on shard={}; using portable message search",
+                    ShardContext.current(), exception);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.chatstorage.config;
+
+import com.example.chatstorage.sharding.ShardDataSources;
+import com.example.chatstorage.sharding.ShardRouter;
+import com.example.chatstorage.sharding.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+@ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean(destroyMethod = "close")
+    public ShardDataSources shardDataSources(AppProperties appProperties) {
+        Map<String, DataSource> dataSources = new LinkedHashMap<>();
+        for (AppProperties.Shard shard : appProperties.getSharding().getShards()) {
+            if (shard.getName() == null || shard.getName().isBlank() || shard.getUrl() == null || shard.getUrl().isBlank()) {
+                throw new IllegalStateException("Every shard needs a name and a JDBC url");
+            }
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("shard-" + shard.getName());
+            dataSource.setJdbcUrl(shard.getUrl());
+            dataSource.setUsername(shard.getUsername());
+            dataSource.setPassword(shard.getPassword());
+            dataSource.setMaximumPoolSize(Math.max(1, shard.getMaxPoolSize()));
+            dataSources.put(shard.getName(), dataSource);
+        }
+        return new ShardDataSources(dataSources);
+    }
+
+    @Bean
+    public ShardRouter shardRouter(AppProperties appProperties) {
+        return new ShardRouter(
+                appProperties.getSharding().getShards().stream().map(AppProperties.Shard::getName).toList(),
+                appProperties.getSharding().getVirtualNodes()
+        );
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardDataSources shardDataSources, ShardRouter shardRouter) {
+        ShardRoutingDataSource routingDataSource = new ShardRoutingDataSource();
+        routingDataSource.setTargetDataSources(new HashMap<>(shardDataSources.asMap()));
+        // No shard in context (auth lookups, admin calls, startup schema work) resolves to the first shard.
+        routingDataSource.setDefaultTargetDataSource(shardDataSources.get(shardRouter.defaultShard()));
+        routingDataSource.afterPropertiesSet();
+        return routingDataSource;
+    }
+}
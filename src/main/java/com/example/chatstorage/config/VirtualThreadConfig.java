@@ -0,0 +1,48 @@
+package com.example.chatstorage.config;
+
+import com.example.chatstorage.bulkhead.ConnectionGateDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+// spring.threads.virtual.enabled switches Tomcat, @Scheduled and @Async to virtual threads; this adds the
+// connection gate that the platform-thread pool used to provide implicitly.
+@Configuration
+public class VirtualThreadConfig {
+
+    @Bean
+    public static BeanPostProcessor connectionGatePostProcessor(Environment environment) {
+        boolean enabled = environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+        int permits = environment.getProperty("app.virtual-threads.connection-permits-per-shard", Integer.class, 10);
+        long waitMillis = environment.getProperty("app.virtual-threads.connection-wait-millis", Long.class, 1000L);
+        // The first configured shard is the routing default (see ShardingConfig).
+        String defaultShard = environment.getProperty("app.sharding.enabled", Boolean.class, false)
+                ? environment.getProperty("app.sharding.shards[0].name") : null;
+        return new ConnectionGatePostProcessor(enabled, permits, waitMillis, defaultShard);
+    }
+
+    // Ordered, so it runs before the bulkhead wrapper: a request then waits for its class budget first
+    // and only takes a shared connection permit once it can use it.
+    private record ConnectionGatePostProcessor(boolean enabled, int permits, long waitMillis, String defaultShard)
+            implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (enabled && "dataSource".equals(beanName)
+                    && bean instanceof DataSource dataSource
+                    && !(bean instanceof ConnectionGateDataSource)) {
+                return new ConnectionGateDataSource(dataSource, permits, waitMillis, defaultShard);
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE - 1;
+        }
+    }
+}
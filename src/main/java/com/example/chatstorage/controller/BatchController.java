@@ -0,0 +1,99 @@
+package com.example.chatstorage.controller;
+
+import com.example.chatstorage.auth.AuthContext;
+import com.example.chatstorage.dto.ErrorResponse;
+import com.example.chatstorage.dto.batch.BatchOperationResult;
+import com.example.chatstorage.dto.batch.BatchRequest;
+import com.example.chatstorage.dto.batch.BatchResponse;
+import com.example.chatstorage.exception.GlobalExceptionHandler;
+import com.example.chatstorage.security.RateLimitingFilter;
+import com.example.chatstorage.security.RedisRateLimiterService;
+import com.example.chatstorage.service.BatchService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/batch")
+@Validated
+@SecurityRequirement(name = "ApiKeyAuth")
+@Tag(name = "Batch", description = "Run several session and message operations in one request")
+public class BatchController {
+
+    private final BatchService batchService;
+    private final RedisRateLimiterService redisRateLimiterService;
+    private final GlobalExceptionHandler globalExceptionHandler;
+
+    public BatchController(BatchService batchService,
+                           RedisRateLimiterService redisRateLimiterService,
+                           GlobalExceptionHandler globalExceptionHandler) {
+        this.batchService = batchService;
+        this.redisRateLimiterService = redisRateLimiterService;
+        this.globalExceptionHandler = globalExceptionHandler;
+    }
+
+    @PostMapping
+    @Operation(summary = "Run a batch of operations",
+            description = "Runs create/rename/favorite/delete session, add message and list messages operations in "
+                    + "order and returns each one's status and body. A path segment $N refers to the id returned by "
+                    + "operation N. With atomic, any failure rolls back the whole batch.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Batch ran; see each result's status"),
+            @ApiResponse(responseCode = "400", description = "No operations or more than the configured maximum"),
+            @ApiResponse(responseCode = "401", description = "Invalid user API key"),
+            @ApiResponse(responseCode = "429", description = "Not enough rate-limit tokens for every operation")
+    })
+    public BatchResponse execute(@Valid @RequestBody BatchRequest request, HttpServletRequest httpRequest) {
+        String userId = AuthContext.requireUserId(httpRequest);
+        batchService.validate(request);
+        // The rate-limit filter charged the envelope one token; each further operation costs one more.
+        int extraTokens = request.operations().size() - 1;
+        if (extraTokens > 0 && httpRequest.getAttribute(RateLimitingFilter.ATTR_CLIENT_KEY) instanceof String clientKey) {
+            redisRateLimiterService.acquirePermission(clientKey, extraTokens);
+        }
+
+        List<BatchService.Outcome> outcomes = batchService.execute(userId, request);
+        List<BatchOperationResult> results = new ArrayList<>(outcomes.size());
+        for (int i = 0; i < outcomes.size(); i++) {
+            BatchService.Outcome outcome = outcomes.get(i);
+            if (!outcome.failed()) {
+                results.add(new BatchOperationResult(outcome.status(), outcome.body()));
+                continue;
+            }
+            ResponseEntity<ErrorResponse> error = globalExceptionHandler.toResponse(outcome.error(),
+                    new OperationRequest(httpRequest, request.operations().get(i).path()));
+            results.add(new BatchOperationResult(error.getStatusCode().value(), error.getBody()));
+        }
+        return new BatchResponse(results);
+    }
+
+    // Error bodies name the operation's path, not /api/v1/batch.
+    private static final class OperationRequest extends HttpServletRequestWrapper {
+
+        private final String path;
+
+        OperationRequest(HttpServletRequest request, String path) {
+            super(request);
+            this.path = path;
+        }
+
+        @Override
+        public String getRequestURI() {
+            return path;
+        }
+    }
+}
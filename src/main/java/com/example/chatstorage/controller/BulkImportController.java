@@ -0,0 +1,53 @@
+package com.example.chatstorage.controller;
+
+import com.example.chatstorage.dto.imports.BulkImportResponse;
+import com.example.chatstorage.service.BulkImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+@RestController
+@RequestMapping("/api/v1/admin/import")
+@SecurityRequirement(name = "AdminApiKeyAuth")
+@Tag(name = "Import", description = "Admin endpoint to bulk-load chat history")
+public class BulkImportController {
+
+    private final BulkImportService bulkImportService;
+
+    public BulkImportController(BulkImportService bulkImportService) {
+        this.bulkImportService = bulkImportService;
+    }
+
+    @PostMapping("/users/{userId}/history")
+    @Operation(summary = "Bulk import history",
+            description = "Streams NDJSON in the export format (optionally gzip with Content-Encoding: gzip) into the user's history. "
+                    + "Ids already present are skipped, so a failed import can be retried.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Import finished", content = @Content(schema = @Schema(implementation = BulkImportResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid user id"),
+            @ApiResponse(responseCode = "401", description = "Invalid admin API key"),
+            @ApiResponse(responseCode = "503", description = "User is being moved between shards")
+    })
+    public BulkImportResponse importHistory(@PathVariable String userId, HttpServletRequest request) throws IOException {
+        // The body is read as a stream; it is never buffered whole.
+        InputStream body = request.getInputStream();
+        if ("gzip".equalsIgnoreCase(request.getHeader(HttpHeaders.CONTENT_ENCODING))) {
+            body = new GZIPInputStream(body, 64 * 1024);
+        }
+        return bulkImportService.importHistory(userId, body);
+    }
+}
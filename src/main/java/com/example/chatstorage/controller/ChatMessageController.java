@@ -3,8 +3,14 @@ package com.example.chatstorage.controller;
 import com.example.chatstorage.auth.AuthContext;
 import com.example.chatstorage.dto.AddMessageRequest;
 import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.dto.ContextWindowResponse;
 import com.example.chatstorage.dto.PageResponse;
+import com.example.chatstorage.dto.stream.CompleteMessageStreamRequest;
+import com.example.chatstorage.dto.stream.MessageStreamResponse;
+import com.example.chatstorage.dto.stream.OpenMessageStreamRequest;
 import com.example.chatstorage.service.ChatMessageService;
+import com.example.chatstorage.service.MessageIngestService;
+import com.example.chatstorage.service.MessageStreamService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -14,22 +20,37 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 
+import static org.springframework.http.HttpStatus.ACCEPTED;
 import static org.springframework.http.HttpStatus.CREATED;
+import static org.springframework.http.HttpStatus.NO_CONTENT;
 
 @RestController
 @RequestMapping("/api/v1/sessions/{sessionId}/messages")
@@ -38,31 +59,50 @@ import static org.springframework.http.HttpStatus.CREATED;
 @Tag(name = "Messages", description = "Store and retrieve chat messages for a session")
 public class ChatMessageController {
 
+    private static final String RESPOND_ASYNC = "respond-async";
+
     private final ChatMessageService chatMessageService;
+    private final MessageStreamService messageStreamService;
+    private final MessageIngestService messageIngestService;
 
-    public ChatMessageController(ChatMessageService chatMessageService) {
+    public ChatMessageController(ChatMessageService chatMessageService,
+                                 MessageStreamService messageStreamService,
+                                 MessageIngestService messageIngestService) {
         this.chatMessageService = chatMessageService;
+        this.messageStreamService = messageStreamService;
+        this.messageIngestService = messageIngestService;
     }
 
     @PostMapping
-    @ResponseStatus(CREATED)
-    @Operation(summary = "Add message to a session")
+    @Operation(summary = "Add message to a session",
+            description = "With Prefer: respond-async and write-behind ingest enabled, the message is queued and "
+                    + "acknowledged with 202; reads of the session still include it. Messages with an embedding are always stored at once.")
     @ApiResponses({
             @ApiResponse(responseCode = "201", description = "Message added", content = @Content(schema = @Schema(implementation = ChatMessageResponse.class))),
+            @ApiResponse(responseCode = "202", description = "Message accepted for write-behind", content = @Content(schema = @Schema(implementation = ChatMessageResponse.class))),
             @ApiResponse(responseCode = "401", description = "Invalid user API key"),
-            @ApiResponse(responseCode = "404", description = "Session not found")
+            @ApiResponse(responseCode = "404", description = "Session not found"),
+            @ApiResponse(responseCode = "503", description = "Ingest buffer full or journal unavailable")
     })
-    public ChatMessageResponse addMessage(@PathVariable UUID sessionId,
-                                          @Valid @RequestBody AddMessageRequest request,
-                                          HttpServletRequest httpRequest) {
+    public ResponseEntity<ChatMessageResponse> addMessage(@PathVariable UUID sessionId,
+                                                          @Valid @RequestBody AddMessageRequest request,
+                                                          @Parameter(description = "respond-async to queue the write")
+                                                          @RequestHeader(value = "Prefer", required = false) String prefer,
+                                                          HttpServletRequest httpRequest) {
         String userId = AuthContext.requireUserId(httpRequest);
-        return chatMessageService.addMessage(sessionId, userId, request);
+        if (prefersAsync(prefer) && messageIngestService.canAccept(request)) {
+            return ResponseEntity.status(ACCEPTED)
+                    .header("Preference-Applied", RESPOND_ASYNC)
+                    .body(messageIngestService.accept(sessionId, userId, request));
+        }
+        return ResponseEntity.status(CREATED).body(chatMessageService.addMessage(sessionId, userId, request));
     }
 
     @GetMapping
     @Operation(summary = "Get message history", description = "Returns paginated message history for the session.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Messages returned"),
+            @ApiResponse(responseCode = "304", description = "Unchanged since the ETag sent in If-None-Match"),
             @ApiResponse(responseCode = "401", description = "Invalid user API key"),
             @ApiResponse(responseCode = "404", description = "Session not found")
     })
@@ -70,9 +110,143 @@ public class ChatMessageController {
             @PathVariable UUID sessionId,
             HttpServletRequest httpRequest,
             @Parameter(description = "Pagination and sorting (size max 200)")
-            @PageableDefault(size = 50, sort = "createdAt", direction = Sort.Direction.ASC) Pageable pageable
+            @PageableDefault(size = 50, sort = "createdAt", direction = Sort.Direction.ASC) Pageable pageable,
+            WebRequest webRequest,
+            HttpServletResponse httpResponse
     ) {
         String userId = AuthContext.requireUserId(httpRequest);
+        if (ConditionalGet.notModified(chatMessageService.messagesVersion(sessionId, userId, pageable), webRequest, httpResponse)) {
+            return null;
+        }
         return chatMessageService.listMessages(sessionId, userId, pageable);
     }
+
+    @GetMapping("/context")
+    @Operation(summary = "Get context window",
+            description = "Returns the newest messages that fit a token and/or byte budget, oldest first.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Messages returned"),
+            @ApiResponse(responseCode = "400", description = "No budget or a non-positive budget supplied"),
+            @ApiResponse(responseCode = "401", description = "Invalid user API key"),
+            @ApiResponse(responseCode = "404", description = "Session not found")
+    })
+    public ContextWindowResponse getContextWindow(
+            @PathVariable UUID sessionId,
+            HttpServletRequest httpRequest,
+            @Parameter(description = "Estimated token budget") @RequestParam(required = false) Integer maxTokens,
+            @Parameter(description = "UTF-8 byte budget") @RequestParam(required = false) Integer maxBytes,
+            @Parameter(description = "Include retrievedContext in the response and the budget")
+            @RequestParam(defaultValue = "true") boolean includeRetrievedContext,
+            @Parameter(description = "Include SYSTEM messages")
+            @RequestParam(defaultValue = "true") boolean includeSystem
+    ) {
+        String userId = AuthContext.requireUserId(httpRequest);
+        return chatMessageService.getContextWindow(sessionId, userId, maxTokens, maxBytes,
+                includeRetrievedContext, includeSystem);
+    }
+
+    @PostMapping("/streams")
+    @ResponseStatus(CREATED)
+    @Operation(summary = "Open an assistant message stream",
+            description = "Starts a pending ASSISTANT message whose content is pushed in chunks and saved once on completion.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "Stream opened", content = @Content(schema = @Schema(implementation = MessageStreamResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Too many open streams in the session"),
+            @ApiResponse(responseCode = "401", description = "Invalid user API key"),
+            @ApiResponse(responseCode = "404", description = "Session not found or streaming disabled")
+    })
+    public MessageStreamResponse openStream(@PathVariable UUID sessionId,
+                                            @RequestBody(required = false) OpenMessageStreamRequest request,
+                                            HttpServletRequest httpRequest) {
+        String userId = AuthContext.requireUserId(httpRequest);
+        return messageStreamService.open(sessionId, userId, request);
+    }
+
+    @GetMapping("/streams")
+    @Operation(summary = "List in-progress streams", description = "Returns the partial content of replies still being generated.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Streams returned"),
+            @ApiResponse(responseCode = "401", description = "Invalid user API key"),
+            @ApiResponse(responseCode = "404", description = "Session not found or streaming disabled")
+    })
+    public List<MessageStreamResponse> listStreams(@PathVariable UUID sessionId, HttpServletRequest httpRequest) {
+        String userId = AuthContext.requireUserId(httpRequest);
+        return messageStreamService.list(sessionId, userId);
+    }
+
+    @GetMapping("/streams/{streamId}")
+    @Operation(summary = "Get an in-progress stream")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Stream returned"),
+            @ApiResponse(responseCode = "401", description = "Invalid user API key"),
+            @ApiResponse(responseCode = "404", description = "Stream not found")
+    })
+    public MessageStreamResponse getStream(@PathVariable UUID sessionId,
+                                           @PathVariable UUID streamId,
+                                           HttpServletRequest httpRequest) {
+        String userId = AuthContext.requireUserId(httpRequest);
+        return messageStreamService.get(sessionId, userId, streamId);
+    }
+
+    @PostMapping("/streams/{streamId}/chunks")
+    @Operation(summary = "Append to a stream",
+            description = "Appends the raw request body. A single chunked request may stay open and carry the whole reply.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Chunks appended"),
+            @ApiResponse(responseCode = "400", description = "Empty body, size limit reached or stream already finalizing"),
+            @ApiResponse(responseCode = "401", description = "Invalid user API key"),
+            @ApiResponse(responseCode = "404", description = "Stream not found")
+    })
+    public MessageStreamResponse appendToStream(@PathVariable UUID sessionId,
+                                                @PathVariable UUID streamId,
+                                                HttpServletRequest httpRequest) throws IOException {
+        String userId = AuthContext.requireUserId(httpRequest);
+        Charset charset = httpRequest.getCharacterEncoding() == null
+                ? StandardCharsets.UTF_8 : Charset.forName(httpRequest.getCharacterEncoding());
+        Reader body = new InputStreamReader(httpRequest.getInputStream(), charset);
+        return messageStreamService.append(sessionId, userId, streamId, body);
+    }
+
+    @PostMapping("/streams/{streamId}/complete")
+    @ResponseStatus(CREATED)
+    @Operation(summary = "Finalize a stream", description = "Saves the accumulated content as one ASSISTANT message. Safe to retry.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "Message saved", content = @Content(schema = @Schema(implementation = ChatMessageResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Stream empty or already being finalized"),
+            @ApiResponse(responseCode = "401", description = "Invalid user API key"),
+            @ApiResponse(responseCode = "404", description = "Stream not found")
+    })
+    public ChatMessageResponse completeStream(@PathVariable UUID sessionId,
+                                              @PathVariable UUID streamId,
+                                              @Valid @RequestBody(required = false) CompleteMessageStreamRequest request,
+                                              HttpServletRequest httpRequest) {
+        String userId = AuthContext.requireUserId(httpRequest);
+        return messageStreamService.complete(sessionId, userId, streamId, request);
+    }
+
+    @DeleteMapping("/streams/{streamId}")
+    @ResponseStatus(NO_CONTENT)
+    @Operation(summary = "Discard a stream")
+    @ApiResponses({
+            @ApiResponse(responseCode = "204", description = "Stream discarded"),
+            @ApiResponse(responseCode = "401", description = "Invalid user API key"),
+            @ApiResponse(responseCode = "404", description = "Stream not found")
+    })
+    public void discardStream(@PathVariable UUID sessionId, @PathVariable UUID streamId, HttpServletRequest httpRequest) {
+        String userId = AuthContext.requireUserId(httpRequest);
+        messageStreamService.discard(sessionId, userId, streamId);
+    }
+
+    // Prefer may list several preferences (RFC 7240), e.g. "respond-async, wait=5".
+    private static boolean prefersAsync(String prefer) {
+        if (prefer == null) {
+            return false;
+        }
+        for (String preference : prefer.split(",")) {
+            if (preference.trim().toLowerCase(Locale.ROOT).startsWith(RESPOND_ASYNC)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
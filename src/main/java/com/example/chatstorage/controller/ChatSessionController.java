@@ -1,11 +1,13 @@
 package com.example.chatstorage.controller;
 
 import com.example.chatstorage.auth.AuthContext;
+import com.example.chatstorage.dto.BatchMessagesResponse;
 import com.example.chatstorage.dto.ChatSessionResponse;
 import com.example.chatstorage.dto.CreateSessionRequest;
 import com.example.chatstorage.dto.PageResponse;
 import com.example.chatstorage.dto.UpdateFavoriteRequest;
 import com.example.chatstorage.dto.UpdateSessionNameRequest;
+import com.example.chatstorage.service.ChatMessageService;
 import com.example.chatstorage.service.ChatSessionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -16,6 +18,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -31,7 +34,9 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import java.util.List;
 import java.util.UUID;
 
 import static org.springframework.http.HttpStatus.CREATED;
@@ -45,9 +50,11 @@ import static org.springframework.http.HttpStatus.NO_CONTENT;
 public class ChatSessionController {
 
     private final ChatSessionService chatSessionService;
+    private final ChatMessageService chatMessageService;
 
-    public ChatSessionController(ChatSessionService chatSessionService) {
+    public ChatSessionController(ChatSessionService chatSessionService, ChatMessageService chatMessageService) {
         this.chatSessionService = chatSessionService;
+        this.chatMessageService = chatMessageService;
     }
 
     @PostMapping
@@ -67,6 +74,7 @@ public class ChatSessionController {
     @Operation(summary = "List sessions", description = "Returns paginated sessions for the authenticated user.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Sessions returned"),
+            @ApiResponse(responseCode = "304", description = "Unchanged since the ETag sent in If-None-Match"),
             @ApiResponse(responseCode = "401", description = "Invalid user API key")
     })
     public PageResponse<ChatSessionResponse> listSessions(
@@ -74,12 +82,37 @@ public class ChatSessionController {
             @RequestParam(required = false) Boolean favorite,
             HttpServletRequest httpRequest,
             @Parameter(description = "Pagination and sorting (size max 100)")
-            @PageableDefault(size = 20, sort = "updatedAt", direction = Sort.Direction.DESC) Pageable pageable
+            @PageableDefault(size = 20, sort = "updatedAt", direction = Sort.Direction.DESC) Pageable pageable,
+            WebRequest webRequest,
+            HttpServletResponse httpResponse
     ) {
         String userId = AuthContext.requireUserId(httpRequest);
+        if (ConditionalGet.notModified(chatSessionService.sessionsVersion(userId, favorite, pageable), webRequest, httpResponse)) {
+            return null;
+        }
         return chatSessionService.listSessions(userId, favorite, pageable);
     }
 
+    @GetMapping("/messages")
+    @Operation(summary = "Get the newest messages of several sessions",
+            description = "Returns up to limit newest messages per session, oldest first, grouped by session in the "
+                    + "order requested. Ids that are unknown or belong to another user are listed in notFound.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Messages returned"),
+            @ApiResponse(responseCode = "400", description = "No ids, more than 50 ids, or limit outside 1-50"),
+            @ApiResponse(responseCode = "401", description = "Invalid user API key")
+    })
+    public BatchMessagesResponse latestMessages(
+            @Parameter(description = "Session ids, comma-separated or repeated (max 50)")
+            @RequestParam List<UUID> sessionIds,
+            @Parameter(description = "Messages per session (max 50)")
+            @RequestParam(defaultValue = "5") int limit,
+            HttpServletRequest httpRequest
+    ) {
+        String userId = AuthContext.requireUserId(httpRequest);
+        return chatMessageService.latestMessages(userId, sessionIds, limit);
+    }
+
     @PatchMapping("/{sessionId}/rename")
     @Operation(summary = "Rename session")
     @ApiResponses({
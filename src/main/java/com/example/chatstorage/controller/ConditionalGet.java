@@ -0,0 +1,25 @@
+package com.example.chatstorage.controller;
+
+import com.example.chatstorage.service.ListingVersion;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.concurrent.TimeUnit;
+
+final class ConditionalGet {
+
+    private ConditionalGet() {
+    }
+
+    // Sets ETag and Cache-Control; true means a 304 has been prepared and the handler should return null.
+    // Responses are per user, so shared caches must never store them.
+    static boolean notModified(ListingVersion version, WebRequest webRequest, HttpServletResponse response) {
+        CacheControl cacheControl = version.maxAgeSeconds() > 0
+                ? CacheControl.maxAge(version.maxAgeSeconds(), TimeUnit.SECONDS).cachePrivate()
+                : CacheControl.noCache().cachePrivate();
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        return webRequest.checkNotModified(version.etag());
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.chatstorage.controller;
+
+import com.example.chatstorage.auth.AuthContext;
+import com.example.chatstorage.bulkhead.Bulkhead;
+import com.example.chatstorage.bulkhead.BulkheadContext;
+import com.example.chatstorage.service.HistoryExportService;
+import com.example.chatstorage.sharding.ShardContext;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.zip.GZIPOutputStream;
+
+@RestController
+@RequestMapping("/api/v1/export")
+@SecurityRequirement(name = "ApiKeyAuth")
+@Tag(name = "Export", description = "Download the authenticated user's full chat history")
+public class HistoryExportController {
+
+    static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+    private static final int GZIP_BUFFER_BYTES = 64 * 1024;
+
+    private final HistoryExportService historyExportService;
+
+    public HistoryExportController(HistoryExportService historyExportService) {
+        this.historyExportService = historyExportService;
+    }
+
+    @GetMapping("/history")
+    @Operation(summary = "Export history", description = "Streams every session and message as gzip-compressed NDJSON.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Export streamed"),
+            @ApiResponse(responseCode = "401", description = "Invalid user API key")
+    })
+    public ResponseEntity<StreamingResponseBody> exportHistory(HttpServletRequest httpRequest) {
+        String userId = AuthContext.requireUserId(httpRequest);
+        // The body is written on an async thread after the filters have returned, so the request's
+        // shard and connection budget are carried over explicitly.
+        String shard = ShardContext.current();
+        Bulkhead bulkhead = BulkheadContext.current();
+
+        StreamingResponseBody body = output -> {
+            GZIPOutputStream gzip = new GZIPOutputStream(output, GZIP_BUFFER_BYTES, true);
+            BulkheadContext.callWithin(bulkhead, () -> ShardContext.callOn(shard,
+                    () -> historyExportService.export(userId, gzip)));
+            gzip.finish();
+            gzip.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(GZIP)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("chat-history.ndjson.gz").build().toString())
+                .body(body);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.chatstorage.controller;
+
+import com.example.chatstorage.auth.AuthContext;
+import com.example.chatstorage.dto.search.MessageSearchResponse;
+import com.example.chatstorage.dto.search.SimilarMessagesRequest;
+import com.example.chatstorage.dto.search.SimilarMessagesResponse;
+import com.example.chatstorage.service.MessageSearchService;
+import com.example.chatstorage.service.SimilaritySearchService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/search")
+@Validated
+@SecurityRequirement(name = "ApiKeyAuth")
+@Tag(name = "Search", description = "Search the authenticated user's chat history")
+public class MessageSearchController {
+
+    private final MessageSearchService messageSearchService;
+    private final SimilaritySearchService similaritySearchService;
+
+    public MessageSearchController(MessageSearchService messageSearchService,
+                                   SimilaritySearchService similaritySearchService) {
+        this.messageSearchService = messageSearchService;
+        this.similaritySearchService = similaritySearchService;
+    }
+
+    @GetMapping("/messages")
+    @Operation(summary = "Search messages", description = "Full-text search over message content, ranked, with highlighted snippets.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Matches returned"),
+            @ApiResponse(responseCode = "400", description = "Blank query, invalid size or cursor"),
+            @ApiResponse(responseCode = "401", description = "Invalid user API key"),
+            @ApiResponse(responseCode = "404", description = "Session not found")
+    })
+    public MessageSearchResponse searchMessages(
+            @Parameter(description = "Search terms; supports \"quoted phrases\", OR and -exclusions on Postgres")
+            @RequestParam("q") String query,
+            @Parameter(description = "Restrict to one session")
+            @RequestParam(required = false) UUID sessionId,
+            @Parameter(description = "Page size (max 100)")
+            @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "nextCursor from the previous page")
+            @RequestParam(required = false) String cursor,
+            HttpServletRequest httpRequest
+    ) {
+        String userId = AuthContext.requireUserId(httpRequest);
+        return messageSearchService.search(userId, query, sessionId, size, cursor);
+    }
+
+    @PostMapping("/similar")
+    @Operation(summary = "Find similar messages", description = "Approximate top-k nearest messages by cosine similarity of their embeddings.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Neighbours returned, most similar first"),
+            @ApiResponse(responseCode = "400", description = "Invalid embedding, dimension mismatch or k out of range"),
+            @ApiResponse(responseCode = "401", description = "Invalid user API key"),
+            @ApiResponse(responseCode = "404", description = "Session not found or similarity search disabled")
+    })
+    public SimilarMessagesResponse searchSimilar(@Valid @RequestBody SimilarMessagesRequest request,
+                                                 HttpServletRequest httpRequest) {
+        String userId = AuthContext.requireUserId(httpRequest);
+        return similaritySearchService.search(userId, request);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.chatstorage.controller;
+
+import com.example.chatstorage.auth.AuthContext;
+import com.example.chatstorage.dto.bulk.BulkDeleteRequest;
+import com.example.chatstorage.dto.bulk.BulkFavoriteRequest;
+import com.example.chatstorage.dto.bulk.BulkSessionResponse;
+import com.example.chatstorage.service.SessionBulkService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/v1/sessions/bulk")
+@Validated
+@SecurityRequirement(name = "ApiKeyAuth")
+@Tag(name = "Sessions", description = "Manage chat sessions for the authenticated user")
+public class SessionBulkController {
+
+    private final SessionBulkService sessionBulkService;
+
+    public SessionBulkController(SessionBulkService sessionBulkService) {
+        this.sessionBulkService = sessionBulkService;
+    }
+
+    @PostMapping("/favorite")
+    @Operation(summary = "Mark or unmark many sessions as favorite",
+            description = "Updates the sessions listed in sessionIds, or every session last updated before "
+                    + "updatedBefore, in one statement. affected counts the sessions that changed.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Sessions updated"),
+            @ApiResponse(responseCode = "400", description = "Neither or both of sessionIds and a filter, or too many"),
+            @ApiResponse(responseCode = "401", description = "Invalid user API key")
+    })
+    public BulkSessionResponse updateFavorite(@Valid @RequestBody BulkFavoriteRequest request,
+                                              HttpServletRequest httpRequest) {
+        String userId = AuthContext.requireUserId(httpRequest);
+        return sessionBulkService.updateFavorite(userId, request);
+    }
+
+    @PostMapping("/delete")
+    @Operation(summary = "Delete many sessions",
+            description = "Deletes the sessions listed in sessionIds, or those matching updatedBefore and favorite. "
+                    + "When they hold many messages the sessions disappear at once and their messages are removed "
+                    + "in the background (purgeQueued).")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Sessions deleted"),
+            @ApiResponse(responseCode = "400", description = "Neither or both of sessionIds and a filter, or too many"),
+            @ApiResponse(responseCode = "401", description = "Invalid user API key")
+    })
+    public BulkSessionResponse delete(@Valid @RequestBody BulkDeleteRequest request, HttpServletRequest httpRequest) {
+        String userId = AuthContext.requireUserId(httpRequest);
+        return sessionBulkService.delete(userId, request);
+    }
+}
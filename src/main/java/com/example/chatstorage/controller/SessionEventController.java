@@ -0,0 +1,52 @@
+package com.example.chatstorage.controller;
+
+import com.example.chatstorage.auth.AuthContext;
+import com.example.chatstorage.service.SessionEventService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/sessions")
+@SecurityRequirement(name = "ApiKeyAuth")
+@Tag(name = "Session Events", description = "Live updates for a chat session")
+public class SessionEventController {
+
+    private final SessionEventService sessionEventService;
+
+    public SessionEventController(SessionEventService sessionEventService) {
+        this.sessionEventService = sessionEventService;
+    }
+
+    @GetMapping(value = "/{sessionId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Subscribe to session events",
+            description = "Server-Sent Events stream of new messages and session changes. Reconnect with Last-Event-ID to resume.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Event stream opened"),
+            @ApiResponse(responseCode = "401", description = "Invalid user API key"),
+            @ApiResponse(responseCode = "404", description = "Session not found or live events disabled"),
+            @ApiResponse(responseCode = "503", description = "Subscriber limit reached on this node")
+    })
+    public SseEmitter subscribe(@PathVariable UUID sessionId,
+                                @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+                                @Parameter(description = "Resume position for clients that cannot set Last-Event-ID")
+                                @RequestParam(required = false) String lastEventId,
+                                HttpServletRequest httpRequest) {
+        String userId = AuthContext.requireUserId(httpRequest);
+        return sessionEventService.subscribe(sessionId, userId, lastEventIdHeader != null ? lastEventIdHeader : lastEventId);
+    }
+}
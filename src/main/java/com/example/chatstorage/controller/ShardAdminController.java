@@ -0,0 +1,76 @@
+package com.example.chatstorage.controller;
+
+import com.example.chatstorage.dto.shard.ShardMigrationRequest;
+import com.example.chatstorage.dto.shard.ShardMigrationResponse;
+import com.example.chatstorage.dto.shard.UserShardResponse;
+import com.example.chatstorage.service.ShardMigrationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.springframework.http.HttpStatus.ACCEPTED;
+
+@RestController
+@RequestMapping("/api/v1/admin/shards")
+@ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+@SecurityRequirement(name = "AdminApiKeyAuth")
+@Validated
+@Tag(name = "Shards", description = "Admin endpoints to inspect shard placement and move users between shards")
+public class ShardAdminController {
+
+    private final ShardMigrationService shardMigrationService;
+
+    public ShardAdminController(ShardMigrationService shardMigrationService) {
+        this.shardMigrationService = shardMigrationService;
+    }
+
+    @GetMapping("/users/{userId}")
+    @Operation(summary = "Get shard placement of a user")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Placement returned"),
+            @ApiResponse(responseCode = "401", description = "Invalid admin API key")
+    })
+    public UserShardResponse describeUser(@PathVariable String userId) {
+        return shardMigrationService.describeUser(userId);
+    }
+
+    @PostMapping("/migrations")
+    @ResponseStatus(ACCEPTED)
+    @Operation(summary = "Move a user to another shard",
+            description = "Freezes the user's writes and returns. In the background it waits for every instance to confirm "
+                    + "the freeze, copies sessions and messages to the target shard, switches routing, waits for every "
+                    + "instance to confirm the switch, then removes the source copy. Poll GET /migrations/{userId} for progress.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "Migration started", content = @Content(schema = @Schema(implementation = ShardMigrationResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Unknown shard or migration already running"),
+            @ApiResponse(responseCode = "401", description = "Invalid admin API key")
+    })
+    public ShardMigrationResponse migrateUser(@Valid @RequestBody ShardMigrationRequest request) {
+        return shardMigrationService.startMigration(request.userId().trim(), request.targetShard().trim());
+    }
+
+    @GetMapping("/migrations/{userId}")
+    @Operation(summary = "Get the progress of the latest migration of a user")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Migration state returned"),
+            @ApiResponse(responseCode = "401", description = "Invalid admin API key"),
+            @ApiResponse(responseCode = "404", description = "User was never migrated")
+    })
+    public ShardMigrationResponse migrationStatus(@PathVariable String userId) {
+        return shardMigrationService.migrationStatus(userId);
+    }
+}
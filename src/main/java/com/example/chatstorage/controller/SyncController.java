@@ -0,0 +1,50 @@
+package com.example.chatstorage.controller;
+
+import com.example.chatstorage.auth.AuthContext;
+import com.example.chatstorage.dto.sync.SyncResponse;
+import com.example.chatstorage.service.SyncService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/v1/sync")
+@SecurityRequirement(name = "ApiKeyAuth")
+@Tag(name = "Sync", description = "Fetch what changed since a client's last sync")
+public class SyncController {
+
+    private final SyncService syncService;
+
+    public SyncController(SyncService syncService) {
+        this.syncService = syncService;
+    }
+
+    @GetMapping
+    @Operation(summary = "Sync changes",
+            description = "Returns sessions and messages created or changed after the since token, and the ids of "
+                    + "sessions deleted since then. Without since only the current token is returned, to sync from "
+                    + "after downloading the full history.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Changes returned"),
+            @ApiResponse(responseCode = "400", description = "Negative since or limit out of range"),
+            @ApiResponse(responseCode = "401", description = "Invalid user API key")
+    })
+    public SyncResponse changes(
+            @Parameter(description = "nextToken of the previous sync; omit for the starting token")
+            @RequestParam(required = false) Long since,
+            @Parameter(description = "Changes per response (max app.sync.max-changes)")
+            @RequestParam(defaultValue = "500") int limit,
+            HttpServletRequest httpRequest
+    ) {
+        String userId = AuthContext.requireUserId(httpRequest);
+        return syncService.changes(userId, since, limit);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.chatstorage.diagnostics;
+
+import com.example.chatstorage.config.AppProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Streams JFR's jdk.VirtualThreadPinned events: a virtual thread that blocks inside synchronized or native code
+// holds its carrier, and enough of them stall every other virtual thread. Each event is timed under
+// chatstorage.virtual.threads.pinned, tagged with the request path it happened on. Only runs when requests are
+// served on virtual threads; on platform threads there is nothing to pin.
+@Component
+public class PinnedThreadMonitor {
+
+    static final String EVENT = "jdk.VirtualThreadPinned";
+    private static final Logger log = LoggerFactory.getLogger(PinnedThreadMonitor.class);
+    private static final int MAX_REPORTED_SITES = 256;
+    private static final int LOGGED_FRAMES = 8;
+
+    private final AppProperties appProperties;
+    private final MeterRegistry meterRegistry;
+    private final boolean virtualThreadsEnabled;
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+    private RecordingStream stream;
+
+    public PinnedThreadMonitor(AppProperties appProperties,
+                               MeterRegistry meterRegistry,
+                               @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreadsEnabled) {
+        this.appProperties = appProperties;
+        this.meterRegistry = meterRegistry;
+        this.virtualThreadsEnabled = virtualThreadsEnabled;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!virtualThreadsEnabled || !appProperties.getVirtualThreads().isPinningMonitorEnabled() || stream != null) {
+            return;
+        }
+        try {
+            RecordingStream recording = new RecordingStream();
+            recording.enable(EVENT)
+                    .withThreshold(Duration.ofMillis(Math.max(0, appProperties.getVirtualThreads().getPinningThresholdMillis())))
+                    .withStackTrace();
+            recording.onEvent(EVENT, this::onEvent);
+            recording.startAsync();
+            stream = recording;
+        } catch (RuntimeException exception) {
+            // JFR can be unavailable (disabled or stripped runtimes); the service runs fine without the metric.
+            log.warn("Virtual thread pinning monitor could not start", exception);
+        }
+    }
+
+    boolean isStreaming() {
+        return stream != null;
+    }
+
+    @PreDestroy
+    void stop() {
+        if (stream != null) {
+            stream.close();
+            stream = null;
+        }
+    }
+
+    private void onEvent(RecordedEvent event) {
+        List<String> frames = event.getStackTrace() == null ? List.of()
+                : event.getStackTrace().getFrames().stream().map(PinnedThreadMonitor::describe).toList();
+        record(frames, event.getDuration());
+    }
+
+    // Frames are innermost first, as "class.method:line".
+    void record(List<String> frames, Duration duration) {
+        String path = classify(frames);
+        Timer.builder("chatstorage.virtual.threads.pinned")
+                .tag("path", path)
+                .register(meterRegistry)
+                .record(duration);
+
+        String site = site(frames);
+        if (reportedSites.size() < MAX_REPORTED_SITES && reportedSites.add(site)) {
+            log.warn("Virtual thread pinned for {} ms on {} path at {}\n\t{}", duration.toMillis(), path, site,
+                    String.join("\n\t", frames.subList(0, Math.min(LOGGED_FRAMES, frames.size()))));
+        } else {
+            log.debug("Virtual thread pinned for {} ms on {} path at {}", duration.toMillis(), path, site);
+        }
+    }
+
+    // Auth and rate-limit filters wrap every downstream call, so their services (not the filters) mark the path;
+    // they are checked before JDBC frames because a key lookup pins inside the driver too.
+    static String classify(List<String> frames) {
+        boolean jdbc = false;
+        for (String frame : frames) {
+            if (frame.startsWith("com.example.chatstorage.security.RedisRateLimiterService.")
+                    || frame.startsWith("io.github.bucket4j.")) {
+                return "rate-limit";
+            }
+            if (frame.startsWith("com.example.chatstorage.service.ApiKeyService.")) {
+                return "auth";
+            }
+            if (frame.startsWith("com.example.chatstorage.repository.")
+                    || frame.startsWith("org.postgresql.")
+                    || frame.startsWith("com.zaxxer.hikari.")
+                    || frame.startsWith("org.hibernate.")
+                    || frame.startsWith("org.springframework.jdbc.")) {
+                jdbc = true;
+            }
+        }
+        return jdbc ? "repository" : "other";
+    }
+
+    // The innermost frame outside the JDK is where the monitor or native call was entered.
+    static String site(List<String> frames) {
+        return frames.stream()
+                .filter(frame -> !frame.startsWith("java.") && !frame.startsWith("jdk.") && !frame.startsWith("sun."))
+                .findFirst()
+                .orElse(frames.isEmpty() ? "unknown" : frames.get(0));
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
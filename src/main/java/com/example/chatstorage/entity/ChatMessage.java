@@ -5,24 +5,34 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
-import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import org.springframework.data.domain.Persistable;
 
 import java.time.Instant;
 import java.util.UUID;
 
 @Entity
-@Table(name = "chat_messages")
-public class ChatMessage {
+@Table(name = "chat_messages", indexes = {
+        @Index(name = "idx_chat_messages_session_created", columnList = "session_id, created_at")
+})
+public class ChatMessage implements Persistable<UUID> {
 
+    // Assigned before insert rather than generated, so a caller can reserve the id of a message it writes later.
     @Id
-    @GeneratedValue
     private UUID id;
 
+    // With the id already set, save() would otherwise merge, which reads the row before inserting it.
+    @Transient
+    private boolean persisted;
+
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "session_id", nullable = false)
     private ChatSession session;
@@ -40,11 +50,39 @@ public class ChatMessage {
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
 
+    // Size estimates captured at write time; null for rows written before the columns existed.
+    @Column(name = "content_bytes")
+    private Integer contentBytes;
+
+    @Column(name = "content_tokens")
+    private Integer contentTokens;
+
+    @Column(name = "context_bytes")
+    private Integer contextBytes;
+
+    @Column(name = "context_tokens")
+    private Integer contextTokens;
+
     @PrePersist
     public void onCreate() {
+        if (this.id == null) {
+            this.id = UUID.randomUUID();
+        }
         this.createdAt = Instant.now();
     }
 
+    @PostPersist
+    @PostLoad
+    void markPersisted() {
+        this.persisted = true;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @Override
     public UUID getId() {
         return id;
     }
@@ -92,4 +130,36 @@ public class ChatMessage {
     public void setCreatedAt(Instant createdAt) {
         this.createdAt = createdAt;
     }
+
+    public Integer getContentBytes() {
+        return contentBytes;
+    }
+
+    public void setContentBytes(Integer contentBytes) {
+        this.contentBytes = contentBytes;
+    }
+
+    public Integer getContentTokens() {
+        return contentTokens;
+    }
+
+    public void setContentTokens(Integer contentTokens) {
+        this.contentTokens = contentTokens;
+    }
+
+    public Integer getContextBytes() {
+        return contextBytes;
+    }
+
+    public void setContextBytes(Integer contextBytes) {
+        this.contextBytes = contextBytes;
+    }
+
+    public Integer getContextTokens() {
+        return contextTokens;
+    }
+
+    public void setContextTokens(Integer contextTokens) {
+        this.contextTokens = contextTokens;
+    }
 }
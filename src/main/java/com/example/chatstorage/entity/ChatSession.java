@@ -2,17 +2,21 @@ package com.example.chatstorage.entity;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.Instant;
 import java.util.UUID;
 
 @Entity
-@Table(name = "chat_sessions")
+@Table(name = "chat_sessions", indexes = @Index(name = "idx_chat_sessions_user_updated", columnList = "user_id, updated_at"))
 public class ChatSession {
 
     @Id
@@ -34,6 +38,25 @@ public class ChatSession {
     @Column(name = "updated_at", nullable = false)
     private Instant updatedAt;
 
+    // Summary of the session's messages, maintained by a single UPDATE per added message.
+    @ColumnDefault("0")
+    @Column(name = "message_count", nullable = false)
+    private long messageCount;
+
+    @ColumnDefault("0")
+    @Column(name = "total_content_bytes", nullable = false)
+    private long totalContentBytes;
+
+    @Column(name = "last_message_at")
+    private Instant lastMessageAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "last_sender", length = 20)
+    private SenderType lastSender;
+
+    @Column(name = "last_message_preview", length = 200)
+    private String lastMessagePreview;
+
     @PrePersist
     public void onCreate() {
         Instant now = Instant.now();
@@ -93,4 +116,44 @@ public class ChatSession {
     public void setUpdatedAt(Instant updatedAt) {
         this.updatedAt = updatedAt;
     }
+
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    public void setMessageCount(long messageCount) {
+        this.messageCount = messageCount;
+    }
+
+    public long getTotalContentBytes() {
+        return totalContentBytes;
+    }
+
+    public void setTotalContentBytes(long totalContentBytes) {
+        this.totalContentBytes = totalContentBytes;
+    }
+
+    public Instant getLastMessageAt() {
+        return lastMessageAt;
+    }
+
+    public void setLastMessageAt(Instant lastMessageAt) {
+        this.lastMessageAt = lastMessageAt;
+    }
+
+    public SenderType getLastSender() {
+        return lastSender;
+    }
+
+    public void setLastSender(SenderType lastSender) {
+        this.lastSender = lastSender;
+    }
+
+    public String getLastMessagePreview() {
+        return lastMessagePreview;
+    }
+
+    public void setLastMessagePreview(String lastMessagePreview) {
+        this.lastMessagePreview = lastMessagePreview;
+    }
 }
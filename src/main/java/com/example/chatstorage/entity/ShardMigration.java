@@ -0,0 +1,135 @@
+package com.example.chatstorage.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+// Progress of the latest shard move of a user, on the default shard so any instance can report it.
+@Entity
+@Table(name = "shard_migrations")
+public class ShardMigration {
+
+    public enum State {
+        // Writes are frozen; waiting for every instance to see the freeze and finish its earlier writes.
+        FREEZING,
+        COPYING,
+        // Routing points at the target; waiting for every instance to see it before the source copy is deleted.
+        SWITCHING,
+        COMPLETED,
+        FAILED
+    }
+
+    @Id
+    @Column(name = "user_id", nullable = false, length = 100)
+    private String userId;
+
+    @Column(name = "source_shard", nullable = false, length = 64)
+    private String sourceShard;
+
+    @Column(name = "target_shard", nullable = false, length = 64)
+    private String targetShard;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private State state;
+
+    @Column(name = "sessions_moved", nullable = false)
+    private long sessionsMoved;
+
+    @Column(name = "messages_moved", nullable = false)
+    private long messagesMoved;
+
+    @Column(length = 500)
+    private String error;
+
+    @Column(name = "started_at", nullable = false)
+    private Instant startedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    public void onWrite() {
+        this.updatedAt = Instant.now();
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getSourceShard() {
+        return sourceShard;
+    }
+
+    public void setSourceShard(String sourceShard) {
+        this.sourceShard = sourceShard;
+    }
+
+    public String getTargetShard() {
+        return targetShard;
+    }
+
+    public void setTargetShard(String targetShard) {
+        this.targetShard = targetShard;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    public long getSessionsMoved() {
+        return sessionsMoved;
+    }
+
+    public void setSessionsMoved(long sessionsMoved) {
+        this.sessionsMoved = sessionsMoved;
+    }
+
+    public long getMessagesMoved() {
+        return messagesMoved;
+    }
+
+    public void setMessagesMoved(long messagesMoved) {
+        this.messagesMoved = messagesMoved;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Instant startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
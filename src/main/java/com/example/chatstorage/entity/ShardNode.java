@@ -0,0 +1,49 @@
+package com.example.chatstorage.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+// One row per running instance, on the default shard next to the directory. synced_at is the database time of the
+// latest directory load after which the instance had no write left from before it; migrations wait on it.
+@Entity
+@Table(name = "shard_nodes")
+public class ShardNode {
+
+    @Id
+    @Column(name = "node_id", nullable = false, length = 64)
+    private String nodeId;
+
+    @Column(name = "synced_at")
+    private Instant syncedAt;
+
+    @Column(name = "reported_at", nullable = false)
+    private Instant reportedAt;
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public Instant getSyncedAt() {
+        return syncedAt;
+    }
+
+    public void setSyncedAt(Instant syncedAt) {
+        this.syncedAt = syncedAt;
+    }
+
+    public Instant getReportedAt() {
+        return reportedAt;
+    }
+
+    public void setReportedAt(Instant reportedAt) {
+        this.reportedAt = reportedAt;
+    }
+}
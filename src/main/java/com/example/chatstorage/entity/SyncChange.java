@@ -0,0 +1,107 @@
+package com.example.chatstorage.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// Change log behind delta sync: one row per session or message write and a tombstone per deleted session.
+// Rows are written with plain JDBC (see SyncChangeRepository); the mapping keeps the table in the schema.
+@Entity
+@Table(name = "sync_changes", indexes = {
+        @Index(name = "idx_sync_changes_user_token", columnList = "user_id, sync_token", unique = true),
+        @Index(name = "idx_sync_changes_session", columnList = "session_id")
+})
+public class SyncChange {
+
+    @Id
+    private UUID id;
+
+    // The sync token. Null until the row is committed and sequenced, see SyncChangeRepository.assignTokens.
+    @Column(name = "sync_token")
+    private Long syncToken;
+
+    @Column(name = "user_id", nullable = false, length = 100)
+    private String userId;
+
+    @Column(name = "session_id", nullable = false)
+    private UUID sessionId;
+
+    @Column(name = "message_id")
+    private UUID messageId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", nullable = false, length = 20)
+    private Type type;
+
+    @Column(name = "changed_at", nullable = false)
+    private Instant changedAt;
+
+    public enum Type {
+        SESSION,
+        MESSAGE,
+        SESSION_DELETED
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public Long getSyncToken() {
+        return syncToken;
+    }
+
+    public void setSyncToken(Long syncToken) {
+        this.syncToken = syncToken;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public UUID getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(UUID sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public UUID getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(UUID messageId) {
+        this.messageId = messageId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public Instant getChangedAt() {
+        return changedAt;
+    }
+
+    public void setChangedAt(Instant changedAt) {
+        this.changedAt = changedAt;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.chatstorage.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+// Last sync token handed out per user. Its row lock serializes token assignment for the user.
+@Entity
+@Table(name = "sync_cursors")
+public class SyncCursor {
+
+    @Id
+    @Column(name = "user_id", nullable = false, length = 100)
+    private String userId;
+
+    @Column(name = "last_token", nullable = false)
+    private long lastToken;
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public long getLastToken() {
+        return lastToken;
+    }
+
+    public void setLastToken(long lastToken) {
+        this.lastToken = lastToken;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.chatstorage.events;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.UUID;
+
+// The SSE event id of a message: its position in the session's (createdAt, id) order.
+public record EventCursor(Instant createdAt, UUID messageId) implements Comparable<EventCursor> {
+
+    public static final EventCursor START = new EventCursor(Instant.EPOCH, new UUID(0, 0));
+
+    // UUIDs are compared as unsigned bytes, the way the database orders them.
+    private static final Comparator<EventCursor> ORDER = Comparator.comparing(EventCursor::createdAt)
+            .thenComparing(cursor -> cursor.messageId().getMostSignificantBits(), Long::compareUnsigned)
+            .thenComparing(cursor -> cursor.messageId().getLeastSignificantBits(), Long::compareUnsigned);
+
+    // An unreadable Last-Event-ID is treated as absent; failing the request would stop EventSource from retrying.
+    public static Optional<EventCursor> parse(String value) {
+        if (value == null || value.isBlank()) {
+            return Optional.empty();
+        }
+        int separator = value.indexOf('_');
+        if (separator <= 0) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new EventCursor(Instant.parse(value.substring(0, separator)),
+                    UUID.fromString(value.substring(separator + 1).trim())));
+        } catch (DateTimeParseException | IllegalArgumentException exception) {
+            return Optional.empty();
+        }
+    }
+
+    public String format() {
+        return createdAt + "_" + messageId;
+    }
+
+    @Override
+    public int compareTo(EventCursor other) {
+        return ORDER.compare(this, other);
+    }
+}
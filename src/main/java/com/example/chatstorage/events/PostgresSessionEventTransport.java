@@ -0,0 +1,139 @@
+package com.example.chatstorage.events;
+
+import com.example.chatstorage.sharding.ShardContext;
+import com.example.chatstorage.sharding.ShardRouter;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+// For deployments without Redis pub/sub. Every node listens on one channel per shard and filters locally,
+// which is fine for the node counts we run; a user's events are published on the shard that owns the user.
+@Component
+@ConditionalOnProperty(prefix = "app.session-events", name = "transport", havingValue = "postgres")
+public class PostgresSessionEventTransport implements SessionEventTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(PostgresSessionEventTransport.class);
+    private static final String CHANNEL = "chat_session_events";
+    // NOTIFY payloads are capped at 8000 bytes; larger events are sent without the message body.
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+    private static final int POLL_MILLIS = 1000;
+    private static final long RECONNECT_MILLIS = 2000;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectProvider<ShardRouter> shardRouter;
+    private final SessionEventCodec codec;
+    private final List<Thread> listeners = new ArrayList<>();
+    private volatile boolean running;
+
+    public PostgresSessionEventTransport(DataSource dataSource,
+                                         JdbcTemplate jdbcTemplate,
+                                         PlatformTransactionManager transactionManager,
+                                         ObjectProvider<ShardRouter> shardRouter,
+                                         SessionEventCodec codec) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Publishing happens after the caller's commit, so NOTIFY needs a transaction of its own.
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.shardRouter = shardRouter;
+        this.codec = codec;
+    }
+
+    @Override
+    public synchronized void start(Consumer<SessionEvent> sink) {
+        if (running) {
+            return;
+        }
+        running = true;
+        ShardRouter router = shardRouter.getIfAvailable();
+        List<String> shards = router == null ? Collections.singletonList(null) : router.shardNames();
+        for (String shard : shards) {
+            Thread thread = new Thread(() -> listenLoop(shard, sink), "session-events-" + (shard == null ? "db" : shard));
+            thread.setDaemon(true);
+            thread.start();
+            listeners.add(thread);
+        }
+    }
+
+    @Override
+    public void publish(SessionEvent event) {
+        String payload = codec.encode(event);
+        if (payload.getBytes(StandardCharsets.UTF_8).length > MAX_PAYLOAD_BYTES) {
+            payload = codec.encode(event.withoutBody());
+        }
+        String notification = payload;
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.queryForObject("select pg_notify(?, ?)", Object.class, CHANNEL, notification));
+    }
+
+    @Override
+    public void listen(UUID sessionId) {
+        // Every node already receives every event on the shared channel.
+    }
+
+    @Override
+    public void unlisten(UUID sessionId) {
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        listeners.forEach(Thread::interrupt);
+        listeners.clear();
+    }
+
+    private void listenLoop(String shard, Consumer<SessionEvent> sink) {
+        // The thread is dedicated to this shard, so the routing key can stay set for its lifetime.
+        if (shard != null) {
+            ShardContext.set(shard);
+        }
+        while (running) {
+            try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + CHANNEL);
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_MILLIS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        codec.decode(notification.getParameter()).ifPresent(sink);
+                    }
+                }
+            } catch (SQLException | RuntimeException exception) {
+                if (!running) {
+                    return;
+                }
+                // Events sent while the listener is down are recovered by clients through Last-Event-ID.
+                log.warn("Session event listener on shard {} failed; reconnecting", shard, exception);
+                try {
+                    Thread.sleep(RECONNECT_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.chatstorage.events;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// One channel per session, so a node only receives traffic for sessions it has subscribers for.
+@Component
+@ConditionalOnProperty(prefix = "app.session-events", name = "transport", havingValue = "redis", matchIfMissing = true)
+public class RedisSessionEventTransport implements SessionEventTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisSessionEventTransport.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisConnectionFactory connectionFactory;
+    private final SessionEventCodec codec;
+    // Subscribing waits on Redis; a lock rather than a monitor keeps virtual request threads unpinned.
+    private final ReentrantLock lock = new ReentrantLock();
+    private RedisMessageListenerContainer container;
+    private MessageListener listener;
+
+    public RedisSessionEventTransport(StringRedisTemplate redisTemplate,
+                                      RedisConnectionFactory connectionFactory,
+                                      SessionEventCodec codec) {
+        this.redisTemplate = redisTemplate;
+        this.connectionFactory = connectionFactory;
+        this.codec = codec;
+    }
+
+    @Override
+    public void start(Consumer<SessionEvent> sink) {
+        lock.lock();
+        try {
+            if (container != null) {
+                return;
+            }
+            listener = (Message message, byte[] pattern) ->
+                    codec.decode(new String(message.getBody(), StandardCharsets.UTF_8)).ifPresent(sink);
+            container = new RedisMessageListenerContainer();
+            container.setConnectionFactory(connectionFactory);
+            container.afterPropertiesSet();
+            container.start();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void publish(SessionEvent event) {
+        redisTemplate.convertAndSend(channel(event.sessionId()), codec.encode(event));
+    }
+
+    @Override
+    public void listen(UUID sessionId) {
+        lock.lock();
+        try {
+            if (container != null) {
+                container.addMessageListener(listener, new ChannelTopic(channel(sessionId)));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void unlisten(UUID sessionId) {
+        lock.lock();
+        try {
+            if (container != null) {
+                container.removeMessageListener(listener, new ChannelTopic(channel(sessionId)));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void stop() {
+        lock.lock();
+        try {
+            if (container == null) {
+                return;
+            }
+            try {
+                container.destroy();
+            } catch (Exception exception) {
+                log.warn("Could not stop session event listener", exception);
+            }
+            container = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String channel(UUID sessionId) {
+        return "chat:events:" + sessionId;
+    }
+}
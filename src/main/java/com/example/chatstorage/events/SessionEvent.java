@@ -0,0 +1,33 @@
+package com.example.chatstorage.events;
+
+import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.dto.ChatSessionResponse;
+
+import java.util.UUID;
+
+// A change to one session, fanned out to every node that has subscribers for it.
+// A MESSAGE event without a message tells receivers to reload the new rows from the database instead.
+public record SessionEvent(Type type, String userId, UUID sessionId, ChatMessageResponse message, ChatSessionResponse session) {
+
+    public enum Type {
+        MESSAGE,
+        SESSION,
+        SESSION_DELETED
+    }
+
+    public static SessionEvent message(String userId, ChatMessageResponse message) {
+        return new SessionEvent(Type.MESSAGE, userId, message.sessionId(), message, null);
+    }
+
+    public static SessionEvent session(ChatSessionResponse session) {
+        return new SessionEvent(Type.SESSION, session.userId(), session.id(), null, session);
+    }
+
+    public static SessionEvent deleted(String userId, UUID sessionId) {
+        return new SessionEvent(Type.SESSION_DELETED, userId, sessionId, null, null);
+    }
+
+    public SessionEvent withoutBody() {
+        return new SessionEvent(type, userId, sessionId, null, type == Type.SESSION ? session : null);
+    }
+}
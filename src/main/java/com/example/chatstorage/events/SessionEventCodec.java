@@ -0,0 +1,38 @@
+package com.example.chatstorage.events;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+@Component
+public class SessionEventCodec {
+
+    private final ObjectMapper objectMapper;
+
+    public SessionEventCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public String encode(SessionEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException exception) {
+            throw new IllegalStateException("Could not encode session event", exception);
+        }
+    }
+
+    // A payload this node cannot read (say, from a newer replica mid-deploy) is dropped rather than failing the listener.
+    public Optional<SessionEvent> decode(String payload) {
+        try {
+            SessionEvent event = objectMapper.readValue(payload, SessionEvent.class);
+            if (event.type() == null || event.sessionId() == null || event.userId() == null) {
+                return Optional.empty();
+            }
+            return Optional.of(event);
+        } catch (JsonProcessingException exception) {
+            return Optional.empty();
+        }
+    }
+}
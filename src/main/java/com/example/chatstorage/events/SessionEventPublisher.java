@@ -0,0 +1,37 @@
+package com.example.chatstorage.events;
+
+import com.example.chatstorage.config.AppProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+// Called after the change has committed. A failed publish never fails the write that caused it;
+// subscribers notice the gap on their next reconnect.
+@Component
+public class SessionEventPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionEventPublisher.class);
+
+    private final SessionEventTransport transport;
+    private final AppProperties appProperties;
+
+    public SessionEventPublisher(SessionEventTransport transport, AppProperties appProperties) {
+        this.transport = transport;
+        this.appProperties = appProperties;
+    }
+
+    public boolean isEnabled() {
+        return appProperties.getSessionEvents().isEnabled();
+    }
+
+    public void publish(SessionEvent event) {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            transport.publish(event);
+        } catch (RuntimeException exception) {
+            log.warn("Failed to publish session event type={} sessionId={}", event.type(), event.sessionId(), exception);
+        }
+    }
+}
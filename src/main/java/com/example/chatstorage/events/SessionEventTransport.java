@@ -0,0 +1,20 @@
+package com.example.chatstorage.events;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+
+// Carries session events between replicas. Delivery is best effort: subscribers that miss an event
+// catch up from the database when they reconnect with Last-Event-ID.
+public interface SessionEventTransport {
+
+    void start(Consumer<SessionEvent> sink);
+
+    void publish(SessionEvent event);
+
+    // Called when this node gains its first / loses its last subscriber for a session.
+    void listen(UUID sessionId);
+
+    void unlisten(UUID sessionId);
+
+    void stop();
+}
@@ -0,0 +1,123 @@
+package com.example.chatstorage.events;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+// One open SSE connection. Work for it runs one task at a time, in arrival order, on a shared executor,
+// so an idle subscriber holds no thread and a slow one cannot delay the others.
+public class SessionSubscription {
+
+    private static final int RECENT_MESSAGE_IDS = 64;
+
+    private final String userId;
+    private final UUID sessionId;
+    private final String shard;
+    private final SseEmitter emitter;
+    private final Executor executor;
+    private final int capacity;
+    private final Deque<Runnable> queue = new ArrayDeque<>();
+    private final Map<UUID, Boolean> recentMessageIds = new LinkedHashMap<>(16, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Boolean> eldest) {
+            return size() > RECENT_MESSAGE_IDS;
+        }
+    };
+    private boolean draining;
+    private boolean closed;
+    private EventCursor cursor;
+
+    public SessionSubscription(String userId, UUID sessionId, String shard, SseEmitter emitter,
+                               Executor executor, int capacity, EventCursor cursor) {
+        this.userId = userId;
+        this.sessionId = sessionId;
+        this.shard = shard;
+        this.emitter = emitter;
+        this.executor = executor;
+        this.capacity = capacity;
+        this.cursor = cursor;
+    }
+
+    public String userId() {
+        return userId;
+    }
+
+    public UUID sessionId() {
+        return sessionId;
+    }
+
+    public String shard() {
+        return shard;
+    }
+
+    public SseEmitter emitter() {
+        return emitter;
+    }
+
+    // Returns false when the subscriber has fallen too far behind; the caller then drops the connection
+    // and the client resumes from its Last-Event-ID.
+    public synchronized boolean offer(Runnable task) {
+        if (closed) {
+            return true;
+        }
+        if (queue.size() >= capacity) {
+            return false;
+        }
+        queue.add(task);
+        if (!draining) {
+            draining = true;
+            executor.execute(this::drain);
+        }
+        return true;
+    }
+
+    // Returns true only for the call that actually closed it, so cleanup runs once.
+    public synchronized boolean close() {
+        if (closed) {
+            return false;
+        }
+        closed = true;
+        queue.clear();
+        return true;
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    // Live events and catch-up reads can overlap; a message is sent at most once per connection.
+    public synchronized boolean markSent(UUID messageId, Instant createdAt) {
+        if (recentMessageIds.put(messageId, Boolean.TRUE) != null) {
+            return false;
+        }
+        EventCursor sent = new EventCursor(createdAt, messageId);
+        if (cursor == null || sent.compareTo(cursor) > 0) {
+            cursor = sent;
+        }
+        return true;
+    }
+
+    public synchronized EventCursor cursor() {
+        return cursor;
+    }
+
+    private void drain() {
+        while (true) {
+            Runnable task;
+            synchronized (this) {
+                task = closed ? null : queue.poll();
+                if (task == null) {
+                    draining = false;
+                    return;
+                }
+            }
+            task.run();
+        }
+    }
+}
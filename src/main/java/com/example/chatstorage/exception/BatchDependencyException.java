@@ -0,0 +1,7 @@
+package com.example.chatstorage.exception;
+
+public class BatchDependencyException extends RuntimeException {
+    public BatchDependencyException(String message) {
+        super(message);
+    }
+}
@@ -7,23 +7,41 @@ import jakarta.validation.ConstraintViolationException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.ExceptionHandlerMethodResolver;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.time.Instant;
 import java.util.List;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    private static final ExceptionHandlerMethodResolver HANDLERS = new ExceptionHandlerMethodResolver(GlobalExceptionHandler.class);
+
     private final AppProperties appProperties;
 
     public GlobalExceptionHandler(AppProperties appProperties) {
         this.appProperties = appProperties;
     }
 
+    // The response the handler below would send for the exception; batch operations report errors with it.
+    public ResponseEntity<ErrorResponse> toResponse(Exception exception, HttpServletRequest request) {
+        Method handler = HANDLERS.resolveMethod(exception);
+        try {
+            @SuppressWarnings("unchecked")
+            ResponseEntity<ErrorResponse> response = (ResponseEntity<ErrorResponse>) handler.invoke(this, exception, request);
+            return response;
+        } catch (IllegalAccessException | InvocationTargetException invocationFailure) {
+            return handleUnexpected(exception, request);
+        }
+    }
+
     @ExceptionHandler(NotFoundException.class)
     public ResponseEntity<ErrorResponse> handleNotFound(NotFoundException exception, HttpServletRequest request) {
         return error(HttpStatus.NOT_FOUND, exception.getMessage(), request, List.of());
@@ -54,6 +72,102 @@ public class GlobalExceptionHandler {
         return error(HttpStatus.SERVICE_UNAVAILABLE, exception.getMessage(), request, List.of());
     }
 
+    @ExceptionHandler(MessageStreamUnavailableException.class)
+    public ResponseEntity<ErrorResponse> handleMessageStreamBackendDown(MessageStreamUnavailableException exception, HttpServletRequest request) {
+        return error(HttpStatus.SERVICE_UNAVAILABLE, exception.getMessage(), request, List.of());
+    }
+
+    // Subscribers are capped per node; EventSource clients retry, ideally against another replica.
+    @ExceptionHandler(SubscriberLimitExceededException.class)
+    public ResponseEntity<ErrorResponse> handleSubscriberLimit(SubscriberLimitExceededException exception, HttpServletRequest request) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(new ErrorResponse(
+                        Instant.now(),
+                        HttpStatus.SERVICE_UNAVAILABLE.value(),
+                        HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase(),
+                        exception.getMessage(),
+                        request.getRequestURI(),
+                        List.of()
+                ));
+    }
+
+    @ExceptionHandler(BulkheadFullException.class)
+    public ResponseEntity<ErrorResponse> handleBulkheadFull(BulkheadFullException exception, HttpServletRequest request) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ErrorResponse(
+                        Instant.now(),
+                        HttpStatus.SERVICE_UNAVAILABLE.value(),
+                        HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase(),
+                        exception.getMessage(),
+                        request.getRequestURI(),
+                        List.of()
+                ));
+    }
+
+    @ExceptionHandler(RequestTooLargeException.class)
+    public ResponseEntity<ErrorResponse> handleRequestTooLarge(RequestTooLargeException exception, HttpServletRequest request) {
+        return error(HttpStatus.CONTENT_TOO_LARGE, exception.getMessage(), request, List.of());
+    }
+
+    // The ingest buffer is full, draining for shutdown, or its journal is down; the client retries shortly.
+    @ExceptionHandler(IngestUnavailableException.class)
+    public ResponseEntity<ErrorResponse> handleIngestUnavailable(IngestUnavailableException exception, HttpServletRequest request) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ErrorResponse(
+                        Instant.now(),
+                        HttpStatus.SERVICE_UNAVAILABLE.value(),
+                        HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase(),
+                        exception.getMessage(),
+                        request.getRequestURI(),
+                        List.of()
+                ));
+    }
+
+    // The first request with this Idempotency-Key is still running; the retry is answered once it finishes.
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyConflict(IdempotencyConflictException exception, HttpServletRequest request) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ErrorResponse(
+                        Instant.now(),
+                        HttpStatus.CONFLICT.value(),
+                        HttpStatus.CONFLICT.getReasonPhrase(),
+                        exception.getMessage(),
+                        request.getRequestURI(),
+                        List.of()
+                ));
+    }
+
+    @ExceptionHandler(IdempotencyKeyReuseException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyKeyReuse(IdempotencyKeyReuseException exception, HttpServletRequest request) {
+        return error(HttpStatus.UNPROCESSABLE_ENTITY, exception.getMessage(), request, List.of());
+    }
+
+    // A batch operation referred to the result of one that failed, or the atomic batch it was part of rolled back.
+    @ExceptionHandler(BatchDependencyException.class)
+    public ResponseEntity<ErrorResponse> handleBatchDependency(BatchDependencyException exception, HttpServletRequest request) {
+        return error(HttpStatus.FAILED_DEPENDENCY, exception.getMessage(), request, List.of());
+    }
+
+    @ExceptionHandler(CannotCreateTransactionException.class)
+    public ResponseEntity<ErrorResponse> handleCannotCreateTransaction(CannotCreateTransactionException exception, HttpServletRequest request) {
+        // A connection budget rejection surfaces wrapped by the transaction manager.
+        for (Throwable cause = exception.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof BulkheadFullException bulkheadFull) {
+                return handleBulkheadFull(bulkheadFull, request);
+            }
+        }
+        return handleUnexpected(exception, request);
+    }
+
+    @ExceptionHandler(ShardMigrationInProgressException.class)
+    public ResponseEntity<ErrorResponse> handleShardMigration(ShardMigrationInProgressException exception, HttpServletRequest request) {
+        return error(HttpStatus.SERVICE_UNAVAILABLE, exception.getMessage(), request, List.of());
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ErrorResponse> handleValidation(MethodArgumentNotValidException exception, HttpServletRequest request) {
         List<String> details = exception.getBindingResult().getFieldErrors().stream()
@@ -0,0 +1,7 @@
+package com.example.chatstorage.exception;
+
+public class IngestUnavailableException extends RuntimeException {
+    public IngestUnavailableException(String message) {
+        super(message);
+    }
+}
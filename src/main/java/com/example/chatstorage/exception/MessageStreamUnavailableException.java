@@ -0,0 +1,7 @@
+package com.example.chatstorage.exception;
+
+public class MessageStreamUnavailableException extends RuntimeException {
+    public MessageStreamUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
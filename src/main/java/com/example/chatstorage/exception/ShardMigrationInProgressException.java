@@ -0,0 +1,7 @@
+package com.example.chatstorage.exception;
+
+public class ShardMigrationInProgressException extends RuntimeException {
+    public ShardMigrationInProgressException(String message) {
+        super(message);
+    }
+}
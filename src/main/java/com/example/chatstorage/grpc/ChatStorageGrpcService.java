@@ -0,0 +1,331 @@
+package com.example.chatstorage.grpc;
+
+import com.example.chatstorage.bulkhead.BulkheadRegistry;
+import com.example.chatstorage.bulkhead.RequestClass;
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.dto.AddMessageRequest;
+import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.events.EventCursor;
+import com.example.chatstorage.exception.ShardMigrationInProgressException;
+import com.example.chatstorage.proto.v1.AppendMessageRequest;
+import com.example.chatstorage.proto.v1.AppendMessageResponse;
+import com.example.chatstorage.proto.v1.ChatMessage;
+import com.example.chatstorage.proto.v1.ChatSession;
+import com.example.chatstorage.proto.v1.ChatSessionPage;
+import com.example.chatstorage.proto.v1.ChatStorageGrpc;
+import com.example.chatstorage.proto.v1.CreateSessionRequest;
+import com.example.chatstorage.proto.v1.DeleteSessionRequest;
+import com.example.chatstorage.proto.v1.DeleteSessionResponse;
+import com.example.chatstorage.proto.v1.GetSessionRequest;
+import com.example.chatstorage.proto.v1.ListSessionsRequest;
+import com.example.chatstorage.proto.v1.ReadHistoryRequest;
+import com.example.chatstorage.proto.v1.RenameSessionRequest;
+import com.example.chatstorage.proto.v1.SetFavoriteRequest;
+import com.example.chatstorage.service.ChatMessageService;
+import com.example.chatstorage.service.ChatSessionService;
+import com.example.chatstorage.sharding.ShardContext;
+import com.example.chatstorage.sharding.ShardRouter;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Serves the ChatStorage gRPC service from the same services the REST controllers use. Each unit of work
+// (a unary call, one appended message, one history page) takes its request class's bulkhead and runs on
+// the caller's shard, as a REST request would through BulkheadFilter and ShardContextFilter.
+public class ChatStorageGrpcService extends ChatStorageGrpc.ChatStorageImplBase {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatStorageGrpcService.class);
+    private static final int DEFAULT_SESSION_PAGE_SIZE = 20;
+
+    private final ChatSessionService chatSessionService;
+    private final ChatMessageService chatMessageService;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final ObjectProvider<ShardRouter> shardRouter;
+    private final Validator validator;
+    private final AppProperties appProperties;
+
+    public ChatStorageGrpcService(ChatSessionService chatSessionService,
+                                  ChatMessageService chatMessageService,
+                                  BulkheadRegistry bulkheadRegistry,
+                                  ObjectProvider<ShardRouter> shardRouter,
+                                  Validator validator,
+                                  AppProperties appProperties) {
+        this.chatSessionService = chatSessionService;
+        this.chatMessageService = chatMessageService;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.shardRouter = shardRouter;
+        this.validator = validator;
+        this.appProperties = appProperties;
+    }
+
+    @Override
+    public void createSession(CreateSessionRequest request, StreamObserver<ChatSession> responseObserver) {
+        unary(responseObserver, RequestClass.WRITES, true, userId ->
+                GrpcMapper.toProto(chatSessionService.createSession(userId, validated(GrpcMapper.toDto(request)))));
+    }
+
+    @Override
+    public void getSession(GetSessionRequest request, StreamObserver<ChatSession> responseObserver) {
+        unary(responseObserver, RequestClass.READS, false, userId ->
+                GrpcMapper.toProto(chatSessionService.getSession(GrpcMapper.sessionId(request.getSessionId()), userId)));
+    }
+
+    @Override
+    public void listSessions(ListSessionsRequest request, StreamObserver<ChatSessionPage> responseObserver) {
+        unary(responseObserver, RequestClass.READS, false, userId -> {
+            int size = request.getSize() == 0 ? DEFAULT_SESSION_PAGE_SIZE : request.getSize();
+            PageRequest pageable = PageRequest.of(request.getPage(), size, Sort.by(Sort.Direction.DESC, "updatedAt"));
+            Boolean favorite = request.hasFavorite() ? request.getFavorite() : null;
+            return GrpcMapper.toProto(chatSessionService.listSessions(userId, favorite, pageable));
+        });
+    }
+
+    @Override
+    public void renameSession(RenameSessionRequest request, StreamObserver<ChatSession> responseObserver) {
+        unary(responseObserver, RequestClass.WRITES, true, userId -> GrpcMapper.toProto(chatSessionService.renameSession(
+                GrpcMapper.sessionId(request.getSessionId()), userId, validated(GrpcMapper.toDto(request)))));
+    }
+
+    @Override
+    public void setFavorite(SetFavoriteRequest request, StreamObserver<ChatSession> responseObserver) {
+        unary(responseObserver, RequestClass.WRITES, true, userId -> GrpcMapper.toProto(chatSessionService.updateFavorite(
+                GrpcMapper.sessionId(request.getSessionId()), userId, GrpcMapper.toDto(request))));
+    }
+
+    @Override
+    public void deleteSession(DeleteSessionRequest request, StreamObserver<DeleteSessionResponse> responseObserver) {
+        unary(responseObserver, RequestClass.WRITES, true, userId -> {
+            chatSessionService.deleteSession(GrpcMapper.sessionId(request.getSessionId()), userId);
+            return DeleteSessionResponse.getDefaultInstance();
+        });
+    }
+
+    // Reads the next message only once the acknowledgement for the previous one can be sent, so a client
+    // that stops reading acks stops the stream instead of growing the server's outbound buffer.
+    @Override
+    public StreamObserver<AppendMessageRequest> appendMessages(StreamObserver<AppendMessageResponse> responseObserver) {
+        String userId = GrpcCallContext.USER_ID.get();
+        ServerCallStreamObserver<AppendMessageResponse> call = (ServerCallStreamObserver<AppendMessageResponse>) responseObserver;
+        AppendFlow flow = new AppendFlow(call);
+        call.disableAutoRequest();
+        call.setOnReadyHandler(flow::onReady);
+        call.request(1);
+        return new StreamObserver<>() {
+
+            @Override
+            public void onNext(AppendMessageRequest request) {
+                if (flow.failed) {
+                    return;
+                }
+                ChatMessageResponse saved;
+                try {
+                    UUID sessionId = GrpcMapper.sessionId(request.getSessionId());
+                    AddMessageRequest body = validated(GrpcMapper.toDto(request));
+                    saved = onShard(userId, RequestClass.WRITES, true, () -> chatMessageService.addMessage(sessionId, userId, body));
+                } catch (RuntimeException exception) {
+                    flow.failed = true;
+                    fail(call, exception);
+                    return;
+                }
+                call.onNext(AppendMessageResponse.newBuilder()
+                        .setRequestId(request.getRequestId())
+                        .setMessage(GrpcMapper.toProto(saved))
+                        .build());
+                flow.requestNext();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                // The client cancelled; messages already acknowledged stay committed.
+                flow.failed = true;
+            }
+
+            @Override
+            public void onCompleted() {
+                if (!flow.failed) {
+                    call.onCompleted();
+                }
+            }
+        };
+    }
+
+    @Override
+    public void readHistory(ReadHistoryRequest request, StreamObserver<ChatMessage> responseObserver) {
+        String userId = GrpcCallContext.USER_ID.get();
+        HistoryStream stream;
+        try {
+            UUID sessionId = GrpcMapper.sessionId(request.getSessionId());
+            EventCursor after = request.getAfter().isEmpty() ? EventCursor.START : EventCursor.parse(request.getAfter())
+                    .orElseThrow(() -> new IllegalArgumentException("after is not a history cursor: " + request.getAfter()));
+            // Ownership is checked once; the pages below read by session id like the SSE catch-up does.
+            onShard(userId, RequestClass.HEAVY_READS, false, () -> chatSessionService.getSession(sessionId, userId));
+            stream = new HistoryStream((ServerCallStreamObserver<ChatMessage>) responseObserver, userId, sessionId, after,
+                    historyPageSize(request.getPageSize()));
+        } catch (RuntimeException exception) {
+            fail(responseObserver, exception);
+            return;
+        }
+        stream.call.setOnCancelHandler(stream::cancel);
+        stream.call.setOnReadyHandler(stream);
+        stream.run();
+    }
+
+    private int historyPageSize(int requested) {
+        AppProperties.Grpc grpc = appProperties.getGrpc();
+        int size = requested <= 0 ? grpc.getHistoryPageSize() : requested;
+        return Math.max(1, Math.min(size, grpc.getMaxHistoryPageSize()));
+    }
+
+    private <T> void unary(StreamObserver<T> responseObserver, RequestClass requestClass, boolean write,
+                           Function<String, T> action) {
+        String userId = GrpcCallContext.USER_ID.get();
+        T response;
+        try {
+            response = onShard(userId, requestClass, write, () -> action.apply(userId));
+        } catch (RuntimeException exception) {
+            fail(responseObserver, exception);
+            return;
+        }
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    private <T> T onShard(String userId, RequestClass requestClass, boolean write, Supplier<T> action) {
+        return bulkheadRegistry.call(requestClass, () -> {
+            ShardRouter router = shardRouter.getIfAvailable();
+            if (router == null) {
+                return action.get();
+            }
+            if (!write) {
+                return ShardContext.callOn(router.shardFor(userId), action);
+            }
+            long ticket = router.beginWrite();
+            try {
+                if (router.isMigrating(userId)) {
+                    throw new ShardMigrationInProgressException(
+                            "User data is being moved between shards. Try again shortly.");
+                }
+                return ShardContext.callOn(router.shardFor(userId), action);
+            } finally {
+                router.endWrite(ticket);
+            }
+        });
+    }
+
+    private <T> T validated(T request) {
+        Set<ConstraintViolation<T>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+        return request;
+    }
+
+    private void fail(StreamObserver<?> responseObserver, RuntimeException exception) {
+        Status status = GrpcStatuses.fromException(exception);
+        if (status.getCode() == Status.Code.INTERNAL) {
+            log.error("gRPC call failed", exception);
+        }
+        responseObserver.onError(status.asRuntimeException());
+    }
+
+    // Listener callbacks and the ready handler run one at a time per call, so these fields need no locking.
+    private static final class AppendFlow {
+
+        private final ServerCallStreamObserver<?> call;
+        private boolean failed;
+        private boolean awaitingReady;
+
+        private AppendFlow(ServerCallStreamObserver<?> call) {
+            this.call = call;
+        }
+
+        private void requestNext() {
+            if (call.isReady()) {
+                call.request(1);
+            } else {
+                awaitingReady = true;
+            }
+        }
+
+        private void onReady() {
+            if (awaitingReady && !failed && call.isReady()) {
+                awaitingReady = false;
+                call.request(1);
+            }
+        }
+    }
+
+    // Pages through the session with the keyset read while the transport can take more, and picks up
+    // again from the ready handler once a slow client has drained its window.
+    private final class HistoryStream implements Runnable {
+
+        private final ServerCallStreamObserver<ChatMessage> call;
+        private final String userId;
+        private final UUID sessionId;
+        private final int pageSize;
+        private final Deque<ChatMessageResponse> buffered = new ArrayDeque<>();
+        private EventCursor cursor;
+        private boolean exhausted;
+        private boolean done;
+
+        private HistoryStream(ServerCallStreamObserver<ChatMessage> call, String userId, UUID sessionId,
+                              EventCursor cursor, int pageSize) {
+            this.call = call;
+            this.userId = userId;
+            this.sessionId = sessionId;
+            this.cursor = cursor;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public void run() {
+            if (done) {
+                return;
+            }
+            try {
+                while (call.isReady()) {
+                    if (buffered.isEmpty()) {
+                        if (exhausted) {
+                            done = true;
+                            call.onCompleted();
+                            return;
+                        }
+                        EventCursor from = cursor;
+                        List<ChatMessageResponse> page = onShard(userId, RequestClass.HEAVY_READS, false, () ->
+                                chatMessageService.listMessagesAfter(sessionId, from.createdAt(), from.messageId(), pageSize));
+                        exhausted = page.size() < pageSize;
+                        buffered.addAll(page);
+                        continue;
+                    }
+                    ChatMessageResponse message = buffered.poll();
+                    cursor = new EventCursor(message.createdAt(), message.id());
+                    call.onNext(GrpcMapper.toProto(message));
+                }
+            } catch (RuntimeException exception) {
+                done = true;
+                fail(call, exception);
+            }
+        }
+
+        private void cancel() {
+            done = true;
+            buffered.clear();
+        }
+    }
+}
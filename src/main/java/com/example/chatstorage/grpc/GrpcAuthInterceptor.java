@@ -0,0 +1,40 @@
+package com.example.chatstorage.grpc;
+
+import com.example.chatstorage.auth.AuthenticatedApiKey;
+import com.example.chatstorage.bulkhead.BulkheadRegistry;
+import com.example.chatstorage.bulkhead.RequestClass;
+import com.example.chatstorage.service.ApiKeyService;
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+
+// Authenticates every call with the x-api-key metadata entry, the way ApiKeyAuthFilter does for REST.
+public class GrpcAuthInterceptor implements ServerInterceptor {
+
+    private final ApiKeyService apiKeyService;
+    private final BulkheadRegistry bulkheadRegistry;
+
+    public GrpcAuthInterceptor(ApiKeyService apiKeyService, BulkheadRegistry bulkheadRegistry) {
+        this.apiKeyService = apiKeyService;
+        this.bulkheadRegistry = bulkheadRegistry;
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        String providedApiKey = headers.get(GrpcCallContext.API_KEY);
+        AuthenticatedApiKey authenticatedApiKey;
+        try {
+            authenticatedApiKey = bulkheadRegistry.call(RequestClass.AUTH, () -> apiKeyService.authenticate(providedApiKey));
+        } catch (RuntimeException exception) {
+            call.close(GrpcStatuses.fromException(exception), new Metadata());
+            return new ServerCall.Listener<>() {
+            };
+        }
+        Context context = Context.current().withValue(GrpcCallContext.USER_ID, authenticatedApiKey.userId());
+        return Contexts.interceptCall(context, call, headers, next);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.chatstorage.grpc;
+
+import io.grpc.Context;
+import io.grpc.Metadata;
+
+// The gRPC counterpart of AuthContext: the interceptor authenticates the call and the service reads the user from here.
+public final class GrpcCallContext {
+
+    public static final Metadata.Key<String> API_KEY = Metadata.Key.of("x-api-key", Metadata.ASCII_STRING_MARSHALLER);
+    public static final Metadata.Key<String> FORWARDED_FOR = Metadata.Key.of("x-forwarded-for", Metadata.ASCII_STRING_MARSHALLER);
+    public static final Context.Key<String> USER_ID = Context.key("chatstorage-user-id");
+
+    private GrpcCallContext() {
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.chatstorage.grpc;
+
+import com.example.chatstorage.dto.AddMessageRequest;
+import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.dto.ChatSessionResponse;
+import com.example.chatstorage.dto.PageResponse;
+import com.example.chatstorage.dto.UpdateFavoriteRequest;
+import com.example.chatstorage.dto.UpdateSessionNameRequest;
+import com.example.chatstorage.entity.SenderType;
+import com.example.chatstorage.proto.v1.AppendMessageRequest;
+import com.example.chatstorage.proto.v1.ChatMessage;
+import com.example.chatstorage.proto.v1.ChatSession;
+import com.example.chatstorage.proto.v1.ChatSessionPage;
+import com.example.chatstorage.proto.v1.CreateSessionRequest;
+import com.example.chatstorage.proto.v1.RenameSessionRequest;
+import com.example.chatstorage.proto.v1.SetFavoriteRequest;
+import com.google.protobuf.Timestamp;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// Converts between the generated protobuf messages and the DTOs the services take and return.
+final class GrpcMapper {
+
+    private GrpcMapper() {
+    }
+
+    static UUID sessionId(String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("session_id is required");
+        }
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException exception) {
+            throw new IllegalArgumentException("session_id is not a UUID: " + value);
+        }
+    }
+
+    static com.example.chatstorage.dto.CreateSessionRequest toDto(CreateSessionRequest request) {
+        return new com.example.chatstorage.dto.CreateSessionRequest(request.hasTitle() ? request.getTitle() : null);
+    }
+
+    static UpdateSessionNameRequest toDto(RenameSessionRequest request) {
+        return new UpdateSessionNameRequest(request.getTitle());
+    }
+
+    static UpdateFavoriteRequest toDto(SetFavoriteRequest request) {
+        return new UpdateFavoriteRequest(request.getFavorite());
+    }
+
+    static AddMessageRequest toDto(AppendMessageRequest request) {
+        float[] embedding = null;
+        if (request.getEmbeddingCount() > 0) {
+            embedding = new float[request.getEmbeddingCount()];
+            for (int i = 0; i < embedding.length; i++) {
+                embedding[i] = request.getEmbedding(i);
+            }
+        }
+        return new AddMessageRequest(sender(request.getSenderValue()), request.getContent(),
+                request.hasRetrievedContext() ? request.getRetrievedContext() : null, embedding);
+    }
+
+    static ChatMessage toProto(ChatMessageResponse message) {
+        ChatMessage.Builder builder = ChatMessage.newBuilder()
+                .setId(message.id().toString())
+                .setSessionId(message.sessionId().toString())
+                .setContent(message.content() == null ? "" : message.content());
+        if (message.sender() != null) {
+            builder.setSenderValue(senderValue(message.sender()));
+        }
+        if (message.retrievedContext() != null) {
+            builder.setRetrievedContext(message.retrievedContext());
+        }
+        if (message.createdAt() != null) {
+            builder.setCreatedAt(timestamp(message.createdAt()));
+        }
+        return builder.build();
+    }
+
+    static ChatSession toProto(ChatSessionResponse session) {
+        ChatSession.Builder builder = ChatSession.newBuilder()
+                .setId(session.id().toString())
+                .setUserId(session.userId())
+                .setTitle(session.title() == null ? "" : session.title())
+                .setFavorite(session.favorite())
+                .setMessageCount(session.messageCount())
+                .setTotalContentBytes(session.totalContentBytes());
+        if (session.createdAt() != null) {
+            builder.setCreatedAt(timestamp(session.createdAt()));
+        }
+        if (session.updatedAt() != null) {
+            builder.setUpdatedAt(timestamp(session.updatedAt()));
+        }
+        if (session.lastMessageAt() != null) {
+            builder.setLastMessageAt(timestamp(session.lastMessageAt()));
+        }
+        if (session.lastSender() != null) {
+            builder.setLastSenderValue(senderValue(session.lastSender()));
+        }
+        if (session.lastMessagePreview() != null) {
+            builder.setLastMessagePreview(session.lastMessagePreview());
+        }
+        return builder.build();
+    }
+
+    static ChatSessionPage toProto(PageResponse<ChatSessionResponse> page) {
+        ChatSessionPage.Builder builder = ChatSessionPage.newBuilder()
+                .setPage(page.page())
+                .setSize(page.size())
+                .setTotalItems(page.totalItems())
+                .setTotalPages(page.totalPages())
+                .setHasNext(page.hasNext());
+        page.items().forEach(session -> builder.addItems(toProto(session)));
+        return builder.build();
+    }
+
+    // Proto enums reserve 0 for "unspecified", so values are shifted by one, as in the REST protobuf converter.
+    static SenderType sender(int value) {
+        SenderType[] values = SenderType.values();
+        return value >= 1 && value <= values.length ? values[value - 1] : null;
+    }
+
+    private static int senderValue(SenderType sender) {
+        return sender.ordinal() + 1;
+    }
+
+    private static Timestamp timestamp(Instant instant) {
+        return Timestamp.newBuilder().setSeconds(instant.getEpochSecond()).setNanos(instant.getNano()).build();
+    }
+}
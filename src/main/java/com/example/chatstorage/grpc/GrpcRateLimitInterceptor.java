@@ -0,0 +1,69 @@
+package com.example.chatstorage.grpc;
+
+import com.example.chatstorage.security.RateLimitingFilter;
+import com.example.chatstorage.security.RedisRateLimiterService;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Grpc;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+// Charges one token per inbound message, so a long AppendMessages stream costs what the same appends
+// would over REST. The first rejected message ends the call.
+public class GrpcRateLimitInterceptor implements ServerInterceptor {
+
+    private final RedisRateLimiterService redisRateLimiterService;
+
+    public GrpcRateLimitInterceptor(RedisRateLimiterService redisRateLimiterService) {
+        this.redisRateLimiterService = redisRateLimiterService;
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        String clientKey = RateLimitingFilter.fingerprint(headers.get(GrpcCallContext.API_KEY), clientIp(call, headers));
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(next.startCall(call, headers)) {
+
+            // Listener callbacks are serialized per call, so a plain field is enough.
+            private boolean rejected;
+
+            @Override
+            public void onMessage(ReqT message) {
+                if (rejected) {
+                    return;
+                }
+                try {
+                    redisRateLimiterService.acquirePermission(clientKey);
+                } catch (RuntimeException exception) {
+                    rejected = true;
+                    call.close(GrpcStatuses.fromException(exception), new Metadata());
+                    return;
+                }
+                super.onMessage(message);
+            }
+
+            @Override
+            public void onHalfClose() {
+                if (!rejected) {
+                    super.onHalfClose();
+                }
+            }
+        };
+    }
+
+    private static String clientIp(ServerCall<?, ?> call, Metadata headers) {
+        String forwardedFor = headers.get(GrpcCallContext.FORWARDED_FOR);
+        if (forwardedFor != null && !forwardedFor.isBlank()) {
+            return forwardedFor.split(",")[0].trim();
+        }
+        SocketAddress remote = call.getAttributes().get(Grpc.TRANSPORT_ATTR_REMOTE_ADDR);
+        if (remote instanceof InetSocketAddress inet) {
+            return inet.getAddress() != null ? inet.getAddress().getHostAddress() : inet.getHostString();
+        }
+        return String.valueOf(remote);
+    }
+}
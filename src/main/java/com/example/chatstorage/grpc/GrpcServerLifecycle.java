@@ -0,0 +1,85 @@
+package com.example.chatstorage.grpc;
+
+import com.example.chatstorage.config.AppProperties;
+import io.grpc.BindableService;
+import io.grpc.Grpc;
+import io.grpc.InsecureServerCredentials;
+import io.grpc.Server;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Runs the gRPC server on its own port beside Tomcat. Every call blocks on JDBC, so calls are served on
+// virtual threads when spring.threads.virtual.enabled is set and on a bounded platform pool otherwise.
+public class GrpcServerLifecycle implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(GrpcServerLifecycle.class);
+
+    private final AppProperties.Grpc properties;
+    private final BindableService service;
+    private final List<ServerInterceptor> interceptors;
+    private final boolean virtualThreads;
+    private ExecutorService executor;
+    private Server server;
+
+    // Interceptors run last to first, as with ServerInterceptors.intercept.
+    public GrpcServerLifecycle(AppProperties.Grpc properties, BindableService service,
+                               List<ServerInterceptor> interceptors, boolean virtualThreads) {
+        this.properties = properties;
+        this.service = service;
+        this.interceptors = interceptors;
+        this.virtualThreads = virtualThreads;
+    }
+
+    @Override
+    public void start() {
+        executor = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("grpc-", 0).factory())
+                : Executors.newFixedThreadPool(Math.max(1, properties.getExecutorThreads()), Thread.ofPlatform().name("grpc-", 0).factory());
+        server = Grpc.newServerBuilderForPort(properties.getPort(), InsecureServerCredentials.create())
+                .executor(executor)
+                .maxInboundMessageSize(properties.getMaxInboundMessageBytes())
+                .addService(ServerInterceptors.intercept(service, interceptors))
+                .build();
+        try {
+            server.start();
+        } catch (IOException exception) {
+            executor.shutdownNow();
+            throw new IllegalStateException("Could not start gRPC server on port " + properties.getPort(), exception);
+        }
+        log.info("gRPC server listening on port {}", server.getPort());
+    }
+
+    // New calls are refused at once; calls in flight get the grace period before they are cancelled.
+    @Override
+    public void stop() {
+        if (server == null) {
+            return;
+        }
+        server.shutdown();
+        try {
+            if (!server.awaitTermination(Math.max(0, properties.getShutdownGraceMillis()), TimeUnit.MILLISECONDS)) {
+                server.shutdownNow();
+            }
+        } catch (InterruptedException exception) {
+            server.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+            server = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+}
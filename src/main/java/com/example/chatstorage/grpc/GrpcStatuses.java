@@ -0,0 +1,64 @@
+package com.example.chatstorage.grpc;
+
+import com.example.chatstorage.exception.BulkheadFullException;
+import com.example.chatstorage.exception.IngestUnavailableException;
+import com.example.chatstorage.exception.MessageStreamUnavailableException;
+import com.example.chatstorage.exception.NotFoundException;
+import com.example.chatstorage.exception.RateLimitExceededException;
+import com.example.chatstorage.exception.RateLimitServiceUnavailableException;
+import com.example.chatstorage.exception.ShardMigrationInProgressException;
+import com.example.chatstorage.exception.UnauthorizedException;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import jakarta.validation.ConstraintViolationException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.util.stream.Collectors;
+
+// Maps the exceptions GlobalExceptionHandler turns into HTTP statuses onto their gRPC equivalents.
+public final class GrpcStatuses {
+
+    private GrpcStatuses() {
+    }
+
+    public static Status fromException(Throwable exception) {
+        if (exception instanceof StatusRuntimeException statusException) {
+            return statusException.getStatus();
+        }
+        if (exception instanceof NotFoundException) {
+            return Status.NOT_FOUND.withDescription(exception.getMessage());
+        }
+        if (exception instanceof UnauthorizedException) {
+            return Status.UNAUTHENTICATED.withDescription(exception.getMessage());
+        }
+        if (exception instanceof RateLimitExceededException) {
+            return Status.RESOURCE_EXHAUSTED.withDescription(exception.getMessage());
+        }
+        if (exception instanceof ConstraintViolationException violations) {
+            String details = violations.getConstraintViolations().stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+            return Status.INVALID_ARGUMENT.withDescription("Validation failed: " + details);
+        }
+        if (exception instanceof IllegalArgumentException) {
+            return Status.INVALID_ARGUMENT.withDescription(exception.getMessage());
+        }
+        if (exception instanceof BulkheadFullException
+                || exception instanceof RateLimitServiceUnavailableException
+                || exception instanceof MessageStreamUnavailableException
+                || exception instanceof IngestUnavailableException
+                || exception instanceof ShardMigrationInProgressException) {
+            return Status.UNAVAILABLE.withDescription(exception.getMessage());
+        }
+        if (exception instanceof CannotCreateTransactionException) {
+            // A connection budget rejection surfaces wrapped by the transaction manager.
+            for (Throwable cause = exception.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof BulkheadFullException) {
+                    return Status.UNAVAILABLE.withDescription(cause.getMessage());
+                }
+            }
+        }
+        return Status.INTERNAL.withDescription("Unexpected server error").withCause(exception);
+    }
+}
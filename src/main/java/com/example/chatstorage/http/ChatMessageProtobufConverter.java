@@ -0,0 +1,172 @@
+package com.example.chatstorage.http;
+
+import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.dto.PageResponse;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.time.Instant;
+
+// Writes message pages and single messages in the wire format of src/main/proto/chat_messages.proto.
+// Encoded by hand with CodedOutputStream rather than through the generated classes: writing straight
+// from the DTOs avoids building a second object graph per response.
+public class ChatMessageProtobufConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final MediaType APPLICATION_PROTOBUF = new MediaType("application", "x-protobuf");
+
+    private static final int BUFFER_SIZE = 8192;
+
+    public ChatMessageProtobufConverter() {
+        super(APPLICATION_PROTOBUF);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ChatMessageResponse.class.isAssignableFrom(clazz) || PageResponse.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    // Only pages of messages have a schema; other pages answer 406 for this media type.
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        if (!canWrite(mediaType)) {
+            return false;
+        }
+        if (ChatMessageResponse.class.isAssignableFrom(clazz)) {
+            return true;
+        }
+        return type instanceof ParameterizedType parameterized
+                && parameterized.getRawType() == PageResponse.class
+                && parameterized.getActualTypeArguments()[0] == ChatMessageResponse.class;
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Protobuf request bodies are not supported", inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Protobuf request bodies are not supported", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage) throws IOException {
+        CodedOutputStream output = CodedOutputStream.newInstance(outputMessage.getBody(), BUFFER_SIZE);
+        if (value instanceof ChatMessageResponse message) {
+            writeMessageFields(output, message);
+        } else {
+            writePage(output, (PageResponse<?>) value);
+        }
+        output.flush();
+    }
+
+    static void writePage(CodedOutputStream output, PageResponse<?> page) throws IOException {
+        for (Object item : page.items()) {
+            ChatMessageResponse message = (ChatMessageResponse) item;
+            output.writeTag(1, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            output.writeUInt32NoTag(messageSize(message));
+            writeMessageFields(output, message);
+        }
+        if (page.page() != 0) {
+            output.writeInt32(2, page.page());
+        }
+        if (page.size() != 0) {
+            output.writeInt32(3, page.size());
+        }
+        if (page.totalItems() != 0) {
+            output.writeInt64(4, page.totalItems());
+        }
+        if (page.totalPages() != 0) {
+            output.writeInt32(5, page.totalPages());
+        }
+        if (page.hasNext()) {
+            output.writeBool(6, true);
+        }
+    }
+
+    private static void writeMessageFields(CodedOutputStream output, ChatMessageResponse message) throws IOException {
+        if (message.id() != null) {
+            output.writeString(1, message.id().toString());
+        }
+        if (message.sessionId() != null) {
+            output.writeString(2, message.sessionId().toString());
+        }
+        if (message.sender() != null) {
+            output.writeEnum(3, sender(message));
+        }
+        if (message.content() != null && !message.content().isEmpty()) {
+            output.writeString(4, message.content());
+        }
+        if (message.retrievedContext() != null) {
+            output.writeString(5, message.retrievedContext());
+        }
+        if (message.createdAt() != null) {
+            output.writeTag(6, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            output.writeUInt32NoTag(timestampSize(message.createdAt()));
+            if (message.createdAt().getEpochSecond() != 0) {
+                output.writeInt64(1, message.createdAt().getEpochSecond());
+            }
+            if (message.createdAt().getNano() != 0) {
+                output.writeInt32(2, message.createdAt().getNano());
+            }
+        }
+    }
+
+    private static int messageSize(ChatMessageResponse message) {
+        int size = 0;
+        if (message.id() != null) {
+            size += CodedOutputStream.computeStringSize(1, message.id().toString());
+        }
+        if (message.sessionId() != null) {
+            size += CodedOutputStream.computeStringSize(2, message.sessionId().toString());
+        }
+        if (message.sender() != null) {
+            size += CodedOutputStream.computeEnumSize(3, sender(message));
+        }
+        if (message.content() != null && !message.content().isEmpty()) {
+            size += CodedOutputStream.computeStringSize(4, message.content());
+        }
+        if (message.retrievedContext() != null) {
+            size += CodedOutputStream.computeStringSize(5, message.retrievedContext());
+        }
+        if (message.createdAt() != null) {
+            int timestamp = timestampSize(message.createdAt());
+            size += CodedOutputStream.computeTagSize(6) + CodedOutputStream.computeUInt32SizeNoTag(timestamp) + timestamp;
+        }
+        return size;
+    }
+
+    private static int timestampSize(Instant instant) {
+        int size = 0;
+        if (instant.getEpochSecond() != 0) {
+            size += CodedOutputStream.computeInt64Size(1, instant.getEpochSecond());
+        }
+        if (instant.getNano() != 0) {
+            size += CodedOutputStream.computeInt32Size(2, instant.getNano());
+        }
+        return size;
+    }
+
+    // Proto enums reserve 0 for "unspecified", so values are shifted by one.
+    private static int sender(ChatMessageResponse message) {
+        return message.sender().ordinal() + 1;
+    }
+}
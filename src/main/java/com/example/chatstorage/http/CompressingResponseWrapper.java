@@ -0,0 +1,301 @@
+package com.example.chatstorage.http;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+// Holds back the first bytes of the body until it is clear whether the response is worth compressing:
+// small bodies go out as-is with a Content-Length, larger ones are encoded with the negotiated coding.
+// The decision is made once; after that writes go straight to the chosen stream.
+public class CompressingResponseWrapper extends HttpServletResponseWrapper {
+
+    private final ContentCoding coding;
+    private final int threshold;
+    private final int zstdLevel;
+    private final List<MediaType> compressibleTypes;
+    // A ReentrantLock rather than synchronized, so async writers on virtual threads are never pinned.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private volatile OutputStream target;
+    private OutputStream compressor;
+    private long declaredLength = -1;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+    private boolean encodedNotModified;
+
+    public CompressingResponseWrapper(HttpServletResponse response, ContentCoding coding, int threshold,
+                                      int zstdLevel, List<MediaType> compressibleTypes) {
+        super(response);
+        this.coding = coding;
+        this.threshold = Math.max(1, threshold);
+        this.zstdLevel = zstdLevel;
+        this.compressibleTypes = compressibleTypes;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called");
+        }
+        if (outputStream == null) {
+            outputStream = new DeferredOutputStream(getResponse().getOutputStream());
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called");
+            }
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding == null ? StandardCharsets.ISO_8859_1 : Charset.forName(encoding);
+            outputStream = new DeferredOutputStream(getResponse().getOutputStream());
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, charset));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setContentLength(int length) {
+        setContentLengthLong(length);
+    }
+
+    @Override
+    public void setContentLengthLong(long length) {
+        lock.lock();
+        try {
+            if (target == null) {
+                declaredLength = length;
+            } else if (compressor == null) {
+                super.setContentLengthLong(length);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(value == null ? -1 : Long.parseLong(value.trim()));
+            return;
+        }
+        super.setHeader(name, value);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(value == null ? -1 : Long.parseLong(value.trim()));
+            return;
+        }
+        super.addHeader(name, value);
+    }
+
+    // Flushing a small body would force an early decision and defeat compression; it is written at finish().
+    @Override
+    public void flushBuffer() throws IOException {
+        if (target != null) {
+            if (writer != null) {
+                writer.flush();
+            }
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        lock.lock();
+        try {
+            if (target == null) {
+                pending.reset();
+            }
+        } finally {
+            lock.unlock();
+        }
+        super.resetBuffer();
+    }
+
+    @Override
+    public void reset() {
+        lock.lock();
+        try {
+            if (target == null) {
+                pending.reset();
+                declaredLength = -1;
+            }
+        } finally {
+            lock.unlock();
+        }
+        super.reset();
+    }
+
+    // The client revalidates a compressed copy: a 304 must name the ETag that copy was sent with.
+    public void encodeNotModifiedEtag() {
+        encodedNotModified = true;
+    }
+
+    // Called by the filter when the handler has returned: writes a held-back body or ends the compressed stream.
+    public void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        lock.lock();
+        try {
+            if (target == null) {
+                if (encodedNotModified && getStatus() == SC_NOT_MODIFIED) {
+                    encodeEtag();
+                }
+                useRaw(true);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (compressor != null) {
+            compressor.close();
+        }
+    }
+
+    // Async responses (SSE, streamed exports) keep writing after the filter returns and are sent uncompressed.
+    public void passThrough() throws IOException {
+        lock.lock();
+        try {
+            if (target == null) {
+                useRaw(false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isCompressing() {
+        return compressor != null;
+    }
+
+    private void write(byte[] bytes, int offset, int length) throws IOException {
+        OutputStream chosen = target;
+        if (chosen == null) {
+            lock.lock();
+            try {
+                if (target == null) {
+                    if (!isCompressible()) {
+                        useRaw(false);
+                    } else {
+                        pending.write(bytes, offset, length);
+                        if (pending.size() >= threshold) {
+                            useCompressed();
+                        }
+                        return;
+                    }
+                }
+                chosen = target;
+            } finally {
+                lock.unlock();
+            }
+        }
+        chosen.write(bytes, offset, length);
+    }
+
+    private boolean isCompressible() {
+        int status = getStatus();
+        if (status == SC_NO_CONTENT || status == SC_NOT_MODIFIED || status < 200) {
+            return false;
+        }
+        if (getHeader(HttpHeaders.CONTENT_ENCODING) != null || getContentType() == null) {
+            return false;
+        }
+        MediaType contentType;
+        try {
+            contentType = MediaType.parseMediaType(getContentType());
+        } catch (IllegalArgumentException exception) {
+            return false;
+        }
+        return compressibleTypes.stream().anyMatch(type -> type.includes(contentType));
+    }
+
+    private void useRaw(boolean complete) throws IOException {
+        OutputStream raw = getResponse().getOutputStream();
+        if (declaredLength >= 0) {
+            super.setContentLengthLong(declaredLength);
+        } else if (complete && pending.size() > 0 && !isCommitted()) {
+            super.setContentLengthLong(pending.size());
+        }
+        pending.writeTo(raw);
+        pending.reset();
+        target = raw;
+    }
+
+    private void useCompressed() throws IOException {
+        HttpServletResponse response = (HttpServletResponse) getResponse();
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, coding.token());
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        encodeEtag();
+        OutputStream raw = response.getOutputStream();
+        compressor = coding == ContentCoding.ZSTD ? new ZstdOutputStream(raw, zstdLevel) : new GZIPOutputStream(raw, 8192);
+        pending.writeTo(compressor);
+        pending.reset();
+        target = compressor;
+    }
+
+    // The encoded bytes differ from the identity representation, so a strong ETag names the coding and stays strong.
+    private void encodeEtag() {
+        String etag = getHeader(HttpHeaders.ETAG);
+        if (etag != null) {
+            ((HttpServletResponse) getResponse()).setHeader(HttpHeaders.ETAG, coding.encodeEtag(etag));
+        }
+    }
+
+    private final class DeferredOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+
+        private DeferredOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            CompressingResponseWrapper.this.write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            CompressingResponseWrapper.this.write(bytes, offset, length);
+        }
+
+        // Only an uncompressed stream is flushed through; the encoder is flushed once, at finish().
+        @Override
+        public void flush() throws IOException {
+            if (target != null && compressor == null) {
+                delegate.flush();
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            delegate.setWriteListener(listener);
+        }
+    }
+}
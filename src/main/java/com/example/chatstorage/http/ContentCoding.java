@@ -0,0 +1,80 @@
+package com.example.chatstorage.http;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+public enum ContentCoding {
+    ZSTD("zstd"),
+    GZIP("gzip");
+
+    private static final Pattern ETAG_SUFFIX = Pattern.compile("-(?:zstd|gzip)\"");
+
+    private final String token;
+
+    ContentCoding(String token) {
+        this.token = token;
+    }
+
+    public String token() {
+        return token;
+    }
+
+    // A strong ETag stays strong for the encoded bytes but names the coding: "abc" becomes "abc-gzip".
+    public String encodeEtag(String etag) {
+        if (etag == null || etag.startsWith("W/") || !etag.endsWith("\"")) {
+            return etag;
+        }
+        return etag.substring(0, etag.length() - 1) + "-" + token + "\"";
+    }
+
+    // Reverses encodeEtag for every entity tag in an If-None-Match or If-Match value.
+    public static String decodeEtags(String header) {
+        return header == null ? null : ETAG_SUFFIX.matcher(header).replaceAll("\"");
+    }
+
+    public static boolean hasEncodedEtag(String header) {
+        return header != null && ETAG_SUFFIX.matcher(header).find();
+    }
+
+    // Picks the coding with the highest q-value from Accept-Encoding; zstd wins ties. Returns null for identity.
+    public static ContentCoding negotiate(String acceptEncoding, boolean zstdEnabled) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return null;
+        }
+        double zstd = -1;
+        double gzip = -1;
+        double wildcard = -1;
+        for (String part : acceptEncoding.split(",")) {
+            String[] pieces = part.trim().split(";");
+            String coding = pieces[0].trim().toLowerCase(Locale.ROOT);
+            double quality = quality(pieces);
+            switch (coding) {
+                case "zstd" -> zstd = quality;
+                case "gzip", "x-gzip" -> gzip = Math.max(gzip, quality);
+                case "*" -> wildcard = quality;
+                default -> {
+                }
+            }
+        }
+        zstd = zstd < 0 ? wildcard : zstd;
+        gzip = gzip < 0 ? wildcard : gzip;
+        if (zstdEnabled && zstd > 0 && zstd >= gzip) {
+            return ZSTD;
+        }
+        return gzip > 0 ? GZIP : null;
+    }
+
+    private static double quality(String[] pieces) {
+        for (int i = 1; i < pieces.length; i++) {
+            String parameter = pieces[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException exception) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.chatstorage.http;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import org.springframework.http.HttpHeaders;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+// Shows handlers the identity ETags a client got back from a compressed response, so conditional requests compare
+// against the ETag the handler computes without knowing about the coding.
+public class EncodedEtagRequestWrapper extends HttpServletRequestWrapper {
+
+    public EncodedEtagRequestWrapper(HttpServletRequest request) {
+        super(request);
+    }
+
+    // True when If-None-Match names an encoded ETag, so a 304 should repeat it in the encoded form.
+    public boolean hasEncodedValidator() {
+        return ContentCoding.hasEncodedEtag(super.getHeader(HttpHeaders.IF_NONE_MATCH));
+    }
+
+    @Override
+    public String getHeader(String name) {
+        String value = super.getHeader(name);
+        return isConditional(name) ? ContentCoding.decodeEtags(value) : value;
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+        Enumeration<String> values = super.getHeaders(name);
+        if (!isConditional(name) || values == null) {
+            return values;
+        }
+        List<String> decoded = Collections.list(values).stream().map(ContentCoding::decodeEtags).toList();
+        return Collections.enumeration(decoded);
+    }
+
+    private static boolean isConditional(String name) {
+        return HttpHeaders.IF_NONE_MATCH.equalsIgnoreCase(name) || HttpHeaders.IF_MATCH.equalsIgnoreCase(name);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.chatstorage.idempotency;
+
+import java.time.Duration;
+
+// Keeps the first response of each idempotent request for a while, shared by every node that can receive the retry.
+public interface IdempotencyStore {
+
+    // Atomically claims the key for a new request. Returns null when the caller now owns the key, otherwise
+    // what the key already holds: an in-flight marker or the finished response. claimToken is unique per request.
+    IdempotentResponse claim(String key, String fingerprint, String claimToken, Duration inFlightTtl);
+
+    // Stores the response unless the caller's marker expired and another request has claimed the key since.
+    void complete(String key, String claimToken, IdempotentResponse response, Duration ttl);
+
+    // Drops the caller's own in-flight marker so the client can retry; anything else under the key is left alone.
+    void release(String key, String fingerprint, String claimToken);
+}
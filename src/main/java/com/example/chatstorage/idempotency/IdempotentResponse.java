@@ -0,0 +1,22 @@
+package com.example.chatstorage.idempotency;
+
+import java.util.Map;
+
+// What the first request with an Idempotency-Key answered. While that request is still running the key holds
+// a marker with status 0, so a concurrent duplicate can be told apart from a finished one. The marker carries the
+// claim token of the request that placed it, so only that request can release or complete it.
+public record IdempotentResponse(String fingerprint, int status, Map<String, String> headers, byte[] body,
+                                 String claimToken) {
+
+    public IdempotentResponse(String fingerprint, int status, Map<String, String> headers, byte[] body) {
+        this(fingerprint, status, headers, body, null);
+    }
+
+    public static IdempotentResponse inFlight(String fingerprint, String claimToken) {
+        return new IdempotentResponse(fingerprint, 0, Map.of(), new byte[0], claimToken);
+    }
+
+    public boolean isComplete() {
+        return status > 0;
+    }
+}
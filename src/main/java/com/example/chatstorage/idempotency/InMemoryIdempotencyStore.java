@@ -0,0 +1,77 @@
+package com.example.chatstorage.idempotency;
+
+import com.example.chatstorage.config.AppProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// For single-node deployments and tests. Retries that land on another node are not deduplicated.
+@Component
+@ConditionalOnProperty(prefix = "app.idempotency", name = "store", havingValue = "memory")
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AppProperties appProperties;
+    private final Clock clock;
+
+    public InMemoryIdempotencyStore(AppProperties appProperties) {
+        this(appProperties, Clock.systemUTC());
+    }
+
+    InMemoryIdempotencyStore(AppProperties appProperties, Clock clock) {
+        this.appProperties = appProperties;
+        this.clock = clock;
+    }
+
+    @Override
+    public IdempotentResponse claim(String key, String fingerprint, String claimToken, Duration inFlightTtl) {
+        Instant now = clock.instant();
+        if (isFull() && !entries.containsKey(key)) {
+            entries.values().removeIf(entry -> !entry.expiresAt().isAfter(now));
+            if (isFull()) {
+                // Every entry is still live; this request runs without deduplication rather than growing the map.
+                return null;
+            }
+        }
+        Entry claimed = new Entry(IdempotentResponse.inFlight(fingerprint, claimToken), now.plus(inFlightTtl));
+        Entry current = entries.compute(key, (ignored, existing) ->
+                existing == null || !existing.expiresAt().isAfter(now) ? claimed : existing);
+        return current == claimed ? null : current.response();
+    }
+
+    @Override
+    public void complete(String key, String claimToken, IdempotentResponse response, Duration ttl) {
+        if (isFull() && !entries.containsKey(key)) {
+            return;
+        }
+        Instant now = clock.instant();
+        Entry completed = new Entry(response, now.plus(ttl));
+        // Never over a live claim of another request, which took the key after ours expired.
+        entries.compute(key, (ignored, existing) ->
+                existing == null || !existing.expiresAt().isAfter(now) || isClaimedBy(existing, claimToken)
+                        ? completed : existing);
+    }
+
+    @Override
+    public void release(String key, String fingerprint, String claimToken) {
+        entries.computeIfPresent(key, (ignored, existing) ->
+                isClaimedBy(existing, claimToken) && existing.response().fingerprint().equals(fingerprint)
+                        ? null : existing);
+    }
+
+    private static boolean isClaimedBy(Entry entry, String claimToken) {
+        return !entry.response().isComplete() && claimToken != null && claimToken.equals(entry.response().claimToken());
+    }
+
+    private boolean isFull() {
+        return entries.size() >= appProperties.getIdempotency().getMemoryMaxEntries();
+    }
+
+    private record Entry(IdempotentResponse response, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.chatstorage.idempotency;
+
+import com.example.chatstorage.config.AppProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+// One string per key: SET NX places the in-flight marker, so exactly one of several concurrent duplicates runs.
+@Component
+@ConditionalOnProperty(prefix = "app.idempotency", name = "store", havingValue = "redis", matchIfMissing = true)
+public class RedisIdempotencyStore implements IdempotencyStore {
+
+    // Deletes the marker only if it is still ours; after it expired another request may own the key. The marker
+    // holds a token unique to the claim, so a duplicate with the same body cannot be mistaken for us.
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end
+            return 0
+            """, Long.class);
+
+    // Stores the response over our own marker, or over nothing once it expired, but never over another claim.
+    private static final DefaultRedisScript<Long> COMPLETE_SCRIPT = new DefaultRedisScript<>("""
+            local current = redis.call('GET', KEYS[1])
+            if current and current ~= ARGV[1] then return 0 end
+            redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3])
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final AppProperties appProperties;
+
+    public RedisIdempotencyStore(StringRedisTemplate redisTemplate, ObjectMapper objectMapper, AppProperties appProperties) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.appProperties = appProperties;
+    }
+
+    @Override
+    public IdempotentResponse claim(String key, String fingerprint, String claimToken, Duration inFlightTtl) {
+        String marker = encode(IdempotentResponse.inFlight(fingerprint, claimToken));
+        for (int attempt = 0; attempt < 2; attempt++) {
+            if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(redisKey(key), marker, inFlightTtl))) {
+                return null;
+            }
+            String existing = redisTemplate.opsForValue().get(redisKey(key));
+            if (existing != null) {
+                return decode(existing);
+            }
+            // Expired between the two calls; claim again.
+        }
+        return IdempotentResponse.inFlight(fingerprint, null);
+    }
+
+    @Override
+    public void complete(String key, String claimToken, IdempotentResponse response, Duration ttl) {
+        redisTemplate.execute(COMPLETE_SCRIPT, List.of(redisKey(key)),
+                encode(IdempotentResponse.inFlight(response.fingerprint(), claimToken)), encode(response),
+                String.valueOf(Math.max(1, ttl.toMillis())));
+    }
+
+    @Override
+    public void release(String key, String fingerprint, String claimToken) {
+        redisTemplate.execute(RELEASE_SCRIPT, List.of(redisKey(key)),
+                encode(IdempotentResponse.inFlight(fingerprint, claimToken)));
+    }
+
+    private String redisKey(String key) {
+        return appProperties.getIdempotency().getKeyPrefix() + key;
+    }
+
+    private String encode(IdempotentResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException exception) {
+            throw new IllegalStateException("Could not serialize idempotent response", exception);
+        }
+    }
+
+    private IdempotentResponse decode(String json) {
+        try {
+            return objectMapper.readValue(json, IdempotentResponse.class);
+        } catch (JsonProcessingException exception) {
+            throw new IllegalStateException("Could not read idempotent response", exception);
+        }
+    }
+}
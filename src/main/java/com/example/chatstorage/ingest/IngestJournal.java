@@ -0,0 +1,122 @@
+package com.example.chatstorage.ingest;
+
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.exception.IngestUnavailableException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Mirrors accepted messages to a Redis stream until they are committed, so a crashed node loses no acknowledged
+// message. Entries older than the recovery age belong to a writer that died; any node may replay them, and a
+// replay is harmless because the batch insert skips ids that already exist.
+@Component
+public class IngestJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestJournal.class);
+    private static final String FIELD = "m";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final AppProperties appProperties;
+
+    public IngestJournal(StringRedisTemplate redisTemplate, ObjectMapper objectMapper, AppProperties appProperties) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.appProperties = appProperties;
+    }
+
+    public boolean isEnabled() {
+        return appProperties.getIngest().isEnabled() && appProperties.getIngest().isJournalEnabled();
+    }
+
+    // The 202 promises durability when the journal is on, so a journal failure rejects the message.
+    public PendingMessage append(PendingMessage message) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException exception) {
+            throw new IllegalStateException("Could not serialize queued message", exception);
+        }
+        RecordId id;
+        try {
+            id = redisTemplate.opsForStream().add(StreamRecords.string(Map.of(FIELD, json)).withStreamKey(key()));
+        } catch (RuntimeException exception) {
+            log.warn("Ingest journal append failed sessionId={}", message.sessionId(), exception);
+            throw new IngestUnavailableException("Message journal is unavailable. Try again shortly.");
+        }
+        if (id == null) {
+            throw new IngestUnavailableException("Message journal is unavailable. Try again shortly.");
+        }
+        return message.withJournalId(id.getValue());
+    }
+
+    // A failed delete only means the entries are replayed later and skipped as duplicates.
+    public void acknowledge(Collection<PendingMessage> messages) {
+        String[] ids = messages.stream().map(PendingMessage::journalId).filter(Objects::nonNull).toArray(String[]::new);
+        if (ids.length == 0) {
+            return;
+        }
+        try {
+            redisTemplate.opsForStream().delete(key(), ids);
+        } catch (RuntimeException exception) {
+            log.warn("Ingest journal acknowledge failed for {} entries", ids.length, exception);
+        }
+    }
+
+    // Keeps a message the database keeps rejecting for an operator to inspect and replay. Written whether or not the
+    // journal is on, since the message was already acknowledged; false when Redis did not take it.
+    public boolean deadLetter(PendingMessage message) {
+        try {
+            String json = objectMapper.writeValueAsString(message.withJournalId(null));
+            RecordId id = redisTemplate.opsForStream().add(StreamRecords.string(Map.of(FIELD, json))
+                    .withStreamKey(appProperties.getIngest().getDeadLetterKey()));
+            return id != null;
+        } catch (JsonProcessingException | RuntimeException exception) {
+            log.warn("Ingest dead-letter write failed messageId={}", message.id(), exception);
+            return false;
+        }
+    }
+
+    // Stream ids start with their append time in milliseconds, so a range read finds the orphaned entries.
+    public List<PendingMessage> recover(int limit) {
+        long cutoff = System.currentTimeMillis() - Math.max(0, appProperties.getIngest().getJournalRecoveryAgeMillis());
+        List<MapRecord<String, Object, Object>> records;
+        try {
+            records = redisTemplate.opsForStream().range(key(),
+                    Range.leftUnbounded(Range.Bound.inclusive(String.valueOf(cutoff))), Limit.limit().count(limit));
+        } catch (RuntimeException exception) {
+            log.warn("Ingest journal recovery read failed", exception);
+            return List.of();
+        }
+        List<PendingMessage> recovered = new ArrayList<>();
+        for (MapRecord<String, Object, Object> record : records == null ? List.<MapRecord<String, Object, Object>>of() : records) {
+            Object json = record.getValue().get(FIELD);
+            try {
+                recovered.add(objectMapper.readValue(String.valueOf(json), PendingMessage.class)
+                        .withJournalId(record.getId().getValue()));
+            } catch (JsonProcessingException exception) {
+                log.error("Dropping unreadable ingest journal entry id={}", record.getId().getValue(), exception);
+                redisTemplate.opsForStream().delete(key(), record.getId());
+            }
+        }
+        return recovered;
+    }
+
+    private String key() {
+        return appProperties.getIngest().getJournalKey();
+    }
+}
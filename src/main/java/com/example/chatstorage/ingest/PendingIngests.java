@@ -0,0 +1,65 @@
+package com.example.chatstorage.ingest;
+
+import com.example.chatstorage.exception.IngestUnavailableException;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Counts accepted but uncommitted messages per session. Reads of a session wait here until its queued writes
+// are committed, which gives read-your-writes without routing reads through the buffer.
+@Component
+public class PendingIngests {
+
+    private final Map<UUID, Integer> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+
+    public void add(UUID sessionId) {
+        pending.merge(sessionId, 1, Integer::sum);
+    }
+
+    public void remove(Collection<PendingMessage> messages) {
+        for (PendingMessage message : messages) {
+            pending.computeIfPresent(message.sessionId(), (id, count) -> count > 1 ? count - 1 : null);
+        }
+        lock.lock();
+        try {
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isPending(UUID sessionId) {
+        return pending.containsKey(sessionId);
+    }
+
+    // Free when nothing is queued for the session, which is the common case.
+    public void awaitFlushed(UUID sessionId, long timeoutMillis) {
+        if (!pending.containsKey(sessionId)) {
+            return;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMillis));
+        lock.lock();
+        try {
+            while (pending.containsKey(sessionId)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new IngestUnavailableException("Messages for this session are still being written. Try again shortly.");
+                }
+                flushed.awaitNanos(remaining);
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IngestUnavailableException("Interrupted while waiting for queued messages");
+        } finally {
+            lock.unlock();
+        }
+    }
+}
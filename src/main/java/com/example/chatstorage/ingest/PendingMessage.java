@@ -0,0 +1,33 @@
+package com.example.chatstorage.ingest;
+
+import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.entity.SenderType;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// A message accepted into the ingest buffer. Its id, timestamp and size estimates are fixed at accept time,
+// so the 202 response already carries what the committed row will hold.
+public record PendingMessage(UUID id,
+                             UUID sessionId,
+                             String userId,
+                             SenderType sender,
+                             String content,
+                             String retrievedContext,
+                             Instant createdAt,
+                             int contentBytes,
+                             int contentTokens,
+                             int contextBytes,
+                             int contextTokens,
+                             String preview,
+                             String journalId) {
+
+    public PendingMessage withJournalId(String journalId) {
+        return new PendingMessage(id, sessionId, userId, sender, content, retrievedContext, createdAt, contentBytes,
+                contentTokens, contextBytes, contextTokens, preview, journalId);
+    }
+
+    public ChatMessageResponse toResponse() {
+        return new ChatMessageResponse(id, sessionId, sender, content, retrievedContext, createdAt);
+    }
+}
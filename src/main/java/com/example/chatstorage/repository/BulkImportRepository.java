@@ -0,0 +1,238 @@
+package com.example.chatstorage.repository;
+
+import com.example.chatstorage.entity.SenderType;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+// Rows are first loaded into per-connection temporary staging tables (COPY on Postgres, JDBC batches elsewhere),
+// then checked and merged into the real tables with a handful of set-based statements. All calls for one chunk
+// must run in a single transaction so they share the connection that owns the staging tables.
+@Repository
+public class BulkImportRepository {
+
+    private static final String SESSION_COLUMNS = "line, id, title, favorite, created_at, updated_at";
+    private static final String MESSAGE_COLUMNS = "line, id, session_id, sender, content, retrieved_context, created_at, "
+            + "content_bytes, content_tokens, context_bytes, context_tokens, preview";
+
+    private static final String SESSION_STAGING = "import_sessions (line BIGINT NOT NULL, id UUID NOT NULL, "
+            + "title VARCHAR(200) NOT NULL, favorite BOOLEAN NOT NULL, created_at TIMESTAMP WITH TIME ZONE NOT NULL, "
+            + "updated_at TIMESTAMP WITH TIME ZONE NOT NULL, status VARCHAR(16))";
+    private static final String MESSAGE_STAGING = "import_messages (line BIGINT NOT NULL, id UUID NOT NULL, "
+            + "session_id UUID NOT NULL, sender VARCHAR(20) NOT NULL, content TEXT NOT NULL, retrieved_context TEXT, "
+            + "created_at TIMESTAMP WITH TIME ZONE NOT NULL, content_bytes INTEGER NOT NULL, content_tokens INTEGER NOT NULL, "
+            + "context_bytes INTEGER NOT NULL, context_tokens INTEGER NOT NULL, preview VARCHAR(200), status VARCHAR(16))";
+
+    private static final String REJECTED = "REJECTED";
+    private static final String DUPLICATE = "DUPLICATE";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BulkImportRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean isPostgres() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        return "PostgreSQL".equalsIgnoreCase(product);
+    }
+
+    // Temporary tables live as long as the pooled connection, so they are created once and emptied per chunk.
+    // H2 would commit the surrounding transaction on CREATE unless the table is TRANSACTIONAL.
+    public void prepareStaging(boolean postgres) {
+        String create = postgres ? "CREATE TEMP TABLE IF NOT EXISTS " : "CREATE LOCAL TEMPORARY TABLE IF NOT EXISTS ";
+        String options = postgres ? "" : " TRANSACTIONAL";
+        jdbcTemplate.execute(create + SESSION_STAGING + options);
+        jdbcTemplate.execute(create + MESSAGE_STAGING + options);
+        jdbcTemplate.execute("DELETE FROM import_sessions");
+        jdbcTemplate.execute("DELETE FROM import_messages");
+    }
+
+    public void stageSessions(List<StagedSession> sessions, boolean postgres) {
+        if (sessions.isEmpty()) {
+            return;
+        }
+        if (postgres) {
+            StringBuilder csv = new StringBuilder(sessions.size() * 96);
+            for (StagedSession session : sessions) {
+                csv.append(session.line()).append(',').append(session.id()).append(',');
+                appendCsv(csv, session.title());
+                csv.append(',').append(session.favorite()).append(',').append(session.createdAt())
+                        .append(',').append(session.updatedAt()).append('\n');
+            }
+            copy("COPY import_sessions (" + SESSION_COLUMNS + ") FROM STDIN WITH (FORMAT csv)", csv);
+            return;
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO import_sessions (" + SESSION_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?)",
+                sessions, sessions.size(), (statement, session) -> {
+                    statement.setLong(1, session.line());
+                    statement.setObject(2, session.id());
+                    statement.setString(3, session.title());
+                    statement.setBoolean(4, session.favorite());
+                    statement.setObject(5, utc(session.createdAt()));
+                    statement.setObject(6, utc(session.updatedAt()));
+                });
+    }
+
+    public void stageMessages(List<StagedMessage> messages, boolean postgres) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        if (postgres) {
+            StringBuilder csv = new StringBuilder(messages.size() * 256);
+            for (StagedMessage message : messages) {
+                csv.append(message.line()).append(',').append(message.id()).append(',').append(message.sessionId())
+                        .append(',').append(message.sender().name()).append(',');
+                appendCsv(csv, message.content());
+                csv.append(',');
+                appendCsv(csv, message.retrievedContext());
+                csv.append(',').append(message.createdAt())
+                        .append(',').append(message.contentBytes()).append(',').append(message.contentTokens())
+                        .append(',').append(message.contextBytes()).append(',').append(message.contextTokens())
+                        .append(',');
+                appendCsv(csv, message.preview());
+                csv.append('\n');
+            }
+            copy("COPY import_messages (" + MESSAGE_COLUMNS + ") FROM STDIN WITH (FORMAT csv)", csv);
+            return;
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO import_messages (" + MESSAGE_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                messages, messages.size(), (statement, message) -> {
+                    statement.setLong(1, message.line());
+                    statement.setObject(2, message.id());
+                    statement.setObject(3, message.sessionId());
+                    statement.setString(4, message.sender().name());
+                    statement.setString(5, message.content());
+                    if (message.retrievedContext() == null) {
+                        statement.setNull(6, Types.VARCHAR);
+                    } else {
+                        statement.setString(6, message.retrievedContext());
+                    }
+                    statement.setObject(7, utc(message.createdAt()));
+                    statement.setInt(8, message.contentBytes());
+                    statement.setInt(9, message.contentTokens());
+                    statement.setInt(10, message.contextBytes());
+                    statement.setInt(11, message.contextTokens());
+                    statement.setString(12, message.preview());
+                });
+    }
+
+    // A session id already owned by someone else is rejected; one already owned by this user is left untouched.
+    public MergeResult mergeSessions(String userId, boolean postgres) {
+        jdbcTemplate.update("UPDATE import_sessions SET status = '" + REJECTED + "' WHERE EXISTS "
+                + "(SELECT 1 FROM chat_sessions s WHERE s.id = import_sessions.id AND s.user_id <> ?)", userId);
+        int duplicates = jdbcTemplate.update("UPDATE import_sessions SET status = '" + DUPLICATE + "' WHERE status IS NULL "
+                + "AND EXISTS (SELECT 1 FROM chat_sessions s WHERE s.id = import_sessions.id)");
+        int inserted = jdbcTemplate.update("INSERT INTO chat_sessions (id, user_id, title, favorite, created_at, updated_at, "
+                + "message_count, total_content_bytes) "
+                + "SELECT i.id, ?, i.title, i.favorite, i.created_at, i.updated_at, 0, 0 FROM import_sessions i "
+                + "WHERE i.status IS NULL" + (postgres ? " ON CONFLICT (id) DO NOTHING" : ""), userId);
+        return new MergeResult(inserted, duplicates, rejectedLines("import_sessions"), List.of());
+    }
+
+    // Messages must point at a session this user owns. Session summary columns are advanced from the staged rows
+    // in the same transaction, so they never disagree with the inserted messages.
+    public MergeResult mergeMessages(String userId, boolean postgres) {
+        jdbcTemplate.update("UPDATE import_messages SET status = '" + REJECTED + "' WHERE NOT EXISTS "
+                + "(SELECT 1 FROM chat_sessions s WHERE s.id = import_messages.session_id AND s.user_id = ?)", userId);
+        int duplicates = jdbcTemplate.update("UPDATE import_messages SET status = '" + DUPLICATE + "' WHERE status IS NULL "
+                + "AND EXISTS (SELECT 1 FROM chat_messages m WHERE m.id = import_messages.id)");
+        int inserted = jdbcTemplate.update("INSERT INTO chat_messages (id, session_id, sender, content, retrieved_context, "
+                + "created_at, content_bytes, content_tokens, context_bytes, context_tokens) "
+                + "SELECT i.id, i.session_id, i.sender, i.content, i.retrieved_context, i.created_at, "
+                + "i.content_bytes, i.content_tokens, i.context_bytes, i.context_tokens FROM import_messages i "
+                + "WHERE i.status IS NULL" + (postgres ? " ON CONFLICT (id) DO NOTHING" : ""));
+
+        jdbcTemplate.update("UPDATE chat_sessions SET "
+                + "message_count = message_count + (SELECT COUNT(*) FROM import_messages i "
+                + "WHERE i.session_id = chat_sessions.id AND i.status IS NULL), "
+                + "total_content_bytes = total_content_bytes + (SELECT COALESCE(SUM(i.content_bytes), 0) FROM import_messages i "
+                + "WHERE i.session_id = chat_sessions.id AND i.status IS NULL) "
+                + "WHERE id IN (SELECT i.session_id FROM import_messages i WHERE i.status IS NULL)");
+        // Only sessions whose newest imported message is newer than what they already show get a new "last message".
+        String newest = "(SELECT %s FROM import_messages i WHERE i.session_id = chat_sessions.id AND i.status IS NULL "
+                + "ORDER BY i.created_at DESC, i.id DESC LIMIT 1)";
+        jdbcTemplate.update("UPDATE chat_sessions SET "
+                + "last_message_at = " + newest.formatted("i.created_at") + ", "
+                + "last_sender = " + newest.formatted("i.sender") + ", "
+                + "last_message_preview = " + newest.formatted("i.preview") + ", "
+                + "updated_at = GREATEST(updated_at, " + newest.formatted("i.created_at") + ") "
+                + "WHERE id IN (SELECT i.session_id FROM import_messages i WHERE i.status IS NULL) "
+                + "AND (last_message_at IS NULL OR last_message_at < " + newest.formatted("i.created_at") + ")");
+
+        List<UUID> touched = jdbcTemplate.queryForList(
+                "SELECT DISTINCT session_id FROM import_messages WHERE status IS NULL", UUID.class);
+        return new MergeResult(inserted, duplicates, rejectedLines("import_messages"), touched);
+    }
+
+    // Imported sessions and messages reach synced clients like any other write; staged rows still without a status
+    // are the ones just merged.
+    public void recordChanges(String userId, boolean postgres) {
+        OffsetDateTime now = utc(Instant.now());
+        String newId = SyncChangeRepository.newId(postgres);
+        jdbcTemplate.update("INSERT INTO sync_changes (id, user_id, session_id, message_id, change_type, changed_at) "
+                + "SELECT " + newId + ", ?, i.id, NULL, 'SESSION', ? FROM import_sessions i "
+                + "WHERE i.status IS NULL", userId, now);
+        jdbcTemplate.update("INSERT INTO sync_changes (id, user_id, session_id, message_id, change_type, changed_at) "
+                + "SELECT " + newId + ", ?, i.session_id, i.id, 'MESSAGE', ? FROM import_messages i "
+                + "WHERE i.status IS NULL", userId, now);
+    }
+
+    private List<Long> rejectedLines(String stagingTable) {
+        return jdbcTemplate.queryForList("SELECT line FROM " + stagingTable + " WHERE status = '" + REJECTED + "' ORDER BY line",
+                Long.class);
+    }
+
+    private void copy(String sql, CharSequence csv) {
+        jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql, new StringReader(csv.toString()));
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        });
+    }
+
+    // CSV: nulls are an empty unquoted field, everything else is quoted so empty strings and newlines survive.
+    private static void appendCsv(StringBuilder csv, String value) {
+        if (value == null) {
+            return;
+        }
+        csv.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                csv.append('"');
+            }
+            csv.append(c);
+        }
+        csv.append('"');
+    }
+
+    private static OffsetDateTime utc(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC);
+    }
+
+    public record StagedSession(long line, UUID id, String title, boolean favorite, Instant createdAt, Instant updatedAt) {
+    }
+
+    public record StagedMessage(long line, UUID id, UUID sessionId, SenderType sender, String content,
+                                String retrievedContext, Instant createdAt, int contentBytes, int contentTokens,
+                                int contextBytes, int contextTokens, String preview) {
+    }
+
+    public record MergeResult(int inserted, int duplicates, List<Long> rejectedLines, List<UUID> touchedSessions) {
+    }
+}
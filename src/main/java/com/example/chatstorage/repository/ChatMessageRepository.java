@@ -3,12 +3,72 @@ package com.example.chatstorage.repository;
 import com.example.chatstorage.entity.ChatMessage;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, UUID> {
     Page<ChatMessage> findBySessionId(UUID sessionId, Pageable pageable);
 
     void deleteBySessionId(UUID sessionId);
+
+    @Modifying
+    @Query("delete from ChatMessage m where m.session.id in :sessionIds")
+    int deleteBySessionIds(@Param("sessionIds") Collection<UUID> sessionIds);
+
+    @Query("""
+            select m from ChatMessage m
+            where m.session.id = :sessionId
+              and (:includeSystem = true or m.sender <> com.example.chatstorage.entity.SenderType.SYSTEM)
+            order by m.createdAt desc, m.id desc
+            """)
+    Slice<ChatMessage> findNewestForContext(@Param("sessionId") UUID sessionId,
+                                            @Param("includeSystem") boolean includeSystem,
+                                            Pageable pageable);
+
+    Optional<ChatMessage> findFirstBySessionIdOrderByCreatedAtDescIdDesc(UUID sessionId);
+
+    // Keyset catch-up for live subscribers resuming from a Last-Event-ID.
+    @Query("""
+            select m from ChatMessage m
+            where m.session.id = :sessionId
+              and (m.createdAt > :createdAt or (m.createdAt = :createdAt and m.id > :afterId))
+            order by m.createdAt asc, m.id asc
+            """)
+    List<ChatMessage> findAfter(@Param("sessionId") UUID sessionId,
+                                @Param("createdAt") Instant createdAt,
+                                @Param("afterId") UUID afterId,
+                                Pageable pageable);
+
+    List<ChatMessage> findByIdInAndSessionUserId(Collection<UUID> ids, String userId);
+
+    // Rows written before size estimates existed fall back to the character length.
+    @Query("""
+            select m.session.id as sessionId,
+                   count(m) as messageCount,
+                   coalesce(sum(coalesce(m.contentBytes, length(m.content))), 0) as totalContentBytes,
+                   max(m.createdAt) as lastMessageAt
+            from ChatMessage m
+            where m.session.id in :sessionIds
+            group by m.session.id
+            """)
+    List<SessionMessageStats> summarizeSessions(@Param("sessionIds") Collection<UUID> sessionIds);
+
+    interface SessionMessageStats {
+        UUID getSessionId();
+
+        long getMessageCount();
+
+        long getTotalContentBytes();
+
+        Instant getLastMessageAt();
+    }
 }
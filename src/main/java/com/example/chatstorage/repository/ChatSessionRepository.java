@@ -1,10 +1,18 @@
 package com.example.chatstorage.repository;
 
 import com.example.chatstorage.entity.ChatSession;
+import com.example.chatstorage.entity.SenderType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -14,4 +22,102 @@ public interface ChatSessionRepository extends JpaRepository<ChatSession, UUID>
     Page<ChatSession> findByUserIdAndFavorite(String userId, boolean favorite, Pageable pageable);
 
     Optional<ChatSession> findByIdAndUserId(UUID id, String userId);
+
+    boolean existsByIdAndUserId(UUID id, String userId);
+
+    @Query("select s.id from ChatSession s where s.userId = :userId and s.id in :ids")
+    List<UUID> findOwnedIds(@Param("userId") String userId, @Param("ids") Collection<UUID> ids);
+
+    // Oldest first, so repeating a bulk request with the same filter works through the rest.
+    @Query("""
+            select s.id from ChatSession s
+            where s.userId = :userId
+              and (:updatedBefore is null or s.updatedAt < :updatedBefore)
+              and (:favorite is null or s.favorite = :favorite)
+            order by s.updatedAt asc, s.id asc
+            """)
+    List<UUID> findIdsMatching(@Param("userId") String userId,
+                               @Param("updatedBefore") Instant updatedBefore,
+                               @Param("favorite") Boolean favorite,
+                               Pageable pageable);
+
+    @Query("select s.id from ChatSession s where s.userId = :userId order by s.id")
+    List<UUID> findIdsByUserId(@Param("userId") String userId, Pageable pageable);
+
+    @Query("select coalesce(sum(s.messageCount), 0) from ChatSession s where s.id in :ids")
+    long countMessages(@Param("ids") Collection<UUID> ids);
+
+    @Query("""
+            select new com.example.chatstorage.repository.SessionListStamp(
+                count(s), max(s.updatedAt), coalesce(sum(s.messageCount), 0L))
+            from ChatSession s
+            where s.userId = :userId
+            """)
+    SessionListStamp listStamp(@Param("userId") String userId);
+
+    List<ChatSession> findAllByOrderByIdAsc(Pageable pageable);
+
+    List<ChatSession> findByIdGreaterThanOrderByIdAsc(UUID id, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("""
+            update ChatSession s
+            set s.updatedAt = :at,
+                s.messageCount = s.messageCount + 1,
+                s.totalContentBytes = s.totalContentBytes + :bytes,
+                s.lastMessageAt = :at,
+                s.lastSender = :sender,
+                s.lastMessagePreview = :preview
+            where s.id = :id and s.userId = :userId
+            """)
+    int recordMessage(@Param("id") UUID id,
+                      @Param("userId") String userId,
+                      @Param("at") Instant at,
+                      @Param("bytes") long bytes,
+                      @Param("sender") SenderType sender,
+                      @Param("preview") String preview);
+
+    // Guarded by the count the repair job observed, so a message added mid-repair is never overwritten.
+    @Transactional
+    @Modifying
+    @Query("""
+            update ChatSession s
+            set s.messageCount = :messageCount,
+                s.totalContentBytes = :bytes,
+                s.lastMessageAt = :lastMessageAt,
+                s.lastSender = :sender,
+                s.lastMessagePreview = :preview
+            where s.id = :id and s.messageCount = :observedCount
+            """)
+    int repairSummary(@Param("id") UUID id,
+                      @Param("observedCount") long observedCount,
+                      @Param("messageCount") long messageCount,
+                      @Param("bytes") long bytes,
+                      @Param("lastMessageAt") Instant lastMessageAt,
+                      @Param("sender") SenderType sender,
+                      @Param("preview") String preview);
+
+    // Rows already in the requested state are not counted; updatedAt moves like a single favorite update.
+    @Modifying
+    @Query("""
+            update ChatSession s
+            set s.favorite = :favorite,
+                s.updatedAt = :at
+            where s.userId = :userId and s.id in :ids and s.favorite <> :favorite
+            """)
+    int updateFavorite(@Param("userId") String userId,
+                       @Param("ids") Collection<UUID> ids,
+                       @Param("favorite") boolean favorite,
+                       @Param("at") Instant at);
+
+    @Modifying
+    @Query("delete from ChatSession s where s.userId = :userId and s.id in :ids")
+    int deleteOwned(@Param("userId") String userId, @Param("ids") Collection<UUID> ids);
+
+    @Modifying
+    @Query("update ChatSession s set s.userId = :owner where s.userId = :userId and s.id in :ids")
+    int transferOwnership(@Param("userId") String userId,
+                          @Param("ids") Collection<UUID> ids,
+                          @Param("owner") String owner);
 }
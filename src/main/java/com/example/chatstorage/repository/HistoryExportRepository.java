@@ -0,0 +1,39 @@
+package com.example.chatstorage.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+@Repository
+public class HistoryExportRepository {
+
+    // One row per message (or one row for an empty session), grouped by session so the writer can emit
+    // each session header exactly once.
+    private static final String HISTORY_SQL = "SELECT s.id AS s_id, s.title, s.favorite, s.created_at AS s_created_at, "
+            + "s.updated_at, m.id AS m_id, m.sender, m.content, m.retrieved_context, m.created_at AS m_created_at "
+            + "FROM chat_sessions s "
+            + "LEFT JOIN chat_messages m ON m.session_id = s.id "
+            + "WHERE s.user_id = ? "
+            + "ORDER BY s.created_at, s.id, m.created_at, m.id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public HistoryExportRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Forward-only, read-only cursor; rows are handed to the callback one at a time and never collected.
+    // Postgres only honours the fetch size inside a transaction (autocommit off), so callers must open one.
+    public void streamHistory(String userId, int fetchSize, RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    HISTORY_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            statement.setString(1, userId);
+            return statement;
+        }, handler);
+    }
+}
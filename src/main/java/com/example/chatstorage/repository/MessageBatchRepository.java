@@ -0,0 +1,75 @@
+package com.example.chatstorage.repository;
+
+import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.entity.SenderType;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public class MessageBatchRepository {
+
+    private static final String COLUMNS = "id, session_id, sender, content, retrieved_context, created_at";
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean postgres;
+
+    public MessageBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Newest `limit` messages of each session in one statement, grouped by session and newest first within it.
+    // On Postgres each session is a LIMIT scan of idx_chat_messages_session_created, so long histories cost no
+    // more than short ones; elsewhere (H2 in tests) a ROW_NUMBER window gives the same rows.
+    public List<ChatMessageResponse> findNewestPerSession(Collection<UUID> sessionIds, int limit) {
+        if (sessionIds.isEmpty()) {
+            return List.of();
+        }
+        List<Object> args = new ArrayList<>(sessionIds);
+        args.add(limit);
+        String placeholders = String.join(", ", Collections.nCopies(sessionIds.size(), "?"));
+        String sql;
+        if (isPostgres()) {
+            String values = String.join(", ", Collections.nCopies(sessionIds.size(), "(CAST(? AS uuid))"));
+            sql = "SELECT m.id, m.session_id, m.sender, m.content, m.retrieved_context, m.created_at "
+                    + "FROM (VALUES " + values + ") AS s(id) "
+                    + "CROSS JOIN LATERAL (SELECT " + COLUMNS + " FROM chat_messages "
+                    + "WHERE session_id = s.id ORDER BY created_at DESC, id DESC LIMIT ?) m "
+                    + "ORDER BY m.session_id, m.created_at DESC, m.id DESC";
+        } else {
+            sql = "SELECT " + COLUMNS + " FROM (SELECT " + COLUMNS + ", "
+                    + "ROW_NUMBER() OVER (PARTITION BY session_id ORDER BY created_at DESC, id DESC) AS newest_rank "
+                    + "FROM chat_messages WHERE session_id IN (" + placeholders + ")) ranked "
+                    + "WHERE newest_rank <= ? ORDER BY session_id, created_at DESC, id DESC";
+        }
+        return jdbcTemplate.query(sql, ROW_MAPPER, args.toArray());
+    }
+
+    private boolean isPostgres() {
+        Boolean known = postgres;
+        if (known == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            known = "PostgreSQL".equalsIgnoreCase(product);
+            postgres = known;
+        }
+        return known;
+    }
+
+    private static final RowMapper<ChatMessageResponse> ROW_MAPPER = (resultSet, rowNum) -> new ChatMessageResponse(
+            resultSet.getObject("id", UUID.class),
+            resultSet.getObject("session_id", UUID.class),
+            SenderType.valueOf(resultSet.getString("sender")),
+            resultSet.getString("content"),
+            resultSet.getString("retrieved_context"),
+            resultSet.getObject("created_at", OffsetDateTime.class).toInstant()
+    );
+}
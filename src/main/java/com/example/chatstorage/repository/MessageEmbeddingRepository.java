@@ -0,0 +1,36 @@
+package com.example.chatstorage.repository;
+
+import com.example.chatstorage.entity.MessageEmbedding;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.UUID;
+
+public interface MessageEmbeddingRepository extends JpaRepository<MessageEmbedding, UUID> {
+
+    @Modifying
+    @Query("delete from MessageEmbedding e where e.sessionId = :sessionId")
+    int deleteBySessionId(@Param("sessionId") UUID sessionId);
+
+    @Modifying
+    @Query("delete from MessageEmbedding e where e.sessionId in :sessionIds")
+    int deleteBySessionIds(@Param("sessionIds") Collection<UUID> sessionIds);
+
+    // Keyset scan used to bring a node's local index up to date with rows written elsewhere.
+    @Query("""
+            select e from MessageEmbedding e
+            where e.sessionId in (select s.id from ChatSession s where s.userId = :userId)
+              and (e.createdAt > :since or (e.createdAt = :since and e.id > :afterId))
+            order by e.createdAt asc, e.id asc
+            """)
+    Slice<MessageEmbedding> findForUserAfter(@Param("userId") String userId,
+                                             @Param("since") Instant since,
+                                             @Param("afterId") UUID afterId,
+                                             Pageable pageable);
+}
@@ -0,0 +1,152 @@
+package com.example.chatstorage.repository;
+
+import com.example.chatstorage.entity.SenderType;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Group-commit writes for the ingest queue: one multi-row INSERT per chunk of messages and one batched UPDATE
+// per batch of sessions, instead of a statement pair and a commit per message.
+@Repository
+public class MessageIngestRepository {
+
+    // Postgres caps a statement at 65535 bind parameters; ten per row leaves plenty of room.
+    private static final int ROWS_PER_STATEMENT = 1000;
+    private static final String MESSAGE_COLUMNS = "id, session_id, sender, content, retrieved_context, created_at, "
+            + "content_bytes, content_tokens, context_bytes, context_tokens";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public MessageIngestRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean isPostgres() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        return "PostgreSQL".equalsIgnoreCase(product);
+    }
+
+    // Sessions deleted while their messages waited in the buffer are missing here.
+    // sessionId -> current owner; a session handed to the purge owner no longer matches the user who queued for it.
+    public Map<UUID, String> sessionOwners(Collection<UUID> sessionIds) {
+        if (sessionIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<UUID, String> owners = new HashMap<>();
+        jdbcTemplate.query("SELECT id, user_id FROM chat_sessions WHERE id IN ("
+                        + placeholders(sessionIds.size()) + ")",
+                (RowCallbackHandler) resultSet -> owners.put(resultSet.getObject("id", UUID.class),
+                        resultSet.getString("user_id")),
+                sessionIds.toArray());
+        return owners;
+    }
+
+    // Returns the ids actually inserted. A replayed journal entry whose row already exists is skipped,
+    // so the caller counts it toward neither the session summary nor the published events.
+    public Set<UUID> insertMessages(List<IngestRow> rows, boolean postgres) {
+        Set<UUID> inserted = new HashSet<>();
+        for (int from = 0; from < rows.size(); from += ROWS_PER_STATEMENT) {
+            List<IngestRow> chunk = rows.subList(from, Math.min(rows.size(), from + ROWS_PER_STATEMENT));
+            if (postgres) {
+                inserted.addAll(jdbcTemplate.queryForList("INSERT INTO chat_messages (" + MESSAGE_COLUMNS + ") VALUES "
+                        + String.join(", ", Collections.nCopies(chunk.size(), "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"))
+                        + " ON CONFLICT (id) DO NOTHING RETURNING id", UUID.class, bind(chunk)));
+            } else {
+                Set<UUID> existing = new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM chat_messages WHERE id IN ("
+                        + placeholders(chunk.size()) + ")", UUID.class, chunk.stream().map(IngestRow::id).toArray()));
+                List<IngestRow> fresh = chunk.stream().filter(row -> !existing.contains(row.id())).toList();
+                if (!fresh.isEmpty()) {
+                    jdbcTemplate.update("INSERT INTO chat_messages (" + MESSAGE_COLUMNS + ") VALUES "
+                            + String.join(", ", Collections.nCopies(fresh.size(), "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")),
+                            bind(fresh));
+                }
+                fresh.forEach(row -> inserted.add(row.id()));
+            }
+        }
+        return inserted;
+    }
+
+    // Counters are incremented in SQL like the single-message path. The "last message" columns only move
+    // forward, since a concurrent synchronous append may already have written a newer message.
+    public void recordMessages(List<SessionDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        String newer = "last_message_at IS NULL OR last_message_at < ?";
+        jdbcTemplate.batchUpdate("UPDATE chat_sessions SET "
+                        + "message_count = message_count + ?, "
+                        + "total_content_bytes = total_content_bytes + ?, "
+                        + "last_sender = CASE WHEN " + newer + " THEN ? ELSE last_sender END, "
+                        + "last_message_preview = CASE WHEN " + newer + " THEN ? ELSE last_message_preview END, "
+                        + "last_message_at = CASE WHEN " + newer + " THEN ? ELSE last_message_at END, "
+                        + "updated_at = CASE WHEN updated_at < ? THEN ? ELSE updated_at END "
+                        + "WHERE id = ?",
+                deltas, deltas.size(), (statement, delta) -> {
+                    OffsetDateTime lastAt = utc(delta.lastAt());
+                    statement.setLong(1, delta.count());
+                    statement.setLong(2, delta.bytes());
+                    statement.setObject(3, lastAt);
+                    statement.setString(4, delta.lastSender().name());
+                    statement.setObject(5, lastAt);
+                    statement.setString(6, delta.lastPreview());
+                    statement.setObject(7, lastAt);
+                    statement.setObject(8, lastAt);
+                    statement.setObject(9, lastAt);
+                    statement.setObject(10, lastAt);
+                    statement.setObject(11, delta.sessionId());
+                });
+    }
+
+    private static Object[] bind(List<IngestRow> rows) {
+        List<Object> args = new ArrayList<>(rows.size() * 10);
+        for (IngestRow row : rows) {
+            args.add(row.id());
+            args.add(row.sessionId());
+            args.add(row.sender().name());
+            args.add(row.content());
+            args.add(row.retrievedContext() == null ? new SqlParameterValue(Types.VARCHAR, null)
+                    : row.retrievedContext());
+            args.add(utc(row.createdAt()));
+            args.add(row.contentBytes());
+            args.add(row.contentTokens());
+            args.add(row.contextBytes());
+            args.add(row.contextTokens());
+        }
+        return args.toArray();
+    }
+
+    private static String placeholders(int count) {
+        return IntStream.range(0, count).mapToObj(i -> "?").collect(Collectors.joining(", "));
+    }
+
+    private static OffsetDateTime utc(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC);
+    }
+
+    public record IngestRow(UUID id, UUID sessionId, SenderType sender, String content, String retrievedContext,
+                            Instant createdAt, int contentBytes, int contentTokens, int contextBytes, int contextTokens) {
+    }
+
+    public record SessionDelta(UUID sessionId, long count, long bytes, Instant lastAt, SenderType lastSender,
+                               String lastPreview) {
+    }
+}
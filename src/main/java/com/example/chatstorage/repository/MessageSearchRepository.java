@@ -0,0 +1,136 @@
+package com.example.chatstorage.repository;
+
+import com.example.chatstorage.entity.SenderType;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public class MessageSearchRepository {
+
+    public static final String TEXT_SEARCH_CONFIG = "english";
+
+    private static final String SCHEMA_COLUMN = "ALTER TABLE chat_messages ADD COLUMN IF NOT EXISTS content_tsv tsvector "
+            + "GENERATED ALWAYS AS (to_tsvector('" + TEXT_SEARCH_CONFIG + "', content)) STORED";
+    private static final String SCHEMA_INDEX = "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_chat_messages_content_tsv "
+            + "ON chat_messages USING GIN (content_tsv)";
+
+    private static final String HEADLINE_OPTIONS = "StartSel=<mark>, StopSel=</mark>, MaxWords=30, MinWords=10, MaxFragments=2";
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile boolean fullTextReady;
+
+    public MessageSearchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean isPostgres() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        return "PostgreSQL".equalsIgnoreCase(product);
+    }
+
+    // Hibernate cannot declare generated columns, so the tsvector column and its GIN index are added here.
+    // Must run outside a transaction because of CREATE INDEX CONCURRENTLY.
+    public void ensureFullTextSchema() {
+        jdbcTemplate.execute(SCHEMA_COLUMN);
+        jdbcTemplate.execute(SCHEMA_INDEX);
+    }
+
+    public void markFullTextReady(boolean ready) {
+        this.fullTextReady = ready;
+    }
+
+    public boolean isFullTextReady() {
+        return fullTextReady;
+    }
+
+    // Ranks first in an inner query so ts_headline only runs for the rows actually returned.
+    public List<SearchRow> searchFullText(String userId, UUID sessionId, String query, Keyset after, int limit) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder inner = new StringBuilder(
+                "SELECT m.id, m.session_id, m.sender, m.created_at, m.content, "
+                        + "ts_rank_cd(m.content_tsv, q.query) AS rank, q.query AS query "
+                        + "FROM chat_messages m "
+                        + "JOIN chat_sessions s ON s.id = m.session_id "
+                        + "CROSS JOIN websearch_to_tsquery('" + TEXT_SEARCH_CONFIG + "', ?) AS q(query) "
+                        + "WHERE s.user_id = ? AND m.content_tsv @@ q.query");
+        args.add(query);
+        args.add(userId);
+        if (sessionId != null) {
+            inner.append(" AND m.session_id = ?");
+            args.add(sessionId);
+        }
+        if (after != null) {
+            inner.append(" AND (ts_rank_cd(m.content_tsv, q.query), m.created_at, m.id) < (CAST(? AS real), ?, ?)");
+            args.add(after.rank());
+            args.add(after.createdAt().atOffset(ZoneOffset.UTC));
+            args.add(after.id());
+        }
+        inner.append(" ORDER BY rank DESC, m.created_at DESC, m.id DESC LIMIT ?");
+        args.add(limit);
+
+        String sql = "SELECT r.id, r.session_id, r.sender, r.created_at, r.rank, "
+                + "ts_headline('" + TEXT_SEARCH_CONFIG + "', r.content, r.query, '" + HEADLINE_OPTIONS + "') AS snippet, "
+                + "NULL AS content FROM (" + inner + ") r ORDER BY r.rank DESC, r.created_at DESC, r.id DESC";
+        return jdbcTemplate.query(sql, ROW_MAPPER, args.toArray());
+    }
+
+    // Portable LIKE scan for databases without full-text support (H2 in tests); every term must match.
+    public List<SearchRow> searchPortable(String userId, UUID sessionId, List<String> terms, Keyset after, int limit) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(
+                "SELECT m.id, m.session_id, m.sender, m.created_at, CAST(0 AS real) AS rank, NULL AS snippet, m.content "
+                        + "FROM chat_messages m "
+                        + "JOIN chat_sessions s ON s.id = m.session_id "
+                        + "WHERE s.user_id = ?");
+        args.add(userId);
+        if (sessionId != null) {
+            sql.append(" AND m.session_id = ?");
+            args.add(sessionId);
+        }
+        for (String term : terms) {
+            sql.append(" AND LOWER(m.content) LIKE ? ESCAPE '\\'");
+            args.add("%" + escapeLike(term) + "%");
+        }
+        if (after != null) {
+            sql.append(" AND (m.created_at < ? OR (m.created_at = ? AND m.id < ?))");
+            OffsetDateTime createdAt = after.createdAt().atOffset(ZoneOffset.UTC);
+            args.add(createdAt);
+            args.add(createdAt);
+            args.add(after.id());
+        }
+        sql.append(" ORDER BY m.created_at DESC, m.id DESC LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), ROW_MAPPER, args.toArray());
+    }
+
+    private static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static final RowMapper<SearchRow> ROW_MAPPER = (resultSet, rowNum) -> new SearchRow(
+            resultSet.getObject("id", UUID.class),
+            resultSet.getObject("session_id", UUID.class),
+            SenderType.valueOf(resultSet.getString("sender")),
+            resultSet.getObject("created_at", OffsetDateTime.class).toInstant(),
+            resultSet.getFloat("rank"),
+            resultSet.getString("snippet"),
+            resultSet.getString("content")
+    );
+
+    public record SearchRow(UUID id, UUID sessionId, SenderType sender, Instant createdAt, float rank,
+                            String snippet, String content) {
+    }
+
+    public record Keyset(float rank, Instant createdAt, UUID id) {
+    }
+}
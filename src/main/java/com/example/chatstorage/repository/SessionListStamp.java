@@ -0,0 +1,7 @@
+package com.example.chatstorage.repository;
+
+import java.time.Instant;
+
+// Changes whenever any session of the user is created, updated, deleted or gains messages.
+public record SessionListStamp(Long sessions, Instant lastUpdatedAt, Long messages) {
+}
@@ -0,0 +1,7 @@
+package com.example.chatstorage.repository;
+
+import com.example.chatstorage.entity.ShardMigration;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ShardMigrationRepository extends JpaRepository<ShardMigration, String> {
+}
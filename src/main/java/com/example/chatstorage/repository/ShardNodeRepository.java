@@ -0,0 +1,51 @@
+package com.example.chatstorage.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+// Instance reports used to tell when every instance has caught up with the shard directory. Times come from the
+// database so instances with skewed clocks still compare correctly. Callers run this on the default shard.
+@Repository
+public class ShardNodeRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ShardNodeRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Instant now() {
+        OffsetDateTime now = jdbcTemplate.queryForObject("SELECT CURRENT_TIMESTAMP", OffsetDateTime.class);
+        if (now == null) {
+            throw new IllegalStateException("Database returned no current time");
+        }
+        return now.toInstant();
+    }
+
+    public void report(String nodeId, Instant syncedAt, Instant reportedAt) {
+        OffsetDateTime synced = syncedAt == null ? null : syncedAt.atOffset(ZoneOffset.UTC);
+        OffsetDateTime reported = reportedAt.atOffset(ZoneOffset.UTC);
+        int updated = jdbcTemplate.update("UPDATE shard_nodes SET synced_at = ?, reported_at = ? WHERE node_id = ?",
+                synced, reported, nodeId);
+        if (updated == 0) {
+            jdbcTemplate.update("INSERT INTO shard_nodes (node_id, synced_at, reported_at) VALUES (?, ?, ?)",
+                    nodeId, synced, reported);
+        }
+    }
+
+    // Instances that reported after liveSince but have not yet synced past version.
+    public long countLagging(Instant liveSince, Instant version) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM shard_nodes WHERE reported_at > ? AND (synced_at IS NULL OR synced_at <= ?)",
+                Long.class, liveSince.atOffset(ZoneOffset.UTC), version.atOffset(ZoneOffset.UTC));
+        return count == null ? 0 : count;
+    }
+
+    public void deleteReportedBefore(Instant cutoff) {
+        jdbcTemplate.update("DELETE FROM shard_nodes WHERE reported_at < ?", cutoff.atOffset(ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.chatstorage.repository;
+
+import com.example.chatstorage.entity.SyncChange;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+// Writes run inside the caller's transaction, so a change row commits or rolls back with the write it records.
+// Rows are written without a token. Tokens are assigned only to committed rows, one user at a time under the
+// user's cursor lock, so a token is never handed out while a lower one can still appear.
+@Repository
+public class SyncChangeRepository {
+
+    private static final String INSERT = "INSERT INTO sync_changes (id, user_id, session_id, message_id, change_type, "
+            + "changed_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean postgres;
+
+    public SyncChangeRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // SQL for a new change id, for callers writing change rows with INSERT ... SELECT.
+    public static String newId(boolean postgres) {
+        return postgres ? "gen_random_uuid()" : "RANDOM_UUID()";
+    }
+
+    public void record(String userId, UUID sessionId, UUID messageId, SyncChange.Type type) {
+        jdbcTemplate.update(INSERT, UUID.randomUUID(), userId, sessionId, messageId, type.name(), now());
+    }
+
+    public void recordSessions(String userId, Collection<UUID> sessionIds, SyncChange.Type type) {
+        if (sessionIds.isEmpty()) {
+            return;
+        }
+        OffsetDateTime now = now();
+        List<Object[]> rows = new ArrayList<>(sessionIds.size());
+        for (UUID sessionId : sessionIds) {
+            rows.add(new Object[]{UUID.randomUUID(), userId, sessionId, null, type.name(), now});
+        }
+        jdbcTemplate.batchUpdate(INSERT, rows);
+    }
+
+    public void recordMessages(List<MessageChange> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        OffsetDateTime now = now();
+        List<Object[]> rows = new ArrayList<>(messages.size());
+        for (MessageChange message : messages) {
+            rows.add(new Object[]{UUID.randomUUID(), message.userId(), message.sessionId(), message.messageId(),
+                    SyncChange.Type.MESSAGE.name(), now});
+        }
+        jdbcTemplate.batchUpdate(INSERT, rows);
+    }
+
+    // Rows of deleted sessions are superseded by their tombstone, which is always tokened after them.
+    public int compact(Collection<UUID> sessionIds) {
+        if (sessionIds.isEmpty()) {
+            return 0;
+        }
+        List<Object> args = new ArrayList<>(sessionIds);
+        args.add(SyncChange.Type.SESSION_DELETED.name());
+        return jdbcTemplate.update("DELETE FROM sync_changes WHERE session_id IN ("
+                + String.join(", ", Collections.nCopies(sessionIds.size(), "?")) + ") AND change_type <> ?",
+                args.toArray());
+    }
+
+    // Gives up to max committed rows of the user without a token the next tokens. Must run in a transaction: the
+    // cursor row stays locked until commit, so a concurrent run waits and then sees these rows as tokened. Rows of
+    // transactions still open are invisible here and get later tokens once they commit.
+    public Tokens assignTokens(String userId, int max) {
+        long last = lockCursor(userId);
+        List<UUID> ids = jdbcTemplate.queryForList("SELECT id FROM sync_changes WHERE user_id = ? "
+                + "AND sync_token IS NULL ORDER BY changed_at, id LIMIT ?", UUID.class, userId, max + 1);
+        boolean more = ids.size() > max;
+        if (more) {
+            ids = ids.subList(0, max);
+        }
+        if (ids.isEmpty()) {
+            return new Tokens(last, false);
+        }
+        List<Object[]> rows = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            rows.add(new Object[]{++last, id});
+        }
+        jdbcTemplate.batchUpdate("UPDATE sync_changes SET sync_token = ? WHERE id = ?", rows);
+        jdbcTemplate.update("UPDATE sync_cursors SET last_token = ? WHERE user_id = ?", last, userId);
+        return new Tokens(last, more);
+    }
+
+    public List<Change> findAfter(String userId, long after, int limit) {
+        return jdbcTemplate.query("SELECT sync_token, change_type, session_id, message_id FROM sync_changes "
+                        + "WHERE user_id = ? AND sync_token > ? ORDER BY sync_token LIMIT ?",
+                CHANGE_MAPPER, userId, after, limit);
+    }
+
+    public long cursor(String userId) {
+        List<Long> last = jdbcTemplate.queryForList("SELECT last_token FROM sync_cursors WHERE user_id = ?",
+                Long.class, userId);
+        return last.isEmpty() ? 0 : last.get(0);
+    }
+
+    // After a user's rows were copied in from another shard, tokens continue from the source cursor. Compaction may
+    // have removed the highest tokened row, so the cursor cannot be derived from the copied rows alone.
+    public void restoreCursor(String userId, long lastToken) {
+        jdbcTemplate.update("DELETE FROM sync_cursors WHERE user_id = ?", userId);
+        jdbcTemplate.update("INSERT INTO sync_cursors (user_id, last_token) SELECT ?, GREATEST(?, "
+                + "COALESCE(MAX(sync_token), 0)) FROM sync_changes WHERE user_id = ?", userId, lastToken, userId);
+    }
+
+    private long lockCursor(String userId) {
+        String lock = "SELECT last_token FROM sync_cursors WHERE user_id = ? FOR UPDATE";
+        List<Long> last = jdbcTemplate.queryForList(lock, Long.class, userId);
+        if (!last.isEmpty()) {
+            return last.get(0);
+        }
+        boolean postgres = isPostgres();
+        try {
+            jdbcTemplate.update("INSERT INTO sync_cursors (user_id, last_token) SELECT ?, COALESCE(MAX(sync_token), 0) "
+                    + "FROM sync_changes WHERE user_id = ?" + (postgres ? " ON CONFLICT (user_id) DO NOTHING" : ""),
+                    userId, userId);
+        } catch (DuplicateKeyException exception) {
+            // A concurrent first sync created the row; lock that one instead.
+        }
+        return jdbcTemplate.queryForObject(lock, Long.class, userId);
+    }
+
+    public boolean isPostgres() {
+        Boolean known = postgres;
+        if (known == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            known = "PostgreSQL".equalsIgnoreCase(product);
+            postgres = known;
+        }
+        return known;
+    }
+
+    private static OffsetDateTime now() {
+        return Instant.now().atOffset(ZoneOffset.UTC);
+    }
+
+    private static final RowMapper<Change> CHANGE_MAPPER = (resultSet, rowNum) -> new Change(
+            resultSet.getLong("sync_token"),
+            SyncChange.Type.valueOf(resultSet.getString("change_type")),
+            resultSet.getObject("session_id", UUID.class),
+            resultSet.getObject("message_id", UUID.class)
+    );
+
+    public record Change(long token, SyncChange.Type type, UUID sessionId, UUID messageId) {
+    }
+
+    public record MessageChange(String userId, UUID sessionId, UUID messageId) {
+    }
+
+    // The user's highest token after an assignment, and whether committed rows were left for the next one.
+    public record Tokens(long last, boolean more) {
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.chatstorage.repository;
+
+import com.example.chatstorage.entity.UserShardAssignment;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface UserShardAssignmentRepository extends JpaRepository<UserShardAssignment, String> {
+}
@@ -2,6 +2,8 @@ package com.example.chatstorage.security;
 
 import com.example.chatstorage.auth.AuthContext;
 import com.example.chatstorage.auth.AuthenticatedApiKey;
+import com.example.chatstorage.bulkhead.BulkheadRegistry;
+import com.example.chatstorage.bulkhead.RequestClass;
 import com.example.chatstorage.config.AppProperties;
 import com.example.chatstorage.exception.UnauthorizedException;
 import com.example.chatstorage.service.ApiKeyService;
@@ -15,18 +17,21 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 @Component
-@Order(2)
+@Order(3)
 public class ApiKeyAuthFilter extends OncePerRequestFilter {
 
     public static final String API_KEY_HEADER = "X-API-Key";
     public static final String ADMIN_API_KEY_HEADER = "X-Admin-Key";
     private static final String API_KEY_PATH = "/api/v1/api-keys";
+    private static final String ADMIN_PATH = "/api/v1/admin";
     private final AppProperties appProperties;
     private final ApiKeyService apiKeyService;
+    private final BulkheadRegistry bulkheadRegistry;
 
-    public ApiKeyAuthFilter(AppProperties appProperties, ApiKeyService apiKeyService) {
+    public ApiKeyAuthFilter(AppProperties appProperties, ApiKeyService apiKeyService, BulkheadRegistry bulkheadRegistry) {
         this.appProperties = appProperties;
         this.apiKeyService = apiKeyService;
+        this.bulkheadRegistry = bulkheadRegistry;
     }
 
     @Override
@@ -38,14 +43,16 @@ public class ApiKeyAuthFilter extends OncePerRequestFilter {
             return;
         }
 
-        if (uri.startsWith(API_KEY_PATH)) {
+        if (uri.startsWith(API_KEY_PATH) || uri.startsWith(ADMIN_PATH)) {
             validateAdminApiKey(request);
             filterChain.doFilter(request, response);
             return;
         }
 
         String providedApiKey = request.getHeader(API_KEY_HEADER);
-        AuthenticatedApiKey authenticatedApiKey = apiKeyService.authenticate(providedApiKey);
+        // Key lookups draw on their own bulkhead so heavy readers cannot starve authentication.
+        AuthenticatedApiKey authenticatedApiKey = bulkheadRegistry.call(RequestClass.AUTH,
+                () -> apiKeyService.authenticate(providedApiKey));
         request.setAttribute(AuthContext.ATTR_USER_ID, authenticatedApiKey.userId());
 
         filterChain.doFilter(request, response);
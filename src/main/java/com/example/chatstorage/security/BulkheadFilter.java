@@ -0,0 +1,70 @@
+package com.example.chatstorage.security;
+
+import com.example.chatstorage.bulkhead.Bulkhead;
+import com.example.chatstorage.bulkhead.BulkheadContext;
+import com.example.chatstorage.bulkhead.BulkheadRegistry;
+import com.example.chatstorage.bulkhead.RequestClass;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+@Component
+@Order(2)
+public class BulkheadFilter extends OncePerRequestFilter {
+
+    private final BulkheadRegistry bulkheadRegistry;
+
+    public BulkheadFilter(BulkheadRegistry bulkheadRegistry) {
+        this.bulkheadRegistry = bulkheadRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestClass requestClass = classify(request);
+        if (!bulkheadRegistry.isEnabled() || requestClass == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // Rejected before authentication so a saturated class costs no database work at all.
+        Bulkhead bulkhead = bulkheadRegistry.enter(requestClass);
+        BulkheadContext.set(bulkhead);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            BulkheadContext.clear();
+            bulkhead.exit();
+        }
+    }
+
+    static RequestClass classify(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        if (uri.startsWith("/actuator") || uri.startsWith("/swagger-ui") || uri.startsWith("/v3/api-docs")) {
+            return null;
+        }
+        if (uri.startsWith("/api/v1/api-keys") || uri.startsWith("/api/v1/admin")) {
+            return RequestClass.ADMIN;
+        }
+        // Chunk uploads may stay open for the whole generation and never touch the database,
+        // so they must not hold a write slot.
+        if (uri.startsWith("/api/v1/sessions/") && uri.contains("/messages/streams/") && uri.endsWith("/chunks")) {
+            return null;
+        }
+
+        String method = request.getMethod();
+        boolean read = "GET".equals(method) || "HEAD".equals(method);
+        // Similarity search is a POST only because the query embedding is too large for a URL.
+        if (uri.startsWith("/api/v1/search/") || uri.startsWith("/api/v1/export/") || read && uri.startsWith("/api/v1/sessions/")
+                && (uri.endsWith("/messages") || uri.endsWith("/messages/context"))) {
+            return RequestClass.HEAVY_READS;
+        }
+        return read ? RequestClass.READS : RequestClass.WRITES;
+    }
+}
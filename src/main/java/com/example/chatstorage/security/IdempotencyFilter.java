@@ -0,0 +1,182 @@
+package com.example.chatstorage.security;
+
+import com.example.chatstorage.auth.AuthContext;
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.exception.IdempotencyConflictException;
+import com.example.chatstorage.exception.IdempotencyKeyReuseException;
+import com.example.chatstorage.http.CachedBodyRequestWrapper;
+import com.example.chatstorage.idempotency.IdempotencyStore;
+import com.example.chatstorage.idempotency.IdempotentResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+// Session and message creation (alone or in a batch) retried with the same Idempotency-Key gets the first response
+// back instead of creating a second row. Runs inside the compression filter, so the stored body is uncompressed and
+// each replay is encoded for the client that sent it.
+@Component
+@Order(7)
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyFilter.class);
+    private static final Pattern CREATE_PATHS = Pattern.compile("/api/v1/(sessions(/[^/]+/messages)?|batch)");
+    private static final List<String> STORED_HEADERS = List.of(HttpHeaders.LOCATION, HttpHeaders.ETAG, "Preference-Applied");
+
+    private final IdempotencyStore idempotencyStore;
+    private final AppProperties appProperties;
+
+    public IdempotencyFilter(IdempotencyStore idempotencyStore, AppProperties appProperties) {
+        this.idempotencyStore = idempotencyStore;
+        this.appProperties = appProperties;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String idempotencyKey = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+        return !appProperties.getIdempotency().isEnabled()
+                || !"POST".equals(request.getMethod())
+                || !CREATE_PATHS.matcher(request.getRequestURI()).matches()
+                || idempotencyKey == null || idempotencyKey.isBlank();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        AppProperties.Idempotency settings = appProperties.getIdempotency();
+        String idempotencyKey = request.getHeader(IDEMPOTENCY_KEY_HEADER).trim();
+        if (idempotencyKey.length() > settings.getMaxKeyLength()) {
+            throw new IllegalArgumentException(IDEMPOTENCY_KEY_HEADER + " must be at most " + settings.getMaxKeyLength() + " characters");
+        }
+        Object userId = request.getAttribute(AuthContext.ATTR_USER_ID);
+        if (!(userId instanceof String owner) || owner.isBlank()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        CachedBodyRequestWrapper cachedRequest = new CachedBodyRequestWrapper(request, settings.getMaxRequestBytes());
+        // Scoped to the user, so two clients choosing the same key never see each other's responses.
+        String key = sha256(owner + "\n" + idempotencyKey);
+        String fingerprint = fingerprint(cachedRequest);
+        // Unique to this request, so a duplicate that claims the key after our marker expired is never released or
+        // overwritten by us.
+        String claimToken = UUID.randomUUID().toString();
+        IdempotentResponse existing;
+        try {
+            existing = idempotencyStore.claim(key, fingerprint, claimToken,
+                    Duration.ofSeconds(settings.getInFlightTtlSeconds()));
+        } catch (RuntimeException exception) {
+            log.warn("Idempotency store unavailable; processing {} without deduplication", request.getRequestURI(), exception);
+            filterChain.doFilter(cachedRequest, response);
+            return;
+        }
+        if (existing != null) {
+            replay(existing, fingerprint, response);
+            return;
+        }
+
+        ContentCachingResponseWrapper cachingResponse = new ContentCachingResponseWrapper(response);
+        boolean stored = false;
+        try {
+            filterChain.doFilter(cachedRequest, cachingResponse);
+            stored = store(key, fingerprint, claimToken, cachingResponse);
+        } finally {
+            if (!stored) {
+                release(key, fingerprint, claimToken);
+            }
+        }
+        cachingResponse.copyBodyToResponse();
+    }
+
+    private void replay(IdempotentResponse existing, String fingerprint, HttpServletResponse response) throws IOException {
+        if (!existing.fingerprint().equals(fingerprint)) {
+            throw new IdempotencyKeyReuseException(IDEMPOTENCY_KEY_HEADER + " was already used for a different request");
+        }
+        if (!existing.isComplete()) {
+            throw new IdempotencyConflictException("A request with this " + IDEMPOTENCY_KEY_HEADER + " is still being processed");
+        }
+        response.setStatus(existing.status());
+        existing.headers().forEach(response::setHeader);
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(existing.body().length);
+        response.getOutputStream().write(existing.body());
+    }
+
+    // Only successes are kept; after an error the key is released so the client's retry runs again.
+    private boolean store(String key, String fingerprint, String claimToken, ContentCachingResponseWrapper response) {
+        AppProperties.Idempotency settings = appProperties.getIdempotency();
+        int status = response.getStatus();
+        if (status < 200 || status >= 300 || response.getContentSize() > settings.getMaxResponseBytes()) {
+            return false;
+        }
+        Map<String, String> headers = new LinkedHashMap<>();
+        if (response.getContentType() != null) {
+            headers.put(HttpHeaders.CONTENT_TYPE, response.getContentType());
+        }
+        for (String name : STORED_HEADERS) {
+            String value = response.getHeader(name);
+            if (value != null) {
+                headers.put(name, value);
+            }
+        }
+        try {
+            idempotencyStore.complete(key, claimToken,
+                    new IdempotentResponse(fingerprint, status, headers, response.getContentAsByteArray()),
+                    Duration.ofSeconds(settings.getTtlSeconds()));
+            return true;
+        } catch (RuntimeException exception) {
+            log.warn("Could not store idempotent response", exception);
+            return false;
+        }
+    }
+
+    private void release(String key, String fingerprint, String claimToken) {
+        try {
+            idempotencyStore.release(key, fingerprint, claimToken);
+        } catch (RuntimeException exception) {
+            // The marker expires after the in-flight TTL; until then retries get 409.
+            log.warn("Could not release idempotency key", exception);
+        }
+    }
+
+    // A retry must repeat the original request exactly; reusing a key for anything else is a client error.
+    private static String fingerprint(CachedBodyRequestWrapper request) {
+        MessageDigest digest = sha256Digest();
+        digest.update((request.getMethod() + " " + request.getRequestURI() + "\n" + request.getContentType() + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest(request.body()));
+    }
+
+    private static String sha256(String input) {
+        return HexFormat.of().formatHex(sha256Digest().digest(input.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest sha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    }
+}
@@ -15,9 +15,12 @@ import java.security.NoSuchAlgorithmException;
 import java.util.HexFormat;
 
 @Component
-@Order(3)
+@Order(4)
 public class RateLimitingFilter extends OncePerRequestFilter {
 
+    // The bucket this request drew on, for endpoints that charge more than one token (batches).
+    public static final String ATTR_CLIENT_KEY = "rateLimit.clientKey";
+
     private final RedisRateLimiterService redisRateLimiterService;
 
     public RateLimitingFilter(RedisRateLimiterService redisRateLimiterService) {
@@ -35,6 +38,7 @@ public class RateLimitingFilter extends OncePerRequestFilter {
 
         String clientKey = resolveClientKey(request);
         redisRateLimiterService.acquirePermission(clientKey);
+        request.setAttribute(ATTR_CLIENT_KEY, clientKey);
 
         filterChain.doFilter(request, response);
     }
@@ -44,9 +48,12 @@ public class RateLimitingFilter extends OncePerRequestFilter {
         if (apiKey == null || apiKey.isBlank()) {
             apiKey = request.getHeader(ApiKeyAuthFilter.ADMIN_API_KEY_HEADER);
         }
-        String ip = resolveClientIp(request);
-        String fingerprintSource = (apiKey == null ? "unknown" : apiKey) + ":" + ip;
-        return sha256(fingerprintSource);
+        return fingerprint(apiKey, resolveClientIp(request));
+    }
+
+    // Shared with the gRPC interceptor, so a key draws on the same bucket whichever protocol it uses.
+    public static String fingerprint(String apiKey, String clientIp) {
+        return sha256((apiKey == null ? "unknown" : apiKey) + ":" + clientIp);
     }
 
     private String resolveClientIp(HttpServletRequest request) {
@@ -58,7 +65,7 @@ public class RateLimitingFilter extends OncePerRequestFilter {
         return forwardedFor.split(",")[0].trim();
     }
 
-    private String sha256(String input) {
+    private static String sha256(String input) {
         try {
             MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
             byte[] digest = messageDigest.digest(input.getBytes(StandardCharsets.UTF_8));
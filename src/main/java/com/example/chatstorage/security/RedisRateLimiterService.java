@@ -51,11 +51,16 @@ public class RedisRateLimiterService {
     }
 
     public void acquirePermission(String clientFingerprint) {
+        acquirePermission(clientFingerprint, 1);
+    }
+
+    // All-or-nothing: a request costing several tokens takes none of them when the bucket cannot cover it.
+    public void acquirePermission(String clientFingerprint, long tokens) {
         BucketConfiguration config = buildBucketConfiguration();
         try {
             String key = KEY_PREFIX + clientFingerprint;
             Bucket bucket = proxyManager.builder().build(key, () -> config);
-            if (!bucket.tryConsume(1)) {
+            if (!bucket.tryConsume(tokens)) {
                 throw new RateLimitExceededException("Rate limit exceeded. Try again later.");
             }
         } catch (RuntimeException exception) {
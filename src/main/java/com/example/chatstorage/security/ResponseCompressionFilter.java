@@ -0,0 +1,65 @@
+package com.example.chatstorage.security;
+
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.http.CompressingResponseWrapper;
+import com.example.chatstorage.http.ContentCoding;
+import com.example.chatstorage.http.EncodedEtagRequestWrapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+// Negotiated gzip/zstd for API payloads. Done here instead of in the connector so zstd is available
+// and so strong ETags survive: the connector skips compressing any response that carries one. A compressed
+// response keeps a strong ETag with the coding appended ("abc-gzip"), which is stripped again from
+// If-None-Match and If-Match before handlers compare it.
+@Component
+@Order(6)
+public class ResponseCompressionFilter extends OncePerRequestFilter {
+
+    private final AppProperties appProperties;
+    private final List<MediaType> compressibleTypes;
+
+    public ResponseCompressionFilter(AppProperties appProperties) {
+        this.appProperties = appProperties;
+        this.compressibleTypes = MediaType.parseMediaTypes(appProperties.getCompression().getMimeTypes());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !appProperties.getCompression().isEnabled() || "HEAD".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        AppProperties.Compression compression = appProperties.getCompression();
+        EncodedEtagRequestWrapper conditional = new EncodedEtagRequestWrapper(request);
+        ContentCoding coding = ContentCoding.negotiate(request.getHeader(HttpHeaders.ACCEPT_ENCODING), compression.isZstdEnabled());
+        if (coding == null) {
+            filterChain.doFilter(conditional, response);
+            return;
+        }
+
+        CompressingResponseWrapper wrapper = new CompressingResponseWrapper(response, coding,
+                compression.getMinResponseBytes(), compression.getZstdLevel(), compressibleTypes);
+        if (conditional.hasEncodedValidator()) {
+            wrapper.encodeNotModifiedEtag();
+        }
+        // On an exception nothing held back is written; the error response goes out uncompressed.
+        filterChain.doFilter(conditional, wrapper);
+        if (request.isAsyncStarted()) {
+            wrapper.passThrough();
+        } else {
+            wrapper.finish();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.chatstorage.security;
+
+import com.example.chatstorage.auth.AuthContext;
+import com.example.chatstorage.exception.ShardMigrationInProgressException;
+import com.example.chatstorage.sharding.ShardContext;
+import com.example.chatstorage.sharding.ShardRouter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+@Component
+@Order(5)
+@ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+public class ShardContextFilter extends OncePerRequestFilter {
+
+    private final ShardRouter shardRouter;
+
+    public ShardContextFilter(ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Object userId = request.getAttribute(AuthContext.ATTR_USER_ID);
+        if (!(userId instanceof String value) || value.isBlank()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        if (isReadOnly(request.getMethod())) {
+            doFilterOnShard(value, request, response, filterChain);
+            return;
+        }
+        // Registered before the check, so a migration waiting for this node to drain also waits for this request.
+        long ticket = shardRouter.beginWrite();
+        try {
+            if (shardRouter.isMigrating(value)) {
+                throw new ShardMigrationInProgressException(
+                        "User data is being moved between shards. Try again shortly.");
+            }
+            doFilterOnShard(value, request, response, filterChain);
+        } finally {
+            shardRouter.endWrite(ticket);
+        }
+    }
+
+    private void doFilterOnShard(String userId, HttpServletRequest request, HttpServletResponse response,
+                                 FilterChain filterChain) throws ServletException, IOException {
+        // Transactions begin inside the chain, so each request's transaction is bound to the user's shard.
+        ShardContext.set(shardRouter.shardFor(userId));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ShardContext.clear();
+        }
+    }
+
+    private boolean isReadOnly(String method) {
+        return "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method);
+    }
+}
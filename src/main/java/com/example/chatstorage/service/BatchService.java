@@ -0,0 +1,207 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.dto.AddMessageRequest;
+import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.dto.ChatSessionResponse;
+import com.example.chatstorage.dto.CreateSessionRequest;
+import com.example.chatstorage.dto.UpdateFavoriteRequest;
+import com.example.chatstorage.dto.UpdateSessionNameRequest;
+import com.example.chatstorage.dto.batch.BatchOperation;
+import com.example.chatstorage.dto.batch.BatchRequest;
+import com.example.chatstorage.exception.BatchDependencyException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Runs several session and message operations of one user in one HTTP exchange. Each operation calls the same
+// service method as its endpoint, so validation, ownership checks and side effects (caches, events) are unchanged.
+// Atomic batches share one transaction; their after-commit work only happens if every operation succeeded.
+@Service
+public class BatchService {
+
+    private static final Pattern SESSION_PATHS = Pattern.compile("/api/v1/sessions(?:/([^/]+)(?:/(rename|favorite|messages))?)?");
+    private static final Pattern REFERENCE = Pattern.compile("\\$(\\d+)");
+
+    private final ChatSessionService chatSessionService;
+    private final ChatMessageService chatMessageService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final AppProperties appProperties;
+
+    public BatchService(ChatSessionService chatSessionService,
+                        ChatMessageService chatMessageService,
+                        ObjectMapper objectMapper,
+                        Validator validator,
+                        PlatformTransactionManager transactionManager,
+                        AppProperties appProperties) {
+        this.chatSessionService = chatSessionService;
+        this.chatMessageService = chatMessageService;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.appProperties = appProperties;
+    }
+
+    public int maxOperations() {
+        return appProperties.getBatch().getMaxOperations();
+    }
+
+    public void validate(BatchRequest request) {
+        if (request.operations().size() > maxOperations()) {
+            throw new IllegalArgumentException("A batch may contain at most " + maxOperations() + " operations");
+        }
+    }
+
+    // One outcome per operation, in order. Without atomic, a failed operation does not stop the ones after it;
+    // only operations referring to its result fail with it.
+    public List<Outcome> execute(String userId, BatchRequest request) {
+        validate(request);
+        List<BatchOperation> operations = request.operations();
+        Outcome[] outcomes = new Outcome[operations.size()];
+        if (!request.atomic()) {
+            for (int i = 0; i < operations.size(); i++) {
+                outcomes[i] = run(userId, operations.get(i), i, outcomes);
+            }
+            return Arrays.asList(outcomes);
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < operations.size(); i++) {
+                outcomes[i] = run(userId, operations.get(i), i, outcomes);
+                if (outcomes[i].failed()) {
+                    status.setRollbackOnly();
+                    markRolledBack(outcomes, i);
+                    return;
+                }
+            }
+        });
+        return Arrays.asList(outcomes);
+    }
+
+    private static void markRolledBack(Outcome[] outcomes, int failed) {
+        for (int i = 0; i < outcomes.length; i++) {
+            if (i != failed) {
+                String message = (i < failed ? "Rolled back: operation " : "Not run: operation ") + failed + " failed";
+                outcomes[i] = Outcome.failure(new BatchDependencyException(message));
+            }
+        }
+    }
+
+    private Outcome run(String userId, BatchOperation operation, int index, Outcome[] earlier) {
+        try {
+            UriComponents uri = UriComponentsBuilder.fromUriString(resolveReferences(operation.path(), index, earlier)).build();
+            return dispatch(userId, operation.method().toUpperCase(Locale.ROOT), uri, operation.body());
+        } catch (RuntimeException exception) {
+            return Outcome.failure(exception);
+        }
+    }
+
+    // "$N" as a path segment stands for the id returned by operation N, e.g. a session created earlier in the batch.
+    private static String resolveReferences(String path, int index, Outcome[] earlier) {
+        String[] segments = path.split("/", -1);
+        for (int i = 0; i < segments.length; i++) {
+            Matcher reference = REFERENCE.matcher(segments[i]);
+            if (!reference.matches()) {
+                continue;
+            }
+            int target = Integer.parseInt(reference.group(1));
+            if (target >= index) {
+                throw new IllegalArgumentException("$" + target + " must refer to an earlier operation");
+            }
+            UUID id = earlier[target].id();
+            if (id == null) {
+                throw new BatchDependencyException("Operation " + target + " returned no id to refer to");
+            }
+            segments[i] = id.toString();
+        }
+        return String.join("/", segments);
+    }
+
+    private Outcome dispatch(String userId, String method, UriComponents uri, Map<String, Object> body) {
+        Matcher path = SESSION_PATHS.matcher(uri.getPath() == null ? "" : uri.getPath());
+        if (!path.matches()) {
+            throw unsupported(method, uri);
+        }
+        UUID sessionId = path.group(1) == null ? null : UUID.fromString(path.group(1));
+        String route = method + " " + (sessionId == null ? "sessions" : path.group(2) == null ? "session" : path.group(2));
+        return switch (route) {
+            case "POST sessions" -> Outcome.of(201, chatSessionService.createSession(userId, body(body, CreateSessionRequest.class)));
+            case "PATCH rename" -> Outcome.of(200,
+                    chatSessionService.renameSession(sessionId, userId, body(body, UpdateSessionNameRequest.class)));
+            case "PATCH favorite" -> Outcome.of(200,
+                    chatSessionService.updateFavorite(sessionId, userId, body(body, UpdateFavoriteRequest.class)));
+            case "DELETE session" -> {
+                chatSessionService.deleteSession(sessionId, userId);
+                yield Outcome.of(204, null);
+            }
+            case "POST messages" -> Outcome.of(201, chatMessageService.addMessage(sessionId, userId, body(body, AddMessageRequest.class)));
+            case "GET messages" -> Outcome.of(200, chatMessageService.listMessages(sessionId, userId, page(uri.getQueryParams())));
+            default -> throw unsupported(method, uri);
+        };
+    }
+
+    private <T> T body(Map<String, Object> body, Class<T> type) {
+        T value = objectMapper.convertValue(body == null ? Map.of() : body, type);
+        Set<ConstraintViolation<T>> violations = validator.validate(value);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+        return value;
+    }
+
+    private static PageRequest page(MultiValueMap<String, String> query) {
+        int page = Integer.parseInt(query.getOrDefault("page", List.of("0")).get(0));
+        int size = Integer.parseInt(query.getOrDefault("size", List.of("50")).get(0));
+        return PageRequest.of(page, size, Sort.by(Sort.Direction.ASC, "createdAt"));
+    }
+
+    private static IllegalArgumentException unsupported(String method, UriComponents uri) {
+        return new IllegalArgumentException("Unsupported batch operation: " + method + " " + uri.getPath());
+    }
+
+    // status and body of a success, or the exception the endpoint would have turned into an error response.
+    public record Outcome(int status, Object body, RuntimeException error) {
+
+        static Outcome of(int status, Object body) {
+            return new Outcome(status, body, null);
+        }
+
+        static Outcome failure(RuntimeException error) {
+            return new Outcome(0, null, error);
+        }
+
+        public boolean failed() {
+            return error != null;
+        }
+
+        UUID id() {
+            if (body instanceof ChatSessionResponse session) {
+                return session.id();
+            }
+            if (body instanceof ChatMessageResponse message) {
+                return message.id();
+            }
+            return null;
+        }
+    }
+}
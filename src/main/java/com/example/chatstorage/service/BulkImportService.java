@@ -0,0 +1,293 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.cache.MessageTailCache;
+import com.example.chatstorage.cache.SessionIndexCache;
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.dto.imports.BulkImportResponse;
+import com.example.chatstorage.dto.imports.ImportRejection;
+import com.example.chatstorage.entity.SenderType;
+import com.example.chatstorage.exception.ShardMigrationInProgressException;
+import com.example.chatstorage.repository.BulkImportRepository;
+import com.example.chatstorage.sharding.ShardContext;
+import com.example.chatstorage.sharding.ShardRouter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+@Service
+public class BulkImportService {
+
+    private static final int MAX_TITLE_LENGTH = 200;
+    private static final int MAX_LINE_CHARS = 4 * 1024 * 1024;
+
+    private final BulkImportRepository bulkImportRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final MessageTailCache messageTailCache;
+    private final SessionIndexCache sessionIndexCache;
+    private final ObjectProvider<ShardRouter> shardRouter;
+    private final AppProperties appProperties;
+
+    public BulkImportService(BulkImportRepository bulkImportRepository,
+                             PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper,
+                             MessageTailCache messageTailCache,
+                             SessionIndexCache sessionIndexCache,
+                             ObjectProvider<ShardRouter> shardRouter,
+                             AppProperties appProperties) {
+        this.bulkImportRepository = bulkImportRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.messageTailCache = messageTailCache;
+        this.sessionIndexCache = sessionIndexCache;
+        this.shardRouter = shardRouter;
+        this.appProperties = appProperties;
+    }
+
+    // Accepts the export format: a "session" line must come before the "message" lines that reference it.
+    public BulkImportResponse importHistory(String userId, InputStream body) {
+        if (userId == null || userId.isBlank()) {
+            throw new IllegalArgumentException("userId must not be blank");
+        }
+        String owner = userId.trim();
+        if (owner.length() > 100) {
+            throw new IllegalArgumentException("userId must be at most 100 characters");
+        }
+        ShardRouter router = shardRouter.getIfAvailable();
+        if (router == null) {
+            return run(owner, body);
+        }
+        long ticket = router.beginWrite();
+        try {
+            if (router.isMigrating(owner)) {
+                throw new ShardMigrationInProgressException(
+                        "User data is being moved between shards. Try again shortly.");
+            }
+            return ShardContext.callOn(router.shardFor(owner), () -> run(owner, body));
+        } finally {
+            router.endWrite(ticket);
+        }
+    }
+
+    private BulkImportResponse run(String userId, InputStream body) {
+        ImportRun run = new ImportRun(userId);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                run.accept(line);
+            }
+            run.flush();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        } finally {
+            // Earlier chunks are already committed; caches must not keep serving the pre-import view.
+            sessionIndexCache.evict(userId);
+        }
+        return run.response();
+    }
+
+    private final class ImportRun {
+
+        private final String userId;
+        private final int batchSize = Math.max(1, appProperties.getBulkImport().getBatchSize());
+        private final int maxReported = Math.max(0, appProperties.getBulkImport().getMaxReportedRejections());
+        private final List<BulkImportRepository.StagedSession> sessions = new ArrayList<>();
+        private final List<BulkImportRepository.StagedMessage> messages = new ArrayList<>();
+        private final Set<UUID> chunkIds = new HashSet<>();
+        private final List<ImportRejection> rejections = new ArrayList<>();
+        private long lineNumber;
+        private long sessionsImported;
+        private long sessionsSkipped;
+        private long messagesImported;
+        private long messagesSkipped;
+        private long rejectedCount;
+
+        private ImportRun(String userId) {
+            this.userId = userId;
+        }
+
+        void accept(String line) {
+            lineNumber++;
+            if (line.isBlank()) {
+                return;
+            }
+            try {
+                parse(line);
+            } catch (IllegalArgumentException exception) {
+                reject(lineNumber, exception.getMessage());
+            }
+            if (sessions.size() + messages.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        private void parse(String line) {
+            if (line.length() > MAX_LINE_CHARS) {
+                throw new IllegalArgumentException("line is too long");
+            }
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (JsonProcessingException exception) {
+                throw new IllegalArgumentException("invalid JSON");
+            }
+            if (node == null || !node.isObject()) {
+                throw new IllegalArgumentException("invalid JSON");
+            }
+            UUID id = uuid(node, "id");
+            String type = text(node, "type");
+            if ("session".equals(type)) {
+                BulkImportRepository.StagedSession session = session(node, id);
+                claim(id);
+                sessions.add(session);
+            } else if ("message".equals(type)) {
+                BulkImportRepository.StagedMessage message = message(node, id);
+                claim(id);
+                messages.add(message);
+            } else {
+                throw new IllegalArgumentException("type must be session or message");
+            }
+        }
+
+        // Staging tables have no unique keys, so a repeated id inside one chunk would be inserted twice.
+        private void claim(UUID id) {
+            if (!chunkIds.add(id)) {
+                throw new IllegalArgumentException("duplicate id in import");
+            }
+        }
+
+        private BulkImportRepository.StagedSession session(JsonNode node, UUID id) {
+            String title = text(node, "title");
+            title = title == null || title.isBlank() ? "New Chat" : title.strip();
+            if (title.length() > MAX_TITLE_LENGTH) {
+                throw new IllegalArgumentException("title must be at most " + MAX_TITLE_LENGTH + " characters");
+            }
+            Instant createdAt = instant(node, "createdAt", Instant.now());
+            Instant updatedAt = instant(node, "updatedAt", createdAt);
+            return new BulkImportRepository.StagedSession(lineNumber, id, clean(title), node.path("favorite").asBoolean(false),
+                    createdAt, updatedAt);
+        }
+
+        private BulkImportRepository.StagedMessage message(JsonNode node, UUID id) {
+            UUID sessionId = uuid(node, "sessionId");
+            SenderType sender;
+            try {
+                sender = SenderType.valueOf(String.valueOf(text(node, "sender")));
+            } catch (IllegalArgumentException exception) {
+                throw new IllegalArgumentException("sender must be USER, ASSISTANT or SYSTEM");
+            }
+            String content = text(node, "content");
+            if (content == null || content.isBlank()) {
+                throw new IllegalArgumentException("content must not be blank");
+            }
+            content = clean(content.trim());
+            String retrievedContext = clean(text(node, "retrievedContext"));
+            Instant createdAt = instant(node, "createdAt", null);
+            if (createdAt == null) {
+                throw new IllegalArgumentException("createdAt is required");
+            }
+            int contentBytes = MessageSizeEstimator.bytes(content);
+            int contextBytes = MessageSizeEstimator.bytes(retrievedContext);
+            return new BulkImportRepository.StagedMessage(lineNumber, id, sessionId, sender, content, retrievedContext,
+                    createdAt, contentBytes, MessageSizeEstimator.tokens(content), contextBytes,
+                    MessageSizeEstimator.tokens(retrievedContext), ChatSessionService.preview(content));
+        }
+
+        void flush() {
+            if (sessions.isEmpty() && messages.isEmpty()) {
+                return;
+            }
+            List<BulkImportRepository.MergeResult> results = transactionTemplate.execute(status -> {
+                boolean postgres = bulkImportRepository.isPostgres();
+                bulkImportRepository.prepareStaging(postgres);
+                bulkImportRepository.stageSessions(sessions, postgres);
+                bulkImportRepository.stageMessages(messages, postgres);
+                // Sessions first, so messages in the same chunk can reference them.
+                List<BulkImportRepository.MergeResult> merged = List.of(
+                        bulkImportRepository.mergeSessions(userId, postgres),
+                        bulkImportRepository.mergeMessages(userId, postgres));
+                bulkImportRepository.recordChanges(userId, postgres);
+                return merged;
+            });
+            BulkImportRepository.MergeResult sessionResult = results.get(0);
+            BulkImportRepository.MergeResult messageResult = results.get(1);
+            sessionsImported += sessionResult.inserted();
+            sessionsSkipped += sessionResult.duplicates();
+            messagesImported += messageResult.inserted();
+            messagesSkipped += messageResult.duplicates();
+            sessionResult.rejectedLines().forEach(line -> reject(line, "session belongs to another user"));
+            messageResult.rejectedLines().forEach(line -> reject(line, "session not found for this user"));
+            messageResult.touchedSessions().forEach(messageTailCache::evict);
+
+            sessions.clear();
+            messages.clear();
+            chunkIds.clear();
+        }
+
+        private void reject(long line, String reason) {
+            rejectedCount++;
+            if (rejections.size() < maxReported) {
+                rejections.add(new ImportRejection(line, reason));
+            }
+        }
+
+        BulkImportResponse response() {
+            List<ImportRejection> sorted = new ArrayList<>(rejections);
+            sorted.sort((left, right) -> Long.compare(left.line(), right.line()));
+            return new BulkImportResponse(userId, lineNumber, sessionsImported, sessionsSkipped, messagesImported,
+                    messagesSkipped, rejectedCount, sorted);
+        }
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static UUID uuid(JsonNode node, String field) {
+        String value = text(node, field);
+        if (value == null) {
+            throw new IllegalArgumentException(field + " is required");
+        }
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException exception) {
+            throw new IllegalArgumentException(field + " must be a UUID");
+        }
+    }
+
+    private static Instant instant(JsonNode node, String field, Instant fallback) {
+        String value = text(node, field);
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException exception) {
+            throw new IllegalArgumentException(field + " must be an ISO-8601 instant");
+        }
+    }
+
+    // Postgres text columns cannot hold NUL characters.
+    private static String clean(String value) {
+        return value == null || value.indexOf('\0') < 0 ? value : value.replace("\0", "");
+    }
+}
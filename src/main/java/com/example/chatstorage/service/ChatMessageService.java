@@ -1,57 +1,378 @@
 package com.example.chatstorage.service;
 
+import com.example.chatstorage.cache.MessageTailCache;
+import com.example.chatstorage.config.AppProperties;
 import com.example.chatstorage.dto.AddMessageRequest;
+import com.example.chatstorage.dto.BatchMessagesResponse;
 import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.dto.ContextWindowResponse;
 import com.example.chatstorage.dto.PageResponse;
+import com.example.chatstorage.dto.SessionMessagesResponse;
 import com.example.chatstorage.entity.ChatMessage;
 import com.example.chatstorage.entity.ChatSession;
+import com.example.chatstorage.entity.MessageEmbedding;
+import com.example.chatstorage.entity.SyncChange;
+import com.example.chatstorage.events.SessionEvent;
+import com.example.chatstorage.events.SessionEventPublisher;
+import com.example.chatstorage.ingest.PendingIngests;
 import com.example.chatstorage.repository.ChatMessageRepository;
+import com.example.chatstorage.repository.MessageBatchRepository;
+import com.example.chatstorage.repository.MessageEmbeddingRepository;
+import com.example.chatstorage.repository.SyncChangeRepository;
+import com.example.chatstorage.vector.VectorCodec;
+import com.example.chatstorage.vector.VectorIndexManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
 public class ChatMessageService {
 
+    private static final Logger log = LoggerFactory.getLogger(ChatMessageService.class);
+    private static final int MAX_CONTEXT_MESSAGES = 500;
+    private static final int CONTEXT_SCAN_CHUNK = 50;
+    private static final int MAX_BATCH_SESSIONS = 50;
+    private static final int MAX_BATCH_MESSAGES = 50;
+
     private final ChatMessageRepository chatMessageRepository;
     private final ChatSessionService chatSessionService;
+    private final MessageTailCache messageTailCache;
+    private final MessageEmbeddingRepository messageEmbeddingRepository;
+    private final VectorIndexManager vectorIndexManager;
+    private final SessionEventPublisher sessionEventPublisher;
+    private final PendingIngests pendingIngests;
+    private final AppProperties appProperties;
+    private final MessageBatchRepository messageBatchRepository;
+    private final SyncChangeRepository syncChangeRepository;
+    private final TransactionTemplate transactionTemplate;
 
-    public ChatMessageService(ChatMessageRepository chatMessageRepository, ChatSessionService chatSessionService) {
+    public ChatMessageService(ChatMessageRepository chatMessageRepository,
+                              ChatSessionService chatSessionService,
+                              MessageTailCache messageTailCache,
+                              MessageEmbeddingRepository messageEmbeddingRepository,
+                              VectorIndexManager vectorIndexManager,
+                              SessionEventPublisher sessionEventPublisher,
+                              PendingIngests pendingIngests,
+                              AppProperties appProperties,
+                              MessageBatchRepository messageBatchRepository,
+                              SyncChangeRepository syncChangeRepository,
+                              PlatformTransactionManager transactionManager) {
         this.chatMessageRepository = chatMessageRepository;
         this.chatSessionService = chatSessionService;
+        this.messageTailCache = messageTailCache;
+        this.messageEmbeddingRepository = messageEmbeddingRepository;
+        this.vectorIndexManager = vectorIndexManager;
+        this.sessionEventPublisher = sessionEventPublisher;
+        this.pendingIngests = pendingIngests;
+        this.appProperties = appProperties;
+        this.messageBatchRepository = messageBatchRepository;
+        this.syncChangeRepository = syncChangeRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @Transactional
     public ChatMessageResponse addMessage(UUID sessionId, String userId, AddMessageRequest request) {
-        ChatSession session = chatSessionService.getSessionOrThrow(sessionId, userId);
-        session.setUpdatedAt(Instant.now());
-        chatSessionService.touchSession(session);
+        return write(sessionId, chatSessionService.sessionForAppend(sessionId, userId), userId, request, null);
+    }
+
+    // With a messageId reserved by the caller the message is written at most once: a repeated call returns the
+    // stored row instead of adding a second one. Runs in its own transaction, so when a concurrent call with the
+    // same id wins the insert, the winner's row can still be read once this transaction has rolled back.
+    public ChatMessageResponse addMessage(UUID sessionId, String userId, AddMessageRequest request, UUID messageId) {
+        try {
+            return transactionTemplate.execute(status -> {
+                ChatSession session = chatSessionService.sessionForAppend(sessionId, userId);
+                return stored(sessionId, messageId)
+                        .orElseGet(() -> write(sessionId, session, userId, request, messageId));
+            });
+        } catch (DataIntegrityViolationException exception) {
+            if (messageId == null) {
+                throw exception;
+            }
+            Optional<ChatMessageResponse> stored = transactionTemplate.execute(status -> stored(sessionId, messageId));
+            return stored.orElseThrow(() -> exception);
+        }
+    }
+
+    private Optional<ChatMessageResponse> stored(UUID sessionId, UUID messageId) {
+        if (messageId == null) {
+            return Optional.empty();
+        }
+        Optional<ChatMessage> stored = chatMessageRepository.findById(messageId);
+        if (stored.isPresent() && !stored.get().getSession().getId().equals(sessionId)) {
+            throw new IllegalArgumentException("Message id is already in use: " + messageId);
+        }
+        return stored.map(this::toResponse);
+    }
+
+    private ChatMessageResponse write(UUID sessionId, ChatSession session, String userId, AddMessageRequest request,
+                                      UUID messageId) {
+        float[] embedding = request.embedding();
+        if (embedding != null) {
+            validateEmbedding(userId, embedding);
+        }
 
         ChatMessage message = new ChatMessage();
+        message.setId(messageId);
         message.setSession(session);
         message.setSender(request.sender());
         message.setContent(request.content().trim());
         message.setRetrievedContext(request.retrievedContext());
+        MessageSizeEstimator.apply(message);
 
-        ChatMessage saved = chatMessageRepository.save(message);
-        return toResponse(saved);
+        // A reserved id is flushed at once, so a concurrent write of the same id fails here with a translated
+        // DataIntegrityViolationException instead of at commit.
+        ChatMessage saved = messageId == null
+                ? chatMessageRepository.save(message)
+                : chatMessageRepository.saveAndFlush(message);
+        chatSessionService.recordMessage(sessionId, userId, saved);
+        syncChangeRepository.record(userId, sessionId, saved.getId(), SyncChange.Type.MESSAGE);
+        ChatMessageResponse response = toResponse(saved);
+        if (messageTailCache.isEnabled()) {
+            TransactionHooks.afterCommit(() -> messageTailCache.append(response));
+        }
+        if (sessionEventPublisher.isEnabled()) {
+            TransactionHooks.afterCommit(() -> sessionEventPublisher.publish(SessionEvent.message(userId, response)));
+        }
+        if (embedding != null) {
+            saveEmbedding(userId, saved, embedding);
+        }
+        return response;
     }
 
     public PageResponse<ChatMessageResponse> listMessages(UUID sessionId, String userId, Pageable pageable) {
-        chatSessionService.getSessionOrThrow(sessionId, userId);
+        awaitQueued(sessionId);
+        chatSessionService.requireOwnership(sessionId, userId);
 
         Pageable validatedPageable = validatePageable(pageable, 200, Sort.by(Sort.Direction.ASC, "createdAt"));
-        Page<ChatMessage> messages = chatMessageRepository.findBySessionId(sessionId, validatedPageable);
+        Optional<PageResponse<ChatMessageResponse>> cached = readFromTail(sessionId, validatedPageable);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
 
+        Page<ChatMessage> messages = chatMessageRepository.findBySessionId(sessionId, validatedPageable);
         return PageResponse.fromPage(messages.map(this::toResponse));
     }
 
+    // The user's messages among messageIds, oldest first; ids that are unknown or someone else's are left out.
+    public List<ChatMessageResponse> getMessages(Collection<UUID> messageIds, String userId) {
+        if (messageIds.isEmpty()) {
+            return List.of();
+        }
+        return chatMessageRepository.findByIdInAndSessionUserId(messageIds, userId).stream()
+                .sorted(Comparator.comparing(ChatMessage::getCreatedAt).thenComparing(ChatMessage::getId))
+                .map(this::toResponse)
+                .toList();
+    }
+
+    // Newest messages of several sessions for dashboards: one ownership query and one top-N query instead of a
+    // page and count query per session. Unknown or foreign ids are listed, not failed, since one deleted session
+    // should not break the whole view.
+    public BatchMessagesResponse latestMessages(String userId, List<UUID> sessionIds, int limit) {
+        if (sessionIds == null || sessionIds.isEmpty() || sessionIds.size() > MAX_BATCH_SESSIONS) {
+            throw new IllegalArgumentException("sessionIds must contain between 1 and " + MAX_BATCH_SESSIONS + " ids");
+        }
+        if (limit < 1 || limit > MAX_BATCH_MESSAGES) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_BATCH_MESSAGES);
+        }
+        Set<UUID> requested = new LinkedHashSet<>(sessionIds);
+        requested.forEach(this::awaitQueued);
+        Set<UUID> owned = chatSessionService.ownedSessions(requested, userId);
+
+        Map<UUID, List<ChatMessageResponse>> newestFirst = new HashMap<>();
+        for (ChatMessageResponse message : messageBatchRepository.findNewestPerSession(owned, limit)) {
+            newestFirst.computeIfAbsent(message.sessionId(), ignored -> new ArrayList<>()).add(message);
+        }
+        List<SessionMessagesResponse> sessions = new ArrayList<>(owned.size());
+        List<UUID> notFound = new ArrayList<>();
+        for (UUID sessionId : requested) {
+            if (!owned.contains(sessionId)) {
+                notFound.add(sessionId);
+                continue;
+            }
+            List<ChatMessageResponse> items = newestFirst.getOrDefault(sessionId, new ArrayList<>());
+            Collections.reverse(items);
+            sessions.add(new SessionMessagesResponse(sessionId, items));
+        }
+        return new BatchMessagesResponse(sessions, notFound);
+    }
+
+    // Answered from the session row alone (ownership plus summary columns), so a 304 needs no page or count query.
+    public ListingVersion messagesVersion(UUID sessionId, String userId, Pageable pageable) {
+        awaitQueued(sessionId);
+        ChatSession session = chatSessionService.getSessionOrThrow(sessionId, userId);
+        Pageable validatedPageable = validatePageable(pageable, 200, Sort.by(Sort.Direction.ASC, "createdAt"));
+        // Touches not yet flushed count too, or a new message could be answered with a stale 304.
+        SessionTouchCoalescer.Touch touch = chatSessionService.pendingTouch(sessionId);
+        Instant updatedAt = touch == null ? session.getUpdatedAt() : touch.updatedAt(session.getUpdatedAt());
+        long messageCount = session.getMessageCount() + (touch == null ? 0 : touch.count());
+        long totalBytes = session.getTotalContentBytes() + (touch == null ? 0 : touch.bytes());
+        long maxAge = isHistorical(messageCount, validatedPageable)
+                ? Math.max(0, appProperties.getHttpCache().getHistoricalPageMaxAgeSeconds())
+                : 0;
+        return ListingVersion.of(maxAge, "messages", sessionId, updatedAt, messageCount, totalBytes,
+                validatedPageable.getPageNumber(), validatedPageable.getPageSize(), validatedPageable.getSort());
+    }
+
+    public ContextWindowResponse getContextWindow(UUID sessionId,
+                                                  String userId,
+                                                  Integer maxTokens,
+                                                  Integer maxBytes,
+                                                  boolean includeRetrievedContext,
+                                                  boolean includeSystem) {
+        if (maxTokens == null && maxBytes == null) {
+            throw new IllegalArgumentException("maxTokens or maxBytes is required");
+        }
+        if ((maxTokens != null && maxTokens < 1) || (maxBytes != null && maxBytes < 1)) {
+            throw new IllegalArgumentException("maxTokens and maxBytes must be positive");
+        }
+        awaitQueued(sessionId);
+        chatSessionService.requireOwnership(sessionId, userId);
+
+        long tokenBudget = maxTokens != null ? maxTokens : Long.MAX_VALUE;
+        long byteBudget = maxBytes != null ? maxBytes : Long.MAX_VALUE;
+        long usedTokens = 0;
+        long usedBytes = 0;
+        boolean truncated = false;
+        List<ChatMessageResponse> newestFirst = new ArrayList<>();
+
+        // Walk newest-first in small chunks and stop as soon as the next message would not fit.
+        int page = 0;
+        boolean more = true;
+        while (more && !truncated) {
+            Slice<ChatMessage> chunk = chatMessageRepository.findNewestForContext(
+                    sessionId, includeSystem, PageRequest.of(page++, CONTEXT_SCAN_CHUNK));
+            for (ChatMessage message : chunk) {
+                long tokens = MessageSizeEstimator.contentTokens(message);
+                long bytes = MessageSizeEstimator.contentBytes(message);
+                if (includeRetrievedContext) {
+                    tokens += MessageSizeEstimator.contextTokens(message);
+                    bytes += MessageSizeEstimator.contextBytes(message);
+                }
+                if (usedTokens + tokens > tokenBudget || usedBytes + bytes > byteBudget
+                        || newestFirst.size() == MAX_CONTEXT_MESSAGES) {
+                    truncated = true;
+                    break;
+                }
+                usedTokens += tokens;
+                usedBytes += bytes;
+                ChatMessageResponse response = toResponse(message);
+                newestFirst.add(includeRetrievedContext ? response : withoutContext(response));
+            }
+            more = chunk.hasNext();
+        }
+
+        Collections.reverse(newestFirst);
+        return new ContextWindowResponse(newestFirst, usedTokens, usedBytes, truncated);
+    }
+
+    // Callers have already checked that the session belongs to the subscriber.
+    public List<ChatMessageResponse> listMessagesAfter(UUID sessionId, Instant createdAt, UUID afterId, int limit) {
+        awaitQueued(sessionId);
+        return chatMessageRepository.findAfter(sessionId, createdAt, afterId, PageRequest.of(0, limit)).stream()
+                .map(this::toResponse)
+                .toList();
+    }
+
+    public Optional<ChatMessageResponse> newestMessage(UUID sessionId) {
+        awaitQueued(sessionId);
+        return chatMessageRepository.findFirstBySessionIdOrderByCreatedAtDescIdDesc(sessionId).map(this::toResponse);
+    }
+
+    // Read-your-writes for the ingest queue: a read waits until messages accepted for its session are committed.
+    private void awaitQueued(UUID sessionId) {
+        pendingIngests.awaitFlushed(sessionId, appProperties.getIngest().getReadWaitMillis());
+    }
+
+    private void validateEmbedding(String userId, float[] embedding) {
+        VectorCodec.validate(embedding, vectorIndexManager.maxDimensions());
+        if (vectorIndexManager.isEnabled()) {
+            int dimensions = vectorIndexManager.dimensions(userId);
+            if (dimensions > 0 && dimensions != embedding.length) {
+                throw new IllegalArgumentException("embedding must have " + dimensions + " dimensions");
+            }
+        }
+    }
+
+    private void saveEmbedding(String userId, ChatMessage message, float[] embedding) {
+        MessageEmbedding row = new MessageEmbedding();
+        row.setId(message.getId());
+        row.setSessionId(message.getSession().getId());
+        row.setCreatedAt(message.getCreatedAt());
+        row.setDimensions(embedding.length);
+        row.setVector(VectorCodec.toBytes(embedding));
+        messageEmbeddingRepository.save(row);
+        if (vectorIndexManager.isEnabled()) {
+            // The row is the source of truth; a failed local insert is picked up again by search catch-up.
+            TransactionHooks.afterCommit(() -> {
+                try {
+                    vectorIndexManager.add(userId, row.getId(), row.getSessionId(), row.getCreatedAt(), embedding);
+                } catch (RuntimeException exception) {
+                    log.warn("Failed to index embedding messageId={}", row.getId(), exception);
+                }
+            });
+        }
+    }
+
+    // Messages are only ever appended, so in oldest-first order a full page that ends before the newest
+    // message stays the same; only admin imports of older history can still change it.
+    private static boolean isHistorical(long messageCount, Pageable pageable) {
+        if (!pageable.getSort().equals(Sort.by(Sort.Direction.ASC, "createdAt"))) {
+            return false;
+        }
+        long end = ((long) pageable.getPageNumber() + 1) * pageable.getPageSize();
+        return end < messageCount;
+    }
+
+    private Optional<PageResponse<ChatMessageResponse>> readFromTail(UUID sessionId, Pageable pageable) {
+        if (!messageTailCache.isEnabled()) {
+            return Optional.empty();
+        }
+
+        MessageTailCache.TailRead read = messageTailCache.read(sessionId, pageable);
+        if (read.status() == MessageTailCache.TailRead.Status.MISS) {
+            warmTail(sessionId);
+            read = messageTailCache.read(sessionId, pageable);
+        }
+        if (read.status() != MessageTailCache.TailRead.Status.HIT) {
+            return Optional.empty();
+        }
+        return Optional.of(PageResponse.fromPage(new PageImpl<>(read.items(), pageable, read.total())));
+    }
+
+    private void warmTail(UUID sessionId) {
+        long generation = messageTailCache.generation(sessionId);
+        Page<ChatMessage> newest = chatMessageRepository.findBySessionId(sessionId,
+                PageRequest.of(0, messageTailCache.tailSize(), Sort.by(Sort.Direction.DESC, "createdAt")));
+
+        List<ChatMessageResponse> chronological = new ArrayList<>(newest.getContent().stream().map(this::toResponse).toList());
+        Collections.reverse(chronological);
+        messageTailCache.populate(sessionId, generation, chronological, newest.getTotalElements());
+    }
+
     private ChatMessageResponse toResponse(ChatMessage message) {
         return new ChatMessageResponse(
                 message.getId(),
@@ -63,6 +384,11 @@ public class ChatMessageService {
         );
     }
 
+    private ChatMessageResponse withoutContext(ChatMessageResponse response) {
+        return new ChatMessageResponse(response.id(), response.sessionId(), response.sender(),
+                response.content(), null, response.createdAt());
+    }
+
     private Pageable validatePageable(Pageable pageable, int maxSize, Sort defaultSort) {
         int size = pageable.getPageSize();
         if (size < 1 || size > maxSize) {
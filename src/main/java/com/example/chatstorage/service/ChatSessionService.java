@@ -1,21 +1,41 @@
 package com.example.chatstorage.service;
 
+import com.example.chatstorage.cache.MessageTailCache;
+import com.example.chatstorage.cache.SessionIndexCache;
+import com.example.chatstorage.cache.SessionOwnershipCache;
+import com.example.chatstorage.domain.MessageText;
 import com.example.chatstorage.dto.ChatSessionResponse;
 import com.example.chatstorage.dto.CreateSessionRequest;
 import com.example.chatstorage.dto.PageResponse;
 import com.example.chatstorage.dto.UpdateFavoriteRequest;
 import com.example.chatstorage.dto.UpdateSessionNameRequest;
+import com.example.chatstorage.entity.ChatMessage;
 import com.example.chatstorage.entity.ChatSession;
+import com.example.chatstorage.entity.SyncChange;
+import com.example.chatstorage.events.SessionEvent;
+import com.example.chatstorage.events.SessionEventPublisher;
 import com.example.chatstorage.exception.NotFoundException;
 import com.example.chatstorage.repository.ChatMessageRepository;
 import com.example.chatstorage.repository.ChatSessionRepository;
+import com.example.chatstorage.repository.MessageEmbeddingRepository;
+import com.example.chatstorage.repository.SessionListStamp;
+import com.example.chatstorage.repository.SyncChangeRepository;
+import com.example.chatstorage.vector.VectorIndexManager;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -23,22 +43,57 @@ public class ChatSessionService {
 
     private final ChatSessionRepository chatSessionRepository;
     private final ChatMessageRepository chatMessageRepository;
+    private final MessageTailCache messageTailCache;
+    private final SessionIndexCache sessionIndexCache;
+    private final MessageEmbeddingRepository messageEmbeddingRepository;
+    private final VectorIndexManager vectorIndexManager;
+    private final SessionEventPublisher sessionEventPublisher;
+    private final SessionTouchCoalescer sessionTouchCoalescer;
+    private final SessionOwnershipCache sessionOwnershipCache;
+    private final SyncChangeRepository syncChangeRepository;
 
-    public ChatSessionService(ChatSessionRepository chatSessionRepository, ChatMessageRepository chatMessageRepository) {
+    public ChatSessionService(ChatSessionRepository chatSessionRepository,
+                              ChatMessageRepository chatMessageRepository,
+                              MessageTailCache messageTailCache,
+                              SessionIndexCache sessionIndexCache,
+                              MessageEmbeddingRepository messageEmbeddingRepository,
+                              VectorIndexManager vectorIndexManager,
+                              SessionEventPublisher sessionEventPublisher,
+                              SessionTouchCoalescer sessionTouchCoalescer,
+                              SessionOwnershipCache sessionOwnershipCache,
+                              SyncChangeRepository syncChangeRepository) {
         this.chatSessionRepository = chatSessionRepository;
         this.chatMessageRepository = chatMessageRepository;
+        this.messageTailCache = messageTailCache;
+        this.sessionIndexCache = sessionIndexCache;
+        this.messageEmbeddingRepository = messageEmbeddingRepository;
+        this.vectorIndexManager = vectorIndexManager;
+        this.sessionEventPublisher = sessionEventPublisher;
+        this.sessionTouchCoalescer = sessionTouchCoalescer;
+        this.sessionOwnershipCache = sessionOwnershipCache;
+        this.syncChangeRepository = syncChangeRepository;
     }
 
+    @Transactional
     public ChatSessionResponse createSession(String userId, CreateSessionRequest request) {
         ChatSession session = new ChatSession();
         session.setUserId(userId);
         session.setTitle(request.title() == null || request.title().isBlank() ? "New Chat" : request.title().trim());
         ChatSession saved = chatSessionRepository.save(session);
+        syncChangeRepository.record(userId, saved.getId(), null, SyncChange.Type.SESSION);
+        indexAfterCommit(saved);
+        TransactionHooks.afterCommit(() -> sessionOwnershipCache.put(saved.getId(), userId));
         return toResponse(saved);
     }
 
     public PageResponse<ChatSessionResponse> listSessions(String userId, Boolean favorite, Pageable pageable) {
         Pageable validatedPageable = validatePageable(pageable, 100, Sort.by(Sort.Direction.DESC, "updatedAt"));
+        // Entries carry this node's unflushed touches; the order by updatedAt catches up with the next flush.
+        Optional<PageResponse<ChatSessionResponse>> indexed = readFromIndex(userId, favorite, validatedPageable);
+        if (indexed.isPresent()) {
+            return indexed.get();
+        }
+
         Page<ChatSession> sessions = (favorite == null)
                 ? chatSessionRepository.findByUserId(userId, validatedPageable)
                 : chatSessionRepository.findByUserIdAndFavorite(userId, favorite, validatedPageable);
@@ -46,45 +101,226 @@ public class ChatSessionService {
         return PageResponse.fromPage(sessions.map(this::toResponse));
     }
 
+    // One aggregate over the user's sessions; a 304 costs nothing else. The list always revalidates
+    // because any write can reorder it. Touches not yet flushed are folded in as listSessions does; they are read
+    // before the stamp, so a flush in between counts a touch twice (a spare 200) rather than not at all.
+    public ListingVersion sessionsVersion(String userId, Boolean favorite, Pageable pageable) {
+        Pageable validatedPageable = validatePageable(pageable, 100, Sort.by(Sort.Direction.DESC, "updatedAt"));
+        SessionTouchCoalescer.Touch touch = sessionTouchCoalescer.pendingForUser(userId);
+        SessionListStamp stamp = chatSessionRepository.listStamp(userId);
+        Instant lastUpdatedAt = touch == null ? stamp.lastUpdatedAt() : touch.updatedAt(stamp.lastUpdatedAt());
+        long messages = stamp.messages() + (touch == null ? 0 : touch.count());
+        return ListingVersion.of(0, "sessions", userId, stamp.sessions(), lastUpdatedAt, messages,
+                favorite, validatedPageable.getPageNumber(), validatedPageable.getPageSize(), validatedPageable.getSort());
+    }
+
+    @Transactional
     public ChatSessionResponse renameSession(UUID sessionId, String userId, UpdateSessionNameRequest request) {
         ChatSession session = getSessionOrThrow(sessionId, userId);
         session.setTitle(request.title().trim());
-        return toResponse(chatSessionRepository.save(session));
+        ChatSession saved = chatSessionRepository.save(session);
+        syncChangeRepository.record(userId, sessionId, null, SyncChange.Type.SESSION);
+        indexAfterCommit(saved);
+        publishAfterCommit(saved);
+        return toResponse(saved);
     }
 
+    @Transactional
     public ChatSessionResponse updateFavorite(UUID sessionId, String userId, UpdateFavoriteRequest request) {
         ChatSession session = getSessionOrThrow(sessionId, userId);
         session.setFavorite(request.favorite());
-        return toResponse(chatSessionRepository.save(session));
+        ChatSession saved = chatSessionRepository.save(session);
+        syncChangeRepository.record(userId, sessionId, null, SyncChange.Type.SESSION);
+        indexAfterCommit(saved);
+        publishAfterCommit(saved);
+        return toResponse(saved);
     }
 
     @Transactional
     public void deleteSession(UUID sessionId, String userId) {
         ChatSession session = getSessionOrThrow(sessionId, userId);
+        messageEmbeddingRepository.deleteBySessionId(sessionId);
         chatMessageRepository.deleteBySessionId(sessionId);
         chatSessionRepository.delete(session);
+        syncChangeRepository.compact(List.of(sessionId));
+        syncChangeRepository.record(userId, sessionId, null, SyncChange.Type.SESSION_DELETED);
+        TransactionHooks.afterCommit(() -> {
+            sessionOwnershipCache.remove(sessionId);
+            messageTailCache.evict(sessionId);
+            sessionIndexCache.remove(userId, sessionId);
+            sessionTouchCoalescer.forget(sessionId);
+            vectorIndexManager.removeSession(userId, sessionId);
+            sessionEventPublisher.publish(SessionEvent.deleted(userId, sessionId));
+        });
+    }
+
+    public ChatSessionResponse getSession(UUID sessionId, String userId) {
+        return toResponse(getSessionOrThrow(sessionId, userId));
+    }
+
+    // The user's sessions among sessionIds; ids that are unknown or someone else's are left out.
+    public List<ChatSessionResponse> getSessions(Collection<UUID> sessionIds, String userId) {
+        if (sessionIds.isEmpty()) {
+            return List.of();
+        }
+        return chatSessionRepository.findAllById(sessionIds).stream()
+                .filter(session -> userId.equals(session.getUserId()))
+                .map(this::toResponse)
+                .toList();
+    }
+
+    // Summary changes of the session counted on this node but not yet written; null when there are none.
+    public SessionTouchCoalescer.Touch pendingTouch(UUID sessionId) {
+        return sessionTouchCoalescer.pending(sessionId);
     }
 
     public ChatSession getSessionOrThrow(UUID sessionId, String userId) {
-        return chatSessionRepository.findByIdAndUserId(sessionId, userId)
+        ChatSession session = chatSessionRepository.findByIdAndUserId(sessionId, userId)
                 .orElseThrow(() -> new NotFoundException("Session not found: " + sessionId));
+        sessionOwnershipCache.put(sessionId, userId);
+        return session;
+    }
+
+    // For callers that only need to know the session is the user's; a cached owner costs no query.
+    public void requireOwnership(UUID sessionId, String userId) {
+        if (!sessionOwnershipCache.isOwner(sessionId, userId)) {
+            getSessionOrThrow(sessionId, userId);
+        }
+    }
+
+    // The subset of sessionIds owned by the user; ids the cache cannot vouch for are checked in one query.
+    public Set<UUID> ownedSessions(Collection<UUID> sessionIds, String userId) {
+        Set<UUID> owned = new HashSet<>();
+        List<UUID> unknown = new ArrayList<>();
+        for (UUID sessionId : sessionIds) {
+            if (sessionOwnershipCache.isOwner(sessionId, userId)) {
+                owned.add(sessionId);
+            } else {
+                unknown.add(sessionId);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            for (UUID sessionId : chatSessionRepository.findOwnedIds(userId, unknown)) {
+                owned.add(sessionId);
+                sessionOwnershipCache.put(sessionId, userId);
+            }
+        }
+        return owned;
+    }
+
+    // Appends only link the message to the session, so with a cached owner an unloaded reference will do. Another
+    // node may have handed the session to the purge owner since it was cached, so the owner is re-checked on write:
+    // by recordMessage's UPDATE, or here when coalescing leaves the append without one.
+    public ChatSession sessionForAppend(UUID sessionId, String userId) {
+        if (sessionOwnershipCache.isOwner(sessionId, userId)) {
+            if (sessionTouchCoalescer.isEnabled() && !chatSessionRepository.existsByIdAndUserId(sessionId, userId)) {
+                throw sessionGone(sessionId);
+            }
+            return chatSessionRepository.getReferenceById(sessionId);
+        }
+        return getSessionOrThrow(sessionId, userId);
+    }
+
+    // One UPDATE bumps updatedAt and the message summary together; counters are incremented in SQL so
+    // concurrent appends never lose an update. With coalescing on, the update is batched with others instead.
+    public void recordMessage(UUID sessionId, String userId, ChatMessage message) {
+        int bytes = message.getContentBytes() != null ? message.getContentBytes() : MessageSizeEstimator.bytes(message.getContent());
+        if (sessionTouchCoalescer.isEnabled()) {
+            TransactionHooks.afterCommit(() -> sessionTouchCoalescer.record(sessionId, userId, message.getCreatedAt(), bytes,
+                    message.getSender(), preview(message.getContent())));
+            return;
+        }
+        String preview = preview(message.getContent());
+        if (chatSessionRepository.recordMessage(sessionId, userId, message.getCreatedAt(), bytes, message.getSender(),
+                preview) == 0) {
+            // Rolls the message back with the rest of the append.
+            throw sessionGone(sessionId);
+        }
+        // The index entry is patched with the same values, so the row is not read back after every append.
+        if (sessionIndexCache.isEnabled()) {
+            TransactionHooks.afterCommit(() -> sessionIndexCache.recordMessage(userId, sessionId,
+                    message.getCreatedAt(), bytes, message.getSender(), preview));
+        }
+    }
+
+    private NotFoundException sessionGone(UUID sessionId) {
+        sessionOwnershipCache.remove(sessionId);
+        return new NotFoundException("Session not found: " + sessionId);
+    }
+
+    // Used by the ingest writer after a batch commits; the rows are re-read once for all touched sessions.
+    public void reindexSessions(Collection<UUID> sessionIds) {
+        if (!sessionIndexCache.isEnabled() || sessionIds.isEmpty()) {
+            return;
+        }
+        chatSessionRepository.findAllById(sessionIds).forEach(session -> sessionIndexCache.upsert(toResponse(session)));
+    }
+
+    private Optional<PageResponse<ChatSessionResponse>> readFromIndex(String userId, Boolean favorite, Pageable pageable) {
+        if (!sessionIndexCache.isEnabled()) {
+            return Optional.empty();
+        }
+
+        SessionIndexCache.IndexRead read = sessionIndexCache.read(userId, favorite, pageable);
+        if (read.status() == SessionIndexCache.IndexRead.Status.MISS) {
+            rebuildIndex(userId);
+            read = sessionIndexCache.read(userId, favorite, pageable);
+        }
+        if (read.status() != SessionIndexCache.IndexRead.Status.HIT) {
+            return Optional.empty();
+        }
+        return Optional.of(PageResponse.fromPage(new PageImpl<>(read.items(), pageable, read.total())));
+    }
+
+    private void rebuildIndex(String userId) {
+        long generation = sessionIndexCache.generation(userId);
+        int limit = sessionIndexCache.maxSessions();
+        Page<ChatSession> sessions = chatSessionRepository.findByUserId(userId,
+                PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "updatedAt")));
+        if (sessions.getTotalElements() > limit) {
+            sessionIndexCache.markOversized(userId, generation);
+            return;
+        }
+        sessionIndexCache.populate(userId, generation, sessions.getContent().stream().map(this::toResponse).toList());
+    }
+
+    // updatedAt is assigned by @PreUpdate at flush, so the index entry is built once the row is committed.
+    private void indexAfterCommit(ChatSession session) {
+        if (sessionIndexCache.isEnabled()) {
+            TransactionHooks.afterCommit(() -> sessionIndexCache.upsert(toResponse(session)));
+        }
     }
 
-    public void touchSession(ChatSession session) {
-        chatSessionRepository.save(session);
+    private void publishAfterCommit(ChatSession session) {
+        if (sessionEventPublisher.isEnabled()) {
+            TransactionHooks.afterCommit(() -> sessionEventPublisher.publish(SessionEvent.session(toResponse(session))));
+        }
     }
 
     private ChatSessionResponse toResponse(ChatSession session) {
+        return SessionTouchCoalescer.Touch.applyTo(sessionTouchCoalescer.pending(session.getId()), response(session));
+    }
+
+    static ChatSessionResponse response(ChatSession session) {
         return new ChatSessionResponse(
                 session.getId(),
                 session.getUserId(),
                 session.getTitle(),
                 session.isFavorite(),
                 session.getCreatedAt(),
-                session.getUpdatedAt()
+                session.getUpdatedAt(),
+                session.getMessageCount(),
+                session.getTotalContentBytes(),
+                session.getLastMessageAt(),
+                session.getLastSender(),
+                session.getLastMessagePreview()
         );
     }
 
+    static String preview(String content) {
+        return MessageText.preview(content);
+    }
+
     private Pageable validatePageable(Pageable pageable, int maxSize, Sort defaultSort) {
         int size = pageable.getPageSize();
         if (size < 1 || size > maxSize) {
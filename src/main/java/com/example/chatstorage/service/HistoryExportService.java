@@ -0,0 +1,136 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.repository.HistoryExportRepository;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Objects;
+
+@Service
+public class HistoryExportService {
+
+    private final HistoryExportRepository historyExportRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final JsonFactory jsonFactory;
+    private final AppProperties appProperties;
+
+    public HistoryExportService(HistoryExportRepository historyExportRepository,
+                                PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper,
+                                AppProperties appProperties) {
+        this.historyExportRepository = historyExportRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // NDJSON: lines are separated by '\n' only, not Jackson's default space between root values.
+        this.jsonFactory = objectMapper.getFactory().copy().setRootValueSeparator(null);
+        this.appProperties = appProperties;
+    }
+
+    // Writes one JSON object per line: a "session" line followed by that session's "message" lines, oldest first.
+    // Only the current row is ever held, so memory stays flat no matter how long the history is.
+    public long export(String userId, OutputStream output) {
+        int fetchSize = Math.max(1, appProperties.getExport().getFetchSize());
+        int flushEvery = Math.max(1, appProperties.getExport().getFlushEveryRows());
+        try (JsonGenerator generator = jsonFactory.createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            ExportWriter writer = new ExportWriter(generator, flushEvery);
+            readOnlyTransaction.executeWithoutResult(status ->
+                    historyExportRepository.streamHistory(userId, fetchSize, writer::write));
+            generator.flush();
+            return writer.lines;
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private static final class ExportWriter {
+
+        private final JsonGenerator generator;
+        private final int flushEvery;
+        private Object currentSession;
+        private long lines;
+
+        private ExportWriter(JsonGenerator generator, int flushEvery) {
+            this.generator = generator;
+            this.flushEvery = flushEvery;
+        }
+
+        void write(ResultSet row) throws SQLException {
+            try {
+                Object sessionId = row.getObject("s_id");
+                if (!Objects.equals(sessionId, currentSession)) {
+                    currentSession = sessionId;
+                    writeSession(row, sessionId);
+                }
+                Object messageId = row.getObject("m_id");
+                if (messageId != null) {
+                    writeMessage(row, sessionId, messageId);
+                }
+            } catch (IOException exception) {
+                // Usually the client went away; abort the query instead of reading the rest of the cursor.
+                throw new UncheckedIOException(exception);
+            }
+        }
+
+        private void writeSession(ResultSet row, Object sessionId) throws SQLException, IOException {
+            generator.writeStartObject();
+            generator.writeStringField("type", "session");
+            generator.writeStringField("id", sessionId.toString());
+            generator.writeStringField("title", row.getString("title"));
+            generator.writeBooleanField("favorite", row.getBoolean("favorite"));
+            writeInstant("createdAt", row.getObject("s_created_at"));
+            writeInstant("updatedAt", row.getObject("updated_at"));
+            generator.writeEndObject();
+            endLine();
+        }
+
+        private void writeMessage(ResultSet row, Object sessionId, Object messageId) throws SQLException, IOException {
+            generator.writeStartObject();
+            generator.writeStringField("type", "message");
+            generator.writeStringField("id", messageId.toString());
+            generator.writeStringField("sessionId", sessionId.toString());
+            generator.writeStringField("sender", row.getString("sender"));
+            generator.writeStringField("content", row.getString("content"));
+            generator.writeStringField("retrievedContext", row.getString("retrieved_context"));
+            writeInstant("createdAt", row.getObject("m_created_at"));
+            generator.writeEndObject();
+            endLine();
+        }
+
+        private void writeInstant(String field, Object value) throws IOException {
+            Instant instant;
+            if (value == null) {
+                instant = null;
+            } else if (value instanceof Timestamp timestamp) {
+                instant = timestamp.toInstant();
+            } else if (value instanceof OffsetDateTime offsetDateTime) {
+                instant = offsetDateTime.toInstant();
+            } else {
+                instant = Instant.parse(value.toString());
+            }
+            generator.writeStringField(field, instant == null ? null : instant.toString());
+        }
+
+        private void endLine() throws IOException {
+            generator.writeRaw('\n');
+            lines++;
+            // Pushes completed lines through the gzip stream so the client sees steady progress.
+            if (lines % flushEvery == 0) {
+                generator.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.chatstorage.service;
+
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+// Validator for a listing page, computed from summary columns without reading the page itself.
+// maxAgeSeconds is 0 unless the page can no longer change through normal writes.
+public record ListingVersion(String etag, long maxAgeSeconds) {
+
+    static ListingVersion of(long maxAgeSeconds, Object... parts) {
+        String fingerprint = Arrays.stream(parts).map(String::valueOf).collect(Collectors.joining("|"));
+        return new ListingVersion("\"" + DigestUtils.md5DigestAsHex(fingerprint.getBytes(StandardCharsets.UTF_8)) + "\"",
+                maxAgeSeconds);
+    }
+}
@@ -0,0 +1,467 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.cache.MessageTailCache;
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.dto.AddMessageRequest;
+import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.events.SessionEvent;
+import com.example.chatstorage.events.SessionEventPublisher;
+import com.example.chatstorage.exception.IngestUnavailableException;
+import com.example.chatstorage.ingest.IngestJournal;
+import com.example.chatstorage.ingest.PendingIngests;
+import com.example.chatstorage.ingest.PendingMessage;
+import com.example.chatstorage.repository.MessageIngestRepository;
+import com.example.chatstorage.repository.SyncChangeRepository;
+import com.example.chatstorage.sharding.ShardContext;
+import com.example.chatstorage.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Write-behind path for message appends. A message is validated, given its id and timestamp, and acknowledged
+// once it sits in a bounded buffer; a single writer thread then commits whole batches with one multi-row
+// INSERT and one batched session UPDATE per shard. Reads of a session wait for its queued messages (see
+// PendingIngests), so a client always reads its own accepted writes.
+@Service
+public class MessageIngestService implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageIngestService.class);
+    private static final String NO_SHARD = "";
+
+    private final MessageIngestRepository messageIngestRepository;
+    private final ChatSessionService chatSessionService;
+    private final PendingIngests pendingIngests;
+    private final IngestJournal ingestJournal;
+    private final MessageTailCache messageTailCache;
+    private final SessionEventPublisher sessionEventPublisher;
+    private final ObjectProvider<ShardRouter> shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final AppProperties appProperties;
+    private final SyncChangeRepository syncChangeRepository;
+    private final ThreadFactory writerFactory;
+    private final BlockingQueue<PendingMessage> queue;
+    // Touched only by the writer thread: messages of users in the middle of a shard move.
+    private final List<PendingMessage> deferred = new ArrayList<>();
+    // Also writer-only: messages of failed batches, retried before anything else in batches of retryBatchSize. A
+    // batch that failed on its rows is halved until the message that breaks it is alone, so only that one counts
+    // towards the cap. A batch that could not reach the database is retried whole and never counted.
+    private final List<PendingMessage> retries = new ArrayList<>();
+    private final Map<UUID, Integer> failures = new HashMap<>();
+    private int retryBatchSize = 1;
+    // Journal entries queued on this node, so recovery never enqueues them a second time.
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final AtomicLong lastMicros = new AtomicLong();
+    private final Counter written;
+    private final Counter rejected;
+    private final Counter deadLettered;
+    private volatile boolean accepting;
+    private Thread writer;
+
+    public MessageIngestService(MessageIngestRepository messageIngestRepository,
+                                ChatSessionService chatSessionService,
+                                PendingIngests pendingIngests,
+                                IngestJournal ingestJournal,
+                                MessageTailCache messageTailCache,
+                                SessionEventPublisher sessionEventPublisher,
+                                ObjectProvider<ShardRouter> shardRouter,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                AppProperties appProperties,
+                                SyncChangeRepository syncChangeRepository) {
+        this(messageIngestRepository, chatSessionService, pendingIngests, ingestJournal, messageTailCache,
+                sessionEventPublisher, shardRouter, transactionManager, meterRegistry, appProperties,
+                syncChangeRepository, Thread.ofPlatform().name("message-ingest-writer").factory());
+    }
+
+    MessageIngestService(MessageIngestRepository messageIngestRepository,
+                         ChatSessionService chatSessionService,
+                         PendingIngests pendingIngests,
+                         IngestJournal ingestJournal,
+                         MessageTailCache messageTailCache,
+                         SessionEventPublisher sessionEventPublisher,
+                         ObjectProvider<ShardRouter> shardRouter,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry,
+                         AppProperties appProperties,
+                         SyncChangeRepository syncChangeRepository,
+                         ThreadFactory writerFactory) {
+        this.messageIngestRepository = messageIngestRepository;
+        this.chatSessionService = chatSessionService;
+        this.pendingIngests = pendingIngests;
+        this.ingestJournal = ingestJournal;
+        this.messageTailCache = messageTailCache;
+        this.sessionEventPublisher = sessionEventPublisher;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.appProperties = appProperties;
+        this.syncChangeRepository = syncChangeRepository;
+        this.writerFactory = writerFactory;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, appProperties.getIngest().getCapacity()));
+        Gauge.builder("chatstorage.ingest.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        this.written = Counter.builder("chatstorage.ingest.written").register(meterRegistry);
+        this.rejected = Counter.builder("chatstorage.ingest.rejected").register(meterRegistry);
+        this.deadLettered = Counter.builder("chatstorage.ingest.dead-lettered").register(meterRegistry);
+    }
+
+    // Messages with an embedding keep the synchronous path, which also validates and indexes the vector.
+    public boolean canAccept(AddMessageRequest request) {
+        return appProperties.getIngest().isEnabled() && request.embedding() == null;
+    }
+
+    public ChatMessageResponse accept(UUID sessionId, String userId, AddMessageRequest request) {
+        if (!accepting) {
+            throw new IngestUnavailableException("Message ingest is not accepting writes");
+        }
+        chatSessionService.requireOwnership(sessionId, userId);
+
+        String content = request.content().trim();
+        String retrievedContext = request.retrievedContext();
+        int contentBytes = MessageSizeEstimator.bytes(content);
+        int contextBytes = MessageSizeEstimator.bytes(retrievedContext);
+        PendingMessage message = new PendingMessage(UUID.randomUUID(), sessionId, userId, request.sender(), content,
+                retrievedContext, nextTimestamp(), contentBytes, MessageSizeEstimator.tokens(content), contextBytes,
+                MessageSizeEstimator.tokens(retrievedContext), ChatSessionService.preview(content), null);
+        if (ingestJournal.isEnabled()) {
+            message = ingestJournal.append(message);
+            inFlight.add(message.journalId());
+        }
+        pendingIngests.add(sessionId);
+
+        boolean queued;
+        try {
+            queued = queue.offer(message, Math.max(0, appProperties.getIngest().getOfferTimeoutMillis()), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) {
+            release(List.of(message));
+            rejected.increment();
+            throw new IngestUnavailableException("Message buffer is full. Try again shortly.");
+        }
+        return message.toResponse();
+    }
+
+    // Replays journal entries whose node died before committing them. Duplicates are skipped on insert.
+    @Scheduled(fixedDelayString = "${app.ingest.journal-recovery-interval-millis:30000}")
+    public void recoverJournal() {
+        if (!accepting || !ingestJournal.isEnabled()) {
+            return;
+        }
+        int room = queue.remainingCapacity() / 2;
+        if (room == 0) {
+            return;
+        }
+        int recovered = 0;
+        for (PendingMessage message : ingestJournal.recover(Math.min(room, appProperties.getIngest().getMaxBatchSize()))) {
+            if (!inFlight.add(message.journalId())) {
+                continue;
+            }
+            pendingIngests.add(message.sessionId());
+            if (!queue.offer(message)) {
+                pendingIngests.remove(List.of(message));
+                inFlight.remove(message.journalId());
+                break;
+            }
+            recovered++;
+        }
+        if (recovered > 0) {
+            log.info("Re-queued {} messages from the ingest journal", recovered);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!appProperties.getIngest().isEnabled()) {
+            return;
+        }
+        accepting = true;
+        writer = writerFactory.newThread(this::runWriter);
+        writer.start();
+    }
+
+    // Runs after the web and gRPC servers have stopped, so no new message arrives while the buffer drains.
+    @Override
+    public void stop() {
+        accepting = false;
+        Thread thread = writer;
+        if (thread == null) {
+            return;
+        }
+        try {
+            thread.join(Math.max(1, appProperties.getIngest().getDrainTimeoutMillis()));
+            if (thread.isAlive()) {
+                thread.interrupt();
+                thread.join(1000);
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+        int left = queue.size() + deferred.size() + retries.size();
+        if (left > 0) {
+            log.warn("Message ingest stopped with {} unwritten messages{}", left,
+                    ingestJournal.isEnabled() ? "; they remain in the journal" : "");
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return writer != null;
+    }
+
+    // Below the web server's phase, so this starts before requests arrive and stops after they have finished.
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void runWriter() {
+        long pollMillis = Math.max(1, appProperties.getIngest().getPollMillis());
+        while (!Thread.currentThread().isInterrupted()) {
+            int count = writeNext(pollMillis);
+            if (!accepting && count == 0 && queue.isEmpty() && deferred.isEmpty() && retries.isEmpty()) {
+                return;
+            }
+        }
+    }
+
+    // Takes whatever is buffered, up to one batch, and writes it. Returns the number of messages taken.
+    int writeNext(long waitMillis) {
+        int maxBatch = Math.max(1, appProperties.getIngest().getMaxBatchSize());
+        if (!retries.isEmpty()) {
+            int size = Math.min(Math.min(retryBatchSize, maxBatch), retries.size());
+            List<PendingMessage> batch = new ArrayList<>(retries.subList(0, size));
+            retries.subList(0, batch.size()).clear();
+            write(batch);
+            return batch.size();
+        }
+        List<PendingMessage> batch = new ArrayList<>(deferred);
+        deferred.clear();
+        try {
+            if (batch.isEmpty()) {
+                PendingMessage first = queue.poll(waitMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    return 0;
+                }
+                batch.add(first);
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+        queue.drainTo(batch, Math.max(0, maxBatch - batch.size()));
+        write(batch);
+        return batch.size();
+    }
+
+    private void write(List<PendingMessage> batch) {
+        ShardRouter router = shardRouter.getIfAvailable();
+        boolean pause;
+        if (router == null) {
+            pause = writeByShard(batch, null);
+        } else {
+            // A migration waits for this batch if it was sorted before the node learned about the move.
+            long ticket = router.beginWrite();
+            try {
+                pause = writeByShard(batch, router);
+            } finally {
+                router.endWrite(ticket);
+            }
+        }
+        if (pause) {
+            backOff();
+        }
+    }
+
+    // Returns whether the writer should pause before the next batch.
+    private boolean writeByShard(List<PendingMessage> batch, ShardRouter router) {
+        Map<String, List<PendingMessage>> byShard = new LinkedHashMap<>();
+        for (PendingMessage message : batch) {
+            if (router != null && router.isMigrating(message.userId())) {
+                // Written once the move finishes, to whichever shard the user ends up on.
+                deferred.add(message);
+                continue;
+            }
+            String shard = router == null ? NO_SHARD : router.shardFor(message.userId());
+            byShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(message);
+        }
+
+        boolean failed = false;
+        for (Map.Entry<String, List<PendingMessage>> entry : byShard.entrySet()) {
+            String shard = NO_SHARD.equals(entry.getKey()) ? null : entry.getKey();
+            List<PendingMessage> messages = entry.getValue();
+            try {
+                ShardContext.runOn(shard, () -> commit(messages));
+                if (!failures.isEmpty()) {
+                    messages.forEach(message -> failures.remove(message.id()));
+                }
+                // Once the broken message is found, the rest of the retries go through in growing batches.
+                retryBatchSize = Math.max(retryBatchSize, messages.size() * 2);
+            } catch (RuntimeException exception) {
+                if (isTransient(exception)) {
+                    log.warn("Message ingest batch could not reach the database shard={} size={}; retrying", shard,
+                            messages.size(), exception);
+                    retries.addAll(0, messages);
+                    retryBatchSize = Math.max(retryBatchSize, messages.size());
+                } else {
+                    log.warn("Message ingest batch failed shard={} size={}; retrying", shard, messages.size(),
+                            exception);
+                    failed(messages);
+                }
+                failed = true;
+            }
+        }
+        return failed || (!deferred.isEmpty() && byShard.isEmpty());
+    }
+
+    private void failed(List<PendingMessage> messages) {
+        retryBatchSize = Math.max(1, messages.size() / 2);
+        if (messages.size() > 1) {
+            retries.addAll(0, messages);
+            return;
+        }
+        PendingMessage message = messages.get(0);
+        int attempts = failures.merge(message.id(), 1, Integer::sum);
+        if (attempts < Math.max(1, appProperties.getIngest().getMaxAttempts())) {
+            retries.add(0, message);
+            return;
+        }
+        // Taken out of the journal only once the dead-letter stream holds it; until then it keeps being retried.
+        if (!ingestJournal.deadLetter(message)) {
+            retries.add(0, message);
+            return;
+        }
+        failures.remove(message.id());
+        log.error("Message ingest moved messageId={} sessionId={} to the dead-letter stream after {} failed attempts",
+                message.id(), message.sessionId(), attempts);
+        deadLettered.increment();
+        release(messages);
+    }
+
+    // An outage is waited out however long it lasts; the messages themselves are fine.
+    private static boolean isTransient(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException
+                    || cause instanceof RecoverableDataAccessException
+                    || cause instanceof CannotCreateTransactionException
+                    || cause instanceof CannotGetJdbcConnectionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void commit(List<PendingMessage> messages) {
+        List<PendingMessage> committed = transactionTemplate.execute(status -> {
+            boolean postgres = messageIngestRepository.isPostgres();
+            Set<UUID> sessions = new LinkedHashSet<>();
+            messages.forEach(message -> sessions.add(message.sessionId()));
+            Map<UUID, String> owners = messageIngestRepository.sessionOwners(sessions);
+            List<PendingMessage> live = messages.stream()
+                    .filter(message -> message.userId().equals(owners.get(message.sessionId())))
+                    .toList();
+            Set<UUID> inserted = messageIngestRepository.insertMessages(live.stream().map(MessageIngestService::row).toList(), postgres);
+            List<PendingMessage> fresh = live.stream().filter(message -> inserted.contains(message.id())).toList();
+            messageIngestRepository.recordMessages(deltas(fresh));
+            syncChangeRepository.recordMessages(fresh.stream()
+                    .map(message -> new SyncChangeRepository.MessageChange(message.userId(), message.sessionId(),
+                            message.id()))
+                    .toList());
+            return fresh;
+        });
+        if (committed.size() < messages.size()) {
+            log.debug("Message ingest skipped {} messages for deleted sessions or already written", messages.size() - committed.size());
+        }
+
+        // Evicted rather than appended: a synchronous append may have reached the tail while these waited.
+        Set<UUID> touched = new LinkedHashSet<>();
+        committed.forEach(message -> touched.add(message.sessionId()));
+        touched.forEach(messageTailCache::evict);
+        chatSessionService.reindexSessions(touched);
+        if (sessionEventPublisher.isEnabled()) {
+            committed.forEach(message -> sessionEventPublisher.publish(SessionEvent.message(message.userId(), message.toResponse())));
+        }
+        written.increment(committed.size());
+        release(messages);
+    }
+
+    private void release(List<PendingMessage> messages) {
+        if (ingestJournal.isEnabled()) {
+            ingestJournal.acknowledge(messages);
+            messages.forEach(message -> {
+                if (message.journalId() != null) {
+                    inFlight.remove(message.journalId());
+                }
+            });
+        }
+        pendingIngests.remove(messages);
+    }
+
+    private void backOff() {
+        try {
+            Thread.sleep(Math.max(1, appProperties.getIngest().getRetryBackoffMillis()));
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Microseconds match the database's timestamp precision, so cursors built from the 202 response match the
+    // stored row exactly; strictly increasing keeps the accept order within a session.
+    private Instant nextTimestamp() {
+        long now = ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+        long micros = lastMicros.updateAndGet(last -> Math.max(now, last + 1));
+        return Instant.EPOCH.plus(micros, ChronoUnit.MICROS);
+    }
+
+    private static MessageIngestRepository.IngestRow row(PendingMessage message) {
+        return new MessageIngestRepository.IngestRow(message.id(), message.sessionId(), message.sender(), message.content(),
+                message.retrievedContext(), message.createdAt(), message.contentBytes(), message.contentTokens(),
+                message.contextBytes(), message.contextTokens());
+    }
+
+    private static List<MessageIngestRepository.SessionDelta> deltas(List<PendingMessage> messages) {
+        Map<UUID, MessageIngestRepository.SessionDelta> bySession = new LinkedHashMap<>();
+        for (PendingMessage message : messages) {
+            MessageIngestRepository.SessionDelta previous = bySession.get(message.sessionId());
+            boolean newest = previous == null || message.createdAt().isAfter(previous.lastAt());
+            bySession.put(message.sessionId(), new MessageIngestRepository.SessionDelta(
+                    message.sessionId(),
+                    (previous == null ? 0 : previous.count()) + 1,
+                    (previous == null ? 0 : previous.bytes()) + message.contentBytes(),
+                    newest ? message.createdAt() : previous.lastAt(),
+                    newest ? message.sender() : previous.lastSender(),
+                    newest ? message.preview() : previous.lastPreview()));
+        }
+        return new ArrayList<>(bySession.values());
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.dto.search.MessageSearchHit;
+import com.example.chatstorage.dto.search.MessageSearchResponse;
+import com.example.chatstorage.repository.MessageSearchRepository;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+@Service
+public class MessageSearchService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_QUERY_LENGTH = 200;
+    private static final int SNIPPET_RADIUS = 60;
+
+    private final MessageSearchRepository messageSearchRepository;
+    private final ChatSessionService chatSessionService;
+
+    public MessageSearchService(MessageSearchRepository messageSearchRepository, ChatSessionService chatSessionService) {
+        this.messageSearchRepository = messageSearchRepository;
+        this.chatSessionService = chatSessionService;
+    }
+
+    public MessageSearchResponse search(String userId, String query, UUID sessionId, int size, String cursor) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("q must not be blank");
+        }
+        if (query.length() > MAX_QUERY_LENGTH) {
+            throw new IllegalArgumentException("q must be at most " + MAX_QUERY_LENGTH + " characters");
+        }
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (sessionId != null) {
+            chatSessionService.requireOwnership(sessionId, userId);
+        }
+        MessageSearchRepository.Keyset after = decodeCursor(cursor);
+
+        // One extra row tells whether another page exists without a COUNT.
+        List<String> terms = terms(query);
+        List<MessageSearchRepository.SearchRow> rows;
+        if (messageSearchRepository.isFullTextReady()) {
+            rows = messageSearchRepository.searchFullText(userId, sessionId, query.trim(), after, size + 1);
+        } else if (terms.isEmpty()) {
+            rows = List.of();
+        } else {
+            rows = messageSearchRepository.searchPortable(userId, sessionId, terms, after, size + 1);
+        }
+
+        boolean hasMore = rows.size() > size;
+        List<MessageSearchRepository.SearchRow> page = hasMore ? rows.subList(0, size) : rows;
+        List<MessageSearchHit> items = page.stream()
+                .map(row -> new MessageSearchHit(row.id(), row.sessionId(), row.sender(), row.createdAt(), row.rank(),
+                        row.snippet() != null ? row.snippet() : snippet(row.content(), terms)))
+                .toList();
+        String nextCursor = hasMore ? encodeCursor(page.get(page.size() - 1)) : null;
+        return new MessageSearchResponse(items, nextCursor);
+    }
+
+    // Plain words only for the portable path; quoting and negation are full-text features.
+    static List<String> terms(String query) {
+        return Arrays.stream(query.toLowerCase(Locale.ROOT).split("\\s+"))
+                .map(term -> term.replace("\"", ""))
+                .filter(term -> !term.isEmpty() && !term.startsWith("-") && !"or".equals(term))
+                .distinct()
+                .toList();
+    }
+
+    static String snippet(String content, List<String> terms) {
+        if (content == null) {
+            return null;
+        }
+        String lower = content.toLowerCase(Locale.ROOT);
+        if (lower.length() != content.length()) {
+            // Lower-casing changed offsets (rare scripts); return a plain prefix rather than misplaced marks.
+            return content.length() <= SNIPPET_RADIUS * 2 ? content : content.substring(0, SNIPPET_RADIUS * 2) + "...";
+        }
+        int first = -1;
+        for (String term : terms) {
+            int index = lower.indexOf(term);
+            if (index >= 0 && (first < 0 || index < first)) {
+                first = index;
+            }
+        }
+        int start = Math.max(0, first - SNIPPET_RADIUS);
+        int end = Math.min(content.length(), Math.max(first, 0) + SNIPPET_RADIUS * 2);
+        String window = content.substring(start, end);
+        String lowerWindow = lower.substring(start, end);
+
+        StringBuilder highlighted = new StringBuilder();
+        int position = 0;
+        while (position < window.length()) {
+            String match = null;
+            for (String term : terms) {
+                if (lowerWindow.startsWith(term, position) && (match == null || term.length() > match.length())) {
+                    match = term;
+                }
+            }
+            if (match == null) {
+                highlighted.append(window.charAt(position++));
+            } else {
+                highlighted.append("<mark>").append(window, position, position + match.length()).append("</mark>");
+                position += match.length();
+            }
+        }
+        return (start > 0 ? "..." : "") + highlighted + (end < content.length() ? "..." : "");
+    }
+
+    static String encodeCursor(MessageSearchRepository.SearchRow row) {
+        String raw = row.rank() + "|" + row.createdAt() + "|" + row.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static MessageSearchRepository.Keyset decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new MessageSearchRepository.Keyset(Float.parseFloat(parts[0]), Instant.parse(parts[1]), UUID.fromString(parts[2]));
+        } catch (RuntimeException exception) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.domain.MessageText;
+import com.example.chatstorage.entity.ChatMessage;
+
+// Per-message size columns; the text rules themselves live in MessageText.
+public final class MessageSizeEstimator {
+
+    private MessageSizeEstimator() {
+    }
+
+    public static int bytes(String text) {
+        return MessageText.bytes(text);
+    }
+
+    public static int tokens(String text) {
+        return MessageText.tokens(text);
+    }
+
+    public static void apply(ChatMessage message) {
+        int contentBytes = bytes(message.getContent());
+        int contextBytes = bytes(message.getRetrievedContext());
+        message.setContentBytes(contentBytes);
+        message.setContentTokens(tokensForBytes(contentBytes));
+        message.setContextBytes(contextBytes);
+        message.setContextTokens(tokensForBytes(contextBytes));
+    }
+
+    static int contentBytes(ChatMessage message) {
+        return message.getContentBytes() != null ? message.getContentBytes() : bytes(message.getContent());
+    }
+
+    static int contentTokens(ChatMessage message) {
+        return message.getContentTokens() != null ? message.getContentTokens() : tokens(message.getContent());
+    }
+
+    static int contextBytes(ChatMessage message) {
+        return message.getContextBytes() != null ? message.getContextBytes() : bytes(message.getRetrievedContext());
+    }
+
+    static int contextTokens(ChatMessage message) {
+        return message.getContextTokens() != null ? message.getContextTokens() : tokens(message.getRetrievedContext());
+    }
+
+    private static int tokensForBytes(int bytes) {
+        return MessageText.tokensForBytes(bytes);
+    }
+}
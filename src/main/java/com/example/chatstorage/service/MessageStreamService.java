@@ -0,0 +1,287 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.cache.MessageStreamBuffer;
+import com.example.chatstorage.cache.MessageStreamBuffer.BufferedStream;
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.dto.AddMessageRequest;
+import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.dto.stream.CompleteMessageStreamRequest;
+import com.example.chatstorage.dto.stream.MessageStreamResponse;
+import com.example.chatstorage.dto.stream.OpenMessageStreamRequest;
+import com.example.chatstorage.entity.SenderType;
+import com.example.chatstorage.exception.NotFoundException;
+import com.example.chatstorage.sharding.ShardContext;
+import com.example.chatstorage.sharding.ShardRouter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+@Service
+public class MessageStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageStreamService.class);
+    private static final int READ_BUFFER_CHARS = 4096;
+
+    private final MessageStreamBuffer messageStreamBuffer;
+    private final ChatSessionService chatSessionService;
+    private final ChatMessageService chatMessageService;
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<ShardRouter> shardRouter;
+    private final AppProperties appProperties;
+
+    public MessageStreamService(MessageStreamBuffer messageStreamBuffer,
+                                ChatSessionService chatSessionService,
+                                ChatMessageService chatMessageService,
+                                ObjectMapper objectMapper,
+                                ObjectProvider<ShardRouter> shardRouter,
+                                AppProperties appProperties) {
+        this.messageStreamBuffer = messageStreamBuffer;
+        this.chatSessionService = chatSessionService;
+        this.chatMessageService = chatMessageService;
+        this.objectMapper = objectMapper;
+        this.shardRouter = shardRouter;
+        this.appProperties = appProperties;
+    }
+
+    public MessageStreamResponse open(UUID sessionId, String userId, OpenMessageStreamRequest request) {
+        requireEnabled();
+        chatSessionService.requireOwnership(sessionId, userId);
+        int maxOpen = Math.max(1, appProperties.getMessageStream().getMaxOpenPerSession());
+        if (messageStreamBuffer.readSession(sessionId).size() >= maxOpen) {
+            throw new IllegalArgumentException("At most " + maxOpen + " streams can be open per session");
+        }
+        Instant now = Instant.now();
+        BufferedStream stream = new BufferedStream(UUID.randomUUID(), userId, sessionId, MessageStreamBuffer.OPEN,
+                request == null ? null : request.retrievedContext(), "", 0, now, now);
+        messageStreamBuffer.open(stream);
+        return toResponse(stream);
+    }
+
+    // Reads the body as it arrives and pushes it to the buffer in coalesced pieces, so a long-lived chunked
+    // upload costs a handful of Redis writes per second instead of one per token, and none against the database.
+    public MessageStreamResponse append(UUID sessionId, String userId, UUID streamId, Reader body) {
+        requireEnabled();
+        int coalesceChars = Math.max(1, appProperties.getMessageStream().getCoalesceChars());
+        long coalesceNanos = Duration.ofMillis(Math.max(0, appProperties.getMessageStream().getCoalesceMillis())).toNanos();
+        StringBuilder pending = new StringBuilder();
+        char[] buffer = new char[READ_BUFFER_CHARS];
+        long lastFlush = System.nanoTime();
+        boolean appended = false;
+        try {
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                pending.append(buffer, 0, read);
+                if (pending.length() >= coalesceChars || System.nanoTime() - lastFlush >= coalesceNanos) {
+                    appendChunk(sessionId, userId, streamId, pending.toString());
+                    pending.setLength(0);
+                    lastFlush = System.nanoTime();
+                    appended = true;
+                }
+            }
+        } catch (IOException exception) {
+            // Whatever already arrived is kept when the upload breaks off, so the client can continue from it.
+            if (!pending.isEmpty()) {
+                appendChunk(sessionId, userId, streamId, pending.toString());
+            }
+            throw new UncheckedIOException(exception);
+        }
+        if (!pending.isEmpty()) {
+            appendChunk(sessionId, userId, streamId, pending.toString());
+            appended = true;
+        }
+        if (!appended) {
+            throw new IllegalArgumentException("chunk must not be empty");
+        }
+        return get(sessionId, userId, streamId);
+    }
+
+    public MessageStreamResponse get(UUID sessionId, String userId, UUID streamId) {
+        requireEnabled();
+        return messageStreamBuffer.read(streamId)
+                .filter(stream -> owns(stream, sessionId, userId) && !MessageStreamBuffer.DONE.equals(stream.state()))
+                .map(this::toResponse)
+                .orElseThrow(() -> streamNotFound(streamId));
+    }
+
+    public List<MessageStreamResponse> list(UUID sessionId, String userId) {
+        requireEnabled();
+        chatSessionService.requireOwnership(sessionId, userId);
+        return messageStreamBuffer.readSession(sessionId).stream()
+                .filter(stream -> owns(stream, sessionId, userId) && !MessageStreamBuffer.DONE.equals(stream.state()))
+                .sorted(Comparator.comparing(BufferedStream::startedAt))
+                .map(this::toResponse)
+                .toList();
+    }
+
+    // Writes the accumulated reply to chat_messages in one insert; a retried finalize returns the stored message.
+    // The stream id, reserved at open, is the message id, so saving again after a lost "done" marker (a retry
+    // once the lease lapsed, or the sweeper) finds the row already written instead of adding a second one.
+    public ChatMessageResponse complete(UUID sessionId, String userId, UUID streamId, CompleteMessageStreamRequest request) {
+        requireEnabled();
+        MessageStreamBuffer.Claim claim = messageStreamBuffer.claim(streamId, userId, sessionId, Instant.now(), lease());
+        if (claim.status() == MessageStreamBuffer.Claim.Status.DONE) {
+            return readResult(claim.result(), streamId);
+        }
+        if (claim.status() == MessageStreamBuffer.Claim.Status.BUSY) {
+            throw new IllegalArgumentException("Stream is already being finalized");
+        }
+        if (claim.status() == MessageStreamBuffer.Claim.Status.MISSING) {
+            throw streamNotFound(streamId);
+        }
+        BufferedStream stream = claim.stream();
+        if (stream.content().isBlank()) {
+            messageStreamBuffer.release(streamId);
+            throw new IllegalArgumentException("Stream has no content");
+        }
+        return persist(stream, request == null ? null : request.embedding());
+    }
+
+    public void discard(UUID sessionId, String userId, UUID streamId) {
+        requireEnabled();
+        BufferedStream stream = messageStreamBuffer.read(streamId)
+                .filter(found -> owns(found, sessionId, userId))
+                .orElseThrow(() -> streamNotFound(streamId));
+        messageStreamBuffer.discard(stream);
+    }
+
+    // Streams whose writer went quiet (gateway crash, dropped connection) are saved with whatever arrived,
+    // so a partial reply is not lost. The claim makes this safe to run on every node.
+    @Scheduled(fixedDelayString = "${app.message-stream.sweep-interval-millis:15000}")
+    public void sweepAbandoned() {
+        if (!appProperties.getMessageStream().isEnabled()) {
+            return;
+        }
+        Instant now = Instant.now();
+        Instant cutoff = now.minusSeconds(Math.max(1, appProperties.getMessageStream().getIdleTimeoutSeconds()));
+        try {
+            for (UUID streamId : messageStreamBuffer.idleSince(cutoff, Math.max(1, appProperties.getMessageStream().getSweepBatchSize()))) {
+                recover(streamId, now);
+            }
+        } catch (RuntimeException exception) {
+            log.warn("Message stream sweep failed", exception);
+        }
+    }
+
+    private void recover(UUID streamId, Instant now) {
+        MessageStreamBuffer.Claim claim = messageStreamBuffer.claim(streamId, null, null, now, lease());
+        if (claim.status() == MessageStreamBuffer.Claim.Status.BUSY) {
+            return;
+        }
+        if (claim.status() != MessageStreamBuffer.Claim.Status.CLAIMED) {
+            messageStreamBuffer.forgetIdle(streamId);
+            return;
+        }
+        BufferedStream stream = claim.stream();
+        if (stream.content().isBlank()) {
+            messageStreamBuffer.discard(stream);
+            return;
+        }
+        ShardRouter router = shardRouter.getIfAvailable();
+        if (router == null) {
+            saveAbandoned(streamId, stream, null);
+            return;
+        }
+        long ticket = router.beginWrite();
+        try {
+            if (router.isMigrating(stream.userId())) {
+                messageStreamBuffer.release(streamId);
+                return;
+            }
+            saveAbandoned(streamId, stream, router.shardFor(stream.userId()));
+        } finally {
+            router.endWrite(ticket);
+        }
+    }
+
+    private void saveAbandoned(UUID streamId, BufferedStream stream, String shard) {
+        try {
+            ShardContext.callOn(shard, () -> persist(stream, null));
+            log.info("Saved abandoned message stream streamId={} sessionId={}", streamId, stream.sessionId());
+        } catch (NotFoundException exception) {
+            log.info("Dropped abandoned message stream streamId={}; session no longer exists", streamId);
+        } catch (RuntimeException exception) {
+            log.warn("Could not save abandoned message stream streamId={}", streamId, exception);
+        }
+    }
+
+    private ChatMessageResponse persist(BufferedStream stream, float[] embedding) {
+        ChatMessageResponse saved;
+        try {
+            saved = chatMessageService.addMessage(stream.sessionId(), stream.userId(),
+                    new AddMessageRequest(SenderType.ASSISTANT, stream.content(), stream.retrievedContext(), embedding),
+                    stream.streamId());
+        } catch (NotFoundException exception) {
+            // The session was deleted while the reply was being generated.
+            messageStreamBuffer.discard(stream);
+            throw exception;
+        } catch (RuntimeException exception) {
+            // Nothing was written; let the caller retry or the sweeper pick it up later.
+            messageStreamBuffer.release(stream.streamId());
+            throw exception;
+        }
+        try {
+            messageStreamBuffer.complete(stream, objectMapper.writeValueAsString(saved));
+        } catch (JsonProcessingException | RuntimeException exception) {
+            log.warn("Message stream streamId={} was saved but could not be marked complete", stream.streamId(), exception);
+        }
+        return saved;
+    }
+
+    private ChatMessageResponse readResult(String result, UUID streamId) {
+        try {
+            return objectMapper.readValue(result, ChatMessageResponse.class);
+        } catch (JsonProcessingException exception) {
+            throw streamNotFound(streamId);
+        }
+    }
+
+    private MessageStreamResponse toResponse(BufferedStream stream) {
+        return new MessageStreamResponse(stream.streamId(), stream.sessionId(), SenderType.ASSISTANT, stream.content(),
+                MessageSizeEstimator.bytes(stream.content()), stream.chunks(),
+                MessageStreamBuffer.FINALIZING.equals(stream.state()), stream.startedAt(), stream.updatedAt());
+    }
+
+    private void appendChunk(UUID sessionId, String userId, UUID streamId, String chunk) {
+        long result = messageStreamBuffer.append(streamId, userId, sessionId, chunk, Instant.now());
+        if (result == MessageStreamBuffer.NOT_FOUND) {
+            throw streamNotFound(streamId);
+        }
+        if (result == MessageStreamBuffer.NOT_OPEN) {
+            throw new IllegalArgumentException("Stream is being finalized and no longer accepts chunks");
+        }
+        if (result == MessageStreamBuffer.TOO_LARGE) {
+            throw new IllegalArgumentException("Stream exceeds " + appProperties.getMessageStream().getMaxBytes() + " bytes");
+        }
+    }
+
+    private Duration lease() {
+        return Duration.ofSeconds(Math.max(1, appProperties.getMessageStream().getIdleTimeoutSeconds()));
+    }
+
+    private void requireEnabled() {
+        if (!appProperties.getMessageStream().isEnabled()) {
+            throw new NotFoundException("Message streaming is not enabled");
+        }
+    }
+
+    private static boolean owns(BufferedStream stream, UUID sessionId, String userId) {
+        return stream.sessionId().equals(sessionId) && stream.userId().equals(userId);
+    }
+
+    private static NotFoundException streamNotFound(UUID streamId) {
+        return new NotFoundException("Message stream not found: " + streamId);
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.cache.MessageTailCache;
+import com.example.chatstorage.cache.SessionIndexCache;
+import com.example.chatstorage.cache.SessionOwnershipCache;
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.dto.bulk.BulkDeleteRequest;
+import com.example.chatstorage.dto.bulk.BulkFavoriteRequest;
+import com.example.chatstorage.dto.bulk.BulkSessionResponse;
+import com.example.chatstorage.entity.SyncChange;
+import com.example.chatstorage.events.SessionEvent;
+import com.example.chatstorage.events.SessionEventPublisher;
+import com.example.chatstorage.repository.ChatMessageRepository;
+import com.example.chatstorage.repository.ChatSessionRepository;
+import com.example.chatstorage.repository.MessageEmbeddingRepository;
+import com.example.chatstorage.repository.SyncChangeRepository;
+import com.example.chatstorage.sharding.ShardContext;
+import com.example.chatstorage.sharding.ShardRouter;
+import com.example.chatstorage.vector.VectorIndexManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.UUID;
+
+// Favorite, unfavorite and delete many sessions of one user with a few set-based statements. Sessions are picked
+// by id or by filter, always scoped to the user. Deletes touching many messages only hand the sessions to
+// PURGE_OWNER, which hides them from the user at once; the purge job then deletes them in chunks.
+@Service
+public class SessionBulkService {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionBulkService.class);
+
+    // User ids are never blank, so no user can see or claim sessions waiting to be purged.
+    static final String PURGE_OWNER = "";
+
+    private final ChatSessionRepository chatSessionRepository;
+    private final ChatMessageRepository chatMessageRepository;
+    private final MessageEmbeddingRepository messageEmbeddingRepository;
+    private final SessionIndexCache sessionIndexCache;
+    private final SessionOwnershipCache sessionOwnershipCache;
+    private final MessageTailCache messageTailCache;
+    private final SessionTouchCoalescer sessionTouchCoalescer;
+    private final VectorIndexManager vectorIndexManager;
+    private final SessionEventPublisher sessionEventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectProvider<ShardRouter> shardRouter;
+    private final AppProperties appProperties;
+    private final SyncChangeRepository syncChangeRepository;
+
+    public SessionBulkService(ChatSessionRepository chatSessionRepository,
+                              ChatMessageRepository chatMessageRepository,
+                              MessageEmbeddingRepository messageEmbeddingRepository,
+                              SessionIndexCache sessionIndexCache,
+                              SessionOwnershipCache sessionOwnershipCache,
+                              MessageTailCache messageTailCache,
+                              SessionTouchCoalescer sessionTouchCoalescer,
+                              VectorIndexManager vectorIndexManager,
+                              SessionEventPublisher sessionEventPublisher,
+                              PlatformTransactionManager transactionManager,
+                              ObjectProvider<ShardRouter> shardRouter,
+                              AppProperties appProperties,
+                              SyncChangeRepository syncChangeRepository) {
+        this.chatSessionRepository = chatSessionRepository;
+        this.chatMessageRepository = chatMessageRepository;
+        this.messageEmbeddingRepository = messageEmbeddingRepository;
+        this.sessionIndexCache = sessionIndexCache;
+        this.sessionOwnershipCache = sessionOwnershipCache;
+        this.messageTailCache = messageTailCache;
+        this.sessionTouchCoalescer = sessionTouchCoalescer;
+        this.vectorIndexManager = vectorIndexManager;
+        this.sessionEventPublisher = sessionEventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardRouter = shardRouter;
+        this.appProperties = appProperties;
+        this.syncChangeRepository = syncChangeRepository;
+    }
+
+    @Transactional
+    public BulkSessionResponse updateFavorite(String userId, BulkFavoriteRequest request) {
+        boolean favorite = request.favorite();
+        // Sessions already in the requested state are skipped, so a repeated filter request always makes progress.
+        Boolean current = request.updatedBefore() == null ? null : !favorite;
+        Selection selection = select(userId, request.sessionIds(), request.updatedBefore(), current);
+        if (selection.ids().isEmpty()) {
+            return new BulkSessionResponse(0, false, selection.more());
+        }
+        int updated = chatSessionRepository.updateFavorite(userId, selection.ids(), favorite, Instant.now());
+        if (updated > 0) {
+            syncChangeRepository.recordSessions(userId, selection.ids(), SyncChange.Type.SESSION);
+            TransactionHooks.afterCommit(() -> favoritesChanged(userId, selection.ids()));
+        }
+        return new BulkSessionResponse(updated, false, selection.more());
+    }
+
+    @Transactional
+    public BulkSessionResponse delete(String userId, BulkDeleteRequest request) {
+        Selection selection = select(userId, request.sessionIds(), request.updatedBefore(), request.favorite());
+        List<UUID> ids = selection.ids();
+        if (ids.isEmpty()) {
+            return new BulkSessionResponse(0, false, selection.more());
+        }
+        boolean purgeLater = chatSessionRepository.countMessages(ids)
+                > appProperties.getBulkSessions().getInlineDeleteMaxMessages();
+        int deleted;
+        if (purgeLater) {
+            deleted = chatSessionRepository.transferOwnership(userId, ids, PURGE_OWNER);
+        } else {
+            messageEmbeddingRepository.deleteBySessionIds(ids);
+            chatMessageRepository.deleteBySessionIds(ids);
+            deleted = chatSessionRepository.deleteOwned(userId, ids);
+            syncChangeRepository.compact(ids);
+        }
+        // Handed-over sessions are gone for the user already; their older change rows go with the purge.
+        syncChangeRepository.recordSessions(userId, ids, SyncChange.Type.SESSION_DELETED);
+        TransactionHooks.afterCommit(() -> sessionsDeleted(userId, ids));
+        return new BulkSessionResponse(deleted, purgeLater, selection.more());
+    }
+
+    @Scheduled(fixedDelayString = "${app.bulk-sessions.purge-interval-millis:30000}",
+            initialDelayString = "${app.bulk-sessions.purge-interval-millis:30000}")
+    public void purgeAll() {
+        ShardRouter router = shardRouter.getIfAvailable();
+        if (router == null) {
+            purgeShard();
+            return;
+        }
+        for (String shard : router.shardNames()) {
+            ShardContext.runOn(shard, this::purgeShard);
+        }
+    }
+
+    // One transaction per chunk keeps locks and undo short however many messages are waiting.
+    int purgeShard() {
+        int batchSize = Math.max(1, appProperties.getBulkSessions().getPurgeBatchSize());
+        int purged = 0;
+        try {
+            while (true) {
+                Integer chunk = transactionTemplate.execute(status -> purgeChunk(batchSize));
+                if (chunk == null || chunk == 0) {
+                    break;
+                }
+                purged += chunk;
+            }
+        } catch (RuntimeException exception) {
+            log.warn("Session purge stopped after {} sessions on shard={}", purged, ShardContext.current(), exception);
+        }
+        if (purged > 0) {
+            log.info("Session purge deleted {} sessions on shard={}", purged, ShardContext.current());
+        }
+        return purged;
+    }
+
+    private int purgeChunk(int batchSize) {
+        List<UUID> ids = chatSessionRepository.findIdsByUserId(PURGE_OWNER, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        messageEmbeddingRepository.deleteBySessionIds(ids);
+        chatMessageRepository.deleteBySessionIds(ids);
+        syncChangeRepository.compact(ids);
+        return chatSessionRepository.deleteOwned(PURGE_OWNER, ids);
+    }
+
+    private Selection select(String userId, List<UUID> sessionIds, Instant updatedBefore, Boolean favorite) {
+        int max = appProperties.getBulkSessions().getMaxSessions();
+        if (sessionIds != null && !sessionIds.isEmpty()) {
+            if (updatedBefore != null || favorite != null) {
+                throw new IllegalArgumentException("Pass either sessionIds or a filter, not both");
+            }
+            if (sessionIds.size() > max) {
+                throw new IllegalArgumentException("At most " + max + " sessionIds per request");
+            }
+            return new Selection(chatSessionRepository.findOwnedIds(userId, new LinkedHashSet<>(sessionIds)), false);
+        }
+        if (updatedBefore == null && favorite == null) {
+            throw new IllegalArgumentException("sessionIds or a filter is required");
+        }
+        List<UUID> ids = chatSessionRepository.findIdsMatching(userId, updatedBefore, favorite,
+                PageRequest.of(0, max + 1));
+        boolean more = ids.size() > max;
+        if (more) {
+            ids = ids.subList(0, max);
+        }
+        if (updatedBefore != null) {
+            // A touch not yet flushed on this node may have moved a matched session past the cutoff.
+            ids = ids.stream().filter(id -> {
+                SessionTouchCoalescer.Touch touch = sessionTouchCoalescer.pending(id);
+                return touch == null || touch.lastAt().isBefore(updatedBefore);
+            }).toList();
+        }
+        return new Selection(ids, more);
+    }
+
+    // Many entries changed at once, so the user's index is rebuilt on the next listing instead of patched.
+    private void favoritesChanged(String userId, List<UUID> ids) {
+        sessionIndexCache.evict(userId);
+        if (sessionEventPublisher.isEnabled()) {
+            chatSessionRepository.findAllById(ids).forEach(session ->
+                    sessionEventPublisher.publish(SessionEvent.session(ChatSessionService.response(session))));
+        }
+    }
+
+    private void sessionsDeleted(String userId, List<UUID> ids) {
+        for (UUID sessionId : ids) {
+            sessionOwnershipCache.remove(sessionId);
+            messageTailCache.evict(sessionId);
+            sessionTouchCoalescer.forget(sessionId);
+            vectorIndexManager.removeSession(userId, sessionId);
+            sessionEventPublisher.publish(SessionEvent.deleted(userId, sessionId));
+        }
+        sessionIndexCache.evict(userId);
+    }
+
+    private record Selection(List<UUID> ids, boolean more) {
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.dto.ChatSessionResponse;
+import com.example.chatstorage.events.EventCursor;
+import com.example.chatstorage.events.SessionEvent;
+import com.example.chatstorage.events.SessionEventTransport;
+import com.example.chatstorage.events.SessionSubscription;
+import com.example.chatstorage.exception.NotFoundException;
+import com.example.chatstorage.exception.SubscriberLimitExceededException;
+import com.example.chatstorage.sharding.ShardContext;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Pushes new messages and session changes to SSE subscribers. Connections are async, so an idle
+// subscriber holds no request thread; deliveries run on virtual threads, one at a time per subscriber.
+@Service
+public class SessionEventService {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionEventService.class);
+
+    private final ChatSessionService chatSessionService;
+    private final ChatMessageService chatMessageService;
+    private final SessionEventTransport transport;
+    private final AppProperties appProperties;
+    private final Executor executor;
+    private final Map<UUID, Set<SessionSubscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    // listen/unlisten can block on the broker, so they run under striped locks rather than inside
+    // ConcurrentHashMap.compute, whose bin monitor would pin a virtual thread's carrier.
+    private final ReentrantLock[] sessionLocks = new ReentrantLock[64];
+
+    public SessionEventService(ChatSessionService chatSessionService,
+                               ChatMessageService chatMessageService,
+                               SessionEventTransport transport,
+                               AppProperties appProperties) {
+        this(chatSessionService, chatMessageService, transport, appProperties,
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("session-events-", 0).factory()));
+    }
+
+    SessionEventService(ChatSessionService chatSessionService,
+                        ChatMessageService chatMessageService,
+                        SessionEventTransport transport,
+                        AppProperties appProperties,
+                        Executor executor) {
+        this.chatSessionService = chatSessionService;
+        this.chatMessageService = chatMessageService;
+        this.transport = transport;
+        this.appProperties = appProperties;
+        this.executor = executor;
+        for (int i = 0; i < sessionLocks.length; i++) {
+            sessionLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        if (appProperties.getSessionEvents().isEnabled()) {
+            transport.start(this::dispatch);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        transport.stop();
+        subscriptions.values().forEach(set -> set.forEach(subscription -> {
+            subscription.close();
+            subscription.emitter().complete();
+        }));
+        subscriptions.clear();
+        if (executor instanceof ExecutorService service) {
+            service.shutdown();
+        }
+    }
+
+    public SseEmitter subscribe(UUID sessionId, String userId, String lastEventId) {
+        if (!appProperties.getSessionEvents().isEnabled()) {
+            throw new NotFoundException("Session events are not enabled");
+        }
+        ChatSessionResponse session = chatSessionService.getSession(sessionId, userId);
+        int max = Math.max(1, appProperties.getSessionEvents().getMaxSubscribers());
+        if (subscriberCount.incrementAndGet() > max) {
+            subscriberCount.decrementAndGet();
+            throw new SubscriberLimitExceededException("Too many live subscribers on this node");
+        }
+
+        EventCursor resumeFrom = EventCursor.parse(lastEventId).orElse(null);
+        SessionSubscription subscription;
+        try {
+            EventCursor cursor = resumeFrom != null ? resumeFrom : chatMessageService.newestMessage(sessionId)
+                    .map(message -> new EventCursor(message.createdAt(), message.id()))
+                    .orElse(EventCursor.START);
+            subscription = new SessionSubscription(userId, sessionId, ShardContext.current(),
+                    createEmitter(Math.max(0, appProperties.getSessionEvents().getTimeoutMillis())), executor,
+                    Math.max(1, appProperties.getSessionEvents().getQueueCapacity()), cursor);
+        } catch (RuntimeException exception) {
+            subscriberCount.decrementAndGet();
+            throw exception;
+        }
+        SseEmitter emitter = subscription.emitter();
+        emitter.onCompletion(() -> unregister(subscription));
+        emitter.onTimeout(() -> unregister(subscription));
+        emitter.onError(error -> unregister(subscription));
+
+        // Registered before the replay is queued, so nothing committed in between is missed; duplicates are filtered.
+        register(subscription);
+        subscription.offer(() -> {
+            send(subscription, SseEmitter.event().name("session").data(session, MediaType.APPLICATION_JSON));
+            if (resumeFrom != null) {
+                catchUp(subscription);
+            }
+        });
+        return emitter;
+    }
+
+    // Comments keep proxies and load balancers from closing idle connections and reveal dead clients.
+    @Scheduled(fixedDelayString = "${app.session-events.heartbeat-interval-millis:20000}")
+    public void heartbeat() {
+        subscriptions.values().forEach(set -> set.forEach(subscription ->
+                enqueue(subscription, () -> send(subscription, SseEmitter.event().comment("heartbeat")))));
+    }
+
+    public int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    void dispatch(SessionEvent event) {
+        Set<SessionSubscription> targets = subscriptions.get(event.sessionId());
+        if (targets == null) {
+            return;
+        }
+        for (SessionSubscription subscription : targets) {
+            if (subscription.userId().equals(event.userId())) {
+                enqueue(subscription, () -> deliver(subscription, event));
+            }
+        }
+    }
+
+    SseEmitter createEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private void deliver(SessionSubscription subscription, SessionEvent event) {
+        switch (event.type()) {
+            case MESSAGE -> {
+                if (event.message() == null) {
+                    catchUp(subscription);
+                } else {
+                    sendMessage(subscription, event.message());
+                }
+            }
+            case SESSION -> send(subscription, SseEmitter.event().name("session").data(event.session(), MediaType.APPLICATION_JSON));
+            case SESSION_DELETED -> {
+                send(subscription, SseEmitter.event().name("session-deleted")
+                        .data(Map.of("sessionId", event.sessionId()), MediaType.APPLICATION_JSON));
+                close(subscription);
+            }
+        }
+    }
+
+    // Reads what the subscriber has not seen yet. Runs on the user's shard, captured when the connection opened.
+    private void catchUp(SessionSubscription subscription) {
+        int limit = Math.max(1, appProperties.getSessionEvents().getReplayLimit());
+        EventCursor cursor = subscription.cursor();
+        List<ChatMessageResponse> missed;
+        try {
+            missed = ShardContext.callOn(subscription.shard(), () ->
+                    chatMessageService.listMessagesAfter(subscription.sessionId(), cursor.createdAt(), cursor.messageId(), limit + 1));
+        } catch (RuntimeException exception) {
+            log.warn("Session event catch-up failed sessionId={}", subscription.sessionId(), exception);
+            close(subscription);
+            return;
+        }
+        missed.stream().limit(limit).forEach(message -> sendMessage(subscription, message));
+        if (missed.size() > limit) {
+            // Too far behind to replay over SSE; the client reloads the page of messages it needs.
+            send(subscription, SseEmitter.event().name("resync")
+                    .data(Map.of("sessionId", subscription.sessionId()), MediaType.APPLICATION_JSON));
+        }
+    }
+
+    private void sendMessage(SessionSubscription subscription, ChatMessageResponse message) {
+        if (subscription.markSent(message.id(), message.createdAt())) {
+            send(subscription, SseEmitter.event()
+                    .id(new EventCursor(message.createdAt(), message.id()).format())
+                    .name("message")
+                    .data(message, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    private void send(SessionSubscription subscription, SseEmitter.SseEventBuilder event) {
+        if (subscription.isClosed()) {
+            return;
+        }
+        try {
+            subscription.emitter().send(event);
+        } catch (IOException | IllegalStateException exception) {
+            // The client went away; the container reports it through onError/onCompletion as well.
+            unregister(subscription);
+        }
+    }
+
+    private void enqueue(SessionSubscription subscription, Runnable task) {
+        if (!subscription.offer(task)) {
+            log.info("Dropping slow session event subscriber sessionId={}", subscription.sessionId());
+            close(subscription);
+        }
+    }
+
+    private void close(SessionSubscription subscription) {
+        unregister(subscription);
+        subscription.emitter().complete();
+    }
+
+    private void register(SessionSubscription subscription) {
+        UUID sessionId = subscription.sessionId();
+        ReentrantLock lock = lockFor(sessionId);
+        lock.lock();
+        try {
+            Set<SessionSubscription> set = subscriptions.get(sessionId);
+            if (set == null) {
+                transport.listen(sessionId);
+                set = ConcurrentHashMap.newKeySet();
+                subscriptions.put(sessionId, set);
+            }
+            set.add(subscription);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void unregister(SessionSubscription subscription) {
+        if (!subscription.close()) {
+            return;
+        }
+        subscriberCount.decrementAndGet();
+        UUID sessionId = subscription.sessionId();
+        ReentrantLock lock = lockFor(sessionId);
+        lock.lock();
+        try {
+            Set<SessionSubscription> set = subscriptions.get(sessionId);
+            if (set != null && set.remove(subscription) && set.isEmpty()) {
+                subscriptions.remove(sessionId);
+                transport.unlisten(sessionId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(UUID sessionId) {
+        return sessionLocks[Math.floorMod(sessionId.hashCode(), sessionLocks.length)];
+    }
+}
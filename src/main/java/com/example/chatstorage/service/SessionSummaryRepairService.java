@@ -0,0 +1,131 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.cache.SessionIndexCache;
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.entity.ChatMessage;
+import com.example.chatstorage.entity.ChatSession;
+import com.example.chatstorage.repository.ChatMessageRepository;
+import com.example.chatstorage.repository.ChatSessionRepository;
+import com.example.chatstorage.sharding.ShardContext;
+import com.example.chatstorage.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@ConditionalOnProperty(prefix = "app.session-summary", name = "repair-enabled", havingValue = "true")
+public class SessionSummaryRepairService {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionSummaryRepairService.class);
+
+    private final ChatSessionRepository chatSessionRepository;
+    private final ChatMessageRepository chatMessageRepository;
+    private final SessionIndexCache sessionIndexCache;
+    private final AppProperties appProperties;
+    private final ObjectProvider<ShardRouter> shardRouter;
+    private final SessionTouchCoalescer sessionTouchCoalescer;
+
+    public SessionSummaryRepairService(ChatSessionRepository chatSessionRepository,
+                                       ChatMessageRepository chatMessageRepository,
+                                       SessionIndexCache sessionIndexCache,
+                                       AppProperties appProperties,
+                                       ObjectProvider<ShardRouter> shardRouter,
+                                       SessionTouchCoalescer sessionTouchCoalescer) {
+        this.chatSessionRepository = chatSessionRepository;
+        this.chatMessageRepository = chatMessageRepository;
+        this.sessionIndexCache = sessionIndexCache;
+        this.appProperties = appProperties;
+        this.shardRouter = shardRouter;
+        this.sessionTouchCoalescer = sessionTouchCoalescer;
+    }
+
+    @Scheduled(fixedDelayString = "${app.session-summary.repair-interval-millis:3600000}",
+            initialDelayString = "${app.session-summary.repair-interval-millis:3600000}")
+    public void repairAll() {
+        ShardRouter router = shardRouter.getIfAvailable();
+        if (router == null) {
+            repairShard();
+            return;
+        }
+        for (String shard : router.shardNames()) {
+            ShardContext.runOn(shard, this::repairShard);
+        }
+    }
+
+    int repairShard() {
+        int batchSize = Math.max(1, appProperties.getSessionSummary().getRepairBatchSize());
+        int repaired = 0;
+        UUID after = null;
+        try {
+            while (true) {
+                List<ChatSession> batch = after == null
+                        ? chatSessionRepository.findAllByOrderByIdAsc(PageRequest.of(0, batchSize))
+                        : chatSessionRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, batchSize));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                repaired += repairBatch(batch);
+                after = batch.get(batch.size() - 1).getId();
+            }
+        } catch (RuntimeException exception) {
+            log.warn("Session summary repair stopped after {} sessions on shard={}", repaired, ShardContext.current(), exception);
+        }
+        if (repaired > 0) {
+            log.info("Session summary repair fixed {} sessions on shard={}", repaired, ShardContext.current());
+        }
+        return repaired;
+    }
+
+    private int repairBatch(List<ChatSession> batch) {
+        Map<UUID, ChatMessageRepository.SessionMessageStats> stats = chatMessageRepository
+                .summarizeSessions(batch.stream().map(ChatSession::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(ChatMessageRepository.SessionMessageStats::getSessionId, Function.identity()));
+
+        int repaired = 0;
+        for (ChatSession session : batch) {
+            ChatMessageRepository.SessionMessageStats actual = stats.get(session.getId());
+            long count = actual == null ? 0 : actual.getMessageCount();
+            long bytes = actual == null ? 0 : actual.getTotalContentBytes();
+            if (count == session.getMessageCount()
+                    && bytes == session.getTotalContentBytes()
+                    && Objects.equals(actual == null ? null : actual.getLastMessageAt(), session.getLastMessageAt())) {
+                continue;
+            }
+
+            // Messages whose summary update is still coalesced on this node would be counted twice.
+            if (sessionTouchCoalescer.hasPending(session.getId())) {
+                continue;
+            }
+
+            Optional<ChatMessage> last = count == 0
+                    ? Optional.empty()
+                    : chatMessageRepository.findFirstBySessionIdOrderByCreatedAtDescIdDesc(session.getId());
+            int updated = chatSessionRepository.repairSummary(
+                    session.getId(),
+                    session.getMessageCount(),
+                    count,
+                    bytes,
+                    last.map(ChatMessage::getCreatedAt).orElse(null),
+                    last.map(ChatMessage::getSender).orElse(null),
+                    last.map(message -> ChatSessionService.preview(message.getContent())).orElse(null));
+            if (updated > 0) {
+                repaired++;
+                sessionIndexCache.evict(session.getUserId());
+            }
+        }
+        return repaired;
+    }
+}
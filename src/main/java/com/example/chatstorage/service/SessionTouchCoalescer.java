@@ -0,0 +1,211 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.cache.SessionIndexCache;
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.dto.ChatSessionResponse;
+import com.example.chatstorage.entity.SenderType;
+import com.example.chatstorage.repository.ChatSessionRepository;
+import com.example.chatstorage.repository.MessageIngestRepository;
+import com.example.chatstorage.sharding.ShardContext;
+import com.example.chatstorage.sharding.ShardRouter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+// Collects the per-message session summary update (count, bytes, last message, updatedAt) in memory and writes
+// it in periodic batched UPDATEs, so concurrent appends to one session no longer queue on its row lock and leave
+// a dead tuple per message. Reads on this node add the unflushed part back in; the order of listings, on this node
+// as on any other, lags by up to one flush interval.
+@Service
+public class SessionTouchCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionTouchCoalescer.class);
+    private static final String NO_SHARD = "";
+
+    private final MessageIngestRepository messageIngestRepository;
+    private final ChatSessionRepository chatSessionRepository;
+    private final SessionIndexCache sessionIndexCache;
+    private final ObjectProvider<ShardRouter> shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final AppProperties appProperties;
+    private final Map<UUID, Touch> pending = new ConcurrentHashMap<>();
+    // Taken out of pending but not yet committed; still counted by readers so a flush never makes them go back.
+    private final Map<UUID, Touch> inFlight = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public SessionTouchCoalescer(MessageIngestRepository messageIngestRepository,
+                                 ChatSessionRepository chatSessionRepository,
+                                 SessionIndexCache sessionIndexCache,
+                                 ObjectProvider<ShardRouter> shardRouter,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 AppProperties appProperties) {
+        this.messageIngestRepository = messageIngestRepository;
+        this.chatSessionRepository = chatSessionRepository;
+        this.sessionIndexCache = sessionIndexCache;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.appProperties = appProperties;
+        Gauge.builder("chatstorage.session.touch.pending", pending, Map::size).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return appProperties.getSessionTouch().isEnabled();
+    }
+
+    // Called once the message row is committed, so a rolled-back append is never counted.
+    public void record(UUID sessionId, String userId, Instant at, long bytes, SenderType sender, String preview) {
+        pending.merge(sessionId, new Touch(userId, 1, bytes, at, sender, preview), Touch::plus);
+    }
+
+    // What this node has counted for the session but not yet written, or null.
+    public Touch pending(UUID sessionId) {
+        Touch queued = pending.get(sessionId);
+        Touch flushing = inFlight.get(sessionId);
+        if (queued == null) {
+            return flushing;
+        }
+        return flushing == null ? queued : flushing.plus(queued);
+    }
+
+    // Everything this node has counted for the user's sessions but not yet written, or null. Pending is read before
+    // inFlight, so a touch moving between them mid-read is counted twice rather than missed.
+    public Touch pendingForUser(String userId) {
+        Touch total = null;
+        for (Map<UUID, Touch> touches : List.of(pending, inFlight)) {
+            for (Touch touch : touches.values()) {
+                if (touch.userId().equals(userId)) {
+                    total = total == null ? touch : total.plus(touch);
+                }
+            }
+        }
+        return total;
+    }
+
+    public boolean hasPending(UUID sessionId) {
+        return pending.containsKey(sessionId) || inFlight.containsKey(sessionId);
+    }
+
+    public void forget(UUID sessionId) {
+        pending.remove(sessionId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.session-touch.flush-interval-millis:1000}")
+    public void flush() {
+        flush(touch -> true);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+
+    private void flush(Predicate<Touch> selected) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        ShardRouter router = shardRouter.getIfAvailable();
+        flushLock.lock();
+        long ticket = router == null ? 0 : router.beginWrite();
+        try {
+            Map<String, Map<UUID, Touch>> byShard = new LinkedHashMap<>();
+            for (Map.Entry<UUID, Touch> entry : pending.entrySet()) {
+                Touch candidate = entry.getValue();
+                // Users being moved keep their touches until the move ends; they are then written to the new shard.
+                if (!selected.test(candidate) || (router != null && router.isMigrating(candidate.userId()))) {
+                    continue;
+                }
+                Touch touch = pending.remove(entry.getKey());
+                if (touch == null) {
+                    continue;
+                }
+                inFlight.put(entry.getKey(), touch);
+                String shard = router == null ? NO_SHARD : router.shardFor(touch.userId());
+                byShard.computeIfAbsent(shard, key -> new LinkedHashMap<>()).put(entry.getKey(), touch);
+            }
+            byShard.forEach((shard, touches) -> ShardContext.runOn(NO_SHARD.equals(shard) ? null : shard, () -> write(touches)));
+        } finally {
+            if (router != null) {
+                router.endWrite(ticket);
+            }
+            flushLock.unlock();
+        }
+    }
+
+    private void write(Map<UUID, Touch> touches) {
+        List<MessageIngestRepository.SessionDelta> deltas = new ArrayList<>(touches.size());
+        touches.forEach((sessionId, touch) -> deltas.add(new MessageIngestRepository.SessionDelta(sessionId, touch.count(),
+                touch.bytes(), touch.lastAt(), touch.lastSender(), touch.lastPreview())));
+        try {
+            transactionTemplate.executeWithoutResult(status -> messageIngestRepository.recordMessages(deltas));
+        } catch (RuntimeException exception) {
+            log.warn("Session touch flush failed for {} sessions; retrying on the next flush", touches.size(), exception);
+            // Back into pending before leaving inFlight, so readers never see the counts drop.
+            touches.forEach((sessionId, touch) -> pending.merge(sessionId, touch, (later, earlier) -> earlier.plus(later)));
+            touches.keySet().forEach(inFlight::remove);
+            return;
+        }
+        touches.keySet().forEach(inFlight::remove);
+        if (sessionIndexCache.isEnabled()) {
+            try {
+                chatSessionRepository.findAllById(touches.keySet()).forEach(session ->
+                        sessionIndexCache.upsert(Touch.applyTo(pending(session.getId()), ChatSessionService.response(session))));
+            } catch (RuntimeException exception) {
+                log.warn("Session index refresh after touch flush failed", exception);
+            }
+        }
+    }
+
+    // Summary changes of one or more messages. Counts add up; the "last message" and updatedAt only move forward.
+    public record Touch(String userId, long count, long bytes, Instant lastAt, SenderType lastSender, String lastPreview) {
+
+        public Touch plus(Touch other) {
+            boolean newer = other.lastAt().isAfter(lastAt);
+            return new Touch(userId, count + other.count, bytes + other.bytes,
+                    newer ? other.lastAt : lastAt,
+                    newer ? other.lastSender : lastSender,
+                    newer ? other.lastPreview : lastPreview);
+        }
+
+        public Instant updatedAt(Instant stored) {
+            return stored == null || lastAt.isAfter(stored) ? lastAt : stored;
+        }
+
+        public static ChatSessionResponse applyTo(Touch touch, ChatSessionResponse session) {
+            if (touch == null) {
+                return session;
+            }
+            boolean newer = session.lastMessageAt() == null || touch.lastAt().isAfter(session.lastMessageAt());
+            return new ChatSessionResponse(
+                    session.id(),
+                    session.userId(),
+                    session.title(),
+                    session.favorite(),
+                    session.createdAt(),
+                    touch.updatedAt(session.updatedAt()),
+                    session.messageCount() + touch.count(),
+                    session.totalContentBytes() + touch.bytes(),
+                    newer ? touch.lastAt() : session.lastMessageAt(),
+                    newer ? touch.lastSender() : session.lastSender(),
+                    newer ? touch.lastPreview() : session.lastMessagePreview()
+            );
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.entity.UserShardAssignment;
+import com.example.chatstorage.repository.ShardNodeRepository;
+import com.example.chatstorage.repository.UserShardAssignmentRepository;
+import com.example.chatstorage.sharding.ShardContext;
+import com.example.chatstorage.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+// Loads the directory into the router and reports each load to shard_nodes once this instance has no write left
+// that began before it. A migration waits for every live instance to report a load newer than its own change.
+@Service
+@ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+public class ShardDirectoryService {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardDirectoryService.class);
+    private static final long ACK_POLL_MILLIS = 500;
+
+    private final UserShardAssignmentRepository assignmentRepository;
+    private final ShardNodeRepository shardNodeRepository;
+    private final ShardRouter shardRouter;
+    private final AppProperties appProperties;
+    private final String nodeId = UUID.randomUUID().toString();
+    // Loads whose earlier writes may still be running, oldest first. Guarded by this.
+    private final Deque<DirectoryLoad> undrained = new ArrayDeque<>();
+    private Instant syncedAt;
+
+    public ShardDirectoryService(UserShardAssignmentRepository assignmentRepository,
+                                 ShardNodeRepository shardNodeRepository,
+                                 ShardRouter shardRouter,
+                                 AppProperties appProperties) {
+        this.assignmentRepository = assignmentRepository;
+        this.shardNodeRepository = shardNodeRepository;
+        this.shardRouter = shardRouter;
+        this.appProperties = appProperties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.sharding.directory-refresh-millis:30000}")
+    public synchronized void refresh() {
+        try {
+            // The directory lives on the default shard next to the API key table. Taken before the read, so the
+            // load includes every change committed before loadedAt.
+            Instant loadedAt = ShardContext.callOn(shardRouter.defaultShard(), shardNodeRepository::now);
+            Map<String, ShardRouter.ShardAssignment> latest = ShardContext.callOn(shardRouter.defaultShard(),
+                    () -> assignmentRepository.findAll().stream()
+                            .filter(assignment -> shardRouter.hasShard(assignment.getShardName()))
+                            .collect(Collectors.toMap(
+                                    UserShardAssignment::getUserId,
+                                    assignment -> new ShardRouter.ShardAssignment(assignment.getShardName(), assignment.isMigrating())
+                            )));
+            shardRouter.replaceAssignments(latest);
+            // Writes that begin from here on check the new assignments; only the ones before the mark can be stale.
+            undrained.addLast(new DirectoryLoad(loadedAt, shardRouter.writeMark()));
+            report(loadedAt);
+        } catch (RuntimeException exception) {
+            log.warn("Shard directory refresh failed; keeping previous assignments", exception);
+        }
+    }
+
+    private void report(Instant loadedAt) {
+        while (!undrained.isEmpty() && shardRouter.writesDrained(undrained.peekFirst().writeMark())) {
+            syncedAt = undrained.pollFirst().loadedAt();
+        }
+        long nodeTimeoutMillis = Math.max(1, appProperties.getSharding().getNodeTimeoutMillis());
+        ShardContext.runOn(shardRouter.defaultShard(), () -> {
+            shardNodeRepository.report(nodeId, syncedAt, loadedAt);
+            // Rows of instances that stopped reporting are already ignored by migrations.
+            shardNodeRepository.deleteReportedBefore(loadedAt.minusMillis(nodeTimeoutMillis));
+        });
+    }
+
+    // Waits until every instance that reported within the node timeout has loaded the directory as it is now and
+    // finished the writes it started before that. False when timeout passes first.
+    public boolean awaitNodes(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        Instant version = ShardContext.callOn(shardRouter.defaultShard(), shardNodeRepository::now);
+        long nodeTimeoutMillis = Math.max(1, appProperties.getSharding().getNodeTimeoutMillis());
+        while (true) {
+            // This instance reports right away instead of on its schedule.
+            refresh();
+            try {
+                long lagging = ShardContext.callOn(shardRouter.defaultShard(), () -> shardNodeRepository.countLagging(
+                        shardNodeRepository.now().minusMillis(nodeTimeoutMillis), version));
+                if (lagging == 0) {
+                    return true;
+                }
+                log.debug("Waiting for {} instances to catch up with the shard directory", lagging);
+            } catch (RuntimeException exception) {
+                log.warn("Could not read shard instance reports; retrying", exception);
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            try {
+                Thread.sleep(ACK_POLL_MILLIS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    public void assign(String userId, String shardName, boolean migrating) {
+        ShardContext.runOn(shardRouter.defaultShard(), () -> {
+            UserShardAssignment assignment = assignmentRepository.findById(userId).orElseGet(UserShardAssignment::new);
+            assignment.setUserId(userId);
+            assignment.setShardName(shardName);
+            assignment.setMigrating(migrating);
+            assignmentRepository.save(assignment);
+        });
+    }
+
+    private record DirectoryLoad(Instant loadedAt, long writeMark) {
+    }
+}
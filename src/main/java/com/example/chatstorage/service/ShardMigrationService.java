@@ -0,0 +1,302 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.dto.shard.ShardMigrationResponse;
+import com.example.chatstorage.dto.shard.UserShardResponse;
+import com.example.chatstorage.entity.ShardMigration;
+import com.example.chatstorage.exception.NotFoundException;
+import com.example.chatstorage.repository.ShardMigrationRepository;
+import com.example.chatstorage.repository.SyncChangeRepository;
+import com.example.chatstorage.sharding.ShardContext;
+import com.example.chatstorage.sharding.ShardDataSources;
+import com.example.chatstorage.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSetMetaData;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+// Moves a user to another shard in the background; progress is kept in shard_migrations. Each step that changes
+// the directory waits until every instance has loaded the change and finished the writes it started before, so no
+// HTTP write, queued ingest or coalesced touch lands on the source after the copy began.
+@Service
+@ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+public class ShardMigrationService {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardMigrationService.class);
+
+    // Parent tables first; deletes run in reverse order.
+    private static final List<UserScopedTable> USER_TABLES = List.of(
+            new UserScopedTable("chat_sessions", "chat_sessions t WHERE t.user_id = ?"),
+            new UserScopedTable("chat_messages", "chat_messages t JOIN chat_sessions s ON s.id = t.session_id WHERE s.user_id = ?"),
+            new UserScopedTable("message_embeddings", "message_embeddings t JOIN chat_sessions s ON s.id = t.session_id WHERE s.user_id = ?"),
+            new UserScopedTable("sync_changes", "sync_changes t WHERE t.user_id = ?")
+    );
+
+    // Columns computed by the database itself cannot be inserted into.
+    private static final Set<String> GENERATED_COLUMNS = Set.of("content_tsv");
+
+    private final ShardRouter shardRouter;
+    private final ShardDataSources shardDataSources;
+    private final ShardDirectoryService shardDirectoryService;
+    private final ShardMigrationRepository shardMigrationRepository;
+    private final AppProperties appProperties;
+    private final Executor executor;
+
+    public ShardMigrationService(ShardRouter shardRouter,
+                                 ShardDataSources shardDataSources,
+                                 ShardDirectoryService shardDirectoryService,
+                                 ShardMigrationRepository shardMigrationRepository,
+                                 AppProperties appProperties) {
+        this(shardRouter, shardDataSources, shardDirectoryService, shardMigrationRepository, appProperties,
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("shard-migration-", 0).factory()));
+    }
+
+    ShardMigrationService(ShardRouter shardRouter,
+                          ShardDataSources shardDataSources,
+                          ShardDirectoryService shardDirectoryService,
+                          ShardMigrationRepository shardMigrationRepository,
+                          AppProperties appProperties,
+                          Executor executor) {
+        this.shardRouter = shardRouter;
+        this.shardDataSources = shardDataSources;
+        this.shardDirectoryService = shardDirectoryService;
+        this.shardMigrationRepository = shardMigrationRepository;
+        this.appProperties = appProperties;
+        this.executor = executor;
+    }
+
+    public UserShardResponse describeUser(String userId) {
+        return new UserShardResponse(
+                userId,
+                shardRouter.shardFor(userId),
+                shardRouter.ringShardFor(userId),
+                shardRouter.isMigrating(userId)
+        );
+    }
+
+    // Freezes the user's writes and returns at once; the copy runs in the background (see migrationStatus).
+    public ShardMigrationResponse startMigration(String userId, String targetShard) {
+        if (!shardRouter.hasShard(targetShard)) {
+            throw new IllegalArgumentException("Unknown shard: " + targetShard);
+        }
+        if (shardRouter.isMigrating(userId)) {
+            throw new IllegalArgumentException("User is already being migrated: " + userId);
+        }
+
+        String sourceShard = shardRouter.shardFor(userId);
+        ShardMigration migration = new ShardMigration();
+        migration.setUserId(userId);
+        migration.setSourceShard(sourceShard);
+        migration.setTargetShard(targetShard);
+        migration.setStartedAt(Instant.now());
+        if (sourceShard.equals(targetShard)) {
+            migration.setState(ShardMigration.State.COMPLETED);
+            migration.setUpdatedAt(migration.getStartedAt());
+            return response(migration);
+        }
+
+        // Freeze writes: this instance immediately, the others once they load the directory.
+        shardRouter.markMigrating(userId);
+        try {
+            migration.setState(ShardMigration.State.FREEZING);
+            save(migration);
+            shardDirectoryService.assign(userId, sourceShard, true);
+        } catch (RuntimeException exception) {
+            shardRouter.abortMigration(userId);
+            throw exception;
+        }
+        executor.execute(() -> run(migration));
+        return response(migration);
+    }
+
+    public ShardMigrationResponse migrationStatus(String userId) {
+        return ShardContext.callOn(shardRouter.defaultShard(), () -> shardMigrationRepository.findById(userId))
+                .map(ShardMigrationService::response)
+                .orElseThrow(() -> new NotFoundException("No shard migration found for user: " + userId));
+    }
+
+    void run(ShardMigration migration) {
+        String userId = migration.getUserId();
+        String sourceShard = migration.getSourceShard();
+        String targetShard = migration.getTargetShard();
+        JdbcTemplate source = new JdbcTemplate(shardDataSources.get(sourceShard));
+        JdbcTemplate target = new JdbcTemplate(shardDataSources.get(targetShard));
+        long[] moved = new long[USER_TABLES.size()];
+        try {
+            if (!awaitNodes()) {
+                throw new IllegalStateException("Not every instance confirmed the write freeze in time");
+            }
+            update(migration, ShardMigration.State.COPYING);
+            // Leftovers from an earlier failed attempt would collide with the copy.
+            deleteUserRows(target, userId);
+            for (int i = 0; i < USER_TABLES.size(); i++) {
+                moved[i] = copyTable(source, target, USER_TABLES.get(i), userId);
+            }
+            // Sync tokens are per user and keep growing from where the source stopped.
+            new SyncChangeRepository(target).restoreCursor(userId, new SyncChangeRepository(source).cursor(userId));
+            shardDirectoryService.assign(userId, targetShard, false);
+        } catch (RuntimeException exception) {
+            log.warn("Migration of userId={} to shard={} failed; writes stay on shard={}",
+                    userId, targetShard, sourceShard, exception);
+            deleteUserRowsQuietly(target, userId);
+            unfreeze(userId, sourceShard);
+            migration.setError(describe(exception));
+            update(migration, ShardMigration.State.FAILED);
+            return;
+        }
+
+        shardRouter.completeMigration(userId, targetShard);
+        migration.setSessionsMoved(moved[0]);
+        migration.setMessagesMoved(moved[1]);
+        update(migration, ShardMigration.State.SWITCHING);
+        // Instances that have not loaded the switch still read from the source.
+        if (awaitNodes()) {
+            deleteUserRowsQuietly(source, userId);
+        } else {
+            log.warn("Kept the source rows of userId={} on shard={}: not every instance confirmed the new placement",
+                    userId, sourceShard);
+            migration.setError("Source rows kept on " + sourceShard
+                    + ": not every instance confirmed the new placement in time");
+        }
+        update(migration, ShardMigration.State.COMPLETED);
+        log.info("Migrated userId={} from shard={} to shard={} sessions={} messages={}",
+                userId, sourceShard, targetShard, moved[0], moved[1]);
+    }
+
+    private boolean awaitNodes() {
+        long timeoutMillis = Math.max(0, appProperties.getSharding().getMigrationAckTimeoutMillis());
+        try {
+            return shardDirectoryService.awaitNodes(Duration.ofMillis(timeoutMillis));
+        } catch (RuntimeException exception) {
+            log.warn("Could not confirm that every instance caught up with the shard directory", exception);
+            return false;
+        }
+    }
+
+    private void unfreeze(String userId, String sourceShard) {
+        try {
+            shardDirectoryService.assign(userId, sourceShard, false);
+        } catch (RuntimeException exception) {
+            log.error("Could not lift the write freeze of userId={}; fix user_shard_assignments by hand", userId,
+                    exception);
+        }
+        shardRouter.abortMigration(userId);
+    }
+
+    private void update(ShardMigration migration, ShardMigration.State state) {
+        migration.setState(state);
+        try {
+            save(migration);
+        } catch (RuntimeException exception) {
+            // Progress reporting only; the migration itself goes on.
+            log.warn("Could not record shard migration state={} for userId={}", state, migration.getUserId(),
+                    exception);
+        }
+    }
+
+    private void save(ShardMigration migration) {
+        // The repository merges into a copy, so this instance would not see the copy's timestamp.
+        migration.setUpdatedAt(Instant.now());
+        ShardContext.runOn(shardRouter.defaultShard(), () -> shardMigrationRepository.save(migration));
+    }
+
+    private static String describe(RuntimeException exception) {
+        String message = exception.getMessage() == null ? exception.getClass().getSimpleName() : exception.getMessage();
+        return message.length() > 500 ? message.substring(0, 500) : message;
+    }
+
+    static ShardMigrationResponse response(ShardMigration migration) {
+        return new ShardMigrationResponse(migration.getUserId(), migration.getSourceShard(), migration.getTargetShard(),
+                migration.getState().name(), migration.getSessionsMoved(), migration.getMessagesMoved(),
+                migration.getError(), migration.getStartedAt(), migration.getUpdatedAt());
+    }
+
+    private long copyTable(JdbcTemplate source, JdbcTemplate target, UserScopedTable table, String userId) {
+        int batchSize = Math.max(1, appProperties.getSharding().getMigrationBatchSize());
+        long copied = 0;
+        Object lastId = null;
+        while (true) {
+            RowBatch batch = readBatch(source, table, userId, lastId, batchSize);
+            if (batch.rows().isEmpty()) {
+                return copied;
+            }
+            target.batchUpdate(batch.insertSql(table.name()), batch.rows());
+            copied += batch.rows().size();
+            lastId = batch.lastId();
+            if (batch.rows().size() < batchSize) {
+                return copied;
+            }
+        }
+    }
+
+    private RowBatch readBatch(JdbcTemplate source, UserScopedTable table, String userId, Object lastId, int batchSize) {
+        String sql = "SELECT t.* FROM " + table.fromWhere()
+                + (lastId == null ? "" : " AND t.id > ?")
+                + " ORDER BY t.id LIMIT ?";
+        Object[] args = lastId == null ? new Object[]{userId, batchSize} : new Object[]{userId, lastId, batchSize};
+        return source.query(sql, resultSet -> {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            List<String> columns = new ArrayList<>();
+            List<Integer> positions = new ArrayList<>();
+            int idIndex = -1;
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                String column = metaData.getColumnLabel(i);
+                if (GENERATED_COLUMNS.contains(column.toLowerCase(Locale.ROOT))) {
+                    continue;
+                }
+                if ("id".equalsIgnoreCase(column)) {
+                    idIndex = columns.size();
+                }
+                columns.add(column);
+                positions.add(i);
+            }
+            List<Object[]> rows = new ArrayList<>();
+            while (resultSet.next()) {
+                Object[] row = new Object[columns.size()];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = resultSet.getObject(positions.get(i));
+                }
+                rows.add(row);
+            }
+            Object last = rows.isEmpty() || idIndex < 0 ? null : rows.get(rows.size() - 1)[idIndex];
+            return new RowBatch(columns, rows, last);
+        }, args);
+    }
+
+    private void deleteUserRows(JdbcTemplate jdbcTemplate, String userId) {
+        for (int i = USER_TABLES.size() - 1; i >= 0; i--) {
+            UserScopedTable table = USER_TABLES.get(i);
+            jdbcTemplate.update("DELETE FROM " + table.name() + " WHERE id IN (SELECT t.id FROM " + table.fromWhere() + ")", userId);
+        }
+        jdbcTemplate.update("DELETE FROM sync_cursors WHERE user_id = ?", userId);
+    }
+
+    private void deleteUserRowsQuietly(JdbcTemplate jdbcTemplate, String userId) {
+        try {
+            deleteUserRows(jdbcTemplate, userId);
+        } catch (RuntimeException exception) {
+            log.warn("Failed to clean up rows for userId={}; they are unreachable and can be removed manually", userId, exception);
+        }
+    }
+
+    private record UserScopedTable(String name, String fromWhere) {
+    }
+
+    private record RowBatch(List<String> columns, List<Object[]> rows, Object lastId) {
+        String insertSql(String table) {
+            String placeholders = String.join(", ", columns.stream().map(column -> "?").toList());
+            return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES (" + placeholders + ")";
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.dto.search.SimilarMessageHit;
+import com.example.chatstorage.dto.search.SimilarMessagesRequest;
+import com.example.chatstorage.dto.search.SimilarMessagesResponse;
+import com.example.chatstorage.entity.ChatMessage;
+import com.example.chatstorage.entity.MessageEmbedding;
+import com.example.chatstorage.exception.NotFoundException;
+import com.example.chatstorage.repository.ChatMessageRepository;
+import com.example.chatstorage.repository.MessageEmbeddingRepository;
+import com.example.chatstorage.vector.HnswIndex;
+import com.example.chatstorage.vector.VectorCodec;
+import com.example.chatstorage.vector.VectorIndexManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class SimilaritySearchService {
+
+    private static final int DEFAULT_K = 10;
+    private static final int MAX_K = 100;
+    private static final int CATCH_UP_BATCH = 500;
+    // Rows committed slightly out of createdAt order are still picked up; duplicates are ignored by the index.
+    private static final Duration CATCH_UP_OVERLAP = Duration.ofSeconds(5);
+    private static final UUID MIN_UUID = new UUID(0, 0);
+
+    private final VectorIndexManager vectorIndexManager;
+    private final MessageEmbeddingRepository messageEmbeddingRepository;
+    private final ChatMessageRepository chatMessageRepository;
+    private final ChatSessionService chatSessionService;
+
+    public SimilaritySearchService(VectorIndexManager vectorIndexManager,
+                                   MessageEmbeddingRepository messageEmbeddingRepository,
+                                   ChatMessageRepository chatMessageRepository,
+                                   ChatSessionService chatSessionService) {
+        this.vectorIndexManager = vectorIndexManager;
+        this.messageEmbeddingRepository = messageEmbeddingRepository;
+        this.chatMessageRepository = chatMessageRepository;
+        this.chatSessionService = chatSessionService;
+    }
+
+    public SimilarMessagesResponse search(String userId, SimilarMessagesRequest request) {
+        if (!vectorIndexManager.isEnabled()) {
+            throw new NotFoundException("Similarity search is not enabled");
+        }
+        int k = request.k() == null ? DEFAULT_K : request.k();
+        if (k < 1 || k > MAX_K) {
+            throw new IllegalArgumentException("k must be between 1 and " + MAX_K);
+        }
+        VectorCodec.validate(request.embedding(), vectorIndexManager.maxDimensions());
+        if (request.sessionId() != null) {
+            chatSessionService.requireOwnership(request.sessionId(), userId);
+        }
+
+        catchUp(userId);
+        int dimensions = vectorIndexManager.dimensions(userId);
+        if (dimensions < 0) {
+            return new SimilarMessagesResponse(List.of());
+        }
+        if (dimensions != request.embedding().length) {
+            throw new IllegalArgumentException("embedding must have " + dimensions + " dimensions");
+        }
+
+        List<HnswIndex.Match> matches = vectorIndexManager.search(userId, request.embedding(), k, request.sessionId());
+        Map<UUID, ChatMessage> messages = chatMessageRepository
+                .findByIdInAndSessionUserId(matches.stream().map(HnswIndex.Match::messageId).toList(), userId)
+                .stream()
+                .collect(Collectors.toMap(ChatMessage::getId, Function.identity()));
+
+        List<SimilarMessageHit> items = new ArrayList<>(matches.size());
+        for (HnswIndex.Match match : matches) {
+            ChatMessage message = messages.get(match.messageId());
+            if (message == null) {
+                // Deleted by another node since this index last saw it.
+                vectorIndexManager.removeMessage(userId, match.messageId());
+                continue;
+            }
+            items.add(new SimilarMessageHit(message.getId(), match.sessionId(), message.getSender(),
+                    message.getContent(), message.getCreatedAt(), match.score()));
+        }
+        return new SimilarMessagesResponse(items);
+    }
+
+    // The database holds every embedding; the local index only needs whatever was written since its watermark,
+    // which covers writes handled by other nodes and a cold or lost index directory.
+    void catchUp(String userId) {
+        Instant watermark = vectorIndexManager.watermark(userId);
+        Instant since = watermark == null ? Instant.EPOCH : watermark.minus(CATCH_UP_OVERLAP);
+        UUID afterId = MIN_UUID;
+        while (true) {
+            Slice<MessageEmbedding> batch = messageEmbeddingRepository.findForUserAfter(
+                    userId, since, afterId, PageRequest.of(0, CATCH_UP_BATCH));
+            int dimensions = vectorIndexManager.dimensions(userId);
+            for (MessageEmbedding row : batch) {
+                if ((dimensions < 0 || row.getDimensions() == dimensions)
+                        && !vectorIndexManager.contains(userId, row.getId())) {
+                    vectorIndexManager.add(userId, row.getId(), row.getSessionId(), row.getCreatedAt(),
+                            VectorCodec.fromBytes(row.getVector()));
+                    dimensions = row.getDimensions();
+                }
+                since = row.getCreatedAt();
+                afterId = row.getId();
+            }
+            if (!batch.hasNext()) {
+                return;
+            }
+        }
+    }
+}
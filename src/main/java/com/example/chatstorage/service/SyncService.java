@@ -0,0 +1,89 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.dto.sync.SyncResponse;
+import com.example.chatstorage.entity.SyncChange;
+import com.example.chatstorage.repository.SyncChangeRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+// Delta sync for offline clients: everything of the user that changed after the client's token, as current state
+// plus tombstones. Tokens only grow per user and are given to committed changes only, so a client resumes exactly
+// where it stopped however late a slow transaction commits.
+@Service
+public class SyncService {
+
+    private final SyncChangeRepository syncChangeRepository;
+    private final ChatSessionService chatSessionService;
+    private final ChatMessageService chatMessageService;
+    private final AppProperties appProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    public SyncService(SyncChangeRepository syncChangeRepository,
+                       ChatSessionService chatSessionService,
+                       ChatMessageService chatMessageService,
+                       AppProperties appProperties,
+                       PlatformTransactionManager transactionManager) {
+        this.syncChangeRepository = syncChangeRepository;
+        this.chatSessionService = chatSessionService;
+        this.chatMessageService = chatMessageService;
+        this.appProperties = appProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public SyncResponse changes(String userId, Long since, int limit) {
+        int max = appProperties.getSync().getMaxChanges();
+        if (limit < 1 || limit > max) {
+            throw new IllegalArgumentException("limit must be between 1 and " + max);
+        }
+        if (since != null && since < 0) {
+            throw new IllegalArgumentException("since must not be negative");
+        }
+        // Its own short transaction, so the cursor lock is released before the changes are loaded.
+        int batchSize = Math.max(1, appProperties.getSync().getTokenBatchSize());
+        SyncChangeRepository.Tokens tokens = transactionTemplate.execute(
+                status -> syncChangeRepository.assignTokens(userId, batchSize));
+        // Without a token the client is about to download the full history; it syncs from this token afterwards.
+        if (since == null) {
+            return new SyncResponse(tokens.last(), false, List.of(), List.of(), List.of());
+        }
+
+        List<SyncChangeRepository.Change> changes = syncChangeRepository.findAfter(userId, since, limit + 1);
+        // Committed changes left without a token this time are picked up by the next call.
+        boolean hasMore = changes.size() > limit || tokens.more();
+        if (changes.size() > limit) {
+            changes = changes.subList(0, limit);
+        }
+        if (changes.isEmpty()) {
+            return new SyncResponse(since, hasMore, List.of(), List.of(), List.of());
+        }
+
+        Set<UUID> deleted = new LinkedHashSet<>();
+        for (SyncChangeRepository.Change change : changes) {
+            if (change.type() == SyncChange.Type.SESSION_DELETED) {
+                deleted.add(change.sessionId());
+            }
+        }
+        // Several changes to one session or message collapse into its current state.
+        Set<UUID> sessionIds = new LinkedHashSet<>();
+        Set<UUID> messageIds = new LinkedHashSet<>();
+        for (SyncChangeRepository.Change change : changes) {
+            if (change.type() == SyncChange.Type.SESSION_DELETED || deleted.contains(change.sessionId())) {
+                continue;
+            }
+            sessionIds.add(change.sessionId());
+            if (change.type() == SyncChange.Type.MESSAGE) {
+                messageIds.add(change.messageId());
+            }
+        }
+        long nextToken = changes.get(changes.size() - 1).token();
+        return new SyncResponse(nextToken, hasMore, chatSessionService.getSessions(sessionIds, userId),
+                chatMessageService.getMessages(messageIds, userId), List.copyOf(deleted));
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.chatstorage.sharding;
+
+import java.util.function.Supplier;
+
+public final class ShardContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    public static void set(String shardName) {
+        CURRENT.set(shardName);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    public static <T> T callOn(String shardName, Supplier<T> action) {
+        String previous = CURRENT.get();
+        CURRENT.set(shardName);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public static void runOn(String shardName, Runnable action) {
+        callOn(shardName, () -> {
+            action.run();
+            return null;
+        });
+    }
+}
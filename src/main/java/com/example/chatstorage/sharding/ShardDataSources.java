@@ -0,0 +1,35 @@
+package com.example.chatstorage.sharding;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class ShardDataSources implements AutoCloseable {
+
+    private final Map<String, DataSource> dataSources;
+
+    public ShardDataSources(Map<String, DataSource> dataSources) {
+        this.dataSources = new LinkedHashMap<>(dataSources);
+    }
+
+    public DataSource get(String shardName) {
+        DataSource dataSource = dataSources.get(shardName);
+        if (dataSource == null) {
+            throw new IllegalArgumentException("Unknown shard: " + shardName);
+        }
+        return dataSource;
+    }
+
+    public Map<String, DataSource> asMap() {
+        return Map.copyOf(dataSources);
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (DataSource dataSource : dataSources.values()) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.chatstorage.sharding;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ShardRouter {
+
+    private final List<String> shardNames;
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+    private volatile Map<String, ShardAssignment> assignments = Map.of();
+    private final Set<String> localMigrations = ConcurrentHashMap.newKeySet();
+    // Writes register before they check isMigrating and leave once they are done, so after loading a new directory
+    // a node knows which writes may still be running on what it knew before: those up to writeMark().
+    private final AtomicLong writeSequence = new AtomicLong();
+    private final ConcurrentSkipListSet<Long> openWrites = new ConcurrentSkipListSet<>();
+
+    public ShardRouter(List<String> shardNames, int virtualNodes) {
+        if (shardNames == null || shardNames.isEmpty()) {
+            throw new IllegalStateException("At least one shard must be configured when sharding is enabled");
+        }
+        this.shardNames = List.copyOf(shardNames);
+        int nodesPerShard = Math.max(1, virtualNodes);
+        for (String shardName : this.shardNames) {
+            for (int i = 0; i < nodesPerShard; i++) {
+                ring.put(hash(shardName + "#" + i), shardName);
+            }
+        }
+    }
+
+    public String shardFor(String userId) {
+        ShardAssignment assignment = assignments.get(userId);
+        if (assignment != null) {
+            return assignment.shardName();
+        }
+        return ringShardFor(userId);
+    }
+
+    public String ringShardFor(String userId) {
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(userId));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    public boolean isMigrating(String userId) {
+        if (localMigrations.contains(userId)) {
+            return true;
+        }
+        ShardAssignment assignment = assignments.get(userId);
+        return assignment != null && assignment.migrating();
+    }
+
+    public String defaultShard() {
+        return shardNames.get(0);
+    }
+
+    public List<String> shardNames() {
+        return shardNames;
+    }
+
+    public boolean hasShard(String shardName) {
+        return shardNames.contains(shardName);
+    }
+
+    public void replaceAssignments(Map<String, ShardAssignment> latest) {
+        this.assignments = Map.copyOf(latest);
+    }
+
+    public void markMigrating(String userId) {
+        localMigrations.add(userId);
+    }
+
+    public void completeMigration(String userId, String shardName) {
+        Map<String, ShardAssignment> updated = new HashMap<>(assignments);
+        updated.put(userId, new ShardAssignment(shardName, false));
+        this.assignments = Map.copyOf(updated);
+        localMigrations.remove(userId);
+    }
+
+    public void abortMigration(String userId) {
+        localMigrations.remove(userId);
+    }
+
+    public long beginWrite() {
+        long ticket = writeSequence.incrementAndGet();
+        openWrites.add(ticket);
+        return ticket;
+    }
+
+    public void endWrite(long ticket) {
+        openWrites.remove(ticket);
+    }
+
+    public long writeMark() {
+        return writeSequence.get();
+    }
+
+    // True once every write that began up to mark has ended.
+    public boolean writesDrained(long mark) {
+        Long oldest = openWrites.ceiling(Long.MIN_VALUE);
+        return oldest == null || oldest > mark;
+    }
+
+    private long hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            long result = 0;
+            for (int i = 0; i < 8; i++) {
+                result = (result << 8) | (digest[i] & 0xFF);
+            }
+            return result;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 algorithm not available", e);
+        }
+    }
+
+    public record ShardAssignment(String shardName, boolean migrating) {
+    }
+}
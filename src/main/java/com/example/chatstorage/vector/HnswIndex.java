@@ -0,0 +1,559 @@
+package com.example.chatstorage.vector;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Hierarchical navigable small world graph (Malkov & Yashunin) over unit vectors; distance is 1 - cosine.
+// Vectors and node metadata live in a MappedVectorStore; the adjacency lists are kept on heap and
+// snapshotted to graph.bin. Nodes appended after the last snapshot are re-linked when the index is opened.
+public final class HnswIndex implements AutoCloseable {
+
+    private static final int GRAPH_MAGIC = 0x484E5357;
+    private static final int MAX_LEVEL = 16;
+
+    private final MappedVectorStore store;
+    private final Path graphFile;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int[][][] links = new int[0][][];
+    private int entryPoint = -1;
+    private int topLevel = -1;
+    private final Map<UUID, Integer> slotByMessage = new HashMap<>();
+    private final Map<UUID, List<Integer>> slotsBySession = new HashMap<>();
+    private int deletedCount;
+    private long maxCreatedAtMicros = Long.MIN_VALUE;
+    private boolean dirty;
+    private boolean closed;
+
+    private HnswIndex(MappedVectorStore store, Path graphFile, Parameters parameters) {
+        this.store = store;
+        this.graphFile = graphFile;
+        this.m = Math.max(2, parameters.m());
+        this.maxM0 = this.m * 2;
+        this.efConstruction = Math.max(this.m, parameters.efConstruction());
+        this.levelMultiplier = 1 / Math.log(this.m);
+        this.random = new Random(parameters.seed());
+    }
+
+    // Returns null when nothing is stored yet and dimensionsIfNew is not positive.
+    public static HnswIndex open(Path directory, int dimensionsIfNew, Parameters parameters) throws IOException {
+        MappedVectorStore store = MappedVectorStore.open(directory, dimensionsIfNew);
+        if (store == null) {
+            return null;
+        }
+        HnswIndex index = new HnswIndex(store, directory.resolve("graph.bin"), parameters);
+        index.load();
+        return index;
+    }
+
+    public int dimensions() {
+        return store.dimensions();
+    }
+
+    public boolean isClosed() {
+        lock.readLock().lock();
+        try {
+            return closed;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotByMessage.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(UUID messageId) {
+        lock.readLock().lock();
+        try {
+            return slotByMessage.containsKey(messageId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Newest createdAt ever indexed, including deleted nodes; null when empty.
+    public Instant watermark() {
+        lock.readLock().lock();
+        try {
+            return maxCreatedAtMicros == Long.MIN_VALUE ? null : Instant.EPOCH.plus(maxCreatedAtMicros, ChronoUnit.MICROS);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean add(UUID messageId, UUID sessionId, Instant createdAt, float[] vector) {
+        if (vector.length != store.dimensions()) {
+            throw new IllegalArgumentException("embedding must have " + store.dimensions() + " dimensions");
+        }
+        float[] normalized = VectorCodec.normalize(vector);
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            if (slotByMessage.containsKey(messageId)) {
+                return false;
+            }
+            long micros = ChronoUnit.MICROS.between(Instant.EPOCH, createdAt);
+            int slot = store.append(messageId, sessionId, micros, normalized);
+            track(slot, messageId, sessionId, micros);
+            link(slot, normalized);
+            dirty = true;
+            return true;
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int removeSession(UUID sessionId) {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            List<Integer> slots = slotsBySession.remove(sessionId);
+            if (slots == null) {
+                return 0;
+            }
+            for (int slot : slots) {
+                delete(slot);
+            }
+            return slots.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(UUID messageId) {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            Integer slot = slotByMessage.get(messageId);
+            if (slot == null) {
+                return false;
+            }
+            List<Integer> sessionSlots = slotsBySession.get(store.sessionId(slot));
+            if (sessionSlots != null) {
+                sessionSlots.remove(slot);
+            }
+            delete(slot);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Match> search(float[] query, int k, int ef, UUID sessionId) {
+        if (query.length != store.dimensions()) {
+            throw new IllegalArgumentException("embedding must have " + store.dimensions() + " dimensions");
+        }
+        float[] normalized = VectorCodec.normalize(query);
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            if (sessionId != null) {
+                // A session holds few messages; an exact scan beats filtering graph results.
+                return exactSearch(normalized, k, slotsBySession.getOrDefault(sessionId, List.of()));
+            }
+            if (entryPoint < 0) {
+                return List.of();
+            }
+            int current = entryPoint;
+            for (int level = topLevel; level > 0; level--) {
+                current = greedyClosest(normalized, current, level);
+            }
+            // Deleted nodes still route the search, so widen the beam by the share they may occupy.
+            int width = Math.max(ef, k);
+            width += Math.min(deletedCount, width);
+            List<Long> nearest = searchLayer(normalized, List.of(current), width, 0);
+            List<Match> matches = new ArrayList<>(k);
+            for (long candidate : nearest) {
+                int slot = slotOf(candidate);
+                if (store.isDeleted(slot)) {
+                    continue;
+                }
+                matches.add(match(slot, 1 - distanceOf(candidate)));
+                if (matches.size() == k) {
+                    break;
+                }
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void flush() {
+        lock.readLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            store.force();
+            if (dirty) {
+                writeGraph();
+                dirty = false;
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            if (dirty) {
+                writeGraph();
+                dirty = false;
+            }
+            store.close();
+            closed = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Vector index is closed");
+        }
+    }
+
+    private void track(int slot, UUID messageId, UUID sessionId, long createdAtMicros) {
+        slotByMessage.put(messageId, slot);
+        slotsBySession.computeIfAbsent(sessionId, ignored -> new ArrayList<>()).add(slot);
+        maxCreatedAtMicros = Math.max(maxCreatedAtMicros, createdAtMicros);
+    }
+
+    private void delete(int slot) {
+        if (store.isDeleted(slot)) {
+            return;
+        }
+        store.markDeleted(slot);
+        slotByMessage.remove(store.messageId(slot));
+        deletedCount++;
+        dirty = true;
+    }
+
+    private List<Match> exactSearch(float[] query, int k, List<Integer> slots) {
+        List<Match> matches = new ArrayList<>(slots.size());
+        for (int slot : slots) {
+            if (!store.isDeleted(slot)) {
+                matches.add(match(slot, store.dot(slot, query)));
+            }
+        }
+        matches.sort(Comparator.comparingDouble(Match::score).reversed());
+        return matches.size() > k ? new ArrayList<>(matches.subList(0, k)) : matches;
+    }
+
+    private Match match(int slot, float score) {
+        return new Match(store.messageId(slot), store.sessionId(slot), score);
+    }
+
+    private void link(int slot, float[] vector) {
+        int level = randomLevel();
+        ensureLinkCapacity(slot + 1);
+        links[slot] = new int[level + 1][];
+        for (int i = 0; i <= level; i++) {
+            links[slot][i] = new int[0];
+        }
+        if (entryPoint < 0) {
+            entryPoint = slot;
+            topLevel = level;
+            return;
+        }
+
+        int current = entryPoint;
+        for (int layer = topLevel; layer > level; layer--) {
+            current = greedyClosest(vector, current, layer);
+        }
+        List<Integer> entryPoints = List.of(current);
+        for (int layer = Math.min(level, topLevel); layer >= 0; layer--) {
+            List<Long> candidates = searchLayer(vector, entryPoints, efConstruction, layer);
+            int[] neighbours = selectNeighbours(candidates, m);
+            links[slot][layer] = neighbours;
+            int maxLinks = layer == 0 ? maxM0 : m;
+            for (int neighbour : neighbours) {
+                connect(neighbour, slot, layer, maxLinks);
+            }
+            entryPoints = new ArrayList<>(candidates.size());
+            for (long candidate : candidates) {
+                entryPoints.add(slotOf(candidate));
+            }
+        }
+        if (level > topLevel) {
+            topLevel = level;
+            entryPoint = slot;
+        }
+    }
+
+    private void connect(int from, int to, int layer, int maxLinks) {
+        int[] existing = links[from][layer];
+        int[] grown = Arrays.copyOf(existing, existing.length + 1);
+        grown[existing.length] = to;
+        if (grown.length <= maxLinks) {
+            links[from][layer] = grown;
+            return;
+        }
+        // Over capacity: re-select the neighbour set of `from` with the same diversity heuristic.
+        List<Long> candidates = new ArrayList<>(grown.length);
+        for (int candidate : grown) {
+            candidates.add(pack(1 - store.dot(from, candidate), candidate));
+        }
+        Collections.sort(candidates);
+        links[from][layer] = selectNeighbours(candidates, maxLinks);
+    }
+
+    // Keeps a candidate only if it is closer to the base than to every neighbour already kept,
+    // then tops up with the closest leftovers so sparse regions stay connected.
+    private int[] selectNeighbours(List<Long> sortedCandidates, int limit) {
+        int[] selected = new int[Math.min(limit, sortedCandidates.size())];
+        int count = 0;
+        List<Long> skipped = new ArrayList<>();
+        for (long candidate : sortedCandidates) {
+            if (count == selected.length) {
+                break;
+            }
+            int slot = slotOf(candidate);
+            float distance = distanceOf(candidate);
+            boolean diverse = true;
+            for (int i = 0; i < count; i++) {
+                if (1 - store.dot(slot, selected[i]) < distance) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[count++] = slot;
+            } else {
+                skipped.add(candidate);
+            }
+        }
+        for (int i = 0; i < skipped.size() && count < selected.length; i++) {
+            selected[count++] = slotOf(skipped.get(i));
+        }
+        return count == selected.length ? selected : Arrays.copyOf(selected, count);
+    }
+
+    private int greedyClosest(float[] query, int start, int layer) {
+        int current = start;
+        float best = 1 - store.dot(current, query);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbours = links[current].length > layer ? links[current][layer] : new int[0];
+            for (int neighbour : neighbours) {
+                float distance = 1 - store.dot(neighbour, query);
+                if (distance < best) {
+                    best = distance;
+                    current = neighbour;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    // Returns up to ef (distance, slot) pairs, closest first.
+    private List<Long> searchLayer(float[] query, List<Integer> entryPoints, int ef, int layer) {
+        BitSet visited = new BitSet(store.count());
+        PriorityQueue<Long> candidates = new PriorityQueue<>();
+        PriorityQueue<Long> results = new PriorityQueue<>(Comparator.reverseOrder());
+        for (int entry : entryPoints) {
+            if (visited.get(entry)) {
+                continue;
+            }
+            visited.set(entry);
+            long packed = pack(1 - store.dot(entry, query), entry);
+            candidates.add(packed);
+            results.add(packed);
+            if (results.size() > ef) {
+                results.poll();
+            }
+        }
+        while (!candidates.isEmpty()) {
+            long closest = candidates.poll();
+            if (results.size() >= ef && distanceOf(closest) > distanceOf(results.peek())) {
+                break;
+            }
+            int[][] nodeLinks = links[slotOf(closest)];
+            if (nodeLinks.length <= layer) {
+                continue;
+            }
+            for (int neighbour : nodeLinks[layer]) {
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float distance = 1 - store.dot(neighbour, query);
+                if (results.size() < ef || distance < distanceOf(results.peek())) {
+                    long packed = pack(distance, neighbour);
+                    candidates.add(packed);
+                    results.add(packed);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        List<Long> ordered = new ArrayList<>(results);
+        Collections.sort(ordered);
+        return ordered;
+    }
+
+    private int randomLevel() {
+        double uniform = 1 - random.nextDouble();
+        return Math.min(MAX_LEVEL, (int) Math.floor(-Math.log(uniform) * levelMultiplier));
+    }
+
+    private void ensureLinkCapacity(int size) {
+        if (links.length < size) {
+            links = Arrays.copyOf(links, Math.max(size, links.length * 2 + 16));
+        }
+    }
+
+    // Distances are non-negative after clamping, so the IEEE bit pattern sorts like the value.
+    private static long pack(float distance, int slot) {
+        return ((long) Float.floatToIntBits(Math.max(0f, distance)) << 32) | (slot & 0xFFFFFFFFL);
+    }
+
+    private static float distanceOf(long packed) {
+        return Float.intBitsToFloat((int) (packed >>> 32));
+    }
+
+    private static int slotOf(long packed) {
+        return (int) packed;
+    }
+
+    private void load() throws IOException {
+        int count = store.count();
+        for (int slot = 0; slot < count; slot++) {
+            long micros = store.createdAtMicros(slot);
+            maxCreatedAtMicros = Math.max(maxCreatedAtMicros, micros);
+            if (store.isDeleted(slot)) {
+                deletedCount++;
+                continue;
+            }
+            UUID messageId = store.messageId(slot);
+            slotByMessage.put(messageId, slot);
+            slotsBySession.computeIfAbsent(store.sessionId(slot), ignored -> new ArrayList<>()).add(slot);
+        }
+        int linked = readGraph(count);
+        for (int slot = linked; slot < count; slot++) {
+            link(slot, store.vector(slot));
+            dirty = true;
+        }
+    }
+
+    private int readGraph(int storedCount) {
+        if (!Files.exists(graphFile)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(graphFile, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != GRAPH_MAGIC) {
+                return 0;
+            }
+            int count = buffer.getInt();
+            if (count > storedCount) {
+                return 0;
+            }
+            int storedEntryPoint = buffer.getInt();
+            int storedTopLevel = buffer.getInt();
+            int[][][] loaded = new int[Math.max(count, 16)][][];
+            for (int slot = 0; slot < count; slot++) {
+                int levels = buffer.getInt();
+                loaded[slot] = new int[levels][];
+                for (int level = 0; level < levels; level++) {
+                    int[] neighbours = new int[buffer.getInt()];
+                    for (int i = 0; i < neighbours.length; i++) {
+                        neighbours[i] = buffer.getInt();
+                    }
+                    loaded[slot][level] = neighbours;
+                }
+            }
+            links = loaded;
+            entryPoint = storedEntryPoint;
+            topLevel = storedTopLevel;
+            return count;
+        } catch (IOException | RuntimeException exception) {
+            // A torn or stale snapshot is rebuilt from the vectors.
+            links = new int[0][][];
+            entryPoint = -1;
+            topLevel = -1;
+            return 0;
+        }
+    }
+
+    private void writeGraph() throws IOException {
+        int count = store.count();
+        long size = 16;
+        for (int slot = 0; slot < count; slot++) {
+            size += 4;
+            for (int[] level : links[slot]) {
+                size += 4 + (long) level.length * 4;
+            }
+        }
+        Path temporary = graphFile.resolveSibling(graphFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(GRAPH_MAGIC).putInt(count).putInt(entryPoint).putInt(topLevel);
+            for (int slot = 0; slot < count; slot++) {
+                buffer.putInt(links[slot].length);
+                for (int[] level : links[slot]) {
+                    buffer.putInt(level.length);
+                    for (int neighbour : level) {
+                        buffer.putInt(neighbour);
+                    }
+                }
+            }
+            buffer.force();
+        }
+        Files.move(temporary, graphFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public record Match(UUID messageId, UUID sessionId, float score) {
+    }
+
+    public record Parameters(int m, int efConstruction, long seed) {
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.chatstorage.vector;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+// Append-only node metadata and vectors in two memory-mapped files; slot i is the i-th appended vector.
+final class MappedVectorStore implements AutoCloseable {
+
+    private static final int MAGIC = 0x43535631;
+    private static final int HEADER_BYTES = 64;
+    private static final int DIMENSIONS_OFFSET = 4;
+    private static final int COUNT_OFFSET = 8;
+    // messageId (16) + sessionId (16) + createdAt micros (8) + deleted flag (1), padded.
+    private static final int NODE_BYTES = 48;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final FileChannel nodesChannel;
+    private final FileChannel vectorsChannel;
+    private final int dimensions;
+    private final int vectorBytes;
+    private MappedByteBuffer nodes;
+    private MappedByteBuffer vectors;
+    // Float view of the same mapping; avoids per-element byte-order handling in the distance loops.
+    private FloatBuffer floats;
+    private int capacity;
+    private int count;
+
+    private MappedVectorStore(FileChannel nodesChannel, FileChannel vectorsChannel, int dimensions, int capacity, int count)
+            throws IOException {
+        this.nodesChannel = nodesChannel;
+        this.vectorsChannel = vectorsChannel;
+        this.dimensions = dimensions;
+        this.vectorBytes = dimensions * Float.BYTES;
+        this.count = count;
+        map(capacity);
+    }
+
+    // Returns null when no store exists and dimensionsIfNew is not positive.
+    static MappedVectorStore open(Path directory, int dimensionsIfNew) throws IOException {
+        Path nodesFile = directory.resolve("nodes.bin");
+        Path vectorsFile = directory.resolve("vectors.f32");
+        boolean exists = Files.exists(nodesFile) && Files.size(nodesFile) >= HEADER_BYTES;
+        if (!exists && dimensionsIfNew <= 0) {
+            return null;
+        }
+        Files.createDirectories(directory);
+        FileChannel nodesChannel = FileChannel.open(nodesFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel vectorsChannel = FileChannel.open(vectorsFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (!exists) {
+                MappedVectorStore store = new MappedVectorStore(nodesChannel, vectorsChannel, dimensionsIfNew, INITIAL_CAPACITY, 0);
+                store.nodes.putInt(0, MAGIC);
+                store.nodes.putInt(DIMENSIONS_OFFSET, dimensionsIfNew);
+                store.nodes.putInt(COUNT_OFFSET, 0);
+                return store;
+            }
+            MappedByteBuffer header = nodesChannel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a vector store: " + nodesFile);
+            }
+            int dimensions = header.getInt(DIMENSIONS_OFFSET);
+            int count = header.getInt(COUNT_OFFSET);
+            int capacity = (int) Math.max(INITIAL_CAPACITY, (nodesChannel.size() - HEADER_BYTES) / NODE_BYTES);
+            return new MappedVectorStore(nodesChannel, vectorsChannel, dimensions, Math.max(capacity, count), count);
+        } catch (IOException | RuntimeException exception) {
+            nodesChannel.close();
+            vectorsChannel.close();
+            throw exception;
+        }
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    int count() {
+        return count;
+    }
+
+    int append(UUID messageId, UUID sessionId, long createdAtMicros, float[] vector) throws IOException {
+        if (count == capacity) {
+            long next = Math.min((long) capacity * 2, maxCapacity());
+            if (next <= capacity) {
+                throw new IllegalStateException("Vector store is full");
+            }
+            map((int) next);
+        }
+        int slot = count;
+        int node = nodeOffset(slot);
+        nodes.putLong(node, messageId.getMostSignificantBits());
+        nodes.putLong(node + 8, messageId.getLeastSignificantBits());
+        nodes.putLong(node + 16, sessionId.getMostSignificantBits());
+        nodes.putLong(node + 24, sessionId.getLeastSignificantBits());
+        nodes.putLong(node + 32, createdAtMicros);
+        nodes.put(node + 40, (byte) 0);
+        floats.put(slot * dimensions, vector);
+        // The count is published last so a crash mid-append never exposes a half-written slot.
+        count++;
+        nodes.putInt(COUNT_OFFSET, count);
+        return slot;
+    }
+
+    UUID messageId(int slot) {
+        int node = nodeOffset(slot);
+        return new UUID(nodes.getLong(node), nodes.getLong(node + 8));
+    }
+
+    UUID sessionId(int slot) {
+        int node = nodeOffset(slot);
+        return new UUID(nodes.getLong(node + 16), nodes.getLong(node + 24));
+    }
+
+    long createdAtMicros(int slot) {
+        return nodes.getLong(nodeOffset(slot) + 32);
+    }
+
+    boolean isDeleted(int slot) {
+        return nodes.get(nodeOffset(slot) + 40) != 0;
+    }
+
+    void markDeleted(int slot) {
+        nodes.put(nodeOffset(slot) + 40, (byte) 1);
+    }
+
+    float[] vector(int slot) {
+        float[] vector = new float[dimensions];
+        floats.get(slot * dimensions, vector);
+        return vector;
+    }
+
+    float dot(int slot, float[] query) {
+        int base = slot * dimensions;
+        float sum = 0;
+        for (int i = 0; i < dimensions; i++) {
+            sum += floats.get(base + i) * query[i];
+        }
+        return sum;
+    }
+
+    float dot(int left, int right) {
+        int leftBase = left * dimensions;
+        int rightBase = right * dimensions;
+        float sum = 0;
+        for (int i = 0; i < dimensions; i++) {
+            sum += floats.get(leftBase + i) * floats.get(rightBase + i);
+        }
+        return sum;
+    }
+
+    void force() {
+        nodes.force();
+        vectors.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        nodesChannel.close();
+        vectorsChannel.close();
+    }
+
+    private void map(int newCapacity) throws IOException {
+        if (newCapacity > maxCapacity()) {
+            throw new IllegalStateException("Vector store is full");
+        }
+        long vectorsSize = (long) newCapacity * vectorBytes;
+        // Mapping past the end of the file grows it.
+        nodes = nodesChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) newCapacity * NODE_BYTES);
+        nodes.order(ByteOrder.LITTLE_ENDIAN);
+        vectors = vectorsChannel.map(FileChannel.MapMode.READ_WRITE, 0, vectorsSize);
+        vectors.order(ByteOrder.LITTLE_ENDIAN);
+        floats = vectors.asFloatBuffer();
+        capacity = newCapacity;
+    }
+
+    // Each mapping is a single MappedByteBuffer, so both files must stay below 2 GiB.
+    private long maxCapacity() {
+        return (Integer.MAX_VALUE - HEADER_BYTES) / Math.max(vectorBytes, NODE_BYTES);
+    }
+
+    private int nodeOffset(int slot) {
+        return HEADER_BYTES + slot * NODE_BYTES;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.chatstorage.vector;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public final class VectorCodec {
+
+    private VectorCodec() {
+    }
+
+    // Little-endian float32, 4 bytes per dimension, no header.
+    public static byte[] toBytes(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    public static float[] fromBytes(byte[] bytes) {
+        float[] vector = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+        return vector;
+    }
+
+    public static void validate(float[] vector, int maxDimensions) {
+        if (vector == null || vector.length == 0) {
+            throw new IllegalArgumentException("embedding must not be empty");
+        }
+        if (vector.length > maxDimensions) {
+            throw new IllegalArgumentException("embedding must have at most " + maxDimensions + " dimensions");
+        }
+        double norm = 0;
+        for (float value : vector) {
+            if (!Float.isFinite(value)) {
+                throw new IllegalArgumentException("embedding must contain only finite numbers");
+            }
+            norm += value * value;
+        }
+        if (norm == 0) {
+            throw new IllegalArgumentException("embedding must not be the zero vector");
+        }
+    }
+
+    // Unit length, so cosine similarity is a plain dot product.
+    public static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.chatstorage.vector;
+
+import com.example.chatstorage.config.AppProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+// One HNSW index per user under dataDir, opened lazily and kept in a small LRU of open indexes.
+@Component
+public class VectorIndexManager {
+
+    private static final Logger log = LoggerFactory.getLogger(VectorIndexManager.class);
+
+    private final AppProperties appProperties;
+    private final Map<String, HnswIndex> open = new LinkedHashMap<>(16, 0.75f, true);
+    // Opening an index maps files while holding this; a monitor would pin the carrier of a virtual thread.
+    private final ReentrantLock openLock = new ReentrantLock();
+
+    public VectorIndexManager(AppProperties appProperties) {
+        this.appProperties = appProperties;
+    }
+
+    public boolean isEnabled() {
+        return appProperties.getVectorIndex().isEnabled();
+    }
+
+    public int maxDimensions() {
+        return appProperties.getVectorIndex().getMaxDimensions();
+    }
+
+    // -1 when the user has no local index yet.
+    public int dimensions(String userId) {
+        HnswIndex index = acquire(userId, 0);
+        return index == null ? -1 : index.dimensions();
+    }
+
+    public boolean add(String userId, UUID messageId, UUID sessionId, Instant createdAt, float[] vector) {
+        Boolean added = withIndex(userId, vector.length, index -> index.add(messageId, sessionId, createdAt, vector));
+        return Boolean.TRUE.equals(added);
+    }
+
+    public int removeSession(String userId, UUID sessionId) {
+        Integer removed = withIndex(userId, 0, index -> index.removeSession(sessionId));
+        return removed == null ? 0 : removed;
+    }
+
+    public boolean removeMessage(String userId, UUID messageId) {
+        return Boolean.TRUE.equals(withIndex(userId, 0, index -> index.remove(messageId)));
+    }
+
+    public List<HnswIndex.Match> search(String userId, float[] query, int k, UUID sessionId) {
+        int ef = Math.max(k, appProperties.getVectorIndex().getEfSearch());
+        List<HnswIndex.Match> matches = withIndex(userId, 0, index -> index.search(query, k, ef, sessionId));
+        return matches == null ? List.of() : matches;
+    }
+
+    public Instant watermark(String userId) {
+        return withIndex(userId, 0, HnswIndex::watermark);
+    }
+
+    public boolean contains(String userId, UUID messageId) {
+        return Boolean.TRUE.equals(withIndex(userId, 0, index -> index.contains(messageId)));
+    }
+
+    @Scheduled(fixedDelayString = "${app.vector-index.flush-interval-millis:30000}")
+    public void flush() {
+        for (HnswIndex index : snapshot()) {
+            try {
+                index.flush();
+            } catch (RuntimeException exception) {
+                log.warn("Failed to flush vector index", exception);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        List<HnswIndex> indexes;
+        openLock.lock();
+        try {
+            indexes = new ArrayList<>(open.values());
+            open.clear();
+        } finally {
+            openLock.unlock();
+        }
+        indexes.forEach(this::closeQuietly);
+    }
+
+    // An index evicted from the LRU by another thread is closed underneath us; reopen and retry once.
+    private <T> T withIndex(String userId, int dimensionsIfNew, Function<HnswIndex, T> action) {
+        for (int attempt = 0; ; attempt++) {
+            HnswIndex index = acquire(userId, dimensionsIfNew);
+            if (index == null) {
+                return null;
+            }
+            try {
+                return action.apply(index);
+            } catch (IllegalStateException exception) {
+                if (attempt > 0 || !index.isClosed()) {
+                    throw exception;
+                }
+            }
+        }
+    }
+
+    private HnswIndex acquire(String userId, int dimensionsIfNew) {
+        if (!isEnabled()) {
+            return null;
+        }
+        HnswIndex evicted = null;
+        HnswIndex index;
+        openLock.lock();
+        try {
+            index = open.get(userId);
+            if (index == null) {
+                index = openIndex(userId, dimensionsIfNew);
+                if (index == null) {
+                    return null;
+                }
+                open.put(userId, index);
+                if (open.size() > Math.max(1, appProperties.getVectorIndex().getMaxOpenIndexes())) {
+                    Map.Entry<String, HnswIndex> eldest = open.entrySet().iterator().next();
+                    evicted = eldest.getValue();
+                    open.remove(eldest.getKey());
+                }
+            }
+        } finally {
+            openLock.unlock();
+        }
+        if (evicted != null) {
+            closeQuietly(evicted);
+        }
+        return index;
+    }
+
+    private HnswIndex openIndex(String userId, int dimensionsIfNew) {
+        AppProperties.VectorIndex properties = appProperties.getVectorIndex();
+        try {
+            return HnswIndex.open(directory(userId), dimensionsIfNew,
+                    new HnswIndex.Parameters(properties.getM(), properties.getEfConstruction(), userId.hashCode()));
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Failed to open vector index", exception);
+        }
+    }
+
+    // Hashing keeps arbitrary user ids out of the filesystem namespace.
+    Path directory(String userId) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(userId.getBytes(StandardCharsets.UTF_8));
+            return Path.of(appProperties.getVectorIndex().getDataDir()).resolve(HexFormat.of().formatHex(digest));
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private List<HnswIndex> snapshot() {
+        openLock.lock();
+        try {
+            return new ArrayList<>(open.values());
+        } finally {
+            openLock.unlock();
+        }
+    }
+
+    private void closeQuietly(HnswIndex index) {
+        try {
+            index.close();
+        } catch (IOException | RuntimeException exception) {
+            log.warn("Failed to close vector index", exception);
+        }
+    }
+}
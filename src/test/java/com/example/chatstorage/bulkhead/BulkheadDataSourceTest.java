@@ -0,0 +1,71 @@
+package com.example.chatstorage.bulkhead;
+
+import com.example.chatstorage.exception.BulkheadFullException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BulkheadDataSourceTest {
+
+    @Mock
+    private DataSource target;
+
+    @AfterEach
+    void tearDown() {
+        BulkheadContext.clear();
+    }
+
+    @Test
+    void shouldPassThroughWithoutBulkheadContext() throws Exception {
+        Connection connection = mock(Connection.class);
+        when(target.getConnection()).thenReturn(connection);
+
+        assertSame(connection, new BulkheadDataSource(target).getConnection());
+    }
+
+    @Test
+    void shouldHoldConnectionPermitUntilClose() throws Exception {
+        Connection connection = mock(Connection.class);
+        when(target.getConnection()).thenReturn(connection);
+        Bulkhead bulkhead = new Bulkhead(RequestClass.READS, 10, 1, 0);
+        BulkheadContext.set(bulkhead);
+        BulkheadDataSource dataSource = new BulkheadDataSource(target);
+
+        Connection first = dataSource.getConnection();
+        assertEquals(1, bulkhead.activeConnections());
+        // Budget of one: a second concurrent connection for the same class is refused.
+        assertThrows(BulkheadFullException.class, dataSource::getConnection);
+
+        first.close();
+        first.close();
+
+        verify(connection, times(2)).close();
+        assertEquals(0, bulkhead.activeConnections());
+        assertEquals(1, bulkhead.rejectedConnections());
+    }
+
+    @Test
+    void shouldReleasePermitWhenPoolFails() throws Exception {
+        when(target.getConnection()).thenThrow(new SQLException("pool exhausted"));
+        Bulkhead bulkhead = new Bulkhead(RequestClass.WRITES, 10, 1, 0);
+        BulkheadContext.set(bulkhead);
+
+        assertThrows(SQLException.class, () -> new BulkheadDataSource(target).getConnection());
+        assertEquals(0, bulkhead.activeConnections());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.chatstorage.bulkhead;
+
+import com.example.chatstorage.exception.BulkheadFullException;
+import com.example.chatstorage.sharding.ShardContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ConnectionGateDataSourceTest {
+
+    @Mock
+    private DataSource target;
+
+    @Test
+    void shouldShedWhenShardPermitsAreTakenAndReleaseOnClose() throws Exception {
+        Connection connection = mock(Connection.class);
+        when(target.getConnection()).thenReturn(connection);
+        ConnectionGateDataSource dataSource = new ConnectionGateDataSource(target, 1, 0);
+
+        Connection first = dataSource.getConnection();
+        assertEquals(1, dataSource.inUse(null));
+        assertThrows(BulkheadFullException.class, dataSource::getConnection);
+        // Another shard has its own budget.
+        Connection other = ShardContext.callOn("shard-b", () -> {
+            try {
+                return dataSource.getConnection();
+            } catch (SQLException exception) {
+                throw new IllegalStateException(exception);
+            }
+        });
+        assertEquals(1, dataSource.inUse("shard-b"));
+
+        first.close();
+        first.close();
+        other.close();
+
+        verify(connection, times(3)).close();
+        assertEquals(0, dataSource.inUse(null));
+        assertEquals(0, dataSource.inUse("shard-b"));
+        assertEquals(1, dataSource.rejected());
+    }
+
+    @Test
+    void connectionsWithoutAShardShouldUseTheDefaultShardsPermits() throws Exception {
+        when(target.getConnection()).thenReturn(mock(Connection.class));
+        ConnectionGateDataSource dataSource = new ConnectionGateDataSource(target, 1, 0, "shard-a");
+
+        dataSource.getConnection();
+
+        assertEquals(1, dataSource.inUse("shard-a"));
+        // The default pool is one pool, whether or not the caller named it.
+        assertThrows(BulkheadFullException.class, () -> ShardContext.callOn("shard-a", () -> {
+            try {
+                return dataSource.getConnection();
+            } catch (SQLException exception) {
+                throw new IllegalStateException(exception);
+            }
+        }));
+    }
+
+    @Test
+    void shouldReturnPermitWhenPoolFails() throws Exception {
+        when(target.getConnection()).thenThrow(new SQLException("timeout"));
+        ConnectionGateDataSource dataSource = new ConnectionGateDataSource(target, 1, 0);
+
+        assertThrows(SQLException.class, dataSource::getConnection);
+        assertEquals(0, dataSource.inUse(null));
+    }
+
+    @Test
+    void shouldGateConnectionsWithCredentialsToo() throws Exception {
+        Connection connection = mock(Connection.class);
+        when(target.getConnection("u", "p")).thenReturn(connection);
+        ConnectionGateDataSource dataSource = new ConnectionGateDataSource(target, 2, 10);
+
+        dataSource.getConnection("u", "p");
+
+        assertEquals(1, dataSource.inUse(null));
+    }
+}
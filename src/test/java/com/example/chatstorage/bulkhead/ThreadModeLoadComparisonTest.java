@@ -0,0 +1,140 @@
+package com.example.chatstorage.bulkhead;
+
+import com.example.chatstorage.exception.BulkheadFullException;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Run with ./gradlew threadModeLoadTest; excluded from the regular test task.
+// A burst of requests against a 10-connection pool: most are served from Redis (rate limit + tail cache),
+// the rest also hold a connection. Tomcat's default 200 platform threads are compared with one virtual
+// thread per request behind the connection gate.
+@Tag("load")
+class ThreadModeLoadComparisonTest {
+
+    private static final int REQUESTS = 4_000;
+    private static final int PLATFORM_THREADS = 200;
+    private static final int POOL_SIZE = 10;
+    private static final double DB_SHARE = 0.3;
+    private static final long REDIS_MILLIS = 2;
+    private static final long QUERY_MILLIS = 10;
+
+    @Test
+    void platformVersusVirtualThreads() throws Exception {
+        System.out.println("mode      wall ms\treq/s\tcached p50/p99 ms\tdb p50/p99 ms\tshed");
+        Result platform = run("platform", Executors.newFixedThreadPool(PLATFORM_THREADS), new FakePool(POOL_SIZE));
+        Result virtual = run("virtual", Executors.newVirtualThreadPerTaskExecutor(),
+                new ConnectionGateDataSource(new FakePool(POOL_SIZE), POOL_SIZE, 5_000));
+
+        // Without a thread cap, Redis-only requests no longer queue behind requests waiting for a connection.
+        assertTrue(virtual.cachedP99 < platform.cachedP99,
+                "virtual cached p99 " + virtual.cachedP99 + " ms vs platform " + platform.cachedP99 + " ms");
+    }
+
+    private Result run(String mode, ExecutorService executor, DataSource dataSource) throws Exception {
+        Random random = new Random(1);
+        boolean[] usesDb = new boolean[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            usesDb[i] = random.nextDouble() < DB_SHARE;
+        }
+        AtomicInteger shed = new AtomicInteger();
+        List<Future<Long>> futures = new ArrayList<>(REQUESTS);
+        long start = System.nanoTime();
+        try (executor) {
+            for (int i = 0; i < REQUESTS; i++) {
+                boolean db = usesDb[i];
+                long submitted = System.nanoTime();
+                futures.add(executor.submit(() -> {
+                    Thread.sleep(REDIS_MILLIS);
+                    if (db) {
+                        try (Connection ignored = dataSource.getConnection()) {
+                            Thread.sleep(QUERY_MILLIS);
+                        } catch (BulkheadFullException exception) {
+                            shed.incrementAndGet();
+                        }
+                    }
+                    return System.nanoTime() - submitted;
+                }));
+            }
+        }
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+
+        long[] cached = latencies(futures, usesDb, false);
+        long[] db = latencies(futures, usesDb, true);
+        Result result = new Result(percentile(cached, 99), percentile(db, 99));
+        System.out.printf("%-10s%d\t%d\t%d / %d\t\t\t%d / %d\t\t%d%n", mode, wallMillis,
+                REQUESTS * 1000L / Math.max(1, wallMillis), percentile(cached, 50), result.cachedP99,
+                percentile(db, 50), result.dbP99, shed.get());
+        return result;
+    }
+
+    private static long[] latencies(List<Future<Long>> futures, boolean[] usesDb, boolean db) throws Exception {
+        List<Long> values = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            if (usesDb[i] == db) {
+                values.add(futures.get(i).get() / 1_000_000);
+            }
+        }
+        long[] sorted = values.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        return sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+    }
+
+    private record Result(long cachedP99, long dbP99) {
+    }
+
+    // Stands in for Hikari: a fixed number of connections, callers block until one is free.
+    private static final class FakePool extends AbstractDataSource {
+
+        private final Semaphore connections;
+
+        private FakePool(int size) {
+            this.connections = new Semaphore(size, true);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            try {
+                if (!connections.tryAcquire(30, TimeUnit.SECONDS)) {
+                    throw new SQLException("Connection is not available, request timed out after 30000ms");
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new SQLException(exception);
+            }
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if ("close".equals(method.getName())) {
+                            connections.release();
+                        }
+                        return null;
+                    });
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return getConnection();
+        }
+    }
+}
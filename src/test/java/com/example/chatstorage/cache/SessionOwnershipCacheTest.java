@@ -0,0 +1,123 @@
+package com.example.chatstorage.cache;
+
+import com.example.chatstorage.config.AppProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionOwnershipCacheTest {
+
+    @Test
+    void cachedOwnerShouldMatchOnlyThatUser() {
+        SessionOwnershipCache cache = cache(true, 100);
+        UUID sessionId = UUID.randomUUID();
+
+        cache.put(sessionId, "user-1");
+
+        assertTrue(cache.isOwner(sessionId, "user-1"));
+        assertFalse(cache.isOwner(sessionId, "user-2"));
+        assertFalse(cache.isOwner(UUID.randomUUID(), "user-1"));
+        assertEquals(1, cache.size());
+
+        cache.remove(sessionId);
+
+        assertFalse(cache.isOwner(sessionId, "user-1"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void disabledCacheShouldNeverAnswer() {
+        SessionOwnershipCache cache = cache(false, 100);
+        UUID sessionId = UUID.randomUUID();
+
+        cache.put(sessionId, "user-1");
+
+        assertFalse(cache.isOwner(sessionId, "user-1"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void removalsShouldKeepTheRestOfTheProbeRunReachable() {
+        SessionOwnershipCache.Segment segment = new SessionOwnershipCache.Segment(3000);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            segment.put(id.getMostSignificantBits(), id.getLeastSignificantBits(), SessionOwnershipCache.hash(id), i + 1);
+        }
+
+        for (int i = 0; i < ids.size(); i += 2) {
+            UUID id = ids.get(i);
+            segment.remove(id.getMostSignificantBits(), id.getLeastSignificantBits(), SessionOwnershipCache.hash(id));
+        }
+
+        assertEquals(1500, segment.size());
+        for (int i = 0; i < ids.size(); i++) {
+            UUID id = ids.get(i);
+            int owner = segment.get(id.getMostSignificantBits(), id.getLeastSignificantBits(), SessionOwnershipCache.hash(id));
+            assertEquals(i % 2 == 0 ? 0 : i + 1, owner);
+        }
+    }
+
+    @Test
+    void fullSegmentShouldEvictAnEntryNotUsedSinceTheHandPassed() {
+        // Four entries make six slots; ids are picked so that each lands in a known slot.
+        SessionOwnershipCache.Segment segment = new SessionOwnershipCache.Segment(4);
+        UUID a = idInSlot(0, 6);
+        UUID b = idInSlot(1, 6);
+        UUID c = idInSlot(2, 6);
+        UUID d = idInSlot(3, 6);
+        put(segment, a, 1);
+        put(segment, b, 2);
+        put(segment, c, 3);
+        put(segment, d, 4);
+
+        // Everything was just written, so the hand clears every bit and takes the first entry on its second lap.
+        UUID e = idInSlot(4, 6);
+        put(segment, e, 5);
+        assertEquals(0, get(segment, a));
+
+        get(segment, c);
+        get(segment, d);
+        UUID f = UUID.randomUUID();
+        put(segment, f, 6);
+
+        assertEquals(4, segment.size());
+        assertEquals(0, get(segment, b));
+        assertEquals(3, get(segment, c));
+        assertEquals(4, get(segment, d));
+        assertEquals(5, get(segment, e));
+        assertEquals(6, get(segment, f));
+    }
+
+    private static UUID idInSlot(int slot, int slots) {
+        while (true) {
+            UUID id = UUID.randomUUID();
+            if ((int) (((SessionOwnershipCache.hash(id) & 0xFFFFFFFFL) * slots) >>> 32) == slot) {
+                return id;
+            }
+        }
+    }
+
+    private static void put(SessionOwnershipCache.Segment segment, UUID id, int owner) {
+        segment.put(id.getMostSignificantBits(), id.getLeastSignificantBits(), SessionOwnershipCache.hash(id), owner);
+    }
+
+    private static int get(SessionOwnershipCache.Segment segment, UUID id) {
+        return segment.get(id.getMostSignificantBits(), id.getLeastSignificantBits(), SessionOwnershipCache.hash(id));
+    }
+
+    private static SessionOwnershipCache cache(boolean enabled, int maxEntries) {
+        AppProperties properties = new AppProperties();
+        properties.getSessionOwnership().setEnabled(enabled);
+        properties.getSessionOwnership().setMaxEntries(maxEntries);
+        return new SessionOwnershipCache(properties, new SimpleMeterRegistry());
+    }
+}
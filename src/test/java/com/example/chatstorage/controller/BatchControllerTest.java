@@ -0,0 +1,84 @@
+package com.example.chatstorage.controller;
+
+import com.example.chatstorage.auth.AuthContext;
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.dto.ErrorResponse;
+import com.example.chatstorage.dto.batch.BatchOperation;
+import com.example.chatstorage.dto.batch.BatchRequest;
+import com.example.chatstorage.dto.batch.BatchResponse;
+import com.example.chatstorage.exception.BatchDependencyException;
+import com.example.chatstorage.exception.GlobalExceptionHandler;
+import com.example.chatstorage.exception.NotFoundException;
+import com.example.chatstorage.security.RateLimitingFilter;
+import com.example.chatstorage.security.RedisRateLimiterService;
+import com.example.chatstorage.service.BatchService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BatchControllerTest {
+
+    @Mock
+    private BatchService batchService;
+
+    @Mock
+    private RedisRateLimiterService redisRateLimiterService;
+
+    private BatchController controller;
+
+    @BeforeEach
+    void setUp() {
+        controller = new BatchController(batchService, redisRateLimiterService, new GlobalExceptionHandler(new AppProperties()));
+    }
+
+    @Test
+    void eachOperationAfterTheFirstShouldCostOneMoreTokenAndErrorsKeepTheirStatus() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/batch");
+        request.setAttribute(AuthContext.ATTR_USER_ID, "user-1");
+        request.setAttribute(RateLimitingFilter.ATTR_CLIENT_KEY, "client-1");
+        BatchRequest batch = new BatchRequest(List.of(
+                new BatchOperation("POST", "/api/v1/sessions", Map.of()),
+                new BatchOperation("DELETE", "/api/v1/sessions/abc", null),
+                new BatchOperation("DELETE", "/api/v1/sessions/$1", null)), false);
+        when(batchService.execute("user-1", batch)).thenReturn(List.of(
+                new BatchService.Outcome(201, "created", null),
+                new BatchService.Outcome(0, null, new NotFoundException("Session not found: abc")),
+                new BatchService.Outcome(0, null, new BatchDependencyException("Operation 1 returned no id to refer to"))));
+
+        BatchResponse response = controller.execute(batch, request);
+
+        verify(redisRateLimiterService).acquirePermission("client-1", 2);
+        assertEquals(201, response.results().get(0).status());
+        assertEquals("created", response.results().get(0).body());
+        assertEquals(404, response.results().get(1).status());
+        // Error bodies point at the operation, not at the batch endpoint.
+        assertEquals("/api/v1/sessions/abc", ((ErrorResponse) response.results().get(1).body()).path());
+        assertEquals(424, response.results().get(2).status());
+    }
+
+    @Test
+    void singleOperationShouldCostNoMoreThanTheEnvelope() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/batch");
+        request.setAttribute(AuthContext.ATTR_USER_ID, "user-1");
+        request.setAttribute(RateLimitingFilter.ATTR_CLIENT_KEY, "client-1");
+        BatchRequest batch = new BatchRequest(List.of(new BatchOperation("POST", "/api/v1/sessions", Map.of())), true);
+        when(batchService.execute("user-1", batch)).thenReturn(List.of(new BatchService.Outcome(201, "created", null)));
+
+        assertEquals(1, controller.execute(batch, request).results().size());
+        verify(redisRateLimiterService, never()).acquirePermission(anyString(), anyLong());
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.chatstorage.controller;
+
+import com.example.chatstorage.dto.imports.BulkImportResponse;
+import com.example.chatstorage.service.BulkImportService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BulkImportControllerTest {
+
+    private static final String BODY = "{\"type\":\"session\"}\n";
+
+    @Mock
+    private BulkImportService bulkImportService;
+
+    @Test
+    void importShouldPassPlainBodyThrough() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContent(BODY.getBytes(StandardCharsets.UTF_8));
+        AtomicReference<String> seen = new AtomicReference<>();
+        BulkImportResponse expected = new BulkImportResponse("user-1", 1, 1, 0, 0, 0, 0, List.of());
+        when(bulkImportService.importHistory(eq("user-1"), any(InputStream.class))).thenAnswer(invocation -> {
+            seen.set(new String(invocation.<InputStream>getArgument(1).readAllBytes(), StandardCharsets.UTF_8));
+            return expected;
+        });
+
+        assertSame(expected, new BulkImportController(bulkImportService).importHistory("user-1", request));
+        assertEquals(BODY, seen.get());
+    }
+
+    @Test
+    void importShouldDecompressGzipBody() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(BODY.getBytes(StandardCharsets.UTF_8));
+        }
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        request.setContent(compressed.toByteArray());
+        AtomicReference<String> seen = new AtomicReference<>();
+        when(bulkImportService.importHistory(eq("user-1"), any(InputStream.class))).thenAnswer(invocation -> {
+            seen.set(new String(invocation.<InputStream>getArgument(1).readAllBytes(), StandardCharsets.UTF_8));
+            return new BulkImportResponse("user-1", 1, 1, 0, 0, 0, 0, List.of());
+        });
+
+        new BulkImportController(bulkImportService).importHistory("user-1", request);
+
+        assertEquals(BODY, seen.get());
+    }
+}
@@ -3,22 +3,39 @@ package com.example.chatstorage.controller;
 import com.example.chatstorage.auth.AuthContext;
 import com.example.chatstorage.dto.AddMessageRequest;
 import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.dto.ContextWindowResponse;
 import com.example.chatstorage.dto.PageResponse;
+import com.example.chatstorage.dto.stream.CompleteMessageStreamRequest;
+import com.example.chatstorage.dto.stream.MessageStreamResponse;
+import com.example.chatstorage.dto.stream.OpenMessageStreamRequest;
 import com.example.chatstorage.entity.SenderType;
 import com.example.chatstorage.service.ChatMessageService;
+import com.example.chatstorage.service.ListingVersion;
+import com.example.chatstorage.service.MessageIngestService;
+import com.example.chatstorage.service.MessageStreamService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -28,11 +45,17 @@ class ChatMessageControllerTest {
     @Mock
     private ChatMessageService chatMessageService;
 
+    @Mock
+    private MessageStreamService messageStreamService;
+
+    @Mock
+    private MessageIngestService messageIngestService;
+
     private ChatMessageController controller;
 
     @BeforeEach
     void setUp() {
-        controller = new ChatMessageController(chatMessageService);
+        controller = new ChatMessageController(chatMessageService, messageStreamService, messageIngestService);
     }
 
     @Test
@@ -46,10 +69,48 @@ class ChatMessageControllerTest {
                 UUID.randomUUID(), sessionId, SenderType.USER, "hi", null, Instant.now());
         when(chatMessageService.addMessage(sessionId, "user-1", body)).thenReturn(response);
 
-        ChatMessageResponse actual = controller.addMessage(sessionId, body, request);
+        ResponseEntity<ChatMessageResponse> actual = controller.addMessage(sessionId, body, null, request);
 
-        assertEquals(sessionId, actual.sessionId());
+        assertEquals(201, actual.getStatusCode().value());
+        assertEquals(sessionId, actual.getBody().sessionId());
         verify(chatMessageService).addMessage(sessionId, "user-1", body);
+        verify(messageIngestService, never()).accept(any(), any(), any());
+    }
+
+    @Test
+    void addMessageShouldQueueWhenAsyncIsPreferred() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(AuthContext.ATTR_USER_ID, "user-1");
+        UUID sessionId = UUID.randomUUID();
+        AddMessageRequest body = new AddMessageRequest(SenderType.USER, "hi", null);
+        ChatMessageResponse queued = new ChatMessageResponse(
+                UUID.randomUUID(), sessionId, SenderType.USER, "hi", null, Instant.now());
+        when(messageIngestService.canAccept(body)).thenReturn(true);
+        when(messageIngestService.accept(sessionId, "user-1", body)).thenReturn(queued);
+
+        ResponseEntity<ChatMessageResponse> actual = controller.addMessage(sessionId, body, "wait=5, respond-async", request);
+
+        assertEquals(202, actual.getStatusCode().value());
+        assertEquals("respond-async", actual.getHeaders().getFirst("Preference-Applied"));
+        assertEquals(queued, actual.getBody());
+        verify(chatMessageService, never()).addMessage(any(), any(), any());
+    }
+
+    @Test
+    void addMessageShouldStaySynchronousWhenIngestCannotTakeIt() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(AuthContext.ATTR_USER_ID, "user-1");
+        UUID sessionId = UUID.randomUUID();
+        AddMessageRequest body = new AddMessageRequest(SenderType.USER, "hi", null, new float[]{1f});
+        ChatMessageResponse saved = new ChatMessageResponse(
+                UUID.randomUUID(), sessionId, SenderType.USER, "hi", null, Instant.now());
+        when(messageIngestService.canAccept(body)).thenReturn(false);
+        when(chatMessageService.addMessage(sessionId, "user-1", body)).thenReturn(saved);
+
+        ResponseEntity<ChatMessageResponse> actual = controller.addMessage(sessionId, body, "respond-async", request);
+
+        assertEquals(201, actual.getStatusCode().value());
+        assertNull(actual.getHeaders().getFirst("Preference-Applied"));
     }
 
     @Test
@@ -61,11 +122,98 @@ class ChatMessageControllerTest {
         // Empty typed page verifies controller wiring without relying on entity fixtures.
         PageResponse<ChatMessageResponse> page = new PageResponse<>(List.of(), 0, 50, 0, 0, false);
 
+        request.setMethod("GET");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(chatMessageService.messagesVersion(sessionId, "user-1", pageable)).thenReturn(new ListingVersion("\"v1\"", 3600));
         when(chatMessageService.listMessages(sessionId, "user-1", pageable)).thenReturn(page);
 
-        var actual = controller.listMessages(sessionId, request, pageable);
+        var actual = controller.listMessages(sessionId, request, pageable, new ServletWebRequest(request, response), response);
 
         assertEquals(0, actual.totalItems());
+        assertEquals("\"v1\"", response.getHeader("ETag"));
+        assertEquals("max-age=3600, private", response.getHeader("Cache-Control"));
         verify(chatMessageService).listMessages(sessionId, "user-1", pageable);
     }
+
+    @Test
+    void listMessagesShouldAnswerNotModifiedWithoutLoadingPage() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/sessions/x/messages");
+        request.setAttribute(AuthContext.ATTR_USER_ID, "user-1");
+        request.addHeader("If-None-Match", "\"v0\", \"v1\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        UUID sessionId = UUID.randomUUID();
+        var pageable = PageRequest.of(0, 50);
+        when(chatMessageService.messagesVersion(sessionId, "user-1", pageable)).thenReturn(new ListingVersion("\"v1\"", 0));
+
+        assertNull(controller.listMessages(sessionId, request, pageable, new ServletWebRequest(request, response), response));
+        assertEquals(304, response.getStatus());
+        verify(chatMessageService, never()).listMessages(sessionId, "user-1", pageable);
+    }
+
+    @Test
+    void getContextWindowShouldPassBudgetAndFilters() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(AuthContext.ATTR_USER_ID, "user-1");
+        UUID sessionId = UUID.randomUUID();
+        ContextWindowResponse window = new ContextWindowResponse(List.of(), 0, 0, false);
+
+        when(chatMessageService.getContextWindow(sessionId, "user-1", 4000, null, false, true)).thenReturn(window);
+
+        var actual = controller.getContextWindow(sessionId, request, 4000, null, false, true);
+
+        assertEquals(window, actual);
+        verify(chatMessageService).getContextWindow(sessionId, "user-1", 4000, null, false, true);
+    }
+
+    @Test
+    void streamEndpointsShouldPassUserContext() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(AuthContext.ATTR_USER_ID, "user-1");
+        UUID sessionId = UUID.randomUUID();
+        UUID streamId = UUID.randomUUID();
+        OpenMessageStreamRequest open = new OpenMessageStreamRequest("docs");
+        CompleteMessageStreamRequest complete = new CompleteMessageStreamRequest(null);
+        MessageStreamResponse stream = new MessageStreamResponse(streamId, sessionId, SenderType.ASSISTANT, "",
+                0, 0, false, Instant.now(), Instant.now());
+        ChatMessageResponse saved = new ChatMessageResponse(
+                UUID.randomUUID(), sessionId, SenderType.ASSISTANT, "done", "docs", Instant.now());
+
+        when(messageStreamService.open(sessionId, "user-1", open)).thenReturn(stream);
+        when(messageStreamService.list(sessionId, "user-1")).thenReturn(List.of(stream));
+        when(messageStreamService.get(sessionId, "user-1", streamId)).thenReturn(stream);
+        when(messageStreamService.complete(sessionId, "user-1", streamId, complete)).thenReturn(saved);
+
+        assertEquals(stream, controller.openStream(sessionId, open, request));
+        assertEquals(List.of(stream), controller.listStreams(sessionId, request));
+        assertEquals(stream, controller.getStream(sessionId, streamId, request));
+        assertEquals(saved, controller.completeStream(sessionId, streamId, complete, request));
+        controller.discardStream(sessionId, streamId, request);
+        verify(messageStreamService).discard(sessionId, "user-1", streamId);
+    }
+
+    @Test
+    void appendToStreamShouldDecodeBodyWithRequestCharset() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(AuthContext.ATTR_USER_ID, "user-1");
+        request.setCharacterEncoding("UTF-16");
+        request.setContent("h\u00e9llo".getBytes(StandardCharsets.UTF_16));
+        UUID sessionId = UUID.randomUUID();
+        UUID streamId = UUID.randomUUID();
+        AtomicReference<String> seen = new AtomicReference<>();
+        MessageStreamResponse stream = new MessageStreamResponse(streamId, sessionId, SenderType.ASSISTANT, "h\u00e9llo",
+                6, 1, false, Instant.now(), Instant.now());
+        when(messageStreamService.append(eq(sessionId), eq("user-1"), eq(streamId), any(Reader.class))).thenAnswer(invocation -> {
+            StringBuilder text = new StringBuilder();
+            Reader reader = invocation.getArgument(3);
+            int c;
+            while ((c = reader.read()) != -1) {
+                text.append((char) c);
+            }
+            seen.set(text.toString());
+            return stream;
+        });
+
+        assertEquals(stream, controller.appendToStream(sessionId, streamId, request));
+        assertEquals("h\u00e9llo", seen.get());
+    }
 }
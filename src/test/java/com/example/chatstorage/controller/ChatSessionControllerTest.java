@@ -1,12 +1,15 @@
 package com.example.chatstorage.controller;
 
 import com.example.chatstorage.auth.AuthContext;
+import com.example.chatstorage.dto.BatchMessagesResponse;
 import com.example.chatstorage.dto.ChatSessionResponse;
 import com.example.chatstorage.dto.CreateSessionRequest;
 import com.example.chatstorage.dto.PageResponse;
 import com.example.chatstorage.dto.UpdateFavoriteRequest;
 import com.example.chatstorage.dto.UpdateSessionNameRequest;
+import com.example.chatstorage.service.ChatMessageService;
 import com.example.chatstorage.service.ChatSessionService;
+import com.example.chatstorage.service.ListingVersion;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,12 +17,16 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -29,11 +36,14 @@ class ChatSessionControllerTest {
     @Mock
     private ChatSessionService chatSessionService;
 
+    @Mock
+    private ChatMessageService chatMessageService;
+
     private ChatSessionController controller;
 
     @BeforeEach
     void setUp() {
-        controller = new ChatSessionController(chatSessionService);
+        controller = new ChatSessionController(chatSessionService, chatMessageService);
     }
 
     @Test
@@ -43,7 +53,7 @@ class ChatSessionControllerTest {
         request.setAttribute(AuthContext.ATTR_USER_ID, "user-1");
 
         ChatSessionResponse response = new ChatSessionResponse(
-                UUID.randomUUID(), "user-1", "t", false, Instant.now(), Instant.now());
+                UUID.randomUUID(), "user-1", "t", false, Instant.now(), Instant.now(), 0, 0, null, null, null);
         when(chatSessionService.createSession("user-1", new CreateSessionRequest("Title"))).thenReturn(response);
 
         ChatSessionResponse actual = controller.createSession(new CreateSessionRequest("Title"), request);
@@ -59,14 +69,44 @@ class ChatSessionControllerTest {
         var pageable = PageRequest.of(0, 20);
         // Typed empty page response keeps generic contract explicit in tests.
         PageResponse<ChatSessionResponse> page = new PageResponse<>(List.of(), 0, 20, 0, 0, false);
+        request.setMethod("GET");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(chatSessionService.sessionsVersion("user-1", true, pageable)).thenReturn(new ListingVersion("\"v1\"", 0));
         when(chatSessionService.listSessions("user-1", true, pageable)).thenReturn(page);
 
-        var actual = controller.listSessions(true, request, pageable);
+        var actual = controller.listSessions(true, request, pageable, new ServletWebRequest(request, response), response);
 
         assertEquals(0, actual.totalItems());
+        assertEquals("\"v1\"", response.getHeader("ETag"));
+        assertEquals("no-cache, private", response.getHeader("Cache-Control"));
         verify(chatSessionService).listSessions("user-1", true, pageable);
     }
 
+    @Test
+    void listSessionsShouldAnswerNotModifiedWithoutLoadingPage() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/sessions");
+        request.setAttribute(AuthContext.ATTR_USER_ID, "user-1");
+        request.addHeader("If-None-Match", "\"v1\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        var pageable = PageRequest.of(0, 20);
+        when(chatSessionService.sessionsVersion("user-1", null, pageable)).thenReturn(new ListingVersion("\"v1\"", 0));
+
+        assertNull(controller.listSessions(null, request, pageable, new ServletWebRequest(request, response), response));
+        assertEquals(304, response.getStatus());
+        verify(chatSessionService, never()).listSessions("user-1", null, pageable);
+    }
+
+    @Test
+    void latestMessagesShouldUseAuthContextUser() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(AuthContext.ATTR_USER_ID, "user-1");
+        List<UUID> sessionIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+        BatchMessagesResponse batch = new BatchMessagesResponse(List.of(), sessionIds);
+        when(chatMessageService.latestMessages("user-1", sessionIds, 5)).thenReturn(batch);
+
+        assertEquals(batch, controller.latestMessages(sessionIds, 5, request));
+    }
+
     @Test
     void renameSessionShouldPassUserId() {
         MockHttpServletRequest request = new MockHttpServletRequest();
@@ -0,0 +1,66 @@
+package com.example.chatstorage.controller;
+
+import com.example.chatstorage.auth.AuthContext;
+import com.example.chatstorage.service.HistoryExportService;
+import com.example.chatstorage.sharding.ShardContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class HistoryExportControllerTest {
+
+    @Mock
+    private HistoryExportService historyExportService;
+
+    @Test
+    void exportShouldStreamGzipOnTheRequestShard() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(AuthContext.ATTR_USER_ID, "user-1");
+        AtomicReference<String> shardSeen = new AtomicReference<>();
+        when(historyExportService.export(eq("user-1"), any(OutputStream.class))).thenAnswer(invocation -> {
+            shardSeen.set(ShardContext.current());
+            OutputStream output = invocation.getArgument(1);
+            output.write("{\"type\":\"session\"}\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        });
+
+        ResponseEntity<StreamingResponseBody> response;
+        ShardContext.set("shard-b");
+        try {
+            response = new HistoryExportController(historyExportService).exportHistory(request);
+        } finally {
+            ShardContext.clear();
+        }
+        // Simulates the async thread: no shard bound until the body runs.
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response.getBody().writeTo(body);
+
+        assertEquals(HistoryExportController.GZIP, response.getHeaders().getContentType());
+        assertTrue(response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION).contains("chat-history.ndjson.gz"));
+        assertEquals("shard-b", shardSeen.get());
+        assertNull(ShardContext.current());
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(body.toByteArray()))) {
+            assertEquals("{\"type\":\"session\"}\n", new String(gzip.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.chatstorage.controller;
+
+import com.example.chatstorage.auth.AuthContext;
+import com.example.chatstorage.dto.bulk.BulkDeleteRequest;
+import com.example.chatstorage.dto.bulk.BulkFavoriteRequest;
+import com.example.chatstorage.dto.bulk.BulkSessionResponse;
+import com.example.chatstorage.service.SessionBulkService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SessionBulkControllerTest {
+
+    @Mock
+    private SessionBulkService sessionBulkService;
+
+    @Test
+    void bulkEndpointsShouldActForTheAuthenticatedUser() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/sessions/bulk/delete");
+        request.setAttribute(AuthContext.ATTR_USER_ID, "user-1");
+        BulkDeleteRequest delete = new BulkDeleteRequest(null, Instant.parse("2025-01-01T00:00:00Z"), false);
+        BulkFavoriteRequest favorite = new BulkFavoriteRequest(List.of(UUID.randomUUID()), null, true);
+        BulkSessionResponse deleted = new BulkSessionResponse(3, true, false);
+        BulkSessionResponse updated = new BulkSessionResponse(1, false, false);
+        when(sessionBulkService.delete("user-1", delete)).thenReturn(deleted);
+        when(sessionBulkService.updateFavorite("user-1", favorite)).thenReturn(updated);
+
+        SessionBulkController controller = new SessionBulkController(sessionBulkService);
+
+        assertSame(deleted, controller.delete(delete, request));
+        assertSame(updated, controller.updateFavorite(favorite, request));
+    }
+}
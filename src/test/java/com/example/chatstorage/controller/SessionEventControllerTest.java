@@ -0,0 +1,37 @@
+package com.example.chatstorage.controller;
+
+import com.example.chatstorage.auth.AuthContext;
+import com.example.chatstorage.service.SessionEventService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SessionEventControllerTest {
+
+    @Mock
+    private SessionEventService sessionEventService;
+
+    @Test
+    void subscribeShouldPreferLastEventIdHeaderOverQueryParameter() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(AuthContext.ATTR_USER_ID, "user-1");
+        UUID sessionId = UUID.randomUUID();
+        SseEmitter fromHeader = new SseEmitter();
+        SseEmitter fromQuery = new SseEmitter();
+        when(sessionEventService.subscribe(sessionId, "user-1", "header-id")).thenReturn(fromHeader);
+        when(sessionEventService.subscribe(sessionId, "user-1", "query-id")).thenReturn(fromQuery);
+        SessionEventController controller = new SessionEventController(sessionEventService);
+
+        assertSame(fromHeader, controller.subscribe(sessionId, "header-id", "query-id", request));
+        assertSame(fromQuery, controller.subscribe(sessionId, null, "query-id", request));
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.chatstorage.controller;
+
+import com.example.chatstorage.dto.shard.ShardMigrationRequest;
+import com.example.chatstorage.dto.shard.ShardMigrationResponse;
+import com.example.chatstorage.dto.shard.UserShardResponse;
+import com.example.chatstorage.service.ShardMigrationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ShardAdminControllerTest {
+
+    @Mock
+    private ShardMigrationService shardMigrationService;
+
+    private ShardAdminController controller;
+
+    @BeforeEach
+    void setUp() {
+        controller = new ShardAdminController(shardMigrationService);
+    }
+
+    @Test
+    void describeUserShouldDelegate() {
+        when(shardMigrationService.describeUser("user-1")).thenReturn(new UserShardResponse("user-1", "a", "a", false));
+
+        var actual = controller.describeUser("user-1");
+
+        assertEquals("a", actual.shard());
+    }
+
+    @Test
+    void migrateUserShouldTrimInputAndDelegate() {
+        when(shardMigrationService.startMigration("user-1", "b")).thenReturn(migration("FREEZING"));
+
+        var actual = controller.migrateUser(new ShardMigrationRequest(" user-1 ", " b "));
+
+        assertEquals("FREEZING", actual.state());
+        verify(shardMigrationService).startMigration("user-1", "b");
+    }
+
+    @Test
+    void migrationStatusShouldDelegate() {
+        when(shardMigrationService.migrationStatus("user-1")).thenReturn(migration("COMPLETED"));
+
+        var actual = controller.migrationStatus("user-1");
+
+        assertEquals("COMPLETED", actual.state());
+    }
+
+    private ShardMigrationResponse migration(String state) {
+        Instant now = Instant.now();
+        return new ShardMigrationResponse("user-1", "a", "b", state, 1, 2, null, now, now);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.chatstorage.controller;
+
+import com.example.chatstorage.auth.AuthContext;
+import com.example.chatstorage.dto.sync.SyncResponse;
+import com.example.chatstorage.service.SyncService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SyncControllerTest {
+
+    @Mock
+    private SyncService syncService;
+
+    @Test
+    void syncShouldReturnChangesOfTheAuthenticatedUser() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/sync");
+        request.setAttribute(AuthContext.ATTR_USER_ID, "user-1");
+        SyncResponse response = new SyncResponse(42, false, List.of(), List.of(), List.of());
+        when(syncService.changes("user-1", 7L, 100)).thenReturn(response);
+
+        SyncController controller = new SyncController(syncService);
+
+        assertSame(response, controller.changes(7L, 100, request));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.chatstorage.diagnostics;
+
+import com.example.chatstorage.config.AppProperties;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PinnedThreadMonitorTest {
+
+    private static final List<String> AUTH_LOOKUP = List.of(
+            "java.lang.Object.wait0:-1",
+            "org.postgresql.core.v3.QueryExecutorImpl.execute:350",
+            "com.example.chatstorage.repository.ApiKeyRepository.findByKeyHash:-1",
+            "com.example.chatstorage.service.ApiKeyService.authenticate:60",
+            "com.example.chatstorage.security.ApiKeyAuthFilter.doFilterInternal:55");
+
+    @Test
+    void classifyShouldAttributeToTheInnermostRequestPath() {
+        assertEquals("auth", PinnedThreadMonitor.classify(AUTH_LOOKUP));
+        assertEquals("rate-limit", PinnedThreadMonitor.classify(List.of(
+                "io.github.bucket4j.distributed.proxy.AbstractProxyManager.execute:1",
+                "com.example.chatstorage.security.RedisRateLimiterService.acquirePermission:58",
+                "com.example.chatstorage.service.ApiKeyService.authenticate:60")));
+        assertEquals("repository", PinnedThreadMonitor.classify(List.of(
+                "org.postgresql.jdbc.PgStatement.executeQuery:1",
+                "com.example.chatstorage.service.ChatMessageService.listMessages:90",
+                "com.example.chatstorage.security.ApiKeyAuthFilter.doFilterInternal:58")));
+        assertEquals("other", PinnedThreadMonitor.classify(List.of("com.example.chatstorage.vector.HnswIndex.add:10")));
+        assertEquals("other", PinnedThreadMonitor.classify(List.of()));
+    }
+
+    @Test
+    void siteShouldSkipJdkFrames() {
+        assertEquals("org.postgresql.core.v3.QueryExecutorImpl.execute:350", PinnedThreadMonitor.site(AUTH_LOOKUP));
+        assertEquals("java.lang.Thread.sleep:1", PinnedThreadMonitor.site(List.of("java.lang.Thread.sleep:1")));
+        assertEquals("unknown", PinnedThreadMonitor.site(List.of()));
+    }
+
+    @Test
+    void recordShouldTimeEventsPerPath() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PinnedThreadMonitor monitor = new PinnedThreadMonitor(new AppProperties(), registry, true);
+
+        monitor.record(AUTH_LOOKUP, Duration.ofMillis(40));
+        monitor.record(AUTH_LOOKUP, Duration.ofMillis(60));
+
+        Timer timer = registry.find("chatstorage.virtual.threads.pinned").tag("path", "auth").timer();
+        assertEquals(2, timer.count());
+        assertEquals(100, timer.totalTime(TimeUnit.MILLISECONDS), 0.001);
+    }
+
+    @Test
+    void startShouldBeSkippedWhenDisabledAndStopIdempotent() {
+        AppProperties properties = new AppProperties();
+        properties.getVirtualThreads().setPinningMonitorEnabled(false);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PinnedThreadMonitor monitor = new PinnedThreadMonitor(properties, registry, true);
+
+        monitor.start();
+        monitor.stop();
+
+        assertNull(registry.find("chatstorage.virtual.threads.pinned").timer());
+    }
+
+    @Test
+    void startShouldBeSkippedOnPlatformThreads() {
+        PinnedThreadMonitor monitor = new PinnedThreadMonitor(new AppProperties(), new SimpleMeterRegistry(), false);
+
+        monitor.start();
+
+        assertFalse(monitor.isStreaming());
+    }
+
+    @Test
+    void startAndStopShouldManageTheRecordingStream() {
+        PinnedThreadMonitor monitor = new PinnedThreadMonitor(new AppProperties(), new SimpleMeterRegistry(), true);
+
+        monitor.start();
+        monitor.start();
+        monitor.stop();
+        monitor.stop();
+    }
+}
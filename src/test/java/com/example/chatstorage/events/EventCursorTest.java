@@ -0,0 +1,40 @@
+package com.example.chatstorage.events;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventCursorTest {
+
+    @Test
+    void formatShouldRoundTripThroughParse() {
+        EventCursor cursor = new EventCursor(Instant.parse("2025-03-01T10:15:30.123456Z"), UUID.randomUUID());
+
+        assertEquals(Optional.of(cursor), EventCursor.parse(cursor.format()));
+    }
+
+    @Test
+    void parseShouldIgnoreUnreadableIds() {
+        assertTrue(EventCursor.parse(null).isEmpty());
+        assertTrue(EventCursor.parse(" ").isEmpty());
+        assertTrue(EventCursor.parse("42").isEmpty());
+        assertTrue(EventCursor.parse("yesterday_" + UUID.randomUUID()).isEmpty());
+        assertTrue(EventCursor.parse("2025-03-01T10:15:30Z_not-a-uuid").isEmpty());
+    }
+
+    @Test
+    void compareShouldOrderByTimeThenIdAsUnsignedBytes() {
+        Instant at = Instant.parse("2025-03-01T10:15:30Z");
+        EventCursor low = new EventCursor(at, UUID.fromString("00000000-0000-0000-0000-000000000001"));
+        EventCursor high = new EventCursor(at, UUID.fromString("ffffffff-0000-0000-0000-000000000000"));
+
+        assertTrue(low.compareTo(high) < 0);
+        assertTrue(EventCursor.START.compareTo(low) < 0);
+        assertTrue(high.compareTo(new EventCursor(at.plusNanos(1000), low.messageId())) < 0);
+    }
+}
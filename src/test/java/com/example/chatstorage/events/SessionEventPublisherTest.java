@@ -0,0 +1,61 @@
+package com.example.chatstorage.events;
+
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.entity.SenderType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class SessionEventPublisherTest {
+
+    @Mock
+    private SessionEventTransport transport;
+
+    private final SessionEventCodec codec = new SessionEventCodec(new ObjectMapper().registerModule(new JavaTimeModule()));
+
+    @Test
+    void publishShouldSkipWhenDisabledAndSwallowTransportFailures() {
+        AppProperties appProperties = new AppProperties();
+        SessionEventPublisher publisher = new SessionEventPublisher(transport, appProperties);
+        SessionEvent event = SessionEvent.deleted("user-1", UUID.randomUUID());
+
+        publisher.publish(event);
+        verify(transport, never()).publish(any());
+
+        appProperties.getSessionEvents().setEnabled(true);
+        doThrow(new IllegalStateException("redis down")).when(transport).publish(event);
+        publisher.publish(event);
+        verify(transport).publish(event);
+    }
+
+    @Test
+    void codecShouldRoundTripEventsAndDropGarbage() {
+        ChatMessageResponse message = new ChatMessageResponse(UUID.randomUUID(), UUID.randomUUID(), SenderType.ASSISTANT,
+                "hello", "docs", Instant.parse("2025-03-01T10:15:30.123456Z"));
+        SessionEvent event = SessionEvent.message("user-1", message);
+
+        assertEquals(Optional.of(event), codec.decode(codec.encode(event)));
+        SessionEvent reference = codec.decode(codec.encode(event.withoutBody())).orElseThrow();
+        assertEquals(message.sessionId(), reference.sessionId());
+        assertNull(reference.message());
+        assertTrue(codec.decode("not json").isEmpty());
+        assertTrue(codec.decode("{\"type\":\"MESSAGE\"}").isEmpty());
+    }
+}
@@ -0,0 +1,370 @@
+package com.example.chatstorage.grpc;
+
+import com.example.chatstorage.auth.AuthenticatedApiKey;
+import com.example.chatstorage.bulkhead.BulkheadRegistry;
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.dto.AddMessageRequest;
+import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.dto.ChatSessionResponse;
+import com.example.chatstorage.dto.PageResponse;
+import com.example.chatstorage.dto.UpdateFavoriteRequest;
+import com.example.chatstorage.entity.SenderType;
+import com.example.chatstorage.events.EventCursor;
+import com.example.chatstorage.exception.NotFoundException;
+import com.example.chatstorage.exception.RateLimitExceededException;
+import com.example.chatstorage.exception.UnauthorizedException;
+import com.example.chatstorage.proto.v1.AppendMessageRequest;
+import com.example.chatstorage.proto.v1.AppendMessageResponse;
+import com.example.chatstorage.proto.v1.ChatMessage;
+import com.example.chatstorage.proto.v1.ChatSession;
+import com.example.chatstorage.proto.v1.ChatSessionPage;
+import com.example.chatstorage.proto.v1.ChatStorageGrpc;
+import com.example.chatstorage.proto.v1.CreateSessionRequest;
+import com.example.chatstorage.proto.v1.DeleteSessionRequest;
+import com.example.chatstorage.proto.v1.GetSessionRequest;
+import com.example.chatstorage.proto.v1.ListSessionsRequest;
+import com.example.chatstorage.proto.v1.ReadHistoryRequest;
+import com.example.chatstorage.proto.v1.RenameSessionRequest;
+import com.example.chatstorage.proto.v1.Sender;
+import com.example.chatstorage.proto.v1.SetFavoriteRequest;
+import com.example.chatstorage.security.RedisRateLimiterService;
+import com.example.chatstorage.service.ApiKeyService;
+import com.example.chatstorage.service.ChatMessageService;
+import com.example.chatstorage.service.ChatSessionService;
+import com.example.chatstorage.sharding.ShardContext;
+import com.example.chatstorage.sharding.ShardRouter;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.MetadataUtils;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ChatStorageGrpcServiceTest {
+
+    private static final String USER = "user-1";
+    private static final String API_KEY = "csk_live_prefix_secret";
+
+    @Mock
+    private ChatSessionService chatSessionService;
+
+    @Mock
+    private ChatMessageService chatMessageService;
+
+    @Mock
+    private ApiKeyService apiKeyService;
+
+    @Mock
+    private RedisRateLimiterService redisRateLimiterService;
+
+    @Mock
+    private ObjectProvider<ShardRouter> shardRouter;
+
+    private final UUID sessionId = UUID.randomUUID();
+    private AppProperties appProperties;
+    private Server server;
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        appProperties = new AppProperties();
+        BulkheadRegistry bulkheadRegistry = new BulkheadRegistry(appProperties, new SimpleMeterRegistry());
+        ChatStorageGrpcService service = new ChatStorageGrpcService(chatSessionService, chatMessageService, bulkheadRegistry,
+                shardRouter, Validation.buildDefaultValidatorFactory().getValidator(), appProperties);
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name)
+                .addService(ServerInterceptors.intercept(service,
+                        new GrpcRateLimitInterceptor(redisRateLimiterService),
+                        new GrpcAuthInterceptor(apiKeyService, bulkheadRegistry)))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void unaryCallsShouldAuthenticateAndMapSessions() {
+        authenticated();
+        ChatSessionResponse created = session("Spring Boot");
+        when(chatSessionService.createSession(eq(USER), any())).thenReturn(created);
+        when(chatSessionService.updateFavorite(sessionId, USER, new UpdateFavoriteRequest(true))).thenReturn(created);
+
+        ChatSession actual = blockingStub().createSession(CreateSessionRequest.newBuilder().setTitle("Spring Boot").build());
+        blockingStub().setFavorite(SetFavoriteRequest.newBuilder().setSessionId(sessionId.toString()).setFavorite(true).build());
+        blockingStub().deleteSession(DeleteSessionRequest.newBuilder().setSessionId(sessionId.toString()).build());
+
+        assertEquals(sessionId.toString(), actual.getId());
+        assertEquals("Spring Boot", actual.getTitle());
+        assertEquals(Sender.ASSISTANT, actual.getLastSender());
+        assertEquals(3, actual.getMessageCount());
+        assertEquals("hello", actual.getLastMessagePreview());
+        verify(chatSessionService).deleteSession(sessionId, USER);
+        verify(redisRateLimiterService, times(3)).acquirePermission(anyString());
+    }
+
+    @Test
+    void listSessionsShouldUseRestDefaults() {
+        authenticated();
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        when(chatSessionService.listSessions(eq(USER), eq(Boolean.TRUE), pageable.capture()))
+                .thenReturn(new PageResponse<>(List.of(session("A")), 0, 20, 1, 1, false));
+
+        ChatSessionPage page = blockingStub().listSessions(ListSessionsRequest.newBuilder().setFavorite(true).build());
+
+        assertEquals(1, page.getItemsCount());
+        assertEquals(1, page.getTotalItems());
+        assertEquals(PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "updatedAt")), pageable.getValue());
+    }
+
+    @Test
+    void missingApiKeyShouldFailUnauthenticated() {
+        when(apiKeyService.authenticate(null)).thenThrow(new UnauthorizedException("Missing API key"));
+
+        StatusRuntimeException exception = assertThrows(StatusRuntimeException.class, () ->
+                ChatStorageGrpc.newBlockingStub(channel).getSession(GetSessionRequest.newBuilder().setSessionId(sessionId.toString()).build()));
+
+        assertEquals(Status.Code.UNAUTHENTICATED, exception.getStatus().getCode());
+        verify(chatSessionService, never()).getSession(any(), any());
+    }
+
+    @Test
+    void serviceErrorsShouldMapToStatuses() {
+        authenticated();
+        when(chatSessionService.getSession(sessionId, USER)).thenThrow(new NotFoundException("Session not found"));
+
+        StatusRuntimeException notFound = assertThrows(StatusRuntimeException.class, () ->
+                blockingStub().getSession(GetSessionRequest.newBuilder().setSessionId(sessionId.toString()).build()));
+        StatusRuntimeException badId = assertThrows(StatusRuntimeException.class, () ->
+                blockingStub().getSession(GetSessionRequest.newBuilder().setSessionId("nope").build()));
+        StatusRuntimeException blankTitle = assertThrows(StatusRuntimeException.class, () ->
+                blockingStub().renameSession(RenameSessionRequest.newBuilder().setSessionId(sessionId.toString()).setTitle(" ").build()));
+
+        assertEquals(Status.Code.NOT_FOUND, notFound.getStatus().getCode());
+        assertEquals(Status.Code.INVALID_ARGUMENT, badId.getStatus().getCode());
+        assertEquals(Status.Code.INVALID_ARGUMENT, blankTitle.getStatus().getCode());
+        assertTrue(blankTitle.getStatus().getDescription().startsWith("Validation failed: title"));
+        verify(chatSessionService, never()).renameSession(any(), any(), any());
+    }
+
+    @Test
+    void rateLimitedCallShouldFailResourceExhaustedWithoutReachingService() {
+        authenticated();
+        doThrow(new RateLimitExceededException("Rate limit exceeded")).when(redisRateLimiterService).acquirePermission(anyString());
+
+        StatusRuntimeException exception = assertThrows(StatusRuntimeException.class, () ->
+                blockingStub().getSession(GetSessionRequest.newBuilder().setSessionId(sessionId.toString()).build()));
+
+        assertEquals(Status.Code.RESOURCE_EXHAUSTED, exception.getStatus().getCode());
+        verify(chatSessionService, never()).getSession(any(), any());
+    }
+
+    @Test
+    void appendMessagesShouldAcknowledgeEachMessageInOrder() throws Exception {
+        authenticated();
+        when(chatMessageService.addMessage(eq(sessionId), eq(USER), any(AddMessageRequest.class))).thenAnswer(invocation -> {
+            AddMessageRequest body = invocation.getArgument(2);
+            return message(body.content(), Instant.now());
+        });
+        Recorder<AppendMessageResponse> recorder = new Recorder<>();
+
+        StreamObserver<AppendMessageRequest> requests = asyncStub().appendMessages(recorder);
+        requests.onNext(append("r1", Sender.USER, "hello"));
+        requests.onNext(AppendMessageRequest.newBuilder(append("r2", Sender.ASSISTANT, "hi"))
+                .addEmbedding(0.5f).addEmbedding(0.25f).build());
+        requests.onCompleted();
+        recorder.await();
+
+        assertEquals(List.of("r1", "r2"), recorder.values.stream().map(AppendMessageResponse::getRequestId).toList());
+        assertEquals("hi", recorder.values.get(1).getMessage().getContent());
+        assertNull(recorder.error.get());
+        ArgumentCaptor<AddMessageRequest> bodies = ArgumentCaptor.forClass(AddMessageRequest.class);
+        verify(chatMessageService, times(2)).addMessage(eq(sessionId), eq(USER), bodies.capture());
+        assertEquals(SenderType.ASSISTANT, bodies.getValue().sender());
+        assertEquals(2, bodies.getValue().embedding().length);
+    }
+
+    @Test
+    void appendMessagesShouldEndStreamOnFirstInvalidMessage() throws Exception {
+        authenticated();
+        when(chatMessageService.addMessage(eq(sessionId), eq(USER), any(AddMessageRequest.class)))
+                .thenReturn(message("hello", Instant.now()));
+        Recorder<AppendMessageResponse> recorder = new Recorder<>();
+
+        StreamObserver<AppendMessageRequest> requests = asyncStub().appendMessages(recorder);
+        requests.onNext(append("r1", Sender.USER, "hello"));
+        requests.onNext(append("r2", Sender.SENDER_UNSPECIFIED, "no sender"));
+        requests.onNext(append("r3", Sender.USER, "after failure"));
+        requests.onCompleted();
+        recorder.await();
+
+        assertEquals(1, recorder.values.size());
+        assertEquals(Status.Code.INVALID_ARGUMENT, Status.fromThrowable(recorder.error.get()).getCode());
+        verify(chatMessageService, times(1)).addMessage(eq(sessionId), eq(USER), any(AddMessageRequest.class));
+    }
+
+    @Test
+    void readHistoryShouldPageThroughSessionFromCursor() throws Exception {
+        authenticated();
+        appProperties.getGrpc().setMaxHistoryPageSize(2);
+        ChatMessageResponse first = message("a", Instant.parse("2025-01-01T00:00:01Z"));
+        ChatMessageResponse second = message("b", Instant.parse("2025-01-01T00:00:02Z"));
+        ChatMessageResponse third = message("c", Instant.parse("2025-01-01T00:00:03Z"));
+        EventCursor start = new EventCursor(Instant.parse("2025-01-01T00:00:00Z"), UUID.randomUUID());
+        when(chatSessionService.getSession(sessionId, USER)).thenReturn(session("Chat"));
+        when(chatMessageService.listMessagesAfter(sessionId, start.createdAt(), start.messageId(), 2))
+                .thenReturn(List.of(first, second));
+        when(chatMessageService.listMessagesAfter(sessionId, second.createdAt(), second.id(), 2))
+                .thenReturn(List.of(third));
+        Recorder<ChatMessage> recorder = new Recorder<>();
+
+        asyncStub().readHistory(ReadHistoryRequest.newBuilder()
+                .setSessionId(sessionId.toString()).setAfter(start.format()).setPageSize(50).build(), recorder);
+        recorder.await();
+
+        assertEquals(List.of("a", "b", "c"), recorder.values.stream().map(ChatMessage::getContent).toList());
+        assertNull(recorder.error.get());
+        verify(chatMessageService, times(2)).listMessagesAfter(eq(sessionId), any(), any(), eq(2));
+    }
+
+    @Test
+    void readHistoryShouldRejectUnknownSession() throws Exception {
+        authenticated();
+        when(chatSessionService.getSession(sessionId, USER)).thenThrow(new NotFoundException("Session not found"));
+        Recorder<ChatMessage> recorder = new Recorder<>();
+
+        asyncStub().readHistory(ReadHistoryRequest.newBuilder().setSessionId(sessionId.toString()).build(), recorder);
+        recorder.await();
+
+        assertEquals(Status.Code.NOT_FOUND, Status.fromThrowable(recorder.error.get()).getCode());
+        verify(chatMessageService, never()).listMessagesAfter(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void shardedCallsShouldRunOnUsersShardAndRefuseWritesDuringMigration() {
+        authenticated();
+        ShardRouter router = new ShardRouter(List.of("shard-a", "shard-b"), 16);
+        when(shardRouter.getIfAvailable()).thenReturn(router);
+        AtomicReference<String> seenShard = new AtomicReference<>();
+        when(chatSessionService.getSession(sessionId, USER)).thenAnswer(invocation -> {
+            seenShard.set(ShardContext.current());
+            return session("Chat");
+        });
+
+        blockingStub().getSession(GetSessionRequest.newBuilder().setSessionId(sessionId.toString()).build());
+        router.markMigrating(USER);
+        StatusRuntimeException exception = assertThrows(StatusRuntimeException.class, () ->
+                blockingStub().createSession(CreateSessionRequest.getDefaultInstance()));
+
+        assertEquals(router.shardFor(USER), seenShard.get());
+        assertEquals(Status.Code.UNAVAILABLE, exception.getStatus().getCode());
+        verify(chatSessionService, never()).createSession(any(), any());
+    }
+
+    private void authenticated() {
+        when(apiKeyService.authenticate(API_KEY)).thenReturn(new AuthenticatedApiKey(UUID.randomUUID(), USER, "prefix"));
+    }
+
+    private ChatStorageGrpc.ChatStorageBlockingStub blockingStub() {
+        return ChatStorageGrpc.newBlockingStub(channel).withInterceptors(MetadataUtils.newAttachHeadersInterceptor(headers()));
+    }
+
+    private ChatStorageGrpc.ChatStorageStub asyncStub() {
+        return ChatStorageGrpc.newStub(channel).withInterceptors(MetadataUtils.newAttachHeadersInterceptor(headers()));
+    }
+
+    private Metadata headers() {
+        Metadata headers = new Metadata();
+        headers.put(GrpcCallContext.API_KEY, API_KEY);
+        return headers;
+    }
+
+    private AppendMessageRequest append(String requestId, Sender sender, String content) {
+        return AppendMessageRequest.newBuilder()
+                .setRequestId(requestId)
+                .setSessionId(sessionId.toString())
+                .setSender(sender)
+                .setContent(content)
+                .build();
+    }
+
+    private ChatSessionResponse session(String title) {
+        return new ChatSessionResponse(sessionId, USER, title, false, Instant.EPOCH, Instant.EPOCH,
+                3, 15, Instant.EPOCH, SenderType.ASSISTANT, "hello");
+    }
+
+    private ChatMessageResponse message(String content, Instant createdAt) {
+        return new ChatMessageResponse(UUID.randomUUID(), sessionId, SenderType.USER, content, null, createdAt);
+    }
+
+    private static final class Recorder<T> implements StreamObserver<T> {
+
+        private final List<T> values = new ArrayList<>();
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        @Override
+        public void onNext(T value) {
+            values.add(value);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error.set(throwable);
+            done.countDown();
+        }
+
+        @Override
+        public void onCompleted() {
+            done.countDown();
+        }
+
+        private void await() throws InterruptedException {
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+    }
+}
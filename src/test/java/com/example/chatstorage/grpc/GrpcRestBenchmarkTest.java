@@ -0,0 +1,183 @@
+package com.example.chatstorage.grpc;
+
+import com.example.chatstorage.proto.v1.AppendMessageRequest;
+import com.example.chatstorage.proto.v1.AppendMessageResponse;
+import com.example.chatstorage.proto.v1.ChatMessage;
+import com.example.chatstorage.proto.v1.ChatStorageGrpc;
+import com.example.chatstorage.proto.v1.CreateSessionRequest;
+import com.example.chatstorage.proto.v1.DeleteSessionRequest;
+import com.example.chatstorage.proto.v1.ReadHistoryRequest;
+import com.example.chatstorage.proto.v1.Sender;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.grpc.Grpc;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.stub.MetadataUtils;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Run with ./gradlew grpcBenchmark; excluded from the regular test task. Drives an already running server
+// with GRPC_ENABLED=true and a rate limit high enough for the message count, e.g.
+// ./gradlew grpcBenchmark -Dgrpc.benchmark.rest-url=http://localhost:8080 -Dgrpc.benchmark.grpc-target=localhost:9090
+//     -Dgrpc.benchmark.api-key=csk_live_... -Dgrpc.benchmark.messages=500
+@Tag("grpc-benchmark")
+class GrpcRestBenchmarkTest {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final int HISTORY_PAGE = 100;
+
+    @Test
+    void appendAndHistoryLatencyOverGrpcAndRest() throws Exception {
+        String restUrl = System.getProperty("grpc.benchmark.rest-url");
+        String grpcTarget = System.getProperty("grpc.benchmark.grpc-target");
+        String apiKey = System.getProperty("grpc.benchmark.api-key");
+        assumeTrue(restUrl != null && grpcTarget != null && apiKey != null,
+                "Set grpc.benchmark.rest-url, grpc.benchmark.grpc-target and grpc.benchmark.api-key");
+        int messages = Integer.getInteger("grpc.benchmark.messages", 200);
+
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        Metadata headers = new Metadata();
+        headers.put(GrpcCallContext.API_KEY, apiKey);
+        ManagedChannel channel = Grpc.newChannelBuilder(grpcTarget, InsecureChannelCredentials.create()).build();
+        try {
+            ChatStorageGrpc.ChatStorageBlockingStub blocking = ChatStorageGrpc.newBlockingStub(channel)
+                    .withInterceptors(MetadataUtils.newAttachHeadersInterceptor(headers));
+            ChatStorageGrpc.ChatStorageStub async = ChatStorageGrpc.newStub(channel)
+                    .withInterceptors(MetadataUtils.newAttachHeadersInterceptor(headers));
+
+            String restSession = JSON.readTree(rest(http, restUrl, apiKey, "POST", "/api/v1/sessions", "{\"title\":\"rest benchmark\"}"))
+                    .get("id").asText();
+            String grpcSession = blocking.createSession(CreateSessionRequest.newBuilder().setTitle("grpc benchmark").build()).getId();
+
+            long[] restAppend = new long[messages];
+            long restStart = System.nanoTime();
+            for (int i = 0; i < messages; i++) {
+                long start = System.nanoTime();
+                rest(http, restUrl, apiKey, "POST", "/api/v1/sessions/" + restSession + "/messages",
+                        "{\"sender\":\"USER\",\"content\":\"" + content(i) + "\"}");
+                restAppend[i] = System.nanoTime() - start;
+            }
+            long restAppendTotal = System.nanoTime() - restStart;
+
+            long[] grpcAppend = new long[messages];
+            long grpcStart = System.nanoTime();
+            appendOverGrpc(async, grpcSession, messages, grpcAppend);
+            long grpcAppendTotal = System.nanoTime() - grpcStart;
+
+            long restReadStart = System.nanoTime();
+            int restRead = 0;
+            for (int page = 0; ; page++) {
+                JsonNode body = JSON.readTree(rest(http, restUrl, apiKey, "GET",
+                        "/api/v1/sessions/" + restSession + "/messages?page=" + page + "&size=" + HISTORY_PAGE, null));
+                restRead += body.get("items").size();
+                if (!body.get("hasNext").asBoolean()) {
+                    break;
+                }
+            }
+            long restReadTotal = System.nanoTime() - restReadStart;
+
+            long grpcReadStart = System.nanoTime();
+            int grpcRead = 0;
+            Iterator<ChatMessage> history = blocking.readHistory(ReadHistoryRequest.newBuilder()
+                    .setSessionId(grpcSession).setPageSize(HISTORY_PAGE).build());
+            while (history.hasNext()) {
+                history.next();
+                grpcRead++;
+            }
+            long grpcReadTotal = System.nanoTime() - grpcReadStart;
+
+            System.out.println("protocol\tappend p50 us\tappend p99 us\tappends/s\thistory ms (" + messages + " msgs)");
+            report("rest", restAppend, restAppendTotal, restReadTotal);
+            report("grpc", grpcAppend, grpcAppendTotal, grpcReadTotal);
+            assertEquals(messages, restRead);
+            assertEquals(messages, grpcRead);
+
+            rest(http, restUrl, apiKey, "DELETE", "/api/v1/sessions/" + restSession, null);
+            blocking.deleteSession(DeleteSessionRequest.newBuilder().setSessionId(grpcSession).build());
+        } finally {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    // One stream for all messages; each latency runs from sending a message to receiving its acknowledgement.
+    private static void appendOverGrpc(ChatStorageGrpc.ChatStorageStub async, String sessionId, int messages,
+                                       long[] latencies) throws Exception {
+        long[] sentAt = new long[messages];
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        StreamObserver<AppendMessageRequest> requests = async.appendMessages(new StreamObserver<>() {
+
+            @Override
+            public void onNext(AppendMessageResponse response) {
+                int index = Integer.parseInt(response.getRequestId());
+                latencies[index] = System.nanoTime() - sentAt[index];
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                done.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onCompleted() {
+                done.complete(null);
+            }
+        });
+        for (int i = 0; i < messages; i++) {
+            sentAt[i] = System.nanoTime();
+            requests.onNext(AppendMessageRequest.newBuilder()
+                    .setRequestId(Integer.toString(i))
+                    .setSessionId(sessionId)
+                    .setSender(Sender.USER)
+                    .setContent(content(i))
+                    .build());
+        }
+        requests.onCompleted();
+        done.get(5, TimeUnit.MINUTES);
+    }
+
+    private static String rest(HttpClient http, String baseUrl, String apiKey, String method, String path, String body)
+            throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("X-API-Key", apiKey)
+                .header("Accept", "application/json");
+        if (body == null) {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        } else {
+            request.header("Content-Type", "application/json").method(method, HttpRequest.BodyPublishers.ofString(body));
+        }
+        HttpResponse<String> response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException(method + " " + path + " answered " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    private static String content(int i) {
+        return "Benchmark message " + i + " with a sentence or two of ordinary chat text in it.";
+    }
+
+    private static void report(String protocol, long[] latencies, long appendNanos, long historyNanos) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%s\t\t%d\t\t%d\t\t%d\t\t%d%n", protocol,
+                sorted[sorted.length / 2] / 1000,
+                sorted[Math.min(sorted.length - 1, (int) Math.ceil(sorted.length * 0.99) - 1)] / 1000,
+                latencies.length * 1_000_000_000L / Math.max(1, appendNanos),
+                historyNanos / 1_000_000);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.chatstorage.grpc;
+
+import com.example.chatstorage.exception.BulkheadFullException;
+import com.example.chatstorage.exception.RateLimitServiceUnavailableException;
+import com.example.chatstorage.exception.ShardMigrationInProgressException;
+import io.grpc.Status;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GrpcStatusesTest {
+
+    @Test
+    void overloadAndOutagesShouldMapToUnavailable() {
+        assertEquals(Status.Code.UNAVAILABLE, GrpcStatuses.fromException(new BulkheadFullException("full")).getCode());
+        assertEquals(Status.Code.UNAVAILABLE, GrpcStatuses.fromException(new RateLimitServiceUnavailableException("down", null)).getCode());
+        assertEquals(Status.Code.UNAVAILABLE, GrpcStatuses.fromException(new ShardMigrationInProgressException("moving")).getCode());
+        assertEquals(Status.Code.UNAVAILABLE, GrpcStatuses.fromException(
+                new CannotCreateTransactionException("no connection", new BulkheadFullException("full"))).getCode());
+    }
+
+    @Test
+    void unexpectedErrorsShouldMapToInternalWithoutLeakingMessage() {
+        Status status = GrpcStatuses.fromException(new IllegalStateException("secret detail"));
+
+        assertEquals(Status.Code.INTERNAL, status.getCode());
+        assertEquals("Unexpected server error", status.getDescription());
+        assertEquals(Status.Code.INTERNAL, GrpcStatuses.fromException(new CannotCreateTransactionException("db down")).getCode());
+    }
+
+    @Test
+    void statusExceptionsShouldPassThrough() {
+        assertEquals(Status.Code.DEADLINE_EXCEEDED,
+                GrpcStatuses.fromException(Status.DEADLINE_EXCEEDED.asRuntimeException()).getCode());
+    }
+}
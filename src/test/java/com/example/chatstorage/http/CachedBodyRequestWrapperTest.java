@@ -0,0 +1,83 @@
+package com.example.chatstorage.http;
+
+import com.example.chatstorage.exception.RequestTooLargeException;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CachedBodyRequestWrapperTest {
+
+    private static final byte[] BODY = "{\"title\":\"Trip\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void bodyShouldBeReadableAgainAfterCaching() throws IOException {
+        CachedBodyRequestWrapper request = new CachedBodyRequestWrapper(request(), BODY.length);
+
+        assertArrayEquals(BODY, request.body());
+        assertArrayEquals(BODY, request.getInputStream().readAllBytes());
+        assertArrayEquals(BODY, request.getInputStream().readAllBytes());
+    }
+
+    @Test
+    void bodiesOverTheLimitShouldBeRefusedWithOrWithoutAContentLength() {
+        MockHttpServletRequest declared = request();
+        HttpServletRequestWrapper chunked = new HttpServletRequestWrapper(request()) {
+            @Override
+            public long getContentLengthLong() {
+                return -1;
+            }
+        };
+
+        assertThrows(RequestTooLargeException.class, () -> new CachedBodyRequestWrapper(declared, BODY.length - 1));
+        assertThrows(RequestTooLargeException.class, () -> new CachedBodyRequestWrapper(chunked, BODY.length - 1));
+    }
+
+    @Test
+    void readListenerShouldGetTheWholeBodyAtOnce() throws IOException {
+        ServletInputStream in = new CachedBodyRequestWrapper(request(), BODY.length).getInputStream();
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        List<String> calls = new ArrayList<>();
+
+        in.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                calls.add("data");
+                byte[] buffer = new byte[4];
+                while (in.isReady() && !in.isFinished()) {
+                    read.write(buffer, 0, in.read(buffer));
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                calls.add("done");
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                calls.add("error");
+            }
+        });
+
+        assertEquals(List.of("data", "done"), calls);
+        assertArrayEquals(BODY, read.toByteArray());
+    }
+
+    private static MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/sessions");
+        request.setContent(BODY);
+        return request;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.chatstorage.http;
+
+import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.dto.ChatSessionResponse;
+import com.example.chatstorage.dto.PageResponse;
+import com.example.chatstorage.entity.SenderType;
+import com.google.protobuf.CodedInputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.lang.reflect.Type;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatMessageProtobufConverterTest {
+
+    private static final Type MESSAGE_PAGE =
+            new ParameterizedTypeReference<PageResponse<ChatMessageResponse>>() { }.getType();
+    private static final Type SESSION_PAGE =
+            new ParameterizedTypeReference<PageResponse<ChatSessionResponse>>() { }.getType();
+
+    private final ChatMessageProtobufConverter converter = new ChatMessageProtobufConverter();
+
+    @Test
+    void shouldOnlyWriteMessagePagesAndMessages() {
+        MediaType protobuf = ChatMessageProtobufConverter.APPLICATION_PROTOBUF;
+
+        assertTrue(converter.canWrite(MESSAGE_PAGE, PageResponse.class, protobuf));
+        assertTrue(converter.canWrite(ChatMessageResponse.class, ChatMessageResponse.class, protobuf));
+        assertFalse(converter.canWrite(SESSION_PAGE, PageResponse.class, protobuf));
+        assertFalse(converter.canWrite(MESSAGE_PAGE, PageResponse.class, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canRead(ChatMessageResponse.class, null, protobuf));
+    }
+
+    @Test
+    void pageShouldDecodeAgainstTheProtoSchema() throws Exception {
+        UUID sessionId = UUID.randomUUID();
+        ChatMessageResponse first = new ChatMessageResponse(UUID.randomUUID(), sessionId, SenderType.ASSISTANT,
+                "h\u00e9llo", "docs", Instant.ofEpochSecond(1_700_000_000L, 123_000_000));
+        ChatMessageResponse second = new ChatMessageResponse(UUID.randomUUID(), sessionId, SenderType.USER,
+                "", null, Instant.ofEpochSecond(1_700_000_001L));
+        PageResponse<ChatMessageResponse> page = new PageResponse<>(List.of(first, second), 1, 2, 5, 3, true);
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+        converter.write(page, MESSAGE_PAGE, ChatMessageProtobufConverter.APPLICATION_PROTOBUF, output);
+
+        assertEquals("application/x-protobuf", output.getHeaders().getContentType().toString());
+        CodedInputStream input = CodedInputStream.newInstance(output.getBodyAsBytes());
+        List<Decoded> items = new ArrayList<>();
+        int pageNumber = 0;
+        int size = 0;
+        long totalItems = 0;
+        int totalPages = 0;
+        boolean hasNext = false;
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            switch (tag >>> 3) {
+                case 1 -> {
+                    int limit = input.pushLimit(input.readRawVarint32());
+                    items.add(decodeMessage(input));
+                    input.popLimit(limit);
+                }
+                case 2 -> pageNumber = input.readInt32();
+                case 3 -> size = input.readInt32();
+                case 4 -> totalItems = input.readInt64();
+                case 5 -> totalPages = input.readInt32();
+                case 6 -> hasNext = input.readBool();
+                default -> input.skipField(tag);
+            }
+        }
+
+        assertEquals(new Decoded(first.id().toString(), sessionId.toString(), 2, "h\u00e9llo", "docs", 1_700_000_000L, 123_000_000),
+                items.get(0));
+        assertEquals(new Decoded(second.id().toString(), sessionId.toString(), 1, null, null, 1_700_000_001L, 0),
+                items.get(1));
+        assertEquals(List.of(1, 2, 5L, 3, true), List.of(pageNumber, size, totalItems, totalPages, hasNext));
+    }
+
+    @Test
+    void singleMessageShouldBeWrittenWithoutEnvelope() throws Exception {
+        ChatMessageResponse message = new ChatMessageResponse(UUID.randomUUID(), UUID.randomUUID(), SenderType.SYSTEM,
+                "rules", null, Instant.EPOCH);
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+        converter.write(message, ChatMessageResponse.class, ChatMessageProtobufConverter.APPLICATION_PROTOBUF, output);
+
+        Decoded decoded = decodeMessage(CodedInputStream.newInstance(output.getBodyAsBytes()));
+        assertEquals(3, decoded.sender());
+        assertEquals("rules", decoded.content());
+        assertNull(decoded.retrievedContext());
+        assertEquals(0, decoded.seconds());
+    }
+
+    private static Decoded decodeMessage(CodedInputStream input) throws Exception {
+        String id = null;
+        String sessionId = null;
+        int sender = 0;
+        String content = null;
+        String retrievedContext = null;
+        long seconds = 0;
+        int nanos = 0;
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            switch (tag >>> 3) {
+                case 1 -> id = input.readString();
+                case 2 -> sessionId = input.readString();
+                case 3 -> sender = input.readEnum();
+                case 4 -> content = input.readString();
+                case 5 -> retrievedContext = input.readString();
+                case 6 -> {
+                    int limit = input.pushLimit(input.readRawVarint32());
+                    int field;
+                    while ((field = input.readTag()) != 0) {
+                        if (field >>> 3 == 1) {
+                            seconds = input.readInt64();
+                        } else {
+                            nanos = input.readInt32();
+                        }
+                    }
+                    input.popLimit(limit);
+                }
+                default -> input.skipField(tag);
+            }
+        }
+        return new Decoded(id, sessionId, sender, content, retrievedContext, seconds, nanos);
+    }
+
+    private record Decoded(String id, String sessionId, int sender, String content, String retrievedContext,
+                           long seconds, int nanos) {
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.chatstorage.http;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ContentCodingTest {
+
+    @Test
+    void negotiateShouldPreferZstdUnlessRankedLowerOrDisabled() {
+        assertEquals(ContentCoding.ZSTD, ContentCoding.negotiate("gzip, deflate, br, zstd", true));
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("gzip, deflate, br, zstd", false));
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("zstd;q=0.5, gzip", true));
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("x-gzip", true));
+    }
+
+    @Test
+    void negotiateShouldHonourWildcardAndExplicitRefusals() {
+        assertEquals(ContentCoding.ZSTD, ContentCoding.negotiate("*", true));
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("*;q=0.5, zstd;q=0", true));
+        assertNull(ContentCoding.negotiate("gzip;q=0, *;q=0", true));
+        assertNull(ContentCoding.negotiate("identity, br", true));
+        assertNull(ContentCoding.negotiate(null, true));
+        assertNull(ContentCoding.negotiate("gzip;q=oops", true));
+    }
+
+    @Test
+    void encodedEtagsShouldStayStrongAndDecodeBack() {
+        assertEquals("\"abc-zstd\"", ContentCoding.ZSTD.encodeEtag("\"abc\""));
+        assertEquals("W/\"abc\"", ContentCoding.GZIP.encodeEtag("W/\"abc\""));
+        assertEquals("\"abc\", W/\"def\"", ContentCoding.decodeEtags("\"abc-gzip\", W/\"def\""));
+        assertEquals("*", ContentCoding.decodeEtags("*"));
+    }
+}
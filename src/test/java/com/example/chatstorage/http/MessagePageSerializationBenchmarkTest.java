@@ -0,0 +1,115 @@
+package com.example.chatstorage.http;
+
+import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.dto.PageResponse;
+import com.example.chatstorage.entity.SenderType;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.github.luben.zstd.Zstd;
+import com.google.protobuf.CodedOutputStream;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Run with ./gradlew serializationBenchmark; excluded from the regular test task.
+@Tag("codec-benchmark")
+class MessagePageSerializationBenchmarkTest {
+
+    private static final int MESSAGES = 200;
+    private static final int WARMUP = 200;
+    private static final int ROUNDS = 1_000;
+
+    @Test
+    void payloadSizeAndThroughputPerFormat() throws Exception {
+        PageResponse<ChatMessageResponse> page = page();
+        Map<String, Encoder> encoders = new LinkedHashMap<>();
+        encoders.put("json", jackson(null));
+        encoders.put("cbor", jackson(new CBORFactory()));
+        encoders.put("smile", jackson(new SmileFactory()));
+        encoders.put("protobuf", value -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+            CodedOutputStream coded = CodedOutputStream.newInstance(out, 8192);
+            ChatMessageProtobufConverter.writePage(coded, value);
+            coded.flush();
+            return out.toByteArray();
+        });
+
+        int json = encoders.get("json").encode(page).length;
+        System.out.println("format\traw B\tgzip B\tzstd-3 B\tencode us\tpages/s");
+        for (Map.Entry<String, Encoder> entry : encoders.entrySet()) {
+            Encoder encoder = entry.getValue();
+            byte[] bytes = encoder.encode(page);
+            for (int i = 0; i < WARMUP; i++) {
+                encoder.encode(page);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                encoder.encode(page);
+            }
+            long perPage = (System.nanoTime() - start) / ROUNDS;
+            System.out.printf("%s\t%d\t%d\t%d\t\t%d\t\t%d%n", entry.getKey(), bytes.length, gzip(bytes).length,
+                    Zstd.compress(bytes, 3).length, perPage / 1000, 1_000_000_000L / Math.max(1, perPage));
+            assertTrue(bytes.length <= json, entry.getKey() + " should not be larger than JSON");
+        }
+    }
+
+    private static Encoder jackson(JsonFactory factory) {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        ObjectMapper mapper = factory == null ? builder.build() : builder.factory(factory).build();
+        return page -> mapper.writeValueAsBytes(page);
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    // Assistant turns carry retrieved context, which dominates real pages.
+    private static PageResponse<ChatMessageResponse> page() {
+        Random random = new Random(42);
+        String[] words = {"the", "index", "session", "message", "returns", "context", "vector", "shard", "page", "token"};
+        UUID sessionId = UUID.randomUUID();
+        Instant start = Instant.parse("2025-01-01T00:00:00Z");
+        List<ChatMessageResponse> messages = new ArrayList<>(MESSAGES);
+        for (int i = 0; i < MESSAGES; i++) {
+            boolean assistant = i % 2 == 1;
+            messages.add(new ChatMessageResponse(UUID.randomUUID(), sessionId,
+                    assistant ? SenderType.ASSISTANT : SenderType.USER,
+                    text(random, words, assistant ? 120 : 30),
+                    assistant ? text(random, words, 600) : null,
+                    start.plusMillis(i * 1_500L + random.nextInt(1000))));
+        }
+        return new PageResponse<>(messages, 0, MESSAGES, 4_000, 20, true);
+    }
+
+    private static String text(Random random, String[] words, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(words[random.nextInt(words.length)]).append(' ');
+        }
+        return text.toString();
+    }
+
+    @FunctionalInterface
+    private interface Encoder {
+        byte[] encode(PageResponse<ChatMessageResponse> page) throws IOException;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.chatstorage.idempotency;
+
+import com.example.chatstorage.config.AppProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryIdempotencyStoreTest {
+
+    private static final Duration LOCK = Duration.ofSeconds(60);
+
+    private final MutableClock clock = new MutableClock();
+    private AppProperties properties;
+    private InMemoryIdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AppProperties();
+        store = new InMemoryIdempotencyStore(properties, clock);
+    }
+
+    @Test
+    void onlyTheFirstClaimShouldWinUntilTheMarkerExpires() {
+        assertNull(store.claim("k", "fp", "t", LOCK));
+
+        IdempotentResponse marker = store.claim("k", "fp", "t", LOCK);
+        assertFalse(marker.isComplete());
+        assertEquals("fp", marker.fingerprint());
+
+        // The first request died without releasing; its marker lapses after the in-flight TTL.
+        clock.advance(LOCK.plusSeconds(1));
+        assertNull(store.claim("k", "fp", "t", LOCK));
+    }
+
+    @Test
+    void completedResponsesShouldBeReturnedUntilTheirTtl() {
+        store.claim("k", "fp", "t1", LOCK);
+        store.complete("k", "t1",
+                new IdempotentResponse("fp", 201, Map.of("Content-Type", "application/json"), new byte[]{1}),
+                Duration.ofHours(1));
+
+        IdempotentResponse stored = store.claim("k", "fp", "t", LOCK);
+        assertTrue(stored.isComplete());
+        assertEquals(201, stored.status());
+
+        store.release("k", "fp", "t1");
+        assertTrue(store.claim("k", "fp", "t", LOCK).isComplete());
+
+        clock.advance(Duration.ofHours(2));
+        assertNull(store.claim("k", "fp", "t", LOCK));
+    }
+
+    @Test
+    void releaseShouldOnlyDropTheCallersMarker() {
+        store.claim("k", "fp", "t1", LOCK);
+
+        store.release("k", "other", "t1");
+        store.release("k", "fp", "t2");
+        assertFalse(store.claim("k", "fp", "t3", LOCK).isComplete());
+
+        store.release("k", "fp", "t1");
+        assertNull(store.claim("k", "fp", "t4", LOCK));
+    }
+
+    @Test
+    void aRequestWhoseMarkerExpiredShouldNotReleaseOrOverwriteTheNextClaim() {
+        store.claim("k", "fp", "slow", LOCK);
+        clock.advance(LOCK.plusSeconds(1));
+        assertNull(store.claim("k", "fp", "retry", LOCK));
+
+        // The slow request finally fails or finishes; the retry's claim must survive either way.
+        store.release("k", "fp", "slow");
+        assertFalse(store.claim("k", "fp", "third", LOCK).isComplete());
+        store.complete("k", "slow", new IdempotentResponse("fp", 201, Map.of(), new byte[0]), LOCK);
+        assertFalse(store.claim("k", "fp", "third", LOCK).isComplete());
+
+        store.complete("k", "retry", new IdempotentResponse("fp", 202, Map.of(), new byte[0]), LOCK);
+        assertEquals(202, store.claim("k", "fp", "third", LOCK).status());
+    }
+
+    @Test
+    void fullStoreShouldPruneExpiredEntriesAndOtherwiseStopDeduplicating() {
+        properties.getIdempotency().setMemoryMaxEntries(2);
+        store.claim("a", "fp", "t", Duration.ofSeconds(1));
+        store.claim("b", "fp", "t", LOCK);
+
+        clock.advance(Duration.ofSeconds(2));
+        assertNull(store.claim("c", "fp", "t", LOCK));
+        assertFalse(store.claim("c", "fp", "t", LOCK).isComplete());
+
+        // b and c are live: d runs undeduplicated and is not remembered.
+        assertNull(store.claim("d", "fp", "t", LOCK));
+        store.complete("d", "t", new IdempotentResponse("fp", 201, Map.of(), new byte[0]), LOCK);
+        assertNull(store.claim("d", "fp", "t", LOCK));
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.chatstorage.ingest;
+
+import com.example.chatstorage.entity.SenderType;
+import com.example.chatstorage.exception.IngestUnavailableException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PendingIngestsTest {
+
+    private final PendingIngests pendingIngests = new PendingIngests();
+
+    @Test
+    void awaitShouldReturnAtOnceWhenNothingIsQueued() {
+        pendingIngests.awaitFlushed(UUID.randomUUID(), 0);
+    }
+
+    @Test
+    void awaitShouldReturnOnceTheLastQueuedMessageIsWritten() throws Exception {
+        UUID sessionId = UUID.randomUUID();
+        PendingMessage first = message(sessionId);
+        PendingMessage second = message(sessionId);
+        pendingIngests.add(sessionId);
+        pendingIngests.add(sessionId);
+
+        CompletableFuture<Void> reader = CompletableFuture.runAsync(() -> pendingIngests.awaitFlushed(sessionId, 5000));
+        pendingIngests.remove(List.of(first));
+        assertTrue(pendingIngests.isPending(sessionId));
+        assertFalse(reader.isDone());
+
+        pendingIngests.remove(List.of(second));
+        reader.get(5, TimeUnit.SECONDS);
+        assertFalse(pendingIngests.isPending(sessionId));
+    }
+
+    @Test
+    void awaitShouldGiveUpAfterTheTimeout() {
+        UUID sessionId = UUID.randomUUID();
+        pendingIngests.add(sessionId);
+
+        assertThrows(IngestUnavailableException.class, () -> pendingIngests.awaitFlushed(sessionId, 10));
+    }
+
+    @Test
+    void otherSessionsShouldNotWait() {
+        pendingIngests.add(UUID.randomUUID());
+
+        pendingIngests.awaitFlushed(UUID.randomUUID(), 0);
+    }
+
+    private static PendingMessage message(UUID sessionId) {
+        return new PendingMessage(UUID.randomUUID(), sessionId, "user-1", SenderType.USER, "hi", null, Instant.now(),
+                2, 1, 0, 0, "hi", null);
+    }
+}
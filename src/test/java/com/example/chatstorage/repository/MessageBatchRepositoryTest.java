@@ -0,0 +1,65 @@
+package com.example.chatstorage.repository;
+
+import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.entity.SenderType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageBatchRepositoryTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private MessageBatchRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:batch-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE chat_messages (id UUID PRIMARY KEY, session_id UUID NOT NULL, "
+                + "sender VARCHAR(20) NOT NULL, content TEXT NOT NULL, retrieved_context TEXT, "
+                + "created_at TIMESTAMP WITH TIME ZONE NOT NULL)");
+        repository = new MessageBatchRepository(jdbcTemplate);
+    }
+
+    @Test
+    void shouldReturnTheNewestMessagesOfEachSessionOnly() {
+        UUID busy = UUID.randomUUID();
+        UUID quiet = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        for (int minute = 1; minute <= 5; minute++) {
+            insertMessage(busy, "busy-" + minute, minute);
+        }
+        insertMessage(quiet, "quiet-1", 1);
+        insertMessage(other, "other-1", 9);
+
+        List<ChatMessageResponse> rows = repository.findNewestPerSession(List.of(busy, quiet), 2);
+
+        List<String> busyRows = rows.stream().filter(row -> row.sessionId().equals(busy)).map(ChatMessageResponse::content).toList();
+        List<String> quietRows = rows.stream().filter(row -> row.sessionId().equals(quiet)).map(ChatMessageResponse::content).toList();
+        assertEquals(3, rows.size());
+        assertEquals(List.of("busy-5", "busy-4"), busyRows);
+        assertEquals(List.of("quiet-1"), quietRows);
+        assertEquals("ctx", rows.get(0).retrievedContext());
+    }
+
+    @Test
+    void noSessionsShouldNotQuery() {
+        assertTrue(repository.findNewestPerSession(List.of(), 5).isEmpty());
+    }
+
+    private void insertMessage(UUID sessionId, String content, int minute) {
+        jdbcTemplate.update("INSERT INTO chat_messages (id, session_id, sender, content, retrieved_context, created_at) "
+                        + "VALUES (?, ?, ?, ?, ?, ?)", UUID.randomUUID(), sessionId, SenderType.USER.name(), content, "ctx",
+                OffsetDateTime.of(2025, 1, 1, 0, minute, 0, 0, ZoneOffset.UTC));
+    }
+}
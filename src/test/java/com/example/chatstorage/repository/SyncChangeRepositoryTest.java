@@ -0,0 +1,139 @@
+package com.example.chatstorage.repository;
+
+import com.example.chatstorage.entity.SyncChange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SyncChangeRepositoryTest {
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private SyncChangeRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:sync-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        createTables(jdbcTemplate);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        repository = new SyncChangeRepository(jdbcTemplate);
+    }
+
+    static void createTables(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("CREATE TABLE sync_changes (id UUID PRIMARY KEY, sync_token BIGINT, "
+                + "user_id VARCHAR(100) NOT NULL, session_id UUID NOT NULL, message_id UUID, "
+                + "change_type VARCHAR(20) NOT NULL, changed_at TIMESTAMP WITH TIME ZONE NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE sync_cursors (user_id VARCHAR(100) PRIMARY KEY, "
+                + "last_token BIGINT NOT NULL)");
+    }
+
+    @Test
+    void findAfterShouldReturnTheUsersChangesInOrder() {
+        UUID session = UUID.randomUUID();
+        UUID message = UUID.randomUUID();
+        repository.record("user-1", session, null, SyncChange.Type.SESSION);
+        repository.record("user-2", UUID.randomUUID(), null, SyncChange.Type.SESSION);
+        repository.recordMessages(List.of(new SyncChangeRepository.MessageChange("user-1", session, message)));
+
+        assertEquals(new SyncChangeRepository.Tokens(2, false), assign("user-1", 10));
+
+        assertEquals(List.of(
+                new SyncChangeRepository.Change(1, SyncChange.Type.SESSION, session, null),
+                new SyncChangeRepository.Change(2, SyncChange.Type.MESSAGE, session, message)),
+                repository.findAfter("user-1", 0, 10));
+        assertEquals(List.of(new SyncChangeRepository.Change(2, SyncChange.Type.MESSAGE, session, message)),
+                repository.findAfter("user-1", 1, 10));
+        // Tokens count per user.
+        assertEquals(new SyncChangeRepository.Tokens(1, false), assign("user-2", 10));
+    }
+
+    @Test
+    void changeCommittedLateShouldGetATokenAfterThoseAlreadySynced() throws Exception {
+        UUID late = UUID.randomUUID();
+        try (Connection slow = dataSource.getConnection()) {
+            // Written long before it commits, so neither its write time nor its place in the table can be trusted.
+            slow.setAutoCommit(false);
+            try (PreparedStatement insert = slow.prepareStatement("INSERT INTO sync_changes (id, user_id, session_id, "
+                    + "message_id, change_type, changed_at) VALUES (?, 'user-1', ?, NULL, 'SESSION', ?)")) {
+                insert.setObject(1, UUID.randomUUID());
+                insert.setObject(2, late);
+                insert.setObject(3, Instant.now().minus(1, ChronoUnit.MINUTES).atOffset(ZoneOffset.UTC));
+                insert.executeUpdate();
+            }
+            UUID early = UUID.randomUUID();
+            repository.record("user-1", early, null, SyncChange.Type.SESSION);
+
+            assertEquals(1, assign("user-1", 10).last());
+            assertEquals(List.of(early), sessions(repository.findAfter("user-1", 0, 10)));
+
+            slow.commit();
+        }
+
+        assertEquals(2, assign("user-1", 10).last());
+        assertEquals(List.of(late), sessions(repository.findAfter("user-1", 1, 10)));
+    }
+
+    @Test
+    void assignTokensShouldReportRowsLeftForTheNextRun() {
+        repository.recordSessions("user-1", List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID()),
+                SyncChange.Type.SESSION);
+
+        SyncChangeRepository.Tokens first = assign("user-1", 2);
+        SyncChangeRepository.Tokens second = assign("user-1", 2);
+
+        assertEquals(2, first.last());
+        assertTrue(first.more());
+        assertEquals(3, second.last());
+        assertFalse(second.more());
+        assertEquals(new SyncChangeRepository.Tokens(3, false), assign("user-1", 2));
+    }
+
+    @Test
+    void compactShouldKeepOnlyTombstones() {
+        UUID removed = UUID.randomUUID();
+        UUID kept = UUID.randomUUID();
+        repository.recordSessions("user-1", List.of(removed, kept), SyncChange.Type.SESSION);
+        repository.record("user-1", removed, UUID.randomUUID(), SyncChange.Type.MESSAGE);
+        repository.record("user-1", removed, null, SyncChange.Type.SESSION_DELETED);
+
+        assertEquals(2, repository.compact(List.of(removed)));
+
+        assertEquals(List.of("SESSION", "SESSION_DELETED"), jdbcTemplate.queryForList(
+                "SELECT change_type FROM sync_changes ORDER BY change_type", String.class));
+    }
+
+    @Test
+    void restoredCursorShouldContinueAboveTheSourceTokens() {
+        repository.restoreCursor("user-1", 40);
+        repository.record("user-1", UUID.randomUUID(), null, SyncChange.Type.SESSION);
+
+        assertEquals(40, repository.cursor("user-1"));
+        assertEquals(41, assign("user-1", 10).last());
+    }
+
+    private SyncChangeRepository.Tokens assign(String userId, int max) {
+        return transactionTemplate.execute(status -> repository.assignTokens(userId, max));
+    }
+
+    private static List<UUID> sessions(List<SyncChangeRepository.Change> changes) {
+        return changes.stream().map(SyncChangeRepository.Change::sessionId).toList();
+    }
+}
@@ -2,9 +2,11 @@ package com.example.chatstorage.security;
 
 import com.example.chatstorage.auth.AuthContext;
 import com.example.chatstorage.auth.AuthenticatedApiKey;
+import com.example.chatstorage.bulkhead.BulkheadRegistry;
 import com.example.chatstorage.config.AppProperties;
 import com.example.chatstorage.exception.UnauthorizedException;
 import com.example.chatstorage.service.ApiKeyService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -34,7 +36,7 @@ class ApiKeyAuthFilterTest {
     void setUp() {
         AppProperties properties = new AppProperties();
         properties.getSecurity().setAdminApiKey("admin-secret");
-        filter = new ApiKeyAuthFilter(properties, apiKeyService);
+        filter = new ApiKeyAuthFilter(properties, apiKeyService, new BulkheadRegistry(properties, new SimpleMeterRegistry()));
     }
 
     @Test
@@ -65,6 +67,16 @@ class ApiKeyAuthFilterTest {
         verifyNoInteractions(apiKeyService);
     }
 
+    @Test
+    void shouldRequireAdminKeyForAdminEndpoints() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/admin/shards/migrations");
+        request.addHeader(ApiKeyAuthFilter.API_KEY_HEADER, "csk_x.secret");
+
+        // A user key must never unlock admin-only operations.
+        assertThrows(UnauthorizedException.class, () -> filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain()));
+        verifyNoInteractions(apiKeyService);
+    }
+
     @Test
     void shouldAuthenticateAndAttachContextForChatRead() throws Exception {
         MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/sessions");
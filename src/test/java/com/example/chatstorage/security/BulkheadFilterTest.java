@@ -0,0 +1,100 @@
+package com.example.chatstorage.security;
+
+import com.example.chatstorage.bulkhead.BulkheadContext;
+import com.example.chatstorage.bulkhead.BulkheadRegistry;
+import com.example.chatstorage.bulkhead.RequestClass;
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.exception.BulkheadFullException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BulkheadFilterTest {
+
+    private BulkheadRegistry registry;
+    private BulkheadFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        AppProperties properties = new AppProperties();
+        properties.getBulkhead().setEnabled(true);
+        properties.getBulkhead().getHeavyReads().setMaxConcurrent(1);
+        registry = new BulkheadRegistry(properties, new SimpleMeterRegistry());
+        filter = new BulkheadFilter(registry);
+    }
+
+    @Test
+    void classifyShouldSeparateRequestClasses() {
+        assertEquals(RequestClass.ADMIN, BulkheadFilter.classify(new MockHttpServletRequest("POST", "/api/v1/api-keys")));
+        assertEquals(RequestClass.ADMIN, BulkheadFilter.classify(new MockHttpServletRequest("GET", "/api/v1/admin/shards/users/u")));
+        assertEquals(RequestClass.HEAVY_READS, BulkheadFilter.classify(new MockHttpServletRequest("GET", "/api/v1/sessions/abc/messages")));
+        assertEquals(RequestClass.HEAVY_READS, BulkheadFilter.classify(new MockHttpServletRequest("GET", "/api/v1/sessions/abc/messages/context")));
+        assertEquals(RequestClass.HEAVY_READS, BulkheadFilter.classify(new MockHttpServletRequest("GET", "/api/v1/search/messages")));
+        assertEquals(RequestClass.HEAVY_READS, BulkheadFilter.classify(new MockHttpServletRequest("POST", "/api/v1/search/similar")));
+        assertEquals(RequestClass.HEAVY_READS, BulkheadFilter.classify(new MockHttpServletRequest("GET", "/api/v1/export/history")));
+        assertEquals(RequestClass.READS, BulkheadFilter.classify(new MockHttpServletRequest("GET", "/api/v1/sessions")));
+        assertEquals(RequestClass.WRITES, BulkheadFilter.classify(new MockHttpServletRequest("POST", "/api/v1/sessions/abc/messages")));
+        assertNull(BulkheadFilter.classify(new MockHttpServletRequest("GET", "/actuator/health")));
+        assertNull(BulkheadFilter.classify(new MockHttpServletRequest("POST", "/api/v1/sessions/abc/messages/streams/def/chunks")));
+        assertEquals(RequestClass.READS, BulkheadFilter.classify(new MockHttpServletRequest("GET", "/api/v1/sessions/abc/messages/streams")));
+    }
+
+    @Test
+    void shouldExposeBulkheadToDownstreamAndReleaseAfterwards() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/sessions/abc/messages");
+        AtomicReference<RequestClass> seen = new AtomicReference<>();
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> seen.set(BulkheadContext.current().requestClass()));
+
+        assertEquals(RequestClass.HEAVY_READS, seen.get());
+        assertEquals(0, registry.get(RequestClass.HEAVY_READS).activeCalls());
+        assertNull(BulkheadContext.current());
+    }
+
+    @Test
+    void shouldRejectFastWhenClassIsFull() throws Exception {
+        MockHttpServletRequest outer = new MockHttpServletRequest("GET", "/api/v1/sessions/abc/messages");
+        MockHttpServletRequest inner = new MockHttpServletRequest("GET", "/api/v1/sessions/def/messages");
+        AtomicReference<Throwable> rejection = new AtomicReference<>();
+
+        // The second heavy read arrives while the first still holds the only permit.
+        filter.doFilter(outer, new MockHttpServletResponse(), (req, res) ->
+                rejection.set(assertThrows(BulkheadFullException.class,
+                        () -> filter.doFilter(inner, new MockHttpServletResponse(), new MockFilterChain()))));
+
+        assertEquals(1, registry.get(RequestClass.HEAVY_READS).rejectedCalls());
+    }
+
+    @Test
+    void otherClassesShouldStayAvailableWhenOneIsFull() throws Exception {
+        MockHttpServletRequest heavy = new MockHttpServletRequest("GET", "/api/v1/sessions/abc/messages");
+        MockHttpServletRequest write = new MockHttpServletRequest("POST", "/api/v1/sessions");
+        MockFilterChain writeChain = new MockFilterChain();
+
+        filter.doFilter(heavy, new MockHttpServletResponse(), (req, res) ->
+                filter.doFilter(write, new MockHttpServletResponse(), writeChain));
+
+        assertEquals(write, writeChain.getRequest());
+    }
+
+    @Test
+    void shouldPassThroughWhenDisabled() throws Exception {
+        BulkheadFilter disabled = new BulkheadFilter(new BulkheadRegistry(new AppProperties(), new SimpleMeterRegistry()));
+        MockFilterChain chain = new MockFilterChain();
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/sessions");
+
+        disabled.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertEquals(request, chain.getRequest());
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.chatstorage.security;
+
+import com.example.chatstorage.auth.AuthContext;
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.exception.IdempotencyConflictException;
+import com.example.chatstorage.exception.IdempotencyKeyReuseException;
+import com.example.chatstorage.exception.RequestTooLargeException;
+import com.example.chatstorage.idempotency.IdempotencyStore;
+import com.example.chatstorage.idempotency.InMemoryIdempotencyStore;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IdempotencyFilterTest {
+
+    private static final String BODY = "{\"title\":\"Trip\"}";
+
+    private AppProperties properties;
+    private IdempotencyStore store;
+    private IdempotencyFilter filter;
+    private final AtomicInteger created = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        properties = new AppProperties();
+        properties.getIdempotency().setEnabled(true);
+        store = new InMemoryIdempotencyStore(properties);
+        filter = new IdempotencyFilter(store, properties);
+    }
+
+    @Test
+    void retryWithTheSameKeyShouldReplayTheFirstResponse() throws Exception {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(request("user-1", "key-1", BODY), first, createSession(201));
+
+        MockHttpServletResponse retry = new MockHttpServletResponse();
+        filter.doFilter(request("user-1", "key-1", BODY), retry, createSession(201));
+
+        assertEquals(1, created.get());
+        assertEquals(201, retry.getStatus());
+        assertEquals(first.getContentAsString(), retry.getContentAsString());
+        assertEquals("application/json", retry.getContentType());
+        assertEquals("/api/v1/sessions/1", retry.getHeader("Location"));
+        assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertNull(first.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void keysShouldBeScopedToTheUser() throws Exception {
+        filter.doFilter(request("user-1", "key-1", BODY), new MockHttpServletResponse(), createSession(201));
+        filter.doFilter(request("user-2", "key-1", BODY), new MockHttpServletResponse(), createSession(201));
+
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    void reusingAKeyForADifferentBodyShouldBeRejected() throws Exception {
+        filter.doFilter(request("user-1", "key-1", BODY), new MockHttpServletResponse(), createSession(201));
+
+        assertThrows(IdempotencyKeyReuseException.class, () -> filter.doFilter(
+                request("user-1", "key-1", "{\"title\":\"Other\"}"), new MockHttpServletResponse(), createSession(201)));
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    void concurrentDuplicateShouldGetAConflictWhileTheFirstRuns() throws Exception {
+        FilterChain duplicateInside = (req, res) -> assertThrows(IdempotencyConflictException.class, () ->
+                filter.doFilter(request("user-1", "key-1", BODY), new MockHttpServletResponse(), createSession(201)));
+
+        filter.doFilter(request("user-1", "key-1", BODY), new MockHttpServletResponse(), duplicateInside);
+
+        assertEquals(0, created.get());
+    }
+
+    @Test
+    void failedRequestsShouldReleaseTheKeyForTheRetry() throws Exception {
+        filter.doFilter(request("user-1", "key-1", BODY), new MockHttpServletResponse(), createSession(503));
+        assertThrows(IllegalStateException.class, () -> filter.doFilter(request("user-1", "key-1", BODY),
+                new MockHttpServletResponse(), (req, res) -> {
+                    throw new IllegalStateException("boom");
+                }));
+
+        MockHttpServletResponse retry = new MockHttpServletResponse();
+        filter.doFilter(request("user-1", "key-1", BODY), retry, createSession(201));
+
+        assertEquals(2, created.get());
+        assertEquals(201, retry.getStatus());
+        assertNull(retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void requestsWithoutAKeyOrOutsideCreateEndpointsShouldPassThrough() throws Exception {
+        MockHttpServletRequest noKey = new MockHttpServletRequest("POST", "/api/v1/sessions");
+        noKey.setAttribute(AuthContext.ATTR_USER_ID, "user-1");
+        filter.doFilter(noKey, new MockHttpServletResponse(), createSession(201));
+        filter.doFilter(noKey, new MockHttpServletResponse(), createSession(201));
+
+        MockHttpServletRequest rename = request("user-1", "key-1", BODY);
+        rename.setMethod("PATCH");
+        rename.setRequestURI("/api/v1/sessions/1/name");
+        filter.doFilter(rename, new MockHttpServletResponse(), createSession(200));
+        filter.doFilter(rename, new MockHttpServletResponse(), createSession(200));
+
+        assertEquals(4, created.get());
+    }
+
+    @Test
+    void messageAppendsShouldBeCoveredAndOverlongKeysRejected() throws Exception {
+        MockHttpServletRequest append = request("user-1", "key-2", "{\"sender\":\"USER\",\"content\":\"hi\"}");
+        append.setRequestURI("/api/v1/sessions/3f1c/messages");
+        filter.doFilter(append, new MockHttpServletResponse(), createSession(201));
+        filter.doFilter(append, new MockHttpServletResponse(), createSession(201));
+        assertEquals(1, created.get());
+
+        properties.getIdempotency().setMaxKeyLength(4);
+        assertThrows(IllegalArgumentException.class, () ->
+                filter.doFilter(request("user-1", "too-long", BODY), new MockHttpServletResponse(), createSession(201)));
+    }
+
+    @Test
+    void oversizedBodiesShouldBeRefusedBeforeAnythingIsClaimed() throws Exception {
+        properties.getIdempotency().setMaxRequestBytes(BODY.length() - 1);
+
+        assertThrows(RequestTooLargeException.class, () ->
+                filter.doFilter(request("user-1", "key-1", BODY), new MockHttpServletResponse(), createSession(201)));
+        assertEquals(0, created.get());
+
+        // The key was never claimed, so the request runs once the limit allows it.
+        properties.getIdempotency().setMaxRequestBytes(BODY.length());
+        filter.doFilter(request("user-1", "key-1", BODY), new MockHttpServletResponse(), createSession(201));
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    void storeOutageShouldProcessTheRequestWithoutDeduplication() throws Exception {
+        IdempotencyStore broken = mock(IdempotencyStore.class);
+        when(broken.claim(any(), any(), any(), any(Duration.class))).thenThrow(new IllegalStateException("redis down"));
+        IdempotencyFilter degraded = new IdempotencyFilter(broken, properties);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        degraded.doFilter(request("user-1", "key-1", BODY), response, createSession(201));
+
+        assertEquals(1, created.get());
+        assertEquals(201, response.getStatus());
+    }
+
+    private static MockHttpServletRequest request(String userId, String key, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/sessions");
+        request.setAttribute(AuthContext.ATTR_USER_ID, userId);
+        request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key);
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    // Stands in for the controller: reads the body like Jackson would and answers with a new id.
+    private FilterChain createSession(int status) {
+        return (req, res) -> {
+            String body = new String(req.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            int id = created.incrementAndGet();
+            HttpServletResponse response = (HttpServletResponse) res;
+            response.setStatus(status);
+            response.setContentType("application/json");
+            response.setHeader("Location", "/api/v1/sessions/" + id);
+            response.getWriter().write("{\"id\":" + id + ",\"request\":" + body + "}");
+        };
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.chatstorage.security;
+
+import com.example.chatstorage.config.AppProperties;
+import com.github.luben.zstd.ZstdInputStream;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseCompressionFilterTest {
+
+    private static final byte[] LARGE = ("{\"items\":[" + "{\"content\":\"hello world\"},".repeat(400) + "{}]}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private AppProperties properties;
+    private ResponseCompressionFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AppProperties();
+        filter = new ResponseCompressionFilter(properties);
+    }
+
+    @Test
+    void largeJsonShouldBeEncodedWithZstdAndEtagNamingTheCoding() throws Exception {
+        MockHttpServletResponse response = run("gzip, zstd", "application/json", LARGE, "\"abc\"");
+
+        assertEquals("zstd", response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        assertEquals("\"abc-zstd\"", response.getHeader("ETag"));
+        assertNull(response.getHeader("Content-Length"));
+        assertTrue(response.getContentAsByteArray().length < LARGE.length / 4);
+        try (InputStream in = new ZstdInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertArrayEquals(LARGE, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void revalidatingACompressedCopyShouldGetA304WithItsEtag() throws Exception {
+        MockHttpServletResponse response = revalidate("\"abc-zstd\"", "abc");
+
+        assertEquals(304, response.getStatus());
+        assertEquals("\"abc-zstd\"", response.getHeader("ETag"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void revalidatingAStaleCompressedCopyShouldGetTheNewBody() throws Exception {
+        MockHttpServletResponse response = revalidate("\"abc-zstd\"", "def");
+
+        assertEquals(200, response.getStatus());
+        assertEquals("zstd", response.getHeader("Content-Encoding"));
+        assertEquals("\"def-zstd\"", response.getHeader("ETag"));
+    }
+
+    @Test
+    void gzipShouldBeUsedWhenZstdIsNotAccepted() throws Exception {
+        MockHttpServletResponse response = run("gzip", "application/cbor", LARGE, null);
+
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertArrayEquals(LARGE, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void smallBodyShouldGoOutRawWithContentLength() throws Exception {
+        byte[] small = "{\"ok\":true}".getBytes(StandardCharsets.UTF_8);
+
+        MockHttpServletResponse response = run("zstd", "application/json", small, "\"abc\"");
+
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals("\"abc\"", response.getHeader("ETag"));
+        assertEquals(String.valueOf(small.length), response.getHeader("Content-Length"));
+        assertArrayEquals(small, response.getContentAsByteArray());
+    }
+
+    @Test
+    void nonCompressibleTypesAndIdentityClientsShouldPassThrough() throws Exception {
+        MockHttpServletResponse events = run("zstd", "text/event-stream", LARGE, null);
+        assertNull(events.getHeader("Content-Encoding"));
+        assertArrayEquals(LARGE, events.getContentAsByteArray());
+
+        MockHttpServletResponse identity = run(null, "application/json", LARGE, null);
+        assertNull(identity.getHeader("Content-Encoding"));
+        assertArrayEquals(LARGE, identity.getContentAsByteArray());
+    }
+
+    @Test
+    void writerOutputShouldBeCompressedToo() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/sessions");
+        request.addHeader("Accept-Encoding", "gzip");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        String body = new String(LARGE, StandardCharsets.UTF_8);
+
+        filter.doFilter(request, response, (req, res) -> {
+            res.setContentType("application/json");
+            res.setCharacterEncoding("UTF-8");
+            res.getWriter().write(body);
+            res.flushBuffer();
+        });
+
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertEquals(body, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void disabledOrHeadRequestsShouldNotBeWrapped() throws Exception {
+        MockHttpServletRequest head = new MockHttpServletRequest("HEAD", "/api/v1/sessions");
+        head.addHeader("Accept-Encoding", "zstd");
+        assertTrue(filter.shouldNotFilter(head));
+
+        properties.getCompression().setEnabled(false);
+        assertTrue(filter.shouldNotFilter(new MockHttpServletRequest("GET", "/api/v1/sessions")));
+    }
+
+    @Test
+    void asyncResponsesShouldStreamUncompressed() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/sessions/x/events");
+        request.setAsyncSupported(true);
+        request.addHeader("Accept-Encoding", "zstd");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> {
+            res.setContentType("application/json");
+            req.startAsync();
+            res.getOutputStream().write('{');
+        });
+
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals("{", response.getContentAsString());
+    }
+
+    // The handler compares its identity ETag, as ConditionalGet does, and writes the body only when it changed.
+    private MockHttpServletResponse revalidate(String ifNoneMatch, String currentEtag) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/sessions");
+        request.addHeader("Accept-Encoding", "zstd");
+        request.addHeader("If-None-Match", ifNoneMatch);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (req, res) -> {
+            ServletWebRequest webRequest = new ServletWebRequest((HttpServletRequest) req, (HttpServletResponse) res);
+            if (webRequest.checkNotModified(currentEtag)) {
+                return;
+            }
+            res.setContentType("application/json");
+            res.getOutputStream().write(LARGE);
+        });
+        return response;
+    }
+
+    private MockHttpServletResponse run(String acceptEncoding, String contentType, byte[] body, String etag) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/sessions/x/messages");
+        if (acceptEncoding != null) {
+            request.addHeader("Accept-Encoding", acceptEncoding);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        // Written in two parts with a flush between, the way converters stream larger bodies.
+        FilterChain chain = (req, res) -> {
+            res.setContentType(contentType);
+            if (etag != null) {
+                ((HttpServletResponse) res).setHeader("ETag", etag);
+            }
+            int half = body.length / 2;
+            res.getOutputStream().write(body, 0, half);
+            res.getOutputStream().flush();
+            res.getOutputStream().write(body, half, body.length - half);
+        };
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.chatstorage.security;
+
+import com.example.chatstorage.auth.AuthContext;
+import com.example.chatstorage.exception.ShardMigrationInProgressException;
+import com.example.chatstorage.sharding.ShardContext;
+import com.example.chatstorage.sharding.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardContextFilterTest {
+
+    private ShardRouter shardRouter;
+    private ShardContextFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        shardRouter = new ShardRouter(List.of("a", "b"), 16);
+        filter = new ShardContextFilter(shardRouter);
+    }
+
+    @Test
+    void shouldBindUserShardForTheRequestOnly() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/sessions");
+        request.setAttribute(AuthContext.ATTR_USER_ID, "user-1");
+        AtomicReference<String> seen = new AtomicReference<>();
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> seen.set(ShardContext.current()));
+
+        assertEquals(shardRouter.shardFor("user-1"), seen.get());
+        assertNull(ShardContext.current());
+    }
+
+    @Test
+    void shouldLeaveContextEmptyForUnauthenticatedRequests() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/api-keys");
+        AtomicReference<String> seen = new AtomicReference<>("unset");
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> seen.set(ShardContext.current()));
+
+        assertNull(seen.get());
+    }
+
+    @Test
+    void writesShouldHoldBackTheDrainUntilTheyFinish() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/sessions");
+        request.setAttribute(AuthContext.ATTR_USER_ID, "user-1");
+        AtomicReference<Boolean> drainedDuringRequest = new AtomicReference<>();
+
+        filter.doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> drainedDuringRequest.set(shardRouter.writesDrained(shardRouter.writeMark())));
+
+        assertFalse(drainedDuringRequest.get());
+        assertTrue(shardRouter.writesDrained(shardRouter.writeMark()));
+    }
+
+    @Test
+    void shouldRejectWritesWhileUserIsMigrating() {
+        shardRouter.markMigrating("user-1");
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/sessions");
+        request.setAttribute(AuthContext.ATTR_USER_ID, "user-1");
+
+        assertThrows(ShardMigrationInProgressException.class,
+                () -> filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain()));
+        assertTrue(shardRouter.writesDrained(shardRouter.writeMark()));
+    }
+
+    @Test
+    void shouldKeepServingReadsWhileUserIsMigrating() throws Exception {
+        shardRouter.markMigrating("user-1");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/sessions");
+        request.setAttribute(AuthContext.ATTR_USER_ID, "user-1");
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertEquals(request, chain.getRequest());
+    }
+}
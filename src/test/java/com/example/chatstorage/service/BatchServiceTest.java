@@ -0,0 +1,164 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.dto.AddMessageRequest;
+import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.dto.ChatSessionResponse;
+import com.example.chatstorage.dto.CreateSessionRequest;
+import com.example.chatstorage.dto.PageResponse;
+import com.example.chatstorage.dto.UpdateSessionNameRequest;
+import com.example.chatstorage.dto.batch.BatchOperation;
+import com.example.chatstorage.dto.batch.BatchRequest;
+import com.example.chatstorage.entity.SenderType;
+import com.example.chatstorage.exception.BatchDependencyException;
+import com.example.chatstorage.exception.NotFoundException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BatchServiceTest {
+
+    @Mock
+    private ChatSessionService chatSessionService;
+
+    @Mock
+    private ChatMessageService chatMessageService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private AppProperties properties;
+    private BatchService batchService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AppProperties();
+        batchService = new BatchService(chatSessionService, chatMessageService, new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator(), transactionManager, properties);
+    }
+
+    @Test
+    void laterOperationsShouldReferToIdsReturnedEarlierAndOutliveUnrelatedFailures() {
+        UUID sessionId = UUID.randomUUID();
+        UUID missing = UUID.randomUUID();
+        when(chatSessionService.createSession("user-1", new CreateSessionRequest("Trip"))).thenReturn(session(sessionId));
+        AddMessageRequest message = new AddMessageRequest(SenderType.USER, "hi", null);
+        when(chatMessageService.addMessage(sessionId, "user-1", message))
+                .thenReturn(new ChatMessageResponse(UUID.randomUUID(), sessionId, SenderType.USER, "hi", null, Instant.now()));
+        when(chatSessionService.renameSession(missing, "user-1", new UpdateSessionNameRequest("New")))
+                .thenThrow(new NotFoundException("Session not found: " + missing));
+
+        List<BatchService.Outcome> outcomes = batchService.execute("user-1", new BatchRequest(List.of(
+                operation("POST", "/api/v1/sessions", Map.of("title", "Trip")),
+                operation("PATCH", "/api/v1/sessions/" + missing + "/rename", Map.of("title", "New")),
+                operation("post", "/api/v1/sessions/$0/messages", Map.of("sender", "USER", "content", "hi"))
+        ), false));
+
+        assertEquals(201, outcomes.get(0).status());
+        assertInstanceOf(NotFoundException.class, outcomes.get(1).error());
+        assertEquals(201, outcomes.get(2).status());
+        assertFalse(outcomes.get(2).failed());
+    }
+
+    @Test
+    void referringToAFailedOperationShouldFailWithIt() {
+        when(chatSessionService.createSession("user-1", new CreateSessionRequest("Trip")))
+                .thenThrow(new IllegalStateException("database down"));
+
+        List<BatchService.Outcome> outcomes = batchService.execute("user-1", new BatchRequest(List.of(
+                operation("POST", "/api/v1/sessions", Map.of("title", "Trip")),
+                operation("DELETE", "/api/v1/sessions/$0", null),
+                operation("DELETE", "/api/v1/sessions/$1", null)
+        ), false));
+
+        assertInstanceOf(IllegalStateException.class, outcomes.get(0).error());
+        assertInstanceOf(BatchDependencyException.class, outcomes.get(1).error());
+        // A delete returns no id, so it cannot be referred to either.
+        assertInstanceOf(BatchDependencyException.class, outcomes.get(2).error());
+        verify(chatSessionService, never()).deleteSession(any(), any());
+    }
+
+    @Test
+    void atomicBatchShouldRollBackAndStopAtTheFirstFailure() {
+        SimpleTransactionStatus transaction = new SimpleTransactionStatus();
+        when(transactionManager.getTransaction(any())).thenReturn(transaction);
+        UUID sessionId = UUID.randomUUID();
+        when(chatSessionService.createSession("user-1", new CreateSessionRequest("Trip"))).thenReturn(session(sessionId));
+
+        List<BatchService.Outcome> outcomes = batchService.execute("user-1", new BatchRequest(List.of(
+                operation("POST", "/api/v1/sessions", Map.of("title", "Trip")),
+                operation("PATCH", "/api/v1/sessions/$0/rename", Map.of("title", " ")),
+                operation("DELETE", "/api/v1/sessions/$0", null)
+        ), true));
+
+        assertTrue(transaction.isRollbackOnly());
+        assertEquals("Rolled back: operation 1 failed", outcomes.get(0).error().getMessage());
+        assertInstanceOf(ConstraintViolationException.class, outcomes.get(1).error());
+        assertEquals("Not run: operation 1 failed", outcomes.get(2).error().getMessage());
+        verify(chatSessionService, never()).renameSession(any(), any(), any());
+        verify(chatSessionService, never()).deleteSession(any(), any());
+    }
+
+    @Test
+    void listMessagesShouldTakePageAndSizeFromTheQuery() {
+        UUID sessionId = UUID.randomUUID();
+        PageResponse<ChatMessageResponse> page = new PageResponse<>(List.of(), 1, 10, 0, 0, false);
+        when(chatMessageService.listMessages(sessionId, "user-1", PageRequest.of(1, 10, Sort.by(Sort.Direction.ASC, "createdAt"))))
+                .thenReturn(page);
+
+        List<BatchService.Outcome> outcomes = batchService.execute("user-1", new BatchRequest(List.of(
+                operation("GET", "/api/v1/sessions/" + sessionId + "/messages?page=1&size=10", null),
+                operation("PUT", "/api/v1/sessions/" + sessionId, null),
+                operation("GET", "/api/v1/export", null)
+        ), false));
+
+        assertEquals(200, outcomes.get(0).status());
+        assertEquals(page, outcomes.get(0).body());
+        assertInstanceOf(IllegalArgumentException.class, outcomes.get(1).error());
+        assertInstanceOf(IllegalArgumentException.class, outcomes.get(2).error());
+    }
+
+    @Test
+    void oversizedBatchShouldBeRejectedBeforeRunningAnything() {
+        properties.getBatch().setMaxOperations(2);
+        BatchOperation create = operation("POST", "/api/v1/sessions", Map.of());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> batchService.execute("user-1", new BatchRequest(Collections.nCopies(3, create), false)));
+        verify(chatSessionService, never()).createSession(any(), any());
+    }
+
+    private static BatchOperation operation(String method, String path, Map<String, Object> body) {
+        return new BatchOperation(method, path, body);
+    }
+
+    private static ChatSessionResponse session(UUID id) {
+        return new ChatSessionResponse(id, "user-1", "Trip", false, Instant.now(), Instant.now(), 0, 0, null, null, null);
+    }
+}
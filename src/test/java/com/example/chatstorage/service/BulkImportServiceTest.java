@@ -0,0 +1,212 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.cache.MessageTailCache;
+import com.example.chatstorage.cache.SessionIndexCache;
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.dto.imports.BulkImportResponse;
+import com.example.chatstorage.exception.ShardMigrationInProgressException;
+import com.example.chatstorage.repository.BulkImportRepository;
+import com.example.chatstorage.sharding.ShardRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BulkImportServiceTest {
+
+    @Mock
+    private MessageTailCache messageTailCache;
+
+    @Mock
+    private SessionIndexCache sessionIndexCache;
+
+    @Mock
+    private ObjectProvider<ShardRouter> shardRouter;
+
+    private JdbcTemplate jdbcTemplate;
+    private AppProperties appProperties;
+    private BulkImportService service;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:import-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE chat_sessions (id UUID PRIMARY KEY, user_id VARCHAR(100) NOT NULL, "
+                + "title VARCHAR(200) NOT NULL, favorite BOOLEAN NOT NULL, created_at TIMESTAMP WITH TIME ZONE NOT NULL, "
+                + "updated_at TIMESTAMP WITH TIME ZONE NOT NULL, message_count BIGINT DEFAULT 0 NOT NULL, "
+                + "total_content_bytes BIGINT DEFAULT 0 NOT NULL, last_message_at TIMESTAMP WITH TIME ZONE, "
+                + "last_sender VARCHAR(20), last_message_preview VARCHAR(200))");
+        jdbcTemplate.execute("CREATE TABLE chat_messages (id UUID PRIMARY KEY, session_id UUID NOT NULL, "
+                + "sender VARCHAR(20) NOT NULL, content TEXT NOT NULL, retrieved_context TEXT, "
+                + "created_at TIMESTAMP WITH TIME ZONE NOT NULL, content_bytes INTEGER DEFAULT 0 NOT NULL, "
+                + "content_tokens INTEGER DEFAULT 0 NOT NULL, context_bytes INTEGER DEFAULT 0 NOT NULL, "
+                + "context_tokens INTEGER DEFAULT 0 NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE sync_changes (id UUID PRIMARY KEY, sync_token BIGINT, "
+                + "user_id VARCHAR(100) NOT NULL, session_id UUID NOT NULL, message_id UUID, "
+                + "change_type VARCHAR(20) NOT NULL, changed_at TIMESTAMP WITH TIME ZONE NOT NULL)");
+        appProperties = new AppProperties();
+        service = new BulkImportService(new BulkImportRepository(jdbcTemplate), new DataSourceTransactionManager(dataSource),
+                new ObjectMapper(), messageTailCache, sessionIndexCache, shardRouter, appProperties);
+    }
+
+    @Test
+    void importShouldInsertSessionsAndMessagesAndMaintainSummaries() {
+        UUID session = new UUID(0, 1);
+        UUID first = new UUID(0, 10);
+        UUID second = new UUID(0, 11);
+
+        BulkImportResponse response = service.importHistory(" user-1 ", ndjson(
+                sessionLine(session, "Trip", "2024-01-01T00:00:00Z"),
+                messageLine(first, session, "USER", "hello", "2024-01-01T00:00:01Z"),
+                "",
+                messageLine(second, session, "ASSISTANT", "hi there", "2024-01-01T00:00:02Z")));
+
+        assertEquals("user-1", response.userId());
+        assertEquals(4, response.linesRead());
+        assertEquals(1, response.sessionsImported());
+        assertEquals(2, response.messagesImported());
+        assertEquals(0, response.rejectedCount());
+        Map<String, Object> row = jdbcTemplate.queryForMap("SELECT * FROM chat_sessions WHERE id = ?", session);
+        assertEquals("user-1", row.get("USER_ID"));
+        assertEquals(2L, ((Number) row.get("MESSAGE_COUNT")).longValue());
+        assertEquals(13L, ((Number) row.get("TOTAL_CONTENT_BYTES")).longValue());
+        assertEquals("ASSISTANT", row.get("LAST_SENDER"));
+        assertEquals("hi there", row.get("LAST_MESSAGE_PREVIEW"));
+        assertEquals(Instant.parse("2024-01-01T00:00:02Z"), instant(row.get("UPDATED_AT")));
+        // Synced clients see the import as one new session and its two messages.
+        assertEquals(List.of("MESSAGE", "MESSAGE", "SESSION"), jdbcTemplate.queryForList(
+                "SELECT change_type FROM sync_changes WHERE user_id = 'user-1' ORDER BY change_type", String.class));
+        verify(messageTailCache).evict(session);
+        verify(sessionIndexCache).evict("user-1");
+    }
+
+    @Test
+    void importShouldBeIdempotentAcrossChunks() {
+        appProperties.getBulkImport().setBatchSize(2);
+        UUID session = new UUID(0, 1);
+        InputStream body = ndjson(
+                sessionLine(session, "Trip", "2024-01-01T00:00:00Z"),
+                messageLine(new UUID(0, 10), session, "USER", "one", "2024-01-01T00:00:01Z"),
+                messageLine(new UUID(0, 11), session, "USER", "two", "2024-01-01T00:00:02Z"),
+                messageLine(new UUID(0, 12), session, "USER", "three", "2024-01-01T00:00:03Z"));
+        service.importHistory("user-1", body);
+
+        BulkImportResponse again = service.importHistory("user-1", ndjson(
+                sessionLine(session, "Trip", "2024-01-01T00:00:00Z"),
+                messageLine(new UUID(0, 10), session, "USER", "one", "2024-01-01T00:00:01Z"),
+                messageLine(new UUID(0, 13), session, "USER", "four", "2024-01-01T00:00:04Z")));
+
+        assertEquals(0, again.sessionsImported());
+        assertEquals(1, again.sessionsSkipped());
+        assertEquals(1, again.messagesImported());
+        assertEquals(1, again.messagesSkipped());
+        assertEquals(4L, jdbcTemplate.queryForObject("SELECT message_count FROM chat_sessions", Long.class).longValue());
+        assertEquals("four", jdbcTemplate.queryForObject("SELECT last_message_preview FROM chat_sessions", String.class));
+        // Skipped duplicates are not reported as changes again.
+        assertEquals(5, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sync_changes", Integer.class));
+    }
+
+    @Test
+    void importShouldReportRejectedLinesWithoutFailingTheRest() {
+        appProperties.getBulkImport().setMaxReportedRejections(3);
+        UUID foreign = new UUID(0, 2);
+        jdbcTemplate.update("INSERT INTO chat_sessions (id, user_id, title, favorite, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)",
+                foreign, "user-2", "Theirs", false, OffsetDateTime.now(ZoneOffset.UTC), OffsetDateTime.now(ZoneOffset.UTC));
+        UUID mine = new UUID(0, 1);
+
+        BulkImportResponse response = service.importHistory("user-1", ndjson(
+                "not json",
+                sessionLine(foreign, "Hijack", "2024-01-01T00:00:00Z"),
+                messageLine(new UUID(0, 20), foreign, "USER", "sneaky", "2024-01-01T00:00:01Z"),
+                sessionLine(mine, "Mine", "2024-01-01T00:00:00Z"),
+                messageLine(new UUID(0, 21), mine, "ROBOT", "bad sender", "2024-01-01T00:00:01Z"),
+                messageLine(new UUID(0, 22), mine, "USER", "kept", "2024-01-01T00:00:01Z")));
+
+        assertEquals(1, response.sessionsImported());
+        assertEquals(1, response.messagesImported());
+        assertEquals(4, response.rejectedCount());
+        assertEquals(3, response.rejections().size());
+        assertEquals(1, response.rejections().get(0).line());
+        assertEquals("invalid JSON", response.rejections().get(0).reason());
+        assertEquals("user-2", jdbcTemplate.queryForObject("SELECT user_id FROM chat_sessions WHERE id = ?", String.class, foreign));
+        assertEquals(0L, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chat_messages WHERE session_id = ?", Long.class, foreign).longValue());
+    }
+
+    @Test
+    void importShouldValidateFieldsPerLine() {
+        UUID session = new UUID(0, 1);
+
+        BulkImportResponse response = service.importHistory("user-1", ndjson(
+                "{\"type\":\"session\",\"id\":\"nope\"}",
+                "{\"type\":\"folder\",\"id\":\"" + new UUID(0, 3) + "\"}",
+                sessionLine(session, "Trip", "2024-01-01T00:00:00Z"),
+                sessionLine(session, "Trip again", "2024-01-01T00:00:00Z"),
+                messageLine(new UUID(0, 30), session, "USER", " ", "2024-01-01T00:00:01Z"),
+                messageLine(new UUID(0, 31), session, "USER", "ok", "yesterday"),
+                messageLine(new UUID(0, 32), session, "USER", "nul\\u0000byte", "2024-01-01T00:00:01Z")));
+
+        assertEquals(5, response.rejectedCount());
+        assertTrue(response.rejections().stream().anyMatch(rejection -> rejection.reason().equals("id must be a UUID")));
+        assertTrue(response.rejections().stream().anyMatch(rejection -> rejection.reason().equals("duplicate id in import")));
+        assertEquals("nulbyte", jdbcTemplate.queryForObject("SELECT content FROM chat_messages", String.class));
+    }
+
+    @Test
+    void importShouldRefuseUsersThatAreMigrating() {
+        ShardRouter router = new ShardRouter(List.of("a", "b"), 16);
+        router.markMigrating("user-1");
+        when(shardRouter.getIfAvailable()).thenReturn(router);
+
+        assertThrows(ShardMigrationInProgressException.class, () -> service.importHistory("user-1", ndjson()));
+        verify(sessionIndexCache, never()).evict(any(String.class));
+    }
+
+    @Test
+    void importShouldRejectBlankUser() {
+        assertThrows(IllegalArgumentException.class, () -> service.importHistory(" ", ndjson()));
+    }
+
+    private static InputStream ndjson(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String sessionLine(UUID id, String title, String createdAt) {
+        return "{\"type\":\"session\",\"id\":\"" + id + "\",\"title\":\"" + title + "\",\"favorite\":false,"
+                + "\"createdAt\":\"" + createdAt + "\",\"updatedAt\":\"" + createdAt + "\"}";
+    }
+
+    private static String messageLine(UUID id, UUID sessionId, String sender, String content, String createdAt) {
+        return "{\"type\":\"message\",\"id\":\"" + id + "\",\"sessionId\":\"" + sessionId + "\",\"sender\":\"" + sender
+                + "\",\"content\":\"" + content + "\",\"retrievedContext\":null,\"createdAt\":\"" + createdAt + "\"}";
+    }
+
+    private static Instant instant(Object value) {
+        return value instanceof OffsetDateTime offsetDateTime ? offsetDateTime.toInstant() : Instant.parse(value.toString());
+    }
+}
@@ -1,24 +1,56 @@
 package com.example.chatstorage.service;
 
+import com.example.chatstorage.cache.MessageTailCache;
+import com.example.chatstorage.config.AppProperties;
 import com.example.chatstorage.dto.AddMessageRequest;
+import com.example.chatstorage.dto.BatchMessagesResponse;
+import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.dto.ContextWindowResponse;
 import com.example.chatstorage.entity.ChatMessage;
 import com.example.chatstorage.entity.ChatSession;
+import com.example.chatstorage.entity.MessageEmbedding;
 import com.example.chatstorage.entity.SenderType;
+import com.example.chatstorage.entity.SyncChange;
+import com.example.chatstorage.events.SessionEvent;
+import com.example.chatstorage.events.SessionEventPublisher;
+import com.example.chatstorage.exception.IngestUnavailableException;
+import com.example.chatstorage.ingest.PendingIngests;
 import com.example.chatstorage.repository.ChatMessageRepository;
+import com.example.chatstorage.repository.MessageBatchRepository;
+import com.example.chatstorage.repository.MessageEmbeddingRepository;
+import com.example.chatstorage.repository.SyncChangeRepository;
+import com.example.chatstorage.vector.VectorCodec;
+import com.example.chatstorage.vector.VectorIndexManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -31,11 +63,97 @@ class ChatMessageServiceTest {
     @Mock
     private ChatSessionService sessionService;
 
+    @Mock
+    private MessageTailCache messageTailCache;
+
+    @Mock
+    private MessageEmbeddingRepository embeddingRepository;
+
+    @Mock
+    private VectorIndexManager vectorIndexManager;
+
+    @Mock
+    private SessionEventPublisher sessionEventPublisher;
+
+    @Mock
+    private MessageBatchRepository messageBatchRepository;
+
+    @Mock
+    private SyncChangeRepository syncChangeRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final PendingIngests pendingIngests = new PendingIngests();
+
     private ChatMessageService messageService;
 
     @BeforeEach
     void setUp() {
-        messageService = new ChatMessageService(messageRepository, sessionService);
+        messageService = new ChatMessageService(messageRepository, sessionService, messageTailCache,
+                embeddingRepository, vectorIndexManager, sessionEventPublisher, pendingIngests, new AppProperties(),
+                messageBatchRepository, syncChangeRepository, transactionManager);
+    }
+
+    @Test
+    void addMessageShouldStoreAndIndexEmbedding() {
+        UUID sessionId = UUID.randomUUID();
+        ChatSession session = new ChatSession();
+        session.setId(sessionId);
+        float[] embedding = {0.5f, -1f, 2f};
+
+        when(sessionService.sessionForAppend(sessionId, "user-1")).thenReturn(session);
+        when(vectorIndexManager.maxDimensions()).thenReturn(4096);
+        when(vectorIndexManager.isEnabled()).thenReturn(true);
+        when(vectorIndexManager.dimensions("user-1")).thenReturn(3);
+        when(messageRepository.save(any(ChatMessage.class))).thenAnswer(invocation -> {
+            ChatMessage message = invocation.getArgument(0);
+            message.setId(UUID.randomUUID());
+            message.onCreate();
+            return message;
+        });
+
+        var response = messageService.addMessage(sessionId, "user-1",
+                new AddMessageRequest(SenderType.USER, "hi", null, embedding));
+
+        ArgumentCaptor<MessageEmbedding> saved = ArgumentCaptor.forClass(MessageEmbedding.class);
+        verify(embeddingRepository).save(saved.capture());
+        assertEquals(response.id(), saved.getValue().getId());
+        assertEquals(3, saved.getValue().getDimensions());
+        assertEquals(List.of(0.5f, -1f, 2f), boxed(VectorCodec.fromBytes(saved.getValue().getVector())));
+        verify(vectorIndexManager).add("user-1", response.id(), sessionId, response.createdAt(), embedding);
+        verify(syncChangeRepository).record("user-1", sessionId, response.id(), SyncChange.Type.MESSAGE);
+    }
+
+    @Test
+    void addMessageShouldRejectEmbeddingWithDifferentDimensions() {
+        UUID sessionId = UUID.randomUUID();
+        when(sessionService.sessionForAppend(sessionId, "user-1")).thenReturn(new ChatSession());
+        when(vectorIndexManager.maxDimensions()).thenReturn(4096);
+        when(vectorIndexManager.isEnabled()).thenReturn(true);
+        when(vectorIndexManager.dimensions("user-1")).thenReturn(8);
+
+        assertThrows(IllegalArgumentException.class, () -> messageService.addMessage(sessionId, "user-1",
+                new AddMessageRequest(SenderType.USER, "hi", null, new float[]{1f, 2f})));
+        verify(messageRepository, never()).save(any());
+    }
+
+    @Test
+    void addMessageShouldRejectZeroEmbedding() {
+        UUID sessionId = UUID.randomUUID();
+        when(sessionService.sessionForAppend(sessionId, "user-1")).thenReturn(new ChatSession());
+        when(vectorIndexManager.maxDimensions()).thenReturn(4096);
+
+        assertThrows(IllegalArgumentException.class, () -> messageService.addMessage(sessionId, "user-1",
+                new AddMessageRequest(SenderType.USER, "hi", null, new float[]{0f, 0f})));
+    }
+
+    private static List<Float> boxed(float[] values) {
+        List<Float> list = new ArrayList<>();
+        for (float value : values) {
+            list.add(value);
+        }
+        return list;
     }
 
     @Test
@@ -45,7 +163,7 @@ class ChatMessageServiceTest {
         session.setId(sessionId);
 
         // Ownership check happens before writing any message.
-        when(sessionService.getSessionOrThrow(sessionId, "user-1")).thenReturn(session);
+        when(sessionService.sessionForAppend(sessionId, "user-1")).thenReturn(session);
         when(messageRepository.save(any(ChatMessage.class))).thenAnswer(invocation -> {
             ChatMessage message = invocation.getArgument(0);
             message.setId(UUID.randomUUID());
@@ -60,6 +178,83 @@ class ChatMessageServiceTest {
         assertEquals("hello", response.content());
         assertEquals("ctx", response.retrievedContext());
         verify(messageRepository).save(any(ChatMessage.class));
+        verify(sessionService).recordMessage(eq(sessionId), eq("user-1"), any(ChatMessage.class));
+    }
+
+    @Test
+    void addMessageWithAReservedIdShouldReturnTheStoredRowInsteadOfWritingAgain() {
+        UUID sessionId = UUID.randomUUID();
+        UUID messageId = UUID.randomUUID();
+        ChatSession session = new ChatSession();
+        session.setId(sessionId);
+        ChatMessage stored = new ChatMessage();
+        stored.setId(messageId);
+        stored.setSession(session);
+        stored.setSender(SenderType.ASSISTANT);
+        stored.setContent("reply");
+        stored.onCreate();
+        when(sessionService.sessionForAppend(sessionId, "user-1")).thenReturn(session);
+        when(messageRepository.findById(messageId)).thenReturn(Optional.of(stored));
+
+        var response = messageService.addMessage(sessionId, "user-1",
+                new AddMessageRequest(SenderType.ASSISTANT, "reply", null), messageId);
+
+        assertEquals(messageId, response.id());
+        verify(messageRepository, never()).save(any());
+        verify(sessionService, never()).recordMessage(any(), any(), any());
+        verify(syncChangeRepository, never()).record(any(), any(), any(), any());
+    }
+
+    @Test
+    void addMessageWithANewReservedIdShouldInsertItWithoutMerging() {
+        UUID sessionId = UUID.randomUUID();
+        UUID messageId = UUID.randomUUID();
+        ChatSession session = new ChatSession();
+        session.setId(sessionId);
+        when(sessionService.sessionForAppend(sessionId, "user-1")).thenReturn(session);
+        when(messageRepository.findById(messageId)).thenReturn(Optional.empty());
+        List<Boolean> newAtSave = new ArrayList<>();
+        when(messageRepository.saveAndFlush(any(ChatMessage.class))).thenAnswer(invocation -> {
+            ChatMessage message = invocation.getArgument(0);
+            // Spring Data persists rather than merges only entities that report themselves new.
+            newAtSave.add(message.isNew());
+            message.onCreate();
+            return message;
+        });
+
+        var response = messageService.addMessage(sessionId, "user-1",
+                new AddMessageRequest(SenderType.ASSISTANT, "reply", null), messageId);
+
+        assertEquals(messageId, response.id());
+        assertEquals(List.of(true), newAtSave);
+        verify(syncChangeRepository).record("user-1", sessionId, messageId, SyncChange.Type.MESSAGE);
+    }
+
+    @Test
+    void addMessageThatLosesTheInsertOfItsReservedIdShouldReturnTheWinnersRow() {
+        UUID sessionId = UUID.randomUUID();
+        UUID messageId = UUID.randomUUID();
+        ChatSession session = new ChatSession();
+        session.setId(sessionId);
+        ChatMessage winner = new ChatMessage();
+        winner.setId(messageId);
+        winner.setSession(session);
+        winner.setSender(SenderType.ASSISTANT);
+        winner.setContent("reply");
+        winner.onCreate();
+        when(sessionService.sessionForAppend(sessionId, "user-1")).thenReturn(session);
+        // Both retries found no row; the other one committed its insert first.
+        when(messageRepository.findById(messageId)).thenReturn(Optional.empty(), Optional.of(winner));
+        when(messageRepository.saveAndFlush(any(ChatMessage.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key value violates unique constraint"));
+
+        var response = messageService.addMessage(sessionId, "user-1",
+                new AddMessageRequest(SenderType.ASSISTANT, "reply", null), messageId);
+
+        assertEquals(messageId, response.id());
+        assertEquals(winner.getCreatedAt(), response.createdAt());
+        verify(sessionService, never()).recordMessage(any(), any(), any());
+        verify(syncChangeRepository, never()).record(any(), any(), any(), any());
     }
 
     @Test
@@ -67,7 +262,6 @@ class ChatMessageServiceTest {
         UUID sessionId = UUID.randomUUID();
         ChatSession session = new ChatSession();
         session.setId(sessionId);
-        when(sessionService.getSessionOrThrow(sessionId, "user-1")).thenReturn(session);
 
         ChatMessage message = new ChatMessage();
         message.setId(UUID.randomUUID());
@@ -84,6 +278,7 @@ class ChatMessageServiceTest {
 
         assertEquals(1, response.totalItems());
         assertEquals("answer", response.items().get(0).content());
+        verify(sessionService).requireOwnership(sessionId, "user-1");
     }
 
     @Test
@@ -91,10 +286,264 @@ class ChatMessageServiceTest {
         UUID sessionId = UUID.randomUUID();
         ChatSession session = new ChatSession();
         session.setId(sessionId);
-        when(sessionService.getSessionOrThrow(sessionId, "user-1")).thenReturn(session);
 
         // Enforces upper bound to avoid expensive large scans.
         assertThrows(IllegalArgumentException.class,
                 () -> messageService.listMessages(sessionId, "user-1", PageRequest.of(0, 201)));
     }
+
+    @Test
+    void listMessagesShouldWaitForQueuedMessagesOfTheSession() {
+        UUID sessionId = UUID.randomUUID();
+        AppProperties properties = new AppProperties();
+        properties.getIngest().setReadWaitMillis(10);
+        ChatMessageService service = new ChatMessageService(messageRepository, sessionService, messageTailCache,
+                embeddingRepository, vectorIndexManager, sessionEventPublisher, pendingIngests, properties, messageBatchRepository,
+                syncChangeRepository, transactionManager);
+        pendingIngests.add(sessionId);
+
+        // Still queued after the wait, so the read is refused rather than answered without the client's own write.
+        assertThrows(IngestUnavailableException.class,
+                () -> service.listMessages(sessionId, "user-1", PageRequest.of(0, 20)));
+        verify(sessionService, never()).requireOwnership(any(), any());
+    }
+
+    @Test
+    void latestMessagesShouldGroupOwnedSessionsInRequestOrderAndListTheRest() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID foreign = UUID.randomUUID();
+        when(sessionService.ownedSessions(Set.of(first, second, foreign), "user-1")).thenReturn(Set.of(first, second));
+        ChatMessageResponse newer = response(second, "newer", Instant.parse("2025-01-01T00:00:02Z"));
+        ChatMessageResponse older = response(second, "older", Instant.parse("2025-01-01T00:00:01Z"));
+        when(messageBatchRepository.findNewestPerSession(Set.of(first, second), 2)).thenReturn(List.of(newer, older));
+
+        BatchMessagesResponse batch = messageService.latestMessages("user-1", List.of(second, foreign, first, second), 2);
+
+        assertEquals(List.of(second, first), batch.sessions().stream().map(session -> session.sessionId()).toList());
+        // Newest rows come back first; each session is returned oldest first like a history page.
+        assertEquals(List.of("older", "newer"), batch.sessions().get(0).items().stream().map(ChatMessageResponse::content).toList());
+        assertTrue(batch.sessions().get(1).items().isEmpty());
+        assertEquals(List.of(foreign), batch.notFound());
+    }
+
+    @Test
+    void latestMessagesShouldRejectOversizedRequests() {
+        List<UUID> tooMany = new ArrayList<>();
+        for (int i = 0; i < 51; i++) {
+            tooMany.add(UUID.randomUUID());
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> messageService.latestMessages("user-1", tooMany, 5));
+        assertThrows(IllegalArgumentException.class, () -> messageService.latestMessages("user-1", List.of(), 5));
+        assertThrows(IllegalArgumentException.class,
+                () -> messageService.latestMessages("user-1", List.of(UUID.randomUUID()), 51));
+        verify(messageBatchRepository, never()).findNewestPerSession(any(), eq(5));
+    }
+
+    private static ChatMessageResponse response(UUID sessionId, String content, Instant createdAt) {
+        return new ChatMessageResponse(UUID.randomUUID(), sessionId, SenderType.USER, content, null, createdAt);
+    }
+
+    @Test
+    void addMessageShouldWriteThroughToTailCacheWhenEnabled() {
+        UUID sessionId = UUID.randomUUID();
+        ChatSession session = new ChatSession();
+        session.setId(sessionId);
+        when(sessionService.sessionForAppend(sessionId, "user-1")).thenReturn(session);
+        when(messageTailCache.isEnabled()).thenReturn(true);
+        when(messageRepository.save(any(ChatMessage.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        var response = messageService.addMessage(sessionId, "user-1", new AddMessageRequest(SenderType.USER, "hi", null));
+
+        // No surrounding transaction in a unit test, so the after-commit hook runs immediately.
+        verify(messageTailCache).append(response);
+    }
+
+    @Test
+    void listMessagesShouldServeWindowFromTailCache() {
+        UUID sessionId = UUID.randomUUID();
+        when(messageTailCache.isEnabled()).thenReturn(true);
+        var pageable = PageRequest.of(1, 2, Sort.by(Sort.Direction.ASC, "createdAt"));
+        ChatMessageResponse cached = new ChatMessageResponse(UUID.randomUUID(), sessionId, SenderType.USER, "cached", null, Instant.now());
+        when(messageTailCache.read(sessionId, pageable))
+                .thenReturn(new MessageTailCache.TailRead(MessageTailCache.TailRead.Status.HIT, List.of(cached), 3));
+
+        var response = messageService.listMessages(sessionId, "user-1", pageable);
+
+        assertEquals(3, response.totalItems());
+        assertEquals("cached", response.items().get(0).content());
+        verify(messageRepository, never()).findBySessionId(any(), any());
+    }
+
+    @Test
+    void listMessagesShouldWarmTailOnMissAndFallBackWhenWindowIsOutsideTail() {
+        UUID sessionId = UUID.randomUUID();
+        ChatSession session = new ChatSession();
+        session.setId(sessionId);
+        when(messageTailCache.isEnabled()).thenReturn(true);
+        when(messageTailCache.tailSize()).thenReturn(2);
+        when(messageTailCache.generation(sessionId)).thenReturn(7L);
+        var pageable = PageRequest.of(0, 50, Sort.by(Sort.Direction.ASC, "createdAt"));
+        when(messageTailCache.read(sessionId, pageable))
+                .thenReturn(MessageTailCache.TailRead.MISS, MessageTailCache.TailRead.BYPASS);
+
+        ChatMessage newest = message(session, "newest");
+        ChatMessage older = message(session, "older");
+        var tailRequest = PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "createdAt"));
+        when(messageRepository.findBySessionId(sessionId, tailRequest))
+                .thenReturn(new PageImpl<>(List.of(newest, older), tailRequest, 5));
+        when(messageRepository.findBySessionId(sessionId, pageable))
+                .thenReturn(new PageImpl<>(List.of(older, newest), pageable, 2));
+
+        var response = messageService.listMessages(sessionId, "user-1", pageable);
+
+        assertEquals(2, response.items().size());
+        // Tail is stored oldest-first with the generation observed before the database read.
+        verify(messageTailCache).populate(eq(sessionId), eq(7L), anyList(), eq(5L));
+    }
+
+    @Test
+    void addMessageShouldStoreSizeEstimates() {
+        UUID sessionId = UUID.randomUUID();
+        ChatSession session = new ChatSession();
+        session.setId(sessionId);
+        when(sessionService.sessionForAppend(sessionId, "user-1")).thenReturn(session);
+        when(messageRepository.save(any(ChatMessage.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        messageService.addMessage(sessionId, "user-1", new AddMessageRequest(SenderType.USER, "hello world", "ctx"));
+
+        ArgumentCaptor<ChatMessage> captor = ArgumentCaptor.forClass(ChatMessage.class);
+        verify(messageRepository).save(captor.capture());
+        assertEquals(11, captor.getValue().getContentBytes());
+        assertEquals(3, captor.getValue().getContentTokens());
+        assertEquals(3, captor.getValue().getContextBytes());
+        assertEquals(1, captor.getValue().getContextTokens());
+    }
+
+    @Test
+    void getContextWindowShouldStopAtTokenBudgetAndReturnOldestFirst() {
+        UUID sessionId = UUID.randomUUID();
+        ChatSession session = new ChatSession();
+        session.setId(sessionId);
+
+        ChatMessage newest = sizedMessage(session, "newest", 10);
+        ChatMessage middle = sizedMessage(session, "middle", 10);
+        ChatMessage oldest = sizedMessage(session, "oldest", 10);
+        when(messageRepository.findNewestForContext(eq(sessionId), eq(true), any()))
+                .thenReturn(new SliceImpl<>(List.of(newest, middle, oldest), PageRequest.of(0, 50), false));
+
+        ContextWindowResponse window = messageService.getContextWindow(sessionId, "user-1", 25, null, true, true);
+
+        assertEquals(List.of("middle", "newest"), window.items().stream().map(ChatMessageResponse::content).toList());
+        assertEquals(20, window.estimatedTokens());
+        assertTrue(window.truncated());
+    }
+
+    @Test
+    void getContextWindowShouldDropRetrievedContextFromItemsAndBudget() {
+        UUID sessionId = UUID.randomUUID();
+        ChatSession session = new ChatSession();
+        session.setId(sessionId);
+
+        // Legacy row without stored estimates: sizes are computed from the text.
+        ChatMessage legacy = message(session, "abcd");
+        legacy.setRetrievedContext("a very long retrieved context that would blow the budget");
+        when(messageRepository.findNewestForContext(eq(sessionId), eq(false), any()))
+                .thenReturn(new SliceImpl<>(List.of(legacy), PageRequest.of(0, 50), false));
+
+        ContextWindowResponse window = messageService.getContextWindow(sessionId, "user-1", null, 4, false, false);
+
+        assertEquals(1, window.items().size());
+        assertNull(window.items().get(0).retrievedContext());
+        assertEquals(4, window.bytes());
+        assertFalse(window.truncated());
+    }
+
+    @Test
+    void addMessageShouldPublishMessageEventWhenEnabled() {
+        UUID sessionId = UUID.randomUUID();
+        ChatSession session = new ChatSession();
+        session.setId(sessionId);
+        when(sessionService.sessionForAppend(sessionId, "user-1")).thenReturn(session);
+        when(sessionEventPublisher.isEnabled()).thenReturn(true);
+        when(messageRepository.save(any(ChatMessage.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        var response = messageService.addMessage(sessionId, "user-1", new AddMessageRequest(SenderType.USER, "hi", null));
+
+        verify(sessionEventPublisher).publish(SessionEvent.message("user-1", response));
+    }
+
+    @Test
+    void listMessagesAfterShouldMapKeysetPage() {
+        UUID sessionId = UUID.randomUUID();
+        ChatSession session = new ChatSession();
+        session.setId(sessionId);
+        ChatMessage newer = message(session, "newer");
+        Instant since = Instant.parse("2025-01-01T00:00:00Z");
+        UUID afterId = UUID.randomUUID();
+        when(messageRepository.findAfter(sessionId, since, afterId, PageRequest.of(0, 10))).thenReturn(List.of(newer));
+        when(messageRepository.findFirstBySessionIdOrderByCreatedAtDescIdDesc(sessionId)).thenReturn(Optional.of(newer));
+
+        var items = messageService.listMessagesAfter(sessionId, since, afterId, 10);
+
+        assertEquals(1, items.size());
+        assertEquals("newer", items.get(0).content());
+        assertEquals(newer.getId(), messageService.newestMessage(sessionId).orElseThrow().id());
+    }
+
+    @Test
+    void messagesVersionShouldMarkOnlyFullOlderPagesAsHistorical() {
+        UUID sessionId = UUID.randomUUID();
+        ChatSession session = new ChatSession();
+        session.setId(sessionId);
+        session.setMessageCount(120);
+        session.setUpdatedAt(Instant.parse("2025-01-01T00:00:00Z"));
+        when(sessionService.getSessionOrThrow(sessionId, "user-1")).thenReturn(session);
+        Sort oldestFirst = Sort.by(Sort.Direction.ASC, "createdAt");
+
+        ListingVersion first = messageService.messagesVersion(sessionId, "user-1", PageRequest.of(0, 50, oldestFirst));
+        ListingVersion last = messageService.messagesVersion(sessionId, "user-1", PageRequest.of(2, 50, oldestFirst));
+        ListingVersion newestFirst = messageService.messagesVersion(sessionId, "user-1",
+                PageRequest.of(0, 50, Sort.by(Sort.Direction.DESC, "createdAt")));
+
+        assertEquals(3600, first.maxAgeSeconds());
+        assertEquals(0, last.maxAgeSeconds());
+        assertEquals(0, newestFirst.maxAgeSeconds());
+        assertTrue(first.etag().startsWith("\"") && first.etag().endsWith("\""));
+        assertNotEquals(first.etag(), last.etag());
+
+        session.setMessageCount(121);
+        assertNotEquals(first.etag(), messageService.messagesVersion(sessionId, "user-1",
+                PageRequest.of(0, 50, oldestFirst)).etag());
+        verify(messageRepository, never()).findBySessionId(any(), any());
+    }
+
+    @Test
+    void getContextWindowShouldRequireABudget() {
+        UUID sessionId = UUID.randomUUID();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> messageService.getContextWindow(sessionId, "user-1", null, null, true, true));
+        assertThrows(IllegalArgumentException.class,
+                () -> messageService.getContextWindow(sessionId, "user-1", 0, null, true, true));
+    }
+
+    private ChatMessage sizedMessage(ChatSession session, String content, int tokens) {
+        ChatMessage message = message(session, content);
+        message.setContentTokens(tokens);
+        message.setContentBytes(tokens * 4);
+        message.setContextTokens(0);
+        message.setContextBytes(0);
+        return message;
+    }
+
+    private ChatMessage message(ChatSession session, String content) {
+        ChatMessage message = new ChatMessage();
+        message.setId(UUID.randomUUID());
+        message.setSession(session);
+        message.setSender(SenderType.USER);
+        message.setContent(content);
+        return message;
+    }
 }
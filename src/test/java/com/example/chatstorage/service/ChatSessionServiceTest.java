@@ -1,28 +1,55 @@
 package com.example.chatstorage.service;
 
+import com.example.chatstorage.cache.MessageTailCache;
+import com.example.chatstorage.cache.SessionIndexCache;
+import com.example.chatstorage.cache.SessionOwnershipCache;
+import com.example.chatstorage.dto.ChatSessionResponse;
 import com.example.chatstorage.dto.CreateSessionRequest;
 import com.example.chatstorage.dto.UpdateFavoriteRequest;
 import com.example.chatstorage.dto.UpdateSessionNameRequest;
+import com.example.chatstorage.entity.ChatMessage;
 import com.example.chatstorage.entity.ChatSession;
+import com.example.chatstorage.entity.SenderType;
+import com.example.chatstorage.entity.SyncChange;
+import com.example.chatstorage.events.SessionEvent;
+import com.example.chatstorage.events.SessionEventPublisher;
 import com.example.chatstorage.exception.NotFoundException;
 import com.example.chatstorage.repository.ChatMessageRepository;
 import com.example.chatstorage.repository.ChatSessionRepository;
+import com.example.chatstorage.repository.MessageEmbeddingRepository;
+import com.example.chatstorage.repository.SessionListStamp;
+import com.example.chatstorage.repository.SyncChangeRepository;
+import com.example.chatstorage.vector.VectorIndexManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -35,11 +62,37 @@ class ChatSessionServiceTest {
     @Mock
     private ChatMessageRepository messageRepository;
 
+    @Mock
+    private MessageTailCache messageTailCache;
+
+    @Mock
+    private SessionIndexCache sessionIndexCache;
+
+    @Mock
+    private MessageEmbeddingRepository embeddingRepository;
+
+    @Mock
+    private VectorIndexManager vectorIndexManager;
+
+    @Mock
+    private SessionEventPublisher sessionEventPublisher;
+
+    @Mock
+    private SessionTouchCoalescer sessionTouchCoalescer;
+
+    @Mock
+    private SessionOwnershipCache sessionOwnershipCache;
+
+    @Mock
+    private SyncChangeRepository syncChangeRepository;
+
     private ChatSessionService service;
 
     @BeforeEach
     void setUp() {
-        service = new ChatSessionService(sessionRepository, messageRepository);
+        service = new ChatSessionService(sessionRepository, messageRepository, messageTailCache, sessionIndexCache,
+                embeddingRepository, vectorIndexManager, sessionEventPublisher, sessionTouchCoalescer,
+                sessionOwnershipCache, syncChangeRepository);
     }
 
     @Test
@@ -54,6 +107,7 @@ class ChatSessionServiceTest {
 
         assertEquals("New Chat", response.title());
         assertEquals("user-1", response.userId());
+        verify(sessionOwnershipCache).put(response.id(), "user-1");
     }
 
     @Test
@@ -96,8 +150,18 @@ class ChatSessionServiceTest {
 
         service.deleteSession(sessionId, "user-1");
 
+        verify(embeddingRepository).deleteBySessionId(sessionId);
         verify(messageRepository).deleteBySessionId(sessionId);
         verify(sessionRepository).delete(session);
+        verify(messageTailCache).evict(sessionId);
+        verify(sessionOwnershipCache).remove(sessionId);
+        verify(sessionIndexCache).remove("user-1", sessionId);
+        verify(vectorIndexManager).removeSession("user-1", sessionId);
+        verify(sessionEventPublisher).publish(SessionEvent.deleted("user-1", sessionId));
+        // Older change rows of the session are dropped in favour of one tombstone for synced clients.
+        InOrder changes = inOrder(syncChangeRepository);
+        changes.verify(syncChangeRepository).compact(List.of(sessionId));
+        changes.verify(syncChangeRepository).record("user-1", sessionId, null, SyncChange.Type.SESSION_DELETED);
     }
 
     @Test
@@ -108,6 +172,85 @@ class ChatSessionServiceTest {
         assertThrows(NotFoundException.class, () -> service.getSessionOrThrow(sessionId, "user-1"));
     }
 
+    @Test
+    void getSessionOrThrowShouldRememberTheOwner() {
+        UUID sessionId = UUID.randomUUID();
+        when(sessionRepository.findByIdAndUserId(sessionId, "user-1")).thenReturn(Optional.of(new ChatSession()));
+
+        service.getSessionOrThrow(sessionId, "user-1");
+
+        verify(sessionOwnershipCache).put(sessionId, "user-1");
+    }
+
+    @Test
+    void requireOwnershipShouldSkipTheLookupForACachedOwner() {
+        UUID sessionId = UUID.randomUUID();
+        when(sessionOwnershipCache.isOwner(sessionId, "user-1")).thenReturn(true);
+
+        service.requireOwnership(sessionId, "user-1");
+
+        verify(sessionRepository, never()).findByIdAndUserId(any(), any());
+    }
+
+    @Test
+    void requireOwnershipShouldAskTheDatabaseWhenTheOwnerIsNotCached() {
+        UUID sessionId = UUID.randomUUID();
+        when(sessionRepository.findByIdAndUserId(sessionId, "user-2")).thenReturn(Optional.empty());
+
+        // A miss is never a denial by itself; the database decides.
+        assertThrows(NotFoundException.class, () -> service.requireOwnership(sessionId, "user-2"));
+    }
+
+    @Test
+    void ownedSessionsShouldQueryOnlyIdsTheCacheCannotVouchFor() {
+        UUID cached = UUID.randomUUID();
+        UUID stored = UUID.randomUUID();
+        UUID foreign = UUID.randomUUID();
+        when(sessionOwnershipCache.isOwner(cached, "user-1")).thenReturn(true);
+        when(sessionRepository.findOwnedIds("user-1", List.of(stored, foreign))).thenReturn(List.of(stored));
+
+        assertEquals(Set.of(cached, stored), service.ownedSessions(List.of(cached, stored, foreign), "user-1"));
+        verify(sessionOwnershipCache).put(stored, "user-1");
+    }
+
+    @Test
+    void sessionForAppendShouldUseAnUnloadedReferenceForACachedOwner() {
+        UUID sessionId = UUID.randomUUID();
+        ChatSession reference = new ChatSession();
+        when(sessionOwnershipCache.isOwner(sessionId, "user-1")).thenReturn(true);
+        when(sessionRepository.getReferenceById(sessionId)).thenReturn(reference);
+
+        assertEquals(reference, service.sessionForAppend(sessionId, "user-1"));
+        verify(sessionRepository, never()).findByIdAndUserId(any(), any());
+    }
+
+    @Test
+    void appendToACachedSessionHandedToThePurgeOwnerShouldFailAndForgetTheEntry() {
+        UUID sessionId = UUID.randomUUID();
+        ChatMessage message = new ChatMessage();
+        message.setSender(SenderType.USER);
+        message.setContent("hello");
+        message.setContentBytes(5);
+        message.setCreatedAt(Instant.parse("2024-01-01T00:00:00Z"));
+        // Deleted on another node: the row is still there, but no longer the user's.
+        when(sessionRepository.recordMessage(any(), any(), any(), anyLong(), any(), any())).thenReturn(0);
+
+        assertThrows(NotFoundException.class, () -> service.recordMessage(sessionId, "user-1", message));
+        verify(sessionOwnershipCache).remove(sessionId);
+    }
+
+    @Test
+    void sessionForAppendShouldRecheckTheOwnerWhenTouchesAreCoalesced() {
+        UUID sessionId = UUID.randomUUID();
+        when(sessionOwnershipCache.isOwner(sessionId, "user-1")).thenReturn(true);
+        when(sessionTouchCoalescer.isEnabled()).thenReturn(true);
+        when(sessionRepository.existsByIdAndUserId(sessionId, "user-1")).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> service.sessionForAppend(sessionId, "user-1"));
+        verify(sessionOwnershipCache).remove(sessionId);
+        verify(sessionRepository, never()).getReferenceById(any());
+    }
+
     @Test
     void listSessionsShouldUseFavoriteFilterWhenProvided() {
         ChatSession session = new ChatSession();
@@ -134,9 +277,258 @@ class ChatSessionServiceTest {
     }
 
     @Test
-    void touchSessionShouldPersistSession() {
+    void recordMessageShouldUpdateSummaryInOneStatement() {
+        UUID sessionId = UUID.randomUUID();
+        ChatMessage message = new ChatMessage();
+        message.setSender(SenderType.ASSISTANT);
+        message.setContent("  " + "x".repeat(250) + "  ");
+        message.setContentBytes(254);
+        message.setCreatedAt(Instant.parse("2024-01-01T00:00:00Z"));
+
+        when(sessionRepository.recordMessage(sessionId, "user-1", Instant.parse("2024-01-01T00:00:00Z"), 254,
+                SenderType.ASSISTANT, "x".repeat(200))).thenReturn(1);
+
+        service.recordMessage(sessionId, "user-1", message);
+
+        verify(sessionRepository).recordMessage(sessionId, "user-1", Instant.parse("2024-01-01T00:00:00Z"), 254,
+                SenderType.ASSISTANT, "x".repeat(200));
+        verify(sessionRepository, never()).save(any());
+    }
+
+    @Test
+    void recordMessageShouldPatchTheIndexWithoutReadingTheSessionBack() {
+        UUID sessionId = UUID.randomUUID();
+        ChatMessage message = new ChatMessage();
+        message.setSender(SenderType.USER);
+        message.setContent("hello");
+        message.setContentBytes(5);
+        message.setCreatedAt(Instant.parse("2024-01-01T00:00:00Z"));
+        when(sessionIndexCache.isEnabled()).thenReturn(true);
+        when(sessionRepository.recordMessage(any(), any(), any(), anyLong(), any(), any())).thenReturn(1);
+
+        service.recordMessage(sessionId, "user-1", message);
+
+        verify(sessionIndexCache).recordMessage("user-1", sessionId, Instant.parse("2024-01-01T00:00:00Z"), 5,
+                SenderType.USER, "hello");
+        verify(sessionRepository, never()).findById(any());
+        verify(sessionIndexCache, never()).upsert(any());
+    }
+
+    @Test
+    void recordMessageShouldCoalesceTheSummaryUpdateWhenEnabled() {
+        UUID sessionId = UUID.randomUUID();
+        ChatMessage message = new ChatMessage();
+        message.setSender(SenderType.USER);
+        message.setContent("hello");
+        message.setContentBytes(5);
+        message.setCreatedAt(Instant.parse("2024-01-01T00:00:00Z"));
+        when(sessionTouchCoalescer.isEnabled()).thenReturn(true);
+
+        service.recordMessage(sessionId, "user-1", message);
+
+        // No surrounding transaction in a unit test, so the after-commit hook runs immediately.
+        verify(sessionTouchCoalescer).record(sessionId, "user-1", Instant.parse("2024-01-01T00:00:00Z"), 5,
+                SenderType.USER, "hello");
+        verify(sessionRepository, never()).recordMessage(any(), any(), any(), anyLong(), any(), any());
+    }
+
+    @Test
+    void getSessionShouldIncludeTouchesNotYetFlushed() {
+        UUID sessionId = UUID.randomUUID();
+        ChatSession session = new ChatSession();
+        session.setId(sessionId);
+        session.setUserId("user-1");
+        session.setTitle("A");
+        session.setMessageCount(4);
+        session.setTotalContentBytes(100);
+        session.setUpdatedAt(Instant.parse("2024-01-01T00:00:00Z"));
+        session.setLastMessageAt(Instant.parse("2024-01-01T00:00:00Z"));
+        session.setLastSender(SenderType.USER);
+        session.setLastMessagePreview("old");
+        when(sessionRepository.findByIdAndUserId(sessionId, "user-1")).thenReturn(Optional.of(session));
+        when(sessionTouchCoalescer.pending(sessionId)).thenReturn(new SessionTouchCoalescer.Touch("user-1", 2, 30,
+                Instant.parse("2024-01-02T00:00:00Z"), SenderType.ASSISTANT, "new"));
+
+        ChatSessionResponse response = service.getSession(sessionId, "user-1");
+
+        assertEquals(6, response.messageCount());
+        assertEquals(130, response.totalContentBytes());
+        assertEquals(Instant.parse("2024-01-02T00:00:00Z"), response.updatedAt());
+        assertEquals(SenderType.ASSISTANT, response.lastSender());
+        assertEquals("new", response.lastMessagePreview());
+    }
+
+    @Test
+    void listSessionsShouldAddPendingTouchesWithoutWriting() {
+        UUID sessionId = UUID.randomUUID();
+        ChatSession session = new ChatSession();
+        session.setId(sessionId);
+        session.setUserId("user-1");
+        session.setTitle("A");
+        session.setMessageCount(4);
+        session.setUpdatedAt(Instant.parse("2024-01-01T00:00:00Z"));
+        var pageable = PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "updatedAt"));
+        when(sessionRepository.findByUserId("user-1", pageable)).thenReturn(new PageImpl<>(List.of(session), pageable, 1));
+        when(sessionTouchCoalescer.pending(sessionId)).thenReturn(new SessionTouchCoalescer.Touch("user-1", 2, 30,
+                Instant.parse("2024-01-02T00:00:00Z"), SenderType.ASSISTANT, "new"));
+
+        var page = service.listSessions("user-1", null, pageable);
+
+        assertEquals(6, page.items().get(0).messageCount());
+        assertEquals(Instant.parse("2024-01-02T00:00:00Z"), page.items().get(0).updatedAt());
+        verify(sessionTouchCoalescer, never()).flush();
+    }
+
+    @Test
+    void previewShouldNotSplitSurrogatePairs() {
+        String content = "a".repeat(199) + "\uD83D\uDE00tail";
+
+        assertEquals("a".repeat(199), ChatSessionService.preview(content));
+    }
+
+    @Test
+    void listSessionsShouldReturnSummaryColumns() {
+        ChatSession session = new ChatSession();
+        session.setId(UUID.randomUUID());
+        session.setUserId("user-1");
+        session.setTitle("A");
+        session.setMessageCount(4);
+        session.setTotalContentBytes(512);
+        session.setLastSender(SenderType.USER);
+        session.setLastMessagePreview("latest");
+
+        var pageable = PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "updatedAt"));
+        when(sessionRepository.findByUserId("user-1", pageable)).thenReturn(new PageImpl<>(List.of(session), pageable, 1));
+
+        var item = service.listSessions("user-1", null, pageable).items().get(0);
+
+        assertEquals(4, item.messageCount());
+        assertEquals(512, item.totalContentBytes());
+        assertEquals(SenderType.USER, item.lastSender());
+        assertEquals("latest", item.lastMessagePreview());
+    }
+
+    @Test
+    void renameSessionShouldUpdateSessionIndexWhenEnabled() {
+        UUID sessionId = UUID.randomUUID();
+        ChatSession session = new ChatSession();
+        session.setId(sessionId);
+        session.setUserId("user-1");
+
+        when(sessionIndexCache.isEnabled()).thenReturn(true);
+        when(sessionRepository.findByIdAndUserId(sessionId, "user-1")).thenReturn(Optional.of(session));
+        when(sessionRepository.save(any(ChatSession.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        var response = service.renameSession(sessionId, "user-1", new UpdateSessionNameRequest("Indexed"));
+
+        verify(sessionIndexCache).upsert(response);
+    }
+
+    @Test
+    void updateFavoriteShouldPublishSessionEventWhenEnabled() {
+        UUID sessionId = UUID.randomUUID();
+        ChatSession session = new ChatSession();
+        session.setId(sessionId);
+        session.setUserId("user-1");
+
+        when(sessionEventPublisher.isEnabled()).thenReturn(true);
+        when(sessionRepository.findByIdAndUserId(sessionId, "user-1")).thenReturn(Optional.of(session));
+        when(sessionRepository.save(any(ChatSession.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        var response = service.updateFavorite(sessionId, "user-1", new UpdateFavoriteRequest(true));
+
+        verify(sessionEventPublisher).publish(SessionEvent.session(response));
+    }
+
+    @Test
+    void sessionsVersionShouldChangeWithListStamp() {
+        var pageable = PageRequest.of(0, 20);
+        Instant at = Instant.parse("2025-01-01T00:00:00Z");
+        when(sessionRepository.listStamp("user-1")).thenReturn(new SessionListStamp(3L, at, 10L),
+                new SessionListStamp(3L, at, 10L), new SessionListStamp(3L, at.plusMillis(1), 10L));
+
+        ListingVersion first = service.sessionsVersion("user-1", null, pageable);
+
+        assertEquals(first, service.sessionsVersion("user-1", null, pageable));
+        assertNotEquals(first, service.sessionsVersion("user-1", null, pageable));
+        assertEquals(0, first.maxAgeSeconds());
+        verify(sessionRepository, never()).findByUserId(any(), any());
+    }
+
+    @Test
+    void sessionListRevalidationAfterACoalescedAppendShouldNotGet304() {
+        var pageable = PageRequest.of(0, 20);
+        Instant at = Instant.parse("2025-01-01T00:00:00Z");
+        when(sessionRepository.listStamp("user-1")).thenReturn(new SessionListStamp(3L, at, 10L));
+        ListingVersion before = service.sessionsVersion("user-1", null, pageable);
+        // Counted on this node after the append; the row only changes at the next flush.
+        when(sessionTouchCoalescer.pendingForUser("user-1")).thenReturn(
+                new SessionTouchCoalescer.Touch("user-1", 1, 5, at.plusSeconds(1), SenderType.USER, "hello"));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/sessions");
+        request.addHeader("If-None-Match", before.etag());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        ListingVersion after = service.sessionsVersion("user-1", null, pageable);
+
+        assertFalse(new ServletWebRequest(request, response).checkNotModified(after.etag()));
+        assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    void listSessionsShouldServeFromIndexWithoutQueryingDatabase() {
+        var pageable = PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "updatedAt"));
+        ChatSessionResponse indexed = new ChatSessionResponse(UUID.randomUUID(), "user-1", "A", true, Instant.now(), Instant.now(),
+                3, 120, Instant.now(), SenderType.ASSISTANT, "preview");
+        when(sessionIndexCache.isEnabled()).thenReturn(true);
+        when(sessionIndexCache.read("user-1", true, pageable))
+                .thenReturn(new SessionIndexCache.IndexRead(SessionIndexCache.IndexRead.Status.HIT, List.of(indexed), 41));
+
+        var response = service.listSessions("user-1", true, pageable);
+
+        assertEquals(41, response.totalItems());
+        assertEquals(indexed, response.items().get(0));
+        verify(sessionRepository, never()).findByUserIdAndFavorite(any(), any(Boolean.class), any());
+    }
+
+    @Test
+    void listSessionsShouldRebuildIndexOnMiss() {
+        var pageable = PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "updatedAt"));
         ChatSession session = new ChatSession();
-        service.touchSession(session);
-        verify(sessionRepository).save(session);
+        session.setId(UUID.randomUUID());
+        session.setUserId("user-1");
+        session.setTitle("A");
+        ChatSessionResponse indexed = new ChatSessionResponse(session.getId(), "user-1", "A", false, null, null, 0, 0, null, null, null);
+
+        when(sessionIndexCache.isEnabled()).thenReturn(true);
+        when(sessionIndexCache.maxSessions()).thenReturn(1000);
+        when(sessionIndexCache.generation("user-1")).thenReturn(3L);
+        when(sessionIndexCache.read("user-1", null, pageable)).thenReturn(
+                SessionIndexCache.IndexRead.MISS,
+                new SessionIndexCache.IndexRead(SessionIndexCache.IndexRead.Status.HIT, List.of(indexed), 1));
+        var rebuild = PageRequest.of(0, 1000, Sort.by(Sort.Direction.DESC, "updatedAt"));
+        when(sessionRepository.findByUserId("user-1", rebuild)).thenReturn(new PageImpl<>(List.of(session), rebuild, 1));
+
+        var response = service.listSessions("user-1", null, pageable);
+
+        assertEquals(1, response.totalItems());
+        verify(sessionIndexCache).populate(eq("user-1"), eq(3L), anyList());
+    }
+
+    @Test
+    void listSessionsShouldMarkOversizedUsersAndUseDatabase() {
+        var pageable = PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "updatedAt"));
+        when(sessionIndexCache.isEnabled()).thenReturn(true);
+        when(sessionIndexCache.maxSessions()).thenReturn(1);
+        when(sessionIndexCache.generation("user-1")).thenReturn(0L);
+        when(sessionIndexCache.read("user-1", null, pageable))
+                .thenReturn(SessionIndexCache.IndexRead.MISS, SessionIndexCache.IndexRead.BYPASS);
+        var rebuild = PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "updatedAt"));
+        when(sessionRepository.findByUserId("user-1", rebuild)).thenReturn(new PageImpl<>(List.of(new ChatSession()), rebuild, 5));
+        when(sessionRepository.findByUserId("user-1", pageable)).thenReturn(new PageImpl<>(List.of(), pageable, 5));
+
+        var response = service.listSessions("user-1", null, pageable);
+
+        assertEquals(5, response.totalItems());
+        verify(sessionIndexCache).markOversized("user-1", 0L);
     }
 }
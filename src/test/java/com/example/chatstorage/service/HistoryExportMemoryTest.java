@@ -0,0 +1,78 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.repository.HistoryExportRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs under a 64 MB heap via ./gradlew exportMemoryTest; any per-row accumulation would fail with OutOfMemoryError.
+@Tag("memory")
+class HistoryExportMemoryTest {
+
+    private static final int MESSAGES = 1_000_000;
+    private static final int SESSIONS = 100;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void exportingAMillionMessagesShouldKeepHeapFlat() throws Exception {
+        // File-backed H2 with a small page cache and spill-to-disk sorting, so the database itself does not hold the rows on heap.
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:file:" + directory.resolve("export") + ";MODE=PostgreSQL;CACHE_SIZE=4096;MAX_MEMORY_ROWS=10000", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        HistoryExportServiceTest.createSchema(jdbcTemplate);
+        for (int i = 0; i < SESSIONS; i++) {
+            UUID session = HistoryExportServiceTest.insertSession(jdbcTemplate, "heavy-user", "Session " + i, i);
+            jdbcTemplate.update("INSERT INTO chat_messages (id, session_id, sender, content, created_at) "
+                            + "SELECT RANDOM_UUID(), ?, 'USER', CONCAT('message number ', X, ' with some typical chat text'), "
+                            + "DATEADD(SECOND, X, TIMESTAMP WITH TIME ZONE '2026-01-01 00:00:00+00') "
+                            + "FROM SYSTEM_RANGE(1, ?)",
+                    session, MESSAGES / SESSIONS);
+        }
+
+        AppProperties appProperties = new AppProperties();
+        HistoryExportService service = new HistoryExportService(new HistoryExportRepository(jdbcTemplate),
+                new DataSourceTransactionManager(dataSource), new ObjectMapper(), appProperties);
+
+        CountingOutputStream counter = new CountingOutputStream();
+        Runtime runtime = Runtime.getRuntime();
+        long lines;
+        try (GZIPOutputStream gzip = new GZIPOutputStream(counter, 64 * 1024, true)) {
+            lines = service.export("heavy-user", gzip);
+        }
+
+        assertEquals(MESSAGES + SESSIONS, lines);
+        assertTrue(counter.bytes > 0);
+        System.out.printf("exported %d lines, %d gzip bytes, max heap %d MB%n",
+                lines, counter.bytes, runtime.maxMemory() / (1024 * 1024));
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            bytes += length;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.repository.HistoryExportRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistoryExportServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private JdbcTemplate jdbcTemplate;
+    private HistoryExportService service;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:export-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        createSchema(jdbcTemplate);
+        AppProperties appProperties = new AppProperties();
+        appProperties.getExport().setFlushEveryRows(2);
+        service = new HistoryExportService(new HistoryExportRepository(jdbcTemplate),
+                new DataSourceTransactionManager(dataSource), objectMapper, appProperties);
+    }
+
+    @Test
+    void exportShouldWriteSessionsFollowedByTheirMessagesAsNdjson() throws Exception {
+        UUID first = insertSession(jdbcTemplate, "user-1", "First", 1);
+        UUID empty = insertSession(jdbcTemplate, "user-1", "Empty", 2);
+        UUID theirs = insertSession(jdbcTemplate, "user-2", "Theirs", 3);
+        UUID hello = insertMessage(first, "USER", "hello \"quoted\"\nline", 10);
+        UUID reply = insertMessage(first, "ASSISTANT", "hi", 11);
+        insertMessage(theirs, "USER", "not mine", 12);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long lines = service.export("user-1", output);
+
+        String[] raw = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(4, lines);
+        assertEquals(4, raw.length);
+        List<JsonNode> records = new ArrayList<>();
+        for (String line : raw) {
+            assertFalse(line.startsWith(" "));
+            records.add(objectMapper.readTree(line));
+        }
+        assertEquals("session", records.get(0).get("type").asText());
+        assertEquals(first.toString(), records.get(0).get("id").asText());
+        assertEquals("First", records.get(0).get("title").asText());
+        assertEquals(Instant.ofEpochSecond(1).toString(), records.get(0).get("createdAt").asText());
+        assertEquals("message", records.get(1).get("type").asText());
+        assertEquals(hello.toString(), records.get(1).get("id").asText());
+        assertEquals(first.toString(), records.get(1).get("sessionId").asText());
+        assertEquals("hello \"quoted\"\nline", records.get(1).get("content").asText());
+        assertTrue(records.get(1).get("retrievedContext").isNull());
+        assertEquals(reply.toString(), records.get(2).get("id").asText());
+        assertEquals("ASSISTANT", records.get(2).get("sender").asText());
+        assertEquals(empty.toString(), records.get(3).get("id").asText());
+    }
+
+    @Test
+    void exportShouldWriteNothingForUserWithoutSessions() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        assertEquals(0, service.export("nobody", output));
+        assertEquals(0, output.size());
+    }
+
+    @Test
+    void exportShouldAbortWhenClientDisconnects() {
+        UUID session = insertSession(jdbcTemplate, "user-1", "First", 1);
+        for (int i = 0; i < 10; i++) {
+            insertMessage(session, "USER", "message " + i, i);
+        }
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        assertThrows(UncheckedIOException.class, () -> service.export("user-1", broken));
+    }
+
+    static void createSchema(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("CREATE TABLE chat_sessions (id UUID PRIMARY KEY, user_id VARCHAR(100) NOT NULL, "
+                + "title VARCHAR(255) NOT NULL, favorite BOOLEAN NOT NULL, created_at TIMESTAMP WITH TIME ZONE NOT NULL, "
+                + "updated_at TIMESTAMP WITH TIME ZONE NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE chat_messages (id UUID PRIMARY KEY, session_id UUID NOT NULL, "
+                + "sender VARCHAR(20) NOT NULL, content TEXT NOT NULL, retrieved_context TEXT, "
+                + "created_at TIMESTAMP WITH TIME ZONE NOT NULL)");
+        jdbcTemplate.execute("CREATE INDEX idx_chat_messages_session_created ON chat_messages (session_id, created_at)");
+    }
+
+    static UUID insertSession(JdbcTemplate jdbcTemplate, String userId, String title, long epochSecond) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO chat_sessions (id, user_id, title, favorite, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)",
+                id, userId, title, false, Instant.ofEpochSecond(epochSecond).atOffset(ZoneOffset.UTC),
+                Instant.ofEpochSecond(epochSecond).atOffset(ZoneOffset.UTC));
+        return id;
+    }
+
+    private UUID insertMessage(UUID sessionId, String sender, String content, long epochSecond) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO chat_messages (id, session_id, sender, content, created_at) VALUES (?, ?, ?, ?, ?)",
+                id, sessionId, sender, content, Instant.ofEpochSecond(epochSecond).atOffset(ZoneOffset.UTC));
+        return id;
+    }
+}
@@ -0,0 +1,330 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.cache.MessageTailCache;
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.dto.AddMessageRequest;
+import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.entity.SenderType;
+import com.example.chatstorage.events.SessionEvent;
+import com.example.chatstorage.events.SessionEventPublisher;
+import com.example.chatstorage.exception.IngestUnavailableException;
+import com.example.chatstorage.ingest.IngestJournal;
+import com.example.chatstorage.ingest.PendingIngests;
+import com.example.chatstorage.ingest.PendingMessage;
+import com.example.chatstorage.repository.MessageIngestRepository;
+import com.example.chatstorage.repository.SyncChangeRepository;
+import com.example.chatstorage.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MessageIngestServiceTest {
+
+    private static final String USER = "user-1";
+    // Tests drive the writer through writeNext; the lifecycle thread does nothing.
+    private static final ThreadFactory IDLE_WRITER = runnable -> new Thread(() -> { });
+
+    @Mock
+    private ChatSessionService chatSessionService;
+
+    @Mock
+    private IngestJournal ingestJournal;
+
+    @Mock
+    private MessageTailCache messageTailCache;
+
+    @Mock
+    private SessionEventPublisher sessionEventPublisher;
+
+    @Mock
+    private ObjectProvider<ShardRouter> shardRouter;
+
+    private final PendingIngests pendingIngests = new PendingIngests();
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private AppProperties appProperties;
+    private UUID sessionId;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:ingest-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE chat_sessions (id UUID PRIMARY KEY, user_id VARCHAR(100) NOT NULL, "
+                + "title VARCHAR(200) NOT NULL, favorite BOOLEAN NOT NULL, created_at TIMESTAMP WITH TIME ZONE NOT NULL, "
+                + "updated_at TIMESTAMP WITH TIME ZONE NOT NULL, message_count BIGINT DEFAULT 0 NOT NULL, "
+                + "total_content_bytes BIGINT DEFAULT 0 NOT NULL, last_message_at TIMESTAMP WITH TIME ZONE, "
+                + "last_sender VARCHAR(20), last_message_preview VARCHAR(200))");
+        jdbcTemplate.execute("CREATE TABLE chat_messages (id UUID PRIMARY KEY, session_id UUID NOT NULL, "
+                + "sender VARCHAR(20) NOT NULL, content TEXT NOT NULL, retrieved_context TEXT, "
+                + "created_at TIMESTAMP WITH TIME ZONE NOT NULL, content_bytes INTEGER, content_tokens INTEGER, "
+                + "context_bytes INTEGER, context_tokens INTEGER)");
+        jdbcTemplate.execute("CREATE TABLE sync_changes (id UUID PRIMARY KEY, sync_token BIGINT, "
+                + "user_id VARCHAR(100) NOT NULL, session_id UUID NOT NULL, message_id UUID, "
+                + "change_type VARCHAR(20) NOT NULL, changed_at TIMESTAMP WITH TIME ZONE NOT NULL)");
+        sessionId = UUID.randomUUID();
+        OffsetDateTime created = OffsetDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        jdbcTemplate.update("INSERT INTO chat_sessions (id, user_id, title, favorite, created_at, updated_at) "
+                + "VALUES (?, ?, 'Chat', FALSE, ?, ?)", sessionId, USER, created, created);
+
+        appProperties = new AppProperties();
+        appProperties.getIngest().setEnabled(true);
+        appProperties.getIngest().setRetryBackoffMillis(1);
+    }
+
+    @Test
+    void acceptedMessagesShouldBeCommittedAsOneBatchWithTheSessionSummary() {
+        MessageIngestService service = service(IDLE_WRITER);
+        when(sessionEventPublisher.isEnabled()).thenReturn(true);
+        service.start();
+
+        ChatMessageResponse first = service.accept(sessionId, USER, new AddMessageRequest(SenderType.USER, "  hello  ", null));
+        ChatMessageResponse second = service.accept(sessionId, USER, new AddMessageRequest(SenderType.ASSISTANT, "hi there", "ctx"));
+        assertEquals("hello", first.content());
+        assertTrue(second.createdAt().isAfter(first.createdAt()));
+        assertTrue(pendingIngests.isPending(sessionId));
+
+        assertEquals(2, service.writeNext(0));
+
+        assertFalse(pendingIngests.isPending(sessionId));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chat_messages", Integer.class));
+        Map<String, Object> summary = jdbcTemplate.queryForMap("SELECT message_count, total_content_bytes, last_sender, "
+                + "last_message_preview FROM chat_sessions WHERE id = ?", sessionId);
+        assertEquals(2L, ((Number) summary.get("MESSAGE_COUNT")).longValue());
+        assertEquals(13L, ((Number) summary.get("TOTAL_CONTENT_BYTES")).longValue());
+        assertEquals("ASSISTANT", summary.get("LAST_SENDER"));
+        assertEquals("hi there", summary.get("LAST_MESSAGE_PREVIEW"));
+        assertEquals(first.createdAt(), jdbcTemplate.queryForObject("SELECT created_at FROM chat_messages WHERE id = ?",
+                OffsetDateTime.class, first.id()).toInstant());
+        assertEquals(Set.of(first.id(), second.id()), Set.copyOf(jdbcTemplate.queryForList(
+                "SELECT message_id FROM sync_changes WHERE user_id = ? AND change_type = 'MESSAGE'",
+                UUID.class, USER)));
+
+        verify(messageTailCache).evict(sessionId);
+        verify(chatSessionService).reindexSessions(Set.of(sessionId));
+        ArgumentCaptor<SessionEvent> events = ArgumentCaptor.forClass(SessionEvent.class);
+        verify(sessionEventPublisher, times(2)).publish(events.capture());
+        assertEquals(List.of(first, second), events.getAllValues().stream().map(SessionEvent::message).toList());
+        service.stop();
+    }
+
+    @Test
+    void acceptShouldPushBackWhenTheBufferIsFull() {
+        appProperties.getIngest().setCapacity(1);
+        appProperties.getIngest().setOfferTimeoutMillis(0);
+        MessageIngestService service = service(IDLE_WRITER);
+        service.start();
+
+        service.accept(sessionId, USER, new AddMessageRequest(SenderType.USER, "one", null));
+        assertThrows(IngestUnavailableException.class,
+                () -> service.accept(sessionId, USER, new AddMessageRequest(SenderType.USER, "two", null)));
+
+        // The rejected message no longer holds reads back once the accepted one is written.
+        assertEquals(1, service.writeNext(0));
+        assertFalse(pendingIngests.isPending(sessionId));
+        service.stop();
+    }
+
+    @Test
+    void acceptShouldRefuseWhenNotRunning() {
+        MessageIngestService service = service(IDLE_WRITER);
+
+        assertThrows(IngestUnavailableException.class,
+                () -> service.accept(sessionId, USER, new AddMessageRequest(SenderType.USER, "hi", null)));
+    }
+
+    @Test
+    void messagesOfDeletedSessionsShouldBeDropped() {
+        MessageIngestService service = service(IDLE_WRITER);
+        service.start();
+        service.accept(sessionId, USER, new AddMessageRequest(SenderType.USER, "hi", null));
+        jdbcTemplate.update("DELETE FROM chat_sessions WHERE id = ?", sessionId);
+
+        assertEquals(1, service.writeNext(0));
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chat_messages", Integer.class));
+        assertFalse(pendingIngests.isPending(sessionId));
+        service.stop();
+    }
+
+    @Test
+    void messagesOfSessionsWaitingForThePurgeShouldBeDropped() {
+        MessageIngestService service = service(IDLE_WRITER);
+        service.start();
+        service.accept(sessionId, USER, new AddMessageRequest(SenderType.USER, "hi", null));
+        jdbcTemplate.update("UPDATE chat_sessions SET user_id = '' WHERE id = ?", sessionId);
+
+        assertEquals(1, service.writeNext(0));
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chat_messages", Integer.class));
+        assertEquals(0L, jdbcTemplate.queryForObject("SELECT message_count FROM chat_sessions WHERE id = ?", Long.class, sessionId));
+        service.stop();
+    }
+
+    @Test
+    void messagesOfMigratingUsersShouldWaitForTheMove() {
+        ShardRouter router = new ShardRouter(List.of("primary"), 16);
+        when(shardRouter.getIfAvailable()).thenReturn(router);
+        MessageIngestService service = service(IDLE_WRITER);
+        service.start();
+        service.accept(sessionId, USER, new AddMessageRequest(SenderType.USER, "hi", null));
+
+        router.markMigrating(USER);
+        service.writeNext(0);
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chat_messages", Integer.class));
+        assertTrue(pendingIngests.isPending(sessionId));
+
+        router.abortMigration(USER);
+        service.writeNext(0);
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chat_messages", Integer.class));
+        assertFalse(pendingIngests.isPending(sessionId));
+        service.stop();
+    }
+
+    @Test
+    void replayedJournalEntriesShouldNotBeCountedTwice() {
+        MessageIngestService service = service(IDLE_WRITER);
+        when(ingestJournal.isEnabled()).thenReturn(true);
+        when(ingestJournal.append(any())).thenAnswer(invocation -> ((PendingMessage) invocation.getArgument(0)).withJournalId("1-0"));
+        service.start();
+        service.accept(sessionId, USER, new AddMessageRequest(SenderType.USER, "hi", null));
+        ArgumentCaptor<PendingMessage> journaled = ArgumentCaptor.forClass(PendingMessage.class);
+        verify(ingestJournal).append(journaled.capture());
+        PendingMessage entry = journaled.getValue().withJournalId("1-0");
+
+        // Still queued here, so recovery leaves it alone.
+        when(ingestJournal.recover(anyInt())).thenReturn(List.of(entry));
+        service.recoverJournal();
+        assertEquals(1, service.writeNext(0));
+        verify(ingestJournal).acknowledge(List.of(entry));
+
+        // Another node replays the same entry after it was written; the insert skips it.
+        service.recoverJournal();
+        assertEquals(1, service.writeNext(0));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chat_messages", Integer.class));
+        assertEquals(1L, jdbcTemplate.queryForObject("SELECT message_count FROM chat_sessions WHERE id = ?", Long.class, sessionId));
+        service.stop();
+    }
+
+    @Test
+    void aMessageThatAlwaysFailsShouldBeDeadLetteredWithoutHoldingBackTheRest() {
+        appProperties.getIngest().setMaxAttempts(3);
+        when(ingestJournal.deadLetter(any())).thenReturn(true);
+        jdbcTemplate.execute("ALTER TABLE chat_messages ADD CONSTRAINT no_poison CHECK (content <> 'poison')");
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MessageIngestService service = service(IDLE_WRITER, meterRegistry);
+        service.start();
+        ChatMessageResponse before = service.accept(sessionId, USER, new AddMessageRequest(SenderType.USER, "before", null));
+        ChatMessageResponse poison = service.accept(sessionId, USER, new AddMessageRequest(SenderType.USER, "poison", null));
+        ChatMessageResponse after = service.accept(sessionId, USER, new AddMessageRequest(SenderType.USER, "after", null));
+
+        for (int i = 0; i < 10 && pendingIngests.isPending(sessionId); i++) {
+            service.writeNext(0);
+        }
+
+        assertFalse(pendingIngests.isPending(sessionId));
+        assertEquals(Set.of(before.id(), after.id()), Set.copyOf(jdbcTemplate.queryForList(
+                "SELECT id FROM chat_messages", UUID.class)));
+        assertEquals(2L, jdbcTemplate.queryForObject("SELECT message_count FROM chat_sessions WHERE id = ?", Long.class, sessionId));
+        assertEquals(1.0, meterRegistry.counter("chatstorage.ingest.dead-lettered").count());
+        ArgumentCaptor<PendingMessage> deadLetter = ArgumentCaptor.forClass(PendingMessage.class);
+        verify(ingestJournal).deadLetter(deadLetter.capture());
+        assertEquals(poison.id(), deadLetter.getValue().id());
+        service.stop();
+    }
+
+    @Test
+    void aDatabaseOutageLongerThanTheAttemptCapShouldLoseNothing() {
+        appProperties.getIngest().setMaxAttempts(2);
+        AtomicInteger outage = new AtomicInteger(8);
+        DataSourceTransactionManager unreachable = new DataSourceTransactionManager(dataSource) {
+            @Override
+            protected void doBegin(Object transaction, TransactionDefinition definition) {
+                if (outage.getAndDecrement() > 0) {
+                    throw new CannotCreateTransactionException("Could not open JDBC Connection for transaction");
+                }
+                super.doBegin(transaction, definition);
+            }
+        };
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MessageIngestService service = service(IDLE_WRITER, meterRegistry, unreachable);
+        service.start();
+        for (int i = 0; i < 3; i++) {
+            service.accept(sessionId, USER, new AddMessageRequest(SenderType.USER, "message " + i, null));
+        }
+
+        for (int i = 0; i < 20 && pendingIngests.isPending(sessionId); i++) {
+            service.writeNext(0);
+        }
+
+        assertFalse(pendingIngests.isPending(sessionId));
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chat_messages", Integer.class));
+        assertEquals(0.0, meterRegistry.counter("chatstorage.ingest.dead-lettered").count());
+        verify(ingestJournal, never()).deadLetter(any());
+        service.stop();
+    }
+
+    @Test
+    void stopShouldDrainTheBuffer() {
+        appProperties.getIngest().setPollMillis(1);
+        MessageIngestService service = service(Thread.ofPlatform().factory());
+        service.start();
+        for (int i = 0; i < 5; i++) {
+            service.accept(sessionId, USER, new AddMessageRequest(SenderType.USER, "message " + i, null));
+        }
+
+        service.stop();
+
+        assertFalse(service.isRunning());
+        assertEquals(5, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chat_messages", Integer.class));
+        assertEquals(5L, jdbcTemplate.queryForObject("SELECT message_count FROM chat_sessions WHERE id = ?", Long.class, sessionId));
+    }
+
+    private MessageIngestService service(ThreadFactory writerFactory) {
+        return service(writerFactory, new SimpleMeterRegistry());
+    }
+
+    private MessageIngestService service(ThreadFactory writerFactory, SimpleMeterRegistry meterRegistry) {
+        return service(writerFactory, meterRegistry, new DataSourceTransactionManager(dataSource));
+    }
+
+    private MessageIngestService service(ThreadFactory writerFactory, SimpleMeterRegistry meterRegistry,
+                                         PlatformTransactionManager transactionManager) {
+        return new MessageIngestService(new MessageIngestRepository(jdbcTemplate), chatSessionService, pendingIngests,
+                ingestJournal, messageTailCache, sessionEventPublisher, shardRouter,
+                transactionManager, meterRegistry, appProperties,
+                new SyncChangeRepository(jdbcTemplate), writerFactory);
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.dto.search.MessageSearchHit;
+import com.example.chatstorage.entity.SenderType;
+import com.example.chatstorage.exception.NotFoundException;
+import com.example.chatstorage.repository.MessageSearchRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MessageSearchServiceTest {
+
+    @Mock
+    private ChatSessionService chatSessionService;
+
+    private JdbcTemplate jdbcTemplate;
+    private MessageSearchRepository repository;
+    private MessageSearchService service;
+
+    @BeforeEach
+    void setUp() {
+        // H2 has no tsvector support, so this exercises the portable fallback end to end.
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:search-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE chat_sessions (id UUID PRIMARY KEY, user_id VARCHAR(100) NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE chat_messages (id UUID PRIMARY KEY, session_id UUID NOT NULL, "
+                + "sender VARCHAR(20) NOT NULL, content TEXT NOT NULL, created_at TIMESTAMP WITH TIME ZONE NOT NULL)");
+        repository = new MessageSearchRepository(jdbcTemplate);
+        service = new MessageSearchService(repository, chatSessionService);
+    }
+
+    @Test
+    void searchShouldMatchAllTermsForOwnerOnlyAndPageByKeyset() {
+        UUID mine = insertSession("user-1");
+        UUID theirs = insertSession("user-2");
+        insertMessage(mine, "Spring Boot uses Redis for caching", 1);
+        insertMessage(mine, "Redis streams and Spring", 2);
+        insertMessage(mine, "Redis only", 3);
+        insertMessage(mine, "spring redis cluster", 4);
+        insertMessage(theirs, "Spring Redis from someone else", 5);
+
+        var first = service.search("user-1", "redis SPRING", null, 2, null);
+
+        assertEquals(List.of("spring redis cluster", "Redis streams and Spring"), plain(first.items()));
+        assertEquals("<mark>spring</mark> <mark>redis</mark> cluster", first.items().get(0).snippet());
+
+        var second = service.search("user-1", "redis SPRING", null, 2, first.nextCursor());
+
+        assertEquals(List.of("Spring Boot uses Redis for caching"), plain(second.items()));
+        assertNull(second.nextCursor());
+    }
+
+    @Test
+    void searchShouldScopeToSessionAfterOwnershipCheck() {
+        UUID first = insertSession("user-1");
+        UUID second = insertSession("user-1");
+        insertMessage(first, "alpha in first", 1);
+        insertMessage(second, "alpha in second", 2);
+
+        var result = service.search("user-1", "alpha", first, 20, null);
+
+        assertEquals(List.of("alpha in first"), plain(result.items()));
+        verify(chatSessionService).requireOwnership(first, "user-1");
+    }
+
+    @Test
+    void searchShouldTreatLikeWildcardsLiterally() {
+        UUID session = insertSession("user-1");
+        insertMessage(session, "100% done", 1);
+        insertMessage(session, "1000 done", 2);
+
+        var result = service.search("user-1", "100%", null, 20, null);
+
+        assertEquals(List.of("100% done"), plain(result.items()));
+    }
+
+    @Test
+    void searchShouldUseFullTextWhenSchemaIsReady() {
+        MessageSearchRepository fullText = mock(MessageSearchRepository.class);
+        MessageSearchService fullTextService = new MessageSearchService(fullText, chatSessionService);
+        var row = new MessageSearchRepository.SearchRow(UUID.randomUUID(), UUID.randomUUID(), SenderType.USER,
+                Instant.parse("2024-01-01T00:00:00Z"), 0.5f, "<mark>vector</mark> search", null);
+        when(fullText.isFullTextReady()).thenReturn(true);
+        when(fullText.searchFullText("user-1", null, "\"vector search\" -lucene", null, 2)).thenReturn(List.of(row));
+
+        var result = fullTextService.search("user-1", " \"vector search\" -lucene ", null, 1, null);
+
+        assertEquals("<mark>vector</mark> search", result.items().get(0).snippet());
+        assertEquals(0.5f, result.items().get(0).rank());
+        assertNull(result.nextCursor());
+    }
+
+    @Test
+    void searchShouldRejectInvalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> service.search("user-1", " ", null, 20, null));
+        assertThrows(IllegalArgumentException.class, () -> service.search("user-1", "x".repeat(201), null, 20, null));
+        assertThrows(IllegalArgumentException.class, () -> service.search("user-1", "x", null, 101, null));
+        assertThrows(IllegalArgumentException.class, () -> service.search("user-1", "x", null, 20, "not-a-cursor"));
+    }
+
+    @Test
+    void searchShouldPropagateMissingSession() {
+        UUID sessionId = UUID.randomUUID();
+        doThrow(new NotFoundException("Session not found")).when(chatSessionService).requireOwnership(sessionId, "user-1");
+
+        assertThrows(NotFoundException.class, () -> service.search("user-1", "x", sessionId, 20, null));
+    }
+
+    @Test
+    void cursorShouldRoundTrip() {
+        var row = new MessageSearchRepository.SearchRow(UUID.randomUUID(), UUID.randomUUID(), SenderType.USER,
+                Instant.parse("2024-01-01T00:00:00.123456Z"), 0.0607927f, null, null);
+
+        var keyset = MessageSearchService.decodeCursor(MessageSearchService.encodeCursor(row));
+
+        assertEquals(row.rank(), keyset.rank());
+        assertEquals(row.createdAt(), keyset.createdAt());
+        assertEquals(row.id(), keyset.id());
+    }
+
+    @Test
+    void snippetShouldTrimAroundFirstMatch() {
+        String content = "x".repeat(100) + " needle " + "y".repeat(200);
+
+        String snippet = MessageSearchService.snippet(content, List.of("needle"));
+
+        assertEquals("...", snippet.substring(0, 3));
+        assertEquals("...", snippet.substring(snippet.length() - 3));
+        assertTrue(snippet.contains("<mark>needle</mark>"));
+    }
+
+    private List<String> plain(List<MessageSearchHit> hits) {
+        return hits.stream()
+                .map(hit -> hit.snippet().replace("<mark>", "").replace("</mark>", ""))
+                .toList();
+    }
+
+    private UUID insertSession(String userId) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO chat_sessions (id, user_id) VALUES (?, ?)", id, userId);
+        return id;
+    }
+
+    private void insertMessage(UUID sessionId, String content, int minute) {
+        jdbcTemplate.update("INSERT INTO chat_messages (id, session_id, sender, content, created_at) VALUES (?, ?, 'USER', ?, ?)",
+                UUID.randomUUID(), sessionId, content,
+                Instant.parse("2024-01-01T00:00:00Z").plusSeconds(minute * 60L).atOffset(ZoneOffset.UTC));
+    }
+}
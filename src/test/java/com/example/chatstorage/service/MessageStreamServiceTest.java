@@ -0,0 +1,357 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.cache.MessageStreamBuffer;
+import com.example.chatstorage.cache.MessageStreamBuffer.BufferedStream;
+import com.example.chatstorage.cache.MessageStreamBuffer.Claim;
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.dto.AddMessageRequest;
+import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.dto.stream.CompleteMessageStreamRequest;
+import com.example.chatstorage.dto.stream.MessageStreamResponse;
+import com.example.chatstorage.dto.stream.OpenMessageStreamRequest;
+import com.example.chatstorage.entity.SenderType;
+import com.example.chatstorage.exception.NotFoundException;
+import com.example.chatstorage.sharding.ShardContext;
+import com.example.chatstorage.sharding.ShardRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MessageStreamServiceTest {
+
+    private static final String USER = "user-1";
+
+    @Mock
+    private MessageStreamBuffer messageStreamBuffer;
+
+    @Mock
+    private ChatSessionService chatSessionService;
+
+    @Mock
+    private ChatMessageService chatMessageService;
+
+    @Mock
+    private ObjectProvider<ShardRouter> shardRouter;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final UUID sessionId = UUID.randomUUID();
+    private final UUID streamId = UUID.randomUUID();
+    private AppProperties appProperties;
+    private MessageStreamService service;
+
+    @BeforeEach
+    void setUp() {
+        appProperties = new AppProperties();
+        appProperties.getMessageStream().setEnabled(true);
+        appProperties.getMessageStream().setCoalesceChars(8);
+        appProperties.getMessageStream().setCoalesceMillis(60_000);
+        service = new MessageStreamService(messageStreamBuffer, chatSessionService, chatMessageService, objectMapper,
+                shardRouter, appProperties);
+    }
+
+    @Test
+    void endpointsShouldReportNotFoundWhenDisabled() {
+        appProperties.getMessageStream().setEnabled(false);
+
+        assertThrows(NotFoundException.class, () -> service.open(sessionId, USER, null));
+        assertThrows(NotFoundException.class, () -> service.get(sessionId, USER, streamId));
+        service.sweepAbandoned();
+        verifyNoInteractions(messageStreamBuffer);
+    }
+
+    @Test
+    void openShouldCheckSessionAndLimitOpenStreams() {
+        when(messageStreamBuffer.readSession(sessionId)).thenReturn(List.of());
+
+        MessageStreamResponse response = service.open(sessionId, USER, new OpenMessageStreamRequest("retrieved"));
+
+        ArgumentCaptor<BufferedStream> opened = ArgumentCaptor.forClass(BufferedStream.class);
+        verify(chatSessionService).requireOwnership(sessionId, USER);
+        verify(messageStreamBuffer).open(opened.capture());
+        assertEquals(response.streamId(), opened.getValue().streamId());
+        assertEquals("retrieved", opened.getValue().retrievedContext());
+        assertEquals(SenderType.ASSISTANT, response.sender());
+        assertEquals("", response.content());
+
+        appProperties.getMessageStream().setMaxOpenPerSession(1);
+        when(messageStreamBuffer.readSession(sessionId)).thenReturn(List.of(stream("x", MessageStreamBuffer.OPEN)));
+        assertThrows(IllegalArgumentException.class, () -> service.open(sessionId, USER, null));
+    }
+
+    @Test
+    void appendShouldCoalesceSmallReadsIntoFewerBufferWrites() {
+        when(messageStreamBuffer.append(eq(streamId), eq(USER), eq(sessionId), anyString(), any())).thenReturn(10L);
+        when(messageStreamBuffer.read(streamId)).thenReturn(Optional.of(stream("Hello, world!", MessageStreamBuffer.OPEN)));
+
+        MessageStreamResponse response = service.append(sessionId, USER, streamId,
+                tokens("Hel", "lo", ", ", "wor", "ld", "!"));
+
+        ArgumentCaptor<String> chunks = ArgumentCaptor.forClass(String.class);
+        verify(messageStreamBuffer, times(2))
+                .append(eq(streamId), eq(USER), eq(sessionId), chunks.capture(), any());
+        assertEquals(List.of("Hello, wor", "ld!"), chunks.getAllValues());
+        assertEquals("Hello, world!", response.content());
+        assertEquals(13, response.contentBytes());
+    }
+
+    @Test
+    void appendShouldMapBufferRejections() {
+        when(messageStreamBuffer.append(eq(streamId), eq(USER), eq(sessionId), anyString(), any()))
+                .thenReturn(MessageStreamBuffer.TOO_LARGE, MessageStreamBuffer.NOT_OPEN, MessageStreamBuffer.NOT_FOUND);
+
+        assertThrows(IllegalArgumentException.class, () -> service.append(sessionId, USER, streamId, new StringReader("a")));
+        assertThrows(IllegalArgumentException.class, () -> service.append(sessionId, USER, streamId, new StringReader("a")));
+        assertThrows(NotFoundException.class, () -> service.append(sessionId, USER, streamId, new StringReader("a")));
+        assertThrows(IllegalArgumentException.class, () -> service.append(sessionId, USER, streamId, new StringReader("")));
+    }
+
+    @Test
+    void appendShouldKeepReceivedTextWhenUploadBreaksOff() {
+        when(messageStreamBuffer.append(eq(streamId), eq(USER), eq(sessionId), anyString(), any())).thenReturn(3L);
+        Reader broken = new Reader() {
+            private boolean sent;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                if (sent) {
+                    throw new IOException("connection reset");
+                }
+                sent = true;
+                "abc".getChars(0, 3, buffer, offset);
+                return 3;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        assertThrows(UncheckedIOException.class, () -> service.append(sessionId, USER, streamId, broken));
+        verify(messageStreamBuffer).append(eq(streamId), eq(USER), eq(sessionId), eq("abc"), any());
+    }
+
+    @Test
+    void getAndListShouldHideOtherOwnersAndFinishedStreams() {
+        BufferedStream open = stream("partial", MessageStreamBuffer.OPEN);
+        BufferedStream finalizing = new BufferedStream(UUID.randomUUID(), USER, sessionId, MessageStreamBuffer.FINALIZING,
+                null, "almost", 3, Instant.ofEpochSecond(5), Instant.ofEpochSecond(6));
+        BufferedStream done = new BufferedStream(UUID.randomUUID(), USER, sessionId, MessageStreamBuffer.DONE,
+                null, "", 3, Instant.ofEpochSecond(1), Instant.ofEpochSecond(2));
+        BufferedStream foreign = new BufferedStream(UUID.randomUUID(), "user-2", sessionId, MessageStreamBuffer.OPEN,
+                null, "theirs", 1, Instant.ofEpochSecond(1), Instant.ofEpochSecond(2));
+        when(messageStreamBuffer.read(streamId)).thenReturn(Optional.of(open));
+        when(messageStreamBuffer.read(foreign.streamId())).thenReturn(Optional.of(foreign));
+        when(messageStreamBuffer.readSession(sessionId)).thenReturn(List.of(finalizing, done, foreign, open));
+
+        assertEquals("partial", service.get(sessionId, USER, streamId).content());
+        assertThrows(NotFoundException.class, () -> service.get(sessionId, USER, foreign.streamId()));
+        List<MessageStreamResponse> listed = service.list(sessionId, USER);
+
+        assertEquals(2, listed.size());
+        assertEquals(streamId, listed.get(0).streamId());
+        assertTrue(listed.get(1).finalizing());
+        assertFalse(listed.get(0).finalizing());
+    }
+
+    @Test
+    void completeShouldPersistOnceAndRememberResult() throws Exception {
+        BufferedStream stream = stream("full reply", MessageStreamBuffer.FINALIZING);
+        when(messageStreamBuffer.claim(eq(streamId), eq(USER), eq(sessionId), any(), any()))
+                .thenReturn(new Claim(Claim.Status.CLAIMED, stream, null));
+        ChatMessageResponse saved = message("full reply");
+        float[] embedding = {1f, 0f};
+        when(chatMessageService.addMessage(sessionId, USER,
+                new AddMessageRequest(SenderType.ASSISTANT, "full reply", "context", embedding), streamId))
+                .thenReturn(saved);
+
+        assertEquals(saved, service.complete(sessionId, USER, streamId, new CompleteMessageStreamRequest(embedding)));
+
+        ArgumentCaptor<String> result = ArgumentCaptor.forClass(String.class);
+        verify(messageStreamBuffer).complete(eq(stream), result.capture());
+        assertEquals(saved, objectMapper.readValue(result.getValue(), ChatMessageResponse.class));
+    }
+
+    @Test
+    void savingAgainAfterTheDoneMarkerWasLostShouldReuseTheReservedId() {
+        BufferedStream stream = stream("full reply", MessageStreamBuffer.FINALIZING);
+        when(messageStreamBuffer.claim(eq(streamId), eq(USER), eq(sessionId), any(), any()))
+                .thenReturn(new Claim(Claim.Status.CLAIMED, stream, null));
+        ChatMessageResponse saved = message("full reply");
+        when(chatMessageService.addMessage(eq(sessionId), eq(USER), any(), eq(streamId))).thenReturn(saved);
+        doThrow(new IllegalStateException("redis down")).when(messageStreamBuffer).complete(eq(stream), anyString());
+
+        service.complete(sessionId, USER, streamId, null);
+        service.complete(sessionId, USER, streamId, null);
+
+        // Both attempts name the same message, so the second one finds the first row instead of adding another.
+        verify(chatMessageService, times(2)).addMessage(eq(sessionId), eq(USER), any(), eq(streamId));
+    }
+
+    @Test
+    void completeShouldReturnStoredResultOnRetry() throws Exception {
+        ChatMessageResponse saved = message("full reply");
+        when(messageStreamBuffer.claim(eq(streamId), eq(USER), eq(sessionId), any(), any()))
+                .thenReturn(new Claim(Claim.Status.DONE, null, objectMapper.writeValueAsString(saved)));
+
+        assertEquals(saved, service.complete(sessionId, USER, streamId, null));
+        verifyNoInteractions(chatMessageService);
+    }
+
+    @Test
+    void completeShouldRejectBusyMissingAndEmptyStreams() {
+        when(messageStreamBuffer.claim(eq(streamId), eq(USER), eq(sessionId), any(), any()))
+                .thenReturn(new Claim(Claim.Status.BUSY, null, null),
+                        new Claim(Claim.Status.MISSING, null, null),
+                        new Claim(Claim.Status.CLAIMED, stream("  ", MessageStreamBuffer.FINALIZING), null));
+
+        assertThrows(IllegalArgumentException.class, () -> service.complete(sessionId, USER, streamId, null));
+        assertThrows(NotFoundException.class, () -> service.complete(sessionId, USER, streamId, null));
+        assertThrows(IllegalArgumentException.class, () -> service.complete(sessionId, USER, streamId, null));
+        verify(messageStreamBuffer).release(streamId);
+    }
+
+    @Test
+    void completeShouldReleaseClaimWhenSaveFails() {
+        when(messageStreamBuffer.claim(eq(streamId), eq(USER), eq(sessionId), any(), any()))
+                .thenReturn(new Claim(Claim.Status.CLAIMED, stream("reply", MessageStreamBuffer.FINALIZING), null));
+        when(chatMessageService.addMessage(eq(sessionId), eq(USER), any(), eq(streamId)))
+                .thenThrow(new IllegalArgumentException("bad embedding"));
+
+        assertThrows(IllegalArgumentException.class, () -> service.complete(sessionId, USER, streamId, null));
+        verify(messageStreamBuffer).release(streamId);
+        verify(messageStreamBuffer, never()).complete(any(), anyString());
+    }
+
+    @Test
+    void discardShouldRequireOwnership() {
+        BufferedStream stream = stream("reply", MessageStreamBuffer.OPEN);
+        when(messageStreamBuffer.read(streamId)).thenReturn(Optional.of(stream));
+
+        service.discard(sessionId, USER, streamId);
+        assertThrows(NotFoundException.class, () -> service.discard(sessionId, "user-2", streamId));
+
+        verify(messageStreamBuffer).discard(stream);
+    }
+
+    @Test
+    void sweepShouldSaveAbandonedStreamsOnTheOwnersShard() {
+        UUID empty = UUID.randomUUID();
+        UUID busy = UUID.randomUUID();
+        UUID expired = UUID.randomUUID();
+        UUID deleted = UUID.randomUUID();
+        BufferedStream abandoned = stream("half a reply", MessageStreamBuffer.OPEN);
+        BufferedStream blank = new BufferedStream(empty, USER, sessionId, MessageStreamBuffer.OPEN, null, "", 0,
+                Instant.EPOCH, Instant.EPOCH);
+        UUID deletedSession = UUID.randomUUID();
+        BufferedStream orphan = new BufferedStream(deleted, USER, deletedSession, MessageStreamBuffer.OPEN, null, "text", 1,
+                Instant.EPOCH, Instant.EPOCH);
+        ShardRouter router = new ShardRouter(List.of("a", "b"), 16);
+        when(shardRouter.getIfAvailable()).thenReturn(router);
+        when(messageStreamBuffer.idleSince(any(), eq(100))).thenReturn(List.of(streamId, empty, busy, expired, deleted));
+        when(messageStreamBuffer.claim(eq(streamId), isNull(), isNull(), any(), any()))
+                .thenReturn(new Claim(Claim.Status.CLAIMED, abandoned, null));
+        when(messageStreamBuffer.claim(eq(empty), isNull(), isNull(), any(), any()))
+                .thenReturn(new Claim(Claim.Status.CLAIMED, blank, null));
+        when(messageStreamBuffer.claim(eq(busy), isNull(), isNull(), any(), any()))
+                .thenReturn(new Claim(Claim.Status.BUSY, null, null));
+        when(messageStreamBuffer.claim(eq(expired), isNull(), isNull(), any(), any()))
+                .thenReturn(new Claim(Claim.Status.MISSING, null, null));
+        when(messageStreamBuffer.claim(eq(deleted), isNull(), isNull(), any(), any()))
+                .thenReturn(new Claim(Claim.Status.CLAIMED, orphan, null));
+        AtomicReference<String> shardSeen = new AtomicReference<>();
+        when(chatMessageService.addMessage(eq(sessionId), eq(USER), any(), eq(streamId))).thenAnswer(invocation -> {
+            shardSeen.set(ShardContext.current());
+            return message("half a reply");
+        });
+        when(chatMessageService.addMessage(eq(deletedSession), eq(USER), any(), eq(deleted)))
+                .thenThrow(new NotFoundException("Session not found"));
+
+        service.sweepAbandoned();
+
+        assertEquals(router.shardFor(USER), shardSeen.get());
+        verify(messageStreamBuffer).complete(eq(abandoned), anyString());
+        verify(messageStreamBuffer).discard(blank);
+        verify(messageStreamBuffer).discard(orphan);
+        verify(messageStreamBuffer).forgetIdle(expired);
+        verify(messageStreamBuffer, never()).forgetIdle(busy);
+    }
+
+    @Test
+    void sweepShouldLeaveStreamsOfMigratingUsersForLater() {
+        ShardRouter router = new ShardRouter(List.of("a", "b"), 16);
+        router.markMigrating(USER);
+        when(shardRouter.getIfAvailable()).thenReturn(router);
+        when(messageStreamBuffer.idleSince(any(), eq(100))).thenReturn(List.of(streamId));
+        when(messageStreamBuffer.claim(eq(streamId), isNull(), isNull(), any(), any()))
+                .thenReturn(new Claim(Claim.Status.CLAIMED, stream("reply", MessageStreamBuffer.OPEN), null));
+
+        service.sweepAbandoned();
+
+        verify(messageStreamBuffer).release(streamId);
+        verifyNoInteractions(chatMessageService);
+    }
+
+    private BufferedStream stream(String content, String state) {
+        return new BufferedStream(streamId, USER, sessionId, state, "context", content, 2,
+                Instant.ofEpochSecond(1), Instant.ofEpochSecond(2));
+    }
+
+    private ChatMessageResponse message(String content) {
+        return new ChatMessageResponse(UUID.randomUUID(), sessionId, SenderType.ASSISTANT, content, "context",
+                Instant.parse("2024-01-01T00:00:00Z"));
+    }
+
+    // Returns one token per read, like a chunked upload whose chunks arrive one at a time.
+    private static Reader tokens(String... parts) {
+        Deque<String> queue = new ArrayDeque<>(List.of(parts));
+        return new Reader() {
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                String next = queue.poll();
+                if (next == null) {
+                    return -1;
+                }
+                next.getChars(0, next.length(), buffer, offset);
+                return next.length();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
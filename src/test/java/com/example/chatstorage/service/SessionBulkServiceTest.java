@@ -0,0 +1,224 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.cache.MessageTailCache;
+import com.example.chatstorage.cache.SessionIndexCache;
+import com.example.chatstorage.cache.SessionOwnershipCache;
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.dto.bulk.BulkDeleteRequest;
+import com.example.chatstorage.dto.bulk.BulkFavoriteRequest;
+import com.example.chatstorage.dto.bulk.BulkSessionResponse;
+import com.example.chatstorage.entity.SenderType;
+import com.example.chatstorage.entity.SyncChange;
+import com.example.chatstorage.events.SessionEvent;
+import com.example.chatstorage.events.SessionEventPublisher;
+import com.example.chatstorage.repository.ChatMessageRepository;
+import com.example.chatstorage.repository.ChatSessionRepository;
+import com.example.chatstorage.repository.MessageEmbeddingRepository;
+import com.example.chatstorage.repository.SyncChangeRepository;
+import com.example.chatstorage.sharding.ShardRouter;
+import com.example.chatstorage.vector.VectorIndexManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SessionBulkServiceTest {
+
+    private static final Instant BEFORE = Instant.parse("2025-01-01T00:00:00Z");
+
+    @Mock
+    private ChatSessionRepository sessionRepository;
+
+    @Mock
+    private ChatMessageRepository messageRepository;
+
+    @Mock
+    private MessageEmbeddingRepository embeddingRepository;
+
+    @Mock
+    private SessionIndexCache sessionIndexCache;
+
+    @Mock
+    private SessionOwnershipCache sessionOwnershipCache;
+
+    @Mock
+    private MessageTailCache messageTailCache;
+
+    @Mock
+    private SessionTouchCoalescer sessionTouchCoalescer;
+
+    @Mock
+    private VectorIndexManager vectorIndexManager;
+
+    @Mock
+    private SessionEventPublisher sessionEventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ObjectProvider<ShardRouter> shardRouter;
+
+    @Mock
+    private SyncChangeRepository syncChangeRepository;
+
+    private AppProperties properties;
+    private SessionBulkService service;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AppProperties();
+        service = new SessionBulkService(sessionRepository, messageRepository, embeddingRepository, sessionIndexCache,
+                sessionOwnershipCache, messageTailCache, sessionTouchCoalescer, vectorIndexManager,
+                sessionEventPublisher, transactionManager, shardRouter, properties, syncChangeRepository);
+    }
+
+    @Test
+    void deleteByIdsShouldRemoveOnlyTheUsersSessionsInline() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID foreign = UUID.randomUUID();
+        when(sessionRepository.findOwnedIds("user-1", Set.of(first, second, foreign)))
+                .thenReturn(List.of(first, second));
+        when(sessionRepository.countMessages(List.of(first, second))).thenReturn(10L);
+        when(sessionRepository.deleteOwned("user-1", List.of(first, second))).thenReturn(2);
+
+        BulkSessionResponse response = service.delete("user-1",
+                new BulkDeleteRequest(List.of(first, second, foreign), null, null));
+
+        assertEquals(new BulkSessionResponse(2, false, false), response);
+        verify(embeddingRepository).deleteBySessionIds(List.of(first, second));
+        verify(messageRepository).deleteBySessionIds(List.of(first, second));
+        verify(sessionOwnershipCache).remove(second);
+        verify(vectorIndexManager).removeSession("user-1", first);
+        verify(sessionEventPublisher).publish(SessionEvent.deleted("user-1", second));
+        verify(sessionIndexCache).evict("user-1");
+        verify(syncChangeRepository).compact(List.of(first, second));
+        verify(syncChangeRepository).recordSessions("user-1", List.of(first, second),
+                SyncChange.Type.SESSION_DELETED);
+    }
+
+    @Test
+    void sessionsTouchedAfterTheCutoffOnThisNodeShouldBeLeftOut() {
+        UUID idle = UUID.randomUUID();
+        UUID active = UUID.randomUUID();
+        when(sessionRepository.findIdsMatching("user-1", BEFORE, null, PageRequest.of(0, 5001)))
+                .thenReturn(List.of(idle, active));
+        when(sessionTouchCoalescer.pending(active)).thenReturn(new SessionTouchCoalescer.Touch("user-1", 1, 5,
+                BEFORE.plusSeconds(1), SenderType.USER, "still here"));
+        when(sessionRepository.countMessages(List.of(idle))).thenReturn(3L);
+        when(sessionRepository.deleteOwned("user-1", List.of(idle))).thenReturn(1);
+
+        BulkSessionResponse response = service.delete("user-1", new BulkDeleteRequest(null, BEFORE, null));
+
+        assertEquals(new BulkSessionResponse(1, false, false), response);
+        verify(sessionOwnershipCache, never()).remove(active);
+    }
+
+    @Test
+    void deletingManyMessagesShouldHandTheSessionsToThePurgeJob() {
+        properties.getBulkSessions().setMaxSessions(2);
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+        when(sessionRepository.findIdsMatching("user-1", BEFORE, false, PageRequest.of(0, 3)))
+                .thenReturn(List.of(first, second, third));
+        when(sessionRepository.countMessages(List.of(first, second))).thenReturn(20_000L);
+        when(sessionRepository.transferOwnership("user-1", List.of(first, second), SessionBulkService.PURGE_OWNER))
+                .thenReturn(2);
+
+        BulkSessionResponse response = service.delete("user-1", new BulkDeleteRequest(null, BEFORE, false));
+
+        assertEquals(new BulkSessionResponse(2, true, true), response);
+        verify(messageRepository, never()).deleteBySessionIds(anyCollection());
+        verify(sessionRepository, never()).deleteOwned(anyString(), anyCollection());
+        // The sessions are gone for the user now, so cached ownership must not outlive the transfer.
+        verify(sessionOwnershipCache).remove(first);
+        verify(sessionOwnershipCache).remove(second);
+        verify(syncChangeRepository).recordSessions("user-1", List.of(first, second),
+                SyncChange.Type.SESSION_DELETED);
+        verify(syncChangeRepository, never()).compact(anyCollection());
+    }
+
+    @Test
+    void favoriteByFilterShouldOnlySelectSessionsThatChange() {
+        UUID session = UUID.randomUUID();
+        when(sessionRepository.findIdsMatching("user-1", BEFORE, false, PageRequest.of(0, 5001)))
+                .thenReturn(List.of(session));
+        when(sessionRepository.updateFavorite(eq("user-1"), eq(List.of(session)), eq(true), any(Instant.class)))
+                .thenReturn(1);
+        when(sessionEventPublisher.isEnabled()).thenReturn(false);
+
+        BulkSessionResponse response = service.updateFavorite("user-1", new BulkFavoriteRequest(null, BEFORE, true));
+
+        assertEquals(new BulkSessionResponse(1, false, false), response);
+        verify(sessionIndexCache).evict("user-1");
+        verify(syncChangeRepository).recordSessions("user-1", List.of(session), SyncChange.Type.SESSION);
+    }
+
+    @Test
+    void unknownIdsShouldChangeNothing() {
+        UUID foreign = UUID.randomUUID();
+        when(sessionRepository.findOwnedIds("user-1", Set.of(foreign))).thenReturn(List.of());
+
+        assertEquals(new BulkSessionResponse(0, false, false),
+                service.updateFavorite("user-1", new BulkFavoriteRequest(List.of(foreign), null, true)));
+        verify(sessionRepository, never()).updateFavorite(any(), anyCollection(), eq(true), any());
+        verify(sessionIndexCache, never()).evict(any());
+    }
+
+    @Test
+    void requestsShouldNameSessionsOrAFilterButNotBoth() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.delete("user-1", new BulkDeleteRequest(List.of(), null, null)));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.delete("user-1", new BulkDeleteRequest(List.of(UUID.randomUUID()), BEFORE, null)));
+
+        properties.getBulkSessions().setMaxSessions(1);
+        assertThrows(IllegalArgumentException.class, () -> service.updateFavorite("user-1",
+                new BulkFavoriteRequest(List.of(UUID.randomUUID(), UUID.randomUUID()), null, false)));
+        verify(sessionRepository, never()).findOwnedIds(any(), anyCollection());
+    }
+
+    @Test
+    void purgeShouldDeleteHandedOverSessionsChunkByChunk() {
+        properties.getBulkSessions().setPurgeBatchSize(2);
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+        when(shardRouter.getIfAvailable()).thenReturn(null);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        when(sessionRepository.findIdsByUserId(SessionBulkService.PURGE_OWNER, PageRequest.of(0, 2)))
+                .thenReturn(List.of(first, second), List.of(third), List.of());
+        when(sessionRepository.deleteOwned(SessionBulkService.PURGE_OWNER, List.of(first, second))).thenReturn(2);
+        when(sessionRepository.deleteOwned(SessionBulkService.PURGE_OWNER, List.of(third))).thenReturn(1);
+
+        service.purgeAll();
+
+        verify(embeddingRepository).deleteBySessionIds(List.of(first, second));
+        verify(messageRepository).deleteBySessionIds(List.of(first, second));
+        verify(messageRepository).deleteBySessionIds(List.of(third));
+        verify(syncChangeRepository).compact(List.of(third));
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.dto.ChatSessionResponse;
+import com.example.chatstorage.entity.SenderType;
+import com.example.chatstorage.events.EventCursor;
+import com.example.chatstorage.events.SessionEvent;
+import com.example.chatstorage.events.SessionEventTransport;
+import com.example.chatstorage.exception.NotFoundException;
+import com.example.chatstorage.exception.SubscriberLimitExceededException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SessionEventServiceTest {
+
+    private static final String USER = "user-1";
+
+    @Mock
+    private ChatSessionService chatSessionService;
+
+    @Mock
+    private ChatMessageService chatMessageService;
+
+    @Mock
+    private SessionEventTransport transport;
+
+    private final UUID sessionId = UUID.randomUUID();
+    private final List<Runnable> deferred = new ArrayList<>();
+    private AppProperties appProperties;
+    private RecordingEmitter emitter;
+    private Executor executor;
+    private SessionEventService service;
+
+    @BeforeEach
+    void setUp() {
+        appProperties = new AppProperties();
+        appProperties.getSessionEvents().setEnabled(true);
+        appProperties.getSessionEvents().setReplayLimit(2);
+        emitter = new RecordingEmitter();
+        executor = Runnable::run;
+        service = newService();
+    }
+
+    @Test
+    void subscribeShouldSendSnapshotThenLiveMessagesOnce() {
+        ChatSessionResponse session = session();
+        when(chatSessionService.getSession(sessionId, USER)).thenReturn(session);
+        when(chatMessageService.newestMessage(sessionId)).thenReturn(Optional.empty());
+
+        assertSame(emitter, service.subscribe(sessionId, USER, null));
+        ChatMessageResponse message = message("hi", Instant.parse("2025-01-01T00:00:00Z"));
+        service.dispatch(SessionEvent.message(USER, message));
+        service.dispatch(SessionEvent.message(USER, message));
+
+        verify(transport).listen(sessionId);
+        assertEquals(List.of(session, message), emitter.payloads);
+        assertTrue(emitter.events.get(0).contains("event:session"));
+        assertTrue(emitter.events.get(1).contains("id:" + new EventCursor(message.createdAt(), message.id()).format()));
+        assertTrue(emitter.events.get(1).contains("event:message"));
+        assertEquals(1, service.subscriberCount());
+    }
+
+    @Test
+    void subscribeShouldReplayFromLastEventIdAndAskForResyncBeyondLimit() {
+        ChatMessageResponse first = message("a", Instant.parse("2025-01-01T00:00:01Z"));
+        ChatMessageResponse second = message("b", Instant.parse("2025-01-01T00:00:02Z"));
+        ChatMessageResponse third = message("c", Instant.parse("2025-01-01T00:00:03Z"));
+        EventCursor cursor = new EventCursor(Instant.parse("2025-01-01T00:00:00Z"), UUID.randomUUID());
+        when(chatSessionService.getSession(sessionId, USER)).thenReturn(session());
+        when(chatMessageService.listMessagesAfter(sessionId, cursor.createdAt(), cursor.messageId(), 3))
+                .thenReturn(List.of(first, second, third));
+
+        service.subscribe(sessionId, USER, cursor.format());
+
+        assertEquals(List.of(session(), first, second), emitter.payloads.subList(0, 3));
+        assertTrue(emitter.events.get(3).contains("event:resync"));
+    }
+
+    @Test
+    void messageEventWithoutBodyShouldCatchUpFromLastSentMessage() {
+        ChatMessageResponse newest = message("seen", Instant.parse("2025-01-01T00:00:00Z"));
+        ChatMessageResponse missed = message("missed", Instant.parse("2025-01-01T00:00:05Z"));
+        when(chatSessionService.getSession(sessionId, USER)).thenReturn(session());
+        when(chatMessageService.newestMessage(sessionId)).thenReturn(Optional.of(newest));
+        when(chatMessageService.listMessagesAfter(sessionId, newest.createdAt(), newest.id(), 3)).thenReturn(List.of(missed));
+
+        service.subscribe(sessionId, USER, null);
+        service.dispatch(SessionEvent.message(USER, missed).withoutBody());
+
+        assertEquals(missed, emitter.payloads.get(1));
+    }
+
+    @Test
+    void sessionDeletedShouldCloseSubscription() {
+        when(chatSessionService.getSession(sessionId, USER)).thenReturn(session());
+        when(chatMessageService.newestMessage(sessionId)).thenReturn(Optional.empty());
+
+        service.subscribe(sessionId, USER, null);
+        service.dispatch(SessionEvent.deleted(USER, sessionId));
+        service.dispatch(SessionEvent.session(session()));
+
+        assertTrue(emitter.events.get(1).contains("event:session-deleted"));
+        assertEquals(2, emitter.events.size());
+        assertTrue(emitter.completed);
+        verify(transport).unlisten(sessionId);
+        assertEquals(0, service.subscriberCount());
+    }
+
+    @Test
+    void dispatchShouldIgnoreEventsForOtherUsers() {
+        when(chatSessionService.getSession(sessionId, USER)).thenReturn(session());
+        when(chatMessageService.newestMessage(sessionId)).thenReturn(Optional.empty());
+
+        service.subscribe(sessionId, USER, null);
+        service.dispatch(SessionEvent.message("user-2", message("other", Instant.now())));
+        service.dispatch(SessionEvent.message(USER, new ChatMessageResponse(UUID.randomUUID(), UUID.randomUUID(),
+                SenderType.USER, "elsewhere", null, Instant.now())));
+
+        assertEquals(1, emitter.events.size());
+    }
+
+    @Test
+    void slowSubscriberShouldBeDroppedWhenQueueIsFull() {
+        appProperties.getSessionEvents().setQueueCapacity(1);
+        executor = deferred::add;
+        service = newService();
+        when(chatSessionService.getSession(sessionId, USER)).thenReturn(session());
+        when(chatMessageService.newestMessage(sessionId)).thenReturn(Optional.empty());
+
+        service.subscribe(sessionId, USER, null);
+        service.dispatch(SessionEvent.message(USER, message("hi", Instant.now())));
+
+        assertTrue(emitter.completed);
+        verify(transport).unlisten(sessionId);
+        deferred.forEach(Runnable::run);
+        assertTrue(emitter.events.isEmpty());
+    }
+
+    @Test
+    void heartbeatShouldSendCommentAndDropDeadClients() {
+        when(chatSessionService.getSession(sessionId, USER)).thenReturn(session());
+        when(chatMessageService.newestMessage(sessionId)).thenReturn(Optional.empty());
+        service.subscribe(sessionId, USER, null);
+
+        service.heartbeat();
+        assertTrue(emitter.events.get(1).contains(":heartbeat"));
+
+        emitter.failure = new IOException("broken pipe");
+        service.heartbeat();
+        verify(transport).unlisten(sessionId);
+        assertEquals(0, service.subscriberCount());
+    }
+
+    @Test
+    void subscribeShouldRejectWhenDisabledOrFull() {
+        appProperties.getSessionEvents().setEnabled(false);
+        assertThrows(NotFoundException.class, () -> service.subscribe(sessionId, USER, null));
+        verify(chatSessionService, never()).getSession(any(), any());
+
+        appProperties.getSessionEvents().setEnabled(true);
+        appProperties.getSessionEvents().setMaxSubscribers(1);
+        when(chatSessionService.getSession(sessionId, USER)).thenReturn(session());
+        when(chatMessageService.newestMessage(sessionId)).thenReturn(Optional.empty());
+        service.subscribe(sessionId, USER, null);
+
+        assertThrows(SubscriberLimitExceededException.class, () -> service.subscribe(sessionId, USER, null));
+        assertEquals(1, service.subscriberCount());
+    }
+
+    @Test
+    void startAndStopShouldDriveTransportOnlyWhenEnabled() {
+        service.start();
+        verify(transport).start(any());
+
+        when(chatSessionService.getSession(sessionId, USER)).thenReturn(session());
+        when(chatMessageService.newestMessage(sessionId)).thenReturn(Optional.empty());
+        service.subscribe(sessionId, USER, null);
+        service.stop();
+
+        verify(transport).stop();
+        assertTrue(emitter.completed);
+    }
+
+    private SessionEventService newService() {
+        return new SessionEventService(chatSessionService, chatMessageService, transport, appProperties, command -> executor.execute(command)) {
+            @Override
+            SseEmitter createEmitter(long timeoutMillis) {
+                return emitter;
+            }
+        };
+    }
+
+    private ChatSessionResponse session() {
+        return new ChatSessionResponse(sessionId, USER, "Chat", false, Instant.EPOCH, Instant.EPOCH,
+                0, 0, null, null, null);
+    }
+
+    private ChatMessageResponse message(String content, Instant createdAt) {
+        return new ChatMessageResponse(UUID.randomUUID(), sessionId, SenderType.USER, content, null, createdAt);
+    }
+
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final List<String> events = new ArrayList<>();
+        private final List<Object> payloads = new ArrayList<>();
+        private boolean completed;
+        private IOException failure;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+            StringBuilder text = new StringBuilder();
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof String value) {
+                    text.append(value);
+                } else {
+                    payloads.add(part.getData());
+                }
+            }
+            events.add(text.toString());
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.cache.SessionIndexCache;
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.entity.ChatMessage;
+import com.example.chatstorage.entity.ChatSession;
+import com.example.chatstorage.entity.SenderType;
+import com.example.chatstorage.repository.ChatMessageRepository;
+import com.example.chatstorage.repository.ChatSessionRepository;
+import com.example.chatstorage.sharding.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SessionSummaryRepairServiceTest {
+
+    @Mock
+    private ChatSessionRepository sessionRepository;
+
+    @Mock
+    private ChatMessageRepository messageRepository;
+
+    @Mock
+    private SessionIndexCache sessionIndexCache;
+
+    @Mock
+    private ObjectProvider<ShardRouter> shardRouter;
+
+    @Mock
+    private SessionTouchCoalescer sessionTouchCoalescer;
+
+    private SessionSummaryRepairService service;
+
+    @BeforeEach
+    void setUp() {
+        AppProperties properties = new AppProperties();
+        properties.getSessionSummary().setRepairBatchSize(2);
+        service = new SessionSummaryRepairService(sessionRepository, messageRepository, sessionIndexCache, properties, shardRouter,
+                sessionTouchCoalescer);
+    }
+
+    @Test
+    void repairShouldRecomputeDriftedSessionsInKeysetBatches() {
+        Instant lastAt = Instant.parse("2024-01-01T00:00:00Z");
+        ChatSession accurate = session(new UUID(0, 1), 2, 10, lastAt);
+        ChatSession drifted = session(new UUID(0, 2), 5, 99, lastAt);
+        ChatSession empty = session(new UUID(0, 3), 1, 4, lastAt);
+
+        when(sessionRepository.findAllByOrderByIdAsc(PageRequest.of(0, 2))).thenReturn(List.of(accurate, drifted));
+        when(sessionRepository.findByIdGreaterThanOrderByIdAsc(drifted.getId(), PageRequest.of(0, 2))).thenReturn(List.of(empty));
+        when(sessionRepository.findByIdGreaterThanOrderByIdAsc(empty.getId(), PageRequest.of(0, 2))).thenReturn(List.of());
+        when(messageRepository.summarizeSessions(List.of(accurate.getId(), drifted.getId())))
+                .thenReturn(List.of(stats(accurate.getId(), 2, 10, lastAt), stats(drifted.getId(), 3, 30, lastAt)));
+        when(messageRepository.summarizeSessions(List.of(empty.getId()))).thenReturn(List.of());
+
+        ChatMessage last = new ChatMessage();
+        last.setSender(SenderType.ASSISTANT);
+        last.setContent("final answer");
+        last.setCreatedAt(lastAt);
+        when(messageRepository.findFirstBySessionIdOrderByCreatedAtDescIdDesc(drifted.getId())).thenReturn(Optional.of(last));
+        when(sessionRepository.repairSummary(drifted.getId(), 5, 3, 30, lastAt, SenderType.ASSISTANT, "final answer")).thenReturn(1);
+        when(sessionRepository.repairSummary(empty.getId(), 1, 0, 0, null, null, null)).thenReturn(1);
+
+        assertEquals(2, service.repairShard());
+
+        verify(sessionRepository, never()).repairSummary(eq(accurate.getId()), anyLong(), anyLong(), anyLong(), any(), any(), any());
+        verify(sessionIndexCache).evict("user-1");
+    }
+
+    @Test
+    void repairShouldSkipSessionsChangedSinceTheyWereRead() {
+        ChatSession drifted = session(new UUID(0, 1), 5, 99, null);
+        when(sessionRepository.findAllByOrderByIdAsc(PageRequest.of(0, 2))).thenReturn(List.of(drifted));
+        when(sessionRepository.findByIdGreaterThanOrderByIdAsc(drifted.getId(), PageRequest.of(0, 2))).thenReturn(List.of());
+        when(messageRepository.summarizeSessions(List.of(drifted.getId()))).thenReturn(List.of());
+        // A concurrent append moved messageCount, so the guarded update matches nothing.
+        when(sessionRepository.repairSummary(drifted.getId(), 5, 0, 0, null, null, null)).thenReturn(0);
+
+        assertEquals(0, service.repairShard());
+        verify(sessionIndexCache, never()).evict(any());
+    }
+
+    @Test
+    void repairShouldLeaveSessionsWithCoalescedTouchesAlone() {
+        ChatSession behind = session(new UUID(0, 1), 5, 99, null);
+        when(sessionRepository.findAllByOrderByIdAsc(PageRequest.of(0, 2))).thenReturn(List.of(behind));
+        when(sessionRepository.findByIdGreaterThanOrderByIdAsc(behind.getId(), PageRequest.of(0, 2))).thenReturn(List.of());
+        when(messageRepository.summarizeSessions(List.of(behind.getId())))
+                .thenReturn(List.of(stats(behind.getId(), 6, 120, Instant.parse("2024-01-01T00:00:00Z"))));
+        when(sessionTouchCoalescer.hasPending(behind.getId())).thenReturn(true);
+
+        assertEquals(0, service.repairShard());
+        verify(sessionRepository, never()).repairSummary(any(), anyLong(), anyLong(), anyLong(), any(), any(), any());
+    }
+
+    private ChatSession session(UUID id, long count, long bytes, Instant lastAt) {
+        ChatSession session = new ChatSession();
+        session.setId(id);
+        session.setUserId("user-1");
+        session.setMessageCount(count);
+        session.setTotalContentBytes(bytes);
+        session.setLastMessageAt(lastAt);
+        return session;
+    }
+
+    private ChatMessageRepository.SessionMessageStats stats(UUID sessionId, long count, long bytes, Instant lastAt) {
+        return new ChatMessageRepository.SessionMessageStats() {
+            @Override
+            public UUID getSessionId() {
+                return sessionId;
+            }
+
+            @Override
+            public long getMessageCount() {
+                return count;
+            }
+
+            @Override
+            public long getTotalContentBytes() {
+                return bytes;
+            }
+
+            @Override
+            public Instant getLastMessageAt() {
+                return lastAt;
+            }
+        };
+    }
+}
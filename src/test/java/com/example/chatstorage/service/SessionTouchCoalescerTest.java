@@ -0,0 +1,180 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.cache.SessionIndexCache;
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.dto.ChatSessionResponse;
+import com.example.chatstorage.entity.SenderType;
+import com.example.chatstorage.repository.ChatSessionRepository;
+import com.example.chatstorage.repository.MessageIngestRepository;
+import com.example.chatstorage.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SessionTouchCoalescerTest {
+
+    private static final Instant T0 = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Mock
+    private ChatSessionRepository chatSessionRepository;
+
+    @Mock
+    private SessionIndexCache sessionIndexCache;
+
+    @Mock
+    private ObjectProvider<ShardRouter> shardRouter;
+
+    private JdbcTemplate jdbcTemplate;
+    private SessionTouchCoalescer coalescer;
+    private UUID first;
+    private UUID second;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:touch-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE chat_sessions (id UUID PRIMARY KEY, user_id VARCHAR(100) NOT NULL, "
+                + "updated_at TIMESTAMP WITH TIME ZONE NOT NULL, message_count BIGINT DEFAULT 0 NOT NULL, "
+                + "total_content_bytes BIGINT DEFAULT 0 NOT NULL, last_message_at TIMESTAMP WITH TIME ZONE, "
+                + "last_sender VARCHAR(20), last_message_preview VARCHAR(200))");
+        first = insertSession("user-1");
+        second = insertSession("user-2");
+
+        AppProperties appProperties = new AppProperties();
+        appProperties.getSessionTouch().setEnabled(true);
+        coalescer = new SessionTouchCoalescer(new MessageIngestRepository(jdbcTemplate), chatSessionRepository,
+                sessionIndexCache, shardRouter, new DataSourceTransactionManager(dataSource), new SimpleMeterRegistry(),
+                appProperties);
+    }
+
+    @Test
+    void flushShouldWriteManyTouchesAsOneForwardOnlyUpdate() {
+        coalescer.record(first, "user-1", T0.plusSeconds(2), 10, SenderType.USER, "two");
+        coalescer.record(first, "user-1", T0.plusSeconds(3), 20, SenderType.ASSISTANT, "three");
+        // Arrives out of order; counted, but must not become the last message.
+        coalescer.record(first, "user-1", T0.plusSeconds(1), 5, SenderType.USER, "one");
+
+        coalescer.flush();
+
+        Map<String, Object> row = summary(first);
+        assertEquals(3L, ((Number) row.get("MESSAGE_COUNT")).longValue());
+        assertEquals(35L, ((Number) row.get("TOTAL_CONTENT_BYTES")).longValue());
+        assertEquals("ASSISTANT", row.get("LAST_SENDER"));
+        assertEquals("three", row.get("LAST_MESSAGE_PREVIEW"));
+        assertEquals(T0.plusSeconds(3), ((OffsetDateTime) row.get("UPDATED_AT")).toInstant());
+        assertFalse(coalescer.hasPending(first));
+        assertNull(coalescer.pending(first));
+    }
+
+    @Test
+    void pendingTouchesShouldBeAddedToTheStoredSummary() {
+        coalescer.record(first, "user-1", T0.plusSeconds(5), 7, SenderType.ASSISTANT, "latest");
+        ChatSessionResponse stored = new ChatSessionResponse(first, "user-1", "Chat", false, T0, T0.plusSeconds(9),
+                4, 100, T0, SenderType.USER, "older");
+
+        ChatSessionResponse merged = SessionTouchCoalescer.Touch.applyTo(coalescer.pending(first), stored);
+
+        assertEquals(5, merged.messageCount());
+        assertEquals(107, merged.totalContentBytes());
+        // updatedAt never moves backwards, e.g. after a rename.
+        assertEquals(T0.plusSeconds(9), merged.updatedAt());
+        assertEquals(T0.plusSeconds(5), merged.lastMessageAt());
+        assertEquals("latest", merged.lastMessagePreview());
+        assertEquals(stored, SessionTouchCoalescer.Touch.applyTo(null, stored));
+    }
+
+    @Test
+    void pendingForUserShouldAddUpTheUsersSessionsOnly() {
+        UUID third = insertSession("user-1");
+        coalescer.record(first, "user-1", T0.plusSeconds(2), 10, SenderType.USER, "a");
+        coalescer.record(third, "user-1", T0.plusSeconds(4), 5, SenderType.USER, "b");
+        coalescer.record(second, "user-2", T0.plusSeconds(9), 1, SenderType.USER, "c");
+
+        SessionTouchCoalescer.Touch total = coalescer.pendingForUser("user-1");
+
+        assertEquals(2, total.count());
+        assertEquals(15, total.bytes());
+        assertEquals(T0.plusSeconds(4), total.lastAt());
+        assertNull(coalescer.pendingForUser("user-3"));
+    }
+
+    @Test
+    void touchesOfMigratingUsersShouldWaitForTheMove() {
+        ShardRouter router = mock(ShardRouter.class);
+        when(shardRouter.getIfAvailable()).thenReturn(router);
+        when(router.isMigrating("user-1")).thenReturn(true);
+        when(router.isMigrating("user-2")).thenReturn(false);
+        coalescer.record(first, "user-1", T0.plusSeconds(1), 10, SenderType.USER, "moving");
+        coalescer.record(second, "user-2", T0.plusSeconds(1), 10, SenderType.USER, "staying");
+
+        coalescer.flush();
+
+        assertEquals(0L, ((Number) summary(first).get("MESSAGE_COUNT")).longValue());
+        assertEquals(1L, ((Number) summary(second).get("MESSAGE_COUNT")).longValue());
+        assertTrue(coalescer.hasPending(first));
+    }
+
+    @Test
+    void failedFlushShouldKeepTheTouchesForTheNextOne() {
+        coalescer.record(first, "user-1", T0.plusSeconds(1), 10, SenderType.USER, "kept");
+        jdbcTemplate.execute("ALTER TABLE chat_sessions RENAME TO chat_sessions_offline");
+
+        coalescer.flush();
+
+        assertEquals(1, coalescer.pending(first).count());
+        coalescer.record(first, "user-1", T0.plusSeconds(2), 5, SenderType.ASSISTANT, "later");
+        jdbcTemplate.execute("ALTER TABLE chat_sessions_offline RENAME TO chat_sessions");
+
+        coalescer.flush();
+
+        Map<String, Object> row = summary(first);
+        assertEquals(2L, ((Number) row.get("MESSAGE_COUNT")).longValue());
+        assertEquals(15L, ((Number) row.get("TOTAL_CONTENT_BYTES")).longValue());
+        assertEquals("later", row.get("LAST_MESSAGE_PREVIEW"));
+    }
+
+    @Test
+    void forgottenSessionsShouldNotBeWritten() {
+        coalescer.record(first, "user-1", T0.plusSeconds(1), 10, SenderType.USER, "gone");
+
+        coalescer.forget(first);
+        coalescer.flush();
+
+        assertFalse(coalescer.hasPending(first));
+        assertEquals(0L, ((Number) summary(first).get("MESSAGE_COUNT")).longValue());
+    }
+
+    private UUID insertSession(String userId) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO chat_sessions (id, user_id, updated_at) VALUES (?, ?, ?)",
+                id, userId, OffsetDateTime.ofInstant(T0, ZoneOffset.UTC));
+        return id;
+    }
+
+    private Map<String, Object> summary(UUID sessionId) {
+        return jdbcTemplate.queryForMap("SELECT message_count, total_content_bytes, last_sender, last_message_preview, "
+                + "updated_at FROM chat_sessions WHERE id = ?", sessionId);
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.cache.SessionIndexCache;
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.entity.SenderType;
+import com.example.chatstorage.repository.MessageIngestRepository;
+import com.example.chatstorage.sharding.ShardRouter;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+// Run with ./gradlew sessionTouchBenchmark; excluded from the regular test task.
+// Many writers append to one session. "direct" commits each message together with its summary UPDATE, so every
+// append waits for the session row lock; "coalesced" commits only the message and leaves the summary to a
+// periodic batched flush. Uses in-memory H2 by default; point it at Postgres (schema already created by the app)
+// with -Dtouch.benchmark.jdbc-url=jdbc:postgresql://localhost:5432/chatstorage -Dtouch.benchmark.user=...
+//     -Dtouch.benchmark.password=...
+@Tag("contention")
+class SessionTouchContentionBenchmarkTest {
+
+    private static final String USER = "touch-benchmark";
+    private static final long FLUSH_MILLIS = 100;
+
+    @Test
+    void directVersusCoalescedSummaryUpdates() throws Exception {
+        int writers = Integer.getInteger("touch.benchmark.writers", 32);
+        int perWriter = Integer.getInteger("touch.benchmark.messages-per-writer", 200);
+        HikariDataSource dataSource = dataSource(writers + 2);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        TransactionTemplate transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        AppProperties appProperties = new AppProperties();
+        appProperties.getSessionTouch().setEnabled(true);
+        SessionTouchCoalescer coalescer = new SessionTouchCoalescer(new MessageIngestRepository(jdbcTemplate), null,
+                mock(SessionIndexCache.class), new StaticListableBeanFactory().getBeanProvider(ShardRouter.class),
+                new DataSourceTransactionManager(dataSource), new SimpleMeterRegistry(), appProperties);
+
+        System.out.println("mode       writers\tmessages\tappends/s\tp50 us\tp99 us");
+        UUID direct = createSession(jdbcTemplate);
+        run("direct", writers, perWriter, () -> {
+            Instant at = Instant.now();
+            transactions.executeWithoutResult(status -> {
+                insertMessage(jdbcTemplate, direct, at);
+                jdbcTemplate.update("UPDATE chat_sessions SET updated_at = ?, message_count = message_count + 1, "
+                        + "total_content_bytes = total_content_bytes + ?, last_message_at = ?, last_sender = ?, "
+                        + "last_message_preview = ? WHERE id = ?", utc(at), content().length(), utc(at),
+                        SenderType.USER.name(), content(), direct);
+            });
+        });
+
+        UUID coalesced = createSession(jdbcTemplate);
+        ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor();
+        flusher.scheduleWithFixedDelay(coalescer::flush, FLUSH_MILLIS, FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+        try {
+            run("coalesced", writers, perWriter, () -> {
+                Instant at = Instant.now();
+                transactions.executeWithoutResult(status -> insertMessage(jdbcTemplate, coalesced, at));
+                coalescer.record(coalesced, USER, at, content().length(), SenderType.USER, content());
+            });
+        } finally {
+            flusher.shutdown();
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        coalescer.flush();
+
+        long expected = (long) writers * perWriter;
+        assertEquals(expected, messageCount(jdbcTemplate, direct));
+        assertEquals(expected, messageCount(jdbcTemplate, coalesced));
+        for (UUID sessionId : List.of(direct, coalesced)) {
+            jdbcTemplate.update("DELETE FROM chat_messages WHERE session_id = ?", sessionId);
+            jdbcTemplate.update("DELETE FROM chat_sessions WHERE id = ?", sessionId);
+        }
+        dataSource.close();
+    }
+
+    private static void run(String mode, int writers, int perWriter, Runnable append) throws Exception {
+        long[] latencies = new long[writers * perWriter];
+        CountDownLatch ready = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>(writers);
+        long start;
+        try (ExecutorService executor = Executors.newFixedThreadPool(writers)) {
+            for (int w = 0; w < writers; w++) {
+                int offset = w * perWriter;
+                futures.add(executor.submit(() -> {
+                    ready.await();
+                    for (int i = 0; i < perWriter; i++) {
+                        long begin = System.nanoTime();
+                        append.run();
+                        latencies[offset + i] = System.nanoTime() - begin;
+                    }
+                    return null;
+                }));
+            }
+            start = System.nanoTime();
+            ready.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.MINUTES);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-10s %d\t%d\t\t%d\t\t%d\t%d%n", mode, writers, latencies.length,
+                latencies.length * 1_000_000_000L / Math.max(1, elapsed),
+                sorted[sorted.length / 2] / 1000,
+                sorted[Math.min(sorted.length - 1, (int) Math.ceil(sorted.length * 0.99) - 1)] / 1000);
+    }
+
+    private static HikariDataSource dataSource(int poolSize) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setMaximumPoolSize(poolSize);
+        String url = System.getProperty("touch.benchmark.jdbc-url");
+        if (url != null) {
+            dataSource.setJdbcUrl(url);
+            dataSource.setUsername(System.getProperty("touch.benchmark.user", "postgres"));
+            dataSource.setPassword(System.getProperty("touch.benchmark.password", ""));
+            return dataSource;
+        }
+        dataSource.setJdbcUrl("jdbc:h2:mem:touch-benchmark;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;LOCK_TIMEOUT=60000");
+        dataSource.setUsername("sa");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS chat_sessions (id UUID PRIMARY KEY, "
+                + "user_id VARCHAR(100) NOT NULL, title VARCHAR(200) NOT NULL, favorite BOOLEAN NOT NULL, "
+                + "created_at TIMESTAMP WITH TIME ZONE NOT NULL, updated_at TIMESTAMP WITH TIME ZONE NOT NULL, "
+                + "message_count BIGINT DEFAULT 0 NOT NULL, total_content_bytes BIGINT DEFAULT 0 NOT NULL, "
+                + "last_message_at TIMESTAMP WITH TIME ZONE, last_sender VARCHAR(20), last_message_preview VARCHAR(200))");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS chat_messages (id UUID PRIMARY KEY, session_id UUID NOT NULL, "
+                + "sender VARCHAR(20) NOT NULL, content TEXT NOT NULL, created_at TIMESTAMP WITH TIME ZONE NOT NULL, "
+                + "content_bytes INTEGER)");
+        return dataSource;
+    }
+
+    private static UUID createSession(JdbcTemplate jdbcTemplate) {
+        UUID id = UUID.randomUUID();
+        OffsetDateTime now = utc(Instant.now());
+        jdbcTemplate.update("INSERT INTO chat_sessions (id, user_id, title, favorite, created_at, updated_at, "
+                + "message_count, total_content_bytes) VALUES (?, ?, 'Contention', FALSE, ?, ?, 0, 0)", id, USER, now, now);
+        return id;
+    }
+
+    private static void insertMessage(JdbcTemplate jdbcTemplate, UUID sessionId, Instant at) {
+        jdbcTemplate.update("INSERT INTO chat_messages (id, session_id, sender, content, created_at, content_bytes) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", UUID.randomUUID(), sessionId, SenderType.USER.name(), content(), utc(at),
+                content().length());
+    }
+
+    private static long messageCount(JdbcTemplate jdbcTemplate, UUID sessionId) {
+        return jdbcTemplate.queryForObject("SELECT message_count FROM chat_sessions WHERE id = ?", Long.class, sessionId);
+    }
+
+    private static String content() {
+        return "A short chat message of ordinary length.";
+    }
+
+    private static OffsetDateTime utc(Instant instant) {
+        return OffsetDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+}
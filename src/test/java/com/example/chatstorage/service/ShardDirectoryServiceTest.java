@@ -0,0 +1,139 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.entity.UserShardAssignment;
+import com.example.chatstorage.repository.ShardNodeRepository;
+import com.example.chatstorage.repository.UserShardAssignmentRepository;
+import com.example.chatstorage.sharding.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ShardDirectoryServiceTest {
+
+    private static final Instant T1 = Instant.parse("2024-01-01T00:00:00Z");
+    private static final Instant T2 = T1.plusSeconds(30);
+
+    @Mock
+    private UserShardAssignmentRepository assignmentRepository;
+
+    @Mock
+    private ShardNodeRepository shardNodeRepository;
+
+    private ShardRouter shardRouter;
+    private ShardDirectoryService service;
+
+    @BeforeEach
+    void setUp() {
+        shardRouter = new ShardRouter(List.of("a", "b"), 16);
+        service = new ShardDirectoryService(assignmentRepository, shardNodeRepository, shardRouter,
+                new AppProperties());
+    }
+
+    @Test
+    void refreshShouldLoadAssignmentsIntoRouter() {
+        String userId = "user-1";
+        String other = "a".equals(shardRouter.ringShardFor(userId)) ? "b" : "a";
+        when(shardNodeRepository.now()).thenReturn(T1);
+        // Assignments pointing at shards no longer configured are ignored instead of breaking routing.
+        when(assignmentRepository.findAll()).thenReturn(List.of(
+                assignment(userId, other, true),
+                assignment("user-2", "retired", false)
+        ));
+
+        service.refresh();
+
+        assertEquals(other, shardRouter.shardFor(userId));
+        assertTrue(shardRouter.isMigrating(userId));
+        assertEquals(shardRouter.ringShardFor("user-2"), shardRouter.shardFor("user-2"));
+    }
+
+    @Test
+    void refreshShouldKeepPreviousAssignmentsWhenDirectoryIsUnavailable() {
+        shardRouter.completeMigration("user-1", "b");
+        when(shardNodeRepository.now()).thenReturn(T1);
+        when(assignmentRepository.findAll()).thenThrow(new IllegalStateException("db down"));
+
+        service.refresh();
+
+        assertEquals("b", shardRouter.shardFor("user-1"));
+    }
+
+    @Test
+    void refreshShouldReportALoadOnlyOnceTheWritesBeforeItHaveEnded() {
+        when(shardNodeRepository.now()).thenReturn(T1, T2);
+        when(assignmentRepository.findAll()).thenReturn(List.of());
+        long ticket = shardRouter.beginWrite();
+
+        service.refresh();
+
+        // That write may have checked the old directory, so this instance is not synced yet.
+        verify(shardNodeRepository).report(anyString(), isNull(), eq(T1));
+
+        shardRouter.endWrite(ticket);
+        service.refresh();
+
+        verify(shardNodeRepository).report(anyString(), eq(T2), eq(T2));
+    }
+
+    @Test
+    void awaitNodesShouldReturnOnceNoLiveInstanceLagsBehind() {
+        when(shardNodeRepository.now()).thenReturn(T1);
+        when(assignmentRepository.findAll()).thenReturn(List.of());
+        when(shardNodeRepository.countLagging(any(), any())).thenReturn(1L, 0L);
+
+        assertTrue(service.awaitNodes(Duration.ofSeconds(10)));
+
+        // Instances silent for longer than the node timeout are left out.
+        verify(shardNodeRepository, times(2)).countLagging(T1.minusMillis(90000), T1);
+    }
+
+    @Test
+    void awaitNodesShouldGiveUpAfterTheTimeout() {
+        when(shardNodeRepository.now()).thenReturn(T1);
+        when(assignmentRepository.findAll()).thenReturn(List.of());
+        when(shardNodeRepository.countLagging(any(), any())).thenReturn(1L);
+
+        assertFalse(service.awaitNodes(Duration.ZERO));
+    }
+
+    @Test
+    void assignShouldUpsertDirectoryRow() {
+        when(assignmentRepository.findById("user-1")).thenReturn(Optional.empty());
+
+        service.assign("user-1", "b", true);
+
+        ArgumentCaptor<UserShardAssignment> captor = ArgumentCaptor.forClass(UserShardAssignment.class);
+        verify(assignmentRepository).save(captor.capture());
+        assertEquals("b", captor.getValue().getShardName());
+        assertTrue(captor.getValue().isMigrating());
+    }
+
+    private UserShardAssignment assignment(String userId, String shard, boolean migrating) {
+        UserShardAssignment assignment = new UserShardAssignment();
+        assignment.setUserId(userId);
+        assignment.setShardName(shard);
+        assignment.setMigrating(migrating);
+        return assignment;
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.entity.ShardMigration;
+import com.example.chatstorage.entity.SyncChange;
+import com.example.chatstorage.exception.NotFoundException;
+import com.example.chatstorage.repository.ShardMigrationRepository;
+import com.example.chatstorage.repository.SyncChangeRepository;
+import com.example.chatstorage.sharding.ShardDataSources;
+import com.example.chatstorage.sharding.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ShardMigrationServiceTest {
+
+    @Mock
+    private ShardDirectoryService shardDirectoryService;
+
+    @Mock
+    private ShardMigrationRepository shardMigrationRepository;
+
+    private ShardRouter shardRouter;
+    private ShardDataSources shardDataSources;
+    private AppProperties properties;
+    private JdbcTemplate shardA;
+    private JdbcTemplate shardB;
+    private ShardMigrationService service;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, DataSource> dataSources = new LinkedHashMap<>();
+        dataSources.put("a", shardDataSource("a"));
+        dataSources.put("b", shardDataSource("b"));
+        shardA = new JdbcTemplate(dataSources.get("a"));
+        shardB = new JdbcTemplate(dataSources.get("b"));
+
+        properties = new AppProperties();
+        properties.getSharding().setMigrationBatchSize(2);
+        shardRouter = new ShardRouter(List.of("a", "b"), 16);
+        shardDataSources = new ShardDataSources(dataSources);
+        // The job runs on the calling thread, so each test sees it finished.
+        service = new ShardMigrationService(shardRouter, shardDataSources, shardDirectoryService,
+                shardMigrationRepository, properties, Runnable::run);
+    }
+
+    @Test
+    void migrateUserShouldMoveRowsInBatchesAndSwitchRouting() {
+        String userId = userOnShard("a");
+        String otherUser = userOnShard("a", userId);
+        UUID sessionId = insertSession(shardA, userId);
+        insertSession(shardA, userId);
+        insertSession(shardA, otherUser);
+        for (int i = 0; i < 5; i++) {
+            insertMessage(shardA, sessionId, "m" + i);
+        }
+        SyncChangeRepository changesA = new SyncChangeRepository(shardA);
+        changesA.record(userId, sessionId, null, SyncChange.Type.SESSION);
+        changesA.record(otherUser, sessionId, null, SyncChange.Type.SESSION);
+        changesA.assignTokens(userId, 10);
+        changesA.record(userId, sessionId, null, SyncChange.Type.SESSION);
+        changesA.assignTokens(userId, 10);
+        // As after compaction: the user's highest token is gone from the log but already known to clients.
+        shardA.update("DELETE FROM sync_changes WHERE sync_token = 2 AND user_id = ?", userId);
+        when(shardDirectoryService.awaitNodes(any())).thenReturn(true);
+
+        service.startMigration(userId, "b");
+
+        ShardMigration migration = lastSaved();
+        assertEquals("a", migration.getSourceShard());
+        assertEquals(ShardMigration.State.COMPLETED, migration.getState());
+        assertEquals(2, migration.getSessionsMoved());
+        assertEquals(5, migration.getMessagesMoved());
+        assertNull(migration.getError());
+        assertEquals("b", shardRouter.shardFor(userId));
+        assertFalse(shardRouter.isMigrating(userId));
+        assertEquals(2, count(shardB, "SELECT COUNT(*) FROM chat_sessions WHERE user_id = ?", userId));
+        assertEquals(5, count(shardB, "SELECT COUNT(*) FROM chat_messages WHERE session_id = ?", sessionId));
+        // Source copy is removed, other tenants on the source shard are untouched.
+        assertEquals(0, count(shardA, "SELECT COUNT(*) FROM chat_sessions WHERE user_id = ?", userId));
+        assertEquals(0, count(shardA, "SELECT COUNT(*) FROM chat_messages WHERE session_id = ?", sessionId));
+        assertEquals(1, count(shardA, "SELECT COUNT(*) FROM chat_sessions WHERE user_id = ?", otherUser));
+        // The user's changes and sync cursor move along, and new tokens on the target continue above the old ones.
+        assertEquals(List.of(1L), shardB.queryForList(
+                "SELECT sync_token FROM sync_changes WHERE user_id = ?", Long.class, userId));
+        SyncChangeRepository changesB = new SyncChangeRepository(shardB);
+        changesB.record(userId, sessionId, null, SyncChange.Type.SESSION);
+        assertEquals(3, changesB.assignTokens(userId, 10).last());
+        assertEquals(0, count(shardA, "SELECT COUNT(*) FROM sync_cursors WHERE user_id = ?", userId));
+        assertEquals(1, count(shardA, "SELECT COUNT(*) FROM sync_changes WHERE user_id = ?", otherUser));
+        verify(shardDirectoryService).assign(userId, "a", true);
+        verify(shardDirectoryService).assign(userId, "b", false);
+    }
+
+    @Test
+    void startMigrationShouldFreezeWritesAndReturnBeforeCopying() {
+        String userId = userOnShard("a");
+        insertSession(shardA, userId);
+        List<Runnable> jobs = new ArrayList<>();
+        ShardMigrationService background = new ShardMigrationService(shardRouter, shardDataSources,
+                shardDirectoryService, shardMigrationRepository, properties, jobs::add);
+
+        var started = background.startMigration(userId, "b");
+
+        assertEquals("FREEZING", started.state());
+        assertTrue(shardRouter.isMigrating(userId));
+        verify(shardDirectoryService).assign(userId, "a", true);
+        assertEquals(1, jobs.size());
+        assertEquals(0, count(shardB, "SELECT COUNT(*) FROM chat_sessions WHERE user_id = ?", userId));
+        assertThrows(IllegalArgumentException.class, () -> background.startMigration(userId, "b"));
+    }
+
+    @Test
+    void copyShouldWaitUntilEveryInstanceConfirmedTheFreezeAndCleanupUntilTheSwitch() {
+        String userId = userOnShard("a");
+        insertSession(shardA, userId);
+        List<Long> rowsAtWait = new ArrayList<>();
+        when(shardDirectoryService.awaitNodes(any())).thenAnswer(invocation -> {
+            rowsAtWait.add(count(shardA, "SELECT COUNT(*) FROM chat_sessions WHERE user_id = ?", userId)
+                    + 10 * count(shardB, "SELECT COUNT(*) FROM chat_sessions WHERE user_id = ?", userId));
+            return true;
+        });
+
+        service.startMigration(userId, "b");
+
+        // Nothing copied before the freeze is confirmed; the source is kept until the switch is confirmed.
+        assertEquals(List.of(1L, 11L), rowsAtWait);
+        assertEquals(0, count(shardA, "SELECT COUNT(*) FROM chat_sessions WHERE user_id = ?", userId));
+    }
+
+    @Test
+    void unconfirmedFreezeShouldAbortWithoutCopying() {
+        String userId = userOnShard("a");
+        insertSession(shardA, userId);
+        when(shardDirectoryService.awaitNodes(any())).thenReturn(false);
+
+        service.startMigration(userId, "b");
+
+        ShardMigration migration = lastSaved();
+        assertEquals(ShardMigration.State.FAILED, migration.getState());
+        assertNotNull(migration.getError());
+        assertFalse(shardRouter.isMigrating(userId));
+        assertEquals("a", shardRouter.shardFor(userId));
+        verify(shardDirectoryService).assign(userId, "a", false);
+        verify(shardDirectoryService, never()).assign(userId, "b", false);
+        assertEquals(1, count(shardA, "SELECT COUNT(*) FROM chat_sessions WHERE user_id = ?", userId));
+        assertEquals(0, count(shardB, "SELECT COUNT(*) FROM chat_sessions WHERE user_id = ?", userId));
+    }
+
+    @Test
+    void unconfirmedSwitchShouldKeepTheSourceRows() {
+        String userId = userOnShard("a");
+        insertSession(shardA, userId);
+        when(shardDirectoryService.awaitNodes(any())).thenReturn(true, false);
+
+        service.startMigration(userId, "b");
+
+        ShardMigration migration = lastSaved();
+        assertEquals(ShardMigration.State.COMPLETED, migration.getState());
+        assertNotNull(migration.getError());
+        assertEquals("b", shardRouter.shardFor(userId));
+        assertEquals(1, count(shardA, "SELECT COUNT(*) FROM chat_sessions WHERE user_id = ?", userId));
+        assertEquals(1, count(shardB, "SELECT COUNT(*) FROM chat_sessions WHERE user_id = ?", userId));
+    }
+
+    @Test
+    void migrateUserShouldBeNoOpWhenAlreadyOnTarget() {
+        String userId = userOnShard("a");
+
+        var result = service.startMigration(userId, "a");
+
+        assertEquals("COMPLETED", result.state());
+        assertEquals(0, result.sessionsMoved());
+        verifyNoInteractions(shardDirectoryService, shardMigrationRepository);
+    }
+
+    @Test
+    void migrateUserShouldRejectUnknownShard() {
+        assertThrows(IllegalArgumentException.class, () -> service.startMigration("user-1", "missing"));
+    }
+
+    @Test
+    void migrationStatusShouldBeNotFoundForUsersNeverMoved() {
+        assertThrows(NotFoundException.class, () -> service.migrationStatus("user-1"));
+    }
+
+    @Test
+    void describeUserShouldReportPlacement() {
+        String userId = userOnShard("b");
+
+        var placement = service.describeUser(userId);
+
+        assertEquals("b", placement.shard());
+        assertEquals("b", placement.ringShard());
+    }
+
+    private ShardMigration lastSaved() {
+        ArgumentCaptor<ShardMigration> captor = ArgumentCaptor.forClass(ShardMigration.class);
+        verify(shardMigrationRepository, atLeastOnce()).save(captor.capture());
+        return captor.getValue();
+    }
+
+    private String userOnShard(String shard, String... exclude) {
+        List<String> excluded = List.of(exclude);
+        for (int i = 0; ; i++) {
+            String candidate = "user-" + i;
+            if (shard.equals(shardRouter.ringShardFor(candidate)) && !excluded.contains(candidate)) {
+                return candidate;
+            }
+        }
+    }
+
+    private DataSource shardDataSource(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:shard-" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE chat_sessions (id UUID PRIMARY KEY, user_id VARCHAR(100) NOT NULL, "
+                + "title VARCHAR(200) NOT NULL, favorite BOOLEAN NOT NULL, created_at TIMESTAMP WITH TIME ZONE NOT NULL, "
+                + "updated_at TIMESTAMP WITH TIME ZONE NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE chat_messages (id UUID PRIMARY KEY, session_id UUID NOT NULL REFERENCES chat_sessions(id), "
+                + "sender VARCHAR(20) NOT NULL, content TEXT NOT NULL, retrieved_context TEXT, created_at TIMESTAMP WITH TIME ZONE NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE message_embeddings (id UUID PRIMARY KEY, session_id UUID NOT NULL, "
+                + "created_at TIMESTAMP WITH TIME ZONE NOT NULL, dimensions INTEGER NOT NULL, "
+                + "vector VARBINARY(16384) NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE sync_changes (id UUID PRIMARY KEY, sync_token BIGINT, "
+                + "user_id VARCHAR(100) NOT NULL, session_id UUID NOT NULL, message_id UUID, "
+                + "change_type VARCHAR(20) NOT NULL, changed_at TIMESTAMP WITH TIME ZONE NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE sync_cursors (user_id VARCHAR(100) PRIMARY KEY, "
+                + "last_token BIGINT NOT NULL)");
+        return dataSource;
+    }
+
+    private UUID insertSession(JdbcTemplate jdbcTemplate, String userId) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO chat_sessions (id, user_id, title, favorite, created_at, updated_at) "
+                + "VALUES (?, ?, 'title', FALSE, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", id, userId);
+        return id;
+    }
+
+    private void insertMessage(JdbcTemplate jdbcTemplate, UUID sessionId, String content) {
+        jdbcTemplate.update("INSERT INTO chat_messages (id, session_id, sender, content, created_at) "
+                + "VALUES (?, ?, 'USER', ?, CURRENT_TIMESTAMP)", UUID.randomUUID(), sessionId, content);
+    }
+
+    private long count(JdbcTemplate jdbcTemplate, String sql, Object arg) {
+        Long value = jdbcTemplate.queryForObject(sql, Long.class, arg);
+        return value == null ? 0 : value;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.dto.search.SimilarMessagesRequest;
+import com.example.chatstorage.dto.search.SimilarMessagesResponse;
+import com.example.chatstorage.entity.ChatMessage;
+import com.example.chatstorage.entity.ChatSession;
+import com.example.chatstorage.entity.MessageEmbedding;
+import com.example.chatstorage.entity.SenderType;
+import com.example.chatstorage.exception.NotFoundException;
+import com.example.chatstorage.repository.ChatMessageRepository;
+import com.example.chatstorage.repository.MessageEmbeddingRepository;
+import com.example.chatstorage.vector.HnswIndex;
+import com.example.chatstorage.vector.VectorCodec;
+import com.example.chatstorage.vector.VectorIndexManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SimilaritySearchServiceTest {
+
+    @Mock
+    private VectorIndexManager vectorIndexManager;
+
+    @Mock
+    private MessageEmbeddingRepository embeddingRepository;
+
+    @Mock
+    private ChatMessageRepository messageRepository;
+
+    @Mock
+    private ChatSessionService chatSessionService;
+
+    private SimilaritySearchService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new SimilaritySearchService(vectorIndexManager, embeddingRepository, messageRepository, chatSessionService);
+    }
+
+    @Test
+    void searchShouldReturnNotFoundWhenDisabled() {
+        assertThrows(NotFoundException.class,
+                () -> service.search("user-1", new SimilarMessagesRequest(new float[]{1}, null, null)));
+    }
+
+    @Test
+    void searchShouldValidateK() {
+        when(vectorIndexManager.isEnabled()).thenReturn(true);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.search("user-1", new SimilarMessagesRequest(new float[]{1}, 101, null)));
+    }
+
+    @Test
+    void searchShouldCatchUpFromDatabaseAndDropStaleMatches() {
+        UUID sessionId = UUID.randomUUID();
+        UUID live = UUID.randomUUID();
+        UUID stale = UUID.randomUUID();
+        Instant watermark = Instant.parse("2026-01-01T00:00:10Z");
+        MessageEmbedding missed = embedding(UUID.randomUUID(), sessionId, watermark.plusSeconds(1));
+
+        when(vectorIndexManager.isEnabled()).thenReturn(true);
+        when(vectorIndexManager.maxDimensions()).thenReturn(4096);
+        when(vectorIndexManager.watermark("user-1")).thenReturn(watermark);
+        when(vectorIndexManager.dimensions("user-1")).thenReturn(2);
+        when(embeddingRepository.findForUserAfter(eq("user-1"), eq(watermark.minusSeconds(5)), any(), any()))
+                .thenReturn(new SliceImpl<>(List.of(missed), PageRequest.of(0, 500), false));
+        when(vectorIndexManager.search("user-1", new float[]{1, 0}, 10, sessionId)).thenReturn(List.of(
+                new HnswIndex.Match(live, sessionId, 0.9f),
+                new HnswIndex.Match(stale, sessionId, 0.8f)));
+        when(messageRepository.findByIdInAndSessionUserId(anyList(), eq("user-1"))).thenReturn(List.of(message(live)));
+
+        SimilarMessagesResponse response = service.search("user-1", new SimilarMessagesRequest(new float[]{1, 0}, null, sessionId));
+
+        verify(vectorIndexManager).add(eq("user-1"), eq(missed.getId()), eq(sessionId), eq(missed.getCreatedAt()), any());
+        verify(vectorIndexManager).removeMessage("user-1", stale);
+        assertEquals(1, response.items().size());
+        assertEquals(live, response.items().get(0).messageId());
+        assertEquals(0.9f, response.items().get(0).score());
+        assertEquals("hello", response.items().get(0).content());
+    }
+
+    @Test
+    void searchShouldRejectDimensionMismatch() {
+        when(vectorIndexManager.isEnabled()).thenReturn(true);
+        when(vectorIndexManager.maxDimensions()).thenReturn(4096);
+        when(vectorIndexManager.dimensions("user-1")).thenReturn(3);
+        when(embeddingRepository.findForUserAfter(eq("user-1"), eq(Instant.EPOCH), any(), any()))
+                .thenReturn(new SliceImpl<>(List.of()));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.search("user-1", new SimilarMessagesRequest(new float[]{1, 0}, 5, null)));
+        verify(vectorIndexManager, never()).search(any(), any(), anyInt(), any());
+    }
+
+    @Test
+    void searchShouldReturnEmptyWhenUserHasNoEmbeddings() {
+        when(vectorIndexManager.isEnabled()).thenReturn(true);
+        when(vectorIndexManager.maxDimensions()).thenReturn(4096);
+        when(vectorIndexManager.dimensions("user-1")).thenReturn(-1);
+        when(embeddingRepository.findForUserAfter(eq("user-1"), eq(Instant.EPOCH), any(), any()))
+                .thenReturn(new SliceImpl<>(List.of()));
+
+        assertEquals(0, service.search("user-1", new SimilarMessagesRequest(new float[]{1, 0}, 5, null)).items().size());
+    }
+
+    private static MessageEmbedding embedding(UUID id, UUID sessionId, Instant createdAt) {
+        MessageEmbedding embedding = new MessageEmbedding();
+        embedding.setId(id);
+        embedding.setSessionId(sessionId);
+        embedding.setCreatedAt(createdAt);
+        embedding.setDimensions(2);
+        embedding.setVector(VectorCodec.toBytes(new float[]{0, 1}));
+        return embedding;
+    }
+
+    private static ChatMessage message(UUID id) {
+        ChatSession session = new ChatSession();
+        session.setId(UUID.randomUUID());
+        ChatMessage message = new ChatMessage();
+        message.setId(id);
+        message.setSession(session);
+        message.setSender(SenderType.ASSISTANT);
+        message.setContent("hello");
+        message.onCreate();
+        return message;
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.chatstorage.service;
+
+import com.example.chatstorage.config.AppProperties;
+import com.example.chatstorage.dto.ChatMessageResponse;
+import com.example.chatstorage.dto.ChatSessionResponse;
+import com.example.chatstorage.dto.sync.SyncResponse;
+import com.example.chatstorage.entity.SenderType;
+import com.example.chatstorage.entity.SyncChange;
+import com.example.chatstorage.repository.SyncChangeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SyncServiceTest {
+
+    @Mock
+    private SyncChangeRepository syncChangeRepository;
+
+    @Mock
+    private ChatSessionService chatSessionService;
+
+    @Mock
+    private ChatMessageService chatMessageService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private AppProperties properties;
+    private SyncService service;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AppProperties();
+        service = new SyncService(syncChangeRepository, chatSessionService, chatMessageService, properties,
+                transactionManager);
+    }
+
+    @Test
+    void changesShouldCollapseToCurrentStateAndTombstones() {
+        UUID kept = UUID.randomUUID();
+        UUID removed = UUID.randomUUID();
+        UUID message = UUID.randomUUID();
+        UUID removedMessage = UUID.randomUUID();
+        assignsTokens(new SyncChangeRepository.Tokens(20, false));
+        when(syncChangeRepository.findAfter("user-1", 10L, 4)).thenReturn(List.of(
+                new SyncChangeRepository.Change(11, SyncChange.Type.SESSION, kept, null),
+                new SyncChangeRepository.Change(12, SyncChange.Type.MESSAGE, kept, message),
+                new SyncChangeRepository.Change(13, SyncChange.Type.MESSAGE, removed, removedMessage),
+                new SyncChangeRepository.Change(14, SyncChange.Type.SESSION_DELETED, removed, null)));
+        ChatSessionResponse session = new ChatSessionResponse(kept, "user-1", "Trip", false, Instant.EPOCH,
+                Instant.EPOCH, 1, 2, Instant.EPOCH, SenderType.USER, "hi");
+        ChatMessageResponse added = new ChatMessageResponse(message, kept, SenderType.USER, "hi", null, Instant.EPOCH);
+        when(chatSessionService.getSessions(Set.of(kept), "user-1")).thenReturn(List.of(session));
+        when(chatMessageService.getMessages(Set.of(message), "user-1")).thenReturn(List.of(added));
+
+        SyncResponse response = service.changes("user-1", 10L, 3);
+
+        // The fourth row only signals that more is waiting; the token stops at the last row returned.
+        assertEquals(13, response.nextToken());
+        assertTrue(response.hasMore());
+        assertEquals(List.of(session), response.sessions());
+        assertEquals(List.of(added), response.messages());
+        assertEquals(List.of(), response.deletedSessionIds());
+    }
+
+    @Test
+    void deletedSessionsShouldOnlyBeReportedAsTombstones() {
+        UUID removed = UUID.randomUUID();
+        assignsTokens(new SyncChangeRepository.Tokens(5, false));
+        when(syncChangeRepository.findAfter("user-1", 0L, 501)).thenReturn(List.of(
+                new SyncChangeRepository.Change(3, SyncChange.Type.MESSAGE, removed, UUID.randomUUID()),
+                new SyncChangeRepository.Change(5, SyncChange.Type.SESSION_DELETED, removed, null)));
+        when(chatSessionService.getSessions(Set.of(), "user-1")).thenReturn(List.of());
+        when(chatMessageService.getMessages(Set.of(), "user-1")).thenReturn(List.of());
+
+        SyncResponse response = service.changes("user-1", 0L, 500);
+
+        assertEquals(new SyncResponse(5, false, List.of(), List.of(), List.of(removed)), response);
+    }
+
+    @Test
+    void noChangesShouldKeepTheClientsToken() {
+        assignsTokens(new SyncChangeRepository.Tokens(42, false));
+        when(syncChangeRepository.findAfter("user-1", 42L, 501)).thenReturn(List.of());
+
+        assertEquals(new SyncResponse(42, false, List.of(), List.of(), List.of()),
+                service.changes("user-1", 42L, 500));
+    }
+
+    @Test
+    void changesLeftWithoutATokenShouldAskForAnotherSync() {
+        properties.getSync().setTokenBatchSize(2);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(syncChangeRepository.assignTokens("user-1", 2)).thenReturn(new SyncChangeRepository.Tokens(44, true));
+        when(syncChangeRepository.findAfter("user-1", 44L, 501)).thenReturn(List.of());
+
+        assertEquals(new SyncResponse(44, true, List.of(), List.of(), List.of()),
+                service.changes("user-1", 44L, 500));
+    }
+
+    @Test
+    void missingTokenShouldReturnTheStartingTokenOnly() {
+        assignsTokens(new SyncChangeRepository.Tokens(17, true));
+
+        SyncResponse response = service.changes("user-1", null, 500);
+
+        assertEquals(17, response.nextToken());
+        assertFalse(response.hasMore());
+        verify(syncChangeRepository, never()).findAfter(anyString(), anyLong(), anyInt());
+    }
+
+    @Test
+    void invalidArgumentsShouldBeRejected() {
+        properties.getSync().setMaxChanges(100);
+
+        assertThrows(IllegalArgumentException.class, () -> service.changes("user-1", 0L, 101));
+        assertThrows(IllegalArgumentException.class, () -> service.changes("user-1", 0L, 0));
+        assertThrows(IllegalArgumentException.class, () -> service.changes("user-1", -1L, 10));
+        verify(syncChangeRepository, never()).assignTokens(anyString(), anyInt());
+    }
+
+    private void assignsTokens(SyncChangeRepository.Tokens tokens) {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(syncChangeRepository.assignTokens("user-1", 5000)).thenReturn(tokens);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.chatstorage.sharding;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ShardContextTest {
+
+    @AfterEach
+    void tearDown() {
+        ShardContext.clear();
+    }
+
+    @Test
+    void callOnShouldRestorePreviousShard() {
+        ShardContext.set("a");
+
+        String seen = ShardContext.callOn("b", ShardContext::current);
+
+        assertEquals("b", seen);
+        assertEquals("a", ShardContext.current());
+    }
+
+    @Test
+    void runOnShouldClearWhenNothingWasSet() {
+        ShardContext.runOn("b", () -> assertEquals("b", ShardContext.current()));
+
+        assertNull(ShardContext.current());
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.chatstorage.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardRouterTest {
+
+    @Test
+    void shardForShouldBeStableForSameUser() {
+        ShardRouter router = new ShardRouter(List.of("a", "b", "c"), 64);
+
+        assertEquals(router.shardFor("user-1"), router.shardFor("user-1"));
+        assertEquals(router.shardFor("user-1"), new ShardRouter(List.of("a", "b", "c"), 64).shardFor("user-1"));
+    }
+
+    @Test
+    void virtualNodesShouldSpreadUsersAcrossAllShards() {
+        ShardRouter router = new ShardRouter(List.of("a", "b", "c"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+
+        for (int i = 0; i < 3000; i++) {
+            counts.merge(router.shardFor("user-" + i), 1, Integer::sum);
+        }
+
+        assertEquals(3, counts.size());
+        // Each shard should hold a reasonable share, not just be non-empty.
+        counts.values().forEach(count -> assertTrue(count > 600, "unbalanced ring: " + counts));
+    }
+
+    @Test
+    void addingShardShouldOnlyMoveUsersToTheNewShard() {
+        ShardRouter before = new ShardRouter(List.of("a", "b"), 128);
+        ShardRouter after = new ShardRouter(List.of("a", "b", "c"), 128);
+
+        for (int i = 0; i < 1000; i++) {
+            String userId = "user-" + i;
+            String previous = before.shardFor(userId);
+            String current = after.shardFor(userId);
+            // Consistent hashing: users either stay put or land on the new shard.
+            assertTrue(previous.equals(current) || "c".equals(current));
+        }
+    }
+
+    @Test
+    void directoryAssignmentShouldOverrideRing() {
+        ShardRouter router = new ShardRouter(List.of("a", "b"), 16);
+        String ringShard = router.ringShardFor("user-1");
+        String other = "a".equals(ringShard) ? "b" : "a";
+
+        router.replaceAssignments(Map.of("user-1", new ShardRouter.ShardAssignment(other, true)));
+
+        assertEquals(other, router.shardFor("user-1"));
+        assertTrue(router.isMigrating("user-1"));
+    }
+
+    @Test
+    void completeMigrationShouldPinUserAndClearFreeze() {
+        ShardRouter router = new ShardRouter(List.of("a", "b"), 16);
+        router.markMigrating("user-1");
+        assertTrue(router.isMigrating("user-1"));
+
+        router.completeMigration("user-1", "b");
+
+        assertEquals("b", router.shardFor("user-1"));
+        assertFalse(router.isMigrating("user-1"));
+    }
+
+    @Test
+    void writesDrainedShouldWaitOnlyForWritesBeganBeforeTheMark() {
+        ShardRouter router = new ShardRouter(List.of("a", "b"), 16);
+        long first = router.beginWrite();
+        long mark = router.writeMark();
+        long later = router.beginWrite();
+
+        assertFalse(router.writesDrained(mark));
+
+        router.endWrite(first);
+        assertTrue(router.writesDrained(mark));
+        assertFalse(router.writesDrained(router.writeMark()));
+
+        router.endWrite(later);
+        assertTrue(router.writesDrained(router.writeMark()));
+    }
+
+    @Test
+    void shouldRequireAtLeastOneShard() {
+        assertThrows(IllegalStateException.class, () -> new ShardRouter(List.of(), 16));
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.chatstorage.vector;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Run with ./gradlew vectorBenchmark; excluded from the regular test task.
+@Tag("benchmark")
+class HnswIndexBenchmarkTest {
+
+    private static final int VECTORS = 20_000;
+    private static final int DIMENSIONS = 128;
+    private static final int QUERIES = 200;
+    private static final int K = 10;
+    private static final int CLUSTERS = 64;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recallVersusLatency() throws Exception {
+        // Real embeddings cluster by topic; isotropic noise would understate recall at every ef.
+        List<float[]> centroids = HnswIndexTest.randomVectors(CLUSTERS, DIMENSIONS, 7);
+        List<float[]> data = clustered(centroids, VECTORS, 8);
+        List<float[]> queries = clustered(centroids, QUERIES, 9);
+        UUID[] ids = new UUID[VECTORS];
+        float[][] normalized = new float[VECTORS][];
+
+        try (HnswIndex index = HnswIndex.open(directory, DIMENSIONS, new HnswIndex.Parameters(16, 100, 1))) {
+            UUID session = UUID.randomUUID();
+            long buildStart = System.nanoTime();
+            for (int i = 0; i < VECTORS; i++) {
+                ids[i] = new UUID(0, i);
+                normalized[i] = VectorCodec.normalize(data.get(i));
+                index.add(ids[i], session, Instant.ofEpochMilli(i), data.get(i));
+            }
+            System.out.printf("build: %d vectors x %d dims in %d ms%n", VECTORS, DIMENSIONS,
+                    (System.nanoTime() - buildStart) / 1_000_000);
+
+            Set<UUID>[] truth = exactNeighbours(queries, normalized, ids);
+            double bestRecall = 0;
+            System.out.println("ef\trecall@10\tmean us\tp99 us");
+            for (int ef : new int[]{10, 20, 40, 80, 160, 320}) {
+                long[] latencies = new long[QUERIES];
+                int hits = 0;
+                for (int q = 0; q < QUERIES; q++) {
+                    long start = System.nanoTime();
+                    List<HnswIndex.Match> matches = index.search(queries.get(q), K, ef, null);
+                    latencies[q] = System.nanoTime() - start;
+                    for (HnswIndex.Match match : matches) {
+                        if (truth[q].contains(match.messageId())) {
+                            hits++;
+                        }
+                    }
+                }
+                Arrays.sort(latencies);
+                double recall = hits / (double) (QUERIES * K);
+                bestRecall = Math.max(bestRecall, recall);
+                System.out.printf("%d\t%.3f\t\t%d\t%d%n", ef, recall,
+                        Arrays.stream(latencies).sum() / QUERIES / 1000, latencies[QUERIES * 99 / 100] / 1000);
+            }
+
+            long scanStart = System.nanoTime();
+            exactNeighbours(queries, normalized, ids);
+            System.out.printf("exact scan + sort: mean %d us%n", (System.nanoTime() - scanStart) / QUERIES / 1000);
+            assertTrue(bestRecall >= 0.9, "recall@10 at high ef was " + bestRecall);
+        }
+    }
+
+    private static List<float[]> clustered(List<float[]> centroids, int count, long seed) {
+        Random random = new Random(seed);
+        List<float[]> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float[] centroid = centroids.get(random.nextInt(centroids.size()));
+            float[] vector = new float[centroid.length];
+            for (int d = 0; d < vector.length; d++) {
+                vector[d] = centroid[d] + (float) random.nextGaussian();
+            }
+            vectors.add(vector);
+        }
+        return vectors;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<UUID>[] exactNeighbours(List<float[]> queries, float[][] normalized, UUID[] ids) {
+        Set<UUID>[] truth = new Set[queries.size()];
+        for (int q = 0; q < queries.size(); q++) {
+            float[] query = VectorCodec.normalize(queries.get(q));
+            Integer[] order = new Integer[normalized.length];
+            float[] scores = new float[normalized.length];
+            for (int i = 0; i < normalized.length; i++) {
+                order[i] = i;
+                scores[i] = HnswIndexTest.dot(normalized[i], query);
+            }
+            Arrays.sort(order, (left, right) -> Float.compare(scores[right], scores[left]));
+            truth[q] = new HashSet<>();
+            for (int i = 0; i < K; i++) {
+                truth[q].add(ids[order[i]]);
+            }
+        }
+        return truth;
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.chatstorage.vector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HnswIndexTest {
+
+    private static final HnswIndex.Parameters PARAMETERS = new HnswIndex.Parameters(8, 64, 42);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void openShouldReturnNullWhenNothingIsStoredAndNoDimensionsGiven() throws Exception {
+        assertNull(HnswIndex.open(directory, 0, PARAMETERS));
+    }
+
+    @Test
+    void searchShouldFindExactVectorFirst() throws Exception {
+        List<float[]> vectors = randomVectors(500, 16, 1);
+        List<UUID> ids = new ArrayList<>();
+        try (HnswIndex index = HnswIndex.open(directory, 16, PARAMETERS)) {
+            UUID session = UUID.randomUUID();
+            for (int i = 0; i < vectors.size(); i++) {
+                UUID id = UUID.randomUUID();
+                ids.add(id);
+                assertTrue(index.add(id, session, Instant.ofEpochSecond(i), vectors.get(i)));
+            }
+
+            List<HnswIndex.Match> matches = index.search(vectors.get(123), 5, 64, null);
+
+            assertEquals(5, matches.size());
+            assertEquals(ids.get(123), matches.get(0).messageId());
+            assertEquals(1f, matches.get(0).score(), 1e-4);
+            for (int i = 1; i < matches.size(); i++) {
+                assertTrue(matches.get(i - 1).score() >= matches.get(i).score());
+            }
+            assertEquals(500, index.size());
+            assertEquals(Instant.ofEpochSecond(499), index.watermark());
+        }
+    }
+
+    @Test
+    void addShouldIgnoreDuplicatesAndRejectWrongDimensions() throws Exception {
+        try (HnswIndex index = HnswIndex.open(directory, 3, PARAMETERS)) {
+            UUID id = UUID.randomUUID();
+            assertTrue(index.add(id, UUID.randomUUID(), Instant.now(), new float[]{1, 0, 0}));
+            assertFalse(index.add(id, UUID.randomUUID(), Instant.now(), new float[]{0, 1, 0}));
+            assertEquals(1, index.size());
+            assertThrows(IllegalArgumentException.class,
+                    () -> index.add(UUID.randomUUID(), UUID.randomUUID(), Instant.now(), new float[]{1, 0}));
+            assertThrows(IllegalArgumentException.class, () -> index.search(new float[]{1, 0}, 1, 10, null));
+        }
+    }
+
+    @Test
+    void removedSessionsAndMessagesShouldNotBeReturned() throws Exception {
+        UUID kept = UUID.randomUUID();
+        UUID dropped = UUID.randomUUID();
+        try (HnswIndex index = HnswIndex.open(directory, 2, PARAMETERS)) {
+            UUID keptMessage = UUID.randomUUID();
+            UUID removedMessage = UUID.randomUUID();
+            index.add(keptMessage, kept, Instant.now(), new float[]{1, 0.1f});
+            index.add(removedMessage, kept, Instant.now(), new float[]{1, 0});
+            index.add(UUID.randomUUID(), dropped, Instant.now(), new float[]{1, 0.05f});
+            index.add(UUID.randomUUID(), dropped, Instant.now(), new float[]{0.9f, 0});
+
+            assertEquals(2, index.removeSession(dropped));
+            assertEquals(0, index.removeSession(dropped));
+            assertTrue(index.remove(removedMessage));
+            assertFalse(index.remove(removedMessage));
+
+            List<HnswIndex.Match> matches = index.search(new float[]{1, 0}, 10, 10, null);
+            assertEquals(1, matches.size());
+            assertEquals(keptMessage, matches.get(0).messageId());
+            assertFalse(index.contains(removedMessage));
+        }
+    }
+
+    @Test
+    void sessionFilterShouldScanOnlyThatSession() throws Exception {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        try (HnswIndex index = HnswIndex.open(directory, 2, PARAMETERS)) {
+            UUID inSecond = UUID.randomUUID();
+            index.add(UUID.randomUUID(), first, Instant.now(), new float[]{1, 0});
+            index.add(inSecond, second, Instant.now(), new float[]{0, 1});
+
+            List<HnswIndex.Match> matches = index.search(new float[]{1, 0}, 5, 10, second);
+
+            assertEquals(1, matches.size());
+            assertEquals(inSecond, matches.get(0).messageId());
+            assertEquals(second, matches.get(0).sessionId());
+            assertTrue(index.search(new float[]{1, 0}, 5, 10, UUID.randomUUID()).isEmpty());
+        }
+    }
+
+    @Test
+    void reopenShouldRestoreGraphTombstonesAndUnsnapshottedNodes() throws Exception {
+        List<float[]> vectors = randomVectors(300, 8, 2);
+        List<UUID> ids = new ArrayList<>();
+        UUID session = UUID.randomUUID();
+        UUID removedSession = UUID.randomUUID();
+        try (HnswIndex index = HnswIndex.open(directory, 8, PARAMETERS)) {
+            for (int i = 0; i < 200; i++) {
+                UUID id = UUID.randomUUID();
+                ids.add(id);
+                index.add(id, i < 10 ? removedSession : session, Instant.ofEpochSecond(i), vectors.get(i));
+            }
+            index.removeSession(removedSession);
+            index.flush();
+            Files.copy(directory.resolve("graph.bin"), directory.resolve("graph.partial"));
+            for (int i = 200; i < 300; i++) {
+                UUID id = UUID.randomUUID();
+                ids.add(id);
+                index.add(id, session, Instant.ofEpochSecond(i), vectors.get(i));
+            }
+        }
+        // Simulate a crash before the last snapshot: nodes 200-299 exist only in the vector files.
+        Files.move(directory.resolve("graph.partial"), directory.resolve("graph.bin"), StandardCopyOption.REPLACE_EXISTING);
+        try (HnswIndex index = HnswIndex.open(directory, 0, PARAMETERS)) {
+            assertEquals(8, index.dimensions());
+            assertEquals(290, index.size());
+            assertFalse(index.contains(ids.get(5)));
+            assertEquals(ids.get(250), index.search(vectors.get(250), 1, 32, null).get(0).messageId());
+            assertEquals(Instant.ofEpochSecond(299), index.watermark());
+        }
+        Files.delete(directory.resolve("graph.bin"));
+        try (HnswIndex index = HnswIndex.open(directory, 0, PARAMETERS)) {
+            assertEquals(ids.get(150), index.search(vectors.get(150), 1, 32, null).get(0).messageId());
+        }
+    }
+
+    @Test
+    void closedIndexShouldRejectCalls() throws Exception {
+        HnswIndex index = HnswIndex.open(directory, 2, PARAMETERS);
+        index.close();
+        index.close();
+        index.flush();
+
+        assertTrue(index.isClosed());
+        assertThrows(IllegalStateException.class, () -> index.search(new float[]{1, 0}, 1, 1, null));
+    }
+
+    @Test
+    void codecShouldRoundTripAndValidate() {
+        float[] vector = {1.5f, -2f, 0f};
+        assertArrayEquals(vector, VectorCodec.fromBytes(VectorCodec.toBytes(vector)));
+        assertEquals(1f, dot(VectorCodec.normalize(vector), VectorCodec.normalize(vector)), 1e-6);
+        assertThrows(IllegalArgumentException.class, () -> VectorCodec.validate(null, 4));
+        assertThrows(IllegalArgumentException.class, () -> VectorCodec.validate(new float[5], 4));
+        assertThrows(IllegalArgumentException.class, () -> VectorCodec.validate(new float[]{Float.NaN}, 4));
+        assertThrows(IllegalArgumentException.class, () -> VectorCodec.validate(new float[]{0, 0}, 4));
+    }
+
+    static List<float[]> randomVectors(int count, int dimensions, long seed) {
+        Random random = new Random(seed);
+        List<float[]> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float[] vector = new float[dimensions];
+            for (int d = 0; d < dimensions; d++) {
+                vector[d] = (float) random.nextGaussian();
+            }
+            vectors.add(vector);
+        }
+        return vectors;
+    }
+
+    static float dot(float[] left, float[] right) {
+        float sum = 0;
+        for (int i = 0; i < left.length; i++) {
+            sum += left[i] * right[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.chatstorage.vector;
+
+import com.example.chatstorage.config.AppProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VectorIndexManagerTest {
+
+    @TempDir
+    Path dataDir;
+
+    private AppProperties appProperties;
+    private VectorIndexManager manager;
+
+    @BeforeEach
+    void setUp() {
+        appProperties = new AppProperties();
+        appProperties.getVectorIndex().setEnabled(true);
+        appProperties.getVectorIndex().setDataDir(dataDir.toString());
+        appProperties.getVectorIndex().setMaxOpenIndexes(1);
+        manager = new VectorIndexManager(appProperties);
+    }
+
+    @Test
+    void disabledManagerShouldDoNothing() {
+        appProperties.getVectorIndex().setEnabled(false);
+
+        assertFalse(manager.add("user-1", UUID.randomUUID(), UUID.randomUUID(), Instant.now(), new float[]{1, 0}));
+        assertEquals(-1, manager.dimensions("user-1"));
+        assertTrue(manager.search("user-1", new float[]{1, 0}, 5, null).isEmpty());
+    }
+
+    @Test
+    void indexesShouldBePerUserAndSurviveEviction() throws Exception {
+        UUID session = UUID.randomUUID();
+        UUID message = UUID.randomUUID();
+        Instant createdAt = Instant.parse("2026-01-01T00:00:00Z");
+
+        assertEquals(-1, manager.dimensions("user-1"));
+        assertNull(manager.watermark("user-1"));
+        assertTrue(manager.add("user-1", message, session, createdAt, new float[]{1, 0, 0}));
+        // Opening a second user's index evicts and closes the first (max one open).
+        assertTrue(manager.add("user-2", UUID.randomUUID(), UUID.randomUUID(), createdAt, new float[]{0, 1}));
+
+        assertEquals(3, manager.dimensions("user-1"));
+        assertEquals(2, manager.dimensions("user-2"));
+        assertTrue(manager.contains("user-1", message));
+        assertEquals(createdAt, manager.watermark("user-1"));
+        List<HnswIndex.Match> matches = manager.search("user-1", new float[]{1, 0, 0}, 5, null);
+        assertEquals(1, matches.size());
+        assertEquals(message, matches.get(0).messageId());
+        assertTrue(Files.isDirectory(manager.directory("user-1")));
+        assertFalse(manager.directory("user-1").getFileName().toString().contains("user"));
+
+        assertEquals(1, manager.removeSession("user-1", session));
+        assertFalse(manager.removeMessage("user-1", message));
+        assertTrue(manager.search("user-1", new float[]{1, 0, 0}, 5, null).isEmpty());
+
+        manager.flush();
+        manager.close();
+        assertEquals(3, new VectorIndexManager(appProperties).dimensions("user-1"));
+    }
+}